@@ -0,0 +1,284 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+#include <jni.h>
+#include <errno.h>
+#include <poll.h>
+#include <stddef.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <linux/io_uring.h>
+
+// Minimal io_uring ring, set up with raw syscalls to avoid dependency on liburing.
+// Only the subset needed by the dispatcher is implemented: queueing poll add/remove requests,
+// submitting them in one batch and reaping completions straight from the shared completion queue.
+
+typedef struct {
+    int fd;
+    unsigned *sq_head;
+    unsigned *sq_tail;
+    unsigned *sq_mask;
+    unsigned *sq_array;
+    unsigned *sq_flags;
+    unsigned *cq_head;
+    unsigned *cq_tail;
+    unsigned *cq_mask;
+    struct io_uring_sqe *sqes;
+    struct io_uring_cqe *cqes;
+    void *sq_ptr;
+    size_t sq_len;
+    void *cq_ptr;
+    size_t cq_len;
+    size_t sqes_len;
+    unsigned sq_entries;
+} qdb_ring;
+
+static inline int sys_io_uring_setup(unsigned entries, struct io_uring_params *p) {
+    return (int) syscall(__NR_io_uring_setup, entries, p);
+}
+
+static inline int sys_io_uring_enter(int fd, unsigned to_submit, unsigned min_complete, unsigned flags) {
+    return (int) syscall(__NR_io_uring_enter, fd, to_submit, min_complete, flags, NULL, 0);
+}
+
+static void ring_unmap(qdb_ring *ring) {
+    if (ring->sqes != NULL && ring->sqes != MAP_FAILED) {
+        munmap(ring->sqes, ring->sqes_len);
+    }
+    if (ring->cq_ptr != NULL && ring->cq_ptr != MAP_FAILED && ring->cq_ptr != ring->sq_ptr) {
+        munmap(ring->cq_ptr, ring->cq_len);
+    }
+    if (ring->sq_ptr != NULL && ring->sq_ptr != MAP_FAILED) {
+        munmap(ring->sq_ptr, ring->sq_len);
+    }
+}
+
+static int ring_submit(qdb_ring *ring) {
+    const unsigned tail = *ring->sq_tail;
+    const unsigned head = __atomic_load_n(ring->sq_head, __ATOMIC_ACQUIRE);
+    const unsigned to_submit = tail - head;
+    unsigned flags = 0;
+    if (__atomic_load_n(ring->sq_flags, __ATOMIC_RELAXED) & IORING_SQ_CQ_OVERFLOW) {
+        // completions that did not fit the completion queue are kept by the kernel,
+        // entering the ring with GETEVENTS flushes them back to the queue
+        flags |= IORING_ENTER_GETEVENTS;
+    }
+    if (to_submit == 0 && flags == 0) {
+        return 0;
+    }
+    return sys_io_uring_enter(ring->fd, to_submit, 0, flags);
+}
+
+static struct io_uring_sqe *ring_get_sqe(qdb_ring *ring) {
+    unsigned tail = *ring->sq_tail;
+    if (tail - __atomic_load_n(ring->sq_head, __ATOMIC_ACQUIRE) >= ring->sq_entries) {
+        // submission queue is full, flush it to make room
+        if (ring_submit(ring) < 0) {
+            return NULL;
+        }
+        if (tail - __atomic_load_n(ring->sq_head, __ATOMIC_ACQUIRE) >= ring->sq_entries) {
+            errno = EBUSY;
+            return NULL;
+        }
+    }
+    const unsigned index = tail & *ring->sq_mask;
+    struct io_uring_sqe *sqe = &ring->sqes[index];
+    memset(sqe, 0, sizeof(struct io_uring_sqe));
+    ring->sq_array[index] = index;
+    return sqe;
+}
+
+static inline void ring_push_sqe(qdb_ring *ring) {
+    __atomic_store_n(ring->sq_tail, *ring->sq_tail + 1, __ATOMIC_RELEASE);
+}
+
+JNIEXPORT jlong JNICALL Java_io_questdb_network_IOUringAccessor_create
+        (JNIEnv *e, jclass cl, jint entries) {
+    struct io_uring_params p;
+    memset(&p, 0, sizeof(p));
+    const int fd = sys_io_uring_setup((unsigned) entries, &p);
+    if (fd < 0) {
+        return 0;
+    }
+
+    // without NODROP completions are lost when completion queue overflows,
+    // dispatcher cannot tolerate that, it would never hear from the connection again
+    if ((p.features & IORING_FEAT_NODROP) == 0) {
+        close(fd);
+        errno = EOPNOTSUPP;
+        return 0;
+    }
+
+    qdb_ring *ring = calloc(1, sizeof(qdb_ring));
+    if (ring == NULL) {
+        close(fd);
+        errno = ENOMEM;
+        return 0;
+    }
+    ring->fd = fd;
+    ring->sq_entries = p.sq_entries;
+    ring->sq_len = p.sq_off.array + p.sq_entries * sizeof(unsigned);
+    ring->cq_len = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        if (ring->cq_len > ring->sq_len) {
+            ring->sq_len = ring->cq_len;
+        }
+        ring->cq_len = ring->sq_len;
+    }
+
+    ring->sq_ptr = mmap(NULL, ring->sq_len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQ_RING);
+    if (ring->sq_ptr == MAP_FAILED) {
+        goto fail;
+    }
+
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        ring->cq_ptr = ring->sq_ptr;
+    } else {
+        ring->cq_ptr = mmap(NULL, ring->cq_len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_CQ_RING);
+        if (ring->cq_ptr == MAP_FAILED) {
+            goto fail;
+        }
+    }
+
+    ring->sqes_len = p.sq_entries * sizeof(struct io_uring_sqe);
+    ring->sqes = mmap(NULL, ring->sqes_len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_SQES);
+    if (ring->sqes == MAP_FAILED) {
+        goto fail;
+    }
+
+    ring->sq_head = (unsigned *) ((char *) ring->sq_ptr + p.sq_off.head);
+    ring->sq_tail = (unsigned *) ((char *) ring->sq_ptr + p.sq_off.tail);
+    ring->sq_mask = (unsigned *) ((char *) ring->sq_ptr + p.sq_off.ring_mask);
+    ring->sq_array = (unsigned *) ((char *) ring->sq_ptr + p.sq_off.array);
+    ring->sq_flags = (unsigned *) ((char *) ring->sq_ptr + p.sq_off.flags);
+    ring->cq_head = (unsigned *) ((char *) ring->cq_ptr + p.cq_off.head);
+    ring->cq_tail = (unsigned *) ((char *) ring->cq_ptr + p.cq_off.tail);
+    ring->cq_mask = (unsigned *) ((char *) ring->cq_ptr + p.cq_off.ring_mask);
+    ring->cqes = (struct io_uring_cqe *) ((char *) ring->cq_ptr + p.cq_off.cqes);
+    return (jlong) ring;
+
+    fail:
+    {
+        const int err = errno;
+        ring_unmap(ring);
+        close(fd);
+        free(ring);
+        errno = err;
+        return 0;
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_questdb_network_IOUringAccessor_close
+        (JNIEnv *e, jclass cl, jlong ringPtr) {
+    qdb_ring *ring = (qdb_ring *) ringPtr;
+    ring_unmap(ring);
+    close(ring->fd);
+    free(ring);
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_pollAdd
+        (JNIEnv *e, jclass cl, jlong ringPtr, jlong fd, jlong data, jint events) {
+    qdb_ring *ring = (qdb_ring *) ringPtr;
+    struct io_uring_sqe *sqe = ring_get_sqe(ring);
+    if (sqe == NULL) {
+        return -1;
+    }
+    sqe->opcode = IORING_OP_POLL_ADD;
+    sqe->fd = (int) fd;
+    sqe->poll32_events = (unsigned) events;
+    sqe->user_data = (unsigned long long) data;
+    ring_push_sqe(ring);
+    return 0;
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_pollRemove
+        (JNIEnv *e, jclass cl, jlong ringPtr, jlong targetData, jlong data) {
+    qdb_ring *ring = (qdb_ring *) ringPtr;
+    struct io_uring_sqe *sqe = ring_get_sqe(ring);
+    if (sqe == NULL) {
+        return -1;
+    }
+    sqe->opcode = IORING_OP_POLL_REMOVE;
+    sqe->fd = -1;
+    sqe->addr = (unsigned long long) targetData;
+    sqe->user_data = (unsigned long long) data;
+    ring_push_sqe(ring);
+    return 0;
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_submit
+        (JNIEnv *e, jclass cl, jlong ringPtr) {
+    return ring_submit((qdb_ring *) ringPtr);
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_submitAndWait
+        (JNIEnv *e, jclass cl, jlong ringPtr, jint minComplete) {
+    qdb_ring *ring = (qdb_ring *) ringPtr;
+    const unsigned to_submit = *ring->sq_tail - __atomic_load_n(ring->sq_head, __ATOMIC_ACQUIRE);
+    return sys_io_uring_enter(ring->fd, to_submit, (unsigned) minComplete, IORING_ENTER_GETEVENTS);
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_reap
+        (JNIEnv *e, jclass cl, jlong ringPtr, jlong cqesPtr, jint capacity) {
+    qdb_ring *ring = (qdb_ring *) ringPtr;
+    struct io_uring_cqe *out = (struct io_uring_cqe *) cqesPtr;
+    unsigned head = *ring->cq_head;
+    const unsigned tail = __atomic_load_n(ring->cq_tail, __ATOMIC_ACQUIRE);
+    const unsigned mask = *ring->cq_mask;
+    int n = 0;
+    while (head != tail && n < capacity) {
+        out[n++] = ring->cqes[head & mask];
+        head++;
+    }
+    __atomic_store_n(ring->cq_head, head, __ATOMIC_RELEASE);
+    return n;
+}
+
+JNIEXPORT jshort JNICALL Java_io_questdb_network_IOUringAccessor_getCqeSize
+        (JNIEnv *e, jclass cl) {
+    return sizeof(struct io_uring_cqe);
+}
+
+JNIEXPORT jshort JNICALL Java_io_questdb_network_IOUringAccessor_getCqeDataOffset
+        (JNIEnv *e, jclass cl) {
+    return (jshort) offsetof(struct io_uring_cqe, user_data);
+}
+
+JNIEXPORT jshort JNICALL Java_io_questdb_network_IOUringAccessor_getCqeResOffset
+        (JNIEnv *e, jclass cl) {
+    return (jshort) offsetof(struct io_uring_cqe, res);
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_getPOLLIN
+        (JNIEnv *e, jclass cl) {
+    return POLLIN;
+}
+
+JNIEXPORT jint JNICALL Java_io_questdb_network_IOUringAccessor_getPOLLOUT
+        (JNIEnv *e, jclass cl) {
+    return POLLOUT;
+}
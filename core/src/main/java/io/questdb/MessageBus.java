@@ -108,4 +108,34 @@ public interface MessageBus extends Closeable {
     RingQueue<LatestByTask> getLatestByQueue();
 
     Sequence getLatestBySubSeq();
+
+    Sequence getLatestByScanPubSeq();
+
+    RingQueue<LatestByScanTask> getLatestByScanQueue();
+
+    Sequence getLatestByScanSubSeq();
+
+    Sequence getPageFrameFilterPubSeq();
+
+    RingQueue<PageFrameFilterTask> getPageFrameFilterQueue();
+
+    Sequence getPageFrameFilterSubSeq();
+
+    Sequence getPageFrameGroupByPubSeq();
+
+    RingQueue<PageFrameGroupByTask> getPageFrameGroupByQueue();
+
+    Sequence getPageFrameGroupBySubSeq();
+
+    Sequence getHashJoinBuildPubSeq();
+
+    RingQueue<HashJoinBuildTask> getHashJoinBuildQueue();
+
+    Sequence getHashJoinBuildSubSeq();
+
+    Sequence getTextImportPubSeq();
+
+    RingQueue<TextImportTask> getTextImportQueue();
+
+    Sequence getTextImportSubSeq();
 }
@@ -74,6 +74,26 @@ public class MessageBusImpl implements MessageBus {
     private final MPSequence latestByPubSeq;
     private final MCSequence latestBySubSeq;
 
+    private final RingQueue<LatestByScanTask> latestByScanQueue;
+    private final MPSequence latestByScanPubSeq;
+    private final MCSequence latestByScanSubSeq;
+
+    private final RingQueue<PageFrameFilterTask> pageFrameFilterQueue;
+    private final MPSequence pageFrameFilterPubSeq;
+    private final MCSequence pageFrameFilterSubSeq;
+
+    private final RingQueue<PageFrameGroupByTask> pageFrameGroupByQueue;
+    private final MPSequence pageFrameGroupByPubSeq;
+    private final MCSequence pageFrameGroupBySubSeq;
+
+    private final RingQueue<HashJoinBuildTask> hashJoinBuildQueue;
+    private final MPSequence hashJoinBuildPubSeq;
+    private final MCSequence hashJoinBuildSubSeq;
+
+    private final RingQueue<TextImportTask> textImportQueue;
+    private final MPSequence textImportPubSeq;
+    private final MCSequence textImportSubSeq;
+
     private final CairoConfiguration configuration;
 
     public MessageBusImpl(@NotNull CairoConfiguration configuration) {
@@ -127,6 +147,31 @@ public class MessageBusImpl implements MessageBus {
         this.latestByPubSeq = new MPSequence(latestByQueue.getCapacity());
         this.latestBySubSeq = new MCSequence(latestByQueue.getCapacity());
         latestByPubSeq.then(latestBySubSeq).then(latestByPubSeq);
+
+        this.latestByScanQueue = new RingQueue<>(LatestByScanTask::new, configuration.getLatestByScanQueueCapacity());
+        this.latestByScanPubSeq = new MPSequence(latestByScanQueue.getCapacity());
+        this.latestByScanSubSeq = new MCSequence(latestByScanQueue.getCapacity());
+        latestByScanPubSeq.then(latestByScanSubSeq).then(latestByScanPubSeq);
+
+        this.pageFrameFilterQueue = new RingQueue<>(PageFrameFilterTask::new, configuration.getPageFrameFilterQueueCapacity());
+        this.pageFrameFilterPubSeq = new MPSequence(pageFrameFilterQueue.getCapacity());
+        this.pageFrameFilterSubSeq = new MCSequence(pageFrameFilterQueue.getCapacity());
+        pageFrameFilterPubSeq.then(pageFrameFilterSubSeq).then(pageFrameFilterPubSeq);
+
+        this.pageFrameGroupByQueue = new RingQueue<>(PageFrameGroupByTask::new, configuration.getPageFrameGroupByQueueCapacity());
+        this.pageFrameGroupByPubSeq = new MPSequence(pageFrameGroupByQueue.getCapacity());
+        this.pageFrameGroupBySubSeq = new MCSequence(pageFrameGroupByQueue.getCapacity());
+        pageFrameGroupByPubSeq.then(pageFrameGroupBySubSeq).then(pageFrameGroupByPubSeq);
+
+        this.hashJoinBuildQueue = new RingQueue<>(HashJoinBuildTask::new, configuration.getHashJoinBuildQueueCapacity());
+        this.hashJoinBuildPubSeq = new MPSequence(hashJoinBuildQueue.getCapacity());
+        this.hashJoinBuildSubSeq = new MCSequence(hashJoinBuildQueue.getCapacity());
+        hashJoinBuildPubSeq.then(hashJoinBuildSubSeq).then(hashJoinBuildPubSeq);
+
+        this.textImportQueue = new RingQueue<>(TextImportTask::new, configuration.getTextImportQueueCapacity());
+        this.textImportPubSeq = new MPSequence(textImportQueue.getCapacity());
+        this.textImportSubSeq = new MCSequence(textImportQueue.getCapacity());
+        textImportPubSeq.then(textImportSubSeq).then(textImportPubSeq);
     }
 
     @Override
@@ -283,4 +328,79 @@ public class MessageBusImpl implements MessageBus {
     public Sequence getLatestBySubSeq() {
         return latestBySubSeq;
     }
+
+    @Override
+    public Sequence getLatestByScanPubSeq() {
+        return latestByScanPubSeq;
+    }
+
+    @Override
+    public RingQueue<LatestByScanTask> getLatestByScanQueue() {
+        return latestByScanQueue;
+    }
+
+    @Override
+    public Sequence getLatestByScanSubSeq() {
+        return latestByScanSubSeq;
+    }
+
+    @Override
+    public Sequence getPageFrameFilterPubSeq() {
+        return pageFrameFilterPubSeq;
+    }
+
+    @Override
+    public RingQueue<PageFrameFilterTask> getPageFrameFilterQueue() {
+        return pageFrameFilterQueue;
+    }
+
+    @Override
+    public Sequence getPageFrameFilterSubSeq() {
+        return pageFrameFilterSubSeq;
+    }
+
+    @Override
+    public Sequence getPageFrameGroupByPubSeq() {
+        return pageFrameGroupByPubSeq;
+    }
+
+    @Override
+    public RingQueue<PageFrameGroupByTask> getPageFrameGroupByQueue() {
+        return pageFrameGroupByQueue;
+    }
+
+    @Override
+    public Sequence getPageFrameGroupBySubSeq() {
+        return pageFrameGroupBySubSeq;
+    }
+
+    @Override
+    public Sequence getHashJoinBuildPubSeq() {
+        return hashJoinBuildPubSeq;
+    }
+
+    @Override
+    public RingQueue<HashJoinBuildTask> getHashJoinBuildQueue() {
+        return hashJoinBuildQueue;
+    }
+
+    @Override
+    public Sequence getHashJoinBuildSubSeq() {
+        return hashJoinBuildSubSeq;
+    }
+
+    @Override
+    public Sequence getTextImportPubSeq() {
+        return textImportPubSeq;
+    }
+
+    @Override
+    public RingQueue<TextImportTask> getTextImportQueue() {
+        return textImportQueue;
+    }
+
+    @Override
+    public Sequence getTextImportSubSeq() {
+        return textImportSubSeq;
+    }
 }
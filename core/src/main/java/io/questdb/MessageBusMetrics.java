@@ -0,0 +1,89 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb;
+
+import io.questdb.metrics.MetricsRegistry;
+import io.questdb.mp.Sequence;
+
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Depth of message bus queues, which are drained by worker pools. Depth is number of published
+ * tasks not yet picked up by consumers, it is computed when metrics are scraped.
+ */
+public class MessageBusMetrics {
+    private static final CharSequence[] QUEUE_NAMES = {
+            "indexer",
+            "o3_purge_discovery",
+            "o3_purge",
+            "o3_copy",
+            "o3_open_column",
+            "o3_partition",
+            "o3_callback",
+            "vector_aggregate",
+            "latest_by",
+            "latest_by_scan",
+            "page_frame_filter",
+            "page_frame_group_by",
+            "hash_join_build",
+            "text_import"
+    };
+    private volatile MessageBus messageBus;
+
+    public MessageBusMetrics(MetricsRegistry metricsRegistry) {
+        final LongSupplier[] depths = {
+                depth(MessageBus::getIndexerPubSequence, MessageBus::getIndexerSubSequence),
+                depth(MessageBus::getO3PurgeDiscoveryPubSeq, MessageBus::getO3PurgeDiscoverySubSeq),
+                depth(MessageBus::getO3PurgePubSeq, MessageBus::getO3PurgeSubSeq),
+                depth(MessageBus::getO3CopyPubSeq, MessageBus::getO3CopySubSeq),
+                depth(MessageBus::getO3OpenColumnPubSeq, MessageBus::getO3OpenColumnSubSeq),
+                depth(MessageBus::getO3PartitionPubSeq, MessageBus::getO3PartitionSubSeq),
+                depth(MessageBus::getO3CallbackPubSeq, MessageBus::getO3CallbackSubSeq),
+                depth(MessageBus::getVectorAggregatePubSeq, MessageBus::getVectorAggregateSubSeq),
+                depth(MessageBus::getLatestByPubSeq, MessageBus::getLatestBySubSeq),
+                depth(MessageBus::getLatestByScanPubSeq, MessageBus::getLatestByScanSubSeq),
+                depth(MessageBus::getPageFrameFilterPubSeq, MessageBus::getPageFrameFilterSubSeq),
+                depth(MessageBus::getPageFrameGroupByPubSeq, MessageBus::getPageFrameGroupBySubSeq),
+                depth(MessageBus::getHashJoinBuildPubSeq, MessageBus::getHashJoinBuildSubSeq),
+                depth(MessageBus::getTextImportPubSeq, MessageBus::getTextImportSubSeq)
+        };
+        metricsRegistry.newVirtualGauge("message_bus_queue_depth", "queue", QUEUE_NAMES, depths);
+    }
+
+    public void of(MessageBus messageBus) {
+        this.messageBus = messageBus;
+    }
+
+    private LongSupplier depth(Function<MessageBus, Sequence> pubSeq, Function<MessageBus, Sequence> subSeq) {
+        return () -> {
+            final MessageBus bus = messageBus;
+            if (bus == null) {
+                return 0;
+            }
+            return Math.max(0, pubSeq.apply(bus).current() - subSeq.apply(bus).current());
+        };
+    }
+}
@@ -24,7 +24,11 @@
 
 package io.questdb;
 
+import io.questdb.cairo.TableWriterMetrics;
+import io.questdb.cairo.pool.PoolMetrics;
 import io.questdb.cutlass.http.processors.JsonQueryMetrics;
+import io.questdb.cutlass.line.tcp.LineTcpMetrics;
+import io.questdb.cutlass.pgwire.PGWireMetrics;
 import io.questdb.metrics.MetricsRegistry;
 import io.questdb.metrics.MetricsRegistryImpl;
 import io.questdb.metrics.NullMetricsRegistry;
@@ -34,11 +38,21 @@ import io.questdb.std.str.CharSink;
 public class Metrics implements Scrapable {
     private final boolean enabled;
     private final JsonQueryMetrics jsonQuery;
+    private final TableWriterMetrics tableWriter;
+    private final PoolMetrics pool;
+    private final LineTcpMetrics lineTcp;
+    private final PGWireMetrics pgWire;
+    private final MessageBusMetrics messageBus;
     private final MetricsRegistry metricsRegistry;
 
     Metrics(boolean enabled, MetricsRegistry metricsRegistry) {
         this.enabled = enabled;
         this.jsonQuery = new JsonQueryMetrics(metricsRegistry);
+        this.tableWriter = new TableWriterMetrics(metricsRegistry);
+        this.pool = new PoolMetrics(metricsRegistry);
+        this.lineTcp = new LineTcpMetrics(metricsRegistry);
+        this.pgWire = new PGWireMetrics(metricsRegistry);
+        this.messageBus = new MessageBusMetrics(metricsRegistry);
         this.metricsRegistry = metricsRegistry;
     }
 
@@ -58,6 +72,26 @@ public class Metrics implements Scrapable {
         return jsonQuery;
     }
 
+    public LineTcpMetrics lineTcp() {
+        return lineTcp;
+    }
+
+    public MessageBusMetrics messageBus() {
+        return messageBus;
+    }
+
+    public PGWireMetrics pgWire() {
+        return pgWire;
+    }
+
+    public PoolMetrics pool() {
+        return pool;
+    }
+
+    public TableWriterMetrics tableWriter() {
+        return tableWriter;
+    }
+
     @Override
     public void scrapeIntoPrometheus(CharSink sink) {
         metricsRegistry.scrapeIntoPrometheus(sink);
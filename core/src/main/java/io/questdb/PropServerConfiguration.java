@@ -35,6 +35,7 @@ import io.questdb.cutlass.line.*;
 import io.questdb.cutlass.line.tcp.LineTcpReceiverConfiguration;
 import io.questdb.cutlass.line.udp.LineUdpReceiverConfiguration;
 import io.questdb.cutlass.pgwire.PGWireConfiguration;
+import io.questdb.cutlass.replication.ReplicationConfiguration;
 import io.questdb.cutlass.text.TextConfiguration;
 import io.questdb.cutlass.text.types.InputFormatConfiguration;
 import io.questdb.griffin.SqlInterruptorConfiguration;
@@ -77,6 +78,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final int createAsSelectRetryCount;
     private final CharSequence defaultMapType;
     private final boolean defaultSymbolCacheFlag;
+    private final boolean symbolCapacityAutoScaleEnabled;
     private final int defaultSymbolCapacity;
     private final int fileOperationRetryCount;
     private final long idleCheckInterval;
@@ -104,6 +106,8 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final int sqlMapMaxPages;
     private final int sqlMapMaxResizes;
     private final int sqlModelPoolCapacity;
+    private final long sqlQueryMemoryLimit;
+    private final long sqlGlobalQueryMemoryLimit;
     private final long sqlSortKeyPageSize;
     private final int sqlSortKeyMaxPages;
     private final long sqlSortLightValuePageSize;
@@ -140,6 +144,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final boolean lineUdpUnicast;
     private final boolean lineUdpOwnThread;
     private final int sqlCopyBufferSize;
+    private final long sqlCopyChunkSize;
     private final long sqlAppendPageSize;
     private final int sqlAnalyticColumnPoolCapacity;
     private final int sqlCreateTableModelPoolCapacity;
@@ -203,6 +208,19 @@ public class PropServerConfiguration implements ServerConfiguration {
     private final boolean o3QuickSortEnabled;
     private final MetricsConfiguration metricsConfiguration = new PropMetricsConfiguration();
     private final boolean metricsEnabled;
+    private final ReplicationConfiguration replicationConfiguration = new PropReplicationConfiguration();
+    private final IODispatcherConfiguration replicationDispatcherConfiguration = new PropReplicationIODispatcherConfiguration();
+    private final boolean replicationEnabled;
+    private final int replicationNetActiveConnectionLimit;
+    private final long replicationNetIdleConnectionTimeout;
+    private final int replicationRecvBufferSize;
+    private final int replicationSendBufferSize;
+    private final long replicationMaxRowsPerFrame;
+    private final long replicationMaxResponseSize;
+    private final boolean replicaEnabled;
+    private final long replicaPollInterval;
+    private final int replicaRecvBufferSize;
+    private final ObjList<String> replicaTables = new ObjList<>();
     private final int sqlDistinctTimestampKeyCapacity;
     private final double sqlDistinctTimestampLoadFactor;
     private boolean httpAllowDeflateBeforeSend;
@@ -224,6 +242,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private String publicDirectory;
     private int httpActiveConnectionLimit;
     private int httpEventCapacity;
+    private boolean httpIOUringEnabled;
     private int httpIOQueueCapacity;
     private long httpIdleConnectionTimeout;
     private long httpQueuedConnectionTimeout;
@@ -251,6 +270,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int lineUdpPort;
     private int jsonQueryFloatScale;
     private int jsonQueryDoubleScale;
+    private int jsonQueryArrowBatchRowCount;
     private int jsonQueryConnectionCheckFrequency;
     private boolean httpFrozenClock;
     private boolean readOnlySecurityContext;
@@ -262,6 +282,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int pgNetBindIPv4Address;
     private int pgNetBindPort;
     private int pgNetEventCapacity;
+    private boolean pgNetIOUringEnabled;
     private int pgNetIOQueueCapacity;
     private long pgNetIdleConnectionTimeout;
     private long pgNetQueuedConnectionTimeout;
@@ -295,9 +316,14 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int pgNamesStatementPoolCapacity;
     private int pgPendingWritersCacheCapacity;
     private int lineTcpNetActiveConnectionLimit;
+    private int replicationNetBindIPv4Address;
+    private int replicationNetBindPort;
+    private int replicaPrimaryIPv4Address;
+    private int replicaPrimaryPort;
     private int lineTcpNetBindIPv4Address;
     private int lineTcpNetBindPort;
     private int lineTcpNetEventCapacity;
+    private boolean lineTcpNetIOUringEnabled;
     private int lineTcpNetIOQueueCapacity;
     private long lineTcpNetIdleConnectionTimeout;
     private long lineTcpNetQueuedConnectionTimeout;
@@ -334,6 +360,7 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int httpMinBindIPv4Address;
     private int httpMinBindPort;
     private int httpMinEventCapacity;
+    private boolean httpMinIOUringEnabled;
     private int httpMinIOQueueCapacity;
     private long httpMinIdleConnectionTimeout;
     private long httpMinQueuedConnectionTimeout;
@@ -342,6 +369,30 @@ public class PropServerConfiguration implements ServerConfiguration {
     private int httpMinRcvBufSize;
     private int httpMinSndBufSize;
     private final int latestByQueueCapacity;
+    private final int pageFrameFilterQueueCapacity;
+    private final boolean sqlParallelFilterEnabled;
+    private final long sqlParallelFilterMaxRangeRows;
+    private final int pageFrameGroupByQueueCapacity;
+    private final boolean sqlParallelGroupByEnabled;
+    private final long sqlParallelGroupByMaxRangeRows;
+    private final int latestByScanQueueCapacity;
+    private final boolean sqlParallelLatestByEnabled;
+    private final long sqlParallelLatestByRangeRows;
+    private final int hashJoinBuildQueueCapacity;
+    private final int textImportQueueCapacity;
+    private final boolean sqlParallelHashJoinEnabled;
+    private final int sqlHashJoinRadixBits;
+    private final String sqlHashJoinSpillRoot;
+    private final long sqlHashJoinSpillThreshold;
+    private final boolean sqlCompiledFilterEnabled;
+    private final long walSegmentRolloverRowCount;
+    private final boolean zoneMapEnabled;
+    private final int zoneMapBlockSize;
+    private final int columnStatsRefreshRowCount;
+    private final double bloomFilterFalsePositiveRate;
+    private final long coldStorageCheckInterval;
+    private final long queryCacheMemoryLimit;
+    private final long matViewRefreshInterval;
     private final int sampleByIndexSearchPageSize;
 
     public PropServerConfiguration(
@@ -403,6 +454,7 @@ public class PropServerConfiguration implements ServerConfiguration {
                 });
 
                 this.httpMinEventCapacity = getInt(properties, env, "http.min.net.event.capacity", 16);
+                this.httpMinIOUringEnabled = getBoolean(properties, env, "http.min.net.io.uring.enabled", false);
                 this.httpMinIOQueueCapacity = getInt(properties, env, "http.min.net.io.queue.capacity", 16);
                 this.httpMinIdleConnectionTimeout = getLong(properties, env, "http.min.net.idle.connection.timeout", 5 * 60 * 1000L);
                 this.httpMinQueuedConnectionTimeout = getLong(properties, env, "http.min.net.queued.connection.timeout", 5 * 1000L);
@@ -456,6 +508,7 @@ public class PropServerConfiguration implements ServerConfiguration {
 
                 this.httpActiveConnectionLimit = getInt(properties, env, "http.net.active.connection.limit", 256);
                 this.httpEventCapacity = getInt(properties, env, "http.net.event.capacity", 1024);
+                this.httpIOUringEnabled = getBoolean(properties, env, "http.net.io.uring.enabled", false);
                 this.httpIOQueueCapacity = getInt(properties, env, "http.net.io.queue.capacity", 1024);
                 this.httpIdleConnectionTimeout = getLong(properties, env, "http.net.idle.connection.timeout", 5 * 60 * 1000L);
                 this.httpQueuedConnectionTimeout = getLong(properties, env, "http.net.queued.connection.timeout", 5 * 1000L);
@@ -480,6 +533,7 @@ public class PropServerConfiguration implements ServerConfiguration {
                 this.jsonQueryConnectionCheckFrequency = getInt(properties, env, "http.json.query.connection.check.frequency", 1_000_000);
                 this.jsonQueryFloatScale = getInt(properties, env, "http.json.query.float.scale", 4);
                 this.jsonQueryDoubleScale = getInt(properties, env, "http.json.query.double.scale", 12);
+                this.jsonQueryArrowBatchRowCount = getInt(properties, env, "http.arrow.batch.row.count", 65536);
                 this.readOnlySecurityContext = getBoolean(properties, env, "http.security.readonly", false);
                 this.maxHttpQueryResponseRowLimit = getLong(properties, env, "http.security.max.response.rows", Long.MAX_VALUE);
                 this.interruptOnClosedConnection = getBoolean(properties, env, "http.security.interrupt.on.closed.connection", true);
@@ -510,6 +564,7 @@ public class PropServerConfiguration implements ServerConfiguration {
                 });
 
                 this.pgNetEventCapacity = getInt(properties, env, "pg.net.event.capacity", 1024);
+                this.pgNetIOUringEnabled = getBoolean(properties, env, "pg.net.io.uring.enabled", false);
                 this.pgNetIOQueueCapacity = getInt(properties, env, "pg.net.io.queue.capacity", 1024);
                 this.pgNetIdleConnectionTimeout = getLong(properties, env, "pg.net.idle.timeout", 300_000);
                 this.pgNetQueuedConnectionTimeout = getLong(properties, env, "pg.net.idle.timeout", 5_000);
@@ -553,6 +608,7 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.createAsSelectRetryCount = getInt(properties, env, "cairo.create.as.select.retry.count", 5);
             this.defaultMapType = getString(properties, env, "cairo.default.map.type", "fast");
             this.defaultSymbolCacheFlag = getBoolean(properties, env, "cairo.default.symbol.cache.flag", true);
+            this.symbolCapacityAutoScaleEnabled = getBoolean(properties, env, "cairo.symbol.capacity.auto.scale.enabled", true);
             this.defaultSymbolCapacity = getInt(properties, env, "cairo.default.symbol.capacity", 256);
             this.fileOperationRetryCount = getInt(properties, env, "cairo.file.operation.retry.count", 30);
             this.idleCheckInterval = getLong(properties, env, "cairo.idle.check.interval", 5 * 60 * 1000L);
@@ -578,6 +634,8 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.sqlMapMaxPages = getIntSize(properties, env, "cairo.sql.map.max.pages", Integer.MAX_VALUE);
             this.sqlMapMaxResizes = getIntSize(properties, env, "cairo.sql.map.max.resizes", Integer.MAX_VALUE);
             this.sqlModelPoolCapacity = getInt(properties, env, "cairo.model.pool.capacity", 1024);
+            this.sqlQueryMemoryLimit = getLongSize(properties, env, "cairo.sql.query.memory.limit", 0);
+            this.sqlGlobalQueryMemoryLimit = getLongSize(properties, env, "cairo.sql.global.query.memory.limit", 0);
             this.sqlSortKeyPageSize = getLongSize(properties, env, "cairo.sql.sort.key.page.size", 4 * 1024 * 1024);
             this.sqlSortKeyMaxPages = getIntSize(properties, env, "cairo.sql.sort.key.max.pages", Integer.MAX_VALUE);
             this.sqlSortLightValuePageSize = getLongSize(properties, env, "cairo.sql.sort.light.value.page.size", 8 * 1048576);
@@ -601,6 +659,7 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.sqlInsertModelPoolCapacity = getInt(properties, env, "cairo.sql.insert.model.pool.capacity", 64);
             this.sqlCopyModelPoolCapacity = getInt(properties, env, "cairo.sql.copy.model.pool.capacity", 32);
             this.sqlCopyBufferSize = getIntSize(properties, env, "cairo.sql.copy.buffer.size", 2 * 1024 * 1024);
+            this.sqlCopyChunkSize = getLongSize(properties, env, "cairo.sql.copy.chunk.size", 256 * Numbers.SIZE_1MB);
             long sqlAppendPageSize = getLongSize(properties, env, "cairo.sql.append.page.size", 16 * 1024 * 1024);
             this.sampleByIndexSearchPageSize = getIntSize(properties, env, "cairo.sql.sampleby.page.size", 0);
             // round the append page size to the OS page size
@@ -662,6 +721,33 @@ public class PropServerConfiguration implements ServerConfiguration {
             this.sqlAnalyticTreeKeyMaxPages = Numbers.ceilPow2(getInt(properties, env, "cairo.sql.analytic.tree.max.pages", Integer.MAX_VALUE));
             this.sqlTxnScoreboardEntryCount = Numbers.ceilPow2(getInt(properties, env, "cairo.o3.txn.scoreboard.entry.count", 16384));
             this.latestByQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.latestby.queue.capacity", 32));
+            this.pageFrameFilterQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.page.frame.filter.queue.capacity", 64));
+            this.sqlParallelFilterEnabled = getBoolean(properties, env, "cairo.sql.parallel.filter.enabled", true);
+            this.sqlParallelFilterMaxRangeRows = getLong(properties, env, "cairo.sql.parallel.filter.max.range.rows", 100_000);
+            this.pageFrameGroupByQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.page.frame.groupby.queue.capacity", 64));
+            this.sqlParallelGroupByEnabled = getBoolean(properties, env, "cairo.sql.parallel.groupby.enabled", true);
+            this.sqlParallelGroupByMaxRangeRows = getLong(properties, env, "cairo.sql.parallel.groupby.max.range.rows", 1_000_000);
+            this.latestByScanQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.latest.by.scan.queue.capacity", 64));
+            this.sqlParallelLatestByEnabled = getBoolean(properties, env, "cairo.sql.parallel.latest.by.enabled", true);
+            this.sqlParallelLatestByRangeRows = getLong(properties, env, "cairo.sql.parallel.latest.by.range.rows", 1_000_000);
+            this.hashJoinBuildQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.hash.join.build.queue.capacity", 64));
+            this.textImportQueueCapacity = Numbers.ceilPow2(getInt(properties, env, "cairo.text.import.queue.capacity", 64));
+            this.sqlParallelHashJoinEnabled = getBoolean(properties, env, "cairo.sql.parallel.hash.join.enabled", true);
+            this.sqlHashJoinRadixBits = getInt(properties, env, "cairo.sql.hash.join.radix.bits", 4);
+            this.sqlHashJoinSpillRoot = getString(properties, env, "cairo.sql.hash.join.spill.root", null);
+            this.sqlHashJoinSpillThreshold = getLongSize(properties, env, "cairo.sql.hash.join.spill.threshold", 256 * Numbers.SIZE_1MB);
+            this.sqlCompiledFilterEnabled = getBoolean(properties, env, "cairo.sql.compiled.filter.enabled", true);
+            this.walSegmentRolloverRowCount = getLong(properties, env, "cairo.wal.segment.rollover.row.count", 200_000);
+            this.zoneMapEnabled = getBoolean(properties, env, "cairo.zone.map.enabled", true);
+            this.zoneMapBlockSize = Numbers.ceilPow2(getInt(properties, env, "cairo.zone.map.block.size", 64 * 1024));
+            this.columnStatsRefreshRowCount = getInt(properties, env, "cairo.column.stats.refresh.row.count", 64 * 1024);
+            this.bloomFilterFalsePositiveRate = getDouble(properties, env, "cairo.bloom.filter.false.positive.rate", 0.01);
+            if (bloomFilterFalsePositiveRate <= 0 || bloomFilterFalsePositiveRate >= 1) {
+                throw new ServerConfigurationException("cairo.bloom.filter.false.positive.rate", Double.toString(bloomFilterFalsePositiveRate));
+            }
+            this.coldStorageCheckInterval = getLong(properties, env, "cairo.cold.storage.check.interval", 60_000);
+            this.queryCacheMemoryLimit = getLongSize(properties, env, "cairo.cache.memory.limit", 64 * Numbers.SIZE_1MB);
+            this.matViewRefreshInterval = getLong(properties, env, "cairo.mat.view.refresh.interval", 1000);
             this.telemetryEnabled = getBoolean(properties, env, "telemetry.enabled", true);
             this.telemetryQueueCapacity = getInt(properties, env, "telemetry.queue.capacity", 512);
 
@@ -691,6 +777,7 @@ public class PropServerConfiguration implements ServerConfiguration {
                 });
 
                 this.lineTcpNetEventCapacity = getInt(properties, env, "line.tcp.net.event.capacity", 1024);
+                this.lineTcpNetIOUringEnabled = getBoolean(properties, env, "line.tcp.net.io.uring.enabled", false);
                 this.lineTcpNetIOQueueCapacity = getInt(properties, env, "line.tcp.net.io.queue.capacity", 256);
                 this.lineTcpNetIdleConnectionTimeout = getLong(properties, env, "line.tcp.net.idle.timeout", 0);
                 this.lineTcpNetQueuedConnectionTimeout = getLong(properties, env, "line.tcp.net.queued.timeout", 5_000);
@@ -752,6 +839,31 @@ public class PropServerConfiguration implements ServerConfiguration {
 
             this.metricsEnabled = getBoolean(properties, env, "metrics.enabled", false);
 
+            this.replicationEnabled = getBoolean(properties, env, "replication.enabled", false);
+            parseBindTo(properties, env, "replication.net.bind.to", "0.0.0.0:9010", (a, p) -> {
+                replicationNetBindIPv4Address = a;
+                replicationNetBindPort = p;
+            });
+            this.replicationNetActiveConnectionLimit = getInt(properties, env, "replication.net.active.connection.limit", 16);
+            this.replicationNetIdleConnectionTimeout = getLong(properties, env, "replication.net.idle.timeout", 0);
+            this.replicationRecvBufferSize = getIntSize(properties, env, "replication.recv.buffer.size", 16 * 1024);
+            this.replicationSendBufferSize = getIntSize(properties, env, "replication.send.buffer.size", 64 * 1024);
+            this.replicationMaxRowsPerFrame = getLong(properties, env, "replication.max.rows.per.frame", 64 * 1024);
+            this.replicationMaxResponseSize = getLongSize(properties, env, "replication.max.response.size", 16 * Numbers.SIZE_1MB);
+            this.replicaEnabled = getBoolean(properties, env, "replication.replica.enabled", false);
+            parseBindTo(properties, env, "replication.replica.primary", "127.0.0.1:9010", (a, p) -> {
+                replicaPrimaryIPv4Address = a;
+                replicaPrimaryPort = p;
+            });
+            this.replicaPollInterval = getLong(properties, env, "replication.replica.poll.interval", 100);
+            this.replicaRecvBufferSize = getIntSize(properties, env, "replication.replica.recv.buffer.size", Numbers.SIZE_1MB);
+            for (String tableName : getString(properties, env, "replication.replica.tables", "").split(",")) {
+                tableName = tableName.trim();
+                if (tableName.length() > 0) {
+                    replicaTables.add(tableName);
+                }
+            }
+
             this.buildInformation = buildInformation;
         }
     }
@@ -796,6 +908,11 @@ public class PropServerConfiguration implements ServerConfiguration {
         return metricsConfiguration;
     }
 
+    @Override
+    public ReplicationConfiguration getReplicationConfiguration() {
+        return replicationConfiguration;
+    }
+
     private int[] getAffinity(Properties properties, @Nullable Map<String, String> env, String key, int httpWorkerCount) throws ServerConfigurationException {
         final int[] result = new int[httpWorkerCount];
         String value = overrideWithEnv(properties, env, key);
@@ -1051,6 +1168,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return httpEventCapacity;
         }
 
+        @Override
+        public IOUringFacade getIOUringFacade() {
+            return IOUringFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public boolean isIOUringEnabled() {
+            return httpIOUringEnabled;
+        }
+
         @Override
         public int getIOQueueCapacity() {
             return httpIOQueueCapacity;
@@ -1138,6 +1265,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return httpMinEventCapacity;
         }
 
+        @Override
+        public IOUringFacade getIOUringFacade() {
+            return IOUringFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public boolean isIOUringEnabled() {
+            return httpMinIOUringEnabled;
+        }
+
         @Override
         public int getIOQueueCapacity() {
             return httpMinIOQueueCapacity;
@@ -1452,6 +1589,11 @@ public class PropServerConfiguration implements ServerConfiguration {
             return sqlCopyBufferSize;
         }
 
+        @Override
+        public long getSqlCopyChunkSize() {
+            return sqlCopyChunkSize;
+        }
+
         @Override
         public int getCopyPoolCapacity() {
             return sqlCopyModelPoolCapacity;
@@ -1472,6 +1614,11 @@ public class PropServerConfiguration implements ServerConfiguration {
             return defaultSymbolCacheFlag;
         }
 
+        @Override
+        public boolean isSymbolCapacityAutoScaleEnabled() {
+            return symbolCapacityAutoScaleEnabled;
+        }
+
         @Override
         public int getDefaultSymbolCapacity() {
             return defaultSymbolCapacity;
@@ -1652,6 +1799,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return sqlMapMaxResizes;
         }
 
+        @Override
+        public long getSqlQueryMemoryLimit() {
+            return sqlQueryMemoryLimit;
+        }
+
+        @Override
+        public long getSqlGlobalQueryMemoryLimit() {
+            return sqlGlobalQueryMemoryLimit;
+        }
+
         @Override
         public int getSqlModelPoolCapacity() {
             return sqlModelPoolCapacity;
@@ -1916,6 +2073,131 @@ public class PropServerConfiguration implements ServerConfiguration {
         public int getLatestByQueueCapacity() {
             return latestByQueueCapacity;
         }
+
+        @Override
+        public int getPageFrameFilterQueueCapacity() {
+            return pageFrameFilterQueueCapacity;
+        }
+
+        @Override
+        public boolean isSqlParallelFilterEnabled() {
+            return sqlParallelFilterEnabled;
+        }
+
+        @Override
+        public long getSqlParallelFilterMaxRangeRows() {
+            return sqlParallelFilterMaxRangeRows;
+        }
+
+        @Override
+        public int getPageFrameGroupByQueueCapacity() {
+            return pageFrameGroupByQueueCapacity;
+        }
+
+        @Override
+        public boolean isSqlParallelGroupByEnabled() {
+            return sqlParallelGroupByEnabled;
+        }
+
+        @Override
+        public long getSqlParallelGroupByMaxRangeRows() {
+            return sqlParallelGroupByMaxRangeRows;
+        }
+
+        @Override
+        public int getLatestByScanQueueCapacity() {
+            return latestByScanQueueCapacity;
+        }
+
+        @Override
+        public boolean isSqlParallelLatestByEnabled() {
+            return sqlParallelLatestByEnabled;
+        }
+
+        @Override
+        public long getSqlParallelLatestByRangeRows() {
+            return sqlParallelLatestByRangeRows;
+        }
+
+        @Override
+        public int getHashJoinBuildQueueCapacity() {
+            return hashJoinBuildQueueCapacity;
+        }
+
+        @Override
+        public int getTextImportQueueCapacity() {
+            return textImportQueueCapacity;
+        }
+
+        @Override
+        public boolean isSqlParallelHashJoinEnabled() {
+            return sqlParallelHashJoinEnabled;
+        }
+
+        @Override
+        public int getSqlHashJoinRadixBits() {
+            return sqlHashJoinRadixBits;
+        }
+
+        @Override
+        public CharSequence getSqlHashJoinSpillRoot() {
+            return sqlHashJoinSpillRoot;
+        }
+
+        @Override
+        public long getSqlHashJoinSpillThreshold() {
+            return sqlHashJoinSpillThreshold;
+        }
+
+        @Override
+        public boolean isSqlCompiledFilterEnabled() {
+            return sqlCompiledFilterEnabled;
+        }
+
+        @Override
+        public int getQueryCacheCapacity() {
+            return sqlCacheRows * sqlCacheBlocks;
+        }
+
+        @Override
+        public long getQueryCacheMemoryLimit() {
+            return queryCacheMemoryLimit;
+        }
+
+        @Override
+        public long getMatViewRefreshInterval() {
+            return matViewRefreshInterval;
+        }
+
+        @Override
+        public long getWalSegmentRolloverRowCount() {
+            return walSegmentRolloverRowCount;
+        }
+
+        @Override
+        public boolean isZoneMapEnabled() {
+            return zoneMapEnabled;
+        }
+
+        @Override
+        public int getZoneMapBlockSize() {
+            return zoneMapBlockSize;
+        }
+
+        @Override
+        public int getColumnStatsRefreshRowCount() {
+            return columnStatsRefreshRowCount;
+        }
+
+        @Override
+        public double getBloomFilterFalsePositiveRate() {
+            return bloomFilterFalsePositiveRate;
+        }
+
+        @Override
+        public long getColdStorageCheckInterval() {
+            return coldStorageCheckInterval;
+        }
     }
 
     private class PropLineUdpReceiverConfiguration implements LineUdpReceiverConfiguration {
@@ -2032,6 +2314,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return lineTcpNetEventCapacity;
         }
 
+        @Override
+        public IOUringFacade getIOUringFacade() {
+            return IOUringFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public boolean isIOUringEnabled() {
+            return lineTcpNetIOUringEnabled;
+        }
+
         @Override
         public int getIOQueueCapacity() {
             return lineTcpNetIOQueueCapacity;
@@ -2280,6 +2572,11 @@ public class PropServerConfiguration implements ServerConfiguration {
             return jsonQueryFloatScale;
         }
 
+        @Override
+        public int getArrowBatchRowCount() {
+            return jsonQueryArrowBatchRowCount;
+        }
+
         @Override
         public int getDoubleScale() {
             return jsonQueryDoubleScale;
@@ -2393,6 +2690,16 @@ public class PropServerConfiguration implements ServerConfiguration {
             return pgNetEventCapacity;
         }
 
+        @Override
+        public IOUringFacade getIOUringFacade() {
+            return IOUringFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public boolean isIOUringEnabled() {
+            return pgNetIOUringEnabled;
+        }
+
         @Override
         public int getIOQueueCapacity() {
             return pgNetIOQueueCapacity;
@@ -2660,4 +2967,180 @@ public class PropServerConfiguration implements ServerConfiguration {
             return metricsEnabled;
         }
     }
+
+    private class PropReplicationConfiguration implements ReplicationConfiguration {
+
+        @Override
+        public CairoSecurityContext getCairoSecurityContext() {
+            return AllowAllCairoSecurityContext.INSTANCE;
+        }
+
+        @Override
+        public int getConnectionPoolInitialCapacity() {
+            return 4;
+        }
+
+        @Override
+        public IODispatcherConfiguration getDispatcherConfiguration() {
+            return replicationDispatcherConfiguration;
+        }
+
+        @Override
+        public long getMaxRowsPerFrame() {
+            return replicationMaxRowsPerFrame;
+        }
+
+        @Override
+        public long getMaxResponseSize() {
+            return replicationMaxResponseSize;
+        }
+
+        @Override
+        public MillisecondClock getMillisecondClock() {
+            return MillisecondClockImpl.INSTANCE;
+        }
+
+        @Override
+        public NetworkFacade getNetworkFacade() {
+            return NetworkFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public int getRecvBufferSize() {
+            return replicationRecvBufferSize;
+        }
+
+        @Override
+        public long getReplicaPollInterval() {
+            return replicaPollInterval;
+        }
+
+        @Override
+        public int getReplicaPrimaryIPv4Address() {
+            return replicaPrimaryIPv4Address;
+        }
+
+        @Override
+        public int getReplicaPrimaryPort() {
+            return replicaPrimaryPort;
+        }
+
+        @Override
+        public int getReplicaRecvBufferSize() {
+            return replicaRecvBufferSize;
+        }
+
+        @Override
+        public ObjList<String> getReplicaTables() {
+            return replicaTables;
+        }
+
+        @Override
+        public int getSendBufferSize() {
+            return replicationSendBufferSize;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return replicationEnabled;
+        }
+
+        @Override
+        public boolean isReplicaEnabled() {
+            return replicaEnabled;
+        }
+    }
+
+    private class PropReplicationIODispatcherConfiguration implements IODispatcherConfiguration {
+
+        @Override
+        public int getActiveConnectionLimit() {
+            return replicationNetActiveConnectionLimit;
+        }
+
+        @Override
+        public int getBindIPv4Address() {
+            return replicationNetBindIPv4Address;
+        }
+
+        @Override
+        public int getBindPort() {
+            return replicationNetBindPort;
+        }
+
+        @Override
+        public MillisecondClock getClock() {
+            return MillisecondClockImpl.INSTANCE;
+        }
+
+        @Override
+        public String getDispatcherLogName() {
+            return "replication-server";
+        }
+
+        @Override
+        public EpollFacade getEpollFacade() {
+            return EpollFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public int getEventCapacity() {
+            return 64;
+        }
+
+        @Override
+        public IOUringFacade getIOUringFacade() {
+            return IOUringFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public int getIOQueueCapacity() {
+            return 64;
+        }
+
+        @Override
+        public long getIdleConnectionTimeout() {
+            return replicationNetIdleConnectionTimeout;
+        }
+
+        @Override
+        public int getInitialBias() {
+            return BIAS_READ;
+        }
+
+        @Override
+        public int getInterestQueueCapacity() {
+            return 64;
+        }
+
+        @Override
+        public int getListenBacklog() {
+            return 64;
+        }
+
+        @Override
+        public NetworkFacade getNetworkFacade() {
+            return NetworkFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public int getRcvBufSize() {
+            return -1;
+        }
+
+        @Override
+        public SelectFacade getSelectFacade() {
+            return SelectFacadeImpl.INSTANCE;
+        }
+
+        @Override
+        public int getSndBufSize() {
+            return -1;
+        }
+
+        @Override
+        public long getQueuedConnectionTimeout() {
+            return 5_000;
+        }
+    }
 }
@@ -30,6 +30,7 @@ import io.questdb.cutlass.http.HttpServerConfiguration;
 import io.questdb.cutlass.line.tcp.LineTcpReceiverConfiguration;
 import io.questdb.cutlass.line.udp.LineUdpReceiverConfiguration;
 import io.questdb.cutlass.pgwire.PGWireConfiguration;
+import io.questdb.cutlass.replication.ReplicationConfiguration;
 import io.questdb.metrics.MetricsConfiguration;
 import io.questdb.mp.WorkerPoolConfiguration;
 
@@ -50,4 +51,6 @@ public interface ServerConfiguration {
     PGWireConfiguration getPGWireConfiguration();
 
     MetricsConfiguration getMetricsConfiguration();
+
+    ReplicationConfiguration getReplicationConfiguration();
 }
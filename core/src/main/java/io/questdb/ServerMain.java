@@ -31,8 +31,12 @@ import io.questdb.cutlass.line.tcp.LineTcpServer;
 import io.questdb.cutlass.line.udp.LineProtoReceiver;
 import io.questdb.cutlass.line.udp.LinuxMMLineProtoReceiver;
 import io.questdb.cutlass.pgwire.PGWireServer;
+import io.questdb.cutlass.replication.ReplicaJob;
+import io.questdb.cutlass.replication.ReplicationConfiguration;
+import io.questdb.cutlass.replication.ReplicationServer;
 import io.questdb.griffin.FunctionFactory;
 import io.questdb.griffin.FunctionFactoryCache;
+import io.questdb.griffin.engine.mv.MatViewRefreshJob;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.log.LogRecord;
@@ -135,10 +139,26 @@ public class ServerMain {
         final ObjList<Closeable> instancesToClean = new ObjList<>();
 
         LogFactory.configureFromSystemProperties(workerPool);
-        final CairoEngine cairoEngine = new CairoEngine(configuration.getCairoConfiguration());
+        Metrics metrics;
+        if (configuration.getMetricsConfiguration().isEnabled()) {
+            metrics = Metrics.enabled();
+        } else {
+            metrics = Metrics.disabled();
+        }
+
+        final CairoEngine cairoEngine = new CairoEngine(configuration.getCairoConfiguration(), metrics);
         workerPool.assign(cairoEngine.getWriterMaintenanceJob());
+        workerPool.assign(cairoEngine.getWalApplyJob());
         instancesToClean.add(cairoEngine);
 
+        final MatViewRefreshJob matViewRefreshJob = new MatViewRefreshJob(cairoEngine, functionFactoryCache);
+        workerPool.assign(matViewRefreshJob);
+        instancesToClean.add(matViewRefreshJob);
+
+        final ColdStorageJob coldStorageJob = new ColdStorageJob(cairoEngine);
+        workerPool.assign(coldStorageJob);
+        instancesToClean.add(coldStorageJob);
+
         // The TelemetryJob is always needed (even when telemetry is off) because it is responsible for
         // updating the telemetry_config table.
         final TelemetryJob telemetryJob = new TelemetryJob(cairoEngine, functionFactoryCache);
@@ -157,13 +177,6 @@ public class ServerMain {
         workerPool.assign(new O3PurgeJob(cairoEngine.getMessageBus()));
         O3Utils.initBuf(workerPool.getWorkerCount() + 1);
 
-        Metrics metrics;
-        if (configuration.getMetricsConfiguration().isEnabled()) {
-            metrics = Metrics.enabled();
-        } else {
-            metrics = Metrics.disabled();
-        }
-
         try {
             initQuestDb(workerPool, cairoEngine, log);
 
@@ -204,6 +217,14 @@ public class ServerMain {
                     cairoEngine
             ));
 
+            final ReplicationConfiguration replicationConfiguration = configuration.getReplicationConfiguration();
+            instancesToClean.add(ReplicationServer.create(replicationConfiguration, workerPool, cairoEngine));
+            if (replicationConfiguration.isReplicaEnabled()) {
+                final ReplicaJob replicaJob = new ReplicaJob(replicationConfiguration, cairoEngine);
+                workerPool.assign(replicaJob);
+                instancesToClean.add(replicaJob);
+            }
+
             startQuestDb(workerPool, cairoEngine, log);
             if (configuration.getHttpServerConfiguration().isEnabled()) {
                 logWebConsoleUrls(log, configuration);
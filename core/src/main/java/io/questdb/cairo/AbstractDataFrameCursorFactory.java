@@ -25,6 +25,7 @@
 package io.questdb.cairo;
 
 import io.questdb.cairo.sql.DataFrameCursorFactory;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.std.str.CharSink;
 
 public abstract class AbstractDataFrameCursorFactory implements DataFrameCursorFactory {
@@ -40,6 +41,17 @@ public abstract class AbstractDataFrameCursorFactory implements DataFrameCursorF
         this.tableVersion = tableVersion;
     }
 
+    @Override
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").val(tableName);
+    }
+
     @Override
     public void toSink(CharSink sink) {
         sink.put("{\"name\":\"").put(this.getClass().getSimpleName()).put("\", \"table\":\"").put(tableName).put("\"}");
@@ -26,12 +26,14 @@ package io.questdb.cairo;
 
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.DataFrameCursor;
+import io.questdb.cairo.sql.PartitionPruner;
 
 public abstract class AbstractFullDataFrameCursor implements DataFrameCursor {
     protected final FullTableDataFrame frame = new FullTableDataFrame();
     protected TableReader reader;
     protected int partitionHi;
     protected int partitionIndex;
+    protected PartitionPruner pruner;
 
     @Override
     public void close() {
@@ -64,8 +66,14 @@ public abstract class AbstractFullDataFrameCursor implements DataFrameCursor {
         return reader.size();
     }
 
+    @Override
+    public void setPartitionPruner(PartitionPruner pruner) {
+        this.pruner = pruner;
+    }
+
     public DataFrameCursor of(TableReader reader) {
         this.reader = reader;
+        this.pruner = null;
         this.partitionHi = reader.getPartitionCount();
         toTop();
         return this;
@@ -26,6 +26,7 @@ package io.questdb.cairo;
 
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.DataFrameCursor;
+import io.questdb.cairo.sql.PartitionPruner;
 import io.questdb.cairo.vm.api.MemoryR;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
@@ -50,6 +51,7 @@ public abstract class AbstractIntervalDataFrameCursor implements DataFrameCursor
     protected long partitionLimit;
     protected long sizeSoFar = 0;
     protected long size = -1;
+    protected PartitionPruner pruner;
     private int initialIntervalsLo;
     private int initialIntervalsHi;
     private int initialPartitionLo;
@@ -102,8 +104,14 @@ public abstract class AbstractIntervalDataFrameCursor implements DataFrameCursor
         return reader.getSymbolMapReader(columnIndex);
     }
 
+    @Override
+    public void setPartitionPruner(PartitionPruner pruner) {
+        this.pruner = pruner;
+    }
+
     public void of(TableReader reader, SqlExecutionContext sqlContext) throws SqlException {
         this.reader = reader;
+        this.pruner = null;
         this.intervals = this.intervalsModel.calculateIntervals(sqlContext);
         calculateRanges(intervals);
     }
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.LPSZ;
+
+import java.io.Closeable;
+
+/**
+ * Reads Bloom filter of a column in a partition, see {@link BloomFilterWriter}. Filter holds
+ * hashes of non-null SYMBOL keys or STRING values. It never reports false negatives, so
+ * partition which filter does not contain the value can be skipped.
+ * <p>
+ * Writer only ever sets bits of the file it appends to, filter rebuilt from scratch is
+ * renamed over the old one. Filter read after its row count is therefore valid for at
+ * least that many rows.
+ */
+public class BloomFilterReader implements Closeable {
+    static final long ROW_COUNT_OFFSET = 0;
+    static final long CAPACITY_OFFSET = 8;
+    static final long BIT_COUNT_OFFSET = 16;
+    static final long HASH_COUNT_OFFSET = 24;
+    static final long COLUMN_TYPE_OFFSET = 32;
+    static final long HEADER_SIZE = 64;
+    private long address;
+    private long capacity;
+    private long rowCount;
+    private long bitMask;
+    private int hashCount;
+
+    public static long hash(int key) {
+        return mix(key);
+    }
+
+    public static long hash(CharSequence value) {
+        final int len = value.length();
+        long h = len;
+        for (int i = 0; i < len; i++) {
+            h = h * 31 + value.charAt(i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Same as {@link #hash(CharSequence)} for UTF-16 chars in native memory.
+     */
+    static long hash(long lo, int len) {
+        long h = len;
+        for (long p = lo, hi = lo + ((long) len << 1); p < hi; p += Character.BYTES) {
+            h = h * 31 + Unsafe.getUnsafe().getChar(p);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Sets bits of hash in filter at given address. Bit positions are derived from the
+     * single 64-bit hash by double hashing.
+     */
+    static void put(long bits, long bitMask, int hashCount, long hash) {
+        final long step = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++, hash += step) {
+            final long bit = hash & bitMask;
+            final long p = bits + (bit >>> 3);
+            Unsafe.getUnsafe().putByte(p, (byte) (Unsafe.getUnsafe().getByte(p) | (1 << (bit & 7))));
+        }
+    }
+
+    private static long mix(long h) {
+        // murmur3 finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public void close() {
+        if (address != 0) {
+            Unsafe.free(address, capacity);
+            address = 0;
+            capacity = 0;
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param hash value hash, see {@link #hash(int)} and {@link #hash(CharSequence)}
+     * @return false when value is definitely not in the partition
+     */
+    public boolean mightContain(long hash) {
+        final long bits = address + HEADER_SIZE;
+        final long step = Long.rotateLeft(hash, 32) | 1;
+        for (int i = 0; i < hashCount; i++, hash += step) {
+            final long bit = hash & bitMask;
+            if ((Unsafe.getUnsafe().getByte(bits + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads Bloom filter file.
+     *
+     * @param path        path to filter file
+     * @param minRowCount number of rows filter must cover to be usable
+     * @return false when file does not exist or does not cover enough rows
+     */
+    public boolean of(FilesFacade ff, LPSZ path, long minRowCount) {
+        final long fd = ff.openRO(path);
+        if (fd == -1) {
+            return false;
+        }
+        try {
+            final long len = ff.length(fd);
+            if (len < HEADER_SIZE) {
+                return false;
+            }
+            if (capacity < len) {
+                address = address == 0 ? Unsafe.malloc(len) : Unsafe.realloc(address, capacity, len);
+                capacity = len;
+            }
+            // row count is written after bits, read it first
+            if (ff.read(fd, address, HEADER_SIZE, 0) != HEADER_SIZE) {
+                return false;
+            }
+            rowCount = Unsafe.getUnsafe().getLong(address + ROW_COUNT_OFFSET);
+            final long bitCount = Unsafe.getUnsafe().getLong(address + BIT_COUNT_OFFSET);
+            hashCount = (int) Unsafe.getUnsafe().getLong(address + HASH_COUNT_OFFSET);
+            if (rowCount < minRowCount || bitCount < Long.SIZE || hashCount < 1 || len < HEADER_SIZE + bitCount / Byte.SIZE) {
+                return false;
+            }
+            bitMask = bitCount - 1;
+            final long size = bitCount / Byte.SIZE;
+            return ff.read(fd, address + HEADER_SIZE, size, HEADER_SIZE) == size;
+        } finally {
+            ff.close(fd);
+        }
+    }
+}
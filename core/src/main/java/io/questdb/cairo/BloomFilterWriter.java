@@ -0,0 +1,267 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Numbers;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+import static io.questdb.cairo.BloomFilterReader.*;
+
+/**
+ * Maintains Bloom filter file of a SYMBOL or STRING column in a partition. Filter is sized
+ * for the number of distinct values partition can have, which is bounded by its row count
+ * and, for symbols, by the size of symbol table. Rows appended to partition are added to
+ * the existing filter in place. Once partition outgrows the filter, the filter is rebuilt
+ * with double the capacity into a temporary file, which is then renamed over the old one.
+ */
+final class BloomFilterWriter implements Closeable {
+    private static final Log LOG = LogFactory.getLog(BloomFilterWriter.class);
+    private static final long MIN_CAPACITY = 1024;
+    private static final double LN2 = Math.log(2);
+    private final Path other = new Path();
+    private final FilesFacade ff;
+    private final double falsePositiveRate;
+
+    BloomFilterWriter(FilesFacade ff, double falsePositiveRate) {
+        this.ff = ff;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    static boolean isSupported(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.SYMBOL:
+            case ColumnType.STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        other.close();
+    }
+
+    /**
+     * Brings Bloom filter of column up to date with partition row count.
+     *
+     * @param path          path to partition directory, it is restored before method returns
+     * @param columnTop     number of leading rows column does not have data for, these rows are nulls
+     * @param rowCount      committed row count of partition
+     * @param distinctLimit upper bound of distinct values across the table, e.g. symbol count
+     */
+    void update(
+            Path path,
+            CharSequence columnName,
+            int columnType,
+            long columnTop,
+            long rowCount,
+            long distinctLimit
+    ) {
+        final int plen = path.length();
+        try {
+            if (!ff.exists(TableUtils.dFile(path, columnName))) {
+                // compressed partition or column that has no data in partition
+                return;
+            }
+
+            final long distinctCount = Math.min(rowCount - columnTop, distinctLimit);
+            final long fd = ff.openRO(TableUtils.bfFile(path.trimTo(plen), columnName));
+            if (fd != -1) {
+                try {
+                    if (append(fd, path.trimTo(plen), columnName, columnType, columnTop, rowCount, distinctCount)) {
+                        return;
+                    }
+                } finally {
+                    ff.close(fd);
+                }
+            }
+            rebuild(path.trimTo(plen), columnName, columnType, columnTop, rowCount, distinctCount);
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    private void add(long bits, long bitMask, int hashCount, Path path, CharSequence columnName, int columnType, long columnTop, long rowLo, long rowHi) {
+        final int plen = path.length();
+        rowLo = Math.max(rowLo, columnTop);
+        if (rowLo >= rowHi) {
+            return;
+        }
+
+        if (ColumnType.isSymbol(columnType)) {
+            final long dataSize = (rowHi - columnTop) << 2;
+            final long dataFd = TableUtils.openRO(ff, TableUtils.dFile(path, columnName), LOG);
+            try {
+                final long dataAddr = TableUtils.mapRO(ff, dataFd, dataSize);
+                try {
+                    for (long r = rowLo - columnTop, n = rowHi - columnTop; r < n; r++) {
+                        final int key = Unsafe.getUnsafe().getInt(dataAddr + (r << 2));
+                        if (key != SymbolTable.VALUE_IS_NULL) {
+                            put(bits, bitMask, hashCount, hash(key));
+                        }
+                    }
+                } finally {
+                    ff.munmap(dataAddr, dataSize);
+                }
+            } finally {
+                ff.close(dataFd);
+            }
+            return;
+        }
+
+        final long indexSize = (rowHi - columnTop) << 3;
+        final long indexFd = TableUtils.openRO(ff, TableUtils.iFile(path.trimTo(plen), columnName), LOG);
+        long dataFd = -1;
+        long indexAddr = 0;
+        long dataAddr = 0;
+        long dataSize = 0;
+        try {
+            indexAddr = TableUtils.mapRO(ff, indexFd, indexSize);
+            dataFd = TableUtils.openRO(ff, TableUtils.dFile(path.trimTo(plen), columnName), LOG);
+            dataSize = ff.length(dataFd);
+            if (dataSize > 0) {
+                dataAddr = TableUtils.mapRO(ff, dataFd, dataSize);
+            }
+            for (long r = rowLo - columnTop, n = rowHi - columnTop; r < n; r++) {
+                final long offset = Unsafe.getUnsafe().getLong(indexAddr + (r << 3));
+                if (offset + Integer.BYTES > dataSize) {
+                    throw CairoException.instance(0).put("string offset is beyond data file [offset=").put(offset)
+                            .put(", size=").put(dataSize)
+                            .put(", column=").put(columnName)
+                            .put(']');
+                }
+                final int len = Unsafe.getUnsafe().getInt(dataAddr + offset);
+                if (len != TableUtils.NULL_LEN) {
+                    put(bits, bitMask, hashCount, hash(dataAddr + offset + Integer.BYTES, len));
+                }
+            }
+        } finally {
+            if (dataAddr != 0) {
+                ff.munmap(dataAddr, dataSize);
+            }
+            if (dataFd != -1) {
+                ff.close(dataFd);
+            }
+            if (indexAddr != 0) {
+                ff.munmap(indexAddr, indexSize);
+            }
+            ff.close(indexFd);
+            path.trimTo(plen);
+        }
+    }
+
+    private boolean append(long fd, Path path, CharSequence columnName, int columnType, long columnTop, long rowCount, long distinctCount) {
+        final int plen = path.length();
+        final long len = ff.length(fd);
+        if (len < HEADER_SIZE) {
+            return false;
+        }
+
+        long addr = TableUtils.mapRO(ff, fd, HEADER_SIZE);
+        final long rowLo;
+        final long bitCount;
+        final int hashCount;
+        try {
+            rowLo = Unsafe.getUnsafe().getLong(addr + ROW_COUNT_OFFSET);
+            bitCount = Unsafe.getUnsafe().getLong(addr + BIT_COUNT_OFFSET);
+            hashCount = (int) Unsafe.getUnsafe().getLong(addr + HASH_COUNT_OFFSET);
+            if (rowLo > rowCount
+                    || Unsafe.getUnsafe().getLong(addr + CAPACITY_OFFSET) < distinctCount
+                    || Unsafe.getUnsafe().getLong(addr + COLUMN_TYPE_OFFSET) != columnType
+                    || bitCount < Long.SIZE
+                    || hashCount < 1
+                    || len < HEADER_SIZE + bitCount / Byte.SIZE) {
+                // filter is full or was built for different data
+                return false;
+            }
+        } finally {
+            ff.munmap(addr, HEADER_SIZE);
+        }
+
+        if (rowLo == rowCount) {
+            return true;
+        }
+
+        final long size = HEADER_SIZE + bitCount / Byte.SIZE;
+        final long rwFd = TableUtils.openRW(ff, TableUtils.bfFile(path, columnName), LOG);
+        try {
+            addr = TableUtils.mapRW(ff, rwFd, size);
+            try {
+                add(addr + HEADER_SIZE, bitCount - 1, hashCount, path.trimTo(plen), columnName, columnType, columnTop, rowLo, rowCount);
+                Unsafe.getUnsafe().storeFence();
+                Unsafe.getUnsafe().putLong(addr + ROW_COUNT_OFFSET, rowCount);
+            } finally {
+                ff.munmap(addr, size);
+            }
+        } finally {
+            ff.close(rwFd);
+        }
+        return true;
+    }
+
+    private void rebuild(Path path, CharSequence columnName, int columnType, long columnTop, long rowCount, long distinctCount) {
+        final int plen = path.length();
+        final long capacity = Numbers.ceilPow2(Math.max(distinctCount, MIN_CAPACITY));
+        final double bitsPerValue = -Math.log(falsePositiveRate) / (LN2 * LN2);
+        final long bitCount = Numbers.ceilPow2((long) Math.ceil(capacity * bitsPerValue));
+        final int hashCount = (int) Math.max(1, Math.min(16, Math.round(LN2 * bitCount / capacity)));
+        final long size = HEADER_SIZE + bitCount / Byte.SIZE;
+
+        other.of(path).concat(columnName).put(TableUtils.FILE_SUFFIX_BLOOM_FILTER).put(".tmp").$();
+        final long fd = TableUtils.openRW(ff, other, LOG);
+        try {
+            if (!ff.truncate(fd, 0)) {
+                throw CairoException.instance(ff.errno()).put("could not truncate [file=").put(other).put(']');
+            }
+            final long addr = TableUtils.mapRW(ff, fd, size);
+            try {
+                Unsafe.getUnsafe().setMemory(addr, size, (byte) 0);
+                Unsafe.getUnsafe().putLong(addr + CAPACITY_OFFSET, capacity);
+                Unsafe.getUnsafe().putLong(addr + BIT_COUNT_OFFSET, bitCount);
+                Unsafe.getUnsafe().putLong(addr + HASH_COUNT_OFFSET, hashCount);
+                Unsafe.getUnsafe().putLong(addr + COLUMN_TYPE_OFFSET, columnType);
+                add(addr + HEADER_SIZE, bitCount - 1, hashCount, path, columnName, columnType, columnTop, 0, rowCount);
+                Unsafe.getUnsafe().putLong(addr + ROW_COUNT_OFFSET, rowCount);
+            } finally {
+                ff.munmap(addr, size);
+            }
+        } finally {
+            ff.close(fd);
+        }
+
+        if (!ff.rename(other, TableUtils.bfFile(path.trimTo(plen), columnName))) {
+            throw CairoException.instance(ff.errno()).put("could not rename [from=").put(other).put(", to=").put(path).put(']');
+        }
+    }
+}
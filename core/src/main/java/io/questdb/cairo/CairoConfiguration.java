@@ -47,6 +47,14 @@ public interface CairoConfiguration {
 
     int getSqlCopyBufferSize();
 
+    /**
+     * Size of the chunks parallel COPY splits input file into. Chunks are aligned to line
+     * boundaries and indexed by designated timestamp independently of each other.
+     *
+     * @return chunk size in bytes
+     */
+    long getSqlCopyChunkSize();
+
     int getCopyPoolCapacity();
 
     int getCreateAsSelectRetryCount();
@@ -57,6 +65,14 @@ public interface CairoConfiguration {
 
     int getDefaultSymbolCapacity();
 
+    /**
+     * When enabled symbol map rebuilds its hash index with double the capacity once number of
+     * distinct values exceeds capacity, readers switch to rebuilt index after it is committed.
+     *
+     * @return true when symbol capacity grows with number of distinct values
+     */
+    boolean isSymbolCapacityAutoScaleEnabled();
+
     int getFileOperationRetryCount();
 
     FilesFacade getFilesFacade();
@@ -135,6 +151,21 @@ public interface CairoConfiguration {
 
     int getSqlModelPoolCapacity();
 
+    /**
+     * Max native memory query structures, such as maps, record chains and sort trees, can allocate
+     * while executing single query. Query fails once the limit is exceeded.
+     *
+     * @return limit in bytes, 0 means unlimited
+     */
+    long getSqlQueryMemoryLimit();
+
+    /**
+     * Max native memory query structures of all concurrently executing queries can allocate.
+     *
+     * @return limit in bytes, 0 means unlimited
+     */
+    long getSqlGlobalQueryMemoryLimit();
+
     long getSqlSortKeyPageSize();
 
     int getSqlSortKeyMaxPages();
@@ -249,4 +280,158 @@ public interface CairoConfiguration {
     boolean isO3QuickSortEnabled();
 
     int getLatestByQueueCapacity();
+
+    int getPageFrameFilterQueueCapacity();
+
+    boolean isSqlParallelFilterEnabled();
+
+    int getPageFrameGroupByQueueCapacity();
+
+    boolean isSqlParallelGroupByEnabled();
+
+    /**
+     * When enabled, comparisons of numeric and symbol columns with constants in table scan
+     * filters are compiled into column-at-a-time loops over page frames instead of being
+     * evaluated row by row via filter functions.
+     *
+     * @return true when filter compilation is enabled
+     */
+    boolean isSqlCompiledFilterEnabled();
+
+    /**
+     * Maximum number of rows parallel filter evaluates in a single task. Page frames
+     * larger than this are split into multiple tasks.
+     *
+     * @return number of rows
+     */
+    long getSqlParallelFilterMaxRangeRows();
+
+    /**
+     * Maximum number of rows parallel GROUP BY aggregates into a single partial map.
+     * Larger ranges produce fewer partial maps to merge, at the expense of coarser
+     * distribution of work between workers.
+     *
+     * @return number of rows
+     */
+    long getSqlParallelGroupByMaxRangeRows();
+
+    int getLatestByScanQueueCapacity();
+
+    /**
+     * When enabled, LATEST BY on a single non-indexed symbol column scans table on the
+     * shared worker pool instead of walking rows back one by one on the query thread.
+     *
+     * @return true when parallel LATEST BY is enabled
+     */
+    boolean isSqlParallelLatestByEnabled();
+
+    /**
+     * Number of rows parallel LATEST BY scans in a single task. Smaller ranges let the scan
+     * stop sooner once all keys are found, at the expense of more tasks to dispatch.
+     *
+     * @return number of rows
+     */
+    long getSqlParallelLatestByRangeRows();
+
+    int getHashJoinBuildQueueCapacity();
+
+    int getTextImportQueueCapacity();
+
+    boolean isSqlParallelHashJoinEnabled();
+
+    /**
+     * Number of hash bits parallel hash join uses to split the build side into partitions.
+     * Each partition has its own map and is built independently of the others.
+     *
+     * @return number of bits, there are 2^bits partitions
+     */
+    int getSqlHashJoinRadixBits();
+
+    /**
+     * Directory for the temporary files of parallel hash join. When not set, files are
+     * created in the database root.
+     *
+     * @return directory path or null
+     */
+    CharSequence getSqlHashJoinSpillRoot();
+
+    /**
+     * Number of bytes of staged build side rows parallel hash join keeps in memory. Once
+     * exceeded, staged rows are moved to temporary files.
+     *
+     * @return number of bytes
+     */
+    long getSqlHashJoinSpillThreshold();
+
+    /**
+     * Maximum number of idle compiled query factories the engine keeps for reuse by all
+     * connections. Zero disables the cache.
+     *
+     * @return number of factories
+     */
+    int getQueryCacheCapacity();
+
+    /**
+     * Approximate amount of native memory idle factories in the query cache are allowed
+     * to hold. Least recently used factories are freed once exceeded.
+     *
+     * @return number of bytes
+     */
+    long getQueryCacheMemoryLimit();
+
+    /**
+     * Interval at which materialized views are checked for changes of their base tables.
+     *
+     * @return interval in milliseconds
+     */
+    long getMatViewRefreshInterval();
+
+    /**
+     * Number of committed rows after which WAL writer switches to a new segment. Segments are
+     * removed once all of their rows are applied to the table.
+     *
+     * @return number of rows
+     */
+    long getWalSegmentRolloverRowCount();
+
+    /**
+     * When enabled, table writer maintains null count, min and max of numeric columns per
+     * partition and per block of rows on commit. Compiled filters use these to skip partitions
+     * and blocks none of which rows can match.
+     *
+     * @return true when zone maps are maintained and used
+     */
+    boolean isZoneMapEnabled();
+
+    /**
+     * Number of rows zone map keeps separate stats for within a partition.
+     *
+     * @return number of rows
+     */
+    int getZoneMapBlockSize();
+
+    /**
+     * Number of rows that have to be appended to the active partition before table writer
+     * refreshes its zone maps and Bloom filters on commit. Until then queries do not use
+     * stats of the active partition and scan it.
+     *
+     * @return number of rows
+     */
+    int getColumnStatsRefreshRowCount();
+
+    /**
+     * Target false positive rate of per partition Bloom filters of SYMBOL and STRING columns
+     * flagged with BLOOM. Lower rate makes filters larger.
+     *
+     * @return probability between 0 and 1
+     */
+    double getBloomFilterFalsePositiveRate();
+
+    /**
+     * Interval at which tables with cold storage policy are checked for partitions to be moved
+     * to cold storage.
+     *
+     * @return interval in milliseconds
+     */
+    long getColdStorageCheckInterval();
 }
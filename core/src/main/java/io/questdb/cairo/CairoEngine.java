@@ -26,12 +26,16 @@ package io.questdb.cairo;
 
 import io.questdb.MessageBus;
 import io.questdb.MessageBusImpl;
+import io.questdb.Metrics;
+import io.questdb.cairo.mv.MatViewRegistry;
 import io.questdb.cairo.pool.PoolListener;
 import io.questdb.cairo.pool.ReaderPool;
 import io.questdb.cairo.pool.WriterPool;
 import io.questdb.cairo.pool.WriterSource;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
 import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.cairo.wal.WalApplyJob;
+import io.questdb.cairo.wal.WalWriter;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.mp.*;
@@ -52,21 +56,33 @@ public class CairoEngine implements Closeable, WriterSource {
     private final WriterPool writerPool;
     private final ReaderPool readerPool;
     private final CairoConfiguration configuration;
+    private final Metrics metrics;
     private final WriterMaintenanceJob writerMaintenanceJob;
+    private final WalApplyJob walApplyJob;
+    private final MatViewRegistry matViewRegistry;
     private final MessageBus messageBus;
     private final RingQueue<TelemetryTask> telemetryQueue;
     private final MPSequence telemetryPubSeq;
     private final SCSequence telemetrySubSeq;
+    private final QueryCache queryCache;
     private final long tableIdMemSize;
     private long tableIdFd = -1;
     private long tableIdMem = 0;
 
     public CairoEngine(CairoConfiguration configuration) {
+        this(configuration, Metrics.disabled());
+    }
+
+    public CairoEngine(CairoConfiguration configuration, Metrics metrics) {
         this.configuration = configuration;
+        this.metrics = metrics;
         this.messageBus = new MessageBusImpl(configuration);
-        this.writerPool = new WriterPool(configuration, messageBus);
-        this.readerPool = new ReaderPool(configuration);
+        this.writerPool = new WriterPool(configuration, messageBus, metrics);
+        this.readerPool = new ReaderPool(configuration, metrics.pool());
+        metrics.messageBus().of(messageBus);
         this.writerMaintenanceJob = new WriterMaintenanceJob(configuration);
+        this.queryCache = new QueryCache(configuration);
+        QueryMemoryAccount.setGlobalLimit(configuration.getSqlGlobalQueryMemoryLimit());
         if (configuration.getTelemetryConfiguration().getEnabled()) {
             this.telemetryQueue = new RingQueue<>(TelemetryTask::new, configuration.getTelemetryConfiguration().getQueueCapacity());
             this.telemetryPubSeq = new MPSequence(telemetryQueue.getCapacity());
@@ -81,6 +97,8 @@ public class CairoEngine implements Closeable, WriterSource {
         openTableId();
         try {
             new EngineMigration(this, configuration).migrateEngineTo(ColumnType.VERSION);
+            this.walApplyJob = new WalApplyJob(this);
+            this.matViewRegistry = new MatViewRegistry(configuration);
         } catch (Throwable e) {
             close();
             throw e;
@@ -101,6 +119,7 @@ public class CairoEngine implements Closeable, WriterSource {
     }
 
     public boolean clear() {
+        queryCache.clear();
         boolean b1 = readerPool.releaseAll();
         boolean b2 = writerPool.releaseAll();
         return b1 & b2;
@@ -108,8 +127,11 @@ public class CairoEngine implements Closeable, WriterSource {
 
     @Override
     public void close() {
+        Misc.free(queryCache);
         Misc.free(writerPool);
         Misc.free(readerPool);
+        Misc.free(walApplyJob);
+        Misc.free(matViewRegistry);
         freeTableId();
         Misc.free(messageBus);
     }
@@ -193,10 +215,18 @@ public class CairoEngine implements Closeable, WriterSource {
         return configuration;
     }
 
+    public MatViewRegistry getMatViewRegistry() {
+        return matViewRegistry;
+    }
+
     public MessageBus getMessageBus() {
         return messageBus;
     }
 
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     public long getNextTableId() {
         long next;
         long x = Unsafe.getUnsafe().getLong(tableIdMem);
@@ -216,6 +246,10 @@ public class CairoEngine implements Closeable, WriterSource {
         this.readerPool.setPoolListener(poolListener);
     }
 
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
     public TableReader getReader(
             CairoSecurityContext securityContext,
             CharSequence tableName
@@ -281,6 +315,22 @@ public class CairoEngine implements Closeable, WriterSource {
         return writerPool.get(tableName, lockReason);
     }
 
+    public WalApplyJob getWalApplyJob() {
+        return walApplyJob;
+    }
+
+    /**
+     * Creates new write-ahead log for the table. Unlike table writers, any number of WAL writers
+     * can be open for the same table at the same time. Rows committed to the log become visible
+     * to readers once {@link #getWalApplyJob()} merges them into the table.
+     */
+    public WalWriter getWalWriter(CairoSecurityContext securityContext, CharSequence tableName) {
+        securityContext.checkWritePermission();
+        try (TableReader reader = getReader(securityContext, tableName)) {
+            return new WalWriter(configuration, tableName, walApplyJob.getNextWalId(), reader.getMetadata(), walApplyJob);
+        }
+    }
+
     public Job getWriterMaintenanceJob() {
         return writerMaintenanceJob;
     }
@@ -359,12 +409,21 @@ public class CairoEngine implements Closeable, WriterSource {
         CharSequence lockedReason = lock(securityContext, tableName, "removeTable");
         if (null == lockedReason) {
             try {
-                path.of(configuration.getRoot()).concat(tableName).$();
+                final FilesFacade ff = configuration.getFilesFacade();
+                final ColdStoragePolicy coldStoragePolicy = new ColdStoragePolicy();
+                final boolean cold = coldStoragePolicy.of(ff, path.of(configuration.getRoot()).concat(tableName));
                 int errno;
-                if ((errno = configuration.getFilesFacade().rmdir(path)) != 0) {
+                if ((errno = ff.rmdir(path.$())) != 0) {
                     LOG.error().$("remove failed [tableName='").utf8(tableName).$("', error=").$(errno).$(']').$();
                     throw CairoException.instance(errno).put("Table remove failed");
                 }
+                if (cold && ff.exists(coldStoragePolicy.tablePath(path, tableName).$()) && (errno = ff.rmdir(path)) != 0) {
+                    LOG.error().$("could not remove cold storage [tableName='").utf8(tableName).$("', path=").$(path).$(", error=").$(errno).$(']').$();
+                }
+                // query cache does not track tables of cached queries,
+                // queries of removed table would otherwise stay cached until evicted
+                queryCache.clear();
+                matViewRegistry.remove(tableName);
                 return;
             } finally {
                 unlock(securityContext, tableName, null, false);
@@ -391,6 +450,8 @@ public class CairoEngine implements Closeable, WriterSource {
         if (null == lockedReason) {
             try {
                 rename0(path, tableName, otherPath, newName);
+                queryCache.clear();
+                matViewRegistry.rename(tableName, newName);
             } finally {
                 unlock(securityContext, tableName, null, false);
             }
@@ -434,7 +495,11 @@ public class CairoEngine implements Closeable, WriterSource {
             throw CairoException.instance(0).put("Rename failed. Table '").put(tableName).put("' does not exist");
         }
 
-        path.of(root).concat(tableName).$();
+        // partitions in cold storage are kept in directory named after the table
+        final ColdStoragePolicy coldStoragePolicy = new ColdStoragePolicy();
+        final boolean cold = coldStoragePolicy.of(ff, path.of(root).concat(tableName));
+
+        path.$();
         otherPath.of(root).concat(to).$();
 
         if (ff.exists(otherPath)) {
@@ -442,10 +507,34 @@ public class CairoEngine implements Closeable, WriterSource {
             throw CairoException.instance(0).put("Rename target exists");
         }
 
-        if (!ff.rename(path, otherPath)) {
-            int error = ff.errno();
-            LOG.error().$("rename failed [from='").$(path).$("', to='").$(otherPath).$("', error=").$(error).$(']').$();
-            throw CairoException.instance(error).put("Rename failed");
+        final Path coldPath = new Path();
+        final Path coldOtherPath = new Path();
+        try {
+            boolean coldRenamed = false;
+            if (cold && ff.exists(coldStoragePolicy.tablePath(coldPath, tableName).$())) {
+                if (ff.exists(coldStoragePolicy.tablePath(coldOtherPath, to).$())) {
+                    LOG.error().$("rename target exists in cold storage [from='").$(tableName).$("', to='").$(coldOtherPath).$("']").$();
+                    throw CairoException.instance(0).put("Rename target exists in cold storage");
+                }
+                if (!ff.rename(coldPath, coldOtherPath)) {
+                    int error = ff.errno();
+                    LOG.error().$("rename failed [from='").$(coldPath).$("', to='").$(coldOtherPath).$("', error=").$(error).$(']').$();
+                    throw CairoException.instance(error).put("Rename failed");
+                }
+                coldRenamed = true;
+            }
+
+            if (!ff.rename(path.$(), otherPath)) {
+                int error = ff.errno();
+                LOG.error().$("rename failed [from='").$(path).$("', to='").$(otherPath).$("', error=").$(error).$(']').$();
+                if (coldRenamed && !ff.rename(coldOtherPath, coldPath)) {
+                    LOG.error().$("could not rename back [from='").$(coldOtherPath).$("', to='").$(coldPath).$("', error=").$(ff.errno()).$(']').$();
+                }
+                throw CairoException.instance(error).put("Rename failed");
+            }
+        } finally {
+            Misc.free(coldPath);
+            Misc.free(coldOtherPath);
         }
     }
 
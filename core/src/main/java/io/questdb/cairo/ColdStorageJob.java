@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
+import io.questdb.std.datetime.millitime.MillisecondClock;
+import io.questdb.std.str.NativeLPSZ;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+
+import java.io.Closeable;
+
+/**
+ * Moves partitions of tables that have {@link ColdStoragePolicy} to cold storage. Partition files
+ * are copied while job holds table reader, which keeps partition from being purged. Table writer
+ * is taken only to switch copied partitions to cold storage in a single commit, so that the writer
+ * is not blocked for the time of the copy. Active partition always stays in hot storage.
+ * <p>
+ * Tables whose writer is busy are skipped until the next run, copies taken for them are removed.
+ */
+public class ColdStorageJob extends SynchronizedJob implements Closeable {
+    private static final Log LOG = LogFactory.getLog(ColdStorageJob.class);
+    private static final String LOCK_REASON = "coldStorage";
+    private static final String COPY_DIR_SUFFIX = ".copy";
+    // timestamp, name txn, data txn and structure version of copied partitions
+    private static final int CANDIDATE_SIZE = 4;
+    private final CairoEngine engine;
+    private final FilesFacade ff;
+    private final CharSequence root;
+    private final int mkDirMode;
+    private final MillisecondClock clock;
+    private final long checkInterval;
+    private final ColdStoragePolicy policy = new ColdStoragePolicy();
+    private final LongList candidates = new LongList();
+    private final StringSink tableName = new StringSink();
+    private final NativeLPSZ nativeLPSZ = new NativeLPSZ();
+    private final Path rootPath = new Path();
+    private final Path path = new Path();
+    private final Path copyPath = new Path();
+    private final FindVisitor processTableDir = this::processTableDir;
+    private long nextCheckTime = 0;
+    private boolean useful;
+
+    public ColdStorageJob(CairoEngine engine) {
+        this.engine = engine;
+        final CairoConfiguration configuration = engine.getConfiguration();
+        this.ff = configuration.getFilesFacade();
+        this.root = configuration.getRoot();
+        this.mkDirMode = configuration.getMkDirMode();
+        this.clock = configuration.getMillisecondClock();
+        this.checkInterval = configuration.getColdStorageCheckInterval();
+    }
+
+    @Override
+    public void close() {
+        Misc.free(rootPath);
+        Misc.free(path);
+        Misc.free(copyPath);
+    }
+
+    /**
+     * Moves partitions of all tables with cold storage policy, which are older than policy allows,
+     * and purges partition directories left behind by previous moves.
+     *
+     * @return true when at least one partition has been moved
+     */
+    public boolean moveColdPartitions() {
+        useful = false;
+        ff.iterateDir(rootPath.of(root).$(), processTableDir);
+        return useful;
+    }
+
+    /**
+     * Moves partitions of single table.
+     *
+     * @return true when at least one partition has been moved
+     */
+    public boolean moveColdPartitions(CharSequence tableName) {
+        if (!policy.of(ff, path.of(root).concat(tableName))) {
+            return false;
+        }
+
+        candidates.clear();
+        final int partitionBy;
+        final boolean hasColdPartitions;
+        try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName)) {
+            partitionBy = reader.getPartitionedBy();
+            if (partitionBy == PartitionBy.NONE) {
+                return false;
+            }
+            final TxReader txFile = reader.getTxFile();
+            final Timestamps.TimestampCeilMethod partitionCeilMethod = TableUtils.getPartitionCeil(partitionBy);
+            final long coldTimestampHi = reader.getMaxTimestamp() - policy.getAfter();
+            boolean cold = false;
+            // active partition is never moved
+            for (int i = 0, n = txFile.getPartitionCount() - 1; i < n; i++) {
+                if (txFile.isPartitionCold(i)) {
+                    cold = true;
+                    continue;
+                }
+                final long timestamp = txFile.getPartitionTimestamp(i);
+                if (partitionCeilMethod.ceil(timestamp) > coldTimestampHi) {
+                    break;
+                }
+                final long nameTxn = txFile.getPartitionNameTxn(i);
+                copyPartition(tableName, partitionBy, timestamp, nameTxn);
+                candidates.add(timestamp);
+                candidates.add(nameTxn);
+                candidates.add(txFile.getPartitionDataTxn(i));
+                candidates.add(txFile.getStructureVersion());
+            }
+            hasColdPartitions = cold;
+        }
+
+        if (candidates.size() == 0 && !hasColdPartitions) {
+            return false;
+        }
+
+        boolean moved = false;
+        try (TableWriter writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, tableName, LOCK_REASON)) {
+            for (int i = 0, n = candidates.size(); i < n; i += CANDIDATE_SIZE) {
+                final long timestamp = candidates.getQuick(i);
+                final long nameTxn = candidates.getQuick(i + 1);
+                setCopyPath(tableName, partitionBy, timestamp, nameTxn);
+                if (writer.moveToColdStorage(timestamp, nameTxn, candidates.getQuick(i + 2), candidates.getQuick(i + 3), copyPath.$())) {
+                    moved = true;
+                } else {
+                    ff.rmdir(copyPath.chop$().slash$());
+                }
+            }
+            writer.purgeColdStorage();
+        } catch (EntryUnavailableException e) {
+            removeCopies(tableName, partitionBy);
+            throw e;
+        }
+        return moved;
+    }
+
+    private void copyPartition(CharSequence tableName, int partitionBy, long timestamp, long nameTxn) {
+        TableUtils.setPathForPartition(path.of(root).concat(tableName), partitionBy, timestamp, false);
+        TableUtils.txnPartitionConditionally(path, nameTxn);
+        setCopyPath(tableName, partitionBy, timestamp, nameTxn);
+        final int len = copyPath.length();
+        // directory can be left behind by failed attempt
+        if (ff.exists(copyPath.slash$())) {
+            ff.rmdir(copyPath);
+        }
+        try {
+            TableUtils.copyDirOrFail(ff, path, copyPath.trimTo(len), mkDirMode);
+        } catch (Throwable e) {
+            ff.rmdir(copyPath.trimTo(len).slash$());
+            throw e;
+        }
+        LOG.info().$("copied partition to cold storage [from=").$(path).$(", to=").$(copyPath).$(']').$();
+    }
+
+    private void processTableDir(long pName, int type) {
+        nativeLPSZ.of(pName);
+        if (type == Files.DT_DIR && Chars.notDots(nativeLPSZ)) {
+            tableName.clear();
+            if (!Chars.utf8DecodeZ(pName, tableName)) {
+                return;
+            }
+            try {
+                useful |= moveColdPartitions(tableName);
+            } catch (EntryUnavailableException e) {
+                LOG.info().$("table is busy, cold storage move postponed [table=").utf8(tableName)
+                        .$(", reason=").$(e.getFlyweightMessage())
+                        .$(']').$();
+            } catch (CairoException e) {
+                LOG.error().$("could not move partitions to cold storage [table=").utf8(tableName)
+                        .$(", errno=").$(e.getErrno())
+                        .$(", msg=").$(e.getFlyweightMessage())
+                        .$(']').$();
+            }
+        }
+    }
+
+    private void removeCopies(CharSequence tableName, int partitionBy) {
+        for (int i = 0, n = candidates.size(); i < n; i += CANDIDATE_SIZE) {
+            setCopyPath(tableName, partitionBy, candidates.getQuick(i), candidates.getQuick(i + 1));
+            ff.rmdir(copyPath.slash$());
+        }
+    }
+
+    private void setCopyPath(CharSequence tableName, int partitionBy, long timestamp, long nameTxn) {
+        TableUtils.setPathForPartition(policy.tablePath(copyPath, tableName), partitionBy, timestamp, false);
+        TableUtils.txnPartitionConditionally(copyPath, nameTxn);
+        copyPath.put(COPY_DIR_SUFFIX);
+    }
+
+    @Override
+    protected boolean runSerially() {
+        final long now = clock.getTicks();
+        if (now < nextCheckTime) {
+            return false;
+        }
+        nextCheckTime = now + checkInterval;
+        return moveColdPartitions();
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMARW;
+import io.questdb.cairo.vm.api.MemoryMR;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.str.Path;
+
+/**
+ * Tiered storage policy of table. Partitions that are older than {@link #getAfter()} relative to
+ * max timestamp of the table are moved by {@link ColdStorageJob} to table directory under cold storage
+ * root. Policy is kept in _cold file in table directory, file is replaced by rename, so that readers
+ * never see partially written policy.
+ */
+public class ColdStoragePolicy {
+    public static final String FILE_NAME = "_cold";
+    private static final String TMP_FILE_NAME = "_cold.tmp";
+    private String root;
+    private long after = -1;
+
+    public static void write(FilesFacade ff, Path path, Path other, CharSequence root, long after) {
+        final int plen = path.length();
+        try {
+            path.concat(TMP_FILE_NAME).$();
+            if (ff.exists(path) && !ff.remove(path)) {
+                throw CairoException.instance(ff.errno()).put("could not remove [file=").put(path).put(']');
+            }
+            try (MemoryCMARW mem = Vm.getSmallCMARWInstance(ff, path)) {
+                mem.putLong(after);
+                mem.putStr(root);
+            }
+            other.of(path.trimTo(plen)).concat(FILE_NAME).$();
+            TableUtils.renameOrFail(ff, path.concat(TMP_FILE_NAME).$(), other);
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * @return age of partition in microseconds after which partition is moved to cold storage
+     */
+    public long getAfter() {
+        return after;
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Reads policy of the table.
+     *
+     * @param path table directory, path is left unchanged
+     * @return false when table does not have cold storage policy
+     */
+    public boolean of(FilesFacade ff, Path path) {
+        final int plen = path.length();
+        try {
+            if (!ff.exists(path.concat(FILE_NAME).$())) {
+                after = -1;
+                return false;
+            }
+            try (MemoryMR mem = Vm.getMRInstance(ff, path, ff.length(path))) {
+                after = mem.getLong(0);
+                final CharSequence str = mem.getStr(Long.BYTES);
+                if (root == null || !Chars.equals(root, str)) {
+                    root = Chars.toString(str);
+                }
+            }
+            return true;
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * Sets path to table directory in cold storage.
+     */
+    public Path tablePath(Path path, CharSequence tableName) {
+        return path.of(root).concat(tableName);
+    }
+}
@@ -0,0 +1,471 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Numbers;
+import io.questdb.std.Unsafe;
+import io.questdb.std.Zip;
+import io.questdb.std.str.LPSZ;
+
+/**
+ * Type-aware codecs for column files of compressed partitions. Compressed file starts with
+ * a header:
+ * <pre>
+ *     int codec;
+ *     int reserved;
+ *     long raw_size; // size of the file before compression
+ * </pre>
+ * followed by encoded bytes. Codecs are:
+ * <ul>
+ *     <li>DELTA_OF_DELTA - 64-bit values, such as timestamps or offsets in ".i" files; first value is stored
+ *     as is, then zig-zag varint of first delta followed by zig-zag varints of deltas between consecutive deltas</li>
+ *     <li>XOR - doubles; first value as is, then XOR of each value with previous one with zero bytes trimmed from
+ *     both ends, prefixed by control byte (trailing zero bytes &lt;&lt; 4 | significant bytes)</li>
+ *     <li>BIT_PACK - 32-bit values such as symbol keys; values are offset by minimum value and packed using as
+ *     many bits as the range of values requires, NULL is packed as 0</li>
+ *     <li>DEFLATE - everything else, raw deflate stream</li>
+ * </ul>
+ */
+public final class ColumnCodec {
+    public static final int DEFLATE = 1;
+    public static final int DELTA_OF_DELTA = 2;
+    public static final int XOR = 3;
+    public static final int BIT_PACK = 4;
+    public static final int HEADER_SIZE = 16;
+    private static final Log LOG = LogFactory.getLog(ColumnCodec.class);
+    private static final long HEADER_OFFSET_RAW_SIZE = 8;
+    private static final int MAX_ZIP_CHUNK = 1 << 30;
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Encodes content of the source file and writes it to destination file if this makes the file smaller.
+     * Type specific codec is tried first, deflate is used when the former is not effective.
+     *
+     * @param ff       files facade
+     * @param src      address of source file content
+     * @param size     number of bytes to encode
+     * @param codec    preferred codec
+     * @param dst      destination file name
+     * @param force    write destination file even if it is not smaller than source
+     * @return true when destination file has been written, false when source is not compressible
+     */
+    public static boolean compress(FilesFacade ff, long src, long size, int codec, LPSZ dst, boolean force) {
+        final long bufSize = getEncodeBufferSize(size);
+        final long buf = Unsafe.malloc(bufSize);
+        try {
+            long len = encode(codec, src, size, buf, bufSize);
+            if ((len < 0 || len >= size) && codec != DEFLATE) {
+                final long deflateLen = encode(DEFLATE, src, size, buf, bufSize);
+                if (deflateLen > -1 || len < 0) {
+                    len = deflateLen;
+                } else {
+                    // deflate did not fit the buffer, type specific encoding has to be repeated
+                    len = encode(codec, src, size, buf, bufSize);
+                }
+            }
+            if (len < 0 || (len >= size && !force)) {
+                return false;
+            }
+            final long fd = TableUtils.openRW(ff, dst, LOG);
+            try {
+                if (ff.write(fd, buf, len, 0) != len) {
+                    throw CairoException.instance(ff.errno()).put("could not write compressed file [file=").put(dst).put(']');
+                }
+                ff.truncate(fd, len);
+            } finally {
+                ff.close(fd);
+            }
+            return true;
+        } finally {
+            Unsafe.free(buf, bufSize);
+        }
+    }
+
+    public static void decode(long src, long srcSize, long dst) {
+        final int codec = Unsafe.getUnsafe().getInt(src);
+        final long size = getDecodedSize(src);
+        final long lo = src + HEADER_SIZE;
+        final long hi = src + srcSize;
+        switch (codec) {
+            case DELTA_OF_DELTA:
+                decodeDeltaOfDelta(lo, dst, size);
+                break;
+            case XOR:
+                decodeXor(lo, dst, size);
+                break;
+            case BIT_PACK:
+                decodeBitPack(lo, dst, size);
+                break;
+            case DEFLATE:
+                inflate(lo, hi - lo, dst, size);
+                break;
+            default:
+                throw CairoException.instance(0).put("unknown column codec [codec=").put(codec).put(']');
+        }
+    }
+
+    /**
+     * Decodes compressed file and writes raw content to destination file.
+     */
+    public static void decompress(FilesFacade ff, LPSZ src, LPSZ dst) {
+        final long srcFd = TableUtils.openRO(ff, src, LOG);
+        try {
+            final long srcSize = getCompressedSize(ff, srcFd, src);
+            final long srcAddr = TableUtils.mapRO(ff, srcFd, srcSize);
+            try {
+                final long size = getDecodedSize(srcAddr);
+                final long fd = TableUtils.openRW(ff, dst, LOG);
+                try {
+                    if (size > 0) {
+                        final long dstAddr = TableUtils.mapRW(ff, fd, size);
+                        try {
+                            decode(srcAddr, srcSize, dstAddr);
+                        } finally {
+                            ff.munmap(dstAddr, size);
+                        }
+                    }
+                    ff.truncate(fd, size);
+                } finally {
+                    ff.close(fd);
+                }
+            } finally {
+                ff.munmap(srcAddr, srcSize);
+            }
+        } finally {
+            ff.close(srcFd);
+        }
+    }
+
+    /**
+     * @return total length of encoded content including header or -1 when content cannot be
+     * encoded within buffer capacity
+     */
+    public static long encode(int codec, long src, long size, long dst, long dstCapacity) {
+        Unsafe.getUnsafe().putInt(dst, codec);
+        Unsafe.getUnsafe().putInt(dst + 4, 0);
+        Unsafe.getUnsafe().putLong(dst + HEADER_OFFSET_RAW_SIZE, size);
+        final long lo = dst + HEADER_SIZE;
+        final long len;
+        switch (codec) {
+            case DELTA_OF_DELTA:
+                len = (size & 7) == 0 ? encodeDeltaOfDelta(src, size, lo) : -1;
+                break;
+            case XOR:
+                len = (size & 7) == 0 ? encodeXor(src, size, lo) : -1;
+                break;
+            case BIT_PACK:
+                len = (size & 3) == 0 ? encodeBitPack(src, size, lo) : -1;
+                break;
+            default:
+                len = deflate(src, size, lo, dstCapacity - HEADER_SIZE);
+                break;
+        }
+        return len < 0 ? -1 : len + HEADER_SIZE;
+    }
+
+    /**
+     * Preferred codec for column data file.
+     */
+    public static int getDataCodec(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.TIMESTAMP:
+            case ColumnType.DATE:
+            case ColumnType.LONG:
+                return DELTA_OF_DELTA;
+            case ColumnType.DOUBLE:
+                return XOR;
+            case ColumnType.SYMBOL:
+            case ColumnType.INT:
+                return BIT_PACK;
+            default:
+                return DEFLATE;
+        }
+    }
+
+    /**
+     * @return size of compressed file, which is checked to contain at least the header
+     */
+    public static long getCompressedSize(FilesFacade ff, long fd, LPSZ name) {
+        final long size = ff.length(fd);
+        if (size < HEADER_SIZE) {
+            throw CairoException.instance(0).put("compressed file is too short [file=").put(name).put(", size=").put(size).put(']');
+        }
+        return size;
+    }
+
+    public static long getDecodedSize(long src) {
+        return Unsafe.getUnsafe().getLong(src + HEADER_OFFSET_RAW_SIZE);
+    }
+
+    public static long getEncodeBufferSize(long size) {
+        // worst case of varint encoding is 10 bytes per 8 byte value
+        return HEADER_SIZE + size + (size >> 2) + 64;
+    }
+
+    /**
+     * Preferred codec for offset (".i") file of variable length column.
+     */
+    public static int getIndexCodec() {
+        return DELTA_OF_DELTA;
+    }
+
+    private static void decodeBitPack(long src, long dst, long size) {
+        final long min = Unsafe.getUnsafe().getLong(src);
+        final int bits = Unsafe.getUnsafe().getInt(src + 8);
+        final long mask = bits == 64 ? -1L : (1L << bits) - 1;
+        long p = src + 12;
+        long acc = 0;
+        int accBits = 0;
+        for (long d = dst, lim = dst + size; d < lim; d += 4) {
+            final long m;
+            if (bits == 0) {
+                m = 0;
+            } else if (accBits >= bits) {
+                m = acc & mask;
+                acc >>>= bits;
+                accBits -= bits;
+            } else {
+                final long next = Unsafe.getUnsafe().getLong(p);
+                p += 8;
+                m = (acc | (next << accBits)) & mask;
+                acc = next >>> (bits - accBits);
+                accBits = 64 - (bits - accBits);
+            }
+            Unsafe.getUnsafe().putInt(d, m == 0 ? Numbers.INT_NaN : (int) (m - 1 + min));
+        }
+    }
+
+    private static void decodeDeltaOfDelta(long src, long dst, long size) {
+        if (size == 0) {
+            return;
+        }
+        long p = src;
+        long value = Unsafe.getUnsafe().getLong(p);
+        p += 8;
+        Unsafe.getUnsafe().putLong(dst, value);
+        long delta = 0;
+        for (long d = dst + 8, lim = dst + size; d < lim; d += 8) {
+            // read zig-zag varint
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = Unsafe.getUnsafe().getByte(p++);
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            delta += (v >>> 1) ^ -(v & 1);
+            value += delta;
+            Unsafe.getUnsafe().putLong(d, value);
+        }
+    }
+
+    private static void decodeXor(long src, long dst, long size) {
+        if (size == 0) {
+            return;
+        }
+        long p = src;
+        long prev = Unsafe.getUnsafe().getLong(p);
+        p += 8;
+        Unsafe.getUnsafe().putLong(dst, prev);
+        for (long d = dst + 8, lim = dst + size; d < lim; d += 8) {
+            final int control = Unsafe.getUnsafe().getByte(p++) & 0xff;
+            if (control != 0) {
+                final int trailing = control >>> 4;
+                final int len = control & 0xf;
+                long x = 0;
+                for (int i = 0; i < len; i++) {
+                    x |= (Unsafe.getUnsafe().getByte(p++) & 0xffL) << (i << 3);
+                }
+                prev ^= x << (trailing << 3);
+            }
+            Unsafe.getUnsafe().putLong(d, prev);
+        }
+    }
+
+    private static long deflate(long src, long size, long dst, long dstCapacity) {
+        final long strm = Zip.deflateInit();
+        if (strm < 0) {
+            throw CairoException.instance(0).put("could not initialize deflater");
+        }
+        try {
+            long in = 0;
+            long out = 0;
+            do {
+                final int inLen = (int) Math.min(size - in, MAX_ZIP_CHUNK);
+                final boolean last = in + inLen == size;
+                Zip.setInput(strm, src + in, inLen);
+                in += inLen;
+                int ret;
+                do {
+                    final int outLen = (int) Math.min(dstCapacity - out, MAX_ZIP_CHUNK);
+                    if (outLen == 0) {
+                        // content does not compress well enough
+                        return -1;
+                    }
+                    ret = Zip.deflate(strm, dst + out, outLen, last);
+                    if (ret < 0 && ret != Zip.Z_BUF_ERROR) {
+                        throw CairoException.instance(0).put("could not deflate [ret=").put(ret).put(']');
+                    }
+                    out += outLen - Zip.availOut(strm);
+                } while (Zip.availIn(strm) > 0 || (last && ret != Zip.Z_STREAM_END));
+            } while (in < size);
+            return out;
+        } finally {
+            Zip.deflateEnd(strm);
+        }
+    }
+
+    private static long encodeBitPack(long src, long size, long dst) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long p = src, lim = src + size; p < lim; p += 4) {
+            final int v = Unsafe.getUnsafe().getInt(p);
+            if (v != Numbers.INT_NaN) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        if (min > max) {
+            // all values are null
+            min = 0;
+            max = -1;
+        }
+        final int bits = 64 - Long.numberOfLeadingZeros(max - min + 1);
+        Unsafe.getUnsafe().putLong(dst, min);
+        Unsafe.getUnsafe().putInt(dst + 8, bits);
+        long d = dst + 12;
+        if (bits > 0) {
+            long acc = 0;
+            int accBits = 0;
+            for (long p = src, lim = src + size; p < lim; p += 4) {
+                final int v = Unsafe.getUnsafe().getInt(p);
+                final long m = v == Numbers.INT_NaN ? 0 : v - min + 1;
+                acc |= m << accBits;
+                accBits += bits;
+                if (accBits >= 64) {
+                    Unsafe.getUnsafe().putLong(d, acc);
+                    d += 8;
+                    accBits -= 64;
+                    acc = accBits > 0 ? m >>> (bits - accBits) : 0;
+                }
+            }
+            if (accBits > 0) {
+                Unsafe.getUnsafe().putLong(d, acc);
+                d += 8;
+            }
+        }
+        return d - dst;
+    }
+
+    private static long encodeDeltaOfDelta(long src, long size, long dst) {
+        if (size == 0) {
+            return 0;
+        }
+        long d = dst;
+        long prev = Unsafe.getUnsafe().getLong(src);
+        Unsafe.getUnsafe().putLong(d, prev);
+        d += 8;
+        long prevDelta = 0;
+        for (long p = src + 8, lim = src + size; p < lim; p += 8) {
+            final long value = Unsafe.getUnsafe().getLong(p);
+            final long delta = value - prev;
+            final long dod = delta - prevDelta;
+            // write zig-zag varint
+            long v = (dod << 1) ^ (dod >> 63);
+            while ((v & ~0x7fL) != 0) {
+                Unsafe.getUnsafe().putByte(d++, (byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            Unsafe.getUnsafe().putByte(d++, (byte) v);
+            prev = value;
+            prevDelta = delta;
+        }
+        return d - dst;
+    }
+
+    private static long encodeXor(long src, long size, long dst) {
+        if (size == 0) {
+            return 0;
+        }
+        long d = dst;
+        long prev = Unsafe.getUnsafe().getLong(src);
+        Unsafe.getUnsafe().putLong(d, prev);
+        d += 8;
+        for (long p = src + 8, lim = src + size; p < lim; p += 8) {
+            final long value = Unsafe.getUnsafe().getLong(p);
+            long x = value ^ prev;
+            if (x == 0) {
+                Unsafe.getUnsafe().putByte(d++, (byte) 0);
+            } else {
+                final int trailing = Long.numberOfTrailingZeros(x) >> 3;
+                final int len = 8 - (Long.numberOfLeadingZeros(x) >> 3) - trailing;
+                Unsafe.getUnsafe().putByte(d++, (byte) (trailing << 4 | len));
+                x >>>= trailing << 3;
+                for (int i = 0; i < len; i++) {
+                    Unsafe.getUnsafe().putByte(d++, (byte) x);
+                    x >>>= 8;
+                }
+            }
+            prev = value;
+        }
+        return d - dst;
+    }
+
+    private static void inflate(long src, long srcSize, long dst, long size) {
+        final long strm = Zip.inflateInit(true);
+        if (strm < 0) {
+            throw CairoException.instance(0).put("could not initialize inflater");
+        }
+        try {
+            long in = 0;
+            long out = 0;
+            while (out < size) {
+                if (Zip.availIn(strm) == 0) {
+                    if (in == srcSize) {
+                        throw CairoException.instance(0).put("compressed column data is truncated");
+                    }
+                    final int inLen = (int) Math.min(srcSize - in, MAX_ZIP_CHUNK);
+                    Zip.setInput(strm, src + in, inLen);
+                    in += inLen;
+                }
+                final int n = Zip.inflate(strm, dst + out, (int) Math.min(size - out, MAX_ZIP_CHUNK), false);
+                if (n < 0 && n != Zip.Z_BUF_ERROR) {
+                    throw CairoException.instance(0).put("could not inflate [ret=").put(n).put(']');
+                }
+                if (n > 0) {
+                    out += n;
+                }
+            }
+        } finally {
+            Zip.inflateEnd(strm);
+        }
+    }
+}
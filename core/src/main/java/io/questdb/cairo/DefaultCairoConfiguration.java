@@ -84,6 +84,11 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 1024 * 1024;
     }
 
+    @Override
+    public long getSqlCopyChunkSize() {
+        return 64 * Numbers.SIZE_1MB;
+    }
+
     @Override
     public int getCopyPoolCapacity() {
         return 16;
@@ -104,6 +109,11 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return true;
     }
 
+    @Override
+    public boolean isSymbolCapacityAutoScaleEnabled() {
+        return true;
+    }
+
     @Override
     public int getDefaultSymbolCapacity() {
         return 128;
@@ -286,6 +296,16 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
         return 64;
     }
 
+    @Override
+    public long getSqlQueryMemoryLimit() {
+        return 0;
+    }
+
+    @Override
+    public long getSqlGlobalQueryMemoryLimit() {
+        return 0;
+    }
+
     @Override
     public int getSqlModelPoolCapacity() {
         return 1024;
@@ -550,4 +570,129 @@ public class DefaultCairoConfiguration implements CairoConfiguration {
     public int getLatestByQueueCapacity() {
         return 32;
     }
+
+    @Override
+    public int getPageFrameFilterQueueCapacity() {
+        return 64;
+    }
+
+    @Override
+    public boolean isSqlParallelFilterEnabled() {
+        return true;
+    }
+
+    @Override
+    public int getPageFrameGroupByQueueCapacity() {
+        return 64;
+    }
+
+    @Override
+    public boolean isSqlParallelGroupByEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSqlCompiledFilterEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getSqlParallelFilterMaxRangeRows() {
+        return 100_000;
+    }
+
+    @Override
+    public long getSqlParallelGroupByMaxRangeRows() {
+        return 1_000_000;
+    }
+
+    @Override
+    public int getLatestByScanQueueCapacity() {
+        return 64;
+    }
+
+    @Override
+    public boolean isSqlParallelLatestByEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getSqlParallelLatestByRangeRows() {
+        return 1_000_000;
+    }
+
+    @Override
+    public int getHashJoinBuildQueueCapacity() {
+        return 64;
+    }
+
+    @Override
+    public int getTextImportQueueCapacity() {
+        return 64;
+    }
+
+    @Override
+    public boolean isSqlParallelHashJoinEnabled() {
+        return true;
+    }
+
+    @Override
+    public int getSqlHashJoinRadixBits() {
+        return 4;
+    }
+
+    @Override
+    public CharSequence getSqlHashJoinSpillRoot() {
+        return null;
+    }
+
+    @Override
+    public long getSqlHashJoinSpillThreshold() {
+        return 256 * Numbers.SIZE_1MB;
+    }
+
+    @Override
+    public int getQueryCacheCapacity() {
+        return 64;
+    }
+
+    @Override
+    public long getQueryCacheMemoryLimit() {
+        return 64 * Numbers.SIZE_1MB;
+    }
+
+    @Override
+    public long getMatViewRefreshInterval() {
+        return 1000;
+    }
+
+    @Override
+    public long getWalSegmentRolloverRowCount() {
+        return 200_000;
+    }
+
+    @Override
+    public boolean isZoneMapEnabled() {
+        return true;
+    }
+
+    @Override
+    public int getZoneMapBlockSize() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public int getColumnStatsRefreshRowCount() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public double getBloomFilterFalsePositiveRate() {
+        return 0.01;
+    }
+
+    @Override
+    public long getColdStorageCheckInterval() {
+        return 60_000;
+    }
 }
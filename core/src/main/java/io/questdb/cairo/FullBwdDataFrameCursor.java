@@ -31,6 +31,10 @@ public class FullBwdDataFrameCursor extends AbstractFullDataFrameCursor {
     @Override
     public DataFrame next() {
         while (this.partitionIndex > -1) {
+            if (pruner != null && pruner.canSkipPartition(reader, partitionIndex)) {
+                partitionIndex--;
+                continue;
+            }
             final long hi = reader.openPartition(partitionIndex);
             if (hi < 1) {
                 // this partition is missing, skip
@@ -32,6 +32,10 @@ public class FullFwdDataFrameCursor extends AbstractFullDataFrameCursor {
     @Override
     public @Nullable DataFrame next() {
         while (this.partitionIndex < partitionHi) {
+            if (pruner != null && pruner.canSkipPartition(reader, partitionIndex)) {
+                partitionIndex++;
+                continue;
+            }
             final long hi = getTableReader().openPartition(partitionIndex);
             if (hi < 1) {
                 // this partition is missing, skip
@@ -56,6 +56,10 @@ public class IntervalBwdDataFrameCursor extends AbstractIntervalDataFrameCursor
             // are working with timestamp. Timestamp column cannot be added to existing table.
             final int currentInterval = intervalsHi - 1;
             final int currentPartition = partitionHi - 1;
+            if (partitionLimit == -1 && pruner != null && pruner.canSkipPartition(reader, currentPartition)) {
+                skipPartition(currentPartition);
+                continue;
+            }
             long rowCount = reader.openPartition(currentPartition);
             if (rowCount > 0) {
 
@@ -25,6 +25,7 @@
 package io.questdb.cairo;
 
 import io.questdb.cairo.sql.DataFrameCursor;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.model.RuntimeIntrinsicIntervalModel;
@@ -58,4 +59,9 @@ public class IntervalBwdDataFrameCursorFactory extends AbstractDataFrameCursorFa
         Misc.free(intervals);
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        super.toPlan(sink);
+        IntervalFwdDataFrameCursorFactory.intervalsToPlan(sink, intervals);
+    }
 }
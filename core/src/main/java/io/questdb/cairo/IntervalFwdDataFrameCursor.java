@@ -49,6 +49,10 @@ public class IntervalFwdDataFrameCursor extends AbstractIntervalDataFrameCursor
         while (intervalsLo < intervalsHi && partitionLo < partitionHi) {
             // We don't need to worry about column tops and null column because we
             // are working with timestamp. Timestamp column cannot be added to existing table.
+            if (partitionLimit == 0 && pruner != null && pruner.canSkipPartition(reader, partitionLo)) {
+                partitionLo++;
+                continue;
+            }
             long rowCount = reader.openPartition(partitionLo);
             if (rowCount > 0) {
 
@@ -25,9 +25,11 @@
 package io.questdb.cairo;
 
 import io.questdb.cairo.sql.DataFrameCursor;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.model.RuntimeIntrinsicIntervalModel;
+import io.questdb.std.LongList;
 import io.questdb.std.Misc;
 
 public class IntervalFwdDataFrameCursorFactory extends AbstractDataFrameCursorFactory {
@@ -57,4 +59,29 @@ public class IntervalFwdDataFrameCursorFactory extends AbstractDataFrameCursorFa
     public void close() {
         Misc.free(intervals);
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        super.toPlan(sink);
+        intervalsToPlan(sink, intervals);
+    }
+
+    static void intervalsToPlan(PlanSink sink, RuntimeIntrinsicIntervalModel intervals) {
+        sink.attr("intervals");
+        try {
+            // intervals can depend on bind variables and now(), they are
+            // calculated the same way the cursor would calculate them
+            final LongList list = intervals.calculateIntervals(sink.getExecutionContext());
+            sink.val("[");
+            for (int i = 0, n = list.size(); i < n; i += 2) {
+                if (i > 0) {
+                    sink.val(",");
+                }
+                sink.val("(").valTimestamp(list.getQuick(i)).val(",").valTimestamp(list.getQuick(i + 1)).val(")");
+            }
+            sink.val("]");
+        } catch (SqlException e) {
+            sink.val("n/a");
+        }
+    }
 }
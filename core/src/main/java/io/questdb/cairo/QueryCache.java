@@ -0,0 +1,407 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.ThreadLocal;
+import io.questdb.std.str.CharSink;
+import io.questdb.std.str.StringSink;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Engine-wide cache of compiled SELECT factories shared by all connections and worker threads.
+ * <p>
+ * Factories are keyed by SQL text with insignificant whitespace removed and by types of bind
+ * variables that were defined before the query was compiled. Factories are not thread-safe, so
+ * {@link #poll(CharSequence, IntList, IntList)} takes factory out of the cache and the caller
+ * returns it via {@link #push(CharSequence, IntList, RecordCursorFactory, IntList, long)} once
+ * cursor is closed. When the same query runs on several connections at the same time the cache
+ * may end up holding several idle factories under the same key.
+ * <p>
+ * Factory compiled against older table structure fails with
+ * {@link io.questdb.cairo.sql.ReaderOutOfDateException} when cursor is requested. Callers
+ * recompile such query and call {@link #invalidate(CharSequence, IntList)} to drop the other
+ * stale copies.
+ * <p>
+ * Cache is limited by number of factories and by the amount of native memory they hold. When
+ * either limit is exceeded least recently used factories are freed.
+ */
+public class QueryCache implements Closeable {
+    private static final Log LOG = LogFactory.getLog(QueryCache.class);
+    private static final ThreadLocal<StringSink> tlKey = new ThreadLocal<>(StringSink::new);
+    private final ConcurrentHashMap<Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong memoryUsed = new AtomicLong();
+    private final int capacity;
+    private final long memoryLimit;
+    private volatile boolean closed = false;
+
+    public QueryCache(CairoConfiguration configuration) {
+        this.capacity = configuration.getQueryCacheCapacity();
+        this.memoryLimit = configuration.getQueryCacheMemoryLimit();
+    }
+
+    /**
+     * Writes SQL text to the sink collapsing runs of whitespace into single space and
+     * removing leading and trailing whitespace. Quoted literals and comments are copied
+     * as is, line comments keep their terminating line break.
+     *
+     * @param sql  query text
+     * @param sink sink to write normalized text to
+     */
+    public static void normalize(CharSequence sql, CharSink sink) {
+        char quote = 0;
+        boolean lineComment = false;
+        boolean blockComment = false;
+        boolean space = false;
+        boolean started = false;
+        for (int i = 0, n = sql.length(); i < n; i++) {
+            final char c = sql.charAt(i);
+            if (quote != 0) {
+                sink.put(c);
+                if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+
+            if (lineComment) {
+                sink.put(c);
+                if (c == '\n') {
+                    lineComment = false;
+                    started = false;
+                }
+                continue;
+            }
+
+            if (blockComment) {
+                sink.put(c);
+                if (c == '/' && sql.charAt(i - 1) == '*') {
+                    blockComment = false;
+                }
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+
+            if (space && started) {
+                sink.put(' ');
+            }
+            space = false;
+            started = true;
+            sink.put(c);
+
+            switch (c) {
+                case '\'':
+                case '"':
+                    quote = c;
+                    break;
+                case '-':
+                    if (i + 1 < n && sql.charAt(i + 1) == '-') {
+                        sink.put('-');
+                        i++;
+                        lineComment = true;
+                    }
+                    break;
+                case '/':
+                    if (i + 1 < n && sql.charAt(i + 1) == '*') {
+                        sink.put('*');
+                        i++;
+                        blockComment = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public void clear() {
+        Iterator<Map.Entry<CharSequence, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<CharSequence, Entry> e = iterator.next();
+            free(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        clear();
+    }
+
+    public long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Frees all idle factories cached for the query.
+     *
+     * @param sql      query text
+     * @param keyTypes types of bind variables defined before query was compiled, can be null
+     */
+    public void invalidate(CharSequence sql, @Nullable IntList keyTypes) {
+        final CharSequence key = toKey(sql, keyTypes);
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            free(key, entry);
+            LOG.info().$("invalidated [sql=").$(sql).$(']').$();
+        }
+    }
+
+    public RecordCursorFactory poll(CharSequence sql) {
+        return poll(sql, null, null);
+    }
+
+    /**
+     * Takes idle factory out of the cache.
+     *
+     * @param sql      query text
+     * @param keyTypes types of bind variables defined before query was compiled, can be null
+     * @param outTypes receives types of bind variables as they were after query was compiled, can be null
+     * @return factory or null when there isn't one
+     */
+    public RecordCursorFactory poll(CharSequence sql, @Nullable IntList keyTypes, @Nullable IntList outTypes) {
+        if (capacity == 0) {
+            return null;
+        }
+        final Entry entry = entries.get(toKey(sql, keyTypes));
+        if (entry != null) {
+            synchronized (entry) {
+                final int index = entry.factories.size() - 1;
+                if (index > -1) {
+                    final RecordCursorFactory factory = entry.factories.getQuick(index);
+                    if (outTypes != null) {
+                        outTypes.clear();
+                        outTypes.addAll(entry.types.getQuick(index));
+                    }
+                    release(entry, index);
+                    entry.lastAccess = clock.incrementAndGet();
+                    LOG.debug().$("hit [sql=").$(sql).$(", thread=").$(Thread.currentThread().getName()).$(']').$();
+                    return factory;
+                }
+            }
+        }
+        LOG.debug().$("miss [sql=").$(sql).$(", thread=").$(Thread.currentThread().getName()).$(']').$();
+        return null;
+    }
+
+    public void push(CharSequence sql, RecordCursorFactory factory, long memoryEstimate) {
+        push(sql, null, factory, null, memoryEstimate);
+    }
+
+    /**
+     * Returns factory to the cache. Factory is freed if cache is disabled or closed.
+     *
+     * @param sql            query text
+     * @param keyTypes       types of bind variables defined before query was compiled, can be null
+     * @param factory        idle factory, cache takes ownership
+     * @param outTypes       types of bind variables defined after query was compiled, can be null
+     * @param memoryEstimate approximate amount of native memory held by factory, negative value
+     *                       when factory came from the cache and the last estimate for the query applies
+     */
+    public void push(
+            CharSequence sql,
+            @Nullable IntList keyTypes,
+            RecordCursorFactory factory,
+            @Nullable IntList outTypes,
+            long memoryEstimate
+    ) {
+        if (factory == null) {
+            return;
+        }
+
+        if (capacity == 0 || closed) {
+            factory.close();
+            return;
+        }
+
+        final CharSequence key = toKey(sql, keyTypes);
+        long memory;
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                final Entry other = entries.putIfAbsent(Chars.toString(key), entry);
+                if (other != null) {
+                    entry = other;
+                }
+            }
+
+            synchronized (entry) {
+                if (entry.removed) {
+                    // entry has been evicted concurrently
+                    continue;
+                }
+                if (memoryEstimate > -1) {
+                    entry.memoryEstimate = memoryEstimate;
+                }
+                memory = entry.memoryEstimate;
+                entry.add(factory, outTypes, memory);
+                entry.lastAccess = clock.incrementAndGet();
+            }
+            break;
+        }
+        size.incrementAndGet();
+        memoryUsed.addAndGet(memory);
+        LOG.debug().$("push [sql=").$(sql).$(", thread=").$(Thread.currentThread().getName()).$(']').$();
+
+        while ((size.get() > capacity || memoryUsed.get() > memoryLimit) && evictLeastRecentlyUsed()) {
+            // keep evicting
+        }
+    }
+
+    private static CharSequence toKey(CharSequence sql, @Nullable IntList keyTypes) {
+        final StringSink sink = tlKey.get();
+        sink.clear();
+        normalize(sql, sink);
+        if (keyTypes != null && keyTypes.size() > 0) {
+            // normalized text never has trailing zero char
+            sink.put((char) 0);
+            for (int i = 0, n = keyTypes.size(); i < n; i++) {
+                sink.put(keyTypes.getQuick(i)).put(',');
+            }
+        }
+        return sink;
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        CharSequence lruKey = null;
+        Entry lru = null;
+        long lruAccess = Long.MAX_VALUE;
+        Iterator<Map.Entry<CharSequence, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<CharSequence, Entry> e = iterator.next();
+            final Entry entry = e.getValue();
+            if (entry.factories.size() == 0) {
+                // all factories of this entry are in use, entry will be re-created when they come back
+                removeIfEmpty(e.getKey(), entry);
+            } else if (entry.lastAccess < lruAccess) {
+                lruKey = e.getKey();
+                lru = entry;
+                lruAccess = entry.lastAccess;
+            }
+        }
+
+        if (lru == null) {
+            return false;
+        }
+
+        RecordCursorFactory victim = null;
+        synchronized (lru) {
+            if (lru.factories.size() > 0) {
+                // the oldest factory is at the bottom
+                victim = lru.factories.getQuick(0);
+                release(lru, 0);
+            }
+        }
+        removeIfEmpty(lruKey, lru);
+        if (victim != null) {
+            LOG.info().$("evicted [sql=").$(lruKey).$(']').$();
+            victim.close();
+        }
+        return true;
+    }
+
+    private void free(CharSequence key, Entry entry) {
+        synchronized (entry) {
+            entry.removed = true;
+            entries.remove(key, entry);
+            for (int i = entry.factories.size() - 1; i > -1; i--) {
+                final RecordCursorFactory factory = entry.factories.getQuick(i);
+                release(entry, i);
+                factory.close();
+            }
+        }
+    }
+
+    private void release(Entry entry, int index) {
+        size.decrementAndGet();
+        memoryUsed.addAndGet(-entry.memory.getQuick(index));
+        entry.remove(index);
+    }
+
+    private void removeIfEmpty(CharSequence key, Entry entry) {
+        synchronized (entry) {
+            if (entry.factories.size() == 0 && !entry.removed) {
+                entry.removed = true;
+                entries.remove(key, entry);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final ObjList<RecordCursorFactory> factories = new ObjList<>();
+        private final ObjList<IntList> types = new ObjList<>();
+        private final LongList memory = new LongList();
+        private final ObjList<IntList> spareTypes = new ObjList<>();
+        private volatile long lastAccess;
+        private long memoryEstimate = 0;
+        private boolean removed = false;
+
+        private void add(RecordCursorFactory factory, @Nullable IntList outTypes, long memory) {
+            final int spare = spareTypes.size() - 1;
+            final IntList types;
+            if (spare > -1) {
+                types = spareTypes.getQuick(spare);
+                spareTypes.remove(spare);
+            } else {
+                types = new IntList();
+            }
+            if (outTypes != null) {
+                types.addAll(outTypes);
+            }
+            this.factories.add(factory);
+            this.types.add(types);
+            this.memory.add(memory);
+        }
+
+        private void remove(int index) {
+            final IntList types = this.types.getQuick(index);
+            types.clear();
+            spareTypes.add(types);
+            factories.remove(index);
+            this.types.remove(index);
+            memory.removeIndex(index);
+        }
+    }
+}
@@ -220,6 +220,7 @@ public class RecordSinkFactory {
                     asm.invokeInterface(wSkip, 1);
                     break;
                 case -ColumnType.LONG:
+                case -ColumnType.DOUBLE:
                     asm.aload(2);
                     asm.iconst(Long.BYTES);
                     asm.invokeInterface(wSkip, 1);
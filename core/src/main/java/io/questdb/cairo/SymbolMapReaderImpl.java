@@ -41,6 +41,10 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
     private final MemoryMR charMem = Vm.getMRInstance();
     private final MemoryMR offsetMem = Vm.getMRInstance();
     private final ObjList<String> cache = new ObjList<>();
+    private CairoConfiguration configuration;
+    private String tablePath;
+    private String columnName;
+    private long index;
     private int maxHash;
     private boolean cached;
     private int symbolCount;
@@ -82,6 +86,11 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
 
     @Override
     public void updateSymbolCount(int symbolCount) {
+        // writer publishes grown index before symbol count it is needed for
+        final long index = offsetMem.getLong(SymbolMapWriter.HEADER_INDEX);
+        if (index != this.index) {
+            openIndex(index);
+        }
         if (symbolCount > this.symbolCount) {
             this.symbolCount = symbolCount;
             this.maxOffset = SymbolMapWriter.keyToOffset(symbolCount);
@@ -95,6 +104,7 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
 
     public void of(CairoConfiguration configuration, Path path, CharSequence name, int symbolCount) {
         FilesFacade ff = configuration.getFilesFacade();
+        this.configuration = configuration;
         this.symbolCount = symbolCount;
         this.maxOffset = SymbolMapWriter.keyToOffset(symbolCount - 1);
         final int plen = path.length();
@@ -117,12 +127,15 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
             // open "offset" memory and make sure we start appending from where
             // we left off. Where we left off is stored externally to symbol map
             this.offsetMem.partialFile(ff, path, SymbolMapWriter.keyToOffset(symbolCount));
-            symbolCapacity = offsetMem.getInt(SymbolMapWriter.HEADER_CAPACITY);
+            this.index = offsetMem.getLong(SymbolMapWriter.HEADER_INDEX);
+            symbolCapacity = index == 0 ? offsetMem.getInt(SymbolMapWriter.HEADER_CAPACITY) : SymbolMapWriter.indexCapacity(index);
             this.cached = offsetMem.getBool(SymbolMapWriter.HEADER_CACHE_ENABLED);
             this.nullValue = offsetMem.getBool(SymbolMapWriter.HEADER_NULL_FLAG);
+            this.tablePath = Chars.toString(path.trimTo(plen));
+            this.columnName = Chars.toString(name);
 
             // index writer is used to identify attempts to store duplicate symbol value
-            this.indexReader.of(configuration, path.trimTo(plen), name, 0, -1);
+            this.indexReader.of(configuration, path.trimTo(plen), SymbolMapWriter.indexName(name, SymbolMapWriter.indexVersion(index)), 0, -1);
 
             // this is the place where symbol values are stored
             this.charMem.wholeFile(ff, SymbolMapWriter.charFileName(path.trimTo(plen), name));
@@ -133,7 +146,7 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
             // we use index hash maximum equals to half of symbol capacity, which
             // theoretically should require 2 value cells in index per hash
             // we use 4 cells to compensate for occasionally unlucky hash distribution
-            this.maxHash = Numbers.ceilPow2(symbolCapacity / 2) - 1;
+            this.maxHash = SymbolMapWriter.maxHash(symbolCapacity);
             if (cached) {
                 this.cache.setPos(symbolCapacity);
             }
@@ -208,6 +221,17 @@ public class SymbolMapReaderImpl implements Closeable, SymbolMapReader {
         return symbol;
     }
 
+    private void openIndex(long index) {
+        try (Path path = new Path()) {
+            path.of(tablePath);
+            indexReader.of(configuration, path, SymbolMapWriter.indexName(columnName, SymbolMapWriter.indexVersion(index)), 0, -1);
+        }
+        this.index = index;
+        this.symbolCapacity = SymbolMapWriter.indexCapacity(index);
+        this.maxHash = SymbolMapWriter.maxHash(symbolCapacity);
+        LOG.info().$("reopened index [name=").$(columnName).$(", capacity=").$(symbolCapacity).$(", indexVersion=").$(SymbolMapWriter.indexVersion(index)).I$();
+    }
+
     private void growCharMemToSymbolCount(int symbolCount) {
         long charMemLength;
         if (symbolCount > 0) {
@@ -35,6 +35,7 @@ import io.questdb.std.*;
 import io.questdb.std.str.DirectCharSequence;
 import io.questdb.std.str.Path;
 import io.questdb.std.str.SingleCharCharSequence;
+import io.questdb.std.str.StringSink;
 
 import java.io.Closeable;
 
@@ -43,14 +44,27 @@ public class SymbolMapWriter implements Closeable {
     public static final int HEADER_CAPACITY = 0;
     public static final int HEADER_CACHE_ENABLED = 4;
     public static final int HEADER_NULL_FLAG = 8;
+    // version of hash index in high int and capacity index is built for in low int, single
+    // long write publishes both to readers at once; zero until index is rebuilt for the first time
+    public static final int HEADER_INDEX = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
     private static final Log LOG = LogFactory.getLog(SymbolMapWriter.class);
-    private final BitmapIndexWriter indexWriter;
+    private final CairoConfiguration configuration;
+    private final Path path;
     private final MemoryMARW charMem;
     private final MemoryMARW offsetMem;
     private final CharSequenceIntHashMap cache;
     private final DirectCharSequence tmpSymbol;
-    private final int maxHash;
     private final TransientSymbolCountChangeHandler transientSymbolCountChangeHandler;
+    private BitmapIndexWriter indexWriter;
+    private String columnName;
+    private int maxHash;
+    private int symbolCapacity;
+    // version readers use and version writer appends to, the latter is ahead
+    // between capacity growth and commit
+    private int indexVersion;
+    private int pendingIndexVersion;
+    private boolean autoScale;
     private boolean nullValue = false;
 
     public SymbolMapWriter(
@@ -60,9 +74,14 @@ public class SymbolMapWriter implements Closeable {
             int symbolCount,
             TransientSymbolCountChangeHandler transientSymbolCountChangeHandler
     ) {
+        this.configuration = configuration;
         this.transientSymbolCountChangeHandler = transientSymbolCountChangeHandler;
+        this.autoScale = configuration.isSymbolCapacityAutoScaleEnabled();
+        this.path = new Path();
         final int plen = path.length();
         try {
+            this.path.of(path);
+            this.columnName = Chars.toString(name);
             final FilesFacade ff = configuration.getFilesFacade();
             final long mapPageSize = ff.getMapPageSize();
 
@@ -84,12 +103,14 @@ public class SymbolMapWriter implements Closeable {
             // open "offset" memory and make sure we start appending from where
             // we left off. Where we left off is stored externally to symbol map
             this.offsetMem = Vm.getWholeMARWInstance(ff, path, mapPageSize);
-            final int symbolCapacity = offsetMem.getInt(HEADER_CAPACITY);
+            final long index = offsetMem.getLong(HEADER_INDEX);
+            this.indexVersion = this.pendingIndexVersion = indexVersion(index);
+            this.symbolCapacity = index == 0 ? offsetMem.getInt(HEADER_CAPACITY) : indexCapacity(index);
             final boolean useCache = offsetMem.getBool(HEADER_CACHE_ENABLED);
             this.offsetMem.jumpTo(keyToOffset(symbolCount));
 
             // index writer is used to identify attempts to store duplicate symbol value
-            this.indexWriter = new BitmapIndexWriter(configuration, path.trimTo(plen), name);
+            this.indexWriter = new BitmapIndexWriter(configuration, path.trimTo(plen), indexName(name, indexVersion));
 
             // this is the place where symbol values are stored
             this.charMem = Vm.getWholeMARWInstance(ff, charFileName(path.trimTo(plen), name), mapPageSize);
@@ -100,7 +121,7 @@ public class SymbolMapWriter implements Closeable {
             // we use index hash maximum equals to half of symbol capacity, which
             // theoretically should require 2 value cells in index per hash
             // we use 4 cells to compensate for occasionally unlucky hash distribution
-            this.maxHash = Numbers.ceilPow2(symbolCapacity / 2) - 1;
+            this.maxHash = maxHash(symbolCapacity);
 
             if (useCache) {
                 this.cache = new CharSequenceIntHashMap(symbolCapacity);
@@ -114,6 +135,7 @@ public class SymbolMapWriter implements Closeable {
                     .$(", fd=").$(this.offsetMem.getFd())
                     .$(", cache=").$(cache != null)
                     .$(", capacity=").$(symbolCapacity)
+                    .$(", indexVersion=").$(indexVersion)
                     .I$();
         } catch (Throwable e) {
             close();
@@ -157,6 +179,18 @@ public class SymbolMapWriter implements Closeable {
         }
     }
 
+    /**
+     * Hash index of symbol map is rebuilt under new name each time capacity grows.
+     * Version 0 index has the name of the column, as created with the column.
+     */
+    public static Path indexKeyFileName(Path path, CharSequence columnName, int indexVersion) {
+        return BitmapIndexUtils.keyFileName(path, indexName(columnName, indexVersion));
+    }
+
+    public static Path indexValueFileName(Path path, CharSequence columnName, int indexVersion) {
+        return BitmapIndexUtils.valueFileName(path, indexName(columnName, indexVersion));
+    }
+
     public static Path offsetFileName(Path path, CharSequence columnName) {
         return path.concat(columnName).put(".o").$();
     }
@@ -173,21 +207,44 @@ public class SymbolMapWriter implements Closeable {
 
     @Override
     public void close() {
-        Misc.free(indexWriter);
+        indexWriter = Misc.free(indexWriter);
         Misc.free(charMem);
         if (this.offsetMem != null) {
             long fd = this.offsetMem.getFd();
             Misc.free(offsetMem);
             LOG.debug().$("closed [fd=").$(fd).$(']').$();
         }
+        Misc.free(path);
         nullValue = false;
     }
 
+    /**
+     * Publishes index rebuilt for larger capacity to readers, they switch to it when they
+     * reload symbol count. Has to be called before transaction, that includes symbols added
+     * after the rebuild, is committed. Index files older than previously published version are
+     * removed, readers that have not reloaded since the previous commit may still use the latter.
+     * Each version at least doubles capacity, which keeps number of versions small.
+     */
+    public void commitIndex() {
+        if (pendingIndexVersion != indexVersion) {
+            offsetMem.putLong(HEADER_INDEX, ((long) pendingIndexVersion << 32) | symbolCapacity);
+            offsetMem.putInt(HEADER_CAPACITY, symbolCapacity);
+            for (int v = 0; v < indexVersion; v++) {
+                removeIndexFiles(v);
+            }
+            indexVersion = pendingIndexVersion;
+            LOG.info().$("committed [name=").$(columnName).$(", capacity=").$(symbolCapacity).$(", indexVersion=").$(indexVersion).I$();
+        }
+    }
+
     public void commitAppendedBlock(int nSymbolsAdded) {
         long offset = charMem.getAppendOffset();
         int symbolIndex = getSymbolCount();
         int nSymbols = symbolIndex + nSymbolsAdded;
         while (symbolIndex < nSymbols) {
+            if (symbolIndex >= symbolCapacity && autoScale) {
+                growCapacity(symbolIndex);
+            }
             long symCharsOffset = offset;
             int symLen = charMem.getInt(offset);
             offset += Integer.BYTES;
@@ -210,6 +267,14 @@ public class SymbolMapWriter implements Closeable {
         LOG.debug().$("appended a block of ").$(nSymbolsAdded).$("symbols [fd=").$(this.offsetMem.getFd()).$(']').$();
     }
 
+    public int getIndexVersion() {
+        return pendingIndexVersion;
+    }
+
+    public int getSymbolCapacity() {
+        return symbolCapacity;
+    }
+
     public int getSymbolCount() {
         return offsetToKey(offsetMem.getAppendOffset());
     }
@@ -253,6 +318,27 @@ public class SymbolMapWriter implements Closeable {
         offsetMem.putBool(HEADER_NULL_FLAG, flag);
     }
 
+    static int indexCapacity(long index) {
+        return (int) index;
+    }
+
+    static CharSequence indexName(CharSequence columnName, int indexVersion) {
+        if (indexVersion == 0) {
+            return columnName;
+        }
+        final StringSink sink = Misc.getThreadLocalBuilder();
+        sink.put(columnName).put('.').put(indexVersion);
+        return sink;
+    }
+
+    static int indexVersion(long index) {
+        return (int) (index >>> 32);
+    }
+
+    static int maxHash(int symbolCapacity) {
+        return Numbers.ceilPow2(symbolCapacity / 2) - 1;
+    }
+
     static int offsetToKey(long offset) {
         return (int) ((offset - HEADER_SIZE) / 8L);
     }
@@ -265,6 +351,10 @@ public class SymbolMapWriter implements Closeable {
         return cache != null;
     }
 
+    void renameColumn(CharSequence columnName) {
+        this.columnName = Chars.toString(columnName);
+    }
+
     private void jumpCharMemToSymbolCount(int symbolCount) {
         if (symbolCount > 0) {
             long lastSymbolOffset = this.offsetMem.getLong(keyToOffset(symbolCount - 1));
@@ -294,15 +384,81 @@ public class SymbolMapWriter implements Closeable {
         return result;
     }
 
+    private void growCapacity(int symbolCount) {
+        if (symbolCapacity >= MAX_CAPACITY) {
+            return;
+        }
+        final int capacity = Numbers.ceilPow2(symbolCount + 1);
+        final int maxHash = maxHash(capacity);
+        final int version = pendingIndexVersion + 1;
+        final FilesFacade ff = configuration.getFilesFacade();
+        final int plen = path.length();
+        final BitmapIndexWriter writer = new BitmapIndexWriter();
+        try {
+            final long keyFd = TableUtils.openRW(ff, indexKeyFileName(path.trimTo(plen), columnName, version), LOG);
+            final long valueFd;
+            try {
+                valueFd = TableUtils.openRW(ff, indexValueFileName(path.trimTo(plen), columnName, version), LOG);
+            } catch (Throwable e) {
+                ff.close(keyFd);
+                throw e;
+            }
+            writer.of(configuration, keyFd, valueFd, true);
+
+            for (int key = 0; key < symbolCount; key++) {
+                final long offsetOffset = keyToOffset(key);
+                writer.add(Hash.boundedHash(charMem.getStr(offsetMem.getLong(offsetOffset)), maxHash), offsetOffset);
+            }
+        } catch (CairoException e) {
+            // symbol map remains usable with its current index, just slower
+            LOG.error().$("could not grow capacity [name=").$(columnName).$(", capacity=").$(capacity)
+                    .$(", errno=").$(e.getErrno()).$(", error=").$(e.getFlyweightMessage()).I$();
+            Misc.free(writer);
+            autoScale = false;
+            return;
+        } finally {
+            path.trimTo(plen);
+        }
+
+        Misc.free(indexWriter);
+        if (pendingIndexVersion != indexVersion) {
+            // never published, no reader can have it open
+            removeIndexFiles(pendingIndexVersion);
+        }
+        this.indexWriter = writer;
+        this.maxHash = maxHash;
+        this.symbolCapacity = capacity;
+        this.pendingIndexVersion = version;
+        LOG.info().$("grown [name=").$(columnName).$(", symbolCount=").$(symbolCount).$(", capacity=").$(capacity).$(", indexVersion=").$(version).I$();
+    }
+
     private int put0(CharSequence symbol, int hash) {
         long offsetOffset = offsetMem.getAppendOffset();
         offsetMem.putLong(charMem.putStr(symbol));
         indexWriter.add(hash, offsetOffset);
         int symIndex = offsetToKey(offsetOffset);
         transientSymbolCountChangeHandler.handleTransientSymbolCountChange(symIndex + 1);
+        if (symIndex >= symbolCapacity && autoScale) {
+            growCapacity(symIndex + 1);
+        }
         return symIndex;
     }
 
+    private void removeIndexFiles(int indexVersion) {
+        final FilesFacade ff = configuration.getFilesFacade();
+        final int plen = path.length();
+        try {
+            if (ff.exists(indexKeyFileName(path.trimTo(plen), columnName, indexVersion)) && !ff.remove(path)) {
+                LOG.info().$("could not remove [file=").$(path).$(", errno=").$(ff.errno()).I$();
+            }
+            if (ff.exists(indexValueFileName(path.trimTo(plen), columnName, indexVersion)) && !ff.remove(path)) {
+                LOG.info().$("could not remove [file=").$(path).$(", errno=").$(ff.errno()).I$();
+            }
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
     void truncate() {
         offsetMem.jumpTo(keyToOffset(0));
         charMem.jumpTo(0);
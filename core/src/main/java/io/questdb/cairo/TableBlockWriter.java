@@ -251,6 +251,9 @@ public class TableBlockWriter implements Closeable {
             case PartitionBy.YEAR:
                 timestampFloorMethod = Timestamps.FLOOR_YYYY;
                 break;
+            case PartitionBy.HOUR:
+                timestampFloorMethod = Timestamps.FLOOR_HH;
+                break;
             default:
                 timestampFloorMethod = NO_PARTITIONING_FLOOR;
                 break;
@@ -573,8 +576,14 @@ public class TableBlockWriter implements Closeable {
             columnTops.ensureCapacity(columnCount);
         }
 
-        private void setColumnTop(int columnIndex, long columnTop) {
-            columnTops.set(columnIndex, columnTop);
+        private void setColumnTop(int columnIndex, long nFrameRows) {
+            // column top is counted from the start of partition, it includes rows committed
+            // before this block and all frames of the block the column is missing from
+            long columnTop = columnTops.getQuick(columnIndex);
+            if (columnTop == -1) {
+                columnTop = writer.getPartitionRowCount(timestampLo);
+            }
+            columnTops.setQuick(columnIndex, columnTop + nFrameRows);
         }
 
         private void startCommitAppendedBlock() {
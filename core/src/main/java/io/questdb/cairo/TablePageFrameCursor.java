@@ -203,6 +203,10 @@ public class TablePageFrameCursor implements PageFrameCursor {
         return reader.getSymbolMapReader(columnIndexes.getQuick(i));
     }
 
+    public TableReader getTableReader() {
+        return reader;
+    }
+
     public TablePageFrameCursor of(TableReader reader, long maxRowsPerFrame, int timestampColumnIndex, IntList columnIndexes, IntList columnSizes) {
         this.reader = reader;
         this.maxRowsPerFrame = maxRowsPerFrame;
@@ -26,6 +26,7 @@ package io.questdb.cairo;
 
 import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.cairo.vm.MemoryCMRDecompressedImpl;
 import io.questdb.cairo.vm.MemoryCMRImpl;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryMR;
@@ -65,6 +66,8 @@ public class TableReader implements Closeable, SymbolTableSource {
     private final TxReader txFile;
     private final MemoryMR todoMem = Vm.getMRInstance();
     private final TxnScoreboard txnScoreboard;
+    private final ColdStoragePolicy coldStoragePolicy = new ColdStoragePolicy();
+    private Path coldPath;
     private int partitionCount;
     private LongList columnTops;
     private ObjList<MemoryMR> columns;
@@ -169,6 +172,7 @@ public class TableReader implements Closeable, SymbolTableSource {
             freeTempMem();
             Misc.free(txnScoreboard);
             Misc.free(path);
+            coldPath = Misc.free(coldPath);
             LOG.debug().$("closed '").utf8(tableName).$('\'').$();
         }
     }
@@ -358,6 +362,44 @@ public class TableReader implements Closeable, SymbolTableSource {
         return min;
     }
 
+    /**
+     * Loads Bloom filter of column in partition without opening the partition.
+     *
+     * @return false when partition has no Bloom filter usable for this reader's view of the partition
+     */
+    public boolean loadBloomFilter(int partitionIndex, int columnIndex, BloomFilterReader bloomFilter) {
+        try {
+            Path path = pathGenPartitioned(partitionIndex);
+            TableUtils.txnPartitionConditionally(path, txFile.getPartitionNameTxn(partitionIndex));
+            return bloomFilter.of(
+                    ff,
+                    TableUtils.bfFile(path, metadata.getColumnName(columnIndex)),
+                    txFile.getPartitionSize(partitionIndex)
+            );
+        } finally {
+            path.trimTo(rootLen);
+        }
+    }
+
+    /**
+     * Loads zone map of column in partition without opening the partition.
+     *
+     * @return false when partition has no zone map usable for this reader's view of the partition
+     */
+    public boolean loadZoneMap(int partitionIndex, int columnIndex, ZoneMapReader zoneMap) {
+        try {
+            Path path = pathGenPartitioned(partitionIndex);
+            TableUtils.txnPartitionConditionally(path, txFile.getPartitionNameTxn(partitionIndex));
+            return zoneMap.of(
+                    ff,
+                    TableUtils.zmFile(path, metadata.getColumnName(columnIndex)),
+                    txFile.getPartitionSize(partitionIndex)
+            );
+        } finally {
+            path.trimTo(rootLen);
+        }
+    }
+
     public long openPartition(int partitionIndex) {
         final long size = getPartitionRowCount(partitionIndex);
         if (size != -1) {
@@ -833,6 +875,10 @@ public class TableReader implements Closeable, SymbolTableSource {
         return txn;
     }
 
+    TxReader getTxFile() {
+        return txFile;
+    }
+
     TxnScoreboard getTxnScoreboard() {
         return txnScoreboard;
     }
@@ -897,12 +943,20 @@ public class TableReader implements Closeable, SymbolTableSource {
             ObjList<MemoryMR> columns,
             boolean lastPartition,
             int primaryIndex,
-            MemoryMR mem
+            MemoryMR mem,
+            boolean compressed
     ) {
-        if (mem != null && mem != NullColumn.INSTANCE) {
+        if (mem != null && mem != NullColumn.INSTANCE && compressed == mem instanceof MemoryCMRDecompressedImpl) {
             mem.wholeFile(ff, path);
         } else {
-            mem = Vm.getMRInstance(ff, path, lastPartition ? ff.getMapPageSize() : ff.length(path));
+            if (mem != NullColumn.INSTANCE) {
+                Misc.free(mem);
+            }
+            if (compressed) {
+                mem = Vm.getDecompressedMRInstance(ff, path);
+            } else {
+                mem = Vm.getMRInstance(ff, path, lastPartition ? ff.getMapPageSize() : ff.length(path));
+            }
             columns.setQuick(primaryIndex, mem);
         }
         return mem;
@@ -993,10 +1047,27 @@ public class TableReader implements Closeable, SymbolTableSource {
     }
 
     private Path pathGenPartitioned(int partitionIndex) {
+        if (txFile.isPartitionCold(partitionIndex)) {
+            return pathGenColdPartition(partitionIndex);
+        }
         formatPartitionDirName(partitionIndex, path.slash());
         return path;
     }
 
+    // policy is read every time cold partition is opened, cold storage root can change
+    // after all partitions are restored from cold storage
+    private Path pathGenColdPartition(int partitionIndex) {
+        if (!coldStoragePolicy.of(ff, path.trimTo(rootLen))) {
+            throw CairoException.instance(0).put("cold storage policy does not exist [table=").put(tableName).put(']');
+        }
+        if (coldPath == null) {
+            coldPath = new Path();
+        }
+        coldStoragePolicy.tablePath(coldPath, tableName);
+        formatPartitionDirName(partitionIndex, coldPath.slash());
+        return coldPath;
+    }
+
     private boolean readTxnSlow() {
         int count = 0;
         final long deadline = configuration.getMicrosecondClock().getTicks() + configuration.getSpinLockTimeoutUs();
@@ -1129,16 +1200,21 @@ public class TableReader implements Closeable, SymbolTableSource {
             MemoryMR mem1 = columns.getQuick(primaryIndex);
             MemoryMR mem2 = columns.getQuick(secondaryIndex);
 
-            if (ff.exists(TableUtils.dFile(path.trimTo(plen), name))) {
+            // column file of compressed partition may be stored either raw or compressed
+            final boolean rawData = ff.exists(TableUtils.dFile(path.trimTo(plen), name));
+            if (rawData || ff.exists(TableUtils.dzFile(path.trimTo(plen), name))) {
 
-                mem1 = openOrCreateMemory(path, columns, lastPartition, primaryIndex, mem1);
+                mem1 = openOrCreateMemory(path, columns, lastPartition, primaryIndex, mem1, !rawData);
 
                 final long columnTop = TableUtils.readColumnTop(ff, path.trimTo(plen), name, plen, tempMem8b);
                 final int type = metadata.getColumnType(columnIndex);
 
                 if (ColumnType.isVariableLength(type)) {
-                    TableUtils.iFile(path.trimTo(plen), name);
-                    mem2 = openOrCreateMemory(path, columns, lastPartition, secondaryIndex, mem2);
+                    final boolean rawIndex = ff.exists(TableUtils.iFile(path.trimTo(plen), name));
+                    if (!rawIndex) {
+                        TableUtils.izFile(path.trimTo(plen), name);
+                    }
+                    mem2 = openOrCreateMemory(path, columns, lastPartition, secondaryIndex, mem2, !rawIndex);
                     growColumn(mem1, mem2, type, partitionRowCount - columnTop);
                 } else {
                     Misc.free(columns.getAndSetQuick(secondaryIndex, null));
@@ -1327,7 +1403,7 @@ public class TableReader implements Closeable, SymbolTableSource {
                             //    instance and the column from disk
                             // 3. Column hasn't been altered and we can skip to next column.
                             MemoryMR col = columns.getQuick(getPrimaryColumnIndex(base, i));
-                            if ((col instanceof MemoryCMRImpl && col.isDeleted()) || col instanceof NullColumn) {
+                            if (((col instanceof MemoryCMRImpl || col instanceof MemoryCMRDecompressedImpl) && col.isDeleted()) || col instanceof NullColumn) {
                                 reloadColumnAt(
                                         path,
                                         columns,
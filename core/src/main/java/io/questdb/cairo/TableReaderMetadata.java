@@ -258,6 +258,10 @@ public class TableReaderMetadata extends BaseRecordMetadata implements Closeable
         return metaMem.getInt(TableUtils.META_OFFSET_PARTITION_BY);
     }
 
+    public boolean isColumnBloomFiltered(int columnIndex) {
+        return TableUtils.isBloomFiltered(metaMem, columnIndex);
+    }
+
     public int getVersion() {
         return metaMem.getInt(TableUtils.META_OFFSET_VERSION);
     }
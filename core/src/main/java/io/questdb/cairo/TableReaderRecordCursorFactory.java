@@ -25,6 +25,7 @@
 package io.questdb.cairo;
 
 import io.questdb.cairo.sql.PageFrameCursor;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordMetadata;
 import io.questdb.griffin.SqlExecutionContext;
@@ -70,12 +71,32 @@ public class TableReaderRecordCursorFactory extends AbstractRecordCursorFactory
         Misc.free(pageFrameCursor);
     }
 
+    public IntList getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    public IntList getColumnSizes() {
+        return columnSizes;
+    }
+
     @Override
     public RecordCursor getCursor(SqlExecutionContext executionContext) {
         cursor.of(engine.getReader(executionContext.getCairoSecurityContext(), tableName, tableId, tableVersion));
         return cursor;
     }
 
+    public int getTableId() {
+        return tableId;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getTableVersion() {
+        return tableVersion;
+    }
+
     @Override
     public boolean recordCursorSupportsRandomAccess() {
         return true;
@@ -99,4 +120,10 @@ public class TableReaderRecordCursorFactory extends AbstractRecordCursorFactory
     public boolean supportPageFrameCursor() {
         return framingSupported;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").val(tableName);
+    }
 }
@@ -27,11 +27,12 @@ package io.questdb.cairo;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.cairo.sql.TableReaderSource;
 import io.questdb.std.IntList;
 import io.questdb.std.Misc;
 import io.questdb.std.Rows;
 
-public class TableReaderSelectedColumnRecordCursor implements RecordCursor {
+public class TableReaderSelectedColumnRecordCursor implements RecordCursor, TableReaderSource {
 
     protected final TableReaderSelectedColumnRecord recordA;
     private final TableReaderSelectedColumnRecord recordB;
@@ -66,6 +67,11 @@ public class TableReaderSelectedColumnRecordCursor implements RecordCursor {
         return reader.getSymbolMapReader(columnIndexes.getQuick(columnIndex));
     }
 
+    @Override
+    public TableReader getTableReader() {
+        return reader;
+    }
+
     @Override
     public boolean hasNext() {
         if (recordA.getAdjustedRecordIndex() < maxRecordIndex || switchPartition()) {
@@ -38,6 +38,7 @@ import io.questdb.std.datetime.microtime.TimestampFormatUtils;
 import io.questdb.std.datetime.microtime.Timestamps;
 import io.questdb.std.str.CharSink;
 import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.NativeLPSZ;
 import io.questdb.std.str.Path;
 
 public final class TableUtils {
@@ -66,6 +67,10 @@ public final class TableUtils {
     public static final long META_OFFSET_COMMIT_LAG = 24;
     public static final String FILE_SUFFIX_I = ".i";
     public static final String FILE_SUFFIX_D = ".d";
+    public static final String FILE_SUFFIX_I_COMPRESSED = ".iz";
+    public static final String FILE_SUFFIX_D_COMPRESSED = ".dz";
+    public static final String FILE_SUFFIX_ZONE_MAP = ".zm";
+    public static final String FILE_SUFFIX_BLOOM_FILTER = ".bf";
     public static final int LONGS_PER_TX_ATTACHED_PARTITION = 4;
     public static final int LONGS_PER_TX_ATTACHED_PARTITION_MSB = Numbers.msb(LONGS_PER_TX_ATTACHED_PARTITION);
     static final int MIN_INDEX_VALUE_BLOCK_SIZE = Numbers.ceilPow2(4);
@@ -74,6 +79,7 @@ public final class TableUtils {
     static final DateFormat fmtDay;
     static final DateFormat fmtMonth;
     static final DateFormat fmtYear;
+    static final DateFormat fmtHour;
     static final String DEFAULT_PARTITION_NAME = "default";
     // transaction file structure
     static final long TX_OFFSET_TXN = 0;
@@ -109,6 +115,7 @@ public final class TableUtils {
     static final long META_OFFSET_COLUMN_TYPES = 128;
     static final int META_FLAG_BIT_INDEXED = 1;
     static final int META_FLAG_BIT_SEQUENTIAL = 1 << 1;
+    static final int META_FLAG_BIT_BLOOM_FILTER = 1 << 2;
     static final String TODO_FILE_NAME = "_todo_";
     private static final int MIN_SYMBOL_CAPACITY = 2;
     private static final int MAX_SYMBOL_CAPACITY = Numbers.ceilPow2(Integer.MAX_VALUE);
@@ -183,6 +190,10 @@ public final class TableUtils {
                     flags |= META_FLAG_BIT_SEQUENTIAL;
                 }
 
+                if (structure.isBloomFiltered(i)) {
+                    flags |= META_FLAG_BIT_BLOOM_FILTER;
+                }
+
                 mem.putLong(flags);
                 mem.putInt(structure.getIndexBlockCapacity(i));
             }
@@ -257,6 +268,8 @@ public final class TableUtils {
                 return Timestamps.ADD_MM;
             case PartitionBy.YEAR:
                 return Timestamps.ADD_YYYY;
+            case PartitionBy.HOUR:
+                return Timestamps.ADD_HH;
             default:
                 throw new UnsupportedOperationException("partition by " + partitionBy + " does not have add method");
         }
@@ -575,6 +588,23 @@ public final class TableUtils {
                     return Timestamps.addYear(Timestamps.yearMicros(y, leap), 1) - 1;
                 }
                 return 0;
+            case PartitionBy.HOUR:
+                y = Timestamps.getYear(timestamp);
+                leap = Timestamps.isLeapYear(y);
+                m = Timestamps.getMonthOfYear(timestamp, y, leap);
+                d = Timestamps.getDayOfMonth(timestamp, y, m, leap);
+                TimestampFormatUtils.append000(path, y);
+                path.put('-');
+                TimestampFormatUtils.append0(path, m);
+                path.put('-');
+                TimestampFormatUtils.append0(path, d);
+                path.put('T');
+                TimestampFormatUtils.append0(path, Timestamps.getHourOfDay(timestamp));
+
+                if (calculatePartitionMax) {
+                    return Timestamps.ceilHH(timestamp);
+                }
+                return 0;
             default:
                 path.put(DEFAULT_PARTITION_NAME);
                 return Long.MAX_VALUE;
@@ -744,14 +774,30 @@ public final class TableUtils {
         return path.concat(columnName).put(FILE_SUFFIX_D).$();
     }
 
+    static LPSZ dzFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(FILE_SUFFIX_D_COMPRESSED).$();
+    }
+
     static LPSZ topFile(Path path, CharSequence columnName) {
         return path.concat(columnName).put(".top").$();
     }
 
+    static LPSZ zmFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(FILE_SUFFIX_ZONE_MAP).$();
+    }
+
+    static LPSZ bfFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(FILE_SUFFIX_BLOOM_FILTER).$();
+    }
+
     static LPSZ iFile(Path path, CharSequence columnName) {
         return path.concat(columnName).put(FILE_SUFFIX_I).$();
     }
 
+    static LPSZ izFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(FILE_SUFFIX_I_COMPRESSED).$();
+    }
+
     static long getColumnFlags(MemoryR metaMem, int columnIndex) {
         return metaMem.getLong(META_OFFSET_COLUMN_TYPES + columnIndex * META_COLUMN_DATA_SIZE + 4);
     }
@@ -764,6 +810,10 @@ public final class TableUtils {
         return (getColumnFlags(metaMem, columnIndex) & META_FLAG_BIT_SEQUENTIAL) != 0;
     }
 
+    static boolean isBloomFiltered(MemoryR metaMem, int columnIndex) {
+        return (getColumnFlags(metaMem, columnIndex) & META_FLAG_BIT_BLOOM_FILTER) != 0;
+    }
+
     static int getIndexBlockCapacity(MemoryR metaMem, int columnIndex) {
         return metaMem.getInt(META_OFFSET_COLUMN_TYPES + columnIndex * META_COLUMN_DATA_SIZE + 4 + 8);
     }
@@ -831,6 +881,8 @@ public final class TableUtils {
                 return Timestamps.floorMM(timestampA) == Timestamps.floorMM(timestampB);
             case PartitionBy.YEAR:
                 return Timestamps.floorYYYY(timestampA) == Timestamps.floorYYYY(timestampB);
+            case PartitionBy.HOUR:
+                return Timestamps.floorHH(timestampA) == Timestamps.floorHH(timestampB);
             default:
                 throw CairoException.instance(0).put("Cannot compare timestamps for unsupported partition type: [").put(partitionBy).put(']');
         }
@@ -844,6 +896,8 @@ public final class TableUtils {
                 return fmtMonth;
             case PartitionBy.YEAR:
                 return fmtYear;
+            case PartitionBy.HOUR:
+                return fmtHour;
             case PartitionBy.NONE:
                 return fmtDefault;
             default:
@@ -851,7 +905,7 @@ public final class TableUtils {
         }
     }
 
-    static Timestamps.TimestampFloorMethod getPartitionFloor(int partitionBy) {
+    public static Timestamps.TimestampFloorMethod getPartitionFloor(int partitionBy) {
         switch (partitionBy) {
             case PartitionBy.DAY:
                 return Timestamps.FLOOR_DD;
@@ -859,12 +913,14 @@ public final class TableUtils {
                 return Timestamps.FLOOR_MM;
             case PartitionBy.YEAR:
                 return Timestamps.FLOOR_YYYY;
+            case PartitionBy.HOUR:
+                return Timestamps.FLOOR_HH;
             default:
                 throw new UnsupportedOperationException("partition by " + partitionBy + " does not have floor method");
         }
     }
 
-    static Timestamps.TimestampCeilMethod getPartitionCeil(int partitionBy) {
+    public static Timestamps.TimestampCeilMethod getPartitionCeil(int partitionBy) {
         switch (partitionBy) {
             case PartitionBy.DAY:
                 return Timestamps.CEIL_DD;
@@ -872,11 +928,39 @@ public final class TableUtils {
                 return Timestamps.CEIL_MM;
             case PartitionBy.YEAR:
                 return Timestamps.CEIL_YYYY;
+            case PartitionBy.HOUR:
+                return Timestamps.CEIL_HH;
             default:
                 throw new UnsupportedOperationException("partition by " + partitionBy + " does not have ceil method");
         }
     }
 
+    /**
+     * Copies files of directory to another directory, which is created when it does not exist.
+     * Sub-directories are not copied.
+     */
+    static void copyDirOrFail(FilesFacade ff, Path from, Path to, int mkDirMode) {
+        final int fromLen = from.length();
+        final int toLen = to.length();
+        final NativeLPSZ fileName = new NativeLPSZ();
+        try {
+            createDirsOrFail(ff, to.slash$(), mkDirMode);
+            ff.iterateDir(from.$(), (pFileName, type) -> {
+                if (type != Files.DT_DIR) {
+                    fileName.of(pFileName);
+                    from.trimTo(fromLen).concat(fileName).$();
+                    to.trimTo(toLen).concat(fileName).$();
+                    if (ff.copy(from, to) < 0) {
+                        throw CairoException.instance(ff.errno()).put("could not copy [from=").put(from).put(", to=").put(to).put(']');
+                    }
+                }
+            });
+        } finally {
+            from.trimTo(fromLen);
+            to.trimTo(toLen);
+        }
+    }
+
     static void createDirsOrFail(FilesFacade ff, Path path, int mkDirMode) {
         if (ff.mkdirs(path, mkDirMode) != 0) {
             throw CairoException.instance(ff.errno()).put("could not create directories [file=").put(path).put(']');
@@ -938,6 +1022,7 @@ public final class TableUtils {
         fmtDay = compiler.compile("yyyy-MM-dd");
         fmtMonth = compiler.compile("yyyy-MM");
         fmtYear = compiler.compile("yyyy");
+        fmtHour = compiler.compile("yyyy-MM-ddTHH");
         fmtDefault = new DateFormat() {
             @Override
             public void format(long datetime, DateLocale locale, CharSequence timeZoneName, CharSink sink) {
@@ -26,6 +26,7 @@ package io.questdb.cairo;
 
 import io.questdb.MessageBus;
 import io.questdb.MessageBusImpl;
+import io.questdb.Metrics;
 import io.questdb.cairo.SymbolMapWriter.TransientSymbolCountChangeHandler;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.vm.Vm;
@@ -34,9 +35,11 @@ import io.questdb.griffin.SqlException;
 import io.questdb.griffin.model.IntervalUtils;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
+import io.questdb.metrics.Histogram;
 import io.questdb.mp.*;
 import io.questdb.std.*;
 import io.questdb.std.datetime.DateFormat;
+import io.questdb.std.datetime.microtime.MicrosecondClock;
 import io.questdb.std.datetime.microtime.Timestamps;
 import io.questdb.std.str.LPSZ;
 import io.questdb.std.str.NativeLPSZ;
@@ -121,7 +124,17 @@ public class TableWriter implements Closeable {
     private final MemoryMARW todoMem = Vm.getMARWInstance();
     private final TxWriter txFile;
     private final FindVisitor removePartitionDirsNotAttached = this::removePartitionDirsNotAttached;
+    private final FindVisitor purgeColdPartitionDir = this::purgeColdPartitionDir;
+    private final FindVisitor purgeHotPartitionDir = this::purgeHotPartitionDir;
+    private final ColdStoragePolicy coldStoragePolicy = new ColdStoragePolicy();
+    private final Path coldPath = new Path();
     private final LongList o3PartitionRemoveCandidates = new LongList();
+    // timestamps of partitions transaction has written to, their zone maps and Bloom filters are updated on commit
+    private final LongList statsPartitions = new LongList();
+    private final long zoneMapBlockSize;
+    // number of rows appended to active partition after which its column stats are refreshed
+    private final long columnStatsRefreshRowCount;
+    private final BloomFilterWriter bloomFilterWriter;
     private final ObjectPool<O3MutableAtomicInteger> o3ColumnCounters = new ObjectPool<O3MutableAtomicInteger>(O3MutableAtomicInteger::new, 64);
     private final ObjectPool<O3Basket> o3BasketPool = new ObjectPool<O3Basket>(O3Basket::new, 64);
     private final TxnScoreboard txnScoreboard;
@@ -161,7 +174,13 @@ public class TableWriter implements Closeable {
     private long o3RowCount;
     private final O3ColumnUpdateMethod o3MoveUncommittedRef = this::o3MoveUncommitted0;
     private long lastPartitionTimestamp;
+    // active partition row count column stats were last computed for
+    private long columnStatsRowCount;
     private boolean o3InError = false;
+    private final TableWriterMetrics metrics;
+    private final Histogram commitLatency;
+    private final Histogram o3CommitLatency;
+    private final MicrosecondClock clock;
 
     public TableWriter(CairoConfiguration configuration, CharSequence tableName) {
         this(configuration, tableName, new MessageBusImpl(configuration));
@@ -188,9 +207,23 @@ public class TableWriter implements Closeable {
             boolean lock,
             LifecycleManager lifecycleManager,
             CharSequence root
+    ) {
+        this(configuration, tableName, messageBus, lock, lifecycleManager, root, Metrics.disabled().tableWriter());
+    }
+
+    public TableWriter(
+            CairoConfiguration configuration,
+            CharSequence tableName,
+            @NotNull MessageBus messageBus,
+            boolean lock,
+            LifecycleManager lifecycleManager,
+            CharSequence root,
+            TableWriterMetrics metrics
     ) {
         LOG.info().$("open '").utf8(tableName).$('\'').$();
         this.configuration = configuration;
+        this.metrics = metrics;
+        this.clock = configuration.getMicrosecondClock();
         this.messageBus = messageBus;
         this.defaultCommitMode = configuration.getCommitMode();
         this.lifecycleManager = lifecycleManager;
@@ -199,7 +232,12 @@ public class TableWriter implements Closeable {
         this.mkDirMode = configuration.getMkDirMode();
         this.fileOperationRetryCount = configuration.getFileOperationRetryCount();
         this.tableName = Chars.toString(tableName);
+        this.commitLatency = metrics.commitLatency(this.tableName);
+        this.o3CommitLatency = metrics.o3CommitLatency(this.tableName);
         this.o3QuickSortEnabled = configuration.isO3QuickSortEnabled();
+        this.zoneMapBlockSize = configuration.isZoneMapEnabled() ? configuration.getZoneMapBlockSize() : 0;
+        this.columnStatsRefreshRowCount = configuration.getColumnStatsRefreshRowCount();
+        this.bloomFilterWriter = new BloomFilterWriter(ff, configuration.getBloomFilterFalsePositiveRate());
         this.o3PartitionUpdateQueue = new RingQueue<O3PartitionUpdateTask>(O3PartitionUpdateTask.CONSTRUCTOR, configuration.getO3PartitionUpdateQueueCapacity());
         this.o3PartitionUpdatePubSeq = new MPSequence(this.o3PartitionUpdateQueue.getCapacity());
         this.o3PartitionUpdateSubSeq = new SCSequence();
@@ -311,6 +349,8 @@ public class TableWriter implements Closeable {
                 return fmtMonth;
             case PartitionBy.YEAR:
                 return fmtYear;
+            case PartitionBy.HOUR:
+                return fmtHour;
             default:
                 return null;
         }
@@ -374,7 +414,7 @@ public class TableWriter implements Closeable {
 
         commit();
 
-        removeColumnFiles(name, type, REMOVE_OR_EXCEPTION);
+        removeColumnFiles(name, type, 0, REMOVE_OR_EXCEPTION);
 
         // create new _meta.swp
         this.metaSwapIndex = addColumnToMeta(name, type, isIndexed, indexValueBlockCapacity, isSequential);
@@ -460,6 +500,11 @@ public class TableWriter implements Closeable {
             throw CairoException.instance(0).put("already indexed [column=").put(columnName).put(']');
         }
 
+        // partitions in cold storage are read-only
+        if (hasColdPartitions()) {
+            throw CairoException.instance(0).put("cannot add index, table has partitions in cold storage [column=").put(columnName).put(']');
+        }
+
         final int existingType = getColumnType(metaMem, columnIndex);
         LOG.info().$("adding index to '").utf8(columnName).$('[').$(ColumnType.nameOf(existingType)).$(", path=").$(path).$(']').$();
 
@@ -547,6 +592,76 @@ public class TableWriter implements Closeable {
         LOG.info().$("ADDED index to '").utf8(columnName).$('[').$(ColumnType.nameOf(existingType)).$("]' to ").$(path).$();
     }
 
+    /**
+     * Flags SYMBOL or STRING column to have Bloom filter in every partition and builds filters
+     * for partitions that already exist. Filters are then maintained on commit.
+     */
+    public void addBloomFilter(CharSequence columnName) {
+        checkDistressed();
+
+        final int columnIndex = getColumnIndexQuiet(metaMem, columnName, columnCount);
+
+        if (columnIndex == -1) {
+            throw CairoException.instance(0).put("Invalid column name: ").put(columnName);
+        }
+
+        commit();
+
+        if (isBloomFiltered(metaMem, columnIndex)) {
+            throw CairoException.instance(0).put("already has bloom filter [column=").put(columnName).put(']');
+        }
+
+        final int existingType = getColumnType(metaMem, columnIndex);
+        if (!BloomFilterWriter.isSupported(existingType)) {
+            throw CairoException.instance(0).put("cannot create bloom filter for [column='").put(columnName).put(", type=").put(ColumnType.nameOf(existingType)).put(", path=").put(path).put(']');
+        }
+
+        LOG.info().$("adding bloom filter to '").utf8(columnName).$('[').$(ColumnType.nameOf(existingType)).$(", path=").$(path).$(']').$();
+
+        metaSwapIndex = copyMetadataAndSetBloomFilter(columnIndex);
+
+        // close _meta so we can rename it
+        metaMem.close();
+
+        // validate new meta
+        validateSwapMeta(columnName);
+
+        // rename _meta to _meta.prev
+        renameMetaToMetaPrev(columnName);
+
+        // after we moved _meta to _meta.prev
+        // we have to have _todo to restore _meta should anything go wrong
+        writeRestoreMetaTodo(columnName);
+
+        // rename _meta.swp to -_meta
+        renameSwapMetaToMeta(columnName);
+
+        try {
+            // open _meta file
+            openMetaFile(ff, path, rootLen, metaMem);
+
+            // remove _todo
+            clearTodoLog();
+
+        } catch (CairoException err) {
+            throwDistressException(err);
+        }
+
+        txFile.bumpStructureVersion(this.denseSymbolMapWriters);
+
+        // build filters for the partitions written so far
+        if (partitionBy != PartitionBy.NONE) {
+            for (int i = 0, n = txFile.getPartitionCount(); i < n; i++) {
+                statsPartitions.add(txFile.getPartitionTimestamp(i));
+            }
+        } else {
+            statsPartitions.add(Long.MIN_VALUE);
+        }
+        updateColumnStats();
+
+        LOG.info().$("ADDED bloom filter to '").utf8(columnName).$('[').$(ColumnType.nameOf(existingType)).$("]' to ").$(path).$();
+    }
+
     public int attachPartition(long timestamp) {
         // Partitioned table must have a timestamp
         // SQL compiler will check that table is partitioned
@@ -688,6 +803,108 @@ public class TableWriter implements Closeable {
         commit(defaultCommitMode, lagMicros);
     }
 
+    /**
+     * Re-encodes column files of inactive partition using codecs chosen by column type, see {@link ColumnCodec}.
+     * Compressed copy of the partition is written to new directory, which replaces the old one with
+     * the next transaction, in the same way as partitions rewritten by out-of-order commit. Readers
+     * decode column data when they open the partition.
+     *
+     * @param timestamp any timestamp within the partition
+     * @return true when partition has been compressed, false when partition does not exist or is active
+     */
+    public boolean compressPartition(long timestamp) {
+        if (partitionBy == PartitionBy.NONE) {
+            return false;
+        }
+
+        // partition transaction must not pick up pending rows
+        commit();
+
+        timestamp = getPartitionLo(timestamp);
+        final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(timestamp);
+        if (partitionIndex < 0) {
+            LOG.error().$("partition does not exist [path=").$(path).$(", ts=").$ts(timestamp).$(']').$();
+            return false;
+        }
+
+        if (timestamp == getPartitionLo(txFile.getMaxTimestamp())) {
+            LOG.error()
+                    .$("cannot compress active partition [path=").$(path)
+                    .$(", maxTimestamp=").$ts(txFile.getMaxTimestamp())
+                    .$(']').$();
+            return false;
+        }
+
+        if (txFile.isPartitionColdByIndex(partitionIndex)) {
+            LOG.error().$("cannot compress partition in cold storage [path=").$(path).$(", ts=").$ts(timestamp).$(']').$();
+            return false;
+        }
+
+        final long srcNameTxn = txFile.getPartitionNameTxnByIndex(partitionIndex);
+        final long partitionSize = getPartitionSizeByIndex(partitionIndex);
+        try {
+            setPathForPartition(path, partitionBy, timestamp, false);
+            TableUtils.txnPartitionConditionally(path, srcNameTxn);
+            final int plen = path.length();
+
+            setPathForPartition(other, partitionBy, timestamp, false);
+            TableUtils.txnPartitionConditionally(other, txFile.getTxn());
+            final int olen = other.length();
+
+            // directory can be left behind by failed attempt
+            if (ff.exists(other.slash$())) {
+                ff.rmdir(other);
+            }
+            createDirsOrFail(ff, other, mkDirMode);
+
+            try {
+                for (int i = 0; i < columnCount; i++) {
+                    compressColumn(i, plen, olen, partitionSize);
+                }
+            } catch (Throwable e) {
+                ff.rmdir(other.trimTo(olen).slash$());
+                throw e;
+            }
+        } finally {
+            path.trimTo(rootLen);
+            other.trimTo(rootLen);
+        }
+
+        txFile.updatePartitionSizeByIndexAndTxn(partitionIndex, partitionSize);
+        txFile.bumpPartitionTableVersion();
+        txFile.commit(defaultCommitMode, denseSymbolMapWriters);
+
+        LOG.info()
+                .$("compressed partition [table=`").utf8(tableName)
+                .$("`, ts=").$ts(timestamp)
+                .$(", txn=").$(txFile.getTxn())
+                .$(']').$();
+
+        o3PartitionRemoveCandidates.add(timestamp);
+        o3PartitionRemoveCandidates.add(srcNameTxn);
+        o3ProcessPartitionRemoveCandidates();
+        return true;
+    }
+
+    public void compressPartition(Function function, int posForError) throws SqlException {
+        if (partitionBy == PartitionBy.NONE) {
+            throw SqlException.$(posForError, "table is not partitioned");
+        }
+
+        if (txFile.getPartitionCount() == 0) {
+            throw SqlException.$(posForError, "table is empty");
+        }
+
+        // active partition is skipped, it cannot be compressed
+        for (int i = 0, n = txFile.getPartitionCount() - 1; i < n; i++) {
+            long partitionTimestamp = txFile.getPartitionTimestamp(i);
+            dropPartitionFunctionRec.setTimestamp(partitionTimestamp);
+            if (function.getBool(dropPartitionFunctionRec)) {
+                compressPartition(partitionTimestamp);
+            }
+        }
+    }
+
     public int getColumnIndex(CharSequence name) {
         int index = metadata.getColumnIndexQuiet(name);
         if (index > -1) {
@@ -724,6 +941,10 @@ public class TableWriter implements Closeable {
         return txFile.getPartitionCount();
     }
 
+    public long getPartitionTimestamp(int partitionIndex) {
+        return txFile.getPartitionTimestamp(partitionIndex);
+    }
+
     public long getStructureVersion() {
         return txFile.getStructureVersion();
     }
@@ -744,6 +965,15 @@ public class TableWriter implements Closeable {
         return txnScoreboard;
     }
 
+    public boolean hasColdPartitions() {
+        for (int i = 0, n = txFile.getPartitionCount(); i < n; i++) {
+            if (txFile.isPartitionCold(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean inTransaction() {
         return txFile != null && (txFile.inTransaction() || hasO3());
     }
@@ -752,6 +982,57 @@ public class TableWriter implements Closeable {
         return tempMem16b != 0;
     }
 
+    /**
+     * Switches partition to its copy in cold storage. Copy is taken by {@link ColdStorageJob} without
+     * holding the writer, it is renamed to the partition directory name of this transaction. Partition
+     * directory in hot storage is purged once readers stop using it.
+     *
+     * @param timestamp        partition timestamp
+     * @param nameTxn          name txn of the partition the copy was taken from
+     * @param dataTxn          data txn of the partition the copy was taken from
+     * @param structureVersion table structure version at the time copy was taken
+     * @param copy             directory in cold storage with the copy of partition files
+     * @return false when partition has changed after copy was taken, copy cannot be used then
+     */
+    public boolean moveToColdStorage(long timestamp, long nameTxn, long dataTxn, long structureVersion, Path copy) {
+        if (partitionBy == PartitionBy.NONE) {
+            return false;
+        }
+
+        commit();
+
+        final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(timestamp);
+        if (partitionIndex < 0
+                || timestamp == getPartitionLo(txFile.getMaxTimestamp())
+                || txFile.isPartitionColdByIndex(partitionIndex)
+                || txFile.getPartitionNameTxnByIndex(partitionIndex) != nameTxn
+                || txFile.getPartitionDataTxnByIndex(partitionIndex) != dataTxn
+                || txFile.getStructureVersion() != structureVersion) {
+            LOG.info().$("partition changed, move to cold storage cancelled [table=`").utf8(tableName)
+                    .$("`, ts=").$ts(timestamp)
+                    .$(']').$();
+            return false;
+        }
+
+        renameOrFail(ff, copy, setColdPathForPartition(timestamp, txFile.getTxn()).$());
+        txFile.updatePartitionSizeByIndexAndTxn(partitionIndex, getPartitionSizeByIndex(partitionIndex));
+        txFile.setPartitionColdByIndex(partitionIndex, true);
+        txFile.bumpPartitionTableVersion();
+        txFile.commit(defaultCommitMode, denseSymbolMapWriters);
+
+        LOG.info()
+                .$("moved partition to cold storage [table=`").utf8(tableName)
+                .$("`, ts=").$ts(timestamp)
+                .$(", path=").$(coldPath)
+                .$(", txn=").$(txFile.getTxn())
+                .$(']').$();
+
+        o3PartitionRemoveCandidates.add(timestamp);
+        o3PartitionRemoveCandidates.add(nameTxn);
+        o3ProcessPartitionRemoveCandidates();
+        return true;
+    }
+
     public TableBlockWriter newBlock() {
         bumpMasterRef();
         txFile.newBlock();
@@ -786,6 +1067,9 @@ public class TableWriter implements Closeable {
                 case PartitionBy.MONTH:
                     ee.put("'YYYY-MM'");
                     break;
+                case PartitionBy.HOUR:
+                    ee.put("'YYYY-MM-DDTHH'");
+                    break;
                 default:
                     ee.put("'YYYY'");
                     break;
@@ -835,6 +1119,7 @@ public class TableWriter implements Closeable {
         removeColumn(index);
 
         // remove symbol map writer or entry for such
+        final int symbolIndexVersion = getSymbolIndexVersion(index);
         removeSymbolMapWriter(index);
 
         // decrement column count
@@ -855,7 +1140,7 @@ public class TableWriter implements Closeable {
             clearTodoLog();
 
             // remove column files has to be done after _todo is removed
-            removeColumnFiles(name, type, REMOVE_OR_LOG);
+            removeColumnFiles(name, type, symbolIndexVersion, REMOVE_OR_LOG);
         } catch (CairoException err) {
             throwDistressException(err);
         }
@@ -910,6 +1195,9 @@ public class TableWriter implements Closeable {
 
             // find out if we are removing min partition
             setStateForTimestamp(path, timestamp, false);
+            final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(timestamp);
+            final boolean cold = txFile.isPartitionColdByIndex(partitionIndex);
+            final long partitionNameTxn = txFile.getPartitionNameTxnByIndex(partitionIndex);
             long nextMinTimestamp = minTimestamp;
             if (timestamp == txFile.getPartitionTimestamp(0)) {
                 nextMinTimestamp = readMinTimestamp(txFile.getPartitionTimestamp(1));
@@ -920,7 +1208,9 @@ public class TableWriter implements Closeable {
             txFile.finishPartitionSizeUpdate(nextMinTimestamp, txFile.getMaxTimestamp());
             txFile.commit(defaultCommitMode, denseSymbolMapWriters);
 
-            if (ff.exists(path.$())) {
+            if (cold) {
+                removeDirOrLog(setColdPathForPartition(timestamp, partitionNameTxn).slash$());
+            } else if (ff.exists(path.$())) {
                 int errno;
                 if ((errno = ff.rmdir(path.chop$().slash$())) != 0) {
                     LOG.info().$("partition directory delete is postponed [path=").$(path)
@@ -938,6 +1228,69 @@ public class TableWriter implements Closeable {
         }
     }
 
+    /**
+     * Removes active partition of the table, the partition before it becomes active and
+     * subsequent rows are appended to it. Table that has only one partition is truncated.
+     * Pending rows are committed before partition is removed.
+     *
+     * @return false when table is not partitioned or has no data
+     */
+    public boolean removeLastPartition() {
+        if (partitionBy == PartitionBy.NONE) {
+            return false;
+        }
+
+        commit();
+
+        final int partitionCount = txFile.getPartitionCount();
+        if (partitionCount == 0 || txFile.getMaxTimestamp() == Long.MIN_VALUE) {
+            return false;
+        }
+
+        if (partitionCount == 1) {
+            truncate();
+            return true;
+        }
+
+        final long timestamp = getPartitionLo(txFile.getMaxTimestamp());
+        final long prevTimestamp = txFile.getPartitionTimestamp(partitionCount - 2);
+        // previous partition is going to be appended to, its files must not be compressed or in cold storage
+        restoreColdPartitionConditionally((partitionCount - 2) * LONGS_PER_TX_ATTACHED_PARTITION, prevTimestamp);
+        decompressPartitionConditionally(prevTimestamp, txFile.getPartitionNameTxn(partitionCount - 2));
+        final long nextMaxTimestamp = readMaxTimestamp(prevTimestamp, txFile.getPartitionSize(partitionCount - 2));
+
+        freeColumns(false);
+        if (indexers != null) {
+            for (int i = 0, n = indexers.size(); i < n; i++) {
+                Misc.free(indexers.getQuick(i));
+            }
+        }
+
+        try {
+            setStateForTimestamp(path, timestamp, false);
+            txFile.beginPartitionSizeUpdate();
+            txFile.removeAttachedPartitions(timestamp);
+            txFile.finishPartitionSizeUpdate(txFile.getMinTimestamp(), nextMaxTimestamp);
+            txFile.commit(defaultCommitMode, denseSymbolMapWriters);
+
+            if (ff.exists(path.$())) {
+                int errno;
+                if ((errno = ff.rmdir(path.chop$().slash$())) != 0) {
+                    LOG.info().$("partition directory delete is postponed [path=").$(path)
+                            .$(", errno=").$(errno)
+                            .$(']').$();
+                } else {
+                    LOG.info().$("last partition removed [path=").$(path).$(']').$();
+                }
+            }
+        } finally {
+            path.trimTo(rootLen);
+        }
+
+        configureAppendPosition();
+        return true;
+    }
+
     public void removePartition(Function function, int posForError) throws SqlException {
         if (partitionBy == PartitionBy.NONE) {
             throw SqlException.$(posForError, "table is not partitioned");
@@ -992,7 +1345,7 @@ public class TableWriter implements Closeable {
             clearTodoLog();
 
             // rename column files has to be done after _todo is removed
-            renameColumnFiles(currentName, newName, type);
+            renameColumnFiles(index, currentName, newName, type);
         } catch (CairoException err) {
             throwDistressException(err);
         }
@@ -1008,6 +1361,27 @@ public class TableWriter implements Closeable {
         LOG.info().$("RENAMED column '").utf8(currentName).$("' to '").utf8(newName).$("' from ").$(path).$();
     }
 
+    /**
+     * Removes partition directories left behind by moves to and from cold storage: versions of
+     * partitions in hot storage that are in cold storage and cold copies that are no longer part of the table.
+     * Directories are removed only when no reader uses older transaction of the table.
+     */
+    public void purgeColdStorage() {
+        if (!readColdStoragePolicy() || !txnScoreboard.isTxnAvailable(txFile.getTxn() - 1)) {
+            return;
+        }
+
+        try {
+            ff.iterateDir(path.$(), purgeHotPartitionDir);
+        } finally {
+            path.trimTo(rootLen);
+        }
+
+        if (ff.exists(coldStoragePolicy.tablePath(coldPath, tableName).$())) {
+            ff.iterateDir(coldPath, purgeColdPartitionDir);
+        }
+    }
+
     public void rollback() {
         checkDistressed();
         if (o3InError || inTransaction()) {
@@ -1018,6 +1392,7 @@ public class TableWriter implements Closeable {
                 }
                 freeColumns(false);
                 this.txFile.readUnchecked();
+                statsPartitions.clear();
                 rollbackIndexes();
                 rollbackSymbolTables();
                 purgeUnusedPartitions();
@@ -1031,6 +1406,40 @@ public class TableWriter implements Closeable {
         }
     }
 
+    /**
+     * Sets tiered storage policy of the table. Partitions that are older than given age relative to
+     * max timestamp of the table are moved to cold storage by {@link ColdStorageJob}.
+     *
+     * @param root  directory on the secondary volume, tables are stored in its subdirectories
+     * @param after age of partition in microseconds
+     */
+    public void setColdStorage(CharSequence root, long after) {
+        if (partitionBy == PartitionBy.NONE) {
+            throw CairoException.instance(0).put("cold storage requires partitioned table");
+        }
+        if (after < 0) {
+            throw CairoException.instance(0).put("cold storage age must be non negative");
+        }
+        if (Chars.equals(root, configuration.getRoot())) {
+            throw CairoException.instance(0).put("cold storage cannot be in database root");
+        }
+        if (!ff.exists(coldPath.of(root).slash$())) {
+            throw CairoException.instance(0).put("cold storage directory does not exist [path=").put(root).put(']');
+        }
+        // root cannot be changed, cold partitions would not be found
+        if (readColdStoragePolicy() && !Chars.equals(coldStoragePolicy.getRoot(), root) && hasColdPartitions()) {
+            throw CairoException.instance(0).put("table has partitions in cold storage [root=").put(coldStoragePolicy.getRoot()).put(']');
+        }
+
+        try {
+            ColdStoragePolicy.write(ff, path.trimTo(rootLen), other, root, after);
+        } finally {
+            path.trimTo(rootLen);
+            other.trimTo(rootLen);
+        }
+        LOG.info().$("cold storage set [table=`").utf8(tableName).$("`, root=").utf8(root).$(", after=").$(after).$(']').$();
+    }
+
     public void setLifecycleManager(LifecycleManager lifecycleManager) {
         this.lifecycleManager = lifecycleManager;
     }
@@ -1110,6 +1519,11 @@ public class TableWriter implements Closeable {
             return;
         }
 
+        if (partitionBy == PartitionBy.NONE) {
+            // column files are truncated in place, zone maps and Bloom filters must not survive them
+            removeColumnStats();
+        }
+
         // this is a crude block to test things for now
         todoMem.putLong(0, ++todoTxn); // write txn, reader will first read txn at offset 24 and then at offset 0
         Unsafe.getUnsafe().storeFence(); // make sure we do not write hash before writing txn (view from another thread)
@@ -1138,6 +1552,9 @@ public class TableWriter implements Closeable {
                 }
             }
             removePartitionDirectories();
+            if (hasColdPartitions() && readColdStoragePolicy()) {
+                removeDirOrLog(coldStoragePolicy.tablePath(coldPath, tableName).slash$());
+            }
             rowFunction = openPartitionFunction;
         }
 
@@ -1181,6 +1598,19 @@ public class TableWriter implements Closeable {
         metadata.setTableVersion();
     }
 
+    /**
+     * Appends block of symbol chars, laid out the same way as in symbol map ".c" file, to the
+     * symbol map of the column. Appended symbols are added to the map once rows that refer to
+     * them are committed via {@link TableBlockWriter}, until then next block overwrites them.
+     */
+    public void appendSymbolCharsBlock(int columnIndex, long blockSize, long sourceAddress) {
+        getSymbolMapWriter(columnIndex).appendSymbolCharsBlock(blockSize, sourceAddress);
+    }
+
+    public int getSymbolCount(int columnIndex) {
+        return getSymbolMapWriter(columnIndex).getSymbolCount();
+    }
+
     public void updateSymbols(int columnIndex, SymbolMapReader symReader) {
         int nSourceSymbols = symReader.size();
         SymbolMapWriter symWriter = getSymbolMapWriter(columnIndex);
@@ -1388,6 +1818,15 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private static long getVarColumnSize(MemoryR mem, int type, long lastOffset) {
+        if (ColumnType.isString(type)) {
+            final int len = mem.getInt(lastOffset);
+            return lastOffset + (len > 0 ? Vm.getStorageLength(len) : Integer.BYTES);
+        }
+        final long len = mem.getLong(lastOffset);
+        return lastOffset + Long.BYTES + Math.max(len, 0);
+    }
+
     private static void openMetaFile(FilesFacade ff, Path path, int rootLen, MemoryMR metaMem) {
         path.concat(META_FILE_NAME).$();
         try {
@@ -1710,9 +2149,15 @@ public class TableWriter implements Closeable {
         }
 
         if (inTransaction()) {
+            final long commitStart = clock.getTicks();
+            final long committedRowCount = txFile.getCommittedFixedRowCount() + txFile.getCommittedTransientRowCount();
 
-            if (hasO3() && o3Commit(commitLag)) {
-                return;
+            if (hasO3()) {
+                final boolean lagOnly = o3Commit(commitLag);
+                o3CommitLatency.record(clock.getTicks() - commitStart);
+                if (lagOnly) {
+                    return;
+                }
             }
 
             if (commitMode != CommitMode.NOSYNC) {
@@ -1721,7 +2166,10 @@ public class TableWriter implements Closeable {
 
             updateIndexes();
             txFile.commit(commitMode, this.denseSymbolMapWriters);
+            updateColumnStats();
             o3ProcessPartitionRemoveCandidates();
+            commitLatency.record(clock.getTicks() - commitStart);
+            metrics.addCommittedRows(Math.max(0, txFile.getCommittedFixedRowCount() + txFile.getCommittedTransientRowCount() - committedRowCount));
         }
     }
 
@@ -1740,6 +2188,65 @@ public class TableWriter implements Closeable {
         setAppendPosition(txFile.getTransientRowCount(), true);
     }
 
+    private void compressColumn(int columnIndex, int plen, int olen, long partitionSize) {
+        final CharSequence name = metadata.getColumnName(columnIndex);
+        final int type = metadata.getColumnType(columnIndex);
+
+        copyFileIfExists(topFile(path.trimTo(plen), name), topFile(other.trimTo(olen), name));
+        copyFileIfExists(zmFile(path.trimTo(plen), name), zmFile(other.trimTo(olen), name));
+        copyFileIfExists(bfFile(path.trimTo(plen), name), bfFile(other.trimTo(olen), name));
+        copyFileIfExists(BitmapIndexUtils.keyFileName(path.trimTo(plen), name), BitmapIndexUtils.keyFileName(other.trimTo(olen), name));
+        copyFileIfExists(BitmapIndexUtils.valueFileName(path.trimTo(plen), name), BitmapIndexUtils.valueFileName(other.trimTo(olen), name));
+
+        final long rowCount = partitionSize - readColumnTop(ff, path.trimTo(plen), name, plen, tempMem16b);
+        final boolean varLength = ColumnType.isVariableLength(type);
+
+        if (varLength) {
+            if (ff.exists(iFile(path.trimTo(plen), name))) {
+                try (MemoryMR mem = Vm.getMRInstance(ff, path, Long.MAX_VALUE)) {
+                    compressColumnFile(mem, rowCount * Long.BYTES, ColumnCodec.getIndexCodec(), plen, olen, name, FILE_SUFFIX_I, false);
+                }
+            } else {
+                copyFileIfExists(izFile(path.trimTo(plen), name), izFile(other.trimTo(olen), name));
+            }
+        }
+
+        if (ff.exists(dFile(path.trimTo(plen), name))) {
+            try (MemoryMR mem = Vm.getMRInstance(ff, path, Long.MAX_VALUE)) {
+                long size = rowCount << ColumnType.pow2SizeOf(type);
+                if (varLength) {
+                    size = rowCount > 0 ? getVarColumnSize(mem, type, readLastOffset(plen, name, rowCount)) : 0;
+                }
+                compressColumnFile(mem, size, ColumnCodec.getDataCodec(type), plen, olen, name, FILE_SUFFIX_D, columnIndex == metadata.getTimestampIndex());
+            }
+        } else {
+            copyFileIfExists(dzFile(path.trimTo(plen), name), dzFile(other.trimTo(olen), name));
+        }
+    }
+
+    private void compressColumnFile(
+            MemoryMR mem,
+            long size,
+            int codec,
+            int plen,
+            int olen,
+            CharSequence name,
+            String suffix,
+            boolean force
+    ) {
+        if (size > mem.size()) {
+            throw CairoException.instance(0).put("column file is too short [file=").put(path.trimTo(plen).concat(name).put(suffix))
+                    .put(", expectedSize=").put(size)
+                    .put(", size=").put(mem.size())
+                    .put(']');
+        }
+        final LPSZ compressed = other.trimTo(olen).concat(name).put(suffix).put('z').$();
+        if (!ColumnCodec.compress(ff, mem.addressOf(0), size, codec, compressed, force)) {
+            // keep file which does not benefit from compression as is
+            copyFileIfExists(path.trimTo(plen).concat(name).put(suffix).$(), other.trimTo(olen).concat(name).put(suffix).$());
+        }
+    }
+
     private void configureAppendPosition() {
         if (this.txFile.getMaxTimestamp() > Long.MIN_VALUE || partitionBy == PartitionBy.NONE) {
             openFirstPartition(this.txFile.getMaxTimestamp());
@@ -1892,6 +2399,12 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void copyFileIfExists(LPSZ from, LPSZ to) {
+        if (ff.exists(from) && ff.copy(from, to) < 0) {
+            throw CairoException.instance(ff.errno()).put("could not copy [from=").put(from).put(", to=").put(to).put(']');
+        }
+    }
+
     private int copyMetadataAndSetIndexed(int columnIndex, int indexValueBlockSize) {
         try {
             int index = openMetaSwapFile(ff, ddlMem, path, rootLen, configuration.getMaxSwapFileCount());
@@ -1910,6 +2423,9 @@ public class TableWriter implements Closeable {
                     if (isSequential(metaMem, i)) {
                         flags |= META_FLAG_BIT_SEQUENTIAL;
                     }
+                    if (isBloomFiltered(metaMem, i)) {
+                        flags |= META_FLAG_BIT_BLOOM_FILTER;
+                    }
                     ddlMem.putLong(flags);
                     ddlMem.putInt(indexValueBlockSize);
                 }
@@ -1927,6 +2443,37 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private int copyMetadataAndSetBloomFilter(int columnIndex) {
+        try {
+            int index = openMetaSwapFile(ff, ddlMem, path, rootLen, configuration.getMaxSwapFileCount());
+            int columnCount = metaMem.getInt(META_OFFSET_COUNT);
+            ddlMem.putInt(columnCount);
+            ddlMem.putInt(metaMem.getInt(META_OFFSET_PARTITION_BY));
+            ddlMem.putInt(metaMem.getInt(META_OFFSET_TIMESTAMP_INDEX));
+            copyVersionAndLagValues();
+            ddlMem.jumpTo(META_OFFSET_COLUMN_TYPES);
+            for (int i = 0; i < columnCount; i++) {
+                if (i != columnIndex) {
+                    writeColumnEntry(i);
+                } else {
+                    ddlMem.putInt(getColumnType(metaMem, i));
+                    ddlMem.putLong(getColumnFlags(metaMem, i) | META_FLAG_BIT_BLOOM_FILTER);
+                    ddlMem.putInt(getIndexBlockCapacity(metaMem, i));
+                }
+            }
+
+            long nameOffset = getColumnNameOffset(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                CharSequence columnName = metaMem.getStr(nameOffset);
+                ddlMem.putStr(columnName);
+                nameOffset += Vm.getStorageLength(columnName);
+            }
+            return index;
+        } finally {
+            ddlMem.close();
+        }
+    }
+
     private long copyMetadataAndUpdateVersion() {
         try {
             int index = openMetaSwapFile(ff, ddlMem, path, rootLen, configuration.getMaxSwapFileCount());
@@ -2016,6 +2563,89 @@ public class TableWriter implements Closeable {
         symbolMapWriters.extendAndSet(columnCount, w);
     }
 
+    private void decompressColumnFile(Path partitionPath, CharSequence columnName, String suffix) {
+        final int plen = partitionPath.length();
+        try {
+            if (!ff.exists(partitionPath.concat(columnName).put(suffix).$())
+                    && ff.exists(partitionPath.trimTo(plen).concat(columnName).put(suffix).put('z').$())) {
+                final Path tmp = Path.getThreadLocal2(partitionPath.trimTo(plen)).concat(columnName).put(suffix).put(".tmp").$();
+                ColumnCodec.decompress(ff, partitionPath.trimTo(plen).concat(columnName).put(suffix).put('z').$(), tmp);
+                renameOrFail(ff, tmp, partitionPath.trimTo(plen).concat(columnName).put(suffix).$());
+                LOG.info().$("decompressed [path=").$(partitionPath).$(']').$();
+            }
+        } finally {
+            partitionPath.trimTo(plen);
+        }
+    }
+
+    /**
+     * Decodes compressed files of the column in the given partition directory, so that
+     * the column can be modified in place. Compressed files are kept for readers, which
+     * may have looked them up already; they will switch to raw files when the column grows.
+     */
+    private void decompressColumnFiles(Path partitionPath, CharSequence columnName) {
+        decompressColumnFile(partitionPath, columnName, FILE_SUFFIX_D);
+        decompressColumnFile(partitionPath, columnName, FILE_SUFFIX_I);
+    }
+
+    /**
+     * Out-of-order commit modifies column files of existing partition directly, which requires
+     * the files to be decompressed. Designated timestamp column of compressed partition is always
+     * compressed, so partition which has raw timestamp file does not need decompression.
+     */
+    private void decompressPartitionConditionally(long partitionTimestamp, long partitionNameTxn) {
+        setPathForPartition(other, partitionBy, partitionTimestamp, false);
+        TableUtils.txnPartitionConditionally(other, partitionNameTxn);
+        final int plen = other.length();
+        try {
+            if (!ff.exists(dFile(other, metadata.getColumnName(metadata.getTimestampIndex())))) {
+                for (int i = 0; i < columnCount; i++) {
+                    decompressColumnFiles(other.trimTo(plen), metadata.getColumnName(i));
+                }
+            }
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
+    /**
+     * Partition in cold storage is read-only, it is copied back to hot storage before it is modified.
+     * Copy keeps name txn of the partition, readers reopen partition because its data txn changes.
+     * Cold copy is purged by {@link #purgeColdStorage()} once readers stop using it.
+     */
+    private void restoreColdPartitionConditionally(int partitionIndex, long partitionTimestamp) {
+        if (!txFile.isPartitionColdByIndex(partitionIndex)) {
+            return;
+        }
+        final long partitionNameTxn = txFile.getPartitionNameTxnByIndex(partitionIndex);
+        try {
+            setColdPathForPartition(partitionTimestamp, partitionNameTxn);
+            setPathForPartition(other, partitionBy, partitionTimestamp, false);
+            TableUtils.txnPartitionConditionally(other, partitionNameTxn);
+            final int olen = other.length();
+            // directory can be left behind by failed attempt
+            if (ff.exists(other.slash$())) {
+                ff.rmdir(other);
+            }
+            try {
+                copyDirOrFail(ff, coldPath, other.trimTo(olen), mkDirMode);
+            } catch (Throwable e) {
+                ff.rmdir(other.trimTo(olen).slash$());
+                throw e;
+            }
+        } finally {
+            other.trimTo(rootLen);
+        }
+        txFile.setPartitionColdByIndex(partitionIndex, false);
+        txFile.bumpPartitionTableVersion();
+
+        LOG.info()
+                .$("restored partition from cold storage [table=`").utf8(tableName)
+                .$("`, ts=").$ts(partitionTimestamp)
+                .$(", path=").$(coldPath)
+                .$(']').$();
+    }
+
     private void doClose(boolean truncate) {
         consumeO3PartitionRemoveTasks();
         boolean tx = inTransaction();
@@ -2028,6 +2658,8 @@ public class TableWriter implements Closeable {
         Misc.free(ddlMem);
         Misc.free(indexMem);
         Misc.free(other);
+        Misc.free(coldPath);
+        Misc.free(bloomFilterWriter);
         Misc.free(todoMem);
         try {
             releaseLock(!truncate | tx | performRecovery | distressed);
@@ -2164,6 +2796,13 @@ public class TableWriter implements Closeable {
         return txFile.getPartitionSizeByIndex(index);
     }
 
+    long getPartitionRowCount(long timestamp) {
+        if (txFile.getAppendedPartitionCount() == 0 || timestamp > partitionTimestampHi) {
+            return 0;
+        }
+        return txFile.getTransientRowCount();
+    }
+
     long getPrimaryAppendOffset(long timestamp, int columnIndex) {
         if (txFile.getAppendedPartitionCount() == 0) {
             openFirstPartition(timestamp);
@@ -2218,11 +2857,12 @@ public class TableWriter implements Closeable {
                     path.trimTo(rootLen);
 
                     setStateForTimestamp(path, timestamp, true);
-
                     if (txFile.attachedPartitionsContains(timestamp) && ff.exists(path.$())) {
 
                         final int plen = path.length();
 
+                        // index is built from raw column file
+                        decompressColumnFiles(path.trimTo(plen), columnName);
                         TableUtils.dFile(path.trimTo(plen), columnName);
 
                         if (ff.exists(path)) {
@@ -2569,6 +3209,10 @@ public class TableWriter implements Closeable {
                                 srcDataSize = getPartitionSizeByIndex(partitionIndex);
                             }
                             srcNameTxn = getPartitionNameTxnByIndex(partitionIndex);
+                            if (!last) {
+                                restoreColdPartitionConditionally(partitionIndex, partitionTimestamp);
+                                decompressPartitionConditionally(partitionTimestamp, srcNameTxn);
+                            }
                         } else {
                             srcDataSize = -1;
                             srcNameTxn = -1;
@@ -3128,6 +3772,7 @@ public class TableWriter implements Closeable {
         }
 
         final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(partitionTimestamp);
+        statsPartitions.add(partitionTimestamp);
         if (partitionTimestamp == lastPartitionTimestamp) {
             if (partitionMutates) {
                 closeActivePartition(true);
@@ -3720,10 +4365,94 @@ public class TableWriter implements Closeable {
         }
     }
 
-    private long readMinTimestamp(long partitionTimestamp) {
+    private long readLastOffset(int plen, CharSequence columnName, long rowCount) {
+        final long offset = (rowCount - 1) * Long.BYTES;
+        if (ff.exists(iFile(path.trimTo(plen), columnName))) {
+            return readLongAtOffset(ff, path, tempMem16b, offset);
+        }
+        try (MemoryMR mem = Vm.getDecompressedMRInstance(ff, izFile(path.trimTo(plen), columnName))) {
+            return mem.getLong(offset);
+        }
+    }
+
+    private void purgeColdPartitionDir(long pName, int type) {
+        nativeLPSZ.of(pName);
+        if (!isDots(nativeLPSZ) && type == Files.DT_DIR) {
+            try {
+                final int txnSep = Chars.indexOf(nativeLPSZ, '.');
+                if (txnSep > 0) {
+                    final long txn = Numbers.parseLong(nativeLPSZ, txnSep + 1, nativeLPSZ.length());
+                    final long dirTimestamp = partitionDirFmt.parse(nativeLPSZ, 0, txnSep, null);
+                    final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(dirTimestamp);
+                    if (partitionIndex > -1
+                            && txFile.isPartitionColdByIndex(partitionIndex)
+                            && txFile.getPartitionNameTxnByIndex(partitionIndex) == txn) {
+                        return;
+                    }
+                }
+            } catch (NumericException ignore) {
+                // copy of partition that has not been switched to cold storage
+            }
+            removeDirOrLog(coldStoragePolicy.tablePath(coldPath, tableName).concat(pName).slash$());
+        }
+    }
+
+    private void purgeHotPartitionDir(long pName, int type) {
+        nativeLPSZ.of(pName);
+        if (!isDots(nativeLPSZ) && type == Files.DT_DIR && !Chars.endsWith(nativeLPSZ, DETACHED_DIR_MARKER)) {
+            try {
+                int txnSep = Chars.indexOf(nativeLPSZ, '.');
+                if (txnSep < 0) {
+                    txnSep = nativeLPSZ.length();
+                }
+                final long dirTimestamp = partitionDirFmt.parse(nativeLPSZ, 0, txnSep, null);
+                final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(dirTimestamp);
+                if (partitionIndex < 0 || !txFile.isPartitionColdByIndex(partitionIndex)) {
+                    return;
+                }
+            } catch (NumericException ignore) {
+                // not a partition
+                return;
+            }
+            path.trimTo(rootLen);
+            removeDirOrLog(path.concat(pName).slash$());
+        }
+    }
+
+    private long readMaxTimestamp(long partitionTimestamp, long partitionSize) {
         setStateForTimestamp(other, partitionTimestamp, false);
         try {
             dFile(other, metadata.getColumnName(metadata.getTimestampIndex()));
+            if (!ff.exists(other)) {
+                throw CairoException.instance(0).put("Partition does not exist [path=").put(other).put(']');
+            }
+            return readLongAtOffset(ff, other, tempMem16b, (partitionSize - 1) * Long.BYTES);
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
+    private long readMinTimestamp(long partitionTimestamp) {
+        final int partitionIndex = txFile.findAttachedPartitionIndexByLoTimestamp(partitionTimestamp);
+        final Path other;
+        if (partitionIndex > -1 && txFile.isPartitionColdByIndex(partitionIndex)) {
+            other = setColdPathForPartition(partitionTimestamp, txFile.getPartitionNameTxnByIndex(partitionIndex));
+        } else {
+            other = this.other;
+            setStateForTimestamp(other, partitionTimestamp, false);
+        }
+        final int plen = other.length();
+        try {
+            final CharSequence timestampColumnName = metadata.getColumnName(metadata.getTimestampIndex());
+            if (!ff.exists(dFile(other, timestampColumnName)) && ff.exists(dzFile(other.trimTo(plen), timestampColumnName))) {
+                try (MemoryMR mem = Vm.getDecompressedMRInstance(ff, other)) {
+                    if (mem.size() < Long.BYTES) {
+                        throw CairoException.instance(0).put("could not read timestamp value");
+                    }
+                    return mem.getLong(0);
+                }
+            }
+            dFile(other.trimTo(plen), timestampColumnName);
             if (ff.exists(other)) {
                 // read min timestamp value
                 final long fd = TableUtils.openRO(ff, other, LOG);
@@ -3744,6 +4473,11 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private boolean readColdStoragePolicy() {
+        // path and other can be in use by the caller
+        return coldStoragePolicy.of(ff, coldPath.of(configuration.getRoot()).concat(tableName));
+    }
+
     private void recoverFromMetaRenameFailure(CharSequence columnName) {
         openMetaFile(ff, path, rootLen, metaMem);
     }
@@ -3804,33 +4538,77 @@ public class TableWriter implements Closeable {
         }
     }
 
-    private void removeColumnFiles(CharSequence columnName, int columnType, RemoveFileLambda removeLambda) {
+    private void removeColumnFiles(CharSequence columnName, int columnType, int symbolIndexVersion, RemoveFileLambda removeLambda) {
         try {
-            ff.iterateDir(path.$(), (file, type) -> {
-                nativeLPSZ.of(file);
-                if (type == Files.DT_DIR && IGNORED_FILES.excludes(nativeLPSZ)) {
-                    path.trimTo(rootLen);
-                    path.concat(nativeLPSZ);
-                    int plen = path.length();
-                    removeLambda.remove(ff, dFile(path, columnName));
-                    removeLambda.remove(ff, iFile(path.trimTo(plen), columnName));
-                    removeLambda.remove(ff, topFile(path.trimTo(plen), columnName));
-                    removeLambda.remove(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName));
-                    removeLambda.remove(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName));
-                }
-            });
+            removeColumnFiles(path, rootLen, columnName, removeLambda);
+            if (readColdStoragePolicy() && ff.exists(coldStoragePolicy.tablePath(coldPath, tableName).$())) {
+                removeColumnFiles(coldPath, coldPath.length(), columnName, removeLambda);
+            }
 
             if (ColumnType.isSymbol(columnType)) {
                 removeLambda.remove(ff, SymbolMapWriter.offsetFileName(path.trimTo(rootLen), columnName));
                 removeLambda.remove(ff, SymbolMapWriter.charFileName(path.trimTo(rootLen), columnName));
-                removeLambda.remove(ff, BitmapIndexUtils.keyFileName(path.trimTo(rootLen), columnName));
-                removeLambda.remove(ff, BitmapIndexUtils.valueFileName(path.trimTo(rootLen), columnName));
+                // symbol map index is versioned, each version doubles capacity
+                for (int v = 0; v <= symbolIndexVersion; v++) {
+                    removeLambda.remove(ff, SymbolMapWriter.indexKeyFileName(path.trimTo(rootLen), columnName, v));
+                    removeLambda.remove(ff, SymbolMapWriter.indexValueFileName(path.trimTo(rootLen), columnName, v));
+                }
             }
         } finally {
             path.trimTo(rootLen);
         }
     }
 
+    private void removeColumnFiles(Path path, int rootLen, CharSequence columnName, RemoveFileLambda removeLambda) {
+        ff.iterateDir(path.$(), (file, type) -> {
+            nativeLPSZ.of(file);
+            if (type == Files.DT_DIR && IGNORED_FILES.excludes(nativeLPSZ)) {
+                path.trimTo(rootLen);
+                path.concat(nativeLPSZ);
+                int plen = path.length();
+                removeLambda.remove(ff, dFile(path, columnName));
+                removeLambda.remove(ff, iFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, dzFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, izFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, topFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, zmFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, bfFile(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName));
+                removeLambda.remove(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName));
+            }
+        });
+        path.trimTo(rootLen);
+    }
+
+    private void removeColumnStats() {
+        columnStatsRowCount = 0;
+        try {
+            setPathForPartition(other, partitionBy, Long.MIN_VALUE, false);
+            final int plen = other.length();
+            for (int i = 0; i < columnCount; i++) {
+                removeFileIfExists(zmFile(other.trimTo(plen), metadata.getColumnName(i)));
+                removeFileIfExists(bfFile(other.trimTo(plen), metadata.getColumnName(i)));
+            }
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
+    private void removeDirOrLog(Path path) {
+        int errno;
+        if ((errno = ff.rmdir(path)) == 0) {
+            LOG.info().$("removed: ").$(path).$();
+        } else {
+            LOG.error().$("cannot remove: ").$(path).$(" [errno=").$(errno).$(']').$();
+        }
+    }
+
+    private void removeFileIfExists(LPSZ file) {
+        if (ff.exists(file) && !ff.remove(file)) {
+            throw CairoException.instance(ff.errno()).put("could not remove [path=").put(file).put(']');
+        }
+    }
+
     private int removeColumnFromMeta(int index) {
         try {
             int metaSwapIndex = openMetaSwapFile(ff, ddlMem, path, rootLen, fileOperationRetryCount);
@@ -3977,6 +4755,11 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private int getSymbolIndexVersion(int columnIndex) {
+        final SymbolMapWriter writer = symbolMapWriters.getQuick(columnIndex);
+        return writer != null ? writer.getIndexVersion() : 0;
+    }
+
     private void removeSymbolMapWriter(int index) {
         SymbolMapWriter writer = symbolMapWriters.getQuick(index);
         symbolMapWriters.remove(index);
@@ -4031,29 +4814,24 @@ public class TableWriter implements Closeable {
         }
     }
 
-    private void renameColumnFiles(CharSequence columnName, CharSequence newName, int columnType) {
+    private void renameColumnFiles(int columnIndex, CharSequence columnName, CharSequence newName, int columnType) {
         try {
-            ff.iterateDir(path.$(), (file, type) -> {
-                nativeLPSZ.of(file);
-                if (type == Files.DT_DIR && IGNORED_FILES.excludes(nativeLPSZ)) {
-                    path.trimTo(rootLen);
-                    path.concat(nativeLPSZ);
-                    other.trimTo(rootLen);
-                    other.concat(nativeLPSZ);
-                    int plen = path.length();
-                    renameFileOrLog(ff, dFile(path.trimTo(plen), columnName), dFile(other.trimTo(plen), newName));
-                    renameFileOrLog(ff, iFile(path.trimTo(plen), columnName), iFile(other.trimTo(plen), newName));
-                    renameFileOrLog(ff, topFile(path.trimTo(plen), columnName), topFile(other.trimTo(plen), newName));
-                    renameFileOrLog(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName), BitmapIndexUtils.keyFileName(other.trimTo(plen), newName));
-                    renameFileOrLog(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName), BitmapIndexUtils.valueFileName(other.trimTo(plen), newName));
-                }
-            });
+            renameColumnFiles(path, other, rootLen, columnName, newName);
+            if (readColdStoragePolicy() && ff.exists(coldStoragePolicy.tablePath(coldPath, tableName).$())) {
+                // other is restored to table directory below
+                renameColumnFiles(coldPath, other.of(coldPath), coldPath.length(), columnName, newName);
+                other.of(path.trimTo(rootLen));
+            }
 
             if (ColumnType.isSymbol(columnType)) {
                 renameFileOrLog(ff, SymbolMapWriter.offsetFileName(path.trimTo(rootLen), columnName), SymbolMapWriter.offsetFileName(other.trimTo(rootLen), newName));
                 renameFileOrLog(ff, SymbolMapWriter.charFileName(path.trimTo(rootLen), columnName), SymbolMapWriter.charFileName(other.trimTo(rootLen), newName));
-                renameFileOrLog(ff, BitmapIndexUtils.keyFileName(path.trimTo(rootLen), columnName), BitmapIndexUtils.keyFileName(other.trimTo(rootLen), newName));
-                renameFileOrLog(ff, BitmapIndexUtils.valueFileName(path.trimTo(rootLen), columnName), BitmapIndexUtils.valueFileName(other.trimTo(rootLen), newName));
+                final int symbolIndexVersion = getSymbolIndexVersion(columnIndex);
+                for (int v = 0; v <= symbolIndexVersion; v++) {
+                    renameFileOrLog(ff, SymbolMapWriter.indexKeyFileName(path.trimTo(rootLen), columnName, v), SymbolMapWriter.indexKeyFileName(other.trimTo(rootLen), newName, v));
+                    renameFileOrLog(ff, SymbolMapWriter.indexValueFileName(path.trimTo(rootLen), columnName, v), SymbolMapWriter.indexValueFileName(other.trimTo(rootLen), newName, v));
+                }
+                symbolMapWriters.getQuick(columnIndex).renameColumn(newName);
             }
         } finally {
             path.trimTo(rootLen);
@@ -4061,6 +4839,30 @@ public class TableWriter implements Closeable {
         }
     }
 
+    private void renameColumnFiles(Path path, Path other, int rootLen, CharSequence columnName, CharSequence newName) {
+        ff.iterateDir(path.$(), (file, type) -> {
+            nativeLPSZ.of(file);
+            if (type == Files.DT_DIR && IGNORED_FILES.excludes(nativeLPSZ)) {
+                path.trimTo(rootLen);
+                path.concat(nativeLPSZ);
+                other.trimTo(rootLen);
+                other.concat(nativeLPSZ);
+                int plen = path.length();
+                renameFileOrLog(ff, dFile(path.trimTo(plen), columnName), dFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, iFile(path.trimTo(plen), columnName), iFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, dzFile(path.trimTo(plen), columnName), dzFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, izFile(path.trimTo(plen), columnName), izFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, topFile(path.trimTo(plen), columnName), topFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, zmFile(path.trimTo(plen), columnName), zmFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, bfFile(path.trimTo(plen), columnName), bfFile(other.trimTo(plen), newName));
+                renameFileOrLog(ff, BitmapIndexUtils.keyFileName(path.trimTo(plen), columnName), BitmapIndexUtils.keyFileName(other.trimTo(plen), newName));
+                renameFileOrLog(ff, BitmapIndexUtils.valueFileName(path.trimTo(plen), columnName), BitmapIndexUtils.valueFileName(other.trimTo(plen), newName));
+            }
+        });
+        path.trimTo(rootLen);
+        other.trimTo(rootLen);
+    }
+
     private int renameColumnFromMeta(int index, CharSequence newName) {
         try {
             int metaSwapIndex = openMetaSwapFile(ff, ddlMem, path, rootLen, fileOperationRetryCount);
@@ -4311,6 +5113,15 @@ public class TableWriter implements Closeable {
      * @param timestamp               to determine interval for
      * @param updatePartitionInterval flag indicating that partition interval partitionLo and
      */
+    private Path setColdPathForPartition(long partitionTimestamp, long partitionNameTxn) {
+        if (!readColdStoragePolicy()) {
+            throw CairoException.instance(0).put("cold storage policy does not exist [table=").put(tableName).put(']');
+        }
+        setPathForPartition(coldStoragePolicy.tablePath(coldPath, tableName), partitionBy, partitionTimestamp, false);
+        TableUtils.txnPartitionConditionally(coldPath, partitionNameTxn);
+        return coldPath;
+    }
+
     private void setStateForTimestamp(Path path, long timestamp, boolean updatePartitionInterval) {
         final long partitionTimestampHi = TableUtils.setPathForPartition(path, partitionBy, timestamp, true);
         TableUtils.txnPartitionConditionally(
@@ -4352,8 +5163,7 @@ public class TableWriter implements Closeable {
                 long columnTop = columnTops.getQuick(columnIndex);
                 if (blockColumnTop != columnTop) {
                     try {
-                        assert columnTop == 0;
-                        assert blockColumnTop > 0;
+                        assert columnTop < blockColumnTop;
                         TableUtils.setPathForPartition(path, partitionBy, timestampLo, false);
                         columnTops.setQuick(columnIndex, blockColumnTop);
                         writeColumnTop(getMetadata().getColumnName(columnIndex), blockColumnTop);
@@ -4370,6 +5180,8 @@ public class TableWriter implements Closeable {
         // added so far. Index writers will start point to different
         // files after switch.
         updateIndexes();
+        statsPartitions.add(getPartitionLo(txFile.getMaxTimestamp()));
+        columnStatsRowCount = 0;
         txFile.switchPartitions(timestamp);
         openPartition(timestamp);
         setAppendPosition(0, false);
@@ -4391,6 +5203,105 @@ public class TableWriter implements Closeable {
         throw new CairoError(cause);
     }
 
+    private boolean hasBloomFilters() {
+        for (int i = 0; i < columnCount; i++) {
+            if (isBloomFiltered(metaMem, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateColumnStats() {
+        if (zoneMapBlockSize == 0 && !hasBloomFilters()) {
+            statsPartitions.clear();
+            return;
+        }
+        final long transientRowCount = txFile.getTransientRowCount();
+        long activePartitionTimestamp = Long.MIN_VALUE;
+        if (transientRowCount > 0) {
+            if (partitionBy != PartitionBy.NONE) {
+                activePartitionTimestamp = getPartitionLo(txFile.getMaxTimestamp());
+            }
+            // refreshing stats of active partition on every commit would make small commits
+            // expensive, it is done once enough rows are appended instead
+            if (transientRowCount < columnStatsRowCount || transientRowCount - columnStatsRowCount >= columnStatsRefreshRowCount) {
+                statsPartitions.add(activePartitionTimestamp);
+            }
+        }
+        statsPartitions.sort();
+        for (int i = 0, n = statsPartitions.size(); i < n; i++) {
+            final long timestamp = statsPartitions.getQuick(i);
+            if (i > 0 && timestamp == statsPartitions.getQuick(i - 1)) {
+                continue;
+            }
+            if (timestamp == activePartitionTimestamp) {
+                columnStatsRowCount = transientRowCount;
+            }
+            try {
+                updateColumnStats(timestamp);
+            } catch (CairoException e) {
+                // zone maps and Bloom filters are optional, queries scan partitions that do not have them
+                LOG.error().$("could not update column stats [table=").$(tableName)
+                        .$(", ts=").$ts(timestamp)
+                        .$(", errno=").$(e.getErrno())
+                        .$(", msg=").$(e.getFlyweightMessage())
+                        .I$();
+            }
+        }
+        statsPartitions.clear();
+    }
+
+    private void updateColumnStats(long partitionTimestamp) {
+        final long partitionSize;
+        final long partitionNameTxn;
+        if (partitionBy == PartitionBy.NONE) {
+            partitionSize = txFile.getTransientRowCount();
+            partitionNameTxn = -1;
+        } else {
+            final int index = txFile.findAttachedPartitionIndexByLoTimestamp(partitionTimestamp);
+            if (index < 0) {
+                return;
+            }
+            partitionSize = partitionTimestamp == getPartitionLo(txFile.getMaxTimestamp())
+                    ? txFile.getTransientRowCount()
+                    : txFile.getPartitionSizeByIndex(index);
+            partitionNameTxn = txFile.getPartitionNameTxnByIndex(index);
+            // stats of partition in cold storage are moved together with its files
+            if (txFile.isPartitionColdByIndex(index)) {
+                return;
+            }
+        }
+        if (partitionSize < 1) {
+            return;
+        }
+
+        try {
+            setPathForPartition(other, partitionBy, partitionTimestamp, false);
+            TableUtils.txnPartitionConditionally(other, partitionNameTxn);
+            final int plen = other.length();
+            for (int i = 0; i < columnCount; i++) {
+                final int columnType = metadata.getColumnType(i);
+                // designated timestamp is pruned by interval scan, it does not need zone map
+                final boolean zoneMap = zoneMapBlockSize > 0 && i != metadata.getTimestampIndex() && ZoneMapWriter.isSupported(columnType);
+                final boolean bloomFilter = isBloomFiltered(metaMem, i) && BloomFilterWriter.isSupported(columnType);
+                if (zoneMap || bloomFilter) {
+                    final CharSequence columnName = metadata.getColumnName(i);
+                    final long columnTop = readColumnTop(ff, other.trimTo(plen), columnName, plen, tempMem16b);
+                    if (zoneMap) {
+                        ZoneMapWriter.update(ff, other, columnName, columnType, columnTop, partitionSize, zoneMapBlockSize);
+                    }
+                    if (bloomFilter) {
+                        final long distinctLimit = ColumnType.isSymbol(columnType) ? getSymbolMapWriter(i).getSymbolCount() : Long.MAX_VALUE;
+                        bloomFilterWriter.update(other, columnName, columnType, columnTop, partitionSize, distinctLimit);
+                    }
+                }
+            }
+        } finally {
+            other.trimTo(rootLen);
+        }
+    }
+
     private void updateIndexes() {
         if (indexCount == 0 || avoidIndexOnCommit) {
             avoidIndexOnCommit = false;
@@ -4538,6 +5449,10 @@ public class TableWriter implements Closeable {
         if (isSequential(metaMem, i)) {
             flags |= META_FLAG_BIT_SEQUENTIAL;
         }
+
+        if (isBloomFiltered(metaMem, i)) {
+            flags |= META_FLAG_BIT_BLOOM_FILTER;
+        }
         ddlMem.putLong(flags);
         ddlMem.putInt(getIndexBlockCapacity(metaMem, i));
     }
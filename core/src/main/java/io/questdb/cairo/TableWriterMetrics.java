@@ -0,0 +1,54 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.metrics.Counter;
+import io.questdb.metrics.Histogram;
+import io.questdb.metrics.HistogramWithOneLabel;
+import io.questdb.metrics.MetricsRegistry;
+
+public class TableWriterMetrics {
+    private final HistogramWithOneLabel commitLatency;
+    private final HistogramWithOneLabel o3CommitLatency;
+    private final Counter committedRows;
+
+    public TableWriterMetrics(MetricsRegistry metricsRegistry) {
+        this.commitLatency = metricsRegistry.newHistogram("table_writer_commit_micros", "table");
+        this.o3CommitLatency = metricsRegistry.newHistogram("table_writer_o3_commit_micros", "table");
+        this.committedRows = metricsRegistry.newCounter("table_writer_committed_rows");
+    }
+
+    public void addCommittedRows(long rows) {
+        committedRows.add(rows);
+    }
+
+    public Histogram commitLatency(CharSequence tableName) {
+        return commitLatency.withLabel(tableName);
+    }
+
+    public Histogram o3CommitLatency(CharSequence tableName) {
+        return o3CommitLatency.withLabel(tableName);
+    }
+}
@@ -31,6 +31,7 @@ import io.questdb.std.datetime.microtime.Timestamps;
 import io.questdb.std.str.Path;
 
 import java.io.Closeable;
+import java.util.concurrent.locks.LockSupport;
 
 import static io.questdb.cairo.TableUtils.*;
 
@@ -39,6 +40,9 @@ public class TxReader implements Closeable {
     protected static final int PARTITION_SIZE_OFFSET = 1;
     protected static final int PARTITION_NAME_TX_OFFSET = 2;
     protected static final int PARTITION_DATA_TX_OFFSET = 3;
+    // partition size is stored together with flags, size takes lower bits
+    protected static final long PARTITION_FLAG_COLD = 1L << 62;
+    protected static final long PARTITION_SIZE_MASK = PARTITION_FLAG_COLD - 1;
 
     protected final FilesFacade ff;
     protected final int rootLen;
@@ -132,13 +136,13 @@ public class TxReader implements Closeable {
     }
 
     public long getPartitionSizeByIndex(int index) {
-        return attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET);
+        return attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET) & PARTITION_SIZE_MASK;
     }
 
     public long getPartitionSizeByPartitionTimestamp(long ts) {
         final int index = findAttachedPartitionIndex(ts);
         if (index > -1) {
-            return attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET);
+            return attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET) & PARTITION_SIZE_MASK;
         }
         return -1;
     }
@@ -171,6 +175,36 @@ public class TxReader implements Closeable {
         return txn;
     }
 
+    /**
+     * @return true when partition has been moved to cold storage and has to be read from there
+     */
+    public boolean isPartitionCold(int i) {
+        return isPartitionColdByIndex(i * LONGS_PER_TX_ATTACHED_PARTITION);
+    }
+
+    public boolean isPartitionColdByIndex(int index) {
+        return (attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET) & PARTITION_FLAG_COLD) != 0;
+    }
+
+    /**
+     * Reads transaction file, which is concurrently updated by table writer. Read is retried
+     * until transaction number before and after reading the file are the same.
+     */
+    public void readConsistently() {
+        while (true) {
+            final long txn = readTxn();
+            Unsafe.getUnsafe().loadFence();
+            if (txn == readTxnCheck()) {
+                readUnchecked();
+                Unsafe.getUnsafe().loadFence();
+                if (txn == getTxn()) {
+                    return;
+                }
+            }
+            LockSupport.parkNanos(1);
+        }
+    }
+
     public long readFixedRowCount() {
         return roTxMem.getLong(TX_OFFSET_FIXED_ROW_COUNT);
     }
@@ -381,8 +381,11 @@ public final class TxWriter extends TxReader implements Closeable {
 
     private void storeSymbolCounts(ObjList<SymbolMapWriter> denseSymbolMapWriters) {
         for (int i = 0, n = denseSymbolMapWriters.size(); i < n; i++) {
+            final SymbolMapWriter symbolMapWriter = denseSymbolMapWriters.getQuick(i);
+            // readers must see grown index before they see symbol count that needs it
+            symbolMapWriter.commitIndex();
             long offset = getSymbolWriterIndexOffset(i);
-            int symCount = denseSymbolMapWriters.getQuick(i).getSymbolCount();
+            int symCount = symbolMapWriter.getSymbolCount();
             txMem.putInt(offset, symCount);
             offset += Integer.BYTES;
             txMem.putInt(offset, symCount);
@@ -403,12 +406,25 @@ public final class TxWriter extends TxReader implements Closeable {
     }
 
     private void updatePartitionSizeByIndex(int index, long partitionSize) {
-        if (attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET) != partitionSize) {
-            attachedPartitions.set(index + PARTITION_SIZE_OFFSET, partitionSize);
+        final long sizeAndFlags = attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET);
+        if ((sizeAndFlags & PARTITION_SIZE_MASK) != partitionSize) {
+            attachedPartitions.set(index + PARTITION_SIZE_OFFSET, (sizeAndFlags & ~PARTITION_SIZE_MASK) | partitionSize);
             attachedPartitions.set(index + PARTITION_DATA_TX_OFFSET, txn);
         }
     }
 
+    /**
+     * Flags partition as the one that is stored in cold storage. Partition data txn changes
+     * to let readers know they have to reopen the partition from its new location.
+     */
+    void setPartitionColdByIndex(int index, boolean cold) {
+        final long sizeAndFlags = attachedPartitions.getQuick(index + PARTITION_SIZE_OFFSET);
+        attachedPartitions.set(index + PARTITION_SIZE_OFFSET, cold ? sizeAndFlags | PARTITION_FLAG_COLD : sizeAndFlags & PARTITION_SIZE_MASK);
+        attachedPartitions.set(index + PARTITION_DATA_TX_OFFSET, txn);
+        attachedPositionDirtyIndex = Math.min(attachedPositionDirtyIndex, index);
+    }
+
+    // new version of partition is always written to the hot storage, cold flag is cleared
     void updatePartitionSizeByIndexAndTxn(int index, long partitionSize) {
         attachedPartitions.set(index + PARTITION_SIZE_OFFSET, partitionSize);
         attachedPartitions.set(index + PARTITION_NAME_TX_OFFSET, txn);
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.LPSZ;
+
+import java.io.Closeable;
+
+/**
+ * Reads zone map of a column in a partition, see {@link ZoneMapWriter}. Min and max are
+ * returned as raw 64-bit values, which are longs for integer columns and double bits for
+ * DOUBLE columns. Stats of empty or all-null range have min above max.
+ * <p>
+ * Zone map may cover more rows than reader sees, because writer updates it after
+ * committing transaction. Stats of row superset are still safe to prune with, while zone
+ * map that covers fewer rows than the partition has is not usable.
+ */
+public class ZoneMapReader implements Closeable {
+    static final long SEQUENCE_OFFSET = 0;
+    static final long SEQUENCE_CHECK_OFFSET = 8;
+    static final long ROW_COUNT_OFFSET = 16;
+    static final long BLOCK_SIZE_OFFSET = 24;
+    static final long COLUMN_TYPE_OFFSET = 32;
+    static final long NULL_COUNT_OFFSET = 40;
+    static final long HEADER_SIZE = 64;
+    // null count, min, max
+    static final long BLOCK_ENTRY_SIZE = 24;
+    private long address;
+    private long capacity;
+    private long rowCount;
+    private long blockSize;
+    private long blockCount;
+
+    @Override
+    public void close() {
+        if (address != 0) {
+            Unsafe.free(address, capacity);
+            address = 0;
+            capacity = 0;
+        }
+    }
+
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    public long getBlockMax(long block) {
+        return Unsafe.getUnsafe().getLong(blockAddress(block) + 16);
+    }
+
+    public long getBlockMin(long block) {
+        return Unsafe.getUnsafe().getLong(blockAddress(block) + 8);
+    }
+
+    public long getBlockNullCount(long block) {
+        return Unsafe.getUnsafe().getLong(blockAddress(block));
+    }
+
+    public long getBlockRowCount(long block) {
+        return Math.min(blockSize, rowCount - block * blockSize);
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public long getMax() {
+        return Unsafe.getUnsafe().getLong(address + NULL_COUNT_OFFSET + 16);
+    }
+
+    public long getMin() {
+        return Unsafe.getUnsafe().getLong(address + NULL_COUNT_OFFSET + 8);
+    }
+
+    public long getNullCount() {
+        return Unsafe.getUnsafe().getLong(address + NULL_COUNT_OFFSET);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Loads zone map file.
+     *
+     * @param path        path to zone map file
+     * @param minRowCount number of rows zone map must cover to be usable
+     * @return false when file does not exist, is being updated or does not cover enough rows
+     */
+    public boolean of(FilesFacade ff, LPSZ path, long minRowCount) {
+        final long fd = ff.openRO(path);
+        if (fd == -1) {
+            return false;
+        }
+        try {
+            final long len = ff.length(fd);
+            if (len < HEADER_SIZE) {
+                return false;
+            }
+            if (capacity < len) {
+                address = address == 0 ? Unsafe.malloc(len) : Unsafe.realloc(address, capacity, len);
+                capacity = len;
+            }
+            // sequence check is written last, read it first
+            if (ff.read(fd, address, Long.BYTES, SEQUENCE_CHECK_OFFSET) != Long.BYTES) {
+                return false;
+            }
+            final long sequence = Unsafe.getUnsafe().getLong(address);
+            if (ff.read(fd, address, len, 0) != len
+                    || ff.read(fd, address + SEQUENCE_OFFSET, Long.BYTES, SEQUENCE_OFFSET) != Long.BYTES
+                    || Unsafe.getUnsafe().getLong(address + SEQUENCE_OFFSET) != sequence) {
+                return false;
+            }
+            rowCount = Unsafe.getUnsafe().getLong(address + ROW_COUNT_OFFSET);
+            blockSize = Unsafe.getUnsafe().getLong(address + BLOCK_SIZE_OFFSET);
+            if (rowCount < minRowCount || blockSize < 1) {
+                return false;
+            }
+            blockCount = (rowCount + blockSize - 1) / blockSize;
+            if (len < HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE) {
+                return false;
+            }
+            return true;
+        } finally {
+            ff.close(fd);
+        }
+    }
+
+    private long blockAddress(long block) {
+        assert block > -1 && block < blockCount;
+        return address + HEADER_SIZE + block * BLOCK_ENTRY_SIZE;
+    }
+}
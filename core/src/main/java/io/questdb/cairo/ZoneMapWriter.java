@@ -0,0 +1,270 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Files;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Numbers;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.Path;
+
+import static io.questdb.cairo.ZoneMapReader.*;
+
+/**
+ * Maintains zone map file of a column in a partition. Zone map holds null count, min and max
+ * of non-null values for the whole partition and for each block of fixed number of rows.
+ * Partitions only grow by appending rows in place, rewritten partitions are written to new
+ * directories. This lets zone map be extended incrementally from the row count it was last
+ * computed for.
+ * <p>
+ * Readers may read the file while it is updated. Update is bracketed by sequence numbers
+ * at both ends of the header, which allows readers to detect torn reads.
+ */
+final class ZoneMapWriter {
+    private static final Log LOG = LogFactory.getLog(ZoneMapWriter.class);
+
+    private ZoneMapWriter() {
+    }
+
+    static boolean isSupported(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.INT:
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+            case ColumnType.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Brings zone map of column up to date with partition row count.
+     *
+     * @param path      path to partition directory, it is restored before method returns
+     * @param columnTop number of leading rows column does not have data for, these rows are nulls
+     * @param rowCount  committed row count of partition
+     * @param blockSize number of rows in zone map block, power of 2
+     */
+    static void update(
+            FilesFacade ff,
+            Path path,
+            CharSequence columnName,
+            int columnType,
+            long columnTop,
+            long rowCount,
+            long blockSize
+    ) {
+        final int plen = path.length();
+        try {
+            if (!ff.exists(TableUtils.dFile(path, columnName))) {
+                // compressed partition or column that has no data in partition, either way
+                // there is nothing to compute zone map from
+                return;
+            }
+
+            final long fd = TableUtils.openRW(ff, TableUtils.zmFile(path.trimTo(plen), columnName), LOG);
+            try {
+                update0(ff, fd, path.trimTo(plen), columnName, columnType, columnTop, rowCount, blockSize);
+            } finally {
+                ff.close(fd);
+            }
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    private static void update0(
+            FilesFacade ff,
+            long fd,
+            Path path,
+            CharSequence columnName,
+            int columnType,
+            long columnTop,
+            long rowCount,
+            long blockSize
+    ) {
+        final long blockCount = (rowCount + blockSize - 1) / blockSize;
+        final long size = HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE;
+        // file only grows, allocate() does not truncate it. New file is zero-filled, which
+        // reads as zone map of unknown block size
+        if (!ff.allocate(fd, size)) {
+            throw CairoException.instance(ff.errno()).put("No space left [size=").put(size).put(", fd=").put(fd).put(']');
+        }
+        final long addr = ff.mmap(fd, size, 0, Files.MAP_RW);
+        if (addr == FilesFacade.MAP_FAILED) {
+            throw CairoException.instance(ff.errno()).put("could not mmap zone map [fd=").put(fd).put(", size=").put(size).put(']');
+        }
+        try {
+            final boolean isDouble = ColumnType.tagOf(columnType) == ColumnType.DOUBLE;
+            final long sequence = Unsafe.getUnsafe().getLong(addr + SEQUENCE_OFFSET);
+            long rowLo = Unsafe.getUnsafe().getLong(addr + ROW_COUNT_OFFSET);
+            if (rowLo > rowCount
+                    || sequence != Unsafe.getUnsafe().getLong(addr + SEQUENCE_CHECK_OFFSET)
+                    || Unsafe.getUnsafe().getLong(addr + BLOCK_SIZE_OFFSET) != blockSize
+                    || Unsafe.getUnsafe().getLong(addr + COLUMN_TYPE_OFFSET) != columnType) {
+                // zone map is missing or was computed for different data
+                rowLo = 0;
+            }
+
+            if (rowLo == rowCount) {
+                return;
+            }
+
+            Unsafe.getUnsafe().putLong(addr + SEQUENCE_OFFSET, sequence + 1);
+            Unsafe.getUnsafe().storeFence();
+
+            if (rowLo == 0) {
+                Unsafe.getUnsafe().putLong(addr + BLOCK_SIZE_OFFSET, blockSize);
+                Unsafe.getUnsafe().putLong(addr + COLUMN_TYPE_OFFSET, columnType);
+                resetStats(addr + NULL_COUNT_OFFSET, isDouble);
+            }
+
+            final long dataSize = (rowCount - columnTop) << ColumnType.pow2SizeOf(columnType);
+            long dataFd = -1;
+            long dataAddr = 0;
+            try {
+                if (dataSize > 0) {
+                    dataFd = TableUtils.openRO(ff, TableUtils.dFile(path, columnName), LOG);
+                    dataAddr = TableUtils.mapRO(ff, dataFd, dataSize);
+                }
+                // data address of row 0, rows below column top are never read
+                final long base = dataAddr - (columnTop << ColumnType.pow2SizeOf(columnType));
+                for (long block = rowLo / blockSize; block < blockCount; block++) {
+                    final long stats = addr + HEADER_SIZE + block * BLOCK_ENTRY_SIZE;
+                    final long lo = Math.max(rowLo, block * blockSize);
+                    final long hi = Math.min(rowCount, (block + 1) * blockSize);
+                    if (lo == block * blockSize) {
+                        resetStats(stats, isDouble);
+                    }
+                    // block may already hold stats of rows committed earlier, these are
+                    // accounted for in partition null count
+                    final long nullCount = Unsafe.getUnsafe().getLong(stats);
+                    updateStats(stats, columnType, base, columnTop, lo, hi);
+                    mergeStats(addr + NULL_COUNT_OFFSET, stats, Unsafe.getUnsafe().getLong(stats) - nullCount, isDouble);
+                }
+            } finally {
+                if (dataAddr != 0) {
+                    ff.munmap(dataAddr, dataSize);
+                }
+                if (dataFd != -1) {
+                    ff.close(dataFd);
+                }
+            }
+
+            Unsafe.getUnsafe().putLong(addr + ROW_COUNT_OFFSET, rowCount);
+            Unsafe.getUnsafe().storeFence();
+            Unsafe.getUnsafe().putLong(addr + SEQUENCE_CHECK_OFFSET, sequence + 1);
+        } finally {
+            ff.munmap(addr, size);
+        }
+    }
+
+    private static void mergeStats(long dst, long src, long nullCountDelta, boolean isDouble) {
+        Unsafe.getUnsafe().putLong(dst, Unsafe.getUnsafe().getLong(dst) + nullCountDelta);
+        if (isDouble) {
+            Unsafe.getUnsafe().putDouble(dst + 8, Math.min(Unsafe.getUnsafe().getDouble(dst + 8), Unsafe.getUnsafe().getDouble(src + 8)));
+            Unsafe.getUnsafe().putDouble(dst + 16, Math.max(Unsafe.getUnsafe().getDouble(dst + 16), Unsafe.getUnsafe().getDouble(src + 16)));
+        } else {
+            Unsafe.getUnsafe().putLong(dst + 8, Math.min(Unsafe.getUnsafe().getLong(dst + 8), Unsafe.getUnsafe().getLong(src + 8)));
+            Unsafe.getUnsafe().putLong(dst + 16, Math.max(Unsafe.getUnsafe().getLong(dst + 16), Unsafe.getUnsafe().getLong(src + 16)));
+        }
+    }
+
+    private static void resetStats(long stats, boolean isDouble) {
+        Unsafe.getUnsafe().putLong(stats, 0);
+        if (isDouble) {
+            Unsafe.getUnsafe().putDouble(stats + 8, Double.POSITIVE_INFINITY);
+            Unsafe.getUnsafe().putDouble(stats + 16, Double.NEGATIVE_INFINITY);
+        } else {
+            Unsafe.getUnsafe().putLong(stats + 8, Long.MAX_VALUE);
+            Unsafe.getUnsafe().putLong(stats + 16, Long.MIN_VALUE);
+        }
+    }
+
+    private static void updateStats(long stats, int columnType, long base, long columnTop, long lo, long hi) {
+        long nullCount = Unsafe.getUnsafe().getLong(stats);
+        if (lo < columnTop) {
+            nullCount += Math.min(hi, columnTop) - lo;
+            lo = Math.min(hi, columnTop);
+        }
+
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.INT: {
+                long min = Unsafe.getUnsafe().getLong(stats + 8);
+                long max = Unsafe.getUnsafe().getLong(stats + 16);
+                for (long r = lo; r < hi; r++) {
+                    final int v = Unsafe.getUnsafe().getInt(base + (r << 2));
+                    if (v == Numbers.INT_NaN) {
+                        nullCount++;
+                    } else {
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                    }
+                }
+                Unsafe.getUnsafe().putLong(stats + 8, min);
+                Unsafe.getUnsafe().putLong(stats + 16, max);
+                break;
+            }
+            case ColumnType.DOUBLE: {
+                double min = Unsafe.getUnsafe().getDouble(stats + 8);
+                double max = Unsafe.getUnsafe().getDouble(stats + 16);
+                for (long r = lo; r < hi; r++) {
+                    final double v = Unsafe.getUnsafe().getDouble(base + (r << 3));
+                    if (v != v) {
+                        nullCount++;
+                    } else {
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                    }
+                }
+                Unsafe.getUnsafe().putDouble(stats + 8, min);
+                Unsafe.getUnsafe().putDouble(stats + 16, max);
+                break;
+            }
+            default: {
+                long min = Unsafe.getUnsafe().getLong(stats + 8);
+                long max = Unsafe.getUnsafe().getLong(stats + 16);
+                for (long r = lo; r < hi; r++) {
+                    final long v = Unsafe.getUnsafe().getLong(base + (r << 3));
+                    if (v == Numbers.LONG_NaN) {
+                        nullCount++;
+                    } else {
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                    }
+                }
+                Unsafe.getUnsafe().putLong(stats + 8, min);
+                Unsafe.getUnsafe().putLong(stats + 16, max);
+                break;
+            }
+        }
+        Unsafe.getUnsafe().putLong(stats, nullCount);
+    }
+}
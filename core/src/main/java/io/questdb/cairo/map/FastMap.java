@@ -91,14 +91,14 @@ public class FastMap implements Map {
         assert loadFactor > 0 && loadFactor < 1d;
 
         this.loadFactor = loadFactor;
-        this.kStart = kPos = Unsafe.malloc(this.capacity = pageSize);
+        this.kStart = kPos = Unsafe.malloc(this.capacity = pageSize, MemoryTag.NATIVE_FAST_MAP);
         this.kLimit = kStart + pageSize;
 
         this.keyCapacity = (int) (keyCapacity / loadFactor);
         this.keyCapacity = this.keyCapacity < MIN_INITIAL_CAPACITY ? MIN_INITIAL_CAPACITY : Numbers.ceilPow2(this.keyCapacity);
         this.mask = this.keyCapacity - 1;
         this.free = (int) (this.keyCapacity * loadFactor);
-        this.offsets = new DirectLongList(this.keyCapacity);
+        this.offsets = new DirectLongList(this.keyCapacity, MemoryTag.NATIVE_FAST_MAP);
         this.offsets.setPos(this.keyCapacity);
         this.offsets.zero(-1);
         this.hashFunction = hashFunction;
@@ -216,7 +216,7 @@ public class FastMap implements Map {
     public final void close() {
         offsets = Misc.free(offsets);
         if (kStart != 0) {
-            Unsafe.free(kStart, capacity);
+            Unsafe.free(kStart, capacity, MemoryTag.NATIVE_FAST_MAP);
             kStart = 0;
         }
     }
@@ -231,6 +231,27 @@ public class FastMap implements Map {
         return record;
     }
 
+    /**
+     * Adds entries of the source map to this map. Values of keys that exist in both maps are
+     * combined by the merge function, other entries are copied as is. Both maps must have
+     * been created with the same key and value types.
+     *
+     * @param srcMap    map to merge entries from, it is not modified
+     * @param mergeFunc combines value of the source map into value of this map
+     */
+    public void merge(FastMap srcMap, MergeFunction mergeFunc) {
+        assert keyDataOffset == srcMap.keyDataOffset;
+        long address = srcMap.kStart;
+        for (int i = 0, n = srcMap.size; i < n; i++) {
+            final int len = Unsafe.getUnsafe().getInt(address);
+            final MapValue value = key.init().copyOf(address, len).createValue();
+            if (!value.isNew()) {
+                mergeFunc.merge(value, srcMap.valueAt(address));
+            }
+            address += len;
+        }
+    }
+
     @Override
     public long size() {
         return size;
@@ -256,6 +277,17 @@ public class FastMap implements Map {
         return key.init();
     }
 
+    /**
+     * Prepares key, which is a copy of the key entry written by a map of the same key
+     * and value types. Value block is copied along with the key.
+     *
+     * @param address address of the entry, see {@link Key#getEntryAddress()}
+     * @return key ready to find or create value
+     */
+    public MapKey withKeyEntry(long address) {
+        return key.init().copyOf(address, Unsafe.getUnsafe().getInt(address));
+    }
+
     private FastMapValue probe0(Key keyWriter, int index, FastMapValue value) {
         long offset;
         while ((offset = offsets.get(index = (++index & mask))) != -1) {
@@ -323,7 +355,7 @@ public class FastMap implements Map {
             if (kCapacity < target) {
                 kCapacity = Numbers.ceilPow2(target);
             }
-            long kAddress = Unsafe.realloc(this.kStart, this.capacity, kCapacity);
+            long kAddress = Unsafe.realloc(this.kStart, this.capacity, kCapacity, MemoryTag.NATIVE_FAST_MAP);
 
             this.capacity = kCapacity;
             long d = kAddress - this.kStart;
@@ -347,8 +379,9 @@ public class FastMap implements Map {
 
     private void rehash() {
         int capacity = keyCapacity << 1;
+        // allocation can fail when query memory limit is exceeded, mask is updated after it
+        DirectLongList pointers = new DirectLongList(capacity, MemoryTag.NATIVE_FAST_MAP);
         mask = capacity - 1;
-        DirectLongList pointers = new DirectLongList(capacity);
         pointers.setPos(capacity);
         pointers.zero(-1);
 
@@ -378,6 +411,11 @@ public class FastMap implements Map {
         int hash(long address, int len);
     }
 
+    @FunctionalInterface
+    public interface MergeFunction {
+        void merge(MapValue destValue, MapValue srcValue);
+    }
+
     public class Key implements MapKey {
         private long startAddress;
         private long appendAddress;
@@ -444,6 +482,26 @@ public class FastMap implements Map {
             }
         }
 
+        /**
+         * Address of the key entry. Entry is committed by {@link #hash()} and starts with its length.
+         *
+         * @return address of the entry, valid until map is modified
+         */
+        public long getEntryAddress() {
+            return startAddress;
+        }
+
+        /**
+         * Commits key and calculates its hash. This is the same hash map uses to place
+         * the key, before it is reduced to the map capacity.
+         *
+         * @return hash of key data
+         */
+        public int hash() {
+            commit();
+            return hashFunction.hash(startAddress + keyDataOffset, len - keyDataOffset);
+        }
+
         @Override
         public void put(Record record, RecordSink sink) {
             sink.copy(record, this);
@@ -645,6 +703,15 @@ public class FastMap implements Map {
             Unsafe.getUnsafe().putInt(startAddress, len = (int) (appendAddress - startAddress));
         }
 
+        // copies entry of another map, key offsets are relative to the entry start
+        // and value block is copied along with the key
+        private Key copyOf(long address, int len) {
+            checkSize(len - keyDataOffset);
+            Vect.memcpy(address, startAddress, len);
+            appendAddress = startAddress + len;
+            return this;
+        }
+
         private void putNull() {
             checkSize(4);
             Unsafe.getUnsafe().putInt(appendAddress, TableUtils.NULL_LEN);
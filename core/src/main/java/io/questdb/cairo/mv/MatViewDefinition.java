@@ -0,0 +1,210 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.TxReader;
+import io.questdb.std.LongList;
+import io.questdb.std.str.CharSink;
+
+/**
+ * Definition of materialized view together with the state of its last refresh. View is
+ * a table populated by SAMPLE BY query over single base table and refreshed in the background.
+ * Base and view tables are partitioned alike, which lets refresh recompute view partitions
+ * whose base partitions have changed since previous refresh, rather than the whole view.
+ * <p>
+ * Refresh state is a snapshot of base partition table: timestamp, row count and name txn
+ * of every partition. Appended rows change row count, out-of-order commit into existing
+ * partition creates partition copy with new name txn. Row position bookmarks would not
+ * survive the latter, which is why changes are tracked at partition granularity.
+ */
+public class MatViewDefinition {
+    private static final int LONGS_PER_PARTITION = 3;
+    private final String baseTableName;
+    private final int partitionBy;
+    private final String timestampName;
+    private final String query;
+    private final int tableNameLo;
+    private final int tableNameHi;
+    private final boolean aliased;
+    // partition timestamp, size and name txn triplets of base table as of last refresh
+    private final LongList partitions = new LongList();
+    private volatile String viewName;
+    private long baseTxn = -1;
+    private long baseDataVersion = -1;
+
+    public MatViewDefinition(
+            String viewName,
+            String baseTableName,
+            int partitionBy,
+            String timestampName,
+            String query,
+            int tableNameLo,
+            int tableNameHi,
+            boolean aliased
+    ) {
+        this.viewName = viewName;
+        this.baseTableName = baseTableName;
+        this.partitionBy = partitionBy;
+        this.timestampName = timestampName;
+        this.query = query;
+        this.tableNameLo = tableNameLo;
+        this.tableNameHi = tableNameHi;
+        this.aliased = aliased;
+    }
+
+    /**
+     * Collects timestamps of base partitions that have been added, changed or removed since
+     * the last refresh.
+     *
+     * @param txReader base table transaction file, read in consistent manner
+     * @param sink     receives partition timestamps in ascending order
+     */
+    public void collectChangedPartitions(TxReader txReader, LongList sink) {
+        sink.clear();
+        final boolean truncated = txReader.getDataVersion() != baseDataVersion;
+        final int partitionCount = txReader.getPartitionCount();
+        final int snapshotCount = partitions.size() / LONGS_PER_PARTITION;
+        int i = 0;
+        int j = 0;
+        while (i < partitionCount || j < snapshotCount) {
+            final long timestamp = i < partitionCount ? txReader.getPartitionTimestamp(i) : Long.MAX_VALUE;
+            final long snapshotTimestamp = j < snapshotCount ? partitions.getQuick(j * LONGS_PER_PARTITION) : Long.MAX_VALUE;
+            if (timestamp < snapshotTimestamp) {
+                // new partition
+                sink.add(timestamp);
+                i++;
+            } else if (timestamp > snapshotTimestamp) {
+                // removed partition
+                sink.add(snapshotTimestamp);
+                j++;
+            } else {
+                final int offset = j * LONGS_PER_PARTITION;
+                if (truncated
+                        || txReader.getPartitionSize(i) != partitions.getQuick(offset + 1)
+                        || txReader.getPartitionNameTxn(i) != partitions.getQuick(offset + 2)) {
+                    sink.add(timestamp);
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    public long getBaseDataVersion() {
+        return baseDataVersion;
+    }
+
+    public String getBaseTableName() {
+        return baseTableName;
+    }
+
+    public long getBaseTxn() {
+        return baseTxn;
+    }
+
+    public int getPartitionBy() {
+        return partitionBy;
+    }
+
+    public LongList getPartitions() {
+        return partitions;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getTableNameHi() {
+        return tableNameHi;
+    }
+
+    public int getTableNameLo() {
+        return tableNameLo;
+    }
+
+    public String getTimestampName() {
+        return timestampName;
+    }
+
+    public String getViewName() {
+        return viewName;
+    }
+
+    public boolean isAliased() {
+        return aliased;
+    }
+
+    void setViewName(String viewName) {
+        this.viewName = viewName;
+    }
+
+    /**
+     * Restores refresh state persisted by previous instance of the engine.
+     */
+    public void of(long baseTxn, long baseDataVersion, LongList partitions) {
+        this.baseTxn = baseTxn;
+        this.baseDataVersion = baseDataVersion;
+        this.partitions.clear();
+        this.partitions.add(partitions);
+    }
+
+    public void setBaseTxn(long baseTxn) {
+        this.baseTxn = baseTxn;
+    }
+
+    /**
+     * Records partition table of base table as state of refresh.
+     */
+    public void snapshot(TxReader txReader) {
+        baseTxn = txReader.getTxn();
+        baseDataVersion = txReader.getDataVersion();
+        partitions.clear();
+        for (int i = 0, n = txReader.getPartitionCount(); i < n; i++) {
+            partitions.add(txReader.getPartitionTimestamp(i));
+            partitions.add(txReader.getPartitionSize(i));
+            partitions.add(txReader.getPartitionNameTxn(i));
+        }
+    }
+
+    /**
+     * Writes view query restricted to the given time interval of base table. Base table name
+     * in the query is replaced with sub-query that filters the interval, which keeps designated
+     * timestamp of the base table and lets the filter use interval scan.
+     */
+    public void toRefreshQuery(CharSink sink, CharSequence lo, CharSequence hi) {
+        final CharSequence tableName = query.subSequence(tableNameLo, tableNameHi);
+        sink.put(query, 0, tableNameLo);
+        sink.put("(select * from ").put(tableName)
+                .put(" where ").put(timestampName).put(" >= '").put(lo)
+                .put("' and ").put(timestampName).put(" < '").put(hi)
+                .put("')");
+        if (!aliased) {
+            // columns can be qualified with table name
+            sink.put(' ').put(tableName);
+        }
+        sink.put(query, tableNameHi, query.length());
+    }
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo.mv;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMARW;
+import io.questdb.cairo.vm.api.MemoryMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.NativeLPSZ;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * Registry of materialized views known to the engine. Definition and refresh state of each view
+ * are kept in _mv file in the directory of the view table, so that the file is removed and renamed
+ * together with the table. Views left on disk by previous instance of the engine are registered
+ * when registry is created.
+ */
+public class MatViewRegistry implements Closeable {
+    public static final String DEFINITION_FILE_NAME = "_mv";
+    private static final String DEFINITION_TMP_FILE_NAME = "_mv.tmp";
+    private static final Log LOG = LogFactory.getLog(MatViewRegistry.class);
+    private final FilesFacade ff;
+    private final CharSequence root;
+    // guarded by itself
+    private final ObjList<MatViewDefinition> views = new ObjList<>();
+    private final Path path = new Path();
+    private final Path other = new Path();
+    private final LongList partitions = new LongList();
+    private final NativeLPSZ nativeLPSZ = new NativeLPSZ();
+
+    public MatViewRegistry(CairoConfiguration configuration) {
+        this.ff = configuration.getFilesFacade();
+        this.root = configuration.getRoot();
+        try {
+            recover();
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (views) {
+            views.clear();
+        }
+        Misc.free(path);
+        Misc.free(other);
+    }
+
+    public MatViewDefinition getView(CharSequence viewName) {
+        synchronized (views) {
+            final int index = indexOf(viewName);
+            return index > -1 ? views.getQuick(index) : null;
+        }
+    }
+
+    public int getViewCount() {
+        synchronized (views) {
+            return views.size();
+        }
+    }
+
+    /**
+     * Copies registered views to the sink.
+     */
+    public void getViews(ObjList<MatViewDefinition> sink) {
+        sink.clear();
+        synchronized (views) {
+            sink.addAll(views);
+        }
+    }
+
+    /**
+     * Writes definition and refresh state of the view to its table directory. File is replaced
+     * by rename, so that crash does not leave partially written definition behind.
+     */
+    public synchronized void persist(MatViewDefinition view) {
+        path.of(root).concat(view.getViewName());
+        final int plen = path.length();
+        try {
+            path.concat(DEFINITION_TMP_FILE_NAME).$();
+            if (ff.exists(path) && !ff.remove(path)) {
+                throw CairoException.instance(ff.errno()).put("could not remove [file=").put(path).put(']');
+            }
+            try (MemoryCMARW mem = Vm.getSmallCMARWInstance(ff, path)) {
+                mem.putStr(view.getBaseTableName());
+                mem.putInt(view.getPartitionBy());
+                mem.putStr(view.getTimestampName());
+                mem.putStr(view.getQuery());
+                mem.putInt(view.getTableNameLo());
+                mem.putInt(view.getTableNameHi());
+                mem.putBool(view.isAliased());
+                mem.putLong(view.getBaseTxn());
+                mem.putLong(view.getBaseDataVersion());
+                final LongList partitions = view.getPartitions();
+                mem.putInt(partitions.size());
+                for (int i = 0, n = partitions.size(); i < n; i++) {
+                    mem.putLong(partitions.getQuick(i));
+                }
+            }
+            other.of(path.trimTo(plen)).concat(DEFINITION_FILE_NAME).$();
+            TableUtils.renameOrFail(ff, path.concat(DEFINITION_TMP_FILE_NAME).$(), other);
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    public void register(MatViewDefinition view) {
+        persist(view);
+        synchronized (views) {
+            // table directory of stale view could have been removed behind engine's back
+            final int index = indexOf(view.getViewName());
+            if (index > -1) {
+                views.setQuick(index, view);
+            } else {
+                views.add(view);
+            }
+        }
+        LOG.info().$("registered materialized view [name=").utf8(view.getViewName())
+                .$(", base=").utf8(view.getBaseTableName())
+                .$(']').$();
+    }
+
+    /**
+     * Forgets view of the removed table. Definition file is removed together with the table directory.
+     */
+    public void remove(CharSequence tableName) {
+        synchronized (views) {
+            final int index = indexOf(tableName);
+            if (index > -1) {
+                views.remove(index);
+                LOG.info().$("removed materialized view [name=").utf8(tableName).$(']').$();
+            }
+        }
+    }
+
+    public void rename(CharSequence tableName, CharSequence newName) {
+        synchronized (views) {
+            final int index = indexOf(tableName);
+            if (index > -1) {
+                views.getQuick(index).setViewName(Chars.toString(newName));
+            }
+        }
+    }
+
+    private int indexOf(CharSequence viewName) {
+        for (int i = 0, n = views.size(); i < n; i++) {
+            if (Chars.equals(views.getQuick(i).getViewName(), viewName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private MatViewDefinition read(String viewName, Path path) {
+        try (MemoryMR mem = Vm.getMRInstance(ff, path, ff.length(path))) {
+            long offset = 0;
+            final String baseTableName = Chars.toString(mem.getStr(offset));
+            offset += Vm.getStorageLength(baseTableName);
+            final int partitionBy = mem.getInt(offset);
+            offset += Integer.BYTES;
+            final String timestampName = Chars.toString(mem.getStr(offset));
+            offset += Vm.getStorageLength(timestampName);
+            final String query = Chars.toString(mem.getStr(offset));
+            offset += Vm.getStorageLength(query);
+            final int tableNameLo = mem.getInt(offset);
+            final int tableNameHi = mem.getInt(offset + Integer.BYTES);
+            offset += 2 * Integer.BYTES;
+            final boolean aliased = mem.getBool(offset);
+            offset += 1;
+            final long baseTxn = mem.getLong(offset);
+            final long baseDataVersion = mem.getLong(offset + Long.BYTES);
+            offset += 2 * Long.BYTES;
+            final int size = mem.getInt(offset);
+            offset += Integer.BYTES;
+            partitions.clear();
+            for (int i = 0; i < size; i++) {
+                partitions.add(mem.getLong(offset));
+                offset += Long.BYTES;
+            }
+            final MatViewDefinition view = new MatViewDefinition(
+                    viewName,
+                    baseTableName,
+                    partitionBy,
+                    timestampName,
+                    query,
+                    tableNameLo,
+                    tableNameHi,
+                    aliased
+            );
+            view.of(baseTxn, baseDataVersion, partitions);
+            return view;
+        }
+    }
+
+    private void recover() {
+        final ObjList<String> tableNames = new ObjList<>();
+        path.of(root).$();
+        ff.iterateDir(path, (name, type) -> {
+            nativeLPSZ.of(name);
+            if (type == Files.DT_DIR && !Files.isDots(nativeLPSZ)) {
+                tableNames.add(Chars.toString(nativeLPSZ));
+            }
+        });
+
+        for (int i = 0, n = tableNames.size(); i < n; i++) {
+            final String tableName = tableNames.getQuick(i);
+            path.of(root).concat(tableName).concat(DEFINITION_FILE_NAME).$();
+            if (ff.exists(path)) {
+                try {
+                    views.add(read(tableName, path));
+                    LOG.info().$("recovered materialized view [name=").utf8(tableName).$(']').$();
+                } catch (CairoException e) {
+                    LOG.error().$("could not read materialized view definition [path=").$(path)
+                            .$(", errno=").$(e.getErrno())
+                            .$(", msg=").$(e.getFlyweightMessage())
+                            .$(']').$();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.pool;
+
+import io.questdb.metrics.Counter;
+import io.questdb.metrics.Histogram;
+import io.questdb.metrics.MetricsRegistry;
+
+public class PoolMetrics {
+    private final Histogram readerGetLatency;
+    private final Histogram writerGetLatency;
+    private final Counter readerBusy;
+    private final Counter writerBusy;
+
+    public PoolMetrics(MetricsRegistry metricsRegistry) {
+        this.readerGetLatency = metricsRegistry.newHistogram("reader_pool_get_micros");
+        this.writerGetLatency = metricsRegistry.newHistogram("writer_pool_get_micros");
+        this.readerBusy = metricsRegistry.newCounter("reader_pool_busy");
+        this.writerBusy = metricsRegistry.newCounter("writer_pool_busy");
+    }
+
+    public void readerBusy() {
+        readerBusy.inc();
+    }
+
+    public void readerGetLatency(long micros) {
+        readerGetLatency.record(micros);
+    }
+
+    public void writerBusy() {
+        writerBusy.inc();
+    }
+
+    public void writerGetLatency(long micros) {
+        writerGetLatency.record(micros);
+    }
+}
@@ -24,6 +24,7 @@
 
 package io.questdb.cairo.pool;
 
+import io.questdb.Metrics;
 import io.questdb.cairo.CairoConfiguration;
 import io.questdb.cairo.CairoException;
 import io.questdb.cairo.EntryUnavailableException;
@@ -51,16 +52,30 @@ public class ReaderPool extends AbstractPool implements ResourcePool<TableReader
     private final ConcurrentHashMap<Entry> entries = new ConcurrentHashMap<>();
     private final int maxSegments;
     private final int maxEntries;
+    private final PoolMetrics metrics;
 
     public ReaderPool(CairoConfiguration configuration) {
+        this(configuration, Metrics.disabled().pool());
+    }
+
+    public ReaderPool(CairoConfiguration configuration, PoolMetrics metrics) {
         super(configuration, configuration.getInactiveReaderTTL());
+        this.metrics = metrics;
         this.maxSegments = configuration.getReaderPoolMaxSegments();
         this.maxEntries = maxSegments * ENTRY_SIZE;
     }
 
     @Override
     public TableReader get(CharSequence name) {
+        final long start = clock.getTicks();
+        try {
+            return get0(name);
+        } finally {
+            metrics.readerGetLatency(clock.getTicks() - start);
+        }
+    }
 
+    private TableReader get0(CharSequence name) {
         Entry e = getEntry(name);
 
         long lockOwner = e.lockOwner;
@@ -120,6 +135,7 @@ public class ReaderPool extends AbstractPool implements ResourcePool<TableReader
         // max entries exceeded
         notifyListener(thread, name, PoolListener.EV_FULL, -1, -1);
         LOG.info().$("could not get, busy [table=`").utf8(name).$("`, thread=").$(thread).$(", retries=").$(this.maxSegments).$(']').$();
+        metrics.readerBusy();
         throw EntryUnavailableException.instance("unknown");
     }
 
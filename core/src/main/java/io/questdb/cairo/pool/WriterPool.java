@@ -25,6 +25,7 @@
 package io.questdb.cairo.pool;
 
 import io.questdb.MessageBus;
+import io.questdb.Metrics;
 import io.questdb.cairo.*;
 import io.questdb.cairo.pool.ex.EntryLockedException;
 import io.questdb.cairo.pool.ex.PoolClosedException;
@@ -71,6 +72,8 @@ public class WriterPool extends AbstractPool {
     private final CharSequence root;
     @NotNull
     private final MessageBus messageBus;
+    private final PoolMetrics metrics;
+    private final TableWriterMetrics tableWriterMetrics;
 
     /**
      * Pool constructor. WriterPool root directory is passed via configuration.
@@ -79,9 +82,22 @@ public class WriterPool extends AbstractPool {
      * @param messageBus    message bus instance to allow index tasks to be communicated to available threads.
      */
     public WriterPool(CairoConfiguration configuration, @NotNull MessageBus messageBus) {
+        this(configuration, messageBus, Metrics.disabled());
+    }
+
+    /**
+     * Pool constructor. WriterPool root directory is passed via configuration.
+     *
+     * @param configuration configuration parameters.
+     * @param messageBus    message bus instance to allow index tasks to be communicated to available threads.
+     * @param metrics       pool and writer metrics, writers created by the pool report their commits there.
+     */
+    public WriterPool(CairoConfiguration configuration, @NotNull MessageBus messageBus, Metrics metrics) {
         super(configuration, configuration.getInactiveWriterTTL());
         this.configuration = configuration;
         this.messageBus = messageBus;
+        this.metrics = metrics.pool();
+        this.tableWriterMetrics = metrics.tableWriter();
         this.clock = configuration.getMicrosecondClock();
         this.root = configuration.getRoot();
         notifyListener(Thread.currentThread().getId(), null, PoolListener.EV_POOL_OPEN);
@@ -102,6 +118,15 @@ public class WriterPool extends AbstractPool {
      * @return cached TableWriter instance.
      */
     public TableWriter get(CharSequence tableName, CharSequence lockReason) {
+        final long start = clock.getTicks();
+        try {
+            return get0(tableName, lockReason);
+        } finally {
+            metrics.writerGetLatency(clock.getTicks() - start);
+        }
+    }
+
+    private TableWriter get0(CharSequence tableName, CharSequence lockReason) {
         assert null != lockReason;
         checkClosed();
 
@@ -144,6 +169,7 @@ public class WriterPool extends AbstractPool {
                 }
             }
             LOG.error().$("busy [table=`").utf8(tableName).$("`, owner=").$(owner).$(']').$();
+            metrics.writerBusy();
             throw EntryUnavailableException.instance(e.ownershipReason);
         }
     }
@@ -272,7 +298,7 @@ public class WriterPool extends AbstractPool {
                 // we cache the writer in the writerPool whose access via the engine is thread safe
                 assert writer == null && e.lockFd != -1;
                 LOG.info().$("created [table=`").utf8(name).$("`, thread=").$(thread).$(']').$();
-                writer = new TableWriter(configuration, name, messageBus, false, e, root);
+                writer = new TableWriter(configuration, name, messageBus, false, e, root, tableWriterMetrics);
             }
 
             if (writer == null) {
@@ -393,7 +419,7 @@ public class WriterPool extends AbstractPool {
         try {
             checkClosed();
             LOG.info().$("open [table=`").utf8(name).$("`, thread=").$(thread).$(']').$();
-            e.writer = new TableWriter(configuration, name, messageBus, true, e, root);
+            e.writer = new TableWriter(configuration, name, messageBus, true, e, root, tableWriterMetrics);
             e.ownershipReason = lockReason;
             return logAndReturn(e, PoolListener.EV_CREATE);
         } catch (CairoException ex) {
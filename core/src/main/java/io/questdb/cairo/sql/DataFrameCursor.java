@@ -69,4 +69,12 @@ public interface DataFrameCursor extends Closeable, SymbolTableSource  {
     long size();
 
     StaticSymbolTable getSymbolTable(int columnIndex);
+
+    /**
+     * Sets pruner consulted before each partition is opened. Pruner is reset when
+     * cursor is initialised with table reader.
+     *
+     * @param pruner partition pruner or null to scan all partitions
+     */
+    void setPartitionPruner(@Nullable PartitionPruner pruner);
 }
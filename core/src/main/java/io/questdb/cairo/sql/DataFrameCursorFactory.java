@@ -34,10 +34,12 @@ import java.io.Closeable;
 /**
  * A factory interface for dataframe cursors
  */
-public interface DataFrameCursorFactory extends Sinkable, Closeable {
+public interface DataFrameCursorFactory extends Sinkable, Closeable, Plannable {
 
     DataFrameCursor getCursor(SqlExecutionContext executionContext) throws SqlException;
 
+    String getTableName();
+
     /**
      * @param sink to print data frame cursor to
      */
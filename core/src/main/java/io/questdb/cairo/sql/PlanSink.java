@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.sql;
+
+import io.questdb.griffin.SqlExecutionContext;
+
+/**
+ * Receives description of query execution plan. Each plan element reports its type,
+ * followed by optional attributes, and then its children, which are rendered
+ * under the parent element.
+ */
+public interface PlanSink {
+
+    /**
+     * Starts attribute of the current node, value is appended via one or more val() calls.
+     */
+    PlanSink attr(CharSequence name);
+
+    PlanSink child(Plannable child);
+
+    SqlExecutionContext getExecutionContext();
+
+    /**
+     * Sets table, against which column indexes passed to {@link #valColumn(int)} are resolved.
+     */
+    PlanSink ofTable(CharSequence tableName);
+
+    /**
+     * Attaches runtime statistics, collected by EXPLAIN ANALYZE, to the node that is reported next.
+     */
+    PlanSink stats(long rowCount, long nanos);
+
+    /**
+     * Starts new node of the plan.
+     */
+    PlanSink type(CharSequence type);
+
+    /**
+     * Starts new node of the plan named after simple class name of the plan element.
+     */
+    PlanSink type(Plannable plannable);
+
+    PlanSink val(CharSequence value);
+
+    PlanSink val(long value);
+
+    PlanSink valColumn(int columnIndex);
+
+    /**
+     * Appends symbol value behind bitmap index key of the given column.
+     */
+    PlanSink valIndexKey(int columnIndex, int indexKey);
+
+    PlanSink valTimestamp(long timestamp);
+}
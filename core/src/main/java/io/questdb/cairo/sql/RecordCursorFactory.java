@@ -53,7 +53,7 @@ import java.io.Closeable;
  * }
  *
  */
-public interface RecordCursorFactory extends Closeable, Sinkable {
+public interface RecordCursorFactory extends Closeable, Sinkable, Plannable {
     @Override
     default void close() {
     }
@@ -29,7 +29,7 @@ import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.std.ObjList;
 
-public interface RowCursorFactory {
+public interface RowCursorFactory extends Plannable {
     static void prepareCursor(
             ObjList<? extends RowCursorFactory> factories,
             TableReader tableReader,
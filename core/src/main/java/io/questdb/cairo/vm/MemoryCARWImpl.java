@@ -39,12 +39,18 @@ import org.jetbrains.annotations.NotNull;
 public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Mutable {
     private static final Log LOG = LogFactory.getLog(MemoryCARWImpl.class);
     private final int maxPages;
+    private final int memoryTag;
     private final Long256Acceptor long256Acceptor = this::putLong256;
     private long sizeMsb;
     private long appendAddress = 0;
 
     public MemoryCARWImpl(long pageSize, int maxPages) {
+        this(pageSize, maxPages, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public MemoryCARWImpl(long pageSize, int maxPages, int memoryTag) {
         this.maxPages = maxPages;
+        this.memoryTag = memoryTag;
         setPageSize(pageSize);
     }
 
@@ -118,7 +124,7 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
     public void clear() {
         if (pageAddress != 0) {
             long baseLength = lim - pageAddress;
-            Unsafe.free(pageAddress, baseLength);
+            Unsafe.free(pageAddress, baseLength, memoryTag);
             handleMemoryReleased();
         }
     }
@@ -191,9 +197,9 @@ public class MemoryCARWImpl extends AbstractMemoryCR implements MemoryCARW, Muta
 
     protected long reallocateMemory(long currentBaseAddress, long currentSize, long newSize) {
         if (currentBaseAddress != 0) {
-            return Unsafe.realloc(currentBaseAddress, currentSize, newSize);
+            return Unsafe.realloc(currentBaseAddress, currentSize, newSize, memoryTag);
         }
-        return Unsafe.malloc(newSize);
+        return Unsafe.malloc(newSize, memoryTag);
     }
 
     protected final void setPageSize(long size) {
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.vm;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnCodec;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.vm.api.MemoryCMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Unsafe;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+
+/**
+ * Read-only memory over compressed column file. Content is decoded into native memory
+ * when the file is opened, so that the rest of the system sees contiguous column data, same as
+ * with memory mapped column.
+ * <p>
+ * Compressed partition can be decompressed in place, for example when out-of-order data
+ * is appended to it. This memory then switches over to the raw column file when it is
+ * asked to extend beyond decoded content.
+ */
+public class MemoryCMRDecompressedImpl extends AbstractMemoryCR implements MemoryCMR {
+    private static final Log LOG = LogFactory.getLog(MemoryCMRDecompressedImpl.class);
+    private final StringSink rawFileName = new StringSink();
+
+    public MemoryCMRDecompressedImpl(FilesFacade ff, LPSZ name) {
+        of(ff, name, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        if (pageAddress != 0) {
+            Unsafe.free(pageAddress, size);
+            pageAddress = 0;
+        }
+        size = 0;
+        if (fd != -1) {
+            ff.close(fd);
+            LOG.debug().$("closed [fd=").$(fd).$(']').$();
+            fd = -1;
+        }
+        grownLength = 0;
+    }
+
+    @Override
+    public void extend(long newSize) {
+        grownLength = Math.max(newSize, grownLength);
+        if (newSize > size) {
+            readRawFile(newSize);
+        }
+    }
+
+    @Override
+    public void of(FilesFacade ff, LPSZ name, long extendSegmentSize, long size) {
+        close();
+        this.ff = ff;
+        // compressed file name differs from raw file name by the trailing 'z'
+        rawFileName.clear();
+        Chars.utf8Decode(name.address(), name.address() + name.length() - 1, rawFileName);
+        fd = TableUtils.openRO(ff, name, LOG);
+        try {
+            final long fileSize = ColumnCodec.getCompressedSize(ff, fd, name);
+            final long src = TableUtils.mapRO(ff, fd, fileSize);
+            try {
+                final long rawSize = ColumnCodec.getDecodedSize(src);
+                if (rawSize > 0) {
+                    pageAddress = Unsafe.malloc(rawSize);
+                    this.size = rawSize;
+                    ColumnCodec.decode(src, fileSize, pageAddress);
+                }
+            } finally {
+                ff.munmap(src, fileSize);
+            }
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+        LOG.debug().$("decompressed ").$(name).$(" [fd=").$(fd).$(", size=").$(this.size).$(']').$();
+    }
+
+    private void readRawFile(long newSize) {
+        final Path path = Path.getThreadLocal(rawFileName).$();
+        if (!ff.exists(path)) {
+            throw CairoException.instance(0).put("compressed column cannot be extended [file=").put(path)
+                    .put(", size=").put(size)
+                    .put(", newSize=").put(newSize)
+                    .put(']');
+        }
+        final long rawFd = TableUtils.openRO(ff, path, LOG);
+        try {
+            final long rawSize = ff.length(rawFd);
+            if (rawSize < newSize) {
+                throw CairoException.instance(0).put("column file is too short [file=").put(path)
+                        .put(", size=").put(rawSize)
+                        .put(", newSize=").put(newSize)
+                        .put(']');
+            }
+            pageAddress = pageAddress == 0 ? Unsafe.malloc(rawSize) : Unsafe.realloc(pageAddress, size, rawSize);
+            size = rawSize;
+            if (ff.read(rawFd, pageAddress, rawSize, 0) != rawSize) {
+                throw CairoException.instance(ff.errno()).put("could not read column file [file=").put(path).put(']');
+            }
+            LOG.info().$("switched to decompressed column file [file=").$(path).$(", size=").$(rawSize).$(']').$();
+        } finally {
+            ff.close(rawFd);
+        }
+    }
+}
@@ -79,6 +79,10 @@ public class Vm {
         return new MemoryCARWImpl(pageSize, maxPages);
     }
 
+    public static MemoryARW getARWInstance(long pageSize, int maxPages, int memoryTag) {
+        return new MemoryCARWImpl(pageSize, maxPages, memoryTag);
+    }
+
     public static MemoryCARW getCARWInstance(long pageSize, int maxPages) {
         return new MemoryCARWImpl(pageSize, maxPages);
     }
@@ -91,6 +95,10 @@ public class Vm {
         return new MemoryCMARWImpl();
     }
 
+    public static MemoryMR getDecompressedMRInstance(FilesFacade ff, LPSZ name) {
+        return new MemoryCMRDecompressedImpl(ff, name);
+    }
+
     public static MemoryMA getMAInstance() {
         return new MemoryPMAImpl();
     }
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.vm.api.MemoryMR;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.std.*;
+import io.questdb.std.str.NativeLPSZ;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges committed rows of write-ahead logs into tables. Every run takes table writer once per
+ * table and applies rows of all pending segments of that table in a single commit, so that
+ * out-of-order data from many logs is sorted and merged into partitions in one go. Tables
+ * whose writer is busy are skipped until the next run.
+ * <p>
+ * Job also keeps registry of all segments known to the engine. Segments left on disk by
+ * previous instance of the engine are registered when job is created.
+ */
+public class WalApplyJob extends SynchronizedJob implements Closeable {
+    public static final String WAL_DIR_NAME = ".wal";
+    private static final Log LOG = LogFactory.getLog(WalApplyJob.class);
+    private static final String LOCK_REASON = "walApply";
+    private final CairoEngine engine;
+    private final FilesFacade ff;
+    // guarded by itself
+    private final ObjList<WalSegment> segments = new ObjList<>();
+    private final ObjList<WalSegment> work = new ObjList<>();
+    private final LongList applyLimits = new LongList();
+    private final IntList columnIndexes = new IntList();
+    private final AtomicLong walIdGenerator = new AtomicLong();
+    private final Path path = new Path();
+    private final NativeLPSZ nativeLPSZ = new NativeLPSZ();
+    private final CharSequence root;
+    private final int rootLen;
+
+    public WalApplyJob(CairoEngine engine) {
+        this.engine = engine;
+        final CairoConfiguration configuration = engine.getConfiguration();
+        this.ff = configuration.getFilesFacade();
+        this.root = configuration.getRoot();
+        this.rootLen = path.of(root).concat(WAL_DIR_NAME).length();
+        try {
+            recover();
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (segments) {
+            Misc.freeObjList(segments);
+            segments.clear();
+        }
+        Misc.free(path);
+    }
+
+    public long getNextWalId() {
+        return walIdGenerator.incrementAndGet();
+    }
+
+    public int getSegmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    private static boolean isSameType(int walType, int tableType) {
+        return ColumnType.tagOf(walType) == ColumnType.tagOf(tableType)
+                && (!ColumnType.isGeoHash(walType) || walType == tableType);
+    }
+
+    private static void copyValue(TableWriter.Row row, int index, int type, MemoryMR primary, MemoryMR secondary, long r) {
+        switch (ColumnType.storageTag(type)) {
+            case ColumnType.BOOLEAN:
+                row.putBool(index, primary.getBool(r));
+                break;
+            case ColumnType.BYTE:
+                row.putByte(index, primary.getByte(r));
+                break;
+            case ColumnType.SHORT:
+                row.putShort(index, primary.getShort(r << 1));
+                break;
+            case ColumnType.CHAR:
+                row.putChar(index, primary.getChar(r << 1));
+                break;
+            case ColumnType.INT:
+                row.putInt(index, primary.getInt(r << 2));
+                break;
+            case ColumnType.FLOAT:
+                row.putFloat(index, primary.getFloat(r << 2));
+                break;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                row.putLong(index, primary.getLong(r << 3));
+                break;
+            case ColumnType.DOUBLE:
+                row.putDouble(index, primary.getDouble(r << 3));
+                break;
+            case ColumnType.LONG256:
+                row.putLong256(index, primary.getLong256A(r << 5));
+                break;
+            case ColumnType.STRING:
+                row.putStr(index, primary.getStr(secondary.getLong(r << 3)));
+                break;
+            case ColumnType.SYMBOL:
+                row.putSym(index, primary.getStr(secondary.getLong(r << 3)));
+                break;
+            case ColumnType.BINARY:
+                row.putBin(index, primary.getBin(secondary.getLong(r << 3)));
+                break;
+            case ColumnType.GEOBYTE:
+                row.putGeoHash(index, primary.getByte(r));
+                break;
+            case ColumnType.GEOSHORT:
+                row.putGeoHash(index, primary.getShort(r << 1));
+                break;
+            case ColumnType.GEOINT:
+                row.putGeoHash(index, primary.getInt(r << 2));
+                break;
+            case ColumnType.GEOLONG:
+                row.putGeoHash(index, primary.getLong(r << 3));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void applySegment(TableWriter writer, WalSegment segment, long hi) {
+        final long lo = segment.getAppliedRowCount();
+        segment.openColumns(ff, setSegmentPath(segment));
+        path.trimTo(rootLen);
+
+        final GenericRecordMetadata walMetadata = segment.getMetadata();
+        final TableWriterMetadata tableMetadata = writer.getMetadata();
+        final int columnCount = walMetadata.getColumnCount();
+        columnIndexes.clear();
+        for (int i = 0; i < columnCount; i++) {
+            int index = tableMetadata.getColumnIndexQuiet(walMetadata.getColumnName(i));
+            if (index > -1 && !isSameType(walMetadata.getColumnType(i), tableMetadata.getColumnType(index))) {
+                LOG.error().$("column type changed, WAL values are skipped [table=").$(segment.getTableName())
+                        .$(", column=").$(walMetadata.getColumnName(i))
+                        .$(", wal=").$(segment.getWalId())
+                        .$(", segment=").$(segment.getSegmentId())
+                        .$(']').$();
+                index = -1;
+            }
+            columnIndexes.add(index);
+        }
+
+        final int timestampIndex = walMetadata.getTimestampIndex();
+        final MemoryMR timestampColumn = timestampIndex > -1 ? segment.getColumn(timestampIndex * 2) : null;
+        for (long r = lo; r < hi; r++) {
+            final TableWriter.Row row = timestampColumn != null ? writer.newRow(timestampColumn.getLong(r << 3)) : writer.newRow();
+            for (int i = 0; i < columnCount; i++) {
+                final int index = columnIndexes.getQuick(i);
+                if (index > -1 && i != timestampIndex) {
+                    copyValue(row, index, walMetadata.getColumnType(i), segment.getColumn(i * 2), segment.getColumn(i * 2 + 1), r);
+                }
+            }
+            row.append();
+        }
+    }
+
+    private boolean applyTable(int lo) {
+        final String tableName = work.getQuick(lo).getTableName();
+        final int n = work.size();
+        boolean pending = false;
+        for (int i = lo; i < n; i++) {
+            final WalSegment segment = work.getQuick(i);
+            if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                final long hi = segment.getCommittedRowCount();
+                applyLimits.setQuick(i, hi);
+                pending |= hi > segment.getAppliedRowCount();
+            }
+        }
+
+        if (pending) {
+            final TableWriter writer;
+            try {
+                writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, tableName, LOCK_REASON);
+            } catch (EntryUnavailableException e) {
+                // table is busy, try next time
+                skipTable(lo, tableName);
+                return false;
+            } catch (CairoException e) {
+                final int status = engine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, tableName);
+                // table status check reuses the path
+                path.of(root).concat(WAL_DIR_NAME);
+                if (status == TableUtils.TABLE_DOES_NOT_EXIST) {
+                    LOG.info().$("table does not exist, discarding WAL [table=").$(tableName).$(']').$();
+                    discardTable(lo, tableName);
+                    return true;
+                }
+                LOG.error().$("could not open table writer [table=").$(tableName).$(", e=").$((Sinkable) e).$(']').$();
+                skipTable(lo, tableName);
+                return false;
+            }
+
+            long rowCount = 0;
+            try {
+                for (int i = lo; i < n; i++) {
+                    final WalSegment segment = work.getQuick(i);
+                    if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                        final long hi = applyLimits.getQuick(i);
+                        rowCount += hi - segment.getAppliedRowCount();
+                        applySegment(writer, segment, hi);
+                    }
+                }
+                writer.commit();
+            } catch (Throwable e) {
+                LOG.error().$("could not apply WAL [table=").$(tableName).$(", e=").$(e).$(']').$();
+                writer.rollback();
+                skipTable(lo, tableName);
+                return false;
+            } finally {
+                writer.close();
+            }
+
+            for (int i = lo; i < n; i++) {
+                final WalSegment segment = work.getQuick(i);
+                if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                    segment.setAppliedRowCount(applyLimits.getQuick(i));
+                }
+            }
+            LOG.info().$("applied WAL [table=").$(tableName).$(", rows=").$(rowCount).$(']').$();
+        }
+        return removeApplied(lo, tableName) || pending;
+    }
+
+    private void discardTable(int lo, String tableName) {
+        for (int i = lo, n = work.size(); i < n; i++) {
+            final WalSegment segment = work.getQuick(i);
+            if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                // writer may still append to segment, such segment is removed after writer is closed
+                if (segment.isSealed()) {
+                    removeSegment(segment);
+                }
+                work.setQuick(i, null);
+            }
+        }
+    }
+
+    private void recover() {
+        if (!ff.exists(path.slash$())) {
+            return;
+        }
+        path.trimTo(rootLen);
+
+        final ObjList<String> tableNames = new ObjList<>();
+        final LongList walIds = new LongList();
+        final LongList segmentIds = new LongList();
+        ff.iterateDir(path.$(), (name, type) -> {
+            nativeLPSZ.of(name);
+            if (type == Files.DT_DIR && !Files.isDots(nativeLPSZ)) {
+                tableNames.add(Chars.toString(nativeLPSZ));
+            }
+        });
+
+        for (int t = 0, tn = tableNames.size(); t < tn; t++) {
+            final String tableName = tableNames.getQuick(t);
+            walIds.clear();
+            ff.iterateDir(path.trimTo(rootLen).concat(tableName).$(), (name, type) -> {
+                nativeLPSZ.of(name);
+                if (type == Files.DT_DIR && !Files.isDots(nativeLPSZ)) {
+                    try {
+                        walIds.add(Numbers.parseLong(nativeLPSZ));
+                    } catch (NumericException ignore) {
+                    }
+                }
+            });
+            walIds.sort();
+
+            for (int w = 0, wn = walIds.size(); w < wn; w++) {
+                final long walId = walIds.getQuick(w);
+                if (walId > walIdGenerator.get()) {
+                    walIdGenerator.set(walId);
+                }
+                segmentIds.clear();
+                ff.iterateDir(path.trimTo(rootLen).concat(tableName).slash().put(walId).$(), (name, type) -> {
+                    nativeLPSZ.of(name);
+                    if (type == Files.DT_DIR && !Files.isDots(nativeLPSZ)) {
+                        try {
+                            segmentIds.add(Numbers.parseInt(nativeLPSZ));
+                        } catch (NumericException ignore) {
+                        }
+                    }
+                });
+                segmentIds.sort();
+
+                for (int s = 0, sn = segmentIds.size(); s < sn; s++) {
+                    final int segmentId = (int) segmentIds.getQuick(s);
+                    path.trimTo(rootLen).concat(tableName).slash().put(walId).slash().put(segmentId);
+                    WalSegment segment = null;
+                    try {
+                        segment = WalSegment.open(ff, path, tableName, walId, segmentId);
+                    } catch (CairoException e) {
+                        LOG.error().$("could not open WAL segment, removing [path=").$(path).$(", e=").$((Sinkable) e).$(']').$();
+                        ff.rmdir(path.slash$());
+                    }
+                    if (segment != null) {
+                        segment.seal(s == sn - 1);
+                        segments.add(segment);
+                    }
+                }
+
+                if (segmentIds.size() == 0) {
+                    ff.rmdir(path.trimTo(rootLen).concat(tableName).slash().put(walId).slash$());
+                }
+            }
+        }
+        path.trimTo(rootLen);
+        LOG.info().$("recovered WAL segments [count=").$(segments.size()).$(']').$();
+    }
+
+    private boolean removeApplied(int lo, String tableName) {
+        boolean removed = false;
+        for (int i = lo, n = work.size(); i < n; i++) {
+            final WalSegment segment = work.getQuick(i);
+            if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                // committed row count of sealed segment does not change
+                if (segment.isSealed() && segment.getAppliedRowCount() == segment.getCommittedRowCount()) {
+                    removeSegment(segment);
+                    removed = true;
+                }
+                work.setQuick(i, null);
+            }
+        }
+        return removed;
+    }
+
+    private void removeSegment(WalSegment segment) {
+        synchronized (segments) {
+            segments.remove(segment);
+        }
+        segment.close();
+        setSegmentPath(segment);
+        int errno;
+        if ((errno = ff.rmdir(path.slash$())) != 0) {
+            LOG.error().$("could not remove WAL segment [path=").$(path).$(", errno=").$(errno).$(']').$();
+        }
+        if (segment.isLast()) {
+            // segments are applied in order, the last segment of closed log is removed after all others
+            path.trimTo(rootLen).concat(segment.getTableName()).slash().put(segment.getWalId());
+            if ((errno = ff.rmdir(path.slash$())) != 0) {
+                LOG.error().$("could not remove WAL [path=").$(path).$(", errno=").$(errno).$(']').$();
+            }
+        }
+        path.trimTo(rootLen);
+    }
+
+    private Path setSegmentPath(WalSegment segment) {
+        return path.trimTo(rootLen)
+                .concat(segment.getTableName())
+                .slash().put(segment.getWalId())
+                .slash().put(segment.getSegmentId());
+    }
+
+    private void skipTable(int lo, String tableName) {
+        for (int i = lo, n = work.size(); i < n; i++) {
+            final WalSegment segment = work.getQuick(i);
+            if (segment != null && Chars.equals(segment.getTableName(), tableName)) {
+                work.setQuick(i, null);
+            }
+        }
+    }
+
+    void register(WalSegment segment) {
+        synchronized (segments) {
+            segments.add(segment);
+        }
+    }
+
+    @Override
+    protected boolean runSerially() {
+        synchronized (segments) {
+            work.addAll(segments);
+        }
+        final int n = work.size();
+        applyLimits.setAll(n, 0);
+        boolean useful = false;
+        for (int i = 0; i < n; i++) {
+            if (work.getQuick(i) != null) {
+                useful |= applyTable(i);
+            }
+        }
+        work.clear();
+        return useful;
+    }
+}
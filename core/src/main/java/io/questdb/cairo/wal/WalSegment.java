@@ -0,0 +1,238 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCMARW;
+import io.questdb.cairo.vm.api.MemoryMR;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * Append-only slice of a write-ahead log. Segment directory contains one file per column
+ * (two for variable length columns) plus two small files:
+ * <ul>
+ *     <li>_meta - column count, designated timestamp index and (type, name) of each column</li>
+ *     <li>_wal - number of committed rows followed by number of rows applied to the table</li>
+ * </ul>
+ * Rows are appended by a single {@link WalWriter} and read by {@link WalApplyJob}. Writer publishes
+ * committed row count via volatile field only after column data has been written, which lets
+ * the job read committed rows while writer keeps appending.
+ */
+class WalSegment implements Closeable {
+    static final String META_FILE_NAME = "_meta";
+    static final String STATE_FILE_NAME = "_wal";
+    private static final long STATE_OFFSET_COMMITTED_ROWS = 0;
+    private static final long STATE_OFFSET_APPLIED_ROWS = 8;
+    private final String tableName;
+    private final long walId;
+    private final int segmentId;
+    private final GenericRecordMetadata metadata;
+    private final MemoryCMARW stateMem = Vm.getCMARWInstance();
+    // primary and secondary column memory, mapped lazily by apply job
+    private final ObjList<MemoryMR> columns = new ObjList<>();
+    private volatile long committedRowCount;
+    private volatile boolean sealed;
+    private volatile boolean last;
+    // accessed by apply job only
+    private long appliedRowCount;
+
+    private WalSegment(String tableName, long walId, int segmentId, GenericRecordMetadata metadata) {
+        this.tableName = tableName;
+        this.walId = walId;
+        this.segmentId = segmentId;
+        this.metadata = metadata;
+    }
+
+    static WalSegment create(
+            FilesFacade ff,
+            Path path,
+            int mkDirMode,
+            String tableName,
+            long walId,
+            int segmentId,
+            RecordMetadata metadata
+    ) {
+        final int plen = path.length();
+        if (ff.mkdirs(path.slash$(), mkDirMode) != 0) {
+            throw CairoException.instance(ff.errno()).put("could not create WAL segment [path=").put(path).put(']');
+        }
+
+        final WalSegment segment = new WalSegment(tableName, walId, segmentId, GenericRecordMetadata.copyOf(metadata));
+        try {
+            try (MemoryCMARW metaMem = Vm.getSmallCMARWInstance(ff, path.trimTo(plen).concat(META_FILE_NAME).$())) {
+                final int columnCount = metadata.getColumnCount();
+                metaMem.putInt(columnCount);
+                metaMem.putInt(metadata.getTimestampIndex());
+                for (int i = 0; i < columnCount; i++) {
+                    metaMem.putInt(metadata.getColumnType(i));
+                    metaMem.putStr(metadata.getColumnName(i));
+                }
+            }
+            segment.stateMem.of(ff, path.trimTo(plen).concat(STATE_FILE_NAME).$(), ff.getPageSize());
+            segment.stateMem.putLong(0);
+            segment.stateMem.putLong(0);
+            return segment;
+        } catch (Throwable e) {
+            segment.close();
+            throw e;
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    /**
+     * Opens segment left on disk by previous instance of the engine. Such segment
+     * is sealed - no more rows can be appended to it.
+     */
+    static WalSegment open(FilesFacade ff, Path path, String tableName, long walId, int segmentId) {
+        final int plen = path.length();
+        WalSegment segment = null;
+        try {
+            final GenericRecordMetadata metadata = new GenericRecordMetadata();
+            try (MemoryMR metaMem = Vm.getMRInstance(ff, path.concat(META_FILE_NAME).$(), Long.MAX_VALUE)) {
+                final int columnCount = metaMem.getInt(0);
+                final int timestampIndex = metaMem.getInt(4);
+                long offset = 8;
+                for (int i = 0; i < columnCount; i++) {
+                    final int type = metaMem.getInt(offset);
+                    final CharSequence name = metaMem.getStr(offset + 4);
+                    metadata.add(new TableColumnMetadata(Chars.toString(name), type, false, 0, false, null));
+                    offset += 4 + Vm.getStorageLength(name);
+                }
+                metadata.setTimestampIndex(timestampIndex);
+            }
+            segment = new WalSegment(tableName, walId, segmentId, metadata);
+            segment.stateMem.of(ff, path.trimTo(plen).concat(STATE_FILE_NAME).$(), ff.getPageSize());
+            segment.committedRowCount = segment.stateMem.getLong(STATE_OFFSET_COMMITTED_ROWS);
+            segment.appliedRowCount = segment.stateMem.getLong(STATE_OFFSET_APPLIED_ROWS);
+            segment.sealed = true;
+            return segment;
+        } catch (Throwable e) {
+            Misc.free(segment);
+            throw e;
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(columns);
+        columns.clear();
+        stateMem.close();
+    }
+
+    long getAppliedRowCount() {
+        return appliedRowCount;
+    }
+
+    MemoryMR getColumn(int index) {
+        return columns.getQuick(index);
+    }
+
+    long getCommittedRowCount() {
+        return committedRowCount;
+    }
+
+    GenericRecordMetadata getMetadata() {
+        return metadata;
+    }
+
+    int getSegmentId() {
+        return segmentId;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    long getWalId() {
+        return walId;
+    }
+
+    boolean isLast() {
+        return last;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * Maps column files of this segment for reading. Mapping is extended to the current file size
+     * on every call, column data of committed rows is always within the file size.
+     */
+    void openColumns(FilesFacade ff, Path path) {
+        final int plen = path.length();
+        try {
+            if (columns.size() == 0) {
+                for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+                    final CharSequence name = metadata.getColumnName(i);
+                    columns.add(Vm.getMRInstance(ff, WalWriter.dFile(path.trimTo(plen), name), Long.MAX_VALUE));
+                    if (ColumnType.isVariableLength(WalWriter.getStorageType(metadata.getColumnType(i)))) {
+                        columns.add(Vm.getMRInstance(ff, WalWriter.iFile(path.trimTo(plen), name), Long.MAX_VALUE));
+                    } else {
+                        columns.add(null);
+                    }
+                }
+            } else {
+                for (int i = 0, n = columns.size(); i < n; i++) {
+                    final MemoryMR mem = columns.getQuick(i);
+                    if (mem != null) {
+                        mem.extend(ff.length(mem.getFd()));
+                    }
+                }
+            }
+        } finally {
+            path.trimTo(plen);
+        }
+    }
+
+    void seal(boolean last) {
+        this.last = last;
+        this.sealed = true;
+    }
+
+    void setAppliedRowCount(long appliedRowCount) {
+        this.appliedRowCount = appliedRowCount;
+        stateMem.putLong(STATE_OFFSET_APPLIED_ROWS, appliedRowCount);
+    }
+
+    void setCommittedRowCount(long committedRowCount, int commitMode) {
+        stateMem.putLong(STATE_OFFSET_COMMITTED_ROWS, committedRowCount);
+        if (commitMode != CommitMode.NOSYNC) {
+            stateMem.sync(commitMode == CommitMode.ASYNC);
+        }
+        this.committedRowCount = committedRowCount;
+    }
+}
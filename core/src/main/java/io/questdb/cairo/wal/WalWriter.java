@@ -0,0 +1,444 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.*;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * Appends rows of a single table to a write-ahead log. Unlike {@link TableWriter} there can be
+ * any number of WAL writers per table, each owning its own log directory, so that concurrent
+ * connections do not serialize on the table lock. Committed rows are merged into table partitions
+ * in batches by {@link WalApplyJob}.
+ * <p>
+ * Log is a sequence of segments. Writer switches to new segment once number of committed rows
+ * in the current one reaches {@link CairoConfiguration#getWalSegmentRolloverRowCount()}, which
+ * lets apply job remove fully applied segments while writer is still in use.
+ * <p>
+ * Symbol values are logged as strings, they are resolved to symbol keys when rows are applied.
+ * Instances are not thread-safe.
+ */
+public class WalWriter implements Closeable {
+    private static final Log LOG = LogFactory.getLog(WalWriter.class);
+    private final FilesFacade ff;
+    private final int mkDirMode;
+    private final int commitMode;
+    private final long segmentRolloverRowCount;
+    private final WalApplyJob applyJob;
+    private final String tableName;
+    private final long walId;
+    private final GenericRecordMetadata metadata;
+    private final int columnCount;
+    private final int timestampIndex;
+    private final Path path = new Path();
+    private final int rootLen;
+    // primary and secondary memory of each column, secondary is null for fixed size columns
+    private final ObjList<MemoryMARW> columns;
+    private final ObjList<Runnable> nullSetters;
+    private final LongList refs = new LongList();
+    private final Row row = new Row();
+    private WalSegment segment;
+    private int segmentId = -1;
+    private long rowCount;
+    private long masterRef;
+
+    public WalWriter(
+            CairoConfiguration configuration,
+            CharSequence tableName,
+            long walId,
+            RecordMetadata tableMetadata,
+            WalApplyJob applyJob
+    ) {
+        this.ff = configuration.getFilesFacade();
+        this.mkDirMode = configuration.getMkDirMode();
+        this.commitMode = configuration.getCommitMode();
+        this.segmentRolloverRowCount = configuration.getWalSegmentRolloverRowCount();
+        this.applyJob = applyJob;
+        this.tableName = Chars.toString(tableName);
+        this.walId = walId;
+        this.metadata = new GenericRecordMetadata();
+        this.columnCount = tableMetadata.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            metadata.add(new TableColumnMetadata(tableMetadata.getColumnName(i), tableMetadata.getColumnType(i), false, 0, false, null));
+        }
+        this.timestampIndex = tableMetadata.getTimestampIndex();
+        metadata.setTimestampIndex(timestampIndex);
+        this.columns = new ObjList<>(columnCount * 2);
+        this.nullSetters = new ObjList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            final MemoryMARW primary = Vm.getCMARWInstance();
+            final MemoryMARW secondary = ColumnType.isVariableLength(getStorageType(metadata.getColumnType(i))) ? Vm.getCMARWInstance() : null;
+            columns.add(primary);
+            columns.add(secondary);
+            configureNullSetter(nullSetters, metadata.getColumnType(i), primary, secondary);
+            refs.add(-1);
+        }
+        this.rootLen = path.of(configuration.getRoot()).concat(WalApplyJob.WAL_DIR_NAME).concat(tableName).slash().put(walId).length();
+        try {
+            openNextSegment();
+        } catch (Throwable e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Discards uncommitted rows and closes the log. Committed rows remain in the log until
+     * they are applied to the table.
+     */
+    @Override
+    public void close() {
+        if (segment != null) {
+            rollback();
+            closeSegment(true);
+        }
+        Misc.freeObjList(columns);
+        Misc.free(path);
+    }
+
+    /**
+     * Makes rows appended since the last commit visible to {@link WalApplyJob}. Depending on
+     * commit mode column data is synced to disk before committed row count is published.
+     */
+    public void commit() {
+        if (rowCount > segment.getCommittedRowCount()) {
+            if (commitMode != CommitMode.NOSYNC) {
+                final boolean async = commitMode == CommitMode.ASYNC;
+                for (int i = 0, n = columns.size(); i < n; i++) {
+                    final MemoryMARW mem = columns.getQuick(i);
+                    if (mem != null) {
+                        mem.sync(async);
+                    }
+                }
+            }
+            segment.setCommittedRowCount(rowCount, commitMode);
+            if (rowCount >= segmentRolloverRowCount) {
+                closeSegment(false);
+                openNextSegment();
+            }
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getSegmentId() {
+        return segmentId;
+    }
+
+    public CharSequence getTableName() {
+        return tableName;
+    }
+
+    public long getWalId() {
+        return walId;
+    }
+
+    public Row newRow() {
+        return newRow(Numbers.LONG_NaN);
+    }
+
+    public Row newRow(long timestamp) {
+        masterRef++;
+        if (timestampIndex != -1) {
+            if (timestamp == Numbers.LONG_NaN) {
+                throw CairoException.instance(0).put("designated timestamp is required [table=").put(tableName).put(']');
+            }
+            row.putLong(timestampIndex, timestamp);
+        }
+        return row;
+    }
+
+    /**
+     * Discards rows appended since the last commit.
+     */
+    public void rollback() {
+        rewindTo(segment.getCommittedRowCount());
+    }
+
+    static LPSZ dFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(TableUtils.FILE_SUFFIX_D).$();
+    }
+
+    /**
+     * Symbols are logged as strings, WAL does not have access to symbol tables of the table.
+     */
+    static int getStorageType(int columnType) {
+        final int tag = ColumnType.storageTag(columnType);
+        return tag == ColumnType.SYMBOL ? ColumnType.STRING : tag;
+    }
+
+    static LPSZ iFile(Path path, CharSequence columnName) {
+        return path.concat(columnName).put(TableUtils.FILE_SUFFIX_I).$();
+    }
+
+    private static void configureNullSetter(ObjList<Runnable> nullers, int type, MemoryMARW mem1, MemoryMARW mem2) {
+        switch (getStorageType(type)) {
+            case ColumnType.BOOLEAN:
+            case ColumnType.BYTE:
+                nullers.add(() -> mem1.putByte((byte) 0));
+                break;
+            case ColumnType.DOUBLE:
+                nullers.add(() -> mem1.putDouble(Double.NaN));
+                break;
+            case ColumnType.FLOAT:
+                nullers.add(() -> mem1.putFloat(Float.NaN));
+                break;
+            case ColumnType.INT:
+                nullers.add(() -> mem1.putInt(Numbers.INT_NaN));
+                break;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                nullers.add(() -> mem1.putLong(Numbers.LONG_NaN));
+                break;
+            case ColumnType.LONG256:
+                nullers.add(() -> mem1.putLong256(Numbers.LONG_NaN, Numbers.LONG_NaN, Numbers.LONG_NaN, Numbers.LONG_NaN));
+                break;
+            case ColumnType.SHORT:
+                nullers.add(() -> mem1.putShort((short) 0));
+                break;
+            case ColumnType.CHAR:
+                nullers.add(() -> mem1.putChar((char) 0));
+                break;
+            case ColumnType.STRING:
+                nullers.add(() -> {
+                    mem2.putLong(mem1.getAppendOffset());
+                    mem1.putNullStr();
+                });
+                break;
+            case ColumnType.BINARY:
+                nullers.add(() -> {
+                    mem2.putLong(mem1.getAppendOffset());
+                    mem1.putNullBin();
+                });
+                break;
+            case ColumnType.GEOBYTE:
+                nullers.add(() -> mem1.putByte(GeoHashes.BYTE_NULL));
+                break;
+            case ColumnType.GEOSHORT:
+                nullers.add(() -> mem1.putShort(GeoHashes.SHORT_NULL));
+                break;
+            case ColumnType.GEOINT:
+                nullers.add(() -> mem1.putInt(GeoHashes.INT_NULL));
+                break;
+            case ColumnType.GEOLONG:
+                nullers.add(() -> mem1.putLong(GeoHashes.NULL));
+                break;
+            default:
+                nullers.add(() -> {
+                });
+                break;
+        }
+    }
+
+    private void closeSegment(boolean last) {
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            final MemoryMARW mem = columns.getQuick(i);
+            if (mem != null) {
+                mem.close(true);
+            }
+        }
+        segment.seal(last);
+        segment = null;
+        LOG.info().$("closed WAL segment [table=").$(tableName)
+                .$(", wal=").$(walId)
+                .$(", segment=").$(segmentId)
+                .$(", last=").$(last)
+                .$(']').$();
+    }
+
+    private void openNextSegment() {
+        segmentId++;
+        rowCount = 0;
+        path.trimTo(rootLen).slash().put(segmentId);
+        final int plen = path.length();
+        try {
+            segment = WalSegment.create(ff, path, mkDirMode, tableName, walId, segmentId, metadata);
+            for (int i = 0; i < columnCount; i++) {
+                final CharSequence name = metadata.getColumnName(i);
+                columns.getQuick(i * 2).of(ff, dFile(path.trimTo(plen), name), ff.getMapPageSize());
+                final MemoryMARW secondary = columns.getQuick(i * 2 + 1);
+                if (secondary != null) {
+                    secondary.of(ff, iFile(path.trimTo(plen), name), ff.getMapPageSize());
+                }
+            }
+        } finally {
+            path.trimTo(rootLen);
+        }
+        // segment is published only when all of its files exist
+        applyJob.register(segment);
+        LOG.info().$("opened WAL segment [table=").$(tableName)
+                .$(", wal=").$(walId)
+                .$(", segment=").$(segmentId)
+                .$(']').$();
+    }
+
+    private void rewindTo(long targetRowCount) {
+        for (int i = 0; i < columnCount; i++) {
+            final MemoryMARW primary = columns.getQuick(i * 2);
+            final MemoryMARW secondary = columns.getQuick(i * 2 + 1);
+            if (secondary != null) {
+                // offset of the first discarded value is logged in the secondary column, if it has been written
+                if (secondary.getAppendOffset() > targetRowCount * Long.BYTES) {
+                    primary.jumpTo(secondary.getLong(targetRowCount * Long.BYTES));
+                }
+                secondary.jumpTo(targetRowCount * Long.BYTES);
+            } else {
+                primary.jumpTo(targetRowCount * ColumnType.sizeOf(metadata.getColumnType(i)));
+            }
+            refs.setQuick(i, -1);
+        }
+        rowCount = targetRowCount;
+    }
+
+    public class Row {
+
+        public void append() {
+            for (int i = 0; i < columnCount; i++) {
+                if (refs.getQuick(i) != masterRef) {
+                    nullSetters.getQuick(i).run();
+                }
+            }
+            rowCount++;
+        }
+
+        public void cancel() {
+            rewindTo(rowCount);
+        }
+
+        public void putBin(int index, BinarySequence sequence) {
+            final MemoryMARW primary = getPrimaryColumn(index);
+            getSecondaryColumn(index).putLong(primary.getAppendOffset());
+            primary.putBin(sequence);
+            notNull(index);
+        }
+
+        public void putBool(int index, boolean value) {
+            getPrimaryColumn(index).putBool(value);
+            notNull(index);
+        }
+
+        public void putByte(int index, byte value) {
+            getPrimaryColumn(index).putByte(value);
+            notNull(index);
+        }
+
+        public void putChar(int index, char value) {
+            getPrimaryColumn(index).putChar(value);
+            notNull(index);
+        }
+
+        public void putDate(int index, long value) {
+            putLong(index, value);
+        }
+
+        public void putDouble(int index, double value) {
+            getPrimaryColumn(index).putDouble(value);
+            notNull(index);
+        }
+
+        public void putFloat(int index, float value) {
+            getPrimaryColumn(index).putFloat(value);
+            notNull(index);
+        }
+
+        public void putGeoHash(int index, long value) {
+            final MemoryMARW primary = getPrimaryColumn(index);
+            switch (ColumnType.sizeOf(metadata.getColumnType(index))) {
+                case 1:
+                    primary.putByte((byte) value);
+                    break;
+                case 2:
+                    primary.putShort((short) value);
+                    break;
+                case 4:
+                    primary.putInt((int) value);
+                    break;
+                default:
+                    primary.putLong(value);
+                    break;
+            }
+            notNull(index);
+        }
+
+        public void putInt(int index, int value) {
+            getPrimaryColumn(index).putInt(value);
+            notNull(index);
+        }
+
+        public void putLong(int index, long value) {
+            getPrimaryColumn(index).putLong(value);
+            notNull(index);
+        }
+
+        public void putLong256(int index, long l0, long l1, long l2, long l3) {
+            getPrimaryColumn(index).putLong256(l0, l1, l2, l3);
+            notNull(index);
+        }
+
+        public void putShort(int index, short value) {
+            getPrimaryColumn(index).putShort(value);
+            notNull(index);
+        }
+
+        public void putStr(int index, CharSequence value) {
+            final MemoryMARW primary = getPrimaryColumn(index);
+            getSecondaryColumn(index).putLong(primary.getAppendOffset());
+            primary.putStr(value);
+            notNull(index);
+        }
+
+        public void putSym(int index, CharSequence value) {
+            putStr(index, value);
+        }
+
+        public void putTimestamp(int index, long value) {
+            putLong(index, value);
+        }
+
+        private MemoryMARW getPrimaryColumn(int columnIndex) {
+            return columns.getQuick(columnIndex * 2);
+        }
+
+        private MemoryMARW getSecondaryColumn(int columnIndex) {
+            return columns.getQuick(columnIndex * 2 + 1);
+        }
+
+        private void notNull(int index) {
+            refs.setQuick(index, masterRef);
+        }
+    }
+}
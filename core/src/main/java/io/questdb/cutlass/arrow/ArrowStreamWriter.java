@@ -0,0 +1,871 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.GeoHashes;
+import io.questdb.cairo.sql.PageFrame;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.cairo.sql.StaticSymbolTable;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.std.*;
+import io.questdb.std.str.AbstractCharSink;
+import io.questdb.std.str.CharSink;
+
+import java.io.Closeable;
+
+/**
+ * Encodes query result as Arrow IPC stream: schema message, dictionary batches, record batches
+ * and end-of-stream marker. Each message is staged as a list of memory segments, the first segment
+ * is encapsulated message metadata, the rest is message body. Fixed size columns of page frames
+ * are referenced in place, the other columns are converted to Arrow layout in native buffers.
+ * <p>
+ * Column types map to Arrow as follows: BOOLEAN - Bool, BYTE, SHORT, INT, LONG and geohashes -
+ * signed Int of the same width, FLOAT and DOUBLE - FloatingPoint, DATE - Date(MILLISECOND),
+ * TIMESTAMP - Timestamp(MICROSECOND, UTC), CHAR and STRING - Utf8, SYMBOL - Utf8 or dictionary
+ * encoded Utf8 when page frames are written, BINARY - Binary, LONG256 - FixedSizeBinary(32).
+ */
+public class ArrowStreamWriter implements Closeable, Mutable {
+    private static final int CONTINUATION_MARKER = -1;
+    private static final short METADATA_VERSION_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_NULL = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_BINARY = 4;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_BOOL = 6;
+    private static final byte TYPE_DATE = 8;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final byte TYPE_FIXED_SIZE_BINARY = 15;
+    private static final short PRECISION_SINGLE = 1;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short DATE_UNIT_MILLISECOND = 1;
+    private static final short TIME_UNIT_MICROSECOND = 2;
+    private static final int BUFFER_VALIDITY = 0;
+    private static final int BUFFER_OFFSETS = 1;
+    private static final int BUFFER_DATA = 2;
+    private static final int BUFFERS_PER_COLUMN = 3;
+    // segment sources other than column buffers
+    private static final int SEGMENT_METADATA = -1;
+    private static final int SEGMENT_ADDRESS = -2;
+    private static final int SEGMENT_ENTRY_SIZE = 3;
+    private static final int PADDING_SIZE = 8;
+    private static final long MEMORY_PAGE_SIZE = 64 * 1024;
+    private final FlatBufferBuilder fbb = new FlatBufferBuilder(1024);
+    private final MemoryCARW metadataMem = Vm.getCARWInstance(MEMORY_PAGE_SIZE, Integer.MAX_VALUE);
+    private final ObjList<MemoryCARW> columnMem = new ObjList<>();
+    // triplets of (source, offset or address, size)
+    private final LongList segments = new LongList();
+    // pairs of (length, null count)
+    private final LongList fieldNodes = new LongList();
+    // pairs of (body offset, size)
+    private final LongList bodyBuffers = new LongList();
+    private final IntList columnTypes = new IntList();
+    private final LongList nullCounts = new LongList();
+    private final IntList fieldOffsets = new IntList();
+    private final Utf8Sink utf8Sink = new Utf8Sink();
+    private long padding;
+    private RecordMetadata metadata;
+    private boolean dictionaryEncodeSymbols;
+    private long bodySize;
+    private int rowCount;
+
+    public ArrowStreamWriter() {
+        padding = Unsafe.calloc(PADDING_SIZE);
+    }
+
+    @Override
+    public void clear() {
+        metadata = null;
+        columnTypes.clear();
+        segments.clear();
+        rowCount = 0;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.free(metadataMem);
+        Misc.freeObjList(columnMem);
+        columnMem.clear();
+        if (padding != 0) {
+            Unsafe.free(padding, PADDING_SIZE);
+            padding = 0;
+        }
+    }
+
+    /**
+     * @return number of records appended to the current record batch
+     */
+    public int getRecordCount() {
+        return rowCount;
+    }
+
+    public long getSegmentAddress(int index) {
+        final int source = (int) segments.getQuick(index * SEGMENT_ENTRY_SIZE);
+        final long offset = segments.getQuick(index * SEGMENT_ENTRY_SIZE + 1);
+        switch (source) {
+            case SEGMENT_ADDRESS:
+                return offset;
+            case SEGMENT_METADATA:
+                return metadataMem.addressOf(offset);
+            default:
+                return columnMem.getQuick(source).addressOf(offset);
+        }
+    }
+
+    public int getSegmentCount() {
+        return segments.size() / SEGMENT_ENTRY_SIZE;
+    }
+
+    public long getSegmentSize(int index) {
+        return segments.getQuick(index * SEGMENT_ENTRY_SIZE + 2);
+    }
+
+    /**
+     * @return true when all columns can be written directly from page frames, i.e. they are
+     * fixed size and their nulls are represented by sentinel values
+     */
+    public static boolean isPageFrameCompatible(RecordMetadata metadata) {
+        for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+            switch (ColumnType.storageTag(metadata.getColumnType(i))) {
+                case ColumnType.BOOLEAN:
+                case ColumnType.BYTE:
+                case ColumnType.SHORT:
+                case ColumnType.CHAR:
+                case ColumnType.INT:
+                case ColumnType.LONG:
+                case ColumnType.DATE:
+                case ColumnType.TIMESTAMP:
+                case ColumnType.FLOAT:
+                case ColumnType.DOUBLE:
+                case ColumnType.SYMBOL:
+                case ColumnType.GEOBYTE:
+                case ColumnType.GEOSHORT:
+                case ColumnType.GEOINT:
+                case ColumnType.GEOLONG:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prepares writer for new result set.
+     *
+     * @param metadata                result set metadata
+     * @param dictionaryEncodeSymbols true when symbol columns are written as dictionary indexes, this
+     *                                is the case for page frames, which contain symbol keys
+     */
+    public void of(RecordMetadata metadata, boolean dictionaryEncodeSymbols) {
+        clear();
+        this.metadata = metadata;
+        this.dictionaryEncodeSymbols = dictionaryEncodeSymbols;
+        final int columnCount = metadata.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            columnTypes.add(metadata.getColumnType(i));
+        }
+        for (int i = columnMem.size(), n = columnCount * BUFFERS_PER_COLUMN; i < n; i++) {
+            columnMem.add(Vm.getCARWInstance(MEMORY_PAGE_SIZE, Integer.MAX_VALUE));
+        }
+        nullCounts.setAll(columnCount, 0);
+    }
+
+    /**
+     * Stages dictionary batch with all values of symbol table. Dictionary id is the column index.
+     */
+    public void putDictionary(int columnIndex, StaticSymbolTable symbolTable) {
+        beginMessage();
+        final MemoryCARW offsetsMem = getColumnMem(columnIndex, BUFFER_OFFSETS);
+        final MemoryCARW dataMem = getColumnMem(columnIndex, BUFFER_DATA);
+        offsetsMem.jumpTo(0);
+        dataMem.jumpTo(0);
+        offsetsMem.putInt(0);
+        utf8Sink.of(dataMem);
+        final int count = symbolTable.size();
+        for (int key = 0; key < count; key++) {
+            utf8Sink.encodeUtf8(symbolTable.valueOf(key));
+            offsetsMem.putInt((int) dataMem.getAppendOffset());
+        }
+        fieldNodes.add(count);
+        fieldNodes.add(0);
+        addEmptyBuffer();
+        addBuffer(columnIndex, BUFFER_OFFSETS, offsetsMem.getAppendOffset());
+        addBuffer(columnIndex, BUFFER_DATA, dataMem.getAppendOffset());
+
+        final int recordBatch = createRecordBatch(count);
+        fbb.startTable(3);
+        fbb.addFieldLong(0, columnIndex);
+        fbb.addFieldOffset(1, recordBatch);
+        putMessage(HEADER_DICTIONARY_BATCH, fbb.endTable());
+    }
+
+    public void putEndOfStream() {
+        segments.clear();
+        metadataMem.jumpTo(0);
+        metadataMem.putInt(CONTINUATION_MARKER);
+        metadataMem.putInt(0);
+        addSegment(SEGMENT_METADATA, 0, metadataMem.getAppendOffset());
+    }
+
+    /**
+     * Stages record batch with rows [rowLo, rowHi) of the page frame. Values of fixed size columns
+     * are referenced in place, page frame must remain valid until the message is sent.
+     */
+    public void putPageFrameBatch(PageFrame frame, long rowLo, long rowHi) {
+        assert dictionaryEncodeSymbols;
+        beginMessage();
+        final long count = rowHi - rowLo;
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final int tag = ColumnType.storageTag(columnTypes.getQuick(i));
+            final int shl = frame.getColumnSize(i);
+            long pageAddress = frame.getPageAddress(i);
+            if (pageAddress != 0) {
+                pageAddress += rowLo << shl;
+            }
+            switch (tag) {
+                case ColumnType.BOOLEAN:
+                    addField(count, 0);
+                    addEmptyBuffer();
+                    putFrameBits(i, pageAddress, count);
+                    break;
+                case ColumnType.BYTE:
+                case ColumnType.SHORT:
+                    addField(count, 0);
+                    addEmptyBuffer();
+                    addFrameValues(i, pageAddress, count, shl, tag);
+                    break;
+                case ColumnType.CHAR:
+                    addValidity(i, count, putFrameValidity(i, pageAddress, count, tag));
+                    putFrameChars(i, pageAddress, count);
+                    break;
+                default:
+                    addValidity(i, count, putFrameValidity(i, pageAddress, count, tag));
+                    addFrameValues(i, pageAddress, count, shl, tag);
+                    break;
+            }
+        }
+        putMessage(HEADER_RECORD_BATCH, createRecordBatch(count));
+    }
+
+    /**
+     * Appends record to the current record batch.
+     */
+    public void putRecord(Record record) {
+        final int row = rowCount++;
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final MemoryCARW dataMem = getColumnMem(i, BUFFER_DATA);
+            switch (ColumnType.storageTag(columnTypes.getQuick(i))) {
+                case ColumnType.BOOLEAN:
+                    putBit(dataMem, row, record.getBool(i));
+                    break;
+                case ColumnType.BYTE:
+                    dataMem.putByte(record.getByte(i));
+                    break;
+                case ColumnType.SHORT:
+                    dataMem.putShort(record.getShort(i));
+                    break;
+                case ColumnType.CHAR:
+                    final char c = record.getChar(i);
+                    if (putValidity(i, row, c != 0)) {
+                        utf8Sink.of(dataMem).putUtf8(c);
+                    }
+                    putOffset(i, dataMem);
+                    break;
+                case ColumnType.INT:
+                    final int iv = record.getInt(i);
+                    putValidity(i, row, iv != Numbers.INT_NaN);
+                    dataMem.putInt(iv);
+                    break;
+                case ColumnType.LONG:
+                    final long lv = record.getLong(i);
+                    putValidity(i, row, lv != Numbers.LONG_NaN);
+                    dataMem.putLong(lv);
+                    break;
+                case ColumnType.DATE:
+                    final long dv = record.getDate(i);
+                    putValidity(i, row, dv != Numbers.LONG_NaN);
+                    dataMem.putLong(dv);
+                    break;
+                case ColumnType.TIMESTAMP:
+                    final long tv = record.getTimestamp(i);
+                    putValidity(i, row, tv != Numbers.LONG_NaN);
+                    dataMem.putLong(tv);
+                    break;
+                case ColumnType.FLOAT:
+                    final float fv = record.getFloat(i);
+                    putValidity(i, row, fv == fv);
+                    dataMem.putFloat(fv);
+                    break;
+                case ColumnType.DOUBLE:
+                    final double v = record.getDouble(i);
+                    putValidity(i, row, v == v);
+                    dataMem.putDouble(v);
+                    break;
+                case ColumnType.GEOBYTE:
+                    final byte gb = record.getGeoHashByte(i);
+                    putValidity(i, row, gb != GeoHashes.BYTE_NULL);
+                    dataMem.putByte(gb);
+                    break;
+                case ColumnType.GEOSHORT:
+                    final short gs = record.getGeoHashShort(i);
+                    putValidity(i, row, gs != GeoHashes.SHORT_NULL);
+                    dataMem.putShort(gs);
+                    break;
+                case ColumnType.GEOINT:
+                    final int gi = record.getGeoHashInt(i);
+                    putValidity(i, row, gi != GeoHashes.INT_NULL);
+                    dataMem.putInt(gi);
+                    break;
+                case ColumnType.GEOLONG:
+                    final long gl = record.getGeoHashLong(i);
+                    putValidity(i, row, gl != GeoHashes.NULL);
+                    dataMem.putLong(gl);
+                    break;
+                case ColumnType.STRING:
+                    putUtf8(i, row, dataMem, record.getStr(i));
+                    break;
+                case ColumnType.SYMBOL:
+                    putUtf8(i, row, dataMem, record.getSym(i));
+                    break;
+                case ColumnType.BINARY:
+                    final BinarySequence bin = record.getBin(i);
+                    if (putValidity(i, row, bin != null)) {
+                        final long len = bin.length();
+                        bin.copyTo(dataMem.appendAddressFor(len), 0, len);
+                    }
+                    putOffset(i, dataMem);
+                    break;
+                case ColumnType.LONG256:
+                    dataMem.putLong256(record.getLong256A(i));
+                    break;
+                default:
+                    nullCounts.increment(i);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Stages record batch with records appended since the last call to {@link #startRecordBatch()}.
+     */
+    public void putRecordBatch() {
+        beginMessage();
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final long nullCount = nullCounts.getQuick(i);
+            switch (ColumnType.storageTag(columnTypes.getQuick(i))) {
+                case ColumnType.BOOLEAN:
+                case ColumnType.BYTE:
+                case ColumnType.SHORT:
+                case ColumnType.LONG256:
+                    addField(rowCount, 0);
+                    addEmptyBuffer();
+                    addBuffer(i, BUFFER_DATA, getColumnMem(i, BUFFER_DATA).getAppendOffset());
+                    break;
+                case ColumnType.CHAR:
+                case ColumnType.STRING:
+                case ColumnType.SYMBOL:
+                case ColumnType.BINARY:
+                    addRecordValidity(i, nullCount);
+                    addBuffer(i, BUFFER_OFFSETS, getColumnMem(i, BUFFER_OFFSETS).getAppendOffset());
+                    addBuffer(i, BUFFER_DATA, getColumnMem(i, BUFFER_DATA).getAppendOffset());
+                    break;
+                case ColumnType.INT:
+                case ColumnType.LONG:
+                case ColumnType.DATE:
+                case ColumnType.TIMESTAMP:
+                case ColumnType.FLOAT:
+                case ColumnType.DOUBLE:
+                case ColumnType.GEOBYTE:
+                case ColumnType.GEOSHORT:
+                case ColumnType.GEOINT:
+                case ColumnType.GEOLONG:
+                    addRecordValidity(i, nullCount);
+                    addBuffer(i, BUFFER_DATA, getColumnMem(i, BUFFER_DATA).getAppendOffset());
+                    break;
+                default:
+                    // null type has no buffers
+                    addField(rowCount, rowCount);
+                    break;
+            }
+        }
+        putMessage(HEADER_RECORD_BATCH, createRecordBatch(rowCount));
+    }
+
+    public void putSchema() {
+        beginMessage();
+        final int columnCount = columnTypes.size();
+        fieldOffsets.clear();
+        for (int i = 0; i < columnCount; i++) {
+            fieldOffsets.add(createField(i));
+        }
+        fbb.startVector(Integer.BYTES, columnCount, Integer.BYTES);
+        for (int i = columnCount - 1; i > -1; i--) {
+            fbb.addOffset(fieldOffsets.getQuick(i));
+        }
+        final int fields = fbb.endVector();
+        fbb.startTable(4);
+        fbb.addFieldOffset(1, fields);
+        putMessage(HEADER_SCHEMA, fbb.endTable());
+    }
+
+    /**
+     * Starts accumulating records for new record batch.
+     */
+    public void startRecordBatch() {
+        rowCount = 0;
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            for (int j = 0; j < BUFFERS_PER_COLUMN; j++) {
+                getColumnMem(i, j).jumpTo(0);
+            }
+            switch (ColumnType.storageTag(columnTypes.getQuick(i))) {
+                case ColumnType.CHAR:
+                case ColumnType.STRING:
+                case ColumnType.SYMBOL:
+                case ColumnType.BINARY:
+                    getColumnMem(i, BUFFER_OFFSETS).putInt(0);
+                    break;
+                default:
+                    break;
+            }
+        }
+        nullCounts.setAll(columnTypes.size(), 0);
+    }
+
+    private static boolean isNotNull(long address, long row, int tag) {
+        switch (tag) {
+            case ColumnType.CHAR:
+                return Unsafe.getUnsafe().getChar(address + (row << 1)) != 0;
+            case ColumnType.INT:
+            case ColumnType.SYMBOL:
+                return Unsafe.getUnsafe().getInt(address + (row << 2)) != Numbers.INT_NaN;
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                return Unsafe.getUnsafe().getLong(address + (row << 3)) != Numbers.LONG_NaN;
+            case ColumnType.FLOAT:
+                final float f = Unsafe.getUnsafe().getFloat(address + (row << 2));
+                return f == f;
+            case ColumnType.DOUBLE:
+                final double d = Unsafe.getUnsafe().getDouble(address + (row << 3));
+                return d == d;
+            case ColumnType.GEOBYTE:
+                return Unsafe.getUnsafe().getByte(address + row) != GeoHashes.BYTE_NULL;
+            case ColumnType.GEOSHORT:
+                return Unsafe.getUnsafe().getShort(address + (row << 1)) != GeoHashes.SHORT_NULL;
+            case ColumnType.GEOINT:
+                return Unsafe.getUnsafe().getInt(address + (row << 2)) != GeoHashes.INT_NULL;
+            case ColumnType.GEOLONG:
+                return Unsafe.getUnsafe().getLong(address + (row << 3)) != GeoHashes.NULL;
+            default:
+                return true;
+        }
+    }
+
+    private static void putBit(MemoryCARW mem, int row, boolean bit) {
+        if ((row & 7) == 0) {
+            mem.putByte((byte) 0);
+        }
+        if (bit) {
+            final long address = mem.addressOf(row >>> 3);
+            Unsafe.getUnsafe().putByte(address, (byte) (Unsafe.getUnsafe().getByte(address) | (1 << (row & 7))));
+        }
+    }
+
+    private void addBuffer(int columnIndex, int buffer, long size) {
+        addBody(columnIndex * BUFFERS_PER_COLUMN + buffer, 0, size);
+    }
+
+    private void addBody(int source, long offset, long size) {
+        bodyBuffers.add(bodySize);
+        bodyBuffers.add(size);
+        if (size > 0) {
+            addSegment(source, offset, size);
+            final long alignedSize = (size + PADDING_SIZE - 1) & -PADDING_SIZE;
+            if (alignedSize > size) {
+                addSegment(SEGMENT_ADDRESS, padding, alignedSize - size);
+            }
+            bodySize += alignedSize;
+        }
+    }
+
+    private void addEmptyBuffer() {
+        bodyBuffers.add(bodySize);
+        bodyBuffers.add(0);
+    }
+
+    private void addField(long length, long nullCount) {
+        fieldNodes.add(length);
+        fieldNodes.add(nullCount);
+    }
+
+    private void addFrameValues(int columnIndex, long address, long count, int shl, int tag) {
+        final long size = count << shl;
+        if (address != 0) {
+            addBody(SEGMENT_ADDRESS, address, size);
+        } else {
+            // column top, values are nulls as if they were read from the table
+            final MemoryCARW dataMem = getColumnMem(columnIndex, BUFFER_DATA);
+            dataMem.jumpTo(0);
+            final long lo = dataMem.appendAddressFor(size);
+            switch (tag) {
+                case ColumnType.INT:
+                case ColumnType.SYMBOL:
+                    Vect.setMemoryInt(lo, Numbers.INT_NaN, count);
+                    break;
+                case ColumnType.LONG:
+                case ColumnType.DATE:
+                case ColumnType.TIMESTAMP:
+                    Vect.setMemoryLong(lo, Numbers.LONG_NaN, count);
+                    break;
+                case ColumnType.FLOAT:
+                    Vect.setMemoryFloat(lo, Float.NaN, count);
+                    break;
+                case ColumnType.DOUBLE:
+                    Vect.setMemoryDouble(lo, Double.NaN, count);
+                    break;
+                case ColumnType.GEOBYTE:
+                case ColumnType.GEOSHORT:
+                case ColumnType.GEOINT:
+                case ColumnType.GEOLONG:
+                    Vect.memset(lo, size, -1);
+                    break;
+                default:
+                    Vect.memset(lo, size, 0);
+                    break;
+            }
+            addBuffer(columnIndex, BUFFER_DATA, size);
+        }
+    }
+
+    private void addRecordValidity(int columnIndex, long nullCount) {
+        addValidity(columnIndex, rowCount, nullCount);
+    }
+
+    private void addSegment(int source, long offset, long size) {
+        segments.add(source);
+        segments.add(offset);
+        segments.add(size);
+    }
+
+    private void addValidity(int columnIndex, long count, long nullCount) {
+        addField(count, nullCount);
+        if (nullCount == 0) {
+            addEmptyBuffer();
+        } else {
+            addBuffer(columnIndex, BUFFER_VALIDITY, (count + 7) >>> 3);
+        }
+    }
+
+    private void beginMessage() {
+        fbb.clear();
+        segments.clear();
+        fieldNodes.clear();
+        bodyBuffers.clear();
+        bodySize = 0;
+        // metadata is the first segment, its size is known when message is complete
+        addSegment(SEGMENT_METADATA, 0, 0);
+    }
+
+    private int createField(int columnIndex) {
+        final int name = fbb.createString(metadata.getColumnName(columnIndex));
+        final byte typeType;
+        final int type;
+        int dictionary = 0;
+        switch (ColumnType.storageTag(columnTypes.getQuick(columnIndex))) {
+            case ColumnType.BOOLEAN:
+                typeType = TYPE_BOOL;
+                type = createEmptyTable();
+                break;
+            case ColumnType.BYTE:
+            case ColumnType.GEOBYTE:
+                typeType = TYPE_INT;
+                type = createInt(Byte.SIZE);
+                break;
+            case ColumnType.SHORT:
+            case ColumnType.GEOSHORT:
+                typeType = TYPE_INT;
+                type = createInt(Short.SIZE);
+                break;
+            case ColumnType.INT:
+            case ColumnType.GEOINT:
+                typeType = TYPE_INT;
+                type = createInt(Integer.SIZE);
+                break;
+            case ColumnType.LONG:
+            case ColumnType.GEOLONG:
+                typeType = TYPE_INT;
+                type = createInt(Long.SIZE);
+                break;
+            case ColumnType.FLOAT:
+                typeType = TYPE_FLOATING_POINT;
+                type = createFloatingPoint(PRECISION_SINGLE);
+                break;
+            case ColumnType.DOUBLE:
+                typeType = TYPE_FLOATING_POINT;
+                type = createFloatingPoint(PRECISION_DOUBLE);
+                break;
+            case ColumnType.DATE:
+                typeType = TYPE_DATE;
+                fbb.startTable(1);
+                fbb.addFieldShort(0, DATE_UNIT_MILLISECOND);
+                type = fbb.endTable();
+                break;
+            case ColumnType.TIMESTAMP:
+                typeType = TYPE_TIMESTAMP;
+                final int timezone = fbb.createString("UTC");
+                fbb.startTable(2);
+                fbb.addFieldOffset(1, timezone);
+                fbb.addFieldShort(0, TIME_UNIT_MICROSECOND);
+                type = fbb.endTable();
+                break;
+            case ColumnType.SYMBOL:
+                if (dictionaryEncodeSymbols) {
+                    final int indexType = createInt(Integer.SIZE);
+                    fbb.startTable(4);
+                    fbb.addFieldLong(0, columnIndex);
+                    fbb.addFieldOffset(1, indexType);
+                    dictionary = fbb.endTable();
+                }
+                // fall through
+            case ColumnType.CHAR:
+            case ColumnType.STRING:
+                typeType = TYPE_UTF8;
+                type = createEmptyTable();
+                break;
+            case ColumnType.BINARY:
+                typeType = TYPE_BINARY;
+                type = createEmptyTable();
+                break;
+            case ColumnType.LONG256:
+                typeType = TYPE_FIXED_SIZE_BINARY;
+                fbb.startTable(1);
+                fbb.addFieldInt(0, Long256.BYTES);
+                type = fbb.endTable();
+                break;
+            default:
+                typeType = TYPE_NULL;
+                type = createEmptyTable();
+                break;
+        }
+        fbb.startVector(Integer.BYTES, 0, Integer.BYTES);
+        final int children = fbb.endVector();
+
+        fbb.startTable(7);
+        fbb.addFieldOffset(0, name);
+        fbb.addFieldOffset(3, type);
+        if (dictionary != 0) {
+            fbb.addFieldOffset(4, dictionary);
+        }
+        fbb.addFieldOffset(5, children);
+        fbb.addFieldBool(1, true);
+        fbb.addFieldByte(2, typeType);
+        return fbb.endTable();
+    }
+
+    private int createEmptyTable() {
+        fbb.startTable(0);
+        return fbb.endTable();
+    }
+
+    private int createFloatingPoint(short precision) {
+        fbb.startTable(1);
+        fbb.addFieldShort(0, precision);
+        return fbb.endTable();
+    }
+
+    private int createInt(int bitWidth) {
+        fbb.startTable(2);
+        fbb.addFieldInt(0, bitWidth);
+        fbb.addFieldBool(1, true);
+        return fbb.endTable();
+    }
+
+    private int createRecordBatch(long length) {
+        final int nodeCount = fieldNodes.size() / 2;
+        fbb.startVector(2 * Long.BYTES, nodeCount, Long.BYTES);
+        for (int i = nodeCount - 1; i > -1; i--) {
+            fbb.prep(Long.BYTES, 2 * Long.BYTES);
+            fbb.putLong(fieldNodes.getQuick(2 * i + 1));
+            fbb.putLong(fieldNodes.getQuick(2 * i));
+        }
+        final int nodes = fbb.endVector();
+
+        final int bufferCount = bodyBuffers.size() / 2;
+        fbb.startVector(2 * Long.BYTES, bufferCount, Long.BYTES);
+        for (int i = bufferCount - 1; i > -1; i--) {
+            fbb.prep(Long.BYTES, 2 * Long.BYTES);
+            fbb.putLong(bodyBuffers.getQuick(2 * i + 1));
+            fbb.putLong(bodyBuffers.getQuick(2 * i));
+        }
+        final int buffers = fbb.endVector();
+
+        fbb.startTable(4);
+        fbb.addFieldLong(0, length);
+        fbb.addFieldOffset(1, nodes);
+        fbb.addFieldOffset(2, buffers);
+        return fbb.endTable();
+    }
+
+    private MemoryCARW getColumnMem(int columnIndex, int buffer) {
+        return columnMem.getQuick(columnIndex * BUFFERS_PER_COLUMN + buffer);
+    }
+
+    private void putFrameBits(int columnIndex, long address, long count) {
+        final MemoryCARW dataMem = getColumnMem(columnIndex, BUFFER_DATA);
+        dataMem.jumpTo(0);
+        final long size = (count + 7) >>> 3;
+        final long lo = dataMem.appendAddressFor(size);
+        Vect.memset(lo, size, 0);
+        if (address != 0) {
+            for (long i = 0; i < count; i++) {
+                if (Unsafe.getUnsafe().getByte(address + i) != 0) {
+                    final long p = lo + (i >>> 3);
+                    Unsafe.getUnsafe().putByte(p, (byte) (Unsafe.getUnsafe().getByte(p) | (1 << (i & 7))));
+                }
+            }
+        }
+        addBuffer(columnIndex, BUFFER_DATA, size);
+    }
+
+    private void putFrameChars(int columnIndex, long address, long count) {
+        final MemoryCARW offsetsMem = getColumnMem(columnIndex, BUFFER_OFFSETS);
+        final MemoryCARW dataMem = getColumnMem(columnIndex, BUFFER_DATA);
+        offsetsMem.jumpTo(0);
+        dataMem.jumpTo(0);
+        offsetsMem.putInt(0);
+        utf8Sink.of(dataMem);
+        for (long i = 0; i < count; i++) {
+            final char c = address != 0 ? Unsafe.getUnsafe().getChar(address + (i << 1)) : 0;
+            if (c != 0) {
+                utf8Sink.putUtf8(c);
+            }
+            offsetsMem.putInt((int) dataMem.getAppendOffset());
+        }
+        addBuffer(columnIndex, BUFFER_OFFSETS, offsetsMem.getAppendOffset());
+        addBuffer(columnIndex, BUFFER_DATA, dataMem.getAppendOffset());
+    }
+
+    private long putFrameValidity(int columnIndex, long address, long count, int tag) {
+        final MemoryCARW validityMem = getColumnMem(columnIndex, BUFFER_VALIDITY);
+        validityMem.jumpTo(0);
+        final long size = (count + 7) >>> 3;
+        final long lo = validityMem.appendAddressFor(size);
+        if (address == 0) {
+            // column top
+            Vect.memset(lo, size, 0);
+            return count;
+        }
+
+        long nullCount = 0;
+        int bits = 0;
+        for (long i = 0; i < count; i++) {
+            if (isNotNull(address, i, tag)) {
+                bits |= 1 << (i & 7);
+            } else {
+                nullCount++;
+            }
+            if ((i & 7) == 7) {
+                Unsafe.getUnsafe().putByte(lo + (i >>> 3), (byte) bits);
+                bits = 0;
+            }
+        }
+        if ((count & 7) != 0) {
+            Unsafe.getUnsafe().putByte(lo + (count >>> 3), (byte) bits);
+        }
+        return nullCount;
+    }
+
+    private void putMessage(byte headerType, int header) {
+        fbb.startTable(5);
+        fbb.addFieldLong(3, bodySize);
+        fbb.addFieldOffset(2, header);
+        fbb.addFieldShort(0, METADATA_VERSION_V5);
+        fbb.addFieldByte(1, headerType);
+        fbb.finish(fbb.endTable());
+
+        // encapsulated message: continuation marker, metadata size, metadata padded to 8 bytes
+        final int size = fbb.offset();
+        final int alignedSize = (size + PADDING_SIZE - 1) & -PADDING_SIZE;
+        metadataMem.jumpTo(0);
+        metadataMem.putInt(CONTINUATION_MARKER);
+        metadataMem.putInt(alignedSize);
+        fbb.copyTo(metadataMem.appendAddressFor(size));
+        for (int i = size; i < alignedSize; i++) {
+            metadataMem.putByte((byte) 0);
+        }
+        segments.setQuick(2, metadataMem.getAppendOffset());
+    }
+
+    private void putOffset(int columnIndex, MemoryCARW dataMem) {
+        getColumnMem(columnIndex, BUFFER_OFFSETS).putInt((int) dataMem.getAppendOffset());
+    }
+
+    private void putUtf8(int columnIndex, int row, MemoryCARW dataMem, CharSequence value) {
+        if (putValidity(columnIndex, row, value != null)) {
+            utf8Sink.of(dataMem).encodeUtf8(value);
+        }
+        putOffset(columnIndex, dataMem);
+    }
+
+    private boolean putValidity(int columnIndex, int row, boolean valid) {
+        putBit(getColumnMem(columnIndex, BUFFER_VALIDITY), row, valid);
+        if (!valid) {
+            nullCounts.increment(columnIndex);
+        }
+        return valid;
+    }
+
+    private static class Utf8Sink extends AbstractCharSink {
+        private MemoryCARW mem;
+
+        @Override
+        public CharSink put(char c) {
+            mem.putByte((byte) c);
+            return this;
+        }
+
+        @Override
+        public CharSink put(char[] chars, int start, int len) {
+            for (int i = start, n = start + len; i < n; i++) {
+                mem.putByte((byte) chars[i]);
+            }
+            return this;
+        }
+
+        Utf8Sink of(MemoryCARW mem) {
+            this.mem = mem;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.std.Mutable;
+import io.questdb.std.Unsafe;
+
+import java.util.Arrays;
+
+/**
+ * Minimal FlatBuffers builder, it covers what is needed to encode Arrow IPC message metadata.
+ * Same as the reference implementation the buffer is built back to front, offsets of
+ * objects are measured from the end of the buffer. Nested objects must be created before
+ * the table that refers to them is started.
+ */
+public class FlatBufferBuilder implements Mutable {
+    private byte[] buf;
+    private int space;
+    private int minAlign = 1;
+    private int[] vtable = new int[16];
+    private int vtableSize = -1;
+    private int objectStart;
+    private int vectorElementCount;
+
+    public FlatBufferBuilder(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+        this.space = initialCapacity;
+    }
+
+    public void addBool(boolean value) {
+        addByte((byte) (value ? 1 : 0));
+    }
+
+    public void addByte(byte value) {
+        prep(Byte.BYTES, 0);
+        putByte(value);
+    }
+
+    public void addFieldBool(int field, boolean value) {
+        addBool(value);
+        slot(field);
+    }
+
+    public void addFieldByte(int field, byte value) {
+        addByte(value);
+        slot(field);
+    }
+
+    public void addFieldInt(int field, int value) {
+        addInt(value);
+        slot(field);
+    }
+
+    public void addFieldLong(int field, long value) {
+        addLong(value);
+        slot(field);
+    }
+
+    public void addFieldOffset(int field, int offset) {
+        addOffset(offset);
+        slot(field);
+    }
+
+    public void addFieldShort(int field, short value) {
+        addShort(value);
+        slot(field);
+    }
+
+    public void addInt(int value) {
+        prep(Integer.BYTES, 0);
+        putInt(value);
+    }
+
+    public void addLong(long value) {
+        prep(Long.BYTES, 0);
+        putLong(value);
+    }
+
+    public void addOffset(int offset) {
+        prep(Integer.BYTES, 0);
+        assert offset <= offset();
+        putInt(offset() - offset + Integer.BYTES);
+    }
+
+    public void addShort(short value) {
+        prep(Short.BYTES, 0);
+        putShort(value);
+    }
+
+    @Override
+    public void clear() {
+        space = buf.length;
+        minAlign = 1;
+        vtableSize = -1;
+        vectorElementCount = 0;
+    }
+
+    /**
+     * Copies finished buffer to native memory.
+     *
+     * @param address destination, must have at least {@link #offset()} bytes available
+     */
+    public void copyTo(long address) {
+        for (int i = space, n = buf.length; i < n; i++) {
+            Unsafe.getUnsafe().putByte(address++, buf[i]);
+        }
+    }
+
+    public int createString(CharSequence value) {
+        final int len = value.length();
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            size += utf8Size(value.charAt(i));
+        }
+        addByte((byte) 0);
+        startVector(Byte.BYTES, size, Byte.BYTES);
+        space -= size;
+        int p = space;
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+            if (c < 128) {
+                buf[p++] = (byte) c;
+            } else if (c < 2048) {
+                buf[p++] = (byte) (192 | c >> 6);
+                buf[p++] = (byte) (128 | c & 63);
+            } else if (Character.isSurrogate(c)) {
+                buf[p++] = '?';
+            } else {
+                buf[p++] = (byte) (224 | c >> 12);
+                buf[p++] = (byte) (128 | c >> 6 & 63);
+                buf[p++] = (byte) (128 | c & 63);
+            }
+        }
+        return endVector();
+    }
+
+    public int endTable() {
+        assert vtableSize > -1;
+        addInt(0);
+        final int vtableLoc = offset();
+        int i = vtableSize - 1;
+        while (i > -1 && vtable[i] == 0) {
+            i--;
+        }
+        final int trimmedSize = i + 1;
+        for (; i > -1; i--) {
+            addShort((short) (vtable[i] != 0 ? vtableLoc - vtable[i] : 0));
+        }
+        addShort((short) (vtableLoc - objectStart));
+        addShort((short) ((trimmedSize + 2) * Short.BYTES));
+        // table starts with signed offset to its vtable
+        putInt(buf.length - vtableLoc, offset() - vtableLoc);
+        vtableSize = -1;
+        return vtableLoc;
+    }
+
+    public int endVector() {
+        putInt(vectorElementCount);
+        return offset();
+    }
+
+    public void finish(int rootTable) {
+        prep(minAlign, Integer.BYTES);
+        addOffset(rootTable);
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    public int offset() {
+        return buf.length - space;
+    }
+
+    public void prep(int size, int additionalBytes) {
+        if (size > minAlign) {
+            minAlign = size;
+        }
+        final int alignSize = (~(buf.length - space + additionalBytes) + 1) & (size - 1);
+        while (space < alignSize + size + additionalBytes) {
+            grow();
+        }
+        for (int i = 0; i < alignSize; i++) {
+            buf[--space] = 0;
+        }
+    }
+
+    public void putLong(long value) {
+        space -= Long.BYTES;
+        for (int i = 0; i < Long.BYTES; i++) {
+            buf[space + i] = (byte) (value >>> (i << 3));
+        }
+    }
+
+    public void startTable(int fieldCount) {
+        assert vtableSize == -1;
+        if (vtable.length < fieldCount) {
+            vtable = new int[fieldCount];
+        }
+        Arrays.fill(vtable, 0, fieldCount, 0);
+        vtableSize = fieldCount;
+        objectStart = offset();
+    }
+
+    public void startVector(int elementSize, int elementCount, int alignment) {
+        vectorElementCount = elementCount;
+        prep(Integer.BYTES, elementSize * elementCount);
+        prep(alignment, elementSize * elementCount);
+    }
+
+    private static int utf8Size(char c) {
+        if (c < 128) {
+            return 1;
+        }
+        if (c < 2048) {
+            return 2;
+        }
+        return Character.isSurrogate(c) ? 1 : 3;
+    }
+
+    private void grow() {
+        final int len = buf.length;
+        final byte[] next = new byte[len * 2];
+        System.arraycopy(buf, 0, next, len, len);
+        buf = next;
+        space += len;
+    }
+
+    private void putByte(byte value) {
+        buf[--space] = value;
+    }
+
+    private void putInt(int value) {
+        space -= Integer.BYTES;
+        putInt(space, value);
+    }
+
+    private void putInt(int position, int value) {
+        for (int i = 0; i < Integer.BYTES; i++) {
+            buf[position + i] = (byte) (value >>> (i << 3));
+        }
+    }
+
+    private void putShort(short value) {
+        space -= Short.BYTES;
+        buf[space] = (byte) value;
+        buf[space + 1] = (byte) (value >>> 8);
+    }
+
+    private void slot(int field) {
+        vtable[field] = offset();
+    }
+}
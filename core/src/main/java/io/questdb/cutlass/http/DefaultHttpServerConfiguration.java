@@ -91,6 +91,11 @@ public class DefaultHttpServerConfiguration implements HttpServerConfiguration {
             return 10;
         }
 
+        @Override
+        public int getArrowBatchRowCount() {
+            return 65536;
+        }
+
         @Override
         public int getDoubleScale() {
             return Numbers.MAX_SCALE;
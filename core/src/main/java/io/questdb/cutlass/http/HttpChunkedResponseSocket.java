@@ -43,5 +43,14 @@ public interface HttpChunkedResponseSocket extends CharSink {
 
     void status(int status, CharSequence contentType);
 
+    /**
+     * Copies as many bytes as buffer can accommodate.
+     *
+     * @param lo  address of the first byte
+     * @param len number of bytes to copy
+     * @return number of bytes copied, can be less than len when buffer is full
+     */
+    long writeBytes(long lo, long len);
+
     void shutdownWrite();
 }
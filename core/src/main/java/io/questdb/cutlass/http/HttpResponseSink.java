@@ -575,6 +575,16 @@ public class HttpResponseSink implements Closeable, Mutable {
         public void shutdownWrite() {
             nf.shutdown(fd, Net.SHUT_WR);
         }
+
+        @Override
+        public long writeBytes(long lo, long len) {
+            final long n = Math.min(len, buffer.getWriteNAvailable());
+            if (n > 0) {
+                Vect.memcpy(lo, buffer._wptr, n);
+                buffer.onWrite((int) n);
+            }
+            return n;
+        }
     }
 
     private class ChunkBuffer extends AbstractCharSink implements Closeable {
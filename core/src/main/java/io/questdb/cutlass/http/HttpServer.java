@@ -31,9 +31,14 @@ import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.ColumnIndexerJob;
 import io.questdb.cairo.TableBlockWriter.TableBlockWriterJob;
 import io.questdb.cutlass.http.processors.*;
+import io.questdb.cutlass.text.TextImportJob;
 import io.questdb.griffin.FunctionFactoryCache;
+import io.questdb.griffin.engine.groupby.PageFrameGroupByJob;
 import io.questdb.griffin.engine.groupby.vect.GroupByJob;
+import io.questdb.griffin.engine.join.HashJoinBuildJob;
 import io.questdb.griffin.engine.table.LatestByAllIndexedJob;
+import io.questdb.griffin.engine.table.LatestByScanJob;
+import io.questdb.griffin.engine.table.PageFrameFilterJob;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.mp.EagerThreadSetup;
@@ -104,7 +109,6 @@ public class HttpServer implements Closeable {
             pool.assign(i, () -> {
                 Misc.free(selectors.getQuick(index));
                 httpContextFactory.closeContextPool();
-                Misc.free(QueryCache.getInstance());
             });
         }
     }
@@ -189,6 +193,11 @@ public class HttpServer implements Closeable {
         workerPool.assign(new GroupByJob(messageBus));
         workerPool.assign(new TableBlockWriterJob(messageBus));
         workerPool.assign(new LatestByAllIndexedJob(messageBus));
+        workerPool.assign(new LatestByScanJob(messageBus));
+        workerPool.assign(new PageFrameFilterJob(messageBus));
+        workerPool.assign(new PageFrameGroupByJob(messageBus));
+        workerPool.assign(new HashJoinBuildJob(messageBus));
+        workerPool.assign(new TextImportJob(messageBus));
     }
 
     @Nullable
@@ -281,7 +290,6 @@ public class HttpServer implements Closeable {
             Metrics metrics
     ) {
         final HttpServer s = new HttpServer(configuration, workerPool, localPool);
-        QueryCache.configure(configuration);
         HttpRequestProcessorBuilder jsonQueryProcessorBuilder = () -> new JsonQueryProcessor(
                 configuration.getJsonQueryProcessorConfiguration(),
                 cairoEngine,
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.http.processors;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.sql.*;
+import io.questdb.cutlass.arrow.ArrowStreamWriter;
+import io.questdb.cutlass.http.HttpChunkedResponseSocket;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.network.PeerDisconnectedException;
+import io.questdb.network.PeerIsSlowToReadException;
+import io.questdb.std.Misc;
+import io.questdb.std.Mutable;
+
+import java.io.Closeable;
+
+/**
+ * Sends result of SELECT query as Arrow IPC stream. Table scans are sent page frame by page frame,
+ * values of fixed size columns are copied from column memory straight into response buffer and
+ * symbols are sent as dictionary indexes. Other queries are sent record by record.
+ */
+class ArrowQueryState implements Mutable, Closeable {
+    private static final int STATE_SCHEMA = 0;
+    private static final int STATE_DICTIONARY = 1;
+    private static final int STATE_BATCH = 2;
+    private static final int STATE_EOS = 3;
+    private static final int STATE_LAST_CHUNK = 4;
+    private static final int STATE_DONE = 5;
+    private final ArrowStreamWriter writer = new ArrowStreamWriter();
+    private final int batchRowCount;
+    private RecordMetadata metadata;
+    private PageFrameCursor pageFrameCursor;
+    private PageFrame frame;
+    private long frameRowLo;
+    private long frameRowCount;
+    private RecordCursor cursor;
+    private Record record;
+    private long count;
+    private long skip;
+    private long stop;
+    private int state = STATE_DONE;
+    private int dictionaryColumnIndex;
+    private boolean messagePending;
+    private int segmentIndex;
+    private long segmentOffset;
+
+    ArrowQueryState(int batchRowCount) {
+        this.batchRowCount = batchRowCount;
+    }
+
+    @Override
+    public void clear() {
+        pageFrameCursor = Misc.free(pageFrameCursor);
+        cursor = Misc.free(cursor);
+        frame = null;
+        record = null;
+        metadata = null;
+        writer.clear();
+        state = STATE_DONE;
+        messagePending = false;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        writer.close();
+    }
+
+    boolean isActive() {
+        return state != STATE_DONE;
+    }
+
+    void of(
+            RecordCursorFactory factory,
+            SqlExecutionContext executionContext,
+            long skip,
+            long stop
+    ) throws SqlException {
+        clear();
+        this.metadata = factory.getMetadata();
+        this.skip = skip;
+        this.stop = stop;
+        this.count = 0;
+        if (factory.supportPageFrameCursor() && ArrowStreamWriter.isPageFrameCompatible(metadata)) {
+            pageFrameCursor = factory.getPageFrameCursor(executionContext);
+        }
+        if (pageFrameCursor != null) {
+            frameRowLo = frameRowCount = 0;
+        } else {
+            cursor = factory.getCursor(executionContext);
+            record = cursor.getRecord();
+        }
+        writer.of(metadata, pageFrameCursor != null);
+        dictionaryColumnIndex = 0;
+        state = STATE_SCHEMA;
+    }
+
+    void resume(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        while (true) {
+            if (messagePending) {
+                sendMessage(socket);
+            }
+            switch (state) {
+                case STATE_SCHEMA:
+                    writer.putSchema();
+                    state = STATE_DICTIONARY;
+                    break;
+                case STATE_DICTIONARY:
+                    if (!nextDictionary()) {
+                        state = STATE_BATCH;
+                        continue;
+                    }
+                    break;
+                case STATE_BATCH:
+                    if (!(pageFrameCursor != null ? nextPageFrameBatch() : nextRecordBatch())) {
+                        state = STATE_EOS;
+                        continue;
+                    }
+                    break;
+                case STATE_EOS:
+                    writer.putEndOfStream();
+                    state = STATE_LAST_CHUNK;
+                    break;
+                case STATE_LAST_CHUNK:
+                    socket.done();
+                    state = STATE_DONE;
+                    return;
+                default:
+                    return;
+            }
+            messagePending = true;
+            segmentIndex = 0;
+            segmentOffset = 0;
+        }
+    }
+
+    private boolean nextDictionary() {
+        if (pageFrameCursor == null) {
+            return false;
+        }
+        for (int n = metadata.getColumnCount(); dictionaryColumnIndex < n; dictionaryColumnIndex++) {
+            if (ColumnType.isSymbol(metadata.getColumnType(dictionaryColumnIndex))) {
+                writer.putDictionary(dictionaryColumnIndex, pageFrameCursor.getSymbolMapReader(dictionaryColumnIndex));
+                dictionaryColumnIndex++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nextPageFrameBatch() {
+        while (count < stop) {
+            if (frameRowLo == frameRowCount) {
+                if ((frame = pageFrameCursor.next()) == null) {
+                    return false;
+                }
+                frameRowLo = 0;
+                frameRowCount = frame.getPageAddress(0) == 0
+                        ? frame.getPageSize(0)
+                        : frame.getPageSize(0) >> frame.getColumnSize(0);
+                continue;
+            }
+            if (count < skip) {
+                final long n = Math.min(skip - count, frameRowCount - frameRowLo);
+                frameRowLo += n;
+                count += n;
+                continue;
+            }
+            final long rowHi = Math.min(frameRowCount, frameRowLo + Math.min(batchRowCount, stop - count));
+            writer.putPageFrameBatch(frame, frameRowLo, rowHi);
+            count += rowHi - frameRowLo;
+            frameRowLo = rowHi;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean nextRecordBatch() {
+        writer.startRecordBatch();
+        while (writer.getRecordCount() < batchRowCount && count < stop && cursor.hasNext()) {
+            if (++count > skip) {
+                writer.putRecord(record);
+            }
+        }
+        if (writer.getRecordCount() > 0) {
+            writer.putRecordBatch();
+            return true;
+        }
+        return false;
+    }
+
+    private void sendMessage(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        for (int n = writer.getSegmentCount(); segmentIndex < n; segmentIndex++) {
+            final long address = writer.getSegmentAddress(segmentIndex);
+            final long size = writer.getSegmentSize(segmentIndex);
+            while (segmentOffset < size) {
+                final long written = socket.writeBytes(address + segmentOffset, size - segmentOffset);
+                segmentOffset += written;
+                if (written == 0 || segmentOffset < size) {
+                    // response buffer is full
+                    socket.sendChunk(false);
+                }
+            }
+            segmentOffset = 0;
+        }
+        messagePending = false;
+    }
+}
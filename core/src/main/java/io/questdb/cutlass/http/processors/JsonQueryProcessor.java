@@ -31,6 +31,7 @@ import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.CairoError;
 import io.questdb.cairo.CairoException;
 import io.questdb.cairo.EntryUnavailableException;
+import io.questdb.cairo.QueryCache;
 import io.questdb.cairo.sql.InsertMethod;
 import io.questdb.cairo.sql.InsertStatement;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
@@ -63,6 +64,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
     private final NanosecondClock nanosecondClock;
     private final HttpSqlExecutionInterruptor interruptor;
     private final Metrics metrics;
+    private final QueryCache queryCache;
 
     public JsonQueryProcessor(
             JsonQueryProcessorConfiguration configuration,
@@ -113,6 +115,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         this.nanosecondClock = engine.getConfiguration().getNanosecondClock();
         this.interruptor = new HttpSqlExecutionInterruptor(configuration.getInterruptorConfiguration());
         this.metrics = metrics;
+        this.queryCache = engine.getQueryCache();
     }
 
     @Override
@@ -130,7 +133,9 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         // the only time we need to copy random from state is when we resume request execution
         sqlExecutionContext.with(context.getCairoSecurityContext(), null, null, context.getFd(), interruptor.of(context.getFd()));
         state.info().$("exec [q='").utf8(state.getQuery()).$("']").$();
-        final RecordCursorFactory factory = QueryCache.getInstance().poll(state.getQuery());
+        final RecordCursorFactory factory = queryCache.poll(state.getQuery());
+        sqlExecutionContext.getMemoryAccount().reset();
+        final QueryMemoryAccount prevMemoryAccount = QueryMemoryAccount.bind(sqlExecutionContext.getMemoryAccount());
         try {
             if (factory != null) {
                 try {
@@ -142,6 +147,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
                 } catch (ReaderOutOfDateException e) {
                     LOG.info().$(e.getFlyweightMessage()).$();
                     Misc.free(factory);
+                    queryCache.invalidate(state.getQuery(), null);
                     compileQuery(state);
                 }
             } else {
@@ -163,6 +169,8 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         } catch (Throwable e) {
             state.error().$("Uh-oh. Error!").$(e).$();
             throw ServerDisconnectException.INSTANCE;
+        } finally {
+            QueryMemoryAccount.bind(prevMemoryAccount);
         }
     }
 
@@ -174,9 +182,11 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         if (state == null) {
             LV.set(context, state = new JsonQueryProcessorState(
                     context,
+                    queryCache,
                     nanosecondClock,
                     configuration.getFloatScale(),
-                    configuration.getDoubleScale()
+                    configuration.getDoubleScale(),
+                    configuration.getArrowBatchRowCount()
             ));
         }
 
@@ -198,7 +208,12 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         if (state != null) {
             // we are resuming request execution, we need to copy random to execution context
             sqlExecutionContext.with(context.getCairoSecurityContext(), null, state.getRnd(), context.getFd(), interruptor.of(context.getFd()));
-            doResumeSend(state, context);
+            final QueryMemoryAccount prevMemoryAccount = QueryMemoryAccount.bind(sqlExecutionContext.getMemoryAccount());
+            try {
+                doResumeSend(state, context);
+            } finally {
+                QueryMemoryAccount.bind(prevMemoryAccount);
+            }
         }
     }
 
@@ -260,6 +275,15 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         socket.sendHeader();
     }
 
+    private static void arrowHeader(
+            HttpChunkedResponseSocket socket,
+            CharSequence keepAliveHeader
+    ) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        socket.status(200, "application/vnd.apache.arrow.stream");
+        socket.headers().setKeepAlive(keepAliveHeader);
+        socket.sendHeader();
+    }
+
     private static void readyForNextRequest(HttpConnectionContext context) {
         LOG.info().$("all sent [fd=").$(context.getFd()).$(", lastRequestBytesSent=").$(context.getLastRequestBytesSent()).$(", nCompletedRequests=").$(context.getNCompletedRequests() + 1)
                 .$(", totalBytesSent=").$(context.getTotalBytesSent()).$(']').$();
@@ -307,9 +331,11 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
 
     private void compileQuery(JsonQueryProcessorState state) throws SqlException, PeerDisconnectedException, PeerIsSlowToReadException {
         final long nanos = nanosecondClock.getTicks();
+        final long memUsed = Unsafe.getMemUsed();
         final CompiledQuery cc = compiler.compile(state.getQuery(), sqlExecutionContext);
         sqlExecutionContext.storeTelemetry(cc.getType(), Telemetry.ORIGIN_HTTP_JSON);
         state.setCompilerNanos(nanosecondClock.getTicks() - nanos);
+        state.setCompilerMemory(Unsafe.getMemUsed() - memUsed);
         queryExecutors.getQuick(cc.getType()).execute(
                 state,
                 cc,
@@ -323,6 +349,7 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
             CharSequence keepAliveHeader
     ) throws PeerDisconnectedException, PeerIsSlowToReadException, SqlException {
         state.setCompilerNanos(0);
+        state.setCompilerMemory(-1);
         state.logExecuteCached();
         executeSelect(state, factory, keepAliveHeader);
     }
@@ -378,7 +405,11 @@ public class JsonQueryProcessor implements HttpRequestProcessor, Closeable {
         final HttpConnectionContext context = state.getHttpConnectionContext();
         try {
             if (state.of(factory, sqlExecutionContext)) {
-                header(context.getChunkedResponseSocket(), keepAliveHeader);
+                if (state.isArrow()) {
+                    arrowHeader(context.getChunkedResponseSocket(), keepAliveHeader);
+                } else {
+                    header(context.getChunkedResponseSocket(), keepAliveHeader);
+                }
                 doResumeSend(state, context);
             } else {
                 readyForNextRequest(context);
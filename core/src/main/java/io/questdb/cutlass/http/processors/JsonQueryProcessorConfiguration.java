@@ -30,6 +30,11 @@ import io.questdb.std.datetime.millitime.MillisecondClock;
 
 public interface JsonQueryProcessorConfiguration {
 
+    /**
+     * @return maximum number of rows in Arrow record batch, this is used when query result is requested in Arrow format
+     */
+    int getArrowBatchRowCount();
+
     MillisecondClock getClock();
 
     int getConnectionCheckFrequency();
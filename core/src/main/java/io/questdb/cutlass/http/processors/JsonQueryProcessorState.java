@@ -26,6 +26,7 @@ package io.questdb.cutlass.http.processors;
 
 import io.questdb.cairo.ColumnType;
 import io.questdb.cairo.GeoHashes;
+import io.questdb.cairo.QueryCache;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
@@ -66,10 +67,14 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
     private final IntList columnTypesAndFlags = new IntList();
     private final ObjList<String> columnNames = new ObjList<>();
     private final HttpConnectionContext httpConnectionContext;
+    private final QueryCache queryCache;
     private final IntList columnSkewList = new IntList();
     private final NanosecondClock nanosecondClock;
     private final int floatScale;
     private final int doubleScale;
+    private final int arrowBatchRowCount;
+    private ArrowQueryState arrowState;
+    private boolean arrow;
     private Rnd rnd;
     private RecordCursorFactory recordCursorFactory;
     private RecordCursor cursor;
@@ -85,16 +90,20 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
     private long executeStartNanos;
     private long recordCountNanos;
     private long compilerNanos;
+    private long compilerMemory;
     private boolean timings;
     private boolean queryCacheable = false;
 
     public JsonQueryProcessorState(
             HttpConnectionContext httpConnectionContext,
+            QueryCache queryCache,
             NanosecondClock nanosecondClock,
             int floatScale,
-            int doubleScale
+            int doubleScale,
+            int arrowBatchRowCount
     ) {
         this.httpConnectionContext = httpConnectionContext;
+        this.queryCache = queryCache;
         resumeActions.extendAndSet(QUERY_PREFIX, this::onQueryPrefix);
         resumeActions.extendAndSet(QUERY_METADATA, this::onQueryMetadata);
         resumeActions.extendAndSet(QUERY_METADATA_SUFFIX, this::onQueryMetadataSuffix);
@@ -107,6 +116,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.nanosecondClock = nanosecondClock;
         this.floatScale = floatScale;
         this.doubleScale = doubleScale;
+        this.arrowBatchRowCount = arrowBatchRowCount;
     }
 
     @Override
@@ -117,9 +127,12 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         columnNames.clear();
         cursor = Misc.free(cursor);
         record = null;
+        if (arrowState != null) {
+            arrowState.clear();
+        }
         if (null != recordCursorFactory) {
             if (queryCacheable) {
-                QueryCache.getInstance().push(query, recordCursorFactory);
+                queryCache.push(query, recordCursorFactory, compilerMemory);
             } else {
                 recordCursorFactory.close();
             }
@@ -130,11 +143,13 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         queryState = QUERY_PREFIX;
         columnIndex = 0;
         countRows = false;
+        arrow = false;
     }
 
     @Override
     public void close() {
         cursor = Misc.free(cursor);
+        arrowState = Misc.free(arrowState);
         recordCursorFactory = Misc.free(recordCursorFactory);
     }
 
@@ -152,6 +167,7 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.noMeta = Chars.equalsNc("true", request.getUrlParam("nm"));
         this.countRows = Chars.equalsNc("true", request.getUrlParam("count"));
         this.timings = Chars.equalsNc("true", request.getUrlParam("timings"));
+        this.arrow = Chars.equalsNc("arrow", request.getUrlParam("fmt"));
     }
 
     public LogRecord error() {
@@ -210,6 +226,10 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         this.compilerNanos = compilerNanos;
     }
 
+    public void setCompilerMemory(long compilerMemory) {
+        this.compilerMemory = compilerMemory;
+    }
+
     public void startExecutionTimer() {
         this.executeStartNanos = nanosecondClock.getTicks();
     }
@@ -572,14 +592,25 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
         return httpConnectionContext.getFd();
     }
 
+    boolean isArrow() {
+        return arrow;
+    }
+
     boolean noCursor() {
-        return cursor == null;
+        return cursor == null && (arrowState == null || !arrowState.isActive());
     }
 
     boolean of(RecordCursorFactory factory, SqlExecutionContextImpl sqlExecutionContext)
             throws PeerDisconnectedException, PeerIsSlowToReadException, SqlException {
         this.recordCursorFactory = factory;
         queryCacheable = true;
+        if (arrow) {
+            if (arrowState == null) {
+                arrowState = new ArrowQueryState(arrowBatchRowCount);
+            }
+            arrowState.of(factory, sqlExecutionContext, skip, stop);
+            return true;
+        }
         this.cursor = factory.getCursor(sqlExecutionContext);
         final RecordMetadata metadata = factory.getMetadata();
         HttpRequestHeader header = httpConnectionContext.getRequestHeader();
@@ -749,6 +780,10 @@ public class JsonQueryProcessorState implements Mutable, Closeable {
     }
 
     void resume(HttpChunkedResponseSocket socket) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        if (arrow) {
+            arrowState.resume(socket);
+            return;
+        }
         resumeActions.getQuick(queryState).onResume(socket, columnCount);
     }
 
@@ -30,6 +30,7 @@ import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.CairoError;
 import io.questdb.cairo.CairoException;
 import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.QueryCache;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cutlass.http.*;
@@ -46,6 +47,8 @@ import io.questdb.std.Chars;
 import io.questdb.std.Misc;
 import io.questdb.std.Numbers;
 import io.questdb.std.NumericException;
+import io.questdb.std.QueryMemoryAccount;
+import io.questdb.std.Unsafe;
 import io.questdb.std.datetime.millitime.MillisecondClock;
 import io.questdb.std.str.CharSink;
 import io.questdb.std.str.DirectByteCharSequence;
@@ -67,6 +70,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     private final MillisecondClock clock;
     private final int doubleScale;
     private final HttpSqlExecutionInterruptor interruptor;
+    private final QueryCache queryCache;
 
     public TextQueryProcessor(
             JsonQueryProcessorConfiguration configuration,
@@ -91,6 +95,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         this.sqlExecutionContext = new SqlExecutionContextImpl(engine, workerCount, messageBus);
         this.doubleScale = configuration.getDoubleScale();
         this.interruptor = new HttpSqlExecutionInterruptor(configuration.getInterruptorConfiguration());
+        this.queryCache = engine.getQueryCache();
     }
 
     @Override
@@ -103,12 +108,17 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
             HttpConnectionContext context,
             TextQueryProcessorState state
     ) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        final QueryMemoryAccount prevMemoryAccount = QueryMemoryAccount.bind(sqlExecutionContext.getMemoryAccount());
         try {
-            state.recordCursorFactory = QueryCache.getInstance().poll(state.query);
+            state.recordCursorFactory = queryCache.poll(state.query);
             state.setQueryCacheable(true);
+            state.compilerMemory = -1;
             sqlExecutionContext.with(context.getCairoSecurityContext(), null, null, context.getFd(), interruptor.of(context.getFd()));
+            sqlExecutionContext.getMemoryAccount().reset();
             if (state.recordCursorFactory == null) {
+                final long memUsed = Unsafe.getMemUsed();
                 final CompiledQuery cc = compiler.compile(state.query, sqlExecutionContext);
+                state.compilerMemory = Unsafe.getMemUsed() - memUsed;
                 if (cc.getType() == CompiledQuery.SELECT) {
                     state.recordCursorFactory = cc.getRecordCursorFactory();
                 }
@@ -135,8 +145,11 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
                         } catch (ReaderOutOfDateException e) {
                             info(state).$(e.getFlyweightMessage()).$();
                             state.recordCursorFactory = Misc.free(state.recordCursorFactory);
+                            queryCache.invalidate(state.query, null);
+                            final long memUsed = Unsafe.getMemUsed();
                             final CompiledQuery cc = compiler.compile(state.query, sqlExecutionContext);
                             state.recordCursorFactory = cc.getRecordCursorFactory();
+                            state.compilerMemory = Unsafe.getMemUsed() - memUsed;
                         }
                     } while (runQuery);
                     state.metadata = state.recordCursorFactory.getMetadata();
@@ -159,6 +172,8 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         } catch (CairoException | CairoError e) {
             internalError(context.getChunkedResponseSocket(), e, state);
             readyForNextRequest(context);
+        } finally {
+            QueryMemoryAccount.bind(prevMemoryAccount);
         }
     }
 
@@ -168,7 +183,7 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
     ) throws PeerDisconnectedException, PeerIsSlowToReadException {
         TextQueryProcessorState state = LV.get(context);
         if (state == null) {
-            LV.set(context, state = new TextQueryProcessorState(context));
+            LV.set(context, state = new TextQueryProcessorState(context, queryCache));
         }
         // new request clears random
         state.rnd = null;
@@ -192,6 +207,26 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
 
         // copy random during query resume
         sqlExecutionContext.with(context.getCairoSecurityContext(), null, state.rnd, context.getFd(), interruptor.of(context.getFd()));
+        final QueryMemoryAccount prevMemoryAccount = QueryMemoryAccount.bind(sqlExecutionContext.getMemoryAccount());
+        try {
+            resumeSend0(context, state);
+        } finally {
+            QueryMemoryAccount.bind(prevMemoryAccount);
+        }
+    }
+
+    @Override
+    public void parkRequest(HttpConnectionContext context) {
+        TextQueryProcessorState state = LV.get(context);
+        if (state != null) {
+            state.rnd = sqlExecutionContext.getRandom();
+        }
+    }
+
+    private void resumeSend0(
+            HttpConnectionContext context,
+            TextQueryProcessorState state
+    ) throws PeerDisconnectedException, PeerIsSlowToReadException {
         LOG.debug().$("resume [fd=").$(context.getFd()).$(']').$();
 
         final HttpChunkedResponseSocket socket = context.getChunkedResponseSocket();
@@ -291,14 +326,6 @@ public class TextQueryProcessor implements HttpRequestProcessor, Closeable {
         readyForNextRequest(context);
     }
 
-    @Override
-    public void parkRequest(HttpConnectionContext context) {
-        TextQueryProcessorState state = LV.get(context);
-        if (state != null) {
-            state.rnd = sqlExecutionContext.getRandom();
-        }
-    }
-
     private static void putStringOrNull(CharSink r, CharSequence str) {
         if (str != null) {
             r.encodeUtf8AndQuote(str);
@@ -24,6 +24,7 @@
 
 package io.questdb.cutlass.http.processors;
 
+import io.questdb.cairo.QueryCache;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
@@ -39,6 +40,7 @@ import java.io.Closeable;
 public class TextQueryProcessorState implements Mutable, Closeable {
     final StringSink query = new StringSink();
     private final HttpConnectionContext httpConnectionContext;
+    private final QueryCache queryCache;
     boolean countRows = false;
     boolean noMeta = false;
     RecordCursorFactory recordCursorFactory;
@@ -47,6 +49,7 @@ public class TextQueryProcessorState implements Mutable, Closeable {
     long count;
     long skip;
     long stop;
+    long compilerMemory;
     Record record;
     Rnd rnd;
     int queryState = JsonQueryProcessorState.QUERY_PREFIX;
@@ -54,8 +57,9 @@ public class TextQueryProcessorState implements Mutable, Closeable {
     private boolean queryCacheable = false;
     String fileName;
 
-    public TextQueryProcessorState(HttpConnectionContext httpConnectionContext) {
+    public TextQueryProcessorState(HttpConnectionContext httpConnectionContext, QueryCache queryCache) {
         this.httpConnectionContext = httpConnectionContext;
+        this.queryCache = queryCache;
     }
 
     @Override
@@ -65,7 +69,7 @@ public class TextQueryProcessorState implements Mutable, Closeable {
         record = null;
         if (null != recordCursorFactory) {
             if (queryCacheable) {
-                QueryCache.getInstance().push(query, recordCursorFactory);
+                queryCache.push(query, recordCursorFactory, compilerMemory);
             } else {
                 recordCursorFactory.close();
             }
@@ -182,6 +182,7 @@ class LineTcpConnectionContext implements IOContext, Mutable {
                             LOG.error().$('[').$(fd).$("] could not parse measurement, code ").$(protoParser.getErrorCode()).$(" at ").$(position)
                                     .$(" line (may be mangled due to partial parsing) is ")
                                     .$(byteCharSequence.of(recvBufStartOfMeasurement, protoParser.getBufferAddress())).$();
+                            scheduler.getMetrics().parseError();
                             goodMeasurement = true;
                         }
                         protoParser.startNextMeasurement();
@@ -63,6 +63,7 @@ class LineTcpMeasurementScheduler implements Closeable {
     private static final int RELEASE_WRITER_EVENT_ID = -3;
     private static final int[] DEFAULT_COLUMN_TYPES = new int[NewLineProtoParser.N_ENTITY_TYPES];
     private final CairoEngine engine;
+    private final LineTcpMetrics metrics;
     private final CairoSecurityContext securityContext;
     private final CairoConfiguration cairoConfiguration;
     private final MillisecondClock milliClock;
@@ -93,6 +94,7 @@ class LineTcpMeasurementScheduler implements Closeable {
             WorkerPool writerWorkerPool
     ) {
         this.engine = engine;
+        this.metrics = engine.getMetrics().lineTcp();
         this.securityContext = lineConfiguration.getCairoSecurityContext();
         this.cairoConfiguration = engine.getConfiguration();
         this.milliClock = cairoConfiguration.getMillisecondClock();
@@ -220,6 +222,10 @@ class LineTcpMeasurementScheduler implements Closeable {
         return loadByThread;
     }
 
+    LineTcpMetrics getMetrics() {
+        return metrics;
+    }
+
     int getNLoadCheckCycles() {
         return nLoadCheckCycles;
     }
@@ -760,7 +766,9 @@ class LineTcpMeasurementScheduler implements Closeable {
                 }
                 row.append();
                 tableUpdateDetails.handleRowAppended();
+                metrics.row();
             } catch (CairoException ex) {
+                metrics.parseError();
                 LOG.error()
                         .$("could not write line protocol measurement [tableName=").$(tableUpdateDetails.tableName)
                         .$(", ex=").$(ex.getFlyweightMessage())
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.line.tcp;
+
+import io.questdb.metrics.Counter;
+import io.questdb.metrics.MetricsRegistry;
+
+/**
+ * Rows appended to tables by ILP writer threads and lines rejected, either because they could not
+ * be parsed or because values did not fit column types.
+ */
+public class LineTcpMetrics {
+    private final Counter rows;
+    private final Counter parseErrors;
+
+    public LineTcpMetrics(MetricsRegistry metricsRegistry) {
+        this.rows = metricsRegistry.newCounter("line_tcp_rows");
+        this.parseErrors = metricsRegistry.newCounter("line_tcp_parse_errors");
+    }
+
+    public void parseError() {
+        parseErrors.inc();
+    }
+
+    public void row() {
+        rows.inc();
+    }
+}
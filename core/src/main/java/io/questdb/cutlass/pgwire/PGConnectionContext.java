@@ -39,6 +39,7 @@ import io.questdb.log.LogFactory;
 import io.questdb.network.*;
 import io.questdb.std.*;
 import io.questdb.std.datetime.DateLocale;
+import io.questdb.std.datetime.microtime.MicrosecondClock;
 import io.questdb.std.datetime.microtime.TimestampFormatUtils;
 import io.questdb.std.str.*;
 import org.jetbrains.annotations.Nullable;
@@ -61,6 +62,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     public static final char STATUS_IDLE = 'I';
     private static final int INT_BYTES_X = Numbers.bswap(Integer.BYTES);
     private static final int INT_NULL_X = Numbers.bswap(-1);
+    private static final int NUMERIC_BASE = 10000;
     private static final int SYNC_PARSE = 1;
     private static final int SYNC_DESCRIBE = 2;
     private static final int SYNC_BIND = 3;
@@ -124,6 +126,17 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private final CharSequenceObjHashMap<Portal> namedPortalMap;
     private final IntList syncActions = new IntList(4);
     private final CairoEngine engine;
+    private final PGWireMetrics metrics;
+    private final MicrosecondClock clock;
+    // start of query cycle, which ends with ReadyForQuery, 0 when there is no query in flight
+    private long queryStartMicros;
+    private final QueryCache queryCache;
+    // types of bind variables defined before query was compiled, they are part of the query cache key
+    private final IntList queryCacheKeyTypes = new IntList();
+    private final IntList queryCacheOutTypes = new IntList();
+    private final int[] long256Limbs = new int[8];
+    // 256-bit number has at most 78 decimal digits
+    private final short[] long256Digits = new short[20];
     private IntList activeSelectColumnTypes;
     private int parsePhaseBindVariableCount;
     private long sendBufferPtr;
@@ -136,10 +149,12 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private RecordCursorFactory currentFactory = null;
     // these references are held by context only for a period of processing single request
     // in PF world this request can span multiple messages, but still, only for one request
-    // the rationale is to be able to return "selectAndTypes" instance to thread-local
-    // cache, which is "typesAndSelectCache". We typically do this after query results are
-    // served to client or query errored out due to network issues
+    // the rationale is to be able to return select factory to the engine query
+    // cache. We typically do this after query results are served to client or
+    // query errored out due to network issues
     private TypesAndSelect typesAndSelect = null;
+    // approximate memory held by the select factory, negative when factory came from the cache
+    private long compilerMemory;
     private TypesAndInsert typesAndInsert = null;
     private long fd;
     private CharSequence queryText;
@@ -155,7 +170,6 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     private int transactionState = NO_TRANSACTION;
     private final PGResumeProcessor resumeQueryCompleteRef = this::resumeQueryComplete;
     private NamedStatementWrapper wrapper;
-    private AssociativeCache<TypesAndSelect> typesAndSelectCache;
     private WeakAutoClosableObjectPool<TypesAndSelect> typesAndSelectPool;
     // this is a reference to types either from the context or named statement, where it is provided
     private IntList activeBindVariableTypes;
@@ -172,6 +186,9 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             int workerCount
     ) {
         this.engine = engine;
+        this.metrics = engine.getMetrics().pgWire();
+        this.clock = engine.getConfiguration().getMicrosecondClock();
+        this.queryCache = engine.getQueryCache();
         this.utf8Sink = new DirectCharSink(engine.getConfiguration().getTextConfiguration().getUtf8SinkSize());
         this.typeManager = new TypeManager(engine.getConfiguration().getTextConfiguration(), utf8Sink);
         this.nf = configuration.getNetworkFacade();
@@ -266,6 +283,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     @Override
     public void clear() {
         sendBufferPtr = sendBuffer;
+        queryStartMicros = 0;
         requireInitialMessage = true;
         bufferRemainingOffset = 0;
         bufferRemainingSize = 0;
@@ -300,7 +318,6 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         sqlExecutionContext.with(AllowAllCairoSecurityContext.INSTANCE, null, null, -1, null);
         Unsafe.free(sendBuffer, sendBufferSize);
         Unsafe.free(recvBuffer, recvBufferSize);
-        Misc.free(typesAndSelectCache);
         Misc.free(path);
         Misc.free(utf8Sink);
     }
@@ -331,14 +348,14 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
 
     public void handleClientOperation(
             @Transient SqlCompiler compiler,
-            @Transient AssociativeCache<TypesAndSelect> selectAndTypesCache,
             @Transient WeakAutoClosableObjectPool<TypesAndSelect> selectAndTypesPool,
             int operation
     ) throws PeerDisconnectedException, PeerIsSlowToReadException, PeerIsSlowToWriteException, BadProtocolException {
 
-        this.typesAndSelectCache = selectAndTypesCache;
         this.typesAndSelectPool = selectAndTypesPool;
 
+        // query memory allocated on this thread is charged to the connection
+        final QueryMemoryAccount prevMemoryAccount = QueryMemoryAccount.bind(sqlExecutionContext.getMemoryAccount());
         try {
             if (bufferRemainingSize > 0) {
                 doSend(bufferRemainingOffset, bufferRemainingSize);
@@ -387,6 +404,8 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             reportError(e.getPosition(), e.getFlyweightMessage());
         } catch (CairoException e) {
             reportError(-1, e.getFlyweightMessage());
+        } finally {
+            QueryMemoryAccount.bind(prevMemoryAccount);
         }
     }
 
@@ -583,7 +602,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     }
 
     private void appendDateColumnBin(Record record, int columnIndex) {
-        final long longValue = record.getLong(columnIndex);
+        final long longValue = record.getDate(columnIndex);
         if (longValue != Numbers.LONG_NaN) {
             responseAsciiSink.putNetworkInt(Long.BYTES);
             // PG epoch starts at 2000 rather than 1970
@@ -635,6 +654,37 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         }
     }
 
+    private void appendGeoHashColumn(Record record, int columnIndex, int columnType) {
+        final long value;
+        switch (ColumnType.storageTag(columnType)) {
+            case ColumnType.GEOBYTE:
+                value = record.getGeoHashByte(columnIndex);
+                break;
+            case ColumnType.GEOSHORT:
+                value = record.getGeoHashShort(columnIndex);
+                break;
+            case ColumnType.GEOINT:
+                value = record.getGeoHashInt(columnIndex);
+                break;
+            default:
+                value = record.getGeoHashLong(columnIndex);
+                break;
+        }
+        if (value == GeoHashes.NULL) {
+            responseAsciiSink.setNullValue();
+        } else {
+            // geohash is sent as varchar, text and binary formats are the same
+            final long a = responseAsciiSink.skip();
+            final int bits = GeoHashes.getBitsPrecision(columnType);
+            if (bits % 5 == 0) {
+                GeoHashes.toString(value, bits / 5, responseAsciiSink);
+            } else {
+                GeoHashes.toBitString(value, bits, responseAsciiSink);
+            }
+            responseAsciiSink.putLenEx(a);
+        }
+    }
+
     private void appendIntCol(Record record, int i) {
         final int intValue = record.getInt(i);
         if (intValue != Numbers.INT_NaN) {
@@ -672,6 +722,64 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         }
     }
 
+    private void appendLong256ColumnBin(Record record, int columnIndex) {
+        final Long256 long256Value = record.getLong256A(columnIndex);
+        final long l0 = long256Value.getLong0();
+        final long l1 = long256Value.getLong1();
+        final long l2 = long256Value.getLong2();
+        final long l3 = long256Value.getLong3();
+        if (l0 == Numbers.LONG_NaN && l1 == Numbers.LONG_NaN && l2 == Numbers.LONG_NaN && l3 == Numbers.LONG_NaN) {
+            responseAsciiSink.setNullValue();
+            return;
+        }
+
+        // binary numeric is a sequence of base 10000 digits, most significant first,
+        // long256 is unsigned, we convert it by dividing 32-bit limbs
+        final int[] limbs = long256Limbs;
+        limbs[0] = (int) (l3 >>> 32);
+        limbs[1] = (int) l3;
+        limbs[2] = (int) (l2 >>> 32);
+        limbs[3] = (int) l2;
+        limbs[4] = (int) (l1 >>> 32);
+        limbs[5] = (int) l1;
+        limbs[6] = (int) (l0 >>> 32);
+        limbs[7] = (int) l0;
+
+        int digitCount = 0;
+        int lo = 0;
+        while (lo < limbs.length) {
+            if (limbs[lo] == 0) {
+                lo++;
+                continue;
+            }
+            long remainder = 0;
+            for (int i = lo; i < limbs.length; i++) {
+                final long dividend = (remainder << 32) | (limbs[i] & 0xffffffffL);
+                limbs[i] = (int) (dividend / NUMERIC_BASE);
+                remainder = dividend % NUMERIC_BASE;
+            }
+            long256Digits[digitCount++] = (short) remainder;
+        }
+
+        // digits are least significant first, trailing zero digits are not sent
+        int trailingZeros = 0;
+        while (trailingZeros < digitCount && long256Digits[trailingZeros] == 0) {
+            trailingZeros++;
+        }
+        final int sentDigitCount = digitCount - trailingZeros;
+        responseAsciiSink.putNetworkInt(Short.BYTES * (4 + sentDigitCount));
+        responseAsciiSink.putNetworkShort((short) sentDigitCount);
+        // weight is exponent of the first digit
+        responseAsciiSink.putNetworkShort((short) (sentDigitCount > 0 ? digitCount - 1 : 0));
+        // sign
+        responseAsciiSink.putNetworkShort((short) 0);
+        // display scale
+        responseAsciiSink.putNetworkShort((short) 0);
+        for (int i = digitCount - 1; i >= trailingZeros; i--) {
+            responseAsciiSink.putNetworkShort(long256Digits[i]);
+        }
+    }
+
     private void appendLongColumn(Record record, int columnIndex) {
         final long longValue = record.getLong(columnIndex);
         if (longValue != Numbers.LONG_NaN) {
@@ -773,9 +881,15 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                     appendCharColumn(record, i);
                     break;
                 case ColumnType.LONG256:
-                case BINARY_TYPE_LONG256:
                     appendLong256Column(record, i);
                     break;
+                case BINARY_TYPE_LONG256:
+                    appendLong256ColumnBin(record, i);
+                    break;
+                case ColumnType.GEOHASH:
+                case BINARY_TYPE_GEOHASH:
+                    appendGeoHashColumn(record, i, toColumnType(type));
+                    break;
                 default:
                     assert false;
             }
@@ -842,7 +956,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     }
 
     private void appendTimestampColumnBin(Record record, int columnIndex) {
-        final long longValue = record.getLong(columnIndex);
+        final long longValue = record.getTimestamp(columnIndex);
         if (longValue == Numbers.LONG_NaN) {
             responseAsciiSink.setNullValue();
         } else {
@@ -962,19 +1076,26 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             // and we do not want to remove statement from it
             typesAndInsert = typesAndInsertCache.peek(queryText);
 
-            // not found or not insert, try select
-            // poll this cache because it is shared and we do not want
-            // select factory to be used by another thread concurrently
             if (typesAndInsert != null) {
                 typesAndInsert.defineBindVariables(bindVariableService);
                 queryTag = TAG_INSERT;
                 return false;
             }
 
-            typesAndSelect = typesAndSelectCache.poll(queryText);
+            // not found or not insert, try select
+            // poll this cache because it is shared and we do not want
+            // select factory to be used by another thread concurrently
+            queryCacheKeyTypes.clear();
+            for (int i = 0, n = bindVariableService.getIndexedVariableCount(); i < n; i++) {
+                queryCacheKeyTypes.add(bindVariableService.getFunction(i).getType());
+            }
+            final RecordCursorFactory factory = queryCache.poll(queryText, queryCacheKeyTypes, queryCacheOutTypes);
 
-            if (typesAndSelect != null) {
+            if (factory != null) {
                 // cache hit, define bind variables
+                typesAndSelect = typesAndSelectPool.pop();
+                typesAndSelect.of(factory, queryCacheOutTypes);
+                compilerMemory = -1;
                 bindVariableService.clear();
                 typesAndSelect.defineBindVariables(bindVariableService);
                 queryTag = TAG_SELECT;
@@ -982,7 +1103,10 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             }
 
             // not cached - compile to see what it is
+            final long memUsed = Unsafe.getMemUsed();
+            sqlExecutionContext.getMemoryAccount().reset();
             final CompiledQuery cc = compiler.compile(queryText, sqlExecutionContext);
+            compilerMemory = Unsafe.getMemUsed() - memUsed;
             sqlExecutionContext.storeTelemetry(cc.getType(), Telemetry.ORIGIN_POSTGRES);
 
             switch (cc.getType()) {
@@ -1318,6 +1442,9 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             doAuthentication(msgLo, msgLimit);
             return;
         }
+        if (queryStartMicros == 0 && (type == 'P' || type == 'B' || type == 'Q')) {
+            queryStartMicros = clock.getTicks();
+        }
         switch (type) {
             case 'P':
                 processParse(
@@ -1511,6 +1638,10 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
     }
 
     void prepareReadyForQuery() {
+        if (queryStartMicros != 0) {
+            metrics.queryLatency(clock.getTicks() - queryStartMicros);
+            queryStartMicros = 0;
+        }
         responseAsciiSink.put(MESSAGE_TYPE_READY_FOR_QUERY);
         responseAsciiSink.putNetworkInt(Integer.BYTES + Byte.BYTES);
         switch (transactionState) {
@@ -1657,6 +1788,10 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                             .$(']').$();
                     throw BadProtocolException.INSTANCE;
                 }
+            } else {
+                // no format codes means all columns are text, prepared statement
+                // may still have binary format codes from the previous bind
+                buildSelectColumnTypes();
             }
         }
 
@@ -2121,10 +2256,10 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
         // we do not want to overwrite cache entries and potentially
         // leak memory
         if (typesAndSelect != null) {
-            typesAndSelectCache.put(queryText, typesAndSelect);
+            queryCache.push(queryText, queryCacheKeyTypes, typesAndSelect.getFactory(), typesAndSelect.getTypes(), compilerMemory);
             // clear selectAndTypes so that context doesn't accidentally
             // free the factory when context finishes abnormally
-            this.typesAndSelect = null;
+            this.typesAndSelect = Misc.free(typesAndSelect.detach());
         }
     }
 
@@ -2139,6 +2274,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
             do {
                 currentFactory = typesAndSelect.getFactory();
                 try {
+                    sqlExecutionContext.getMemoryAccount().reset();
                     currentCursor = currentFactory.getCursor(sqlExecutionContext);
                     recompileStale = false;
                     // cache random if it was replaced
@@ -2146,6 +2282,7 @@ public class PGConnectionContext implements IOContext, Mutable, WriterSource {
                 } catch (ReaderOutOfDateException e) {
                     LOG.info().$(e.getFlyweightMessage()).$();
                     currentFactory = Misc.free(currentFactory);
+                    queryCache.invalidate(queryText, queryCacheKeyTypes);
                     compileQuery(compiler);
                     buildSelectColumnTypes();
                 } catch (Throwable e) {
@@ -31,7 +31,6 @@ import io.questdb.griffin.SqlCompiler;
 import io.questdb.network.PeerDisconnectedException;
 import io.questdb.network.PeerIsSlowToReadException;
 import io.questdb.network.PeerIsSlowToWriteException;
-import io.questdb.std.AssociativeCache;
 import io.questdb.std.Misc;
 import io.questdb.std.WeakAutoClosableObjectPool;
 
@@ -40,15 +39,10 @@ import java.io.Closeable;
 public class PGJobContext implements Closeable {
 
     private final SqlCompiler compiler;
-    private final AssociativeCache<TypesAndSelect> selectAndTypesCache;
     private final WeakAutoClosableObjectPool<TypesAndSelect> selectAndTypesPool;
 
     public PGJobContext(PGWireConfiguration configuration, CairoEngine engine, MessageBus messageBus, FunctionFactoryCache functionFactoryCache) {
         this.compiler = new SqlCompiler(engine, messageBus, functionFactoryCache);
-        this.selectAndTypesCache = new AssociativeCache<>(
-                configuration.getFactoryCacheColumnCount(),
-                configuration.getFactoryCacheRowCount()
-        );
         this.selectAndTypesPool = new WeakAutoClosableObjectPool<>(
                 TypesAndSelect::new,
                 configuration.getFactoryCacheColumnCount() * configuration.getFactoryCacheRowCount()
@@ -58,7 +52,6 @@ public class PGJobContext implements Closeable {
     @Override
     public void close() {
         Misc.free(compiler);
-        Misc.free(selectAndTypesCache);
     }
 
     public void handleClientOperation(PGConnectionContext context, int operation)
@@ -66,6 +59,6 @@ public class PGJobContext implements Closeable {
             PeerIsSlowToReadException,
             PeerDisconnectedException,
             BadProtocolException {
-        context.handleClientOperation(compiler, selectAndTypesCache, selectAndTypesPool, operation);
+        context.handleClientOperation(compiler, selectAndTypesPool, operation);
     }
 }
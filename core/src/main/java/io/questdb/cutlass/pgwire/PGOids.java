@@ -89,6 +89,7 @@ public class PGOids {
     public static final int BINARY_TYPE_BOOLEAN = (1 << 31) | ColumnType.BOOLEAN;
     public static final int BINARY_TYPE_LONG256 = (1 << 31) | ColumnType.LONG256;
     public static final int BINARY_TYPE_CHAR = (1 << 31) | ColumnType.CHAR;
+    public static final int BINARY_TYPE_GEOHASH = (1 << 31) | ColumnType.GEOHASH;
 
     static int toColumnBinaryType(short code, int type) {
         return (((int) code) << 31) | type;
@@ -131,6 +132,7 @@ public class PGOids {
         TYPE_OIDS.extendAndSet(ColumnType.DATE, PG_TIMESTAMP); // DATE
         TYPE_OIDS.extendAndSet(ColumnType.BINARY, PG_BYTEA); // BYTEA
         TYPE_OIDS.extendAndSet(ColumnType.LONG256, PG_NUMERIC); // NUMERIC
+        TYPE_OIDS.extendAndSet(ColumnType.GEOHASH, PG_VARCHAR); // VARCHAR
 
         PG_TYPE_OIDS.add(PG_VARCHAR);
         PG_TYPE_OIDS.add(PG_TIMESTAMP);
@@ -26,6 +26,7 @@ package io.questdb.cutlass.pgwire;
 
 import io.questdb.cairo.sql.BindVariableService;
 import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.std.IntList;
 import io.questdb.std.Misc;
 import io.questdb.std.WeakAutoClosableObjectPool;
 
@@ -42,6 +43,17 @@ public class TypesAndSelect extends AbstractTypeContainer<TypesAndSelect> {
         factory = Misc.free(factory);
     }
 
+    /**
+     * Hands factory over to the caller, the container can then be closed
+     * without freeing the factory.
+     *
+     * @return this container
+     */
+    public TypesAndSelect detach() {
+        factory = null;
+        return this;
+    }
+
     public RecordCursorFactory getFactory() {
         return factory;
     }
@@ -50,4 +62,9 @@ public class TypesAndSelect extends AbstractTypeContainer<TypesAndSelect> {
         this.factory = factory;
         copyTypesFrom(bindVariableService);
     }
+
+    public void of(RecordCursorFactory factory, IntList types) {
+        this.factory = factory;
+        getTypes().addAll(types);
+    }
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.cairo.CairoSecurityContext;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.network.DefaultIODispatcherConfiguration;
+import io.questdb.network.IODispatcherConfiguration;
+import io.questdb.network.NetworkFacade;
+import io.questdb.network.NetworkFacadeImpl;
+import io.questdb.std.Numbers;
+import io.questdb.std.ObjList;
+import io.questdb.std.datetime.millitime.MillisecondClock;
+import io.questdb.std.datetime.millitime.MillisecondClockImpl;
+
+public class DefaultReplicationConfiguration implements ReplicationConfiguration {
+    private final IODispatcherConfiguration dispatcherConfiguration = new DefaultIODispatcherConfiguration() {
+        @Override
+        public int getBindPort() {
+            return 9010;
+        }
+
+        @Override
+        public String getDispatcherLogName() {
+            return "replication-server";
+        }
+    };
+    private final ObjList<String> replicaTables = new ObjList<>();
+
+    @Override
+    public CairoSecurityContext getCairoSecurityContext() {
+        return AllowAllCairoSecurityContext.INSTANCE;
+    }
+
+    @Override
+    public int getConnectionPoolInitialCapacity() {
+        return 4;
+    }
+
+    @Override
+    public IODispatcherConfiguration getDispatcherConfiguration() {
+        return dispatcherConfiguration;
+    }
+
+    @Override
+    public long getMaxRowsPerFrame() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public long getMaxResponseSize() {
+        return 16 * Numbers.SIZE_1MB;
+    }
+
+    @Override
+    public MillisecondClock getMillisecondClock() {
+        return MillisecondClockImpl.INSTANCE;
+    }
+
+    @Override
+    public NetworkFacade getNetworkFacade() {
+        return NetworkFacadeImpl.INSTANCE;
+    }
+
+    @Override
+    public int getRecvBufferSize() {
+        return 16 * 1024;
+    }
+
+    @Override
+    public long getReplicaPollInterval() {
+        return 100;
+    }
+
+    @Override
+    public int getReplicaPrimaryIPv4Address() {
+        // 127.0.0.1
+        return 0x7f000001;
+    }
+
+    @Override
+    public int getReplicaPrimaryPort() {
+        return 9010;
+    }
+
+    @Override
+    public int getReplicaRecvBufferSize() {
+        return 1024 * 1024;
+    }
+
+    @Override
+    public ObjList<String> getReplicaTables() {
+        return replicaTables;
+    }
+
+    @Override
+    public int getSendBufferSize() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isReplicaEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,502 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryMARW;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.network.NetworkError;
+import io.questdb.network.NetworkFacade;
+import io.questdb.std.*;
+import io.questdb.std.datetime.millitime.MillisecondClock;
+import io.questdb.std.str.DirectCharSequence;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+import static io.questdb.cutlass.replication.ReplicationProtocol.*;
+
+/**
+ * Replica side of table replication. Job polls primary for every replicated table in turn.
+ * Response is accumulated in memory until its commit message arrives, then page frames are
+ * appended to the table via {@link TableBlockWriter} and committed in one transaction. Tables
+ * that do not exist on replica are created with structure of the primary table.
+ * <p>
+ * Replica must be the only writer of replicated tables. Only appends and added columns are
+ * replicated, tables that receive out-of-order rows on primary cannot be replicated.
+ */
+public class ReplicaJob extends SynchronizedJob implements Closeable {
+    private static final Log LOG = LogFactory.getLog(ReplicaJob.class);
+    private static final int STATE_DISCONNECTED = 0;
+    private static final int STATE_IDLE = 1;
+    private static final int STATE_RECEIVING = 2;
+    private final CairoEngine engine;
+    private final CairoSecurityContext securityContext;
+    private final NetworkFacade nf;
+    private final MillisecondClock clock;
+    private final ObjList<String> tables;
+    private final long pollInterval;
+    private final int primaryIPv4Address;
+    private final int primaryPort;
+    private final IntList symbolCounts = new IntList();
+    private final ReplicaTableStructure tableStructure = new ReplicaTableStructure();
+    private final DirectCharSequence errorMessage = new DirectCharSequence();
+    private final MemoryMARW mem = Vm.getMARWInstance();
+    private final Path path = new Path();
+    private long recvBuffer;
+    private long recvBufferSize;
+    // offsets in receive buffer, buffer may be reallocated while response is being received
+    private long recvOffset;
+    private long parseOffset;
+    private long fd = -1;
+    private int state = STATE_DISCONNECTED;
+    private int tableIndex;
+    private boolean lagging;
+    private long nextPollTicks;
+    private TableWriter writer;
+
+    public ReplicaJob(ReplicationConfiguration configuration, CairoEngine engine) {
+        this.engine = engine;
+        this.securityContext = configuration.getCairoSecurityContext();
+        this.nf = configuration.getNetworkFacade();
+        this.clock = configuration.getMillisecondClock();
+        this.tables = configuration.getReplicaTables();
+        this.pollInterval = configuration.getReplicaPollInterval();
+        this.primaryIPv4Address = configuration.getReplicaPrimaryIPv4Address();
+        this.primaryPort = configuration.getReplicaPrimaryPort();
+        this.recvBufferSize = configuration.getReplicaRecvBufferSize();
+        this.recvBuffer = Unsafe.malloc(recvBufferSize);
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+        if (recvBuffer != 0) {
+            Unsafe.free(recvBuffer, recvBufferSize);
+            recvBuffer = 0;
+        }
+        Misc.free(mem);
+        Misc.free(path);
+    }
+
+    @Override
+    protected boolean runSerially() {
+        if (tables.size() == 0) {
+            return false;
+        }
+
+        final long ticks = clock.getTicks();
+        try {
+            switch (state) {
+                case STATE_DISCONNECTED:
+                    if (ticks < nextPollTicks) {
+                        return false;
+                    }
+                    connect();
+                    // fall through
+                case STATE_IDLE:
+                    if (ticks < nextPollTicks) {
+                        return false;
+                    }
+                    sendRequest();
+                    return true;
+                default:
+                    return receive();
+            }
+        } catch (NetworkError e) {
+            LOG.error().$("replication connection error [primary=").$ip(primaryIPv4Address).$(':').$(primaryPort)
+                    .$(", msg=").$(e.getFlyweightMessage()).$(']').$();
+            disconnect();
+            nextPollTicks = ticks + pollInterval;
+        } catch (CairoException e) {
+            LOG.error().$("could not replicate [table=").$(tables.getQuick(tableIndex)).$(", errno=").$(e.getErrno())
+                    .$(", msg=").$(e.getFlyweightMessage()).$(']').$();
+            // rest of the response could still be on its way, start over with a new connection
+            disconnect();
+            nextTable(ticks);
+        }
+        return false;
+    }
+
+    private void apply() {
+        final long hi = recvBuffer + parseOffset;
+        long p = recvBuffer;
+        TableBlockWriter blockWriter = null;
+        try {
+            while (p < hi) {
+                final int headerSize = Unsafe.getUnsafe().getInt(p);
+                switch (Unsafe.getUnsafe().getByte(p + Integer.BYTES)) {
+                    case MSG_META:
+                        openWriter(p);
+                        break;
+                    case MSG_SYMBOLS: {
+                        final int columnIndex = Unsafe.getUnsafe().getInt(p + SYMBOLS_COLUMN_INDEX_OFFSET);
+                        final int fromCount = Unsafe.getUnsafe().getInt(p + SYMBOLS_FROM_COUNT_OFFSET);
+                        if (writer.getSymbolCount(columnIndex) != fromCount) {
+                            throw CairoException.instance(0).put("symbol count mismatch [column=").put(columnIndex).put(']');
+                        }
+                        writer.appendSymbolCharsBlock(columnIndex, payloadSize(p), p + headerSize);
+                        break;
+                    }
+                    case MSG_FRAME:
+                        if (blockWriter == null) {
+                            blockWriter = writer.newBlock();
+                        }
+                        blockWriter.startPageFrame(Unsafe.getUnsafe().getLong(p + FRAME_FIRST_TIMESTAMP_OFFSET));
+                        break;
+                    case MSG_COLUMN: {
+                        final boolean columnTop = Unsafe.getUnsafe().getByte(p + COLUMN_TOP_OFFSET) == 1;
+                        blockWriter.appendPageFrameColumn(
+                                Unsafe.getUnsafe().getInt(p + COLUMN_INDEX_OFFSET),
+                                Unsafe.getUnsafe().getLong(p + COLUMN_PAGE_SIZE_OFFSET),
+                                columnTop ? 0 : p + headerSize
+                        );
+                        break;
+                    }
+                    case MSG_COMMIT: {
+                        if (blockWriter != null) {
+                            blockWriter.commit();
+                            blockWriter = null;
+                        }
+                        final long primaryRowCount = Unsafe.getUnsafe().getLong(p + COMMIT_PRIMARY_ROW_COUNT_OFFSET);
+                        if (writer.size() < primaryRowCount) {
+                            lagging = true;
+                        } else if (writer.size() > primaryRowCount) {
+                            LOG.error().$("replica has more rows than primary [table=").$(writer.getTableName())
+                                    .$(", rows=").$(writer.size()).$(", primaryRows=").$(primaryRowCount).$(']').$();
+                        }
+                        break;
+                    }
+                    default:
+                        throw CairoException.instance(0).put("unexpected message [type=").put(Unsafe.getUnsafe().getByte(p + Integer.BYTES)).put(']');
+                }
+                p += headerSize + payloadSize(p);
+            }
+        } catch (Throwable e) {
+            if (blockWriter != null) {
+                blockWriter.cancel();
+            }
+            throw e;
+        }
+    }
+
+    private void connect() {
+        fd = nf.socketTcp(true);
+        if (fd < 0) {
+            throw NetworkError.instance(nf.errno(), "could not create socket");
+        }
+        final long sockaddr = nf.sockaddr(primaryIPv4Address, primaryPort);
+        try {
+            if (nf.connect(fd, sockaddr) != 0) {
+                final int errno = nf.errno();
+                nf.close(fd, LOG);
+                fd = -1;
+                throw NetworkError.instance(errno).put("could not connect to ").ip(primaryIPv4Address).put(':').put(primaryPort);
+            }
+        } finally {
+            nf.freeSockAddr(sockaddr);
+        }
+        nf.configureNonBlocking(fd);
+        LOG.info().$("connected to primary [primary=").$ip(primaryIPv4Address).$(':').$(primaryPort).$(", fd=").$(fd).$(']').$();
+        state = STATE_IDLE;
+    }
+
+    private void disconnect() {
+        if (fd != -1) {
+            nf.close(fd, LOG);
+            fd = -1;
+        }
+        writer = Misc.free(writer);
+        state = STATE_DISCONNECTED;
+    }
+
+    private void ensureCapacity(long size) {
+        if (size > recvBufferSize) {
+            final long newSize = Math.max(size, recvBufferSize * 2);
+            recvBuffer = Unsafe.realloc(recvBuffer, recvBufferSize, newSize);
+            recvBufferSize = newSize;
+        }
+    }
+
+    private void nextTable(long ticks) {
+        writer = Misc.free(writer);
+        if (++tableIndex == tables.size()) {
+            tableIndex = 0;
+            // tables that have not caught up are polled again straight away
+            nextPollTicks = lagging ? ticks : ticks + pollInterval;
+            lagging = false;
+        }
+    }
+
+    private void openWriter(long meta) {
+        final String tableName = tables.getQuick(tableIndex);
+        tableStructure.of(tableName, meta);
+        if (writer == null) {
+            if (engine.getStatus(securityContext, path, tableName) != TableUtils.TABLE_EXISTS) {
+                engine.createTable(securityContext, mem, path, tableStructure);
+                LOG.info().$("created replica table [table=").$(tableName).$(']').$();
+            }
+            writer = engine.getWriter(securityContext, tableName, "replication");
+        }
+
+        final TableWriterMetadata metadata = writer.getMetadata();
+        final int columnCount = metadata.getColumnCount();
+        boolean match = columnCount <= tableStructure.getColumnCount()
+                && metadata.getTimestampIndex() == tableStructure.getTimestampIndex()
+                && writer.getPartitionBy() == tableStructure.getPartitionBy();
+        for (int i = 0; match && i < columnCount; i++) {
+            match = metadata.getColumnType(i) == tableStructure.getColumnType(i)
+                    && Chars.equals(metadata.getColumnName(i), tableStructure.getColumnName(i));
+        }
+        if (!match) {
+            throw CairoException.instance(0).put("replica table structure does not match primary [table=").put(tableName).put(']');
+        }
+
+        // columns added on primary are added to replica before rows that have them arrive
+        for (int i = columnCount, n = tableStructure.getColumnCount(); i < n; i++) {
+            writer.addColumn(
+                    tableStructure.getColumnName(i),
+                    tableStructure.getColumnType(i),
+                    tableStructure.getSymbolCapacity(i),
+                    tableStructure.getSymbolCacheFlag(i),
+                    tableStructure.isIndexed(i),
+                    tableStructure.getIndexBlockCapacity(i),
+                    false
+            );
+            LOG.info().$("added replica column [table=").$(tableName).$(", column=").$(tableStructure.getColumnName(i)).$(']').$();
+        }
+    }
+
+    private long payloadSize(long message) {
+        switch (Unsafe.getUnsafe().getByte(message + Integer.BYTES)) {
+            case MSG_SYMBOLS:
+                return Unsafe.getUnsafe().getLong(message + SYMBOLS_PAYLOAD_SIZE_OFFSET);
+            case MSG_COLUMN:
+                return Unsafe.getUnsafe().getByte(message + COLUMN_TOP_OFFSET) == 1 ? 0 : Unsafe.getUnsafe().getLong(message + COLUMN_PAGE_SIZE_OFFSET);
+            default:
+                return 0;
+        }
+    }
+
+    private boolean receive() {
+        if (recvOffset == recvBufferSize) {
+            ensureCapacity(recvBufferSize * 2);
+        }
+        final int n = nf.recv(fd, recvBuffer + recvOffset, (int) Math.min(recvBufferSize - recvOffset, Integer.MAX_VALUE));
+        if (n < 0) {
+            throw NetworkError.instance(nf.errno()).put("peer disconnected");
+        }
+        if (n == 0) {
+            return false;
+        }
+        recvOffset += n;
+
+        while (recvOffset - parseOffset >= HEADER_SIZE) {
+            final long message = recvBuffer + parseOffset;
+            final int headerSize = Unsafe.getUnsafe().getInt(message);
+            if (recvOffset - parseOffset < headerSize) {
+                ensureCapacity(parseOffset + headerSize);
+                break;
+            }
+
+            final long messageSize = headerSize + payloadSize(message);
+            if (recvOffset - parseOffset < messageSize) {
+                ensureCapacity(parseOffset + messageSize);
+                break;
+            }
+
+            final byte type = Unsafe.getUnsafe().getByte(message + Integer.BYTES);
+            if (type == MSG_ERROR) {
+                final long lo = message + ERROR_MESSAGE_OFFSET + Integer.BYTES;
+                LOG.error().$("primary could not replicate [table=").$(tables.getQuick(tableIndex))
+                        .$(", msg=").$(errorMessage.of(lo, lo + 2L * Unsafe.getUnsafe().getInt(message + ERROR_MESSAGE_OFFSET))).$(']').$();
+                state = STATE_IDLE;
+                nextTable(clock.getTicks());
+                return true;
+            }
+
+            parseOffset += messageSize;
+            if (type == MSG_COMMIT) {
+                if (recvOffset != parseOffset) {
+                    throw CairoException.instance(0).put("unexpected data after commit");
+                }
+                apply();
+                state = STATE_IDLE;
+                nextTable(clock.getTicks());
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private void sendRequest() {
+        final String tableName = tables.getQuick(tableIndex);
+        long fromRow = 0;
+        symbolCounts.clear();
+        if (engine.getStatus(securityContext, path, tableName) == TableUtils.TABLE_EXISTS) {
+            // writer is held until the response is applied, replica is the only writer of the table
+            writer = engine.getWriter(securityContext, tableName, "replication");
+            fromRow = writer.size();
+            final TableWriterMetadata metadata = writer.getMetadata();
+            for (int i = 0, n = metadata.getColumnCount(); i < n; i++) {
+                symbolCounts.add(ColumnType.isSymbol(metadata.getColumnType(i)) ? writer.getSymbolCount(i) : 0);
+            }
+        }
+
+        final int symbolColumnCount = symbolCounts.size();
+        final long tableNameOffset = SYNC_SYMBOL_COUNTS_OFFSET + 4L * symbolColumnCount;
+        final long size = tableNameOffset + Integer.BYTES + 2L * tableName.length();
+        ensureCapacity(size);
+        Unsafe.getUnsafe().putInt(recvBuffer, (int) size);
+        Unsafe.getUnsafe().putByte(recvBuffer + Integer.BYTES, MSG_SYNC);
+        Unsafe.getUnsafe().putLong(recvBuffer + SYNC_FROM_ROW_OFFSET, fromRow);
+        Unsafe.getUnsafe().putInt(recvBuffer + SYNC_SYMBOL_COLUMN_COUNT_OFFSET, symbolColumnCount);
+        for (int i = 0; i < symbolColumnCount; i++) {
+            Unsafe.getUnsafe().putInt(recvBuffer + SYNC_SYMBOL_COUNTS_OFFSET + 4L * i, symbolCounts.getQuick(i));
+        }
+        Unsafe.getUnsafe().putInt(recvBuffer + tableNameOffset, tableName.length());
+        Chars.copyStrChars(tableName, 0, tableName.length(), recvBuffer + tableNameOffset + Integer.BYTES);
+
+        // request is small, spin until socket takes all of it
+        long offset = 0;
+        while (offset < size) {
+            final int n = nf.send(fd, recvBuffer + offset, (int) (size - offset));
+            if (n < 0) {
+                throw NetworkError.instance(nf.errno()).put("could not send request");
+            }
+            offset += n;
+        }
+
+        recvOffset = 0;
+        parseOffset = 0;
+        state = STATE_RECEIVING;
+    }
+
+    private static class ReplicaTableStructure implements TableStructure {
+        private final ObjList<String> columnNames = new ObjList<>();
+        private final IntList columnAttributes = new IntList();
+        private String tableName;
+        private int partitionBy;
+        private int timestampIndex;
+        private int maxUncommittedRows;
+        private long commitLag;
+        private int columnCount;
+
+        @Override
+        public int getColumnCount() {
+            return columnCount;
+        }
+
+        @Override
+        public CharSequence getColumnName(int columnIndex) {
+            return columnNames.getQuick(columnIndex);
+        }
+
+        @Override
+        public int getColumnType(int columnIndex) {
+            return columnAttributes.getQuick(columnIndex * 5);
+        }
+
+        @Override
+        public int getIndexBlockCapacity(int columnIndex) {
+            return columnAttributes.getQuick(columnIndex * 5 + 2);
+        }
+
+        @Override
+        public boolean isIndexed(int columnIndex) {
+            return columnAttributes.getQuick(columnIndex * 5 + 1) == 1;
+        }
+
+        @Override
+        public boolean isSequential(int columnIndex) {
+            return false;
+        }
+
+        @Override
+        public int getPartitionBy() {
+            return partitionBy;
+        }
+
+        @Override
+        public boolean getSymbolCacheFlag(int columnIndex) {
+            return columnAttributes.getQuick(columnIndex * 5 + 4) == 1;
+        }
+
+        @Override
+        public int getSymbolCapacity(int columnIndex) {
+            return columnAttributes.getQuick(columnIndex * 5 + 3);
+        }
+
+        @Override
+        public CharSequence getTableName() {
+            return tableName;
+        }
+
+        @Override
+        public int getTimestampIndex() {
+            return timestampIndex;
+        }
+
+        @Override
+        public int getMaxUncommittedRows() {
+            return maxUncommittedRows;
+        }
+
+        @Override
+        public long getCommitLag() {
+            return commitLag;
+        }
+
+        private void of(String tableName, long meta) {
+            this.tableName = tableName;
+            partitionBy = Unsafe.getUnsafe().getInt(meta + META_PARTITION_BY_OFFSET);
+            timestampIndex = Unsafe.getUnsafe().getInt(meta + META_TIMESTAMP_INDEX_OFFSET);
+            maxUncommittedRows = Unsafe.getUnsafe().getInt(meta + META_MAX_UNCOMMITTED_ROWS_OFFSET);
+            commitLag = Unsafe.getUnsafe().getLong(meta + META_COMMIT_LAG_OFFSET);
+            columnCount = Unsafe.getUnsafe().getInt(meta + META_COLUMN_COUNT_OFFSET);
+            columnNames.clear();
+            columnAttributes.clear();
+            long p = meta + META_COLUMNS_OFFSET;
+            for (int i = 0; i < columnCount; i++) {
+                columnAttributes.add(Unsafe.getUnsafe().getInt(p));
+                columnAttributes.add(Unsafe.getUnsafe().getByte(p + 4));
+                columnAttributes.add(Unsafe.getUnsafe().getInt(p + 5));
+                columnAttributes.add(Unsafe.getUnsafe().getInt(p + 9));
+                columnAttributes.add(Unsafe.getUnsafe().getByte(p + 13));
+                final int len = Unsafe.getUnsafe().getInt(p + 14);
+                final long lo = p + 14 + Integer.BYTES;
+                final StringBuilder name = new StringBuilder(len);
+                for (int j = 0; j < len; j++) {
+                    name.append(Unsafe.getUnsafe().getChar(lo + 2L * j));
+                }
+                columnNames.add(name.toString());
+                p = lo + 2L * len;
+            }
+        }
+    }
+}
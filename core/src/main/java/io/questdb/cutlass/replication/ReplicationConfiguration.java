@@ -0,0 +1,102 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.cairo.CairoSecurityContext;
+import io.questdb.network.IODispatcherConfiguration;
+import io.questdb.network.NetworkFacade;
+import io.questdb.std.ObjList;
+import io.questdb.std.datetime.millitime.MillisecondClock;
+
+public interface ReplicationConfiguration {
+
+    CairoSecurityContext getCairoSecurityContext();
+
+    int getConnectionPoolInitialCapacity();
+
+    IODispatcherConfiguration getDispatcherConfiguration();
+
+    /**
+     * @return maximum number of rows primary puts into single page frame, frames do not
+     * cross partition boundaries, so they can be smaller than that
+     */
+    long getMaxRowsPerFrame();
+
+    /**
+     * Primary stops adding page frames to the response once it has sent this many bytes
+     * of column data. Replica keeps the whole response in memory until it is committed,
+     * so this limits memory replica needs. Tables that are behind by more than this
+     * catch up over several commits.
+     *
+     * @return soft limit of response size in bytes
+     */
+    long getMaxResponseSize();
+
+    MillisecondClock getMillisecondClock();
+
+    NetworkFacade getNetworkFacade();
+
+    /**
+     * @return size of the buffer primary receives replica requests into, it limits number
+     * of columns and length of table name
+     */
+    int getRecvBufferSize();
+
+    /**
+     * @return interval in milliseconds between subsequent polls of the primary, replica polls
+     * again straight away when it has not caught up with the primary yet
+     */
+    long getReplicaPollInterval();
+
+    int getReplicaPrimaryIPv4Address();
+
+    int getReplicaPrimaryPort();
+
+    /**
+     * @return initial size of the buffer replica receives responses into, buffer grows as needed
+     */
+    int getReplicaRecvBufferSize();
+
+    /**
+     * @return names of the tables replica subscribes to, tables missing on replica are created
+     * with structure of the primary table
+     */
+    ObjList<String> getReplicaTables();
+
+    /**
+     * @return size of the buffer primary composes response headers and table metadata in
+     */
+    int getSendBufferSize();
+
+    /**
+     * @return true when this instance serves tables to replicas
+     */
+    boolean isEnabled();
+
+    /**
+     * @return true when this instance replicates tables of another instance
+     */
+    boolean isReplicaEnabled();
+}
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlExecutionContextImpl;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.network.*;
+import io.questdb.std.*;
+import io.questdb.std.str.DirectCharSequence;
+import io.questdb.std.str.StringSink;
+
+import static io.questdb.cutlass.replication.ReplicationProtocol.*;
+
+/**
+ * Primary side of replication connection. Request of the replica is answered with page frames
+ * of the table that are sent straight from the memory mapped by table reader. Response is
+ * produced one message at a time, so that it can resume from where it left off once the socket
+ * becomes writable again.
+ */
+class ReplicationConnectionContext implements IOContext, Mutable {
+    private static final Log LOG = LogFactory.getLog(ReplicationConnectionContext.class);
+    private static final int STATE_REQUEST = 0;
+    private static final int STATE_META = 1;
+    private static final int STATE_SYMBOLS = 2;
+    private static final int STATE_FRAME = 3;
+    private static final int STATE_COLUMN = 4;
+    private static final int STATE_COMMIT = 5;
+    private final CairoEngine engine;
+    private final NetworkFacade nf;
+    private final SqlExecutionContextImpl executionContext;
+    private final long maxRowsPerFrame;
+    private final long maxResponseSize;
+    private final int recvBufferSize;
+    private final int sendBufferSize;
+    private final StringSink tableName = new StringSink();
+    private final IntList symbolCounts = new IntList();
+    private final DirectCharSequence requestTableName = new DirectCharSequence();
+    private long recvBuffer;
+    private long recvBufferPos;
+    private long sendBuffer;
+    private long sendBufferPos;
+    private long sendBufferLimit;
+    private long payloadAddress;
+    private long payloadSize;
+    private long fd = -1;
+    private IODispatcher<ReplicationConnectionContext> dispatcher;
+    private TableReplicationRecordCursorFactory factory;
+    private TablePageFrameCursor cursor;
+    private TablePageFrameCursor.ReplicationPageFrame frame;
+    private int state;
+    private int columnIndex;
+    private int columnCount;
+    private long fromRow;
+    private long responseSize;
+
+    ReplicationConnectionContext(CairoEngine engine, ReplicationConfiguration configuration) {
+        this.engine = engine;
+        this.nf = configuration.getNetworkFacade();
+        this.executionContext = new SqlExecutionContextImpl(engine, 1).with(configuration.getCairoSecurityContext(), null, null);
+        this.maxRowsPerFrame = configuration.getMaxRowsPerFrame();
+        this.maxResponseSize = configuration.getMaxResponseSize();
+        this.recvBufferSize = configuration.getRecvBufferSize();
+        this.sendBufferSize = configuration.getSendBufferSize();
+        this.recvBuffer = Unsafe.malloc(recvBufferSize);
+        this.sendBuffer = Unsafe.malloc(sendBufferSize);
+        clear();
+    }
+
+    @Override
+    public void clear() {
+        closeCursor();
+        recvBufferPos = recvBuffer;
+        sendBufferPos = sendBufferLimit = sendBuffer;
+        payloadAddress = 0;
+        payloadSize = 0;
+        state = STATE_REQUEST;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        fd = -1;
+        if (recvBuffer != 0) {
+            Unsafe.free(recvBuffer, recvBufferSize);
+            Unsafe.free(sendBuffer, sendBufferSize);
+            recvBuffer = sendBuffer = 0;
+        }
+    }
+
+    @Override
+    public long getFd() {
+        return fd;
+    }
+
+    @Override
+    public boolean invalid() {
+        return fd == -1;
+    }
+
+    @Override
+    public IODispatcher<ReplicationConnectionContext> getDispatcher() {
+        return dispatcher;
+    }
+
+    private void closeCursor() {
+        frame = null;
+        cursor = Misc.free(cursor);
+        factory = Misc.free(factory);
+    }
+
+    /**
+     * Makes sure message of the given size fits into the send buffer, sending out what has been
+     * buffered so far when it does not.
+     */
+    private void ensureCapacity(int size) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        if (sendBufferLimit + size > sendBuffer + sendBufferSize) {
+            flush();
+        }
+    }
+
+    private void flush() throws PeerDisconnectedException, PeerIsSlowToReadException {
+        if (sendBufferPos < sendBufferLimit) {
+            sendBufferPos += send(sendBufferPos, sendBufferLimit - sendBufferPos);
+            if (sendBufferPos < sendBufferLimit) {
+                throw PeerIsSlowToReadException.INSTANCE;
+            }
+            sendBufferPos = sendBufferLimit = sendBuffer;
+        }
+
+        if (payloadSize > 0) {
+            final long n = send(payloadAddress, payloadSize);
+            payloadAddress += n;
+            payloadSize -= n;
+            if (payloadSize > 0) {
+                throw PeerIsSlowToReadException.INSTANCE;
+            }
+        }
+    }
+
+    void handleClientOperation() throws PeerDisconnectedException, PeerIsSlowToReadException, PeerIsSlowToWriteException {
+        while (true) {
+            // headers are accumulated in the send buffer, until there is a payload to send
+            if (payloadSize > 0 || state == STATE_REQUEST) {
+                flush();
+            }
+
+            if (state == STATE_REQUEST) {
+                if (!receiveRequest()) {
+                    throw PeerIsSlowToWriteException.INSTANCE;
+                }
+                continue;
+            }
+
+            try {
+                nextMessage();
+            } catch (CairoException e) {
+                LOG.error().$("could not replicate [fd=").$(fd).$(", table=").$(tableName).$(", msg=").$(e.getFlyweightMessage()).$(']').$();
+                putError(e.getFlyweightMessage());
+            }
+        }
+    }
+
+    private void nextMessage() throws PeerDisconnectedException, PeerIsSlowToReadException {
+        switch (state) {
+            case STATE_META:
+                putMeta();
+                break;
+            case STATE_SYMBOLS:
+                putSymbols();
+                break;
+            case STATE_FRAME:
+                if (responseSize < maxResponseSize && (frame = cursor.next()) != null) {
+                    ensureCapacity(FRAME_SIZE);
+                    final long p = putHeader(FRAME_SIZE, MSG_FRAME);
+                    Unsafe.getUnsafe().putLong(p + FRAME_FIRST_TIMESTAMP_OFFSET, frame.getFirstTimestamp());
+                    columnIndex = 0;
+                    state = STATE_COLUMN;
+                } else {
+                    state = STATE_COMMIT;
+                }
+                break;
+            case STATE_COLUMN:
+                if (columnIndex < columnCount) {
+                    ensureCapacity(COLUMN_SIZE);
+                    final long pageAddress = frame.getPageAddress(columnIndex);
+                    final long pageSize = frame.getPageSize(columnIndex);
+                    final long p = putHeader(COLUMN_SIZE, MSG_COLUMN);
+                    Unsafe.getUnsafe().putInt(p + COLUMN_INDEX_OFFSET, columnIndex);
+                    Unsafe.getUnsafe().putLong(p + COLUMN_PAGE_SIZE_OFFSET, pageSize);
+                    // column top is sent as number of rows, without payload
+                    Unsafe.getUnsafe().putByte(p + COLUMN_TOP_OFFSET, (byte) (pageAddress == 0 ? 1 : 0));
+                    if (pageAddress != 0) {
+                        payloadAddress = pageAddress;
+                        payloadSize = pageSize;
+                        responseSize += pageSize;
+                    }
+                    columnIndex++;
+                } else {
+                    state = STATE_FRAME;
+                }
+                break;
+            case STATE_COMMIT:
+                ensureCapacity(COMMIT_SIZE);
+                final long p = putHeader(COMMIT_SIZE, MSG_COMMIT);
+                Unsafe.getUnsafe().putLong(p + COMMIT_PRIMARY_ROW_COUNT_OFFSET, cursor.size());
+                LOG.debug().$("replicated [fd=").$(fd).$(", table=").$(tableName).$(", fromRow=").$(fromRow).$(", size=").$(responseSize).$(']').$();
+                closeCursor();
+                state = STATE_REQUEST;
+                break;
+            default:
+                assert false;
+        }
+    }
+
+    ReplicationConnectionContext of(long fd, IODispatcher<ReplicationConnectionContext> dispatcher) {
+        this.fd = fd;
+        this.dispatcher = dispatcher;
+        clear();
+        return this;
+    }
+
+    private void putError(CharSequence message) throws PeerDisconnectedException, PeerIsSlowToReadException {
+        // drop whatever has been buffered, the response is discarded by replica anyway
+        sendBufferLimit = sendBufferPos;
+        final int len = Math.min(message.length(), (sendBufferSize - ERROR_MESSAGE_OFFSET - Integer.BYTES) / 2);
+        final int size = ERROR_MESSAGE_OFFSET + Integer.BYTES + 2 * len;
+        ensureCapacity(size);
+        final long p = putHeader(size, MSG_ERROR);
+        putStr(p + ERROR_MESSAGE_OFFSET, message, len);
+        closeCursor();
+        state = STATE_REQUEST;
+    }
+
+    private long putHeader(int size, byte type) {
+        final long p = sendBufferLimit;
+        Unsafe.getUnsafe().putInt(p, size);
+        Unsafe.getUnsafe().putByte(p + Integer.BYTES, type);
+        sendBufferLimit += size;
+        return p;
+    }
+
+    private void putMeta() throws PeerDisconnectedException, PeerIsSlowToReadException {
+        final TableReader reader = cursor.getTableReader();
+        final RecordMetadata metadata = factory.getMetadata();
+        int size = META_COLUMNS_OFFSET;
+        for (int i = 0; i < columnCount; i++) {
+            size += META_COLUMN_SIZE + 2 * metadata.getColumnName(i).length();
+        }
+        if (size > sendBufferSize) {
+            putError("table metadata does not fit send buffer");
+            return;
+        }
+
+        ensureCapacity(size);
+        final long p = putHeader(size, MSG_META);
+        Unsafe.getUnsafe().putInt(p + META_PARTITION_BY_OFFSET, reader.getPartitionedBy());
+        Unsafe.getUnsafe().putInt(p + META_TIMESTAMP_INDEX_OFFSET, metadata.getTimestampIndex());
+        Unsafe.getUnsafe().putInt(p + META_MAX_UNCOMMITTED_ROWS_OFFSET, reader.getMaxUncommittedRows());
+        Unsafe.getUnsafe().putLong(p + META_COMMIT_LAG_OFFSET, reader.getCommitLag());
+        Unsafe.getUnsafe().putInt(p + META_COLUMN_COUNT_OFFSET, columnCount);
+        long q = p + META_COLUMNS_OFFSET;
+        for (int i = 0; i < columnCount; i++) {
+            final int columnType = metadata.getColumnType(i);
+            final boolean symbol = ColumnType.isSymbol(columnType);
+            final SymbolMapReader symbolMapReader = symbol ? reader.getSymbolMapReader(i) : null;
+            Unsafe.getUnsafe().putInt(q, columnType);
+            Unsafe.getUnsafe().putByte(q + 4, (byte) (metadata.isColumnIndexed(i) ? 1 : 0));
+            Unsafe.getUnsafe().putInt(q + 5, metadata.getIndexValueBlockCapacity(i));
+            Unsafe.getUnsafe().putInt(q + 9, symbol ? symbolMapReader.getSymbolCapacity() : 0);
+            Unsafe.getUnsafe().putByte(q + 13, (byte) (symbol && symbolMapReader.isCached() ? 1 : 0));
+            final CharSequence name = metadata.getColumnName(i);
+            q = putStr(q + 14, name, name.length());
+        }
+        columnIndex = 0;
+        state = STATE_SYMBOLS;
+    }
+
+    private static long putStr(long address, CharSequence value, int len) {
+        Unsafe.getUnsafe().putInt(address, len);
+        Chars.copyStrChars(value, 0, len, address + Integer.BYTES);
+        return address + Integer.BYTES + 2L * len;
+    }
+
+    private void putSymbols() throws PeerDisconnectedException, PeerIsSlowToReadException {
+        final RecordMetadata metadata = factory.getMetadata();
+        for (; columnIndex < columnCount; columnIndex++) {
+            if (ColumnType.isSymbol(metadata.getColumnType(columnIndex))) {
+                final SymbolMapReader symbolMapReader = cursor.getSymbolMapReader(columnIndex);
+                final int fromCount = columnIndex < symbolCounts.size() ? symbolCounts.getQuick(columnIndex) : 0;
+                final int toCount = symbolMapReader.size();
+                if (fromCount < toCount) {
+                    ensureCapacity(SYMBOLS_SIZE);
+                    final long lo = symbolMapReader.symbolCharsAddressOf(fromCount);
+                    final long hi = symbolMapReader.symbolCharsAddressOf(toCount);
+                    final long p = putHeader(SYMBOLS_SIZE, MSG_SYMBOLS);
+                    Unsafe.getUnsafe().putInt(p + SYMBOLS_COLUMN_INDEX_OFFSET, columnIndex);
+                    Unsafe.getUnsafe().putInt(p + SYMBOLS_FROM_COUNT_OFFSET, fromCount);
+                    Unsafe.getUnsafe().putInt(p + SYMBOLS_TO_COUNT_OFFSET, toCount);
+                    Unsafe.getUnsafe().putLong(p + SYMBOLS_PAYLOAD_SIZE_OFFSET, hi - lo);
+                    payloadAddress = lo;
+                    payloadSize = hi - lo;
+                    columnIndex++;
+                    return;
+                }
+            }
+        }
+        state = STATE_FRAME;
+    }
+
+    /**
+     * @return true when complete request has been received and response is ready to be sent
+     */
+    private boolean receiveRequest() throws PeerDisconnectedException {
+        final long recvBufferHi = recvBuffer + recvBufferSize;
+        if (recvBufferPos < recvBufferHi) {
+            final int n = nf.recv(fd, recvBufferPos, (int) (recvBufferHi - recvBufferPos));
+            if (n < 0) {
+                throw PeerDisconnectedException.INSTANCE;
+            }
+            recvBufferPos += n;
+        }
+
+        if (recvBufferPos - recvBuffer < HEADER_SIZE) {
+            return false;
+        }
+
+        final int size = Unsafe.getUnsafe().getInt(recvBuffer);
+        if (size < SYNC_SYMBOL_COUNTS_OFFSET + Integer.BYTES || size > recvBufferSize || Unsafe.getUnsafe().getByte(recvBuffer + Integer.BYTES) != MSG_SYNC) {
+            LOG.error().$("unexpected request [fd=").$(fd).$(", size=").$(size).$(']').$();
+            throw PeerDisconnectedException.INSTANCE;
+        }
+
+        if (recvBufferPos - recvBuffer < size) {
+            return false;
+        }
+
+        fromRow = Unsafe.getUnsafe().getLong(recvBuffer + SYNC_FROM_ROW_OFFSET);
+        final int symbolColumnCount = Unsafe.getUnsafe().getInt(recvBuffer + SYNC_SYMBOL_COLUMN_COUNT_OFFSET);
+        final long tableNameAddress = recvBuffer + SYNC_SYMBOL_COUNTS_OFFSET + 4L * symbolColumnCount;
+        final long tableNameLo = tableNameAddress + Integer.BYTES;
+        if (symbolColumnCount < 0 || tableNameLo > recvBuffer + size
+                || tableNameLo + 2L * Unsafe.getUnsafe().getInt(tableNameAddress) != recvBuffer + size) {
+            LOG.error().$("malformed request [fd=").$(fd).$(']').$();
+            throw PeerDisconnectedException.INSTANCE;
+        }
+        symbolCounts.clear();
+        for (int i = 0; i < symbolColumnCount; i++) {
+            symbolCounts.add(Unsafe.getUnsafe().getInt(recvBuffer + SYNC_SYMBOL_COUNTS_OFFSET + 4L * i));
+        }
+        tableName.clear();
+        tableName.put(requestTableName.of(tableNameLo, recvBuffer + size));
+
+        // replica waits for response before sending next request, but keep whatever follows just in case
+        final long remaining = recvBufferPos - recvBuffer - size;
+        if (remaining > 0) {
+            Vect.memmove(recvBuffer, recvBuffer + size, remaining);
+        }
+        recvBufferPos = recvBuffer + remaining;
+
+        startResponse();
+        return true;
+    }
+
+    private long send(long address, long size) throws PeerDisconnectedException {
+        final int n = nf.send(fd, address, (int) Math.min(size, Integer.MAX_VALUE));
+        if (n < 0) {
+            throw PeerDisconnectedException.INSTANCE;
+        }
+        return n;
+    }
+
+    private void startResponse() {
+        responseSize = 0;
+        try {
+            factory = new TableReplicationRecordCursorFactory(engine, Chars.toString(tableName), maxRowsPerFrame);
+            columnCount = factory.getMetadata().getColumnCount();
+            cursor = factory.getPageFrameCursorFrom(executionContext, factory.getMetadata().getTimestampIndex(), fromRow);
+            state = STATE_META;
+        } catch (CairoException e) {
+            LOG.error().$("could not start replication [fd=").$(fd).$(", table=").$(tableName).$(", msg=").$(e.getFlyweightMessage()).$(']').$();
+            try {
+                putError(e.getFlyweightMessage());
+            } catch (PeerDisconnectedException | PeerIsSlowToReadException ignore) {
+                // send buffer is empty at this point, error message always fits
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+/**
+ * Wire format of table replication. Numbers are little-endian, strings are int length
+ * followed by UTF-16 chars. Every message starts with int length of the message header,
+ * including the length itself, and byte message type. Header is followed by message fields,
+ * some messages are followed by payload of raw bytes, size of which is in the header.
+ * <p>
+ * Replica sends {@link #MSG_SYNC} with number of rows and symbols it has. Primary responds
+ * with {@link #MSG_META}, {@link #MSG_SYMBOLS} for every symbol column that has new symbols,
+ * any number of {@link #MSG_FRAME} each followed by {@link #MSG_COLUMN} for every column and
+ * finally {@link #MSG_COMMIT}. Primary can send {@link #MSG_ERROR} instead of any message, in
+ * which case replica discards the response.
+ */
+final class ReplicationProtocol {
+    static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+
+    // long fromRow, int symbolColumnCount, int symbolCount for every column, str tableName
+    static final byte MSG_SYNC = 1;
+    // int partitionBy, int timestampIndex, int maxUncommittedRows, long commitLag, int columnCount,
+    // for every column: int type, byte indexed, int indexBlockCapacity, int symbolCapacity, byte symbolCached, str name
+    static final byte MSG_META = 2;
+    // int columnIndex, int fromSymbolCount, int toSymbolCount, long payloadSize
+    static final byte MSG_SYMBOLS = 3;
+    // long firstTimestamp
+    static final byte MSG_FRAME = 4;
+    // int columnIndex, long pageSize, byte columnTop; payload of pageSize bytes, unless it is column top
+    static final byte MSG_COLUMN = 5;
+    // long primaryRowCount
+    static final byte MSG_COMMIT = 6;
+    // str message
+    static final byte MSG_ERROR = 7;
+
+    static final int SYNC_FROM_ROW_OFFSET = HEADER_SIZE;
+    static final int SYNC_SYMBOL_COLUMN_COUNT_OFFSET = SYNC_FROM_ROW_OFFSET + Long.BYTES;
+    static final int SYNC_SYMBOL_COUNTS_OFFSET = SYNC_SYMBOL_COLUMN_COUNT_OFFSET + Integer.BYTES;
+
+    static final int META_PARTITION_BY_OFFSET = HEADER_SIZE;
+    static final int META_TIMESTAMP_INDEX_OFFSET = META_PARTITION_BY_OFFSET + Integer.BYTES;
+    static final int META_MAX_UNCOMMITTED_ROWS_OFFSET = META_TIMESTAMP_INDEX_OFFSET + Integer.BYTES;
+    static final int META_COMMIT_LAG_OFFSET = META_MAX_UNCOMMITTED_ROWS_OFFSET + Integer.BYTES;
+    static final int META_COLUMN_COUNT_OFFSET = META_COMMIT_LAG_OFFSET + Long.BYTES;
+    static final int META_COLUMNS_OFFSET = META_COLUMN_COUNT_OFFSET + Integer.BYTES;
+    // size of column entry without name chars
+    static final int META_COLUMN_SIZE = 4 * Integer.BYTES + 2 * Byte.BYTES;
+
+    static final int SYMBOLS_COLUMN_INDEX_OFFSET = HEADER_SIZE;
+    static final int SYMBOLS_FROM_COUNT_OFFSET = SYMBOLS_COLUMN_INDEX_OFFSET + Integer.BYTES;
+    static final int SYMBOLS_TO_COUNT_OFFSET = SYMBOLS_FROM_COUNT_OFFSET + Integer.BYTES;
+    static final int SYMBOLS_PAYLOAD_SIZE_OFFSET = SYMBOLS_TO_COUNT_OFFSET + Integer.BYTES;
+    static final int SYMBOLS_SIZE = SYMBOLS_PAYLOAD_SIZE_OFFSET + Long.BYTES;
+
+    static final int FRAME_FIRST_TIMESTAMP_OFFSET = HEADER_SIZE;
+    static final int FRAME_SIZE = FRAME_FIRST_TIMESTAMP_OFFSET + Long.BYTES;
+
+    static final int COLUMN_INDEX_OFFSET = HEADER_SIZE;
+    static final int COLUMN_PAGE_SIZE_OFFSET = COLUMN_INDEX_OFFSET + Integer.BYTES;
+    static final int COLUMN_TOP_OFFSET = COLUMN_PAGE_SIZE_OFFSET + Long.BYTES;
+    static final int COLUMN_SIZE = COLUMN_TOP_OFFSET + Byte.BYTES;
+
+    static final int COMMIT_PRIMARY_ROW_COUNT_OFFSET = HEADER_SIZE;
+    static final int COMMIT_SIZE = COMMIT_PRIMARY_ROW_COUNT_OFFSET + Long.BYTES;
+
+    static final int ERROR_MESSAGE_OFFSET = HEADER_SIZE;
+
+    private ReplicationProtocol() {
+    }
+}
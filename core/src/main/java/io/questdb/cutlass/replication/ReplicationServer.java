@@ -0,0 +1,139 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.cairo.CairoEngine;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.EagerThreadSetup;
+import io.questdb.mp.WorkerPool;
+import io.questdb.network.*;
+import io.questdb.std.Misc;
+import io.questdb.std.ThreadLocal;
+import io.questdb.std.WeakObjectPool;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+import static io.questdb.network.IODispatcher.DISCONNECT_REASON_PEER_DISCONNECT_AT_RECV;
+import static io.questdb.network.IODispatcher.DISCONNECT_REASON_PEER_DISCONNECT_AT_SEND;
+
+/**
+ * Primary side of table replication. Serves committed page frames and symbol map deltas
+ * to replicas, see {@link ReplicaJob} and {@link ReplicationProtocol}.
+ */
+public class ReplicationServer implements Closeable {
+    private static final Log LOG = LogFactory.getLog(ReplicationServer.class);
+    private final IODispatcher<ReplicationConnectionContext> dispatcher;
+    private final ReplicationConnectionContextFactory contextFactory;
+
+    public ReplicationServer(ReplicationConfiguration configuration, CairoEngine engine, WorkerPool workerPool) {
+        this.contextFactory = new ReplicationConnectionContextFactory(engine, configuration);
+        this.dispatcher = IODispatchers.create(
+                configuration.getDispatcherConfiguration(),
+                contextFactory
+        );
+        workerPool.assign(dispatcher);
+
+        for (int i = 0, n = workerPool.getWorkerCount(); i < n; i++) {
+            workerPool.assign(i, workerId -> dispatcher.processIOQueue(
+                    (operation, context) -> {
+                        try {
+                            context.handleClientOperation();
+                        } catch (PeerIsSlowToWriteException e) {
+                            context.getDispatcher().registerChannel(context, IOOperation.READ);
+                        } catch (PeerIsSlowToReadException e) {
+                            context.getDispatcher().registerChannel(context, IOOperation.WRITE);
+                        } catch (PeerDisconnectedException e) {
+                            context.getDispatcher().disconnect(
+                                    context,
+                                    operation == IOOperation.READ ? DISCONNECT_REASON_PEER_DISCONNECT_AT_RECV : DISCONNECT_REASON_PEER_DISCONNECT_AT_SEND
+                            );
+                        }
+                    }
+            ));
+
+            // context factory has thread local pools
+            // therefore we need each thread to clean their thread locals individually
+            workerPool.assign(i, contextFactory::closeContextPool);
+        }
+    }
+
+    @Nullable
+    public static ReplicationServer create(ReplicationConfiguration configuration, WorkerPool workerPool, CairoEngine engine) {
+        if (!configuration.isEnabled()) {
+            return null;
+        }
+        return new ReplicationServer(configuration, engine, workerPool);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(contextFactory);
+        Misc.free(dispatcher);
+    }
+
+    private static class ReplicationConnectionContextFactory implements IOContextFactory<ReplicationConnectionContext>, Closeable, EagerThreadSetup {
+        private final ThreadLocal<WeakObjectPool<ReplicationConnectionContext>> contextPool;
+        private boolean closed = false;
+
+        public ReplicationConnectionContextFactory(CairoEngine engine, ReplicationConfiguration configuration) {
+            this.contextPool = new ThreadLocal<>(() -> new WeakObjectPool<>(() ->
+                    new ReplicationConnectionContext(engine, configuration), configuration.getConnectionPoolInitialCapacity()));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public ReplicationConnectionContext newInstance(long fd, IODispatcher<ReplicationConnectionContext> dispatcher) {
+            return contextPool.get().pop().of(fd, dispatcher);
+        }
+
+        @Override
+        public void done(ReplicationConnectionContext context) {
+            if (closed) {
+                Misc.free(context);
+            } else {
+                // release table reader straight away rather than when context is reused
+                context.of(-1, null);
+                contextPool.get().push(context);
+                LOG.debug().$("pushed").$();
+            }
+        }
+
+        @Override
+        public void setup() {
+            contextPool.get();
+        }
+
+        private void closeContextPool() {
+            Misc.free(this.contextPool.get());
+            LOG.info().$("closed").$();
+        }
+    }
+}
@@ -0,0 +1,760 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.text;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.*;
+import io.questdb.cutlass.text.types.TimestampAdapter;
+import io.questdb.cutlass.text.types.TypeAdapter;
+import io.questdb.cutlass.text.types.TypeManager;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
+import io.questdb.std.str.DirectByteCharSequence;
+import io.questdb.std.str.DirectCharSink;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.Path;
+import io.questdb.tasks.TextImportTask;
+
+import java.io.Closeable;
+
+/**
+ * Imports large text file into new partitioned table using worker pool. The file is mapped
+ * into memory and goes through the following stages:
+ * <ol>
+ * <li>file is split into chunks of configured size, chunk boundaries are moved to the
+ * nearest line start that is not inside of quoted value</li>
+ * <li>chunks are scanned independently, every line is indexed by its timestamp and
+ * chunk indexes are sorted</li>
+ * <li>lines of each partition are collected from chunk indexes and written, in timestamp
+ * order, into temporary table of their own; partitions are written independently</li>
+ * <li>partitions of temporary tables are attached to staging table, which is then renamed
+ * to the target name</li>
+ * </ol>
+ * Every stage is a set of units, which are executed by workers and the thread that runs
+ * the import. Table appears under its name only after all of its partitions are attached.
+ * <p>
+ * Quotes are expected to enclose whole values, line boundaries are found by counting quotes.
+ * Timestamp index takes 16 bytes per line, it is kept in memory until partitions are written.
+ */
+public class ParallelTextImporter implements Closeable {
+    private static final Log LOG = LogFactory.getLog(ParallelTextImporter.class);
+    private static final String LOCK_REASON = "parallelImport";
+    private static final String STAGING_SUFFIX = "~import";
+    // line offset and length are packed into single long of the index
+    private static final int LINE_LENGTH_BITS = 24;
+    private static final long MAX_LINE_LENGTH = (1L << LINE_LENGTH_BITS) - 1;
+    private static final long MAX_FILE_LENGTH = 1L << (Long.SIZE - 1 - LINE_LENGTH_BITS);
+    private final CairoEngine engine;
+    private final CairoConfiguration configuration;
+    private final TextConfiguration textConfiguration;
+    private final FilesFacade ff;
+    private final Path path = new Path();
+    private final Path otherPath = new Path();
+    private final DirectCharSink utf8Sink;
+    private final TypeManager typeManager;
+    private final TextLexer textLexer;
+    private final TextDelimiterScanner textDelimiterScanner;
+    private final CairoTextWriter textWriter;
+    private final ObjList<CharSequence> noNames = new ObjList<>();
+    private final ObjList<TypeAdapter> noTypes = new ObjList<>();
+    private final ObjList<ChunkUnit> chunkUnits = new ObjList<>();
+    private final ObjList<PartitionUnit> partitionUnits = new ObjList<>();
+    private final LongList chunkBounds = new LongList();
+    private final LongList partitionKeys = new LongList();
+    private CairoSecurityContext securityContext;
+    private CharSequence tableName;
+    private String stagingTableName;
+    private CharSequence timestampColumnName;
+    private int partitionBy;
+    private boolean forceHeader;
+    private byte columnDelimiter;
+    private byte delimiter;
+    private long fileAddress;
+    private long fileLength;
+    private long headLength;
+    private boolean headerDetected;
+    private int timestampIndex;
+    private TimestampAdapter timestampAdapter;
+    private Timestamps.TimestampFloorMethod partitionFloorMethod;
+    private int chunkCount;
+    private int partitionCount;
+    private int unitSequence;
+    private long importedLineCount;
+    private long errorLineCount;
+
+    public ParallelTextImporter(CairoEngine engine) {
+        this.engine = engine;
+        this.configuration = engine.getConfiguration();
+        this.textConfiguration = configuration.getTextConfiguration();
+        this.ff = configuration.getFilesFacade();
+        this.utf8Sink = new DirectCharSink(textConfiguration.getUtf8SinkSize());
+        this.typeManager = new TypeManager(textConfiguration, utf8Sink);
+        this.textLexer = new TextLexer(textConfiguration, typeManager);
+        this.textDelimiterScanner = new TextDelimiterScanner(textConfiguration);
+        this.textWriter = new CairoTextWriter(engine, path, typeManager);
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.free(textWriter);
+        Misc.free(textLexer);
+        Misc.free(textDelimiterScanner);
+        Misc.free(utf8Sink);
+        Misc.free(path);
+        Misc.free(otherPath);
+    }
+
+    public long getErrorLineCount() {
+        return errorLineCount;
+    }
+
+    public long getImportedLineCount() {
+        return importedLineCount;
+    }
+
+    public void of(CharSequence tableName, int partitionBy, CharSequence timestampColumnName, byte columnDelimiter, boolean forceHeader) {
+        this.tableName = tableName;
+        this.stagingTableName = tableName + STAGING_SUFFIX;
+        this.partitionBy = partitionBy;
+        this.partitionFloorMethod = TableUtils.getPartitionFloor(partitionBy);
+        this.timestampColumnName = timestampColumnName;
+        this.columnDelimiter = columnDelimiter;
+        this.forceHeader = forceHeader;
+        textLexer.setTableName(tableName);
+        textDelimiterScanner.setTableName(tableName);
+    }
+
+    public void process(LPSZ fileName, CairoSecurityContext securityContext) throws TextException {
+        securityContext.checkWritePermission();
+        this.securityContext = securityContext;
+        this.importedLineCount = 0;
+        this.errorLineCount = 0;
+        final long fd = ff.openRO(fileName);
+        if (fd == -1) {
+            throw CairoException.instance(ff.errno()).put("could not open file [path=").put(fileName).put(']');
+        }
+        try {
+            fileLength = ff.length(fd);
+            if (fileLength < 1) {
+                throw TextException.$("file is empty");
+            }
+            if (fileLength >= MAX_FILE_LENGTH) {
+                throw TextException.$("file is too large for parallel import [length=").put(fileLength).put(']');
+            }
+            fileAddress = ff.mmap(fd, fileLength, 0, Files.MAP_RO);
+            if (fileAddress == -1) {
+                throw CairoException.instance(ff.errno()).put("could not mmap file [path=").put(fileName).put(']');
+            }
+            try {
+                importFile();
+            } finally {
+                ff.munmap(fileAddress, fileLength);
+                fileAddress = 0;
+            }
+        } finally {
+            ff.close(fd);
+            clear();
+        }
+    }
+
+    private static long lowerBound(long indexAddress, long count, long timestamp) {
+        // chunk indexes are sorted as unsigned
+        long lo = 0;
+        long hi = count;
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(Unsafe.getUnsafe().getLong(indexAddress + (mid << 4)), timestamp) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void analyseStructure(TextLexer lexer) {
+        lexer.of(delimiter);
+        lexer.analyseStructure(
+                fileAddress,
+                fileAddress + headLength,
+                textConfiguration.getTextAnalysisMaxLines(),
+                forceHeader,
+                noNames,
+                noTypes
+        );
+    }
+
+    private void attachPartitions() {
+        try (TableWriter writer = engine.getWriter(securityContext, stagingTableName, LOCK_REASON)) {
+            for (int i = 0; i < partitionCount; i++) {
+                final PartitionUnit unit = partitionUnits.getQuick(i);
+                if (unit.lineCount > 0) {
+                    final int status = writer.attachPartition(unit.partitionKey);
+                    if (status != StatusCode.OK) {
+                        throw CairoException.instance(0)
+                                .put("could not attach partition [table=").put(stagingTableName)
+                                .put(", partition=").put(Timestamps.toString(unit.partitionKey))
+                                .put(", status=").put(status)
+                                .put(']');
+                    }
+                    importedLineCount += unit.lineCount;
+                }
+                errorLineCount += unit.errorCount;
+            }
+        }
+    }
+
+    private void await(ObjList<? extends TextImportUnit> units, int index, int count) throws TextException {
+        final TextImportUnit unit = units.getQuick(index);
+        // run unit ourselves, in case it is still in the queue
+        if (!unit.run()) {
+            while (!unit.isDone()) {
+                // help workers with the units we are going to wait for next
+                boolean helped = false;
+                for (int i = index + 1; i < count; i++) {
+                    helped |= units.getQuick(i).run();
+                }
+                if (!helped) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        final Throwable error = unit.getError();
+        if (error != null) {
+            // exceptions are thread local, message is copied to exception of this thread
+            final String message = error.getMessage();
+            if (error instanceof TextException) {
+                throw TextException.$(message);
+            }
+            if (error instanceof CairoException) {
+                throw CairoException.instance(((CairoException) error).getErrno()).put(message);
+            }
+            throw CairoException.instance(0).put("parallel import failed [error=").put(message).put(']');
+        }
+    }
+
+    private void clear() {
+        for (int i = 0, n = chunkUnits.size(); i < n; i++) {
+            chunkUnits.getQuick(i).clear();
+        }
+        chunkBounds.clear();
+        partitionKeys.clear();
+        chunkCount = 0;
+        partitionCount = 0;
+        timestampAdapter = null;
+        textWriter.clear();
+        textLexer.clear();
+        typeManager.clear();
+        securityContext = null;
+    }
+
+    private void collectPartitionKeys() {
+        for (int i = 0; i < chunkCount; i++) {
+            final ChunkUnit unit = chunkUnits.getQuick(i);
+            partitionKeys.add(unit.partitionKeys);
+            errorLineCount += unit.errorCount;
+        }
+        partitionKeys.sort();
+        int n = 0;
+        for (int i = 0, size = partitionKeys.size(); i < size; i++) {
+            final long key = partitionKeys.getQuick(i);
+            if (n == 0 || partitionKeys.getQuick(n - 1) != key) {
+                partitionKeys.setQuick(n++, key);
+            }
+        }
+        partitionKeys.setPos(n);
+    }
+
+    private void dispatch(ObjList<? extends TextImportUnit> units, int count) throws TextException {
+        final int sequence = unitSequence++;
+        for (int i = 0; i < count; i++) {
+            units.getQuick(i).prepare(sequence);
+        }
+
+        try {
+            final MessageBus bus = engine.getMessageBus();
+            if (bus != null) {
+                final RingQueue<TextImportTask> queue = bus.getTextImportQueue();
+                final Sequence pubSeq = bus.getTextImportPubSeq();
+                for (int i = 0; i < count; i++) {
+                    final TextImportUnit unit = units.getQuick(i);
+                    long seq;
+                    do {
+                        seq = pubSeq.next();
+                    } while (seq == -2);
+
+                    if (seq < 0) {
+                        // queue is full, run the unit while workers catch up
+                        unit.run();
+                    } else {
+                        queue.get(seq).unit = unit;
+                        pubSeq.done(seq);
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                await(units, i, count);
+            }
+        } catch (Throwable th) {
+            drain(units, count);
+            throw th;
+        }
+    }
+
+    /**
+     * Makes sure none of the units is still being executed by workers. Units that have
+     * not been picked up yet are locked, which makes queued references to them inert.
+     */
+    private void drain(ObjList<? extends TextImportUnit> units, int count) {
+        for (int i = 0; i < count; i++) {
+            final TextImportUnit unit = units.getQuick(i);
+            if (!unit.tryLock()) {
+                while (!unit.isDone()) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private void findChunkBoundaries() throws TextException {
+        final long chunkSize = Math.max(1, configuration.getSqlCopyChunkSize());
+        final int count = (int) Math.min(Integer.MAX_VALUE, (fileLength + chunkSize - 1) / chunkSize);
+        chunkUnits.extendPos(count);
+        for (int i = 0; i < count; i++) {
+            ChunkUnit unit = chunkUnits.getQuick(i);
+            if (unit == null) {
+                chunkUnits.setQuick(i, unit = new ChunkUnit());
+            }
+            unit.ofBoundaries(i * chunkSize, i == count - 1 ? fileLength : (i + 1) * chunkSize);
+        }
+        dispatch(chunkUnits, count);
+
+        // chunk starts where its first line starts, quotes of preceding chunks
+        // tell whether that line is a continuation of quoted value
+        chunkBounds.add(0);
+        int quotes = chunkUnits.getQuick(0).quoteCount & 1;
+        for (int i = 1; i < count; i++) {
+            final ChunkUnit unit = chunkUnits.getQuick(i);
+            final long lineStart = quotes == 0 ? unit.evenLineStart : unit.oddLineStart;
+            if (lineStart > -1 && lineStart < fileLength) {
+                chunkBounds.add(lineStart);
+            }
+            quotes ^= unit.quoteCount & 1;
+        }
+        chunkBounds.add(fileLength);
+        chunkCount = chunkBounds.size() - 1;
+    }
+
+    private void importFile() throws TextException {
+        headLength = Math.min(fileLength, configuration.getSqlCopyBufferSize());
+        delimiter = columnDelimiter > 0 ? columnDelimiter : textDelimiterScanner.scan(fileAddress, fileAddress + headLength);
+        analyseStructure(textLexer);
+        headerDetected = textLexer.isHeaderDetected();
+        final ObjList<CharSequence> names = textLexer.getColumnNames();
+        final ObjList<TypeAdapter> types = textLexer.getColumnTypes();
+
+        timestampIndex = -1;
+        for (int i = 0, n = names.size(); i < n; i++) {
+            if (Chars.equalsIgnoreCase(names.getQuick(i), timestampColumnName)) {
+                timestampIndex = i;
+                break;
+            }
+        }
+        if (timestampIndex == -1) {
+            throw TextException.$("invalid timestamp column '").put(timestampColumnName).put('\'');
+        }
+        if (!(types.getQuick(timestampIndex) instanceof TimestampAdapter)) {
+            throw TextException.$("timestamp format is not supported by parallel import '").put(timestampColumnName).put('\'');
+        }
+        timestampAdapter = (TimestampAdapter) types.getQuick(timestampIndex);
+        // writers look timestamp column up by its name in the header
+        timestampColumnName = names.getQuick(timestampIndex);
+
+        if (engine.getStatus(securityContext, path, tableName) != TableUtils.TABLE_DOES_NOT_EXIST) {
+            throw TextException.$("table already exists [table=").put(tableName).put(']');
+        }
+        if (engine.getStatus(securityContext, path, stagingTableName) != TableUtils.TABLE_DOES_NOT_EXIST) {
+            throw TextException.$("name is reserved [table=").put(stagingTableName).put(']');
+        }
+
+        textWriter.of(stagingTableName, false, false, Atomicity.SKIP_ROW, partitionBy, timestampColumnName);
+        textWriter.prepareTable(securityContext, names, types);
+        textWriter.closeWriter();
+
+        boolean success = false;
+        try {
+            findChunkBoundaries();
+            indexChunks();
+            collectPartitionKeys();
+            writePartitions();
+            attachPartitions();
+            engine.rename(securityContext, path, stagingTableName, otherPath, tableName);
+            success = true;
+            LOG.info()
+                    .$("imported [table=`").$(tableName)
+                    .$("`, chunks=").$(chunkCount)
+                    .$(", partitions=").$(partitionCount)
+                    .$(", lines=").$(importedLineCount)
+                    .$(", errors=").$(errorLineCount)
+                    .$(']').$();
+        } finally {
+            if (!success) {
+                removeTables();
+            }
+        }
+    }
+
+    private void indexChunks() throws TextException {
+        for (int i = 0; i < chunkCount; i++) {
+            chunkUnits.getQuick(i).ofIndex(chunkBounds.getQuick(i), chunkBounds.getQuick(i + 1), i == 0 && headerDetected);
+        }
+        dispatch(chunkUnits, chunkCount);
+    }
+
+    private void removeTable(CharSequence name) {
+        try {
+            if (engine.getStatus(securityContext, path, name) == TableUtils.TABLE_EXISTS) {
+                engine.remove(securityContext, path, name);
+            }
+        } catch (CairoException e) {
+            LOG.error().$("could not remove [table=`").$(name).$("`, error=").$((Sinkable) e).$(']').$();
+        }
+    }
+
+    private void removeTables() {
+        for (int i = 0; i < partitionCount; i++) {
+            removeTable(partitionUnits.getQuick(i).tableName);
+        }
+        removeTable(stagingTableName);
+    }
+
+    private void writePartitions() throws TextException {
+        partitionCount = partitionKeys.size();
+        partitionUnits.extendPos(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            PartitionUnit unit = partitionUnits.getQuick(i);
+            if (unit == null) {
+                partitionUnits.setQuick(i, unit = new PartitionUnit());
+            }
+            unit.of(stagingTableName + '~' + i, partitionKeys.getQuick(i));
+        }
+        dispatch(partitionUnits, partitionCount);
+    }
+
+    /**
+     * Chunk of the file. First the unit finds where lines start in the chunk, then,
+     * once chunk is aligned to line boundaries, it builds sorted timestamp index of chunk lines.
+     */
+    private class ChunkUnit extends TextImportUnit {
+        private final DirectByteCharSequence timestampValue = new DirectByteCharSequence();
+        private final LongList partitionKeys = new LongList();
+        private DirectLongList index;
+        private boolean indexMode;
+        private long lo;
+        private long hi;
+        private boolean skipHeader;
+        private int quoteCount;
+        private long evenLineStart;
+        private long oddLineStart;
+        private long errorCount;
+
+        @Override
+        protected void doRun() {
+            if (indexMode) {
+                index();
+            } else {
+                findLineStarts();
+            }
+        }
+
+        void clear() {
+            index = Misc.free(index);
+            partitionKeys.clear();
+        }
+
+        void ofBoundaries(long lo, long hi) {
+            this.indexMode = false;
+            this.lo = lo;
+            this.hi = hi;
+            this.quoteCount = 0;
+            this.evenLineStart = -1;
+            this.oddLineStart = -1;
+        }
+
+        void ofIndex(long lo, long hi, boolean skipHeader) {
+            this.indexMode = true;
+            this.lo = lo;
+            this.hi = hi;
+            this.skipHeader = skipHeader;
+            this.errorCount = 0;
+            this.partitionKeys.clear();
+            if (index == null) {
+                index = new DirectLongList(Math.max(64, (hi - lo) / 64));
+            } else {
+                index.clear();
+            }
+        }
+
+        private void findLineStarts() {
+            // line starts after line end, but only when line end is outside of quotes,
+            // which depends on the number of quotes in the chunks before this one
+            int quotes = 0;
+            for (long p = fileAddress + lo, lim = fileAddress + hi; p < lim; p++) {
+                final byte c = Unsafe.getUnsafe().getByte(p);
+                if (c == '"') {
+                    quotes++;
+                } else if (c == '\n') {
+                    if ((quotes & 1) == 0) {
+                        if (evenLineStart == -1) {
+                            evenLineStart = p + 1 - fileAddress;
+                        }
+                    } else if (oddLineStart == -1) {
+                        oddLineStart = p + 1 - fileAddress;
+                    }
+                }
+            }
+            quoteCount = quotes;
+        }
+
+        private void index() {
+            final long lim = fileAddress + hi;
+            long p = fileAddress + lo;
+            long lineStart = p;
+            long fieldStart = p;
+            long timestampLo = -1;
+            long timestampHi = -1;
+            int fieldIndex = 0;
+            boolean quoted = false;
+            while (p < lim) {
+                final byte c = Unsafe.getUnsafe().getByte(p++);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted) {
+                    if (c == delimiter) {
+                        if (fieldIndex++ == timestampIndex) {
+                            timestampLo = fieldStart;
+                            timestampHi = p - 1;
+                        }
+                        fieldStart = p;
+                    } else if (c == '\n' || c == '\r') {
+                        if (fieldIndex == timestampIndex) {
+                            timestampLo = fieldStart;
+                            timestampHi = p - 1;
+                        }
+                        if (c == '\r' && p < lim && Unsafe.getUnsafe().getByte(p) == '\n') {
+                            p++;
+                        }
+                        indexLine(lineStart, p, timestampLo, timestampHi);
+                        lineStart = fieldStart = p;
+                        timestampLo = -1;
+                        fieldIndex = 0;
+                    }
+                }
+            }
+
+            if (lineStart < lim) {
+                // last line of the file does not have to end with line end
+                if (fieldIndex == timestampIndex) {
+                    timestampLo = fieldStart;
+                    timestampHi = lim;
+                }
+                indexLine(lineStart, lim, timestampLo, timestampHi);
+            }
+
+            final long count = index.size() / 2;
+            Vect.sortLongIndexAscInPlace(index.getAddress(), count);
+            long lastKey = Long.MIN_VALUE;
+            for (long i = 0; i < count; i++) {
+                final long key = partitionFloorMethod.floor(index.get(i * 2));
+                if (key != lastKey || i == 0) {
+                    partitionKeys.add(key);
+                    lastKey = key;
+                }
+            }
+        }
+
+        private void indexLine(long lineLo, long lineHi, long timestampLo, long timestampHi) {
+            final byte first = Unsafe.getUnsafe().getByte(lineLo);
+            if (first == '\n' || first == '\r') {
+                // empty lines are skipped by lexer too
+                return;
+            }
+
+            if (skipHeader) {
+                skipHeader = false;
+                return;
+            }
+
+            if (timestampLo == -1 || lineHi - lineLo > MAX_LINE_LENGTH) {
+                errorCount++;
+                return;
+            }
+
+            if (timestampHi - timestampLo > 1
+                    && Unsafe.getUnsafe().getByte(timestampLo) == '"'
+                    && Unsafe.getUnsafe().getByte(timestampHi - 1) == '"') {
+                timestampLo++;
+                timestampHi--;
+            }
+
+            final long timestamp;
+            try {
+                timestamp = timestampAdapter.getTimestamp(timestampValue.of(timestampLo, timestampHi));
+            } catch (Exception e) {
+                errorCount++;
+                return;
+            }
+            index.add(timestamp);
+            index.add(((lineLo - fileAddress) << LINE_LENGTH_BITS) | (lineHi - lineLo));
+        }
+    }
+
+    /**
+     * Partition of the target table. Unit collects lines of the partition from chunk indexes
+     * and writes them into temporary table with the same structure as the target. Partition
+     * directory is then moved to the staging table, where it waits to be attached.
+     */
+    private class PartitionUnit extends TextImportUnit {
+        private String tableName;
+        private long partitionKey;
+        private long lineCount;
+        private long errorCount;
+
+        @Override
+        protected void doRun() throws TextException {
+            final Path path = new Path();
+            final Path otherPath = new Path();
+            final DirectCharSink utf8Sink = new DirectCharSink(textConfiguration.getUtf8SinkSize());
+            final TypeManager typeManager = new TypeManager(textConfiguration, utf8Sink);
+            final TextLexer lexer = new TextLexer(textConfiguration, typeManager);
+            final CairoTextWriter writer = new CairoTextWriter(engine, path, typeManager);
+            final DirectLongList lines = new DirectLongList(64);
+            try {
+                collectLines(lines);
+                if (lines.size() == 0) {
+                    return;
+                }
+
+                if (engine.getStatus(securityContext, path, tableName) != TableUtils.TABLE_DOES_NOT_EXIST) {
+                    throw TextException.$("name is reserved [table=").put(tableName).put(']');
+                }
+
+                // structure analysis is deterministic, lexer of this unit
+                // comes up with the same columns as the one of the import
+                lexer.setTableName(tableName);
+                analyseStructure(lexer);
+                lexer.restart(false);
+                writer.of(tableName, false, false, Atomicity.SKIP_ROW, partitionBy, timestampColumnName);
+                writer.prepareTable(securityContext, lexer.getColumnNames(), lexer.getColumnTypes());
+
+                final TextLexer.Listener listener = writer.getTextListener();
+                for (long i = 1, n = lines.size(); i < n; i += 2) {
+                    final long line = lines.get(i);
+                    final long lo = fileAddress + (line >>> LINE_LENGTH_BITS);
+                    final long hi = lo + (line & MAX_LINE_LENGTH);
+                    lexer.parse(lo, hi, Integer.MAX_VALUE, listener);
+                    final byte last = Unsafe.getUnsafe().getByte(hi - 1);
+                    if (last != '\n' && last != '\r') {
+                        lexer.parseLast();
+                    }
+                }
+                writer.commit();
+                lineCount = writer.getWrittenLineCount();
+                errorCount = lines.size() / 2 - lineCount;
+                writer.closeWriter();
+                movePartition(path, otherPath);
+            } finally {
+                Misc.free(lines);
+                Misc.free(writer);
+                Misc.free(lexer);
+                Misc.free(utf8Sink);
+                Misc.free(otherPath);
+                Misc.free(path);
+            }
+        }
+
+        void of(String tableName, long partitionKey) {
+            this.tableName = tableName;
+            this.partitionKey = partitionKey;
+            this.lineCount = 0;
+            this.errorCount = 0;
+        }
+
+        private void collectLines(DirectLongList lines) {
+            int chunks = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                final DirectLongList index = chunkUnits.getQuick(i).index;
+                final long count = index.size() / 2;
+                final long lo = lowerBound(index.getAddress(), count, partitionKey);
+                long hi = lo;
+                while (hi < count && partitionFloorMethod.floor(index.get(hi * 2)) == partitionKey) {
+                    lines.add(index.get(hi * 2));
+                    lines.add(index.get(hi * 2 + 1));
+                    hi++;
+                }
+                if (hi > lo) {
+                    chunks++;
+                }
+            }
+            // lines from a single chunk are already sorted
+            if (chunks > 1) {
+                Vect.sortLongIndexAscInPlace(lines.getAddress(), lines.size() / 2);
+            }
+        }
+
+        private void movePartition(Path path, Path otherPath) {
+            // lock closes pooled writer, which leaves column files trimmed to their size
+            final CharSequence lockedReason = engine.lock(securityContext, tableName, LOCK_REASON);
+            if (lockedReason != null) {
+                throw CairoException.instance(0).put("could not lock [table=").put(tableName).put(", reason=").put(lockedReason).put(']');
+            }
+            try {
+                path.of(configuration.getRoot()).concat(tableName);
+                TableUtils.setPathForPartition(path, partitionBy, partitionKey, false);
+                otherPath.of(configuration.getRoot()).concat(stagingTableName);
+                TableUtils.setPathForPartition(otherPath, partitionBy, partitionKey, false);
+                otherPath.put(TableUtils.DETACHED_DIR_MARKER);
+                if (!ff.rename(path.$(), otherPath.$())) {
+                    throw CairoException.instance(ff.errno()).put("could not move partition [from=").put(path).put(", to=").put(otherPath).put(']');
+                }
+                path.of(configuration.getRoot()).concat(tableName).slash$();
+                final int errno = ff.rmdir(path);
+                if (errno != 0) {
+                    LOG.error().$("could not remove [table=`").$(tableName).$("`, errno=").$(errno).$(']').$();
+                }
+            } finally {
+                engine.unlock(securityContext, tableName, null, false);
+            }
+        }
+    }
+}
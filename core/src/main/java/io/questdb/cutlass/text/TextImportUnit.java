@@ -0,0 +1,68 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.text;
+
+import io.questdb.std.AbstractLockable;
+
+/**
+ * Piece of work of parallel text import. Unit is executed either by worker that picked
+ * it up from the queue or by the thread that runs the import, whichever gets to lock
+ * it first.
+ */
+public abstract class TextImportUnit extends AbstractLockable {
+    private Throwable error;
+    private volatile boolean done;
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                doRun();
+            } catch (Throwable th) {
+                error = th;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    protected abstract void doRun() throws Exception;
+
+    Throwable getError() {
+        return error;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    void prepare(int sequence) {
+        this.error = null;
+        this.done = false;
+        of(sequence);
+    }
+}
@@ -0,0 +1,371 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.engine.table.CompiledFilter;
+import io.questdb.griffin.model.ExpressionNode;
+import io.questdb.std.*;
+
+import static io.questdb.griffin.SqlKeywords.isAndKeyword;
+
+/**
+ * Compiles top-level conjunction of filter expression into {@link CompiledFilter}. Only
+ * comparisons between INT, LONG, TIMESTAMP, DOUBLE or SYMBOL column and a constant are compiled,
+ * everything else is left to interpreted functions and is returned as residual filter.
+ */
+final class FilterCompiler implements Mutable {
+    private static final int OP_EQ = 1;
+    private static final int OP_NE = 2;
+    private static final int OP_LT = 3;
+    private static final int OP_LE = 4;
+    private static final int OP_GT = 5;
+    private static final int OP_GE = 6;
+    private static final CharSequenceIntHashMap ops = new CharSequenceIntHashMap();
+    private final ObjList<ExpressionNode> residualNodes = new ObjList<>();
+    private final ObjectPool<ExpressionNode> expressionNodePool = new ObjectPool<>(ExpressionNode.FACTORY, 8);
+    private CompiledFilter compiledFilter;
+    private ExpressionNode residual;
+    private int constantKind;
+    private long longConstant;
+    private double doubleConstant;
+
+    @Override
+    public void clear() {
+        residualNodes.clear();
+        expressionNodePool.clear();
+        compiledFilter = null;
+        residual = null;
+    }
+
+    /**
+     * Compiles conjuncts of filter that can be evaluated by {@link CompiledFilter}.
+     *
+     * @param filter   filter expression
+     * @param metadata metadata of the table scan filter is applied to
+     * @return compiled filter or null when none of filter conjuncts can be compiled
+     */
+    CompiledFilter compile(ExpressionNode filter, RecordMetadata metadata) {
+        clear();
+        compileConjunct(filter, metadata);
+        if (compiledFilter == null) {
+            return null;
+        }
+        for (int i = 0, n = residualNodes.size(); i < n; i++) {
+            final ExpressionNode node = residualNodes.getQuick(i);
+            if (residual == null) {
+                residual = node;
+            } else {
+                final ExpressionNode and = expressionNodePool.next().of(ExpressionNode.OPERATION, "and", 0, node.position);
+                and.paramCount = 2;
+                and.lhs = residual;
+                and.rhs = node;
+                residual = and;
+            }
+        }
+        return compiledFilter;
+    }
+
+    /**
+     * @return conjunction of filter parts that could not be compiled, or null when whole filter
+     * has been compiled. Valid until the next call to {@link #compile(ExpressionNode, RecordMetadata)}.
+     */
+    ExpressionNode getResidual() {
+        return residual;
+    }
+
+    private static int mirror(int op) {
+        switch (op) {
+            case OP_LT:
+                return OP_GT;
+            case OP_LE:
+                return OP_GE;
+            case OP_GT:
+                return OP_LT;
+            case OP_GE:
+                return OP_LE;
+            default:
+                return op;
+        }
+    }
+
+    private void compileConjunct(ExpressionNode node, RecordMetadata metadata) {
+        if (node.type == ExpressionNode.OPERATION && node.paramCount == 2 && isAndKeyword(node.token)) {
+            compileConjunct(node.lhs, metadata);
+            compileConjunct(node.rhs, metadata);
+        } else if (!compilePredicate(node, metadata)) {
+            residualNodes.add(node);
+        }
+    }
+
+    private boolean compilePredicate(ExpressionNode node, RecordMetadata metadata) {
+        if (node.type != ExpressionNode.OPERATION || node.paramCount != 2) {
+            return false;
+        }
+        int op = ops.get(node.token);
+        if (op == -1) {
+            return false;
+        }
+
+        ExpressionNode column = node.lhs;
+        ExpressionNode constant = node.rhs;
+        if (column.type != ExpressionNode.LITERAL) {
+            column = node.rhs;
+            constant = node.lhs;
+            op = mirror(op);
+        }
+        if (column.type != ExpressionNode.LITERAL) {
+            return false;
+        }
+        final int columnIndex = metadata.getColumnIndexQuiet(column.token);
+        if (columnIndex == -1) {
+            return false;
+        }
+
+        final int columnType = metadata.getColumnType(columnIndex);
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.INT:
+                if (parseNumericConstant(constant) && constantKind == ColumnType.INT) {
+                    return compileIntPredicate(columnIndex, op, (int) longConstant);
+                }
+                return false;
+            case ColumnType.LONG:
+                if (parseNumericConstant(constant) && (constantKind == ColumnType.INT || constantKind == ColumnType.LONG)) {
+                    // there is no long specific ordered comparison, longs are compared as doubles
+                    if (op == OP_EQ || op == OP_NE) {
+                        return compileLongPredicate(columnIndex, op, longConstant);
+                    }
+                    return compileLongAsDoublePredicate(columnIndex, op, longConstant);
+                }
+                return false;
+            case ColumnType.TIMESTAMP:
+                if (parseNumericConstant(constant) && (constantKind == ColumnType.INT || constantKind == ColumnType.LONG)) {
+                    return compileLongPredicate(columnIndex, op, longConstant);
+                }
+                return false;
+            case ColumnType.DOUBLE:
+                if (parseNumericConstant(constant)) {
+                    return compileDoublePredicate(columnIndex, op, constantKind == ColumnType.DOUBLE ? doubleConstant : longConstant);
+                }
+                return false;
+            case ColumnType.SYMBOL:
+                return compileSymbolPredicate(columnIndex, op, constant, metadata);
+            default:
+                return false;
+        }
+    }
+
+    private boolean compileDoublePredicate(int columnIndex, int op, double value) {
+        if (!Double.isFinite(value)) {
+            return false;
+        }
+        final CompiledFilter filter = getCompiledFilter();
+        switch (op) {
+            case OP_EQ:
+                filter.addDoubleEq(columnIndex, value, false);
+                break;
+            case OP_NE:
+                filter.addDoubleEq(columnIndex, value, true);
+                break;
+            case OP_LT:
+                filter.addDoubleRange(columnIndex, Double.NEGATIVE_INFINITY, Math.nextDown(value));
+                break;
+            case OP_LE:
+                filter.addDoubleRange(columnIndex, Double.NEGATIVE_INFINITY, value);
+                break;
+            case OP_GT:
+                filter.addDoubleRange(columnIndex, Math.nextUp(value), Double.POSITIVE_INFINITY);
+                break;
+            default:
+                filter.addDoubleRange(columnIndex, value, Double.POSITIVE_INFINITY);
+                break;
+        }
+        return true;
+    }
+
+    private boolean compileIntPredicate(int columnIndex, int op, int value) {
+        // null is the smallest int, ranges of ordered comparisons start above it
+        final int min = Numbers.INT_NaN + 1;
+        final CompiledFilter filter = getCompiledFilter();
+        switch (op) {
+            case OP_EQ:
+                filter.addIntRange(columnIndex, value, value, false);
+                break;
+            case OP_NE:
+                filter.addIntRange(columnIndex, value, value, true);
+                break;
+            case OP_LT:
+                // value is never null, value - 1 does not underflow
+                filter.addIntRange(columnIndex, min, value - 1, false);
+                break;
+            case OP_LE:
+                filter.addIntRange(columnIndex, min, value, false);
+                break;
+            case OP_GT:
+                if (value == Integer.MAX_VALUE) {
+                    filter.addIntRange(columnIndex, 1, 0, false);
+                } else {
+                    filter.addIntRange(columnIndex, value + 1, Integer.MAX_VALUE, false);
+                }
+                break;
+            default:
+                filter.addIntRange(columnIndex, value, Integer.MAX_VALUE, false);
+                break;
+        }
+        return true;
+    }
+
+    private boolean compileLongAsDoublePredicate(int columnIndex, int op, long value) {
+        final double d = (double) value;
+        final CompiledFilter filter = getCompiledFilter();
+        switch (op) {
+            case OP_LT:
+                filter.addLongAsDoubleRange(columnIndex, Double.NEGATIVE_INFINITY, Math.nextDown(d));
+                break;
+            case OP_LE:
+                filter.addLongAsDoubleRange(columnIndex, Double.NEGATIVE_INFINITY, d);
+                break;
+            case OP_GT:
+                filter.addLongAsDoubleRange(columnIndex, Math.nextUp(d), Double.POSITIVE_INFINITY);
+                break;
+            default:
+                filter.addLongAsDoubleRange(columnIndex, d, Double.POSITIVE_INFINITY);
+                break;
+        }
+        return true;
+    }
+
+    private boolean compileLongPredicate(int columnIndex, int op, long value) {
+        final long min = Numbers.LONG_NaN + 1;
+        final CompiledFilter filter = getCompiledFilter();
+        switch (op) {
+            case OP_EQ:
+                filter.addLongRange(columnIndex, value, value, false);
+                break;
+            case OP_NE:
+                filter.addLongRange(columnIndex, value, value, true);
+                break;
+            case OP_LT:
+                filter.addLongRange(columnIndex, min, value - 1, false);
+                break;
+            case OP_LE:
+                filter.addLongRange(columnIndex, min, value, false);
+                break;
+            case OP_GT:
+                if (value == Long.MAX_VALUE) {
+                    filter.addLongRange(columnIndex, 1, 0, false);
+                } else {
+                    filter.addLongRange(columnIndex, value + 1, Long.MAX_VALUE, false);
+                }
+                break;
+            default:
+                filter.addLongRange(columnIndex, value, Long.MAX_VALUE, false);
+                break;
+        }
+        return true;
+    }
+
+    private boolean compileSymbolPredicate(int columnIndex, int op, ExpressionNode constant, RecordMetadata metadata) {
+        if ((op != OP_EQ && op != OP_NE) || !metadata.isSymbolTableStatic(columnIndex)) {
+            return false;
+        }
+        if (constant.type != ExpressionNode.CONSTANT || !Chars.isQuoted(constant.token) || constant.token.length() < 3) {
+            return false;
+        }
+        final CharSequence token = constant.token;
+        getCompiledFilter().addSymbolEq(columnIndex, token.subSequence(1, token.length() - 1), op == OP_NE);
+        return true;
+    }
+
+    private CompiledFilter getCompiledFilter() {
+        if (compiledFilter == null) {
+            compiledFilter = new CompiledFilter();
+        }
+        return compiledFilter;
+    }
+
+    /**
+     * Parses numeric constant the same way function parser does, optionally negated
+     * by unary minus. Null constants are rejected.
+     */
+    private boolean parseNumericConstant(ExpressionNode node) {
+        boolean negative = false;
+        if (node.type == ExpressionNode.OPERATION && node.paramCount == 1 && Chars.equals(node.token, '-')) {
+            negative = true;
+            node = node.rhs != null ? node.rhs : node.lhs;
+            if (node == null) {
+                return false;
+            }
+        }
+        if (node.type != ExpressionNode.CONSTANT) {
+            return false;
+        }
+        final CharSequence token = node.token;
+        try {
+            final int value = Numbers.parseInt(token);
+            if (value == Numbers.INT_NaN) {
+                return false;
+            }
+            constantKind = ColumnType.INT;
+            longConstant = negative ? -value : value;
+            return true;
+        } catch (NumericException ignore) {
+        }
+
+        try {
+            final long value = Numbers.parseLong(token);
+            if (value == Numbers.LONG_NaN) {
+                return false;
+            }
+            constantKind = ColumnType.LONG;
+            longConstant = negative ? -value : value;
+            return true;
+        } catch (NumericException ignore) {
+        }
+
+        try {
+            final double value = Numbers.parseDouble(token);
+            if (Double.isNaN(value)) {
+                return false;
+            }
+            constantKind = ColumnType.DOUBLE;
+            doubleConstant = negative ? -value : value;
+            return true;
+        } catch (NumericException ignore) {
+        }
+        return false;
+    }
+
+    static {
+        ops.put("=", OP_EQ);
+        ops.put("!=", OP_NE);
+        ops.put("<>", OP_NE);
+        ops.put("<", OP_LT);
+        ops.put("<=", OP_LE);
+        ops.put(">", OP_GT);
+        ops.put(">=", OP_GE);
+    }
+}
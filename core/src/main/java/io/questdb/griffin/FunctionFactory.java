@@ -66,6 +66,15 @@ public interface FunctionFactory {
      */
     String getSignature();
 
+    /**
+     * @return true if the factory creates {@link io.questdb.griffin.engine.analytic.AnalyticFunction}, which
+     * can only be called with OVER clause. Analytic factories are looked up separately from the rest of the
+     * factories, so they can share names with group-by functions, e.g. avg() or sum().
+     */
+    default boolean isAnalytic() {
+        return false;
+    }
+
     default boolean isGroupBy() {
         return false;
     }
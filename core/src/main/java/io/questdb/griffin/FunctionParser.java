@@ -68,6 +68,7 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor {
     private RecordMetadata metadata;
     private SqlCodeGenerator sqlCodeGenerator;
     private SqlExecutionContext sqlExecutionContext;
+    private ExpressionNode analyticNode;
 
     public FunctionParser(CairoConfiguration configuration, FunctionFactoryCache functionFactoryCache) {
         this.configuration = configuration;
@@ -260,6 +261,30 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor {
         }
     }
 
+    /**
+     * Same as {@link #parseFunction(ExpressionNode, RecordMetadata, SqlExecutionContext)} except the top level
+     * node is resolved against analytic function factories. Arguments of the analytic function are regular functions.
+     *
+     * @param node             analytic function call, e.g. the avg(price) part of avg(price) over (order by ts)
+     * @param metadata         metadata for resolving types of columns.
+     * @param executionContext execution context, which carries analytic context of the call
+     * @return function instance
+     * @throws SqlException when function cannot be created
+     */
+    public Function parseAnalyticFunction(
+            ExpressionNode node,
+            RecordMetadata metadata,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final ExpressionNode outerAnalyticNode = this.analyticNode;
+        this.analyticNode = node;
+        try {
+            return parseFunction(node, metadata, executionContext);
+        } finally {
+            this.analyticNode = outerAnalyticNode;
+        }
+    }
+
     public void setSqlCodeGenerator(SqlCodeGenerator sqlCodeGenerator) {
         this.sqlCodeGenerator = sqlCodeGenerator;
     }
@@ -477,7 +502,9 @@ public class FunctionParser implements PostOrderTreeTraversalAlgo.Visitor {
             @Transient ObjList<Function> args,
             @Transient IntList argPositions
     ) throws SqlException {
-        final ObjList<FunctionFactoryDescriptor> overload = functionFactoryCache.getOverloadList(node.token);
+        final ObjList<FunctionFactoryDescriptor> overload = node == analyticNode
+                ? functionFactoryCache.getAnalyticOverloadList(node.token)
+                : functionFactoryCache.getOverloadList(node.token);
         if (overload == null) {
             throw invalidFunction(node, args);
         }
@@ -33,6 +33,9 @@ import io.questdb.griffin.engine.LimitRecordCursorFactory;
 import io.questdb.griffin.engine.RecordComparator;
 import io.questdb.griffin.engine.analytic.AnalyticFunction;
 import io.questdb.griffin.engine.analytic.CachedAnalyticRecordCursorFactory;
+import io.questdb.griffin.engine.analytic.StreamingAnalyticRecordCursorFactory;
+import io.questdb.griffin.engine.explain.ExplainPlanRecordCursorFactory;
+import io.questdb.griffin.engine.explain.ProfiledRecordCursorFactory;
 import io.questdb.griffin.engine.functions.GroupByFunction;
 import io.questdb.griffin.engine.functions.SymbolFunction;
 import io.questdb.griffin.engine.functions.constants.LongConstant;
@@ -44,6 +47,7 @@ import io.questdb.griffin.engine.join.*;
 import io.questdb.griffin.engine.orderby.RecordComparatorCompiler;
 import io.questdb.griffin.engine.orderby.SortedLightRecordCursorFactory;
 import io.questdb.griffin.engine.orderby.SortedRecordCursorFactory;
+import io.questdb.griffin.engine.orderby.TopKLightRecordCursorFactory;
 import io.questdb.griffin.engine.table.*;
 import io.questdb.griffin.engine.union.*;
 import io.questdb.griffin.model.*;
@@ -74,6 +78,7 @@ public class SqlCodeGenerator implements Mutable {
     private static final SetRecordCursorFactoryConstructor SET_INTERSECT_CONSTRUCTOR = IntersectRecordCursorFactory::new;
     private static final SetRecordCursorFactoryConstructor SET_EXCEPT_CONSTRUCTOR = ExceptRecordCursorFactory::new;
     private final WhereClauseParser whereClauseParser = new WhereClauseParser();
+    private final FilterCompiler filterCompiler = new FilterCompiler();
     private final FunctionParser functionParser;
     private final CairoEngine engine;
     private final BytecodeAssembler asm = new BytecodeAssembler();
@@ -100,7 +105,10 @@ public class SqlCodeGenerator implements Mutable {
     private final ObjObjHashMap<IntList, ObjList<AnalyticFunction>> grouppedAnalytic = new ObjObjHashMap<>();
     private final IntList recordFunctionPositions = new IntList();
     private final IntList groupByFunctionPositions = new IntList();
+    private final IntList slotFunctionPositions = new IntList();
+    private final ArrayColumnTypes slotValueTypes = new ArrayColumnTypes();
     private boolean fullFatJoins = false;
+    private boolean profiled = false;
     private final CharSequenceHashSet prefixes = new CharSequenceHashSet();
 
     static {
@@ -126,6 +134,7 @@ public class SqlCodeGenerator implements Mutable {
     @Override
     public void clear() {
         whereClauseParser.clear();
+        filterCompiler.clear();
     }
 
     @NotNull
@@ -291,6 +300,60 @@ public class SqlCodeGenerator implements Mutable {
         return null;
     }
 
+    private void configureAnalyticContext(
+            AnalyticColumn ac,
+            RecordMetadata metadata,
+            int timestampIndex,
+            boolean baseSupportsRandomAccess,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        ObjList<Function> partitionBy = null;
+        int psz = ac.getPartitionBy().size();
+        if (psz > 0) {
+            partitionBy = new ObjList<>(psz);
+            for (int j = 0; j < psz; j++) {
+                partitionBy.add(
+                        functionParser.parseFunction(ac.getPartitionBy().getQuick(j), metadata, executionContext)
+                );
+            }
+        }
+
+        final VirtualRecord partitionByRecord;
+        final RecordSink partitionBySink;
+
+        if (partitionBy != null) {
+            partitionByRecord = new VirtualRecord(partitionBy);
+            keyTypes.clear();
+            final int partitionByCount = partitionBy.size();
+
+            for (int j = 0; j < partitionByCount; j++) {
+                keyTypes.add(partitionBy.getQuick(j).getType());
+            }
+            entityColumnFilter.of(partitionByCount);
+            // create sink
+            partitionBySink = RecordSinkFactory.getInstance(
+                    asm,
+                    keyTypes,
+                    entityColumnFilter,
+                    false
+            );
+        } else {
+            partitionByRecord = null;
+            partitionBySink = null;
+        }
+
+        executionContext.configureAnalyticContext(
+                partitionByRecord,
+                partitionBySink,
+                keyTypes,
+                ac.getOrderBy().size() > 0,
+                baseSupportsRandomAccess,
+                ac.getFramingMode(),
+                ac.getRowsLo(),
+                timestampIndex
+        );
+    }
+
     private RecordCursorFactory createAsOfJoin(
             RecordMetadata metadata,
             RecordCursorFactory master,
@@ -483,7 +546,8 @@ public class SqlCodeGenerator implements Mutable {
             RecordMetadata metadata,
             RecordCursorFactory master,
             RecordCursorFactory slave,
-            int joinType
+            int joinType,
+            SqlExecutionContext executionContext
     ) {
         /*
          * JoinContext provides the following information:
@@ -518,6 +582,26 @@ public class SqlCodeGenerator implements Mutable {
 
         if (slave.recordCursorSupportsRandomAccess() && !fullFatJoins) {
             if (joinType == JOIN_INNER) {
+                final int radixBits = configuration.getSqlHashJoinRadixBits();
+                if (executionContext.getWorkerCount() > 1
+                        && configuration.isSqlParallelHashJoinEnabled()
+                        && radixBits > 0
+                        && Chars.equalsLowerCaseAscii(configuration.getDefaultMapType(), "fast")
+                ) {
+                    return new RadixHashJoinLightRecordCursorFactory(
+                            configuration,
+                            metadata,
+                            master,
+                            slave,
+                            keyTypes,
+                            valueTypes,
+                            masterKeySink,
+                            slaveKeySink,
+                            masterMetadata.getColumnCount(),
+                            radixBits
+                    );
+                }
+
                 return new HashJoinLightRecordCursorFactory(
                         configuration,
                         metadata,
@@ -676,6 +760,83 @@ public class SqlCodeGenerator implements Mutable {
         return generateQuery(model, executionContext, true);
     }
 
+    RecordCursorFactory generateExplain(QueryModel model, SqlExecutionContext executionContext, boolean analyze) throws SqlException {
+        // factories of query models are profiled only when ANALYZE is requested,
+        // plain EXPLAIN must not add overhead to the plan it describes
+        profiled = analyze;
+        try {
+            return new ExplainPlanRecordCursorFactory(generateQuery(model, executionContext, true), analyze);
+        } finally {
+            profiled = false;
+        }
+    }
+
+    /**
+     * Collects top level conjuncts of filter that compare SYMBOL or STRING column to string
+     * constants, these can be checked against Bloom filters of partitions.
+     */
+    @Nullable
+    private static BloomFilterPartitionPruner collectBloomFilterPredicates(
+            ExpressionNode node,
+            RecordMetadata metadata,
+            IntList columnIndexes,
+            @Nullable BloomFilterPartitionPruner pruner
+    ) {
+        if (node == null) {
+            return pruner;
+        }
+
+        if (isAndKeyword(node.token)) {
+            pruner = collectBloomFilterPredicates(node.lhs, metadata, columnIndexes, pruner);
+            return collectBloomFilterPredicates(node.rhs, metadata, columnIndexes, pruner);
+        }
+
+        final ExpressionNode column;
+        final int valueCount;
+        if (Chars.equals(node.token, '=') && node.paramCount == 2) {
+            column = node.lhs.type == LITERAL ? node.lhs : node.rhs;
+            valueCount = 1;
+        } else if (isInKeyword(node.token) && node.paramCount > 1) {
+            column = node.paramCount == 2 ? node.lhs : node.args.getLast();
+            valueCount = node.paramCount - 1;
+        } else {
+            return pruner;
+        }
+
+        if (column == null || column.type != LITERAL) {
+            return pruner;
+        }
+        final int columnIndex = metadata.getColumnIndexQuiet(column.token);
+        if (columnIndex == -1) {
+            return pruner;
+        }
+        final int columnType = metadata.getColumnType(columnIndex);
+        if (!ColumnType.isSymbol(columnType) && columnType != ColumnType.STRING) {
+            return pruner;
+        }
+
+        final ObjList<String> values = new ObjList<>(valueCount);
+        for (int i = 0; i < valueCount; i++) {
+            final ExpressionNode value;
+            if (node.paramCount == 2) {
+                value = node.lhs == column ? node.rhs : node.lhs;
+            } else {
+                value = node.args.getQuick(i);
+            }
+            // nulls, bind variables and expressions are not known at this point
+            if (value == null || value.type != ExpressionNode.CONSTANT || !Chars.isQuoted(value.token)) {
+                return pruner;
+            }
+            values.add(Chars.toString(GenericLexer.unquote(value.token)));
+        }
+
+        if (pruner == null) {
+            pruner = new BloomFilterPartitionPruner();
+        }
+        pruner.add(columnIndexes.getQuick(columnIndex), values);
+        return pruner;
+    }
+
     private RecordCursorFactory generateFilter(RecordCursorFactory factory, QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         final ExpressionNode filter = model.getWhereClause();
         return filter == null ? factory : generateFilter0(factory, model, executionContext, filter);
@@ -684,6 +845,58 @@ public class SqlCodeGenerator implements Mutable {
     @NotNull
     private RecordCursorFactory generateFilter0(RecordCursorFactory factory, QueryModel model, SqlExecutionContext executionContext, ExpressionNode filter) throws SqlException {
         model.setWhereClause(null);
+
+        final RecordCursorFactory base = ProfiledRecordCursorFactory.unwrap(factory);
+        if (base instanceof DataFrameRecordCursorFactory) {
+            final DataFrameRecordCursorFactory dataFrameFactory = (DataFrameRecordCursorFactory) base;
+            final BloomFilterPartitionPruner pruner = collectBloomFilterPredicates(
+                    filter,
+                    dataFrameFactory.getMetadata(),
+                    dataFrameFactory.getColumnIndexes(),
+                    null
+            );
+            if (pruner != null) {
+                dataFrameFactory.setPartitionPruner(pruner);
+            }
+        }
+
+        final boolean pageFrameSupported = base instanceof DataFrameRecordCursorFactory && factory.supportPageFrameCursor();
+        if (pageFrameSupported) {
+            // page frame consumers read the table directly, profiler would not see their rows anyway
+            factory = ProfiledRecordCursorFactory.unwrap(factory);
+        }
+        final int workerCount = executionContext.getWorkerCount();
+        final boolean parallel = pageFrameSupported && workerCount > 1 && configuration.isSqlParallelFilterEnabled();
+        final int concurrency = parallel ? workerCount + 1 : 1;
+
+        // compiled filter references columns, so filter cannot be constant and
+        // we only need functions for the part of it that could not be compiled
+        final CompiledFilter compiledFilter = pageFrameSupported && configuration.isSqlCompiledFilterEnabled()
+                ? filterCompiler.compile(filter, factory.getMetadata())
+                : null;
+        if (compiledFilter != null) {
+            final ExpressionNode residual = filterCompiler.getResidual();
+            final ObjList<Function> filters = new ObjList<>(concurrency);
+            try {
+                if (residual != null) {
+                    for (int i = 0; i < concurrency; i++) {
+                        filters.add(compileFilter(residual, factory.getMetadata(), executionContext));
+                    }
+                }
+            } catch (Throwable e) {
+                Misc.freeObjList(filters);
+                throw e;
+            }
+            return new ParallelFilteredRecordCursorFactory(
+                    (DataFrameRecordCursorFactory) factory,
+                    filters,
+                    compiledFilter,
+                    concurrency,
+                    configuration.getSqlParallelFilterMaxRangeRows(),
+                    configuration.isZoneMapEnabled()
+            );
+        }
+
         final Function f = compileFilter(filter, factory.getMetadata(), executionContext);
         if (f.isConstant()) {
             //noinspection TryFinallyCanBeTryWithResources
@@ -697,6 +910,29 @@ public class SqlCodeGenerator implements Mutable {
                 f.close();
             }
         }
+
+        if (parallel) {
+            // filter functions are not thread-safe, each worker and the thread
+            // that owns the cursor get their own copy
+            final ObjList<Function> filters = new ObjList<>(concurrency);
+            filters.add(f);
+            try {
+                for (int i = 1; i < concurrency; i++) {
+                    filters.add(compileFilter(filter, factory.getMetadata(), executionContext));
+                }
+            } catch (Throwable e) {
+                Misc.freeObjList(filters);
+                throw e;
+            }
+            return new ParallelFilteredRecordCursorFactory(
+                    (DataFrameRecordCursorFactory) factory,
+                    filters,
+                    null,
+                    concurrency,
+                    configuration.getSqlParallelFilterMaxRangeRows(),
+                    configuration.isZoneMapEnabled()
+            );
+        }
         return new FilteredRecordCursorFactory(factory, f);
     }
 
@@ -766,7 +1002,17 @@ public class SqlCodeGenerator implements Mutable {
                                 validateBothTimestamps(slaveModel, masterMetadata, slaveMetadata);
                                 processJoinContext(index == 1, slaveModel.getContext(), masterMetadata, slaveMetadata);
                                 if (slave.recordCursorSupportsRandomAccess() && !fullFatJoins) {
-                                    if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
+                                    final int slaveKeyColumnIndex = getAsOfJoinIndexedColumn(masterMetadata, slave, slaveMetadata);
+                                    if (slaveKeyColumnIndex > -1) {
+                                        master = new AsOfJoinIndexedRecordCursorFactory(
+                                                createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
+                                                master,
+                                                slave,
+                                                listColumnFilterB.getColumnIndexFactored(0),
+                                                slaveKeyColumnIndex,
+                                                masterMetadata.getColumnCount()
+                                        );
+                                    } else if (listColumnFilterA.size() > 0 && listColumnFilterB.size() > 0) {
                                         master = createAsOfJoin(
                                                 createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
                                                 master,
@@ -885,7 +1131,8 @@ public class SqlCodeGenerator implements Mutable {
                                         createJoinMetadata(masterAlias, masterMetadata, slaveModel.getName(), slaveMetadata),
                                         master,
                                         slave,
-                                        joinType
+                                        joinType,
+                                        executionContext
                                 );
                                 masterAlias = null;
                                 break;
@@ -1055,6 +1302,17 @@ public class SqlCodeGenerator implements Mutable {
                 final SymbolMapReader symbolMapReader = reader.getSymbolMapReader(latestByIndex);
 
                 if (nKeyValues > 1) {
+                    if (filter == null && configuration.isSqlParallelLatestByEnabled()) {
+                        return new ParallelLatestByValuesRecordCursorFactory(
+                                configuration,
+                                metadata,
+                                dataFrameCursorFactory,
+                                latestByIndex,
+                                intrinsicModel.keyValues,
+                                symbolMapReader,
+                                columnIndexes
+                        );
+                    }
                     return new LatestByValuesFilteredRecordCursorFactory(
                             configuration,
                             metadata,
@@ -1100,6 +1358,16 @@ public class SqlCodeGenerator implements Mutable {
                         prefixes
                 );
             }
+
+            if (filter == null && configuration.isSqlParallelLatestByEnabled()) {
+                return new ParallelLatestByAllRecordCursorFactory(
+                        configuration,
+                        metadata,
+                        dataFrameCursorFactory,
+                        latestByIndex,
+                        columnIndexes
+                );
+            }
         }
 
         return new LatestByAllFilteredRecordCursorFactory(
@@ -1121,29 +1389,18 @@ public class SqlCodeGenerator implements Mutable {
             return factory;
         }
 
-        final Function loFunc;
-        final Function hiFunc;
-
-        if (limitLo == null) {
-            loFunc = LongConstant.ZERO;
-        } else {
-            loFunc = functionParser.parseFunction(limitLo, EmptyRecordMetadata.INSTANCE, executionContext);
-            final int type = loFunc.getType();
-            if (limitTypes.excludes(type)) {
-                throw SqlException.$(limitLo.position, "invalid type: ").put(ColumnType.nameOf(type));
-            }
-        }
+        final Function loFunc = limitLo == null ? LongConstant.ZERO : generateLimitFunction(limitLo, executionContext);
+        final Function hiFunc = limitHi == null ? null : generateLimitFunction(limitHi, executionContext);
+        return new LimitRecordCursorFactory(factory, loFunc, hiFunc);
+    }
 
-        if (limitHi != null) {
-            hiFunc = functionParser.parseFunction(limitHi, EmptyRecordMetadata.INSTANCE, executionContext);
-            final int type = hiFunc.getType();
-            if (limitTypes.excludes(type)) {
-                throw SqlException.$(limitHi.position, "invalid type: ").put(ColumnType.nameOf(type));
-            }
-        } else {
-            hiFunc = null;
+    private Function generateLimitFunction(ExpressionNode limit, SqlExecutionContext executionContext) throws SqlException {
+        final Function func = functionParser.parseFunction(limit, EmptyRecordMetadata.INSTANCE, executionContext);
+        final int type = func.getType();
+        if (limitTypes.excludes(type)) {
+            throw SqlException.$(limit.position, "invalid type: ").put(ColumnType.nameOf(type));
         }
-        return new LimitRecordCursorFactory(factory, loFunc, hiFunc);
+        return func;
     }
 
     private RecordCursorFactory generateNoSelect(
@@ -1161,7 +1418,7 @@ public class SqlCodeGenerator implements Mutable {
         return generateSubQuery(model, executionContext);
     }
 
-    private RecordCursorFactory generateOrderBy(RecordCursorFactory recordCursorFactory, QueryModel model) throws SqlException {
+    private RecordCursorFactory generateOrderBy(RecordCursorFactory recordCursorFactory, QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         if (recordCursorFactory.followedOrderByAdvice()) {
             return recordCursorFactory;
         }
@@ -1226,6 +1483,23 @@ public class SqlCodeGenerator implements Mutable {
                 orderedMetadata = GenericRecordMetadata.copyOfSansTimestamp(metadata);
 
                 if (recordCursorFactory.recordCursorSupportsRandomAccess()) {
+                    final ExpressionNode limitLo = model.getLimitLo();
+                    final ExpressionNode limitHi = model.getLimitHi();
+                    if (limitLo != null || limitHi != null) {
+                        // limit functions are parsed without record metadata, they are constant
+                        // for the duration of the query; sort keeps only the rows within the
+                        // limit and therefore also applies the limit
+                        final Function loFunc = limitLo == null ? LongConstant.ZERO : generateLimitFunction(limitLo, executionContext);
+                        final Function hiFunc = limitHi == null ? null : generateLimitFunction(limitHi, executionContext);
+                        model.setLimit(null, null);
+                        return new TopKLightRecordCursorFactory(
+                                orderedMetadata,
+                                recordCursorFactory,
+                                recordComparatorCompiler.compile(metadata, listColumnFilterA),
+                                loFunc,
+                                hiFunc
+                        );
+                    }
                     return new SortedLightRecordCursorFactory(
                             configuration,
                             orderedMetadata,
@@ -1264,9 +1538,9 @@ public class SqlCodeGenerator implements Mutable {
     private RecordCursorFactory generateQuery(QueryModel model, SqlExecutionContext executionContext, boolean processJoins) throws SqlException {
         RecordCursorFactory factory = generateQuery0(model, executionContext, processJoins);
         if (model.getUnionModel() != null) {
-            return generateSetFactory(model, factory, executionContext);
+            factory = generateSetFactory(model, factory, executionContext);
         }
-        return factory;
+        return profiled ? new ProfiledRecordCursorFactory(factory) : factory;
     }
 
     private RecordCursorFactory generateQuery0(QueryModel model, SqlExecutionContext executionContext, boolean processJoins) throws SqlException {
@@ -1281,7 +1555,8 @@ public class SqlCodeGenerator implements Mutable {
                                 model,
                                 executionContext
                         ),
-                        model
+                        model,
+                        executionContext
                 ),
                 model,
                 executionContext
@@ -1608,6 +1883,47 @@ public class SqlCodeGenerator implements Mutable {
 
     private RecordCursorFactory generateSelectAnalytic(QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         final RecordCursorFactory base = generateSubQuery(model, executionContext);
+        try {
+            final RecordMetadata baseMetadata = base.getMetadata();
+            final ObjList<QueryColumn> columns = model.getColumns();
+            // when all functions can be computed in the order of base cursor we don't need to cache it
+            boolean streamable = true;
+            for (int i = 0, n = columns.size(); i < n; i++) {
+                final QueryColumn qc = columns.getQuick(i);
+                if (qc instanceof AnalyticColumn) {
+                    final AnalyticColumn ac = (AnalyticColumn) qc;
+                    final boolean orderedByTimestamp = isAnalyticOrderedByTimestamp(ac, baseMetadata);
+                    if (
+                            ac.getFramingMode() == AnalyticColumn.FRAMING_RANGE
+                                    && ac.getRowsLo() != AnalyticColumn.FRAME_UNBOUNDED_PRECEDING
+                                    && !orderedByTimestamp
+                    ) {
+                        throw SqlException.$(ac.getAst().position, "RANGE frame requires ordering by designated timestamp");
+                    }
+                    if (ac.getOrderBy().size() > 0 && !orderedByTimestamp && !isAnalyticOrderDismissed(model, ac)) {
+                        streamable = false;
+                    }
+                }
+            }
+
+            if (streamable) {
+                final RecordCursorFactory factory = generateStreamingAnalytic(model, base, executionContext);
+                if (factory != null) {
+                    return factory;
+                }
+            }
+            return generateCachedAnalytic(model, base, executionContext);
+        } catch (Throwable e) {
+            Misc.free(base);
+            throw e;
+        }
+    }
+
+    private RecordCursorFactory generateCachedAnalytic(
+            QueryModel model,
+            RecordCursorFactory base,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
         final RecordMetadata baseMetadata = base.getMetadata();
         final ObjList<QueryColumn> columns = model.getColumns();
         final int columnCount = columns.size();
@@ -1664,6 +1980,10 @@ public class SqlCodeGenerator implements Mutable {
             }
         }
 
+        // timestamp is one of base columns, which are all present in chain
+        final int baseTimestampIndex = baseMetadata.getTimestampIndex();
+        final int chainTimestampIndex = baseTimestampIndex == -1 ? -1 : chainMetadata.getColumnIndexQuiet(baseMetadata.getColumnName(baseTimestampIndex));
+
         // pass #3 assembles analytic column metadata into a list
         // not main metadata to avoid partitionBy functions accidentally looking up
         // analytic columns recursively
@@ -1675,80 +1995,16 @@ public class SqlCodeGenerator implements Mutable {
             final QueryColumn qc = columns.getQuick(i);
             if (qc instanceof AnalyticColumn) {
                 final AnalyticColumn ac = (AnalyticColumn) qc;
-                final ExpressionNode ast = qc.getAst();
-                if (ast.paramCount > 1) {
-                    throw SqlException.$(ast.position, "Too many arguments");
-                }
-
-                ObjList<Function> partitionBy = null;
-                int psz = ac.getPartitionBy().size();
-                if (psz > 0) {
-                    partitionBy = new ObjList<>(psz);
-                    for (int j = 0; j < psz; j++) {
-                        partitionBy.add(
-                                functionParser.parseFunction(ac.getPartitionBy().getQuick(j), chainMetadata, executionContext)
-                        );
-                    }
-                }
-
-                final VirtualRecord partitionByRecord;
-                final RecordSink partitionBySink;
 
-                if (partitionBy != null) {
-                    partitionByRecord = new VirtualRecord(partitionBy);
-                    keyTypes.clear();
-                    final int partitionByCount = partitionBy.size();
-
-                    for (int j = 0; j < partitionByCount; j++) {
-                        keyTypes.add(partitionBy.getQuick(j).getType());
-                    }
-                    entityColumnFilter.of(partitionByCount);
-                    // create sink
-                    partitionBySink = RecordSinkFactory.getInstance(
-                            asm,
-                            keyTypes,
-                            entityColumnFilter,
-                            false
-                    );
-                } else {
-                    partitionByRecord = null;
-                    partitionBySink = null;
-                }
-
-
-                final int osz = ac.getOrderBy().size();
-                executionContext.configureAnalyticContext(
-                        partitionByRecord,
-                        partitionBySink,
-                        keyTypes,
-                        osz > 0,
-                        base.recordCursorSupportsRandomAccess()
+                // functions read chain record, which is why they are parsed against chain metadata
+                configureAnalyticContext(ac, chainMetadata, chainTimestampIndex, base.recordCursorSupportsRandomAccess(), executionContext);
+                final AnalyticFunction analyticFunction = (AnalyticFunction) functionParser.parseAnalyticFunction(
+                        ac.getAst(),
+                        chainMetadata,
+                        executionContext
                 );
 
-                final Function f = functionParser.parseFunction(ac.getAst(), baseMetadata, executionContext);
-                // todo: throw an error when non-analytic function is called in analytic context
-                assert f instanceof AnalyticFunction;
-                AnalyticFunction analyticFunction = (AnalyticFunction) f;
-
-                // analyze order by clause on the current model and optimise out
-                // order by on analytic function if it matches the one on the model
-                final LowerCaseCharSequenceIntHashMap orderHash = model.getOrderHash();
-                boolean dismissOrder;
-                if (osz > 0 && orderHash.size() > 0) {
-                    dismissOrder = true;
-                    for (int j = 0; j < osz; j++) {
-                        ExpressionNode node = ac.getOrderBy().getQuick(j);
-                        int direction = ac.getOrderByDirection().getQuick(j);
-                        if (orderHash.get(node.token) != direction) {
-                            dismissOrder = false;
-                            break;
-                        }
-                    }
-                } else {
-                    dismissOrder = false;
-                }
-
-                if (osz > 0 && !dismissOrder) {
+                if (ac.getOrderBy().size() > 0 && !isAnalyticOrderDismissed(model, ac)) {
                     IntList order = toOrderIndices(chainMetadata, ac.getOrderBy(), ac.getOrderByDirection());
                     ObjList<AnalyticFunction> funcs = grouppedAnalytic.get(order);
                     if (funcs == null) {
@@ -1813,6 +2069,58 @@ public class SqlCodeGenerator implements Mutable {
         );
     }
 
+    // returns null when one of the functions has to see rows ahead of current row and cannot be streamed
+    @Nullable
+    private RecordCursorFactory generateStreamingAnalytic(
+            QueryModel model,
+            RecordCursorFactory base,
+            SqlExecutionContext executionContext
+    ) throws SqlException {
+        final RecordMetadata baseMetadata = base.getMetadata();
+        final int timestampIndex = baseMetadata.getTimestampIndex();
+        final ObjList<QueryColumn> columns = model.getColumns();
+        final int columnCount = columns.size();
+        final ObjList<Function> functions = new ObjList<>(columnCount);
+        final ObjList<AnalyticFunction> analyticFunctions = new ObjList<>();
+        final GenericRecordMetadata metadata = new GenericRecordMetadata();
+        try {
+            for (int i = 0; i < columnCount; i++) {
+                final QueryColumn qc = columns.getQuick(i);
+                if (qc instanceof AnalyticColumn) {
+                    configureAnalyticContext((AnalyticColumn) qc, baseMetadata, timestampIndex, base.recordCursorSupportsRandomAccess(), executionContext);
+                    final Function function = functionParser.parseAnalyticFunction(qc.getAst(), baseMetadata, executionContext);
+                    functions.add(function);
+                    final AnalyticFunction analyticFunction = (AnalyticFunction) function;
+                    if (analyticFunction.getPassCount() != AnalyticFunction.STREAM) {
+                        Misc.freeObjList(functions);
+                        return null;
+                    }
+                    analyticFunctions.add(analyticFunction);
+                    metadata.add(new TableColumnMetadata(
+                            Chars.toString(qc.getAlias()),
+                            function.getType(),
+                            false,
+                            0,
+                            false,
+                            null
+                    ));
+                } else {
+                    final int columnIndex = baseMetadata.getColumnIndex(qc.getAst().token);
+                    functions.add(functionParser.parseFunction(qc.getAst(), baseMetadata, executionContext));
+                    metadata.add(BaseRecordMetadata.copyOf(baseMetadata, columnIndex));
+                    // rows come out in order of base cursor
+                    if (columnIndex == timestampIndex) {
+                        metadata.setTimestampIndex(i);
+                    }
+                }
+            }
+            return new StreamingAnalyticRecordCursorFactory(metadata, base, functions, analyticFunctions);
+        } catch (Throwable e) {
+            Misc.freeObjList(functions);
+            throw e;
+        }
+    }
+
     private RecordCursorFactory generateSelectChoose(QueryModel model, SqlExecutionContext executionContext) throws SqlException {
         final RecordCursorFactory factory = generateSubQuery(model, executionContext);
         final RecordMetadata metadata = factory.getMetadata();
@@ -2172,6 +2480,72 @@ public class SqlCodeGenerator implements Mutable {
                 );
             }
 
+            final int workerCount = executionContext.getWorkerCount();
+            if (workerCount > 1
+                    && configuration.isSqlParallelGroupByEnabled()
+                    && (ProfiledRecordCursorFactory.unwrap(factory) instanceof DataFrameRecordCursorFactory || ProfiledRecordCursorFactory.unwrap(factory) instanceof TableReaderRecordCursorFactory)
+                    && factory.supportPageFrameCursor()
+                    && Chars.equalsLowerCaseAscii(configuration.getDefaultMapType(), "fast")
+                    && GroupByUtils.isMergeSupported(groupByFunctions)
+            ) {
+                factory = ProfiledRecordCursorFactory.unwrap(factory);
+                // group-by functions are not thread-safe, each worker and the thread
+                // that owns the cursor get their own copy
+                final int concurrency = workerCount + 1;
+                final ObjList<ObjList<GroupByFunction>> slotFunctions = new ObjList<>(concurrency);
+                slotFunctions.add(groupByFunctions);
+                try {
+                    for (int i = 1; i < concurrency; i++) {
+                        final ObjList<GroupByFunction> functions = new ObjList<>(groupByFunctions.size());
+                        slotFunctions.add(functions);
+                        slotValueTypes.clear();
+                        GroupByUtils.prepareGroupByFunctions(
+                                model,
+                                metadata,
+                                functionParser,
+                                executionContext,
+                                functions,
+                                slotFunctionPositions,
+                                slotValueTypes
+                        );
+                    }
+                } catch (Throwable e) {
+                    for (int i = 1, n = slotFunctions.size(); i < n; i++) {
+                        Misc.freeObjList(slotFunctions.getQuick(i));
+                    }
+                    Misc.freeObjList(recordFunctions);
+                    throw e;
+                }
+                if (factory instanceof TableReaderRecordCursorFactory) {
+                    // parallel group by splits page frames into row ranges, which
+                    // requires row ids, full table scan is re-expressed as a data frame scan
+                    final TableReaderRecordCursorFactory tableFactory = (TableReaderRecordCursorFactory) factory;
+                    factory = new DataFrameRecordCursorFactory(
+                            metadata,
+                            new FullFwdDataFrameCursorFactory(engine, tableFactory.getTableName(), tableFactory.getTableId(), tableFactory.getTableVersion()),
+                            new DataFrameRowCursorFactory(),
+                            false,
+                            null,
+                            true,
+                            tableFactory.getColumnIndexes(),
+                            tableFactory.getColumnSizes()
+                    );
+                    tableFactory.close();
+                }
+                return new ParallelGroupByRecordCursorFactory(
+                        configuration,
+                        (DataFrameRecordCursorFactory) factory,
+                        listColumnFilterA,
+                        asm,
+                        keyTypes,
+                        valueTypes,
+                        groupByMetadata,
+                        slotFunctions,
+                        recordFunctions,
+                        configuration.getSqlParallelGroupByMaxRangeRows()
+                );
+            }
+
             return new io.questdb.griffin.engine.groupby.GroupByRecordCursorFactory(
                     configuration,
                     factory,
@@ -2775,6 +3149,20 @@ public class SqlCodeGenerator implements Mutable {
                 );
             }
 
+            if (
+                    latestByColumnCount == 1
+                    && ColumnType.isSymbol(myMeta.getColumnType(listColumnFilterA.getColumnIndexFactored(0)))
+                    && configuration.isSqlParallelLatestByEnabled()
+            ) {
+                return new ParallelLatestByAllRecordCursorFactory(
+                        configuration,
+                        myMeta,
+                        new FullBwdDataFrameCursorFactory(engine, tableName, model.getTableId(), model.getTableVersion()),
+                        listColumnFilterA.getColumnIndexFactored(0),
+                        columnIndexes
+                );
+            }
+
             return new LatestByAllFilteredRecordCursorFactory(
                     myMeta,
                     configuration,
@@ -2839,6 +3227,30 @@ public class SqlCodeGenerator implements Mutable {
         return unionFactory;
     }
 
+    // slave rows can be located via symbol index and timestamp search when join is on single key,
+    // which is indexed symbol of slave table scanned whole in timestamp order; returns table index
+    // of the key column or -1 when join does not qualify
+    private int getAsOfJoinIndexedColumn(RecordMetadata masterMetadata, RecordCursorFactory slave, RecordMetadata slaveMetadata) {
+        if (listColumnFilterA.size() != 1 || listColumnFilterB.size() != 1) {
+            return -1;
+        }
+        final IntList columnIndexes;
+        if (slave instanceof TableReaderRecordCursorFactory) {
+            columnIndexes = ((TableReaderRecordCursorFactory) slave).getColumnIndexes();
+        } else if (slave instanceof DataFrameRecordCursorFactory && ((DataFrameRecordCursorFactory) slave).isFullFwdScan()) {
+            columnIndexes = ((DataFrameRecordCursorFactory) slave).getColumnIndexes();
+        } else {
+            return -1;
+        }
+        final int slaveKeyIndex = listColumnFilterA.getColumnIndexFactored(0);
+        if (ColumnType.isSymbol(slaveMetadata.getColumnType(slaveKeyIndex))
+                && slaveMetadata.isColumnIndexed(slaveKeyIndex)
+                && ColumnType.isSymbolOrString(masterMetadata.getColumnType(listColumnFilterB.getColumnIndexFactored(0)))) {
+            return columnIndexes.getQuick(slaveKeyIndex);
+        }
+        return -1;
+    }
+
     private int getTimestampIndex(QueryModel model, RecordCursorFactory factory) throws SqlException {
         final RecordMetadata metadata = factory.getMetadata();
         try {
@@ -2864,6 +3276,34 @@ public class SqlCodeGenerator implements Mutable {
         return metadata.getTimestampIndex();
     }
 
+    // analyze order by clause on the current model and optimise out
+    // order by on analytic function if it matches the one on the model
+    private boolean isAnalyticOrderDismissed(QueryModel model, AnalyticColumn ac) {
+        final LowerCaseCharSequenceIntHashMap orderHash = model.getOrderHash();
+        final int osz = ac.getOrderBy().size();
+        if (osz > 0 && orderHash.size() > 0) {
+            for (int j = 0; j < osz; j++) {
+                ExpressionNode node = ac.getOrderBy().getQuick(j);
+                int direction = ac.getOrderByDirection().getQuick(j);
+                if (orderHash.get(node.token) != direction) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // base cursor with designated timestamp is ordered by it, analytic function that needs this
+    // order can be computed as the cursor goes
+    private boolean isAnalyticOrderedByTimestamp(AnalyticColumn ac, RecordMetadata baseMetadata) {
+        final int timestampIndex = baseMetadata.getTimestampIndex();
+        return timestampIndex != -1
+                && ac.getOrderBy().size() == 1
+                && ac.getOrderByDirection().getQuick(0) == QueryModel.ORDER_DIRECTION_ASCENDING
+                && baseMetadata.getColumnIndexQuiet(ac.getOrderBy().getQuick(0).token) == timestampIndex;
+    }
+
     private boolean isSingleColumnFunction(ExpressionNode ast, CharSequence name) {
         return ast.type == FUNCTION && ast.paramCount == 1 && Chars.equals(ast.token, name) && ast.rhs.type == LITERAL;
     }
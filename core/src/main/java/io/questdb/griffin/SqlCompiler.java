@@ -26,10 +26,12 @@ package io.questdb.griffin;
 
 import io.questdb.MessageBus;
 import io.questdb.cairo.*;
+import io.questdb.cairo.mv.MatViewDefinition;
 import io.questdb.cairo.sql.*;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryMARW;
 import io.questdb.cutlass.text.Atomicity;
+import io.questdb.cutlass.text.ParallelTextImporter;
 import io.questdb.cutlass.text.TextException;
 import io.questdb.cutlass.text.TextLoader;
 import io.questdb.griffin.engine.functions.cast.CastCharToStrFunctionFactory;
@@ -38,6 +40,8 @@ import io.questdb.griffin.engine.functions.catalogue.ShowSearchPathCursorFactory
 import io.questdb.griffin.engine.functions.catalogue.ShowStandardConformingStringsCursorFactory;
 import io.questdb.griffin.engine.functions.catalogue.ShowTimeZoneFactory;
 import io.questdb.griffin.engine.functions.catalogue.ShowTransactionIsolationLevelCursorFactory;
+import io.questdb.griffin.engine.groupby.TimestampSampler;
+import io.questdb.griffin.engine.groupby.TimestampSamplerFactory;
 import io.questdb.griffin.engine.table.ShowColumnsRecordCursorFactory;
 import io.questdb.griffin.engine.table.TableListRecordCursorFactory;
 import io.questdb.griffin.model.*;
@@ -45,8 +49,10 @@ import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.std.*;
 import io.questdb.std.datetime.DateFormat;
+import io.questdb.std.datetime.microtime.Timestamps;
 import io.questdb.std.str.NativeLPSZ;
 import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -88,6 +94,7 @@ public class SqlCompiler implements Closeable {
     private final ExecutableMethod insertAsSelectMethod = this::insertAsSelect;
     private final ExecutableMethod createTableMethod = this::createTable;
     private final TextLoader textLoader;
+    private final ParallelTextImporter parallelTextImporter;
     private final FilesFacade ff;
     private final ObjHashSet<CharSequence> tableNames = new ObjHashSet<>();
     private final NativeLPSZ nativeLPSZ = new NativeLPSZ();
@@ -146,6 +153,7 @@ public class SqlCompiler implements Closeable {
         final KeywordBasedExecutor dropTable = this::dropTable;
         final KeywordBasedExecutor sqlBackup = this::sqlBackup;
         final KeywordBasedExecutor sqlShow = this::sqlShow;
+        final KeywordBasedExecutor explain = this::explain;
 
         keywordBasedExecutors.put("truncate", truncateTables);
         keywordBasedExecutors.put("TRUNCATE", truncateTables);
@@ -169,6 +177,8 @@ public class SqlCompiler implements Closeable {
         keywordBasedExecutors.put("BACKUP", sqlBackup);
         keywordBasedExecutors.put("show", sqlShow);
         keywordBasedExecutors.put("SHOW", sqlShow);
+        keywordBasedExecutors.put("explain", explain);
+        keywordBasedExecutors.put("EXPLAIN", explain);
 
         configureLexer(lexer);
 
@@ -195,6 +205,7 @@ public class SqlCompiler implements Closeable {
                 postOrderTreeTraversalAlgo
         );
         this.textLoader = new TextLoader(engine);
+        this.parallelTextImporter = new ParallelTextImporter(engine);
     }
 
     // Creates data type converter.
@@ -808,6 +819,7 @@ public class SqlCompiler implements Closeable {
         Misc.free(path);
         Misc.free(renamePath);
         Misc.free(textLoader);
+        Misc.free(parallelTextImporter);
     }
 
     @NotNull
@@ -839,6 +851,26 @@ public class SqlCompiler implements Closeable {
         return functionParser.getFunctionFactoryCache();
     }
 
+    private static int findTokenEnd(CharSequence query, int lo) {
+        final int n = query.length();
+        final char quote = query.charAt(lo);
+        if (quote == '\'' || quote == '"') {
+            for (int i = lo + 1; i < n; i++) {
+                if (query.charAt(i) == quote) {
+                    return i + 1;
+                }
+            }
+            return n;
+        }
+        for (int i = lo; i < n; i++) {
+            final char c = query.charAt(i);
+            if (Character.isWhitespace(c) || c == ')' || c == ',' || c == ';') {
+                return i;
+            }
+        }
+        return n;
+    }
+
     private static boolean isCompatibleCase(int from, int to) {
         return castGroups.getQuick(ColumnType.tagOf(from)) == castGroups.getQuick(ColumnType.tagOf(to));
     }
@@ -855,6 +887,28 @@ public class SqlCompiler implements Closeable {
         }
     }
 
+    /**
+     * Checks that calendar aligned SAMPLE BY interval never crosses partition boundary.
+     */
+    private static boolean isSampleByAlignedToPartitions(TimestampSampler sampler, CharSequence interval, int partitionBy) {
+        final char unit = interval.charAt(interval.length() - 1);
+        final int count;
+        try {
+            count = interval.length() > 1 ? Numbers.parseInt(interval, 0, interval.length() - 1) : 1;
+        } catch (NumericException e) {
+            return false;
+        }
+        switch (unit) {
+            case 'M':
+                return (partitionBy == PartitionBy.MONTH && count == 1) || (partitionBy == PartitionBy.YEAR && 12 % count == 0);
+            case 'y':
+                return partitionBy == PartitionBy.YEAR && count == 1;
+            default:
+                final long partitionMicros = partitionBy == PartitionBy.HOUR ? Timestamps.HOUR_MICROS : Timestamps.DAY_MICROS;
+                return partitionMicros % sampler.getBucketSize() == 0;
+        }
+    }
+
     private static CharSequence expectToken(GenericLexer lexer, CharSequence expected) throws SqlException {
         CharSequence tok = SqlUtil.fetchNext(lexer);
 
@@ -928,6 +982,13 @@ public class SqlCompiler implements Closeable {
                     } else {
                         throw SqlException.$(lexer.lastTokenPosition(), "'column' or 'partition' expected");
                     }
+                } else if (SqlKeywords.isCompressKeyword(tok)) {
+                    tok = expectToken(lexer, "'partition'");
+                    if (SqlKeywords.isPartitionKeyword(tok)) {
+                        alterTableDropOrAttachPartition(writer, PartitionAction.COMPRESS, executionContext);
+                    } else {
+                        throw SqlException.$(lexer.lastTokenPosition(), "'partition' expected");
+                    }
                 } else if (SqlKeywords.isRenameKeyword(tok)) {
                     tok = expectToken(lexer, "'column'");
                     if (SqlKeywords.isColumnKeyword(tok)) {
@@ -943,8 +1004,14 @@ public class SqlCompiler implements Closeable {
                         final CharSequence columnName = GenericLexer.immutableOf(tok);
                         tok = expectToken(lexer, "'add index' or 'cache' or 'nocache'");
                         if (SqlKeywords.isAddKeyword(tok)) {
-                            expectKeyword(lexer, "index");
-                            alterTableColumnAddIndex(tableNamePosition, columnNameNamePosition, columnName, writer);
+                            tok = expectToken(lexer, "'index' or 'bloom'");
+                            if (SqlKeywords.isIndexKeyword(tok)) {
+                                alterTableColumnAddIndex(tableNamePosition, columnNameNamePosition, columnName, writer);
+                            } else if (SqlKeywords.isBloomKeyword(tok)) {
+                                alterTableColumnAddBloomFilter(tableNamePosition, columnNameNamePosition, columnName, writer);
+                            } else {
+                                throw SqlException.$(lexer.lastTokenPosition(), "'index' or 'bloom' expected");
+                            }
                         } else {
                             if (SqlKeywords.isCacheKeyword(tok)) {
                                 alterTableColumnCacheFlag(tableNamePosition, columnName, writer, true);
@@ -959,8 +1026,10 @@ public class SqlCompiler implements Closeable {
                     }
 
                 } else if (SqlKeywords.isSetKeyword(tok)) {
-                    tok = expectToken(lexer, "'param'");
-                    if (SqlKeywords.isParamKeyword(tok)) {
+                    tok = expectToken(lexer, "'param' or 'cold'");
+                    if (SqlKeywords.isColdKeyword(tok)) {
+                        alterTableSetColdStorage(writer);
+                    } else if (SqlKeywords.isParamKeyword(tok)) {
                         final int paramNameNamePosition = lexer.getPosition();
                         tok = expectToken(lexer, "param name");
                         final CharSequence paramName = GenericLexer.immutableOf(tok);
@@ -972,10 +1041,10 @@ public class SqlCompiler implements Closeable {
                             throw SqlException.$(lexer.lastTokenPosition(), "'=' expected");
                         }
                     } else {
-                        throw SqlException.$(lexer.lastTokenPosition(), "'param' expected");
+                        throw SqlException.$(lexer.lastTokenPosition(), "'param' or 'cold' expected");
                     }
                 } else {
-                    throw SqlException.$(lexer.lastTokenPosition(), "'add', 'drop', 'attach', 'set' or 'rename' expected");
+                    throw SqlException.$(lexer.lastTokenPosition(), "'add', 'drop', 'attach', 'compress', 'set' or 'rename' expected");
                 }
             } catch (CairoException e) {
                 LOG.info().$("could not alter table [table=").$(tableName).$(", ex=").$((Sinkable) e).$();
@@ -1005,6 +1074,29 @@ public class SqlCompiler implements Closeable {
         return compiledQuery.ofAlter();
     }
 
+    private void alterTableSetColdStorage(TableWriter writer) throws SqlException {
+        CharSequence tok = expectToken(lexer, "'storage'");
+        if (!SqlKeywords.isStorageKeyword(tok)) {
+            throw SqlException.$(lexer.lastTokenPosition(), "'storage' expected");
+        }
+        tok = expectToken(lexer, "cold storage directory");
+        if (!Chars.isQuoted(tok)) {
+            throw SqlException.$(lexer.lastTokenPosition(), "quoted cold storage directory expected");
+        }
+        final int rootPosition = lexer.lastTokenPosition();
+        final CharSequence root = GenericLexer.unquote(GenericLexer.immutableOf(tok));
+        if (root.length() == 0) {
+            throw SqlException.$(rootPosition, "cold storage directory expected");
+        }
+        tok = expectToken(lexer, "'after'");
+        if (!SqlKeywords.isAfterKeyword(tok)) {
+            throw SqlException.$(lexer.lastTokenPosition(), "'after' expected");
+        }
+        tok = expectToken(lexer, "partition age");
+        final long after = SqlUtil.expectMicros(tok, lexer.lastTokenPosition());
+        writer.setColdStorage(root, after);
+    }
+
     private void alterTableSetParam(CharSequence paramName, CharSequence value, int paramNameNamePosition, TableWriter writer) throws SqlException {
         if (isMaxUncommittedRowsParam(paramName)) {
             int maxUncommittedRows;
@@ -1195,6 +1287,18 @@ public class SqlCompiler implements Closeable {
         } while (true);
     }
 
+    private void alterTableColumnAddBloomFilter(int tableNamePosition, int columnNamePosition, CharSequence columnName, TableWriter w) throws SqlException {
+        try {
+            if (w.getMetadata().getColumnIndexQuiet(columnName) == -1) {
+                throw SqlException.invalidColumn(columnNamePosition, columnName);
+            }
+            w.addBloomFilter(columnName);
+        } catch (CairoException e) {
+            throw SqlException.position(tableNamePosition).put(e.getFlyweightMessage())
+                    .put("[errno=").put(e.getErrno()).put(']');
+        }
+    }
+
     private void alterTableColumnAddIndex(int tableNamePosition, int columnNamePosition, CharSequence columnName, TableWriter w) throws SqlException {
         try {
             if (w.getMetadata().getColumnIndexQuiet(columnName) == -1) {
@@ -1271,7 +1375,11 @@ public class SqlCompiler implements Closeable {
                 Function function = functionParser.parseFunction(expr, metadata, currentExecutionContext);
                 if (function != null && ColumnType.isBoolean(function.getType())) {
                     function.init(null, executionContext);
-                    writer.removePartition(function, pos);
+                    if (action == PartitionAction.COMPRESS) {
+                        writer.compressPartition(function, pos);
+                    } else {
+                        writer.removePartition(function, pos);
+                    }
                 } else {
                     throw SqlException.$(lexer.lastTokenPosition(), "boolean expression expected");
                 }
@@ -1322,6 +1430,11 @@ public class SqlCompiler implements Closeable {
                             throw SqlException.$(lexer.lastTokenPosition(), "attach partition '").put(unquoted).put("', failed with error ").put(statusCode);
                     }
                     break;
+                case PartitionAction.COMPRESS:
+                    if (!writer.compressPartition(timestamp)) {
+                        throw SqlException.$(lexer.lastTokenPosition(), "could not compress partition '").put(unquoted).put('\'');
+                    }
+                    break;
                 default:
                     throw SqlException.$(lexer.lastTokenPosition(), "unsupported partition action");
             }
@@ -1526,6 +1639,8 @@ public class SqlCompiler implements Closeable {
                 return compiledQuery.of(generate((QueryModel) executionModel, executionContext));
             case ExecutionModel.CREATE_TABLE:
                 return createTableWithRetries(executionModel, executionContext);
+            case ExecutionModel.CREATE_MAT_VIEW:
+                return createMatView((CreateMatViewModel) executionModel, executionContext);
             case ExecutionModel.COPY:
                 return executeCopy(executionContext, (CopyModel) executionModel);
             case ExecutionModel.RENAME_TABLE:
@@ -1723,6 +1838,122 @@ public class SqlCompiler implements Closeable {
         writer.commit();
     }
 
+    /**
+     * Creates table populated by SAMPLE BY query and registers it as materialized view, which
+     * is refreshed from changes of the base table by {@link io.questdb.griffin.engine.mv.MatViewRefreshJob}.
+     * <code>
+     * create materialized view x as (select ts, sym, sum(qty) from y sample by 1m align to calendar)
+     * </code>
+     * Refresh recomputes view partitions of changed base partitions, therefore the query is restricted
+     * to SAMPLE BY of single partitioned table aligned to calendar, with intervals which never
+     * cross partition boundary. View table is partitioned in the same way as the base table.
+     */
+    private CompiledQuery createMatView(CreateMatViewModel model, SqlExecutionContext executionContext) throws SqlException {
+        executionContext.getCairoSecurityContext().checkWritePermission();
+        final ExpressionNode name = model.getName();
+        final QueryModel queryModel = model.getQueryModel();
+        final QueryModel nestedModel = queryModel.getNestedModel();
+        final int queryLo = model.getQueryLo();
+        if (queryModel.getUnionModel() != null
+                || queryModel.getLimitLo() != null
+                || nestedModel == null
+                || nestedModel.getTableName() == null
+                || nestedModel.getTableName().type != ExpressionNode.LITERAL
+                || nestedModel.getJoinModels().size() > 1
+                || nestedModel.getLatestBy().size() > 0) {
+            throw SqlException.$(queryLo, "materialized view query must select from single table without joins, set operations or limit");
+        }
+
+        final ExpressionNode sampleBy = nestedModel.getSampleBy();
+        if (sampleBy == null) {
+            throw SqlException.$(queryLo, "materialized view query requires SAMPLE BY");
+        }
+
+        final ObjList<ExpressionNode> fill = nestedModel.getSampleByFill();
+        if (fill.size() > 1 || (fill.size() == 1 && !Chars.equalsLowerCaseAscii(fill.getQuick(0).token, "none"))) {
+            throw SqlException.$(fill.getQuick(0).position, "FILL is not supported by materialized view");
+        }
+
+        final ExpressionNode offset = nestedModel.getSampleByOffset();
+        if (nestedModel.getSampleByTimezoneName() != null || offset == null || !Chars.equals(offset.token, "'00:00'")) {
+            throw SqlException.$(sampleBy.position, "materialized view query requires ALIGN TO CALENDAR without time zone or offset");
+        }
+
+        final ExpressionNode tableName = nestedModel.getTableName();
+        final CharSequence content = lexer.getContent();
+        final String viewName = Chars.toString(name.token);
+        final String baseTableName = Chars.toString(GenericLexer.unquote(tableName.token));
+        final String query = Chars.toString(content, queryLo, model.getQueryHi());
+        final int tableNameLo = tableName.position - queryLo;
+        final int tableNameHi = findTokenEnd(query, tableNameLo);
+        final boolean aliased = nestedModel.getAlias() != null;
+
+        if (engine.getStatus(executionContext.getCairoSecurityContext(), path, name.token) != TableUtils.TABLE_DOES_NOT_EXIST) {
+            throw SqlException.$(name.position, "table already exists");
+        }
+
+        tableExistsOrFail(tableName.position, baseTableName, executionContext);
+        final int partitionBy;
+        try (TableReader reader = engine.getReader(executionContext.getCairoSecurityContext(), baseTableName)) {
+            partitionBy = reader.getPartitionedBy();
+            if (partitionBy == PartitionBy.NONE) {
+                throw SqlException.$(tableName.position, "base table of materialized view must be partitioned");
+            }
+            if (!isSampleByAlignedToPartitions(TimestampSamplerFactory.getInstance(sampleBy.token, sampleBy.position), sampleBy.token, partitionBy)) {
+                throw SqlException.$(sampleBy.position, "SAMPLE BY interval must divide ")
+                        .put(PartitionBy.toString(partitionBy))
+                        .put(" partitions of base table");
+            }
+        }
+
+        // compile query to validate it and to find out designated timestamp of the view
+        final String timestampName;
+        try (RecordCursorFactory factory = compile(query, executionContext).getRecordCursorFactory()) {
+            final RecordMetadata metadata = factory.getMetadata();
+            if (metadata.getTimestampIndex() < 0) {
+                throw SqlException.$(queryLo, "materialized view query must select designated timestamp");
+            }
+            timestampName = Chars.toString(metadata.getColumnName(metadata.getTimestampIndex()));
+        }
+
+        final String baseTimestampName;
+        try (TableReader reader = engine.getReader(executionContext.getCairoSecurityContext(), baseTableName)) {
+            final RecordMetadata metadata = reader.getMetadata();
+            baseTimestampName = Chars.toString(metadata.getColumnName(metadata.getTimestampIndex()));
+        }
+
+        final MatViewDefinition view = new MatViewDefinition(
+                viewName,
+                baseTableName,
+                partitionBy,
+                baseTimestampName,
+                query,
+                tableNameLo,
+                tableNameHi,
+                aliased
+        );
+
+        // snapshot of base table is taken before the view is populated, rows committed after
+        // the snapshot are picked up by the next refresh
+        try (TxReader txReader = new TxReader(ff, path.of(configuration.getRoot()).concat(baseTableName), partitionBy)) {
+            txReader.readConsistently();
+            view.snapshot(txReader);
+        }
+
+        final StringSink sink = Misc.getThreadLocalBuilder();
+        sink.put("create table '").put(viewName).put("' as (").put(query).put(") timestamp(").put(timestampName)
+                .put(") partition by ").put(PartitionBy.toString(partitionBy));
+        compile(sink.toString(), executionContext);
+
+        try {
+            engine.getMatViewRegistry().register(view);
+        } catch (CairoException e) {
+            engine.remove(executionContext.getCairoSecurityContext(), path, viewName);
+            throw e;
+        }
+        return compiledQuery.ofCreateTable();
+    }
+
     private CompiledQuery createTable(final ExecutionModel model, SqlExecutionContext executionContext) throws SqlException {
         final CreateTableModel createTableModel = (CreateTableModel) model;
         final ExpressionNode name = createTableModel.getName();
@@ -1831,14 +2062,42 @@ public class SqlCompiler implements Closeable {
 
     @NotNull
     private CompiledQuery executeCopy(SqlExecutionContext executionContext, CopyModel executionModel) throws SqlException {
+        final boolean partitioned = executionModel.getPartitionBy() != PartitionBy.NONE;
+        if (partitioned != (executionModel.getTimestampColumnName() != null)) {
+            throw SqlException.$(executionModel.getTableName().position, "'partition by' and 'timestamp' options must be used together");
+        }
         setupTextLoaderFromModel(executionModel);
         if (Chars.equalsLowerCaseAscii(executionModel.getFileName().token, "stdin")) {
+            if (partitioned) {
+                throw SqlException.$(executionModel.getFileName().position, "parallel import requires file name");
+            }
             return compiledQuery.ofCopyRemote(textLoader);
         }
-        copyTable(executionContext, executionModel);
+        if (partitioned) {
+            importFileParallel(executionContext, executionModel);
+        } else {
+            copyTable(executionContext, executionModel);
+        }
         return compiledQuery.ofCopyLocal();
     }
 
+    private void importFileParallel(SqlExecutionContext executionContext, CopyModel model) throws SqlException {
+        final CharSequence name = GenericLexer.assertNoDots(GenericLexer.unquote(model.getFileName().token), model.getFileName().position);
+        path.of(configuration.getInputRoot()).concat(name).$();
+        parallelTextImporter.of(
+                GenericLexer.unquote(model.getTableName().token),
+                model.getPartitionBy(),
+                GenericLexer.unquote(model.getTimestampColumnName().token),
+                model.getDelimiter(),
+                model.isHeader()
+        );
+        try {
+            parallelTextImporter.process(path, executionContext.getCairoSecurityContext());
+        } catch (TextException e) {
+            throw SqlException.$(model.getFileName().position, e.getFlyweightMessage());
+        }
+    }
+
     private CompiledQuery executeWithRetries(
             ExecutableMethod method,
             ExecutionModel executionModel,
@@ -1860,6 +2119,29 @@ public class SqlCompiler implements Closeable {
         throw SqlException.position(0).put("underlying cursor is extremely volatile");
     }
 
+    private CompiledQuery explain(SqlExecutionContext executionContext) throws SqlException {
+        CharSequence tok = SqlUtil.fetchNext(lexer);
+        if (tok == null) {
+            throw SqlException.$(lexer.getPosition(), "query expected");
+        }
+
+        final boolean analyze = isAnalyzeKeyword(tok);
+        final int queryPosition;
+        if (analyze) {
+            queryPosition = lexer.getPosition();
+        } else {
+            queryPosition = lexer.lastTokenPosition();
+            lexer.unparse();
+        }
+
+        codeGenerator.clear();
+        final ExecutionModel executionModel = compileExecutionModel(executionContext);
+        if (executionModel.getModelType() != ExecutionModel.QUERY) {
+            throw SqlException.$(queryPosition, "query expected");
+        }
+        return compiledQuery.of(codeGenerator.generateExplain((QueryModel) executionModel, executionContext, analyze));
+    }
+
     RecordCursorFactory generate(QueryModel queryModel, SqlExecutionContext executionContext) throws SqlException {
         return codeGenerator.generate(queryModel, executionContext);
     }
@@ -2189,6 +2471,9 @@ public class SqlCompiler implements Closeable {
         //   - what happens when data row errors out, max errors may be?
         //   - we should be able to skip X rows from top, dodgy headers etc.
         textLoader.configureDestination(model.getTableName().token, false, false, Atomicity.SKIP_ROW, PartitionBy.NONE, null);
+        if (model.getDelimiter() > 0) {
+            textLoader.configureColumnDelimiter(model.getDelimiter());
+        }
     }
 
     private CompiledQuery sqlBackup(SqlExecutionContext executionContext) throws SqlException {
@@ -2532,6 +2817,20 @@ public class SqlCompiler implements Closeable {
         if (model.getPartitionBy() != PartitionBy.NONE && model.getTimestampIndex() == -1 && metadata.getTimestampIndex() == -1) {
             throw SqlException.position(0).put("timestamp is not defined");
         }
+
+        for (int i = 0, n = model.getColumnCount(); i < n; i++) {
+            if (model.isBloomFiltered(i)) {
+                final int castIndex = typeCast.keyIndex(i);
+                final int type = castIndex < 0 ? typeCast.valueAt(castIndex) : metadata.getColumnType(i);
+                if (!ColumnType.isSymbol(type) && type != ColumnType.STRING) {
+                    throw SqlException.position(model.getName().position)
+                            .put("bloom filter is supported for SYMBOL and STRING columns only [column=")
+                            .put(model.getColumnName(i))
+                            .put(", type=").put(ColumnType.nameOf(type))
+                            .put(']');
+                }
+            }
+        }
     }
 
     @FunctionalInterface
@@ -2551,6 +2850,7 @@ public class SqlCompiler implements Closeable {
     public final static class PartitionAction {
         public static final int DROP = 1;
         public static final int ATTACH = 2;
+        public static final int COMPRESS = 3;
     }
 
     private static class TableStructureAdapter implements TableStructure {
@@ -2593,6 +2893,11 @@ public class SqlCompiler implements Closeable {
             return model.isSequential(columnIndex);
         }
 
+        @Override
+        public boolean isBloomFiltered(int columnIndex) {
+            return model.isBloomFiltered(columnIndex);
+        }
+
         @Override
         public int getPartitionBy() {
             return model.getPartitionBy();
@@ -33,6 +33,7 @@ import io.questdb.cairo.sql.BindVariableService;
 import io.questdb.cairo.sql.VirtualRecord;
 import io.questdb.griffin.engine.analytic.AnalyticContext;
 import io.questdb.std.Misc;
+import io.questdb.std.QueryMemoryAccount;
 import io.questdb.std.Rnd;
 import io.questdb.std.Transient;
 import org.jetbrains.annotations.Nullable;
@@ -74,13 +75,21 @@ public interface SqlExecutionContext extends Closeable {
             @Nullable RecordSink partitionBySink,
             @Transient @Nullable ColumnTypes keyTypes,
             boolean isOrdered,
-            boolean baseSupportsRandomAccess
+            boolean baseSupportsRandomAccess,
+            int framingMode,
+            long rowsLo,
+            int timestampIndex
     );
 
     void initNow();
 
     long getNow();
 
+    /**
+     * @return account of native memory allocated by query structures on behalf of current query
+     */
+    QueryMemoryAccount getMemoryAccount();
+
     @Override
     default void close(){
         Misc.free(getMessageBus());
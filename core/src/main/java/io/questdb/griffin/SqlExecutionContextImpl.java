@@ -35,6 +35,7 @@ import io.questdb.griffin.engine.functions.rnd.SharedRandom;
 import io.questdb.mp.RingQueue;
 import io.questdb.mp.Sequence;
 import io.questdb.std.IntStack;
+import io.questdb.std.QueryMemoryAccount;
 import io.questdb.std.Rnd;
 import io.questdb.std.Transient;
 import io.questdb.std.datetime.microtime.MicrosecondClock;
@@ -52,6 +53,7 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
     private final MicrosecondClock clock;
     private final AnalyticContextImpl analyticContext = new AnalyticContextImpl();
     private final RingQueue<TelemetryTask> telemetryQueue;
+    private final QueryMemoryAccount memoryAccount;
     private Sequence telemetryPubSeq;
     private TelemetryMethod telemetryMethod = this::storeTelemetryNoop;
     private BindVariableService bindVariableService;
@@ -73,6 +75,7 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
         this.cairoEngine = cairoEngine;
         this.clock = cairoConfiguration.getMicrosecondClock();
         this.cairoSecurityContext = AllowAllCairoSecurityContext.INSTANCE;
+        this.memoryAccount = new QueryMemoryAccount(cairoConfiguration.getSqlQueryMemoryLimit());
 
         this.telemetryQueue = cairoEngine.getTelemetryQueue();
         if (messageBus != null && telemetryQueue != null) {
@@ -158,14 +161,20 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
             @Nullable RecordSink partitionBySink,
             @Transient @Nullable ColumnTypes partitionByKeyTypes,
             boolean ordered,
-            boolean baseSupportsRandomAccess
+            boolean baseSupportsRandomAccess,
+            int framingMode,
+            long rowsLo,
+            int timestampIndex
     ) {
         analyticContext.of(
                 partitionByRecord,
                 partitionBySink,
                 partitionByKeyTypes,
                 ordered,
-                baseSupportsRandomAccess
+                baseSupportsRandomAccess,
+                framingMode,
+                rowsLo,
+                timestampIndex
         );
     }
 
@@ -179,6 +188,11 @@ public class SqlExecutionContextImpl implements SqlExecutionContext {
         return now;
     }
 
+    @Override
+    public QueryMemoryAccount getMemoryAccount() {
+        return memoryAccount;
+    }
+
     public SqlExecutionContextImpl with(
             @NotNull CairoSecurityContext cairoSecurityContext,
             @Nullable BindVariableService bindVariableService,
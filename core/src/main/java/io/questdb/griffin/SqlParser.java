@@ -27,6 +27,7 @@ package io.questdb.griffin;
 import io.questdb.cairo.*;
 import io.questdb.griffin.model.*;
 import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.Timestamps;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -51,6 +52,7 @@ public final class SqlParser {
     private final ObjectPool<WithClauseModel> withClauseModelPool;
     private final ObjectPool<InsertModel> insertModelPool;
     private final ObjectPool<CopyModel> copyModelPool;
+    private final CreateMatViewModel createMatViewModel = new CreateMatViewModel();
     private final ExpressionParser expressionParser;
     private final CairoConfiguration configuration;
     private final PostOrderTreeTraversalAlgo traversalAlgo;
@@ -133,6 +135,7 @@ public final class SqlParser {
         insertModelPool.clear();
         expressionTreeBuilder.reset();
         copyModelPool.clear();
+        createMatViewModel.clear();
     }
 
     private CharSequence createColumnAlias(ExpressionNode node, QueryModel model) {
@@ -391,6 +394,26 @@ public final class SqlParser {
                     if (isHeaderKeyword(tok)) {
                         model.setHeader(isTrueKeyword(tok(lexer, "'true' or 'false'")));
                         tok = optTok(lexer);
+                    } else if (isPartitionKeyword(tok)) {
+                        expectTok(lexer, "by");
+                        final ExpressionNode partitionBy = expectLiteral(lexer);
+                        final int p = PartitionBy.fromString(partitionBy.token);
+                        if (p == -1) {
+                            throw SqlException.$(partitionBy.position, "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR' expected");
+                        }
+                        model.setPartitionBy(p);
+                        tok = optTok(lexer);
+                    } else if (isTimestampKeyword(tok)) {
+                        model.setTimestampColumnName(expectExpr(lexer));
+                        tok = optTok(lexer);
+                    } else if (isDelimiterKeyword(tok)) {
+                        final ExpressionNode delimiter = expectExpr(lexer);
+                        final CharSequence value = GenericLexer.unquote(delimiter.token);
+                        if (value.length() != 1 || value.charAt(0) > 127) {
+                            throw SqlException.$(delimiter.position, "single byte delimiter expected");
+                        }
+                        model.setDelimiter((byte) value.charAt(0));
+                        tok = optTok(lexer);
                     } else {
                         throw SqlException.$(lexer.lastTokenPosition(), "unexpected option");
                     }
@@ -401,8 +424,33 @@ public final class SqlParser {
         throw SqlException.$(lexer.lastTokenPosition(), "'from' expected");
     }
 
+    private ExecutionModel parseCreateMatView(GenericLexer lexer) throws SqlException {
+        expectTok(lexer, "view");
+        final CharSequence viewName = tok(lexer, "view name");
+        final CreateMatViewModel model = createMatViewModel;
+        model.setName(nextLiteral(GenericLexer.assertNoDotsAndSlashes(GenericLexer.unquote(viewName), lexer.lastTokenPosition()), lexer.lastTokenPosition()));
+        expectTok(lexer, "as");
+        expectTok(lexer, '(');
+        final int queryLo = lexer.getPosition();
+        model.setQueryModel(parseAsSubQueryAndExpectClosingBrace(lexer, null));
+        model.setQueryPosition(queryLo, lexer.lastTokenPosition());
+
+        final CharSequence tok = optTok(lexer);
+        if (tok != null && !Chars.equals(tok, ';')) {
+            throw errUnexpected(lexer, tok);
+        }
+        return model;
+    }
+
     private ExecutionModel parseCreateStatement(GenericLexer lexer, SqlExecutionContext executionContext) throws SqlException {
-        expectTok(lexer, "table");
+        final CharSequence tok = optTok(lexer);
+        if (tok != null && isMaterializedKeyword(tok)) {
+            return parseCreateMatView(lexer);
+        }
+        if (tok == null) {
+            throw SqlException.position(lexer.getPosition()).put("'table' expected");
+        }
+        expectTok(lexer, tok, "table");
         return parseCreateTable(lexer, executionContext);
     }
 
@@ -435,9 +483,11 @@ public final class SqlParser {
         }
 
         while ((tok = optTok(lexer)) != null && Chars.equals(tok, ',')) {
-            tok = tok(lexer, "'index' or 'cast'");
+            tok = tok(lexer, "'index', 'bloom' or 'cast'");
             if (isIndexKeyword(tok)) {
                 parseCreateTableIndexDef(lexer, model);
+            } else if (isBloomKeyword(tok)) {
+                parseCreateTableBloomDef(lexer, model);
             } else if (isCastKeyword(tok)) {
                 parseCreateTableCastDef(lexer, model);
             } else {
@@ -459,7 +509,7 @@ public final class SqlParser {
         ExpressionNode partitionBy = parseCreateTablePartition(lexer, tok);
         if (partitionBy != null) {
             if (PartitionBy.fromString(partitionBy.token) == -1) {
-                throw SqlException.$(partitionBy.position, "'NONE', 'DAY', 'MONTH' or 'YEAR' expected");
+                throw SqlException.$(partitionBy.position, "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR' expected");
             }
             model.setPartitionBy(partitionBy);
             tok = optTok(lexer);
@@ -665,6 +715,18 @@ public final class SqlParser {
         }
     }
 
+    private void parseCreateTableBloomDef(GenericLexer lexer, CreateTableModel model) throws SqlException {
+        expectTok(lexer, '(');
+        final int columnIndex = getCreateTableColumnIndex(model, expectLiteral(lexer).token, lexer.lastTokenPosition());
+        final int columnType = model.getColumnType(columnIndex);
+        // type of CREATE TABLE AS SELECT columns is validated by compiler
+        if (columnType != -1 && !ColumnType.isSymbol(columnType) && columnType != ColumnType.STRING) {
+            throw SqlException.$(lexer.lastTokenPosition(), "bloom filter is supported for SYMBOL and STRING columns only");
+        }
+        model.setBloomFilterFlag(columnIndex, true);
+        expectTok(lexer, ')');
+    }
+
     private void parseCreateTableIndexDef(GenericLexer lexer, CreateTableModel model) throws SqlException {
         expectTok(lexer, '(');
         final int columnIndex = getCreateTableColumnIndex(model, expectLiteral(lexer).token, lexer.lastTokenPosition());
@@ -909,6 +971,10 @@ public final class SqlParser {
                             }
                         } else if (isWithKeyword(tok)) {
                             tok = parseWithOffset(lexer, model);
+                        } else if (Chars.equals(tok, ')')) {
+                            // end of sub-query
+                            model.setSampleByTimezoneName(null);
+                            model.setSampleByOffset(nextConstant("'00:00'"));
                         } else {
                             throw SqlException.$(lexer.lastTokenPosition(), "'time zone' or 'with offset' expected");
                         }
@@ -1282,6 +1348,11 @@ public final class SqlParser {
                         }
                     } while (Chars.equals(tok, ','));
                 }
+
+                if (isRowsKeyword(tok) || isRangeKeyword(tok)) {
+                    parseAnalyticFrame(lexer, (AnalyticColumn) col, isRowsKeyword(tok));
+                    tok = tokIncludingLocalBrace(lexer, "')'");
+                }
                 expectTok(tok, lexer.lastTokenPosition(), ')');
                 tok = optTok(lexer);
 
@@ -1332,6 +1403,83 @@ public final class SqlParser {
         }
     }
 
+    // frames have to end at current row, which allows analytic functions to be computed in single pass
+    private void parseAnalyticFrame(GenericLexer lexer, AnalyticColumn col, boolean rows) throws SqlException {
+        CharSequence tok = tok(lexer, "'between', 'unbounded', 'current' or frame offset");
+        final boolean between = isBetweenKeyword(tok);
+        if (between) {
+            tok = tok(lexer, "'unbounded', 'current' or frame offset");
+        }
+
+        final long rowsLo;
+        if (isUnboundedKeyword(tok)) {
+            expectTok(lexer, "preceding");
+            rowsLo = AnalyticColumn.FRAME_UNBOUNDED_PRECEDING;
+        } else if (isCurrentKeyword(tok)) {
+            expectTok(lexer, "row");
+            rowsLo = 0;
+        } else {
+            final int offsetPosition = lexer.lastTokenPosition();
+            long offset;
+            try {
+                offset = Numbers.parseLong(tok);
+            } catch (NumericException e) {
+                throw SqlException.$(offsetPosition, "'unbounded', 'current' or frame offset expected");
+            }
+            if (offset < 0) {
+                throw SqlException.$(offsetPosition, "non-negative frame offset expected");
+            }
+            tok = tok(lexer, "'preceding'");
+            if (!rows) {
+                final long unitMicros = rangeUnitMicros(tok);
+                if (unitMicros > 0) {
+                    if (offset > Long.MAX_VALUE / unitMicros) {
+                        throw SqlException.$(offsetPosition, "frame offset is too large");
+                    }
+                    offset *= unitMicros;
+                    tok = tok(lexer, "'preceding'");
+                }
+            }
+            if (!isPrecedingKeyword(tok)) {
+                throw SqlException.$(lexer.lastTokenPosition(), "'preceding' expected, frames must end at current row");
+            }
+            rowsLo = -offset;
+        }
+
+        if (between) {
+            expectTok(lexer, "and");
+            expectTok(lexer, "current");
+            expectTok(lexer, "row");
+        }
+        col.setFraming(rows ? AnalyticColumn.FRAMING_ROWS : AnalyticColumn.FRAMING_RANGE, rowsLo);
+    }
+
+    private static long rangeUnitMicros(CharSequence tok) {
+        int len = tok.length();
+        if (len > 1 && (tok.charAt(len - 1) | 32) == 's') {
+            len--;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "microsecond", 0, 11)) {
+            return 1;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "millisecond", 0, 11)) {
+            return Timestamps.MILLI_MICROS;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "second", 0, 6)) {
+            return Timestamps.SECOND_MICROS;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "minute", 0, 6)) {
+            return Timestamps.MINUTE_MICROS;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "hour", 0, 4)) {
+            return Timestamps.HOUR_MICROS;
+        }
+        if (Chars.equalsLowerCaseAscii(tok, 0, len, "day", 0, 3)) {
+            return Timestamps.DAY_MICROS;
+        }
+        return -1;
+    }
+
     private void parseSelectFrom(GenericLexer lexer, QueryModel model, QueryModel masterModel) throws SqlException {
         final ExpressionNode expr = expr(lexer, model);
         if (expr == null) {
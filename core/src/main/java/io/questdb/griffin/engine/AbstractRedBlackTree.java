@@ -25,6 +25,7 @@
 package io.questdb.griffin.engine;
 
 import io.questdb.std.MemoryPages;
+import io.questdb.std.MemoryTag;
 import io.questdb.std.Misc;
 import io.questdb.std.Mutable;
 import io.questdb.std.Unsafe;
@@ -47,7 +48,7 @@ public abstract class AbstractRedBlackTree implements Mutable, Closeable {
 
     public AbstractRedBlackTree(long keyPageSize, int keyMaxPages) {
         assert keyPageSize >= getBlockSize();
-        this.mem = new MemoryPages(keyPageSize, keyMaxPages);
+        this.mem = new MemoryPages(keyPageSize, keyMaxPages, MemoryTag.NATIVE_TREE_CHAIN);
     }
 
     @Override
@@ -56,6 +56,12 @@ public class LimitRecordCursorFactory extends AbstractRecordCursorFactory {
         base.close();
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static class LimitRecordCursor implements RecordCursor {
         private final Function loFunction;
         private final Function hiFunction;
@@ -38,4 +38,20 @@ public interface AnalyticContext {
     boolean isOrdered();
 
     boolean baseSupportsRandomAccess();
+
+    /**
+     * @return one of AnalyticColumn.FRAMING_* constants
+     */
+    int getFramingMode();
+
+    /**
+     * @return start of the frame relative to current row, number of rows for ROWS framing
+     * and microseconds for RANGE framing. Frame always ends at current row.
+     */
+    long getRowsLo();
+
+    /**
+     * @return index of designated timestamp in the record analytic function is computed on, -1 when there is none
+     */
+    int getTimestampIndex();
 }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.analytic;
+
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.vm.MemoryCARWImpl;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.std.MemoryTag;
+import io.questdb.std.Misc;
+import io.questdb.std.Mutable;
+import io.questdb.std.Unsafe;
+import io.questdb.std.Vect;
+
+import java.io.Closeable;
+
+/**
+ * Double-ended queues of (key, value) pairs, one per partition of analytic function, allocated
+ * in single block of native memory. State of the queue is kept in {@link #STATE_COLUMN_COUNT} long
+ * values of partition's {@link MapValue}, starting at given column index. Queue of empty
+ * (zeroed) state is empty and has no memory allocated.
+ * <p>
+ * Queue capacity is doubled when queue is full by moving its entries to the end of the block.
+ * Memory of abandoned entries is not reused until the block is cleared, which keeps
+ * total size under twice the size of live entries.
+ */
+public class AnalyticDeques implements Mutable, Closeable {
+    public static final int STATE_COLUMN_COUNT = 4;
+    private static final int OFFSET = 0;
+    private static final int CAPACITY = 1;
+    private static final int HEAD = 2;
+    private static final int SIZE = 3;
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+    private static final long MIN_CAPACITY = 16;
+    private final MemoryCARW mem;
+
+    public AnalyticDeques(long pageSize, int maxPages) {
+        this.mem = new MemoryCARWImpl(pageSize, maxPages, MemoryTag.NATIVE_ANALYTIC);
+    }
+
+    public void addLast(MapValue state, int stateIndex, long key, long value) {
+        final long size = state.getLong(stateIndex + SIZE);
+        long capacity = state.getLong(stateIndex + CAPACITY);
+        if (size == capacity) {
+            capacity = grow(state, stateIndex, size, capacity);
+        }
+        final long addr = entryAddress(state, stateIndex, size, capacity);
+        Unsafe.getUnsafe().putLong(addr, key);
+        Unsafe.getUnsafe().putLong(addr + Long.BYTES, value);
+        state.putLong(stateIndex + SIZE, size + 1);
+    }
+
+    @Override
+    public void clear() {
+        mem.truncate();
+    }
+
+    @Override
+    public void close() {
+        Misc.free(mem);
+    }
+
+    public long firstKey(MapValue state, int stateIndex) {
+        return Unsafe.getUnsafe().getLong(entryAddress(state, stateIndex, 0, state.getLong(stateIndex + CAPACITY)));
+    }
+
+    public long firstValue(MapValue state, int stateIndex) {
+        return Unsafe.getUnsafe().getLong(entryAddress(state, stateIndex, 0, state.getLong(stateIndex + CAPACITY)) + Long.BYTES);
+    }
+
+    public long lastValue(MapValue state, int stateIndex) {
+        return Unsafe.getUnsafe().getLong(entryAddress(state, stateIndex, size(state, stateIndex) - 1, state.getLong(stateIndex + CAPACITY)) + Long.BYTES);
+    }
+
+    public void removeFirst(MapValue state, int stateIndex) {
+        final long size = state.getLong(stateIndex + SIZE);
+        assert size > 0;
+        state.putLong(stateIndex + HEAD, (state.getLong(stateIndex + HEAD) + 1) & (state.getLong(stateIndex + CAPACITY) - 1));
+        state.putLong(stateIndex + SIZE, size - 1);
+    }
+
+    public void removeLast(MapValue state, int stateIndex) {
+        final long size = state.getLong(stateIndex + SIZE);
+        assert size > 0;
+        state.putLong(stateIndex + SIZE, size - 1);
+    }
+
+    public long size(MapValue state, int stateIndex) {
+        return state.getLong(stateIndex + SIZE);
+    }
+
+    // capacity is always power of two, which lets us wrap head position with a mask
+    private long entryAddress(MapValue state, int stateIndex, long index, long capacity) {
+        final long slot = (state.getLong(stateIndex + HEAD) + index) & (capacity - 1);
+        return mem.addressOf(state.getLong(stateIndex + OFFSET) + slot * ENTRY_SIZE);
+    }
+
+    private long grow(MapValue state, int stateIndex, long size, long capacity) {
+        final long newCapacity = Math.max(MIN_CAPACITY, capacity * 2);
+        final long newOffset = mem.getAppendOffset();
+        mem.appendAddressFor(newCapacity * ENTRY_SIZE);
+        if (size > 0) {
+            // entries wrap around the end of old region, copy them in two chunks to keep their order
+            final long oldOffset = state.getLong(stateIndex + OFFSET);
+            final long head = state.getLong(stateIndex + HEAD);
+            final long firstChunk = Math.min(size, capacity - head);
+            Vect.memcpy(mem.addressOf(oldOffset + head * ENTRY_SIZE), mem.addressOf(newOffset), firstChunk * ENTRY_SIZE);
+            if (firstChunk < size) {
+                Vect.memcpy(mem.addressOf(oldOffset), mem.addressOf(newOffset + firstChunk * ENTRY_SIZE), (size - firstChunk) * ENTRY_SIZE);
+            }
+        }
+        state.putLong(stateIndex + OFFSET, newOffset);
+        state.putLong(stateIndex + CAPACITY, newCapacity);
+        state.putLong(stateIndex + HEAD, 0);
+        return newCapacity;
+    }
+}
@@ -33,6 +33,21 @@ public interface AnalyticFunction extends Function {
     int TWO_PASS = 2;
     int THREE_PASS = 3;
 
+    /**
+     * Computes value for the record, which is next in the order of the function. Streaming
+     * functions see every record once and keep only the state of their frame, value is returned
+     * by the getter of function type regardless of the record passed to it.
+     *
+     * @param record next record in the function order
+     */
+    void computeNext(Record record);
+
+    /**
+     * @return {@link #STREAM} when function value can be computed by {@link #computeNext(Record)} without
+     * looking ahead of current record, otherwise function requires its input to be cached
+     */
+    int getPassCount();
+
     void pass1(Record record, long recordOffset, AnalyticSPI spi);
 
     void preparePass2(RecordCursor cursor);
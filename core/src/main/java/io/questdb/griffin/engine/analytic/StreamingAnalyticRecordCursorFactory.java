@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.analytic;
+
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.AbstractVirtualFunctionRecordCursor;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+
+/**
+ * Computes analytic functions in single pass over base cursor, which is already in the order
+ * functions require. Functions keep state of their frames only, so unlike
+ * {@link CachedAnalyticRecordCursorFactory} this factory does not copy its input.
+ */
+public class StreamingAnalyticRecordCursorFactory extends AbstractRecordCursorFactory {
+    private final RecordCursorFactory base;
+    private final ObjList<Function> functions;
+    private final ObjList<AnalyticFunction> analyticFunctions;
+    private final StreamingAnalyticRecordCursor cursor;
+
+    public StreamingAnalyticRecordCursorFactory(
+            RecordMetadata metadata,
+            RecordCursorFactory base,
+            ObjList<Function> functions,
+            ObjList<AnalyticFunction> analyticFunctions
+    ) {
+        super(metadata);
+        this.base = base;
+        this.functions = functions;
+        this.analyticFunctions = analyticFunctions;
+        this.cursor = new StreamingAnalyticRecordCursor(functions);
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(functions);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final RecordCursor baseCursor = base.getCursor(executionContext);
+        try {
+            Function.init(functions, baseCursor, executionContext);
+            resetFunctions();
+            cursor.of(baseCursor);
+            return cursor;
+        } catch (Throwable e) {
+            Misc.free(baseCursor);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
+    private void resetFunctions() {
+        for (int i = 0, n = analyticFunctions.size(); i < n; i++) {
+            analyticFunctions.getQuick(i).reset();
+        }
+    }
+
+    private class StreamingAnalyticRecordCursor extends AbstractVirtualFunctionRecordCursor {
+        private Record baseRecord;
+
+        public StreamingAnalyticRecordCursor(ObjList<Function> functions) {
+            super(functions, false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (baseCursor.hasNext()) {
+                for (int i = 0, n = analyticFunctions.size(); i < n; i++) {
+                    analyticFunctions.getQuick(i).computeNext(baseRecord);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void of(RecordCursor cursor) {
+            super.of(cursor);
+            this.baseRecord = cursor.getRecord();
+        }
+
+        @Override
+        public void toTop() {
+            super.toTop();
+            resetFunctions();
+        }
+    }
+}
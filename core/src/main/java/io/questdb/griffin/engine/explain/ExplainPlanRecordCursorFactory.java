@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.explain;
+
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.GenericRecordMetadata;
+import io.questdb.cairo.TableColumnMetadata;
+import io.questdb.cairo.sql.NoRandomAccessRecordCursor;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.SqlExecutionInterruptor;
+import io.questdb.std.Misc;
+
+/**
+ * Result of EXPLAIN statement, one row per node of the execution plan. When ANALYZE
+ * is requested the query is executed to completion before the plan is rendered,
+ * profiled factories of the plan then report row counts and time spent in them.
+ */
+public class ExplainPlanRecordCursorFactory implements RecordCursorFactory {
+    private static final GenericRecordMetadata METADATA = new GenericRecordMetadata();
+
+    static {
+        METADATA.add(new TableColumnMetadata("QUERY PLAN", ColumnType.STRING, null));
+    }
+
+    private final RecordCursorFactory base;
+    private final boolean analyze;
+    private final TextPlanSink planSink = new TextPlanSink();
+    private final ExplainPlanRecordCursor cursor = new ExplainPlanRecordCursor();
+
+    public ExplainPlanRecordCursorFactory(RecordCursorFactory base, boolean analyze) {
+        this.base = base;
+        this.analyze = analyze;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        if (analyze) {
+            final SqlExecutionInterruptor interruptor = executionContext.getSqlExecutionInterruptor();
+            try (RecordCursor baseCursor = base.getCursor(executionContext)) {
+                while (baseCursor.hasNext()) {
+                    interruptor.checkInterrupted();
+                }
+            }
+        }
+        planSink.of(base, executionContext);
+        cursor.toTop();
+        return cursor;
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    private class ExplainPlanRecordCursor implements NoRandomAccessRecordCursor {
+        private final Record record = new Record() {
+            @Override
+            public CharSequence getStr(int col) {
+                return planSink.getLine(index);
+            }
+
+            @Override
+            public CharSequence getStrB(int col) {
+                return getStr(col);
+            }
+
+            @Override
+            public int getStrLen(int col) {
+                return getStr(col).length();
+            }
+        };
+        private int index;
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Record getRecord() {
+            return record;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return ++index < planSink.getLineCount();
+        }
+
+        @Override
+        public void toTop() {
+            index = -1;
+        }
+
+        @Override
+        public long size() {
+            return planSink.getLineCount();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.explain;
+
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.str.CharSink;
+
+/**
+ * Wraps factory generated for query model when EXPLAIN ANALYZE is requested. It counts
+ * rows the wrapped cursor produced and measures time spent creating the cursor and
+ * iterating it. Time is inclusive of the factories under this one. Page frame cursors
+ * are passed through as is, rows consumed that way are not counted.
+ */
+public class ProfiledRecordCursorFactory implements RecordCursorFactory {
+    private final RecordCursorFactory base;
+    private final ProfiledRecordCursor cursor = new ProfiledRecordCursor();
+    private long rowCount;
+    private long nanos;
+
+    public ProfiledRecordCursorFactory(RecordCursorFactory base) {
+        this.base = base;
+    }
+
+    public static RecordCursorFactory unwrap(RecordCursorFactory factory) {
+        if (factory instanceof ProfiledRecordCursorFactory) {
+            return ((ProfiledRecordCursorFactory) factory).base;
+        }
+        return factory;
+    }
+
+    @Override
+    public void close() {
+        base.close();
+    }
+
+    @Override
+    public SingleSymbolFilter convertToSampleByIndexDataFrameCursorFactory() {
+        return base.convertToSampleByIndexDataFrameCursorFactory();
+    }
+
+    @Override
+    public boolean followedOrderByAdvice() {
+        return base.followedOrderByAdvice();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final long start = System.nanoTime();
+        try {
+            return cursor.of(base.getCursor(executionContext));
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return base.getMetadata();
+    }
+
+    @Override
+    public PageFrameCursor getPageFrameCursor(SqlExecutionContext executionContext) throws SqlException {
+        return base.getPageFrameCursor(executionContext);
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return base.recordCursorSupportsRandomAccess();
+    }
+
+    @Override
+    public boolean supportPageFrameCursor() {
+        return base.supportPageFrameCursor();
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        // statistics are reported once, repeated execution of the same
+        // factory starts counting from zero
+        sink.stats(rowCount, nanos);
+        rowCount = 0;
+        nanos = 0;
+        base.toPlan(sink);
+    }
+
+    @Override
+    public void toSink(CharSink sink) {
+        base.toSink(sink);
+    }
+
+    private class ProfiledRecordCursor implements RecordCursor {
+        private RecordCursor base;
+
+        @Override
+        public void close() {
+            base.close();
+        }
+
+        @Override
+        public Record getRecord() {
+            return base.getRecord();
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            return base.getSymbolTable(columnIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            final long start = System.nanoTime();
+            try {
+                if (base.hasNext()) {
+                    rowCount++;
+                    return true;
+                }
+                return false;
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Record getRecordB() {
+            return base.getRecordB();
+        }
+
+        @Override
+        public void recordAt(Record record, long atRowId) {
+            base.recordAt(record, atRowId);
+        }
+
+        @Override
+        public void toTop() {
+            base.toTop();
+        }
+
+        @Override
+        public long size() {
+            return base.size();
+        }
+
+        private ProfiledRecordCursor of(RecordCursor base) {
+            this.base = base;
+            return this;
+        }
+    }
+}
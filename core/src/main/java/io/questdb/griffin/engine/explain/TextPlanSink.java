@@ -0,0 +1,195 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.explain;
+
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.sql.PlanSink;
+import io.questdb.cairo.sql.Plannable;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.Mutable;
+import io.questdb.std.ObjList;
+import io.questdb.std.datetime.microtime.TimestampFormatUtils;
+import io.questdb.std.str.StringSink;
+
+/**
+ * Renders query execution plan as text, one line per plan node. Children are indented
+ * under their parent and node attributes follow node type on the same line.
+ */
+public class TextPlanSink implements PlanSink, Mutable {
+    private static final int INDENT = 4;
+    private final ObjList<StringSink> lines = new ObjList<>();
+    private StringSink line;
+    private int lineCount;
+    private int depth;
+    private long rowCount = -1;
+    private long nanos;
+    private SqlExecutionContext executionContext;
+    private CharSequence tableName;
+
+    @Override
+    public PlanSink attr(CharSequence name) {
+        line.put(' ').put(name).put(": ");
+        return this;
+    }
+
+    @Override
+    public PlanSink child(Plannable child) {
+        depth++;
+        child.toPlan(this);
+        depth--;
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < lineCount; i++) {
+            lines.getQuick(i).clear();
+        }
+        line = null;
+        lineCount = 0;
+        depth = 0;
+        rowCount = -1;
+        nanos = 0;
+        executionContext = null;
+        tableName = null;
+    }
+
+    @Override
+    public SqlExecutionContext getExecutionContext() {
+        return executionContext;
+    }
+
+    public CharSequence getLine(int index) {
+        return lines.getQuick(index);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public TextPlanSink of(Plannable root, SqlExecutionContext executionContext) {
+        clear();
+        this.executionContext = executionContext;
+        root.toPlan(this);
+        this.executionContext = null;
+        return this;
+    }
+
+    @Override
+    public PlanSink ofTable(CharSequence tableName) {
+        this.tableName = tableName;
+        return this;
+    }
+
+    @Override
+    public PlanSink stats(long rowCount, long nanos) {
+        this.rowCount = rowCount;
+        this.nanos = nanos;
+        return this;
+    }
+
+    @Override
+    public PlanSink type(CharSequence type) {
+        if (lineCount == lines.size()) {
+            lines.add(new StringSink());
+        }
+        line = lines.getQuick(lineCount++);
+        for (int i = 0, n = depth * INDENT; i < n; i++) {
+            line.put(' ');
+        }
+        line.put(type);
+        if (rowCount > -1) {
+            line.put(" rows: ").put(rowCount).put(" time: ").put(nanos).put("ns");
+            rowCount = -1;
+        }
+        return this;
+    }
+
+    @Override
+    public PlanSink type(Plannable plannable) {
+        return type(plannable.getClass().getSimpleName());
+    }
+
+    @Override
+    public PlanSink val(CharSequence value) {
+        if (value == null) {
+            line.put("null");
+        } else {
+            line.put(value);
+        }
+        return this;
+    }
+
+    @Override
+    public PlanSink val(long value) {
+        line.put(value);
+        return this;
+    }
+
+    @Override
+    public PlanSink valColumn(int columnIndex) {
+        if (tableName != null && executionContext != null) {
+            try (TableReader reader = executionContext.getCairoEngine().getReader(executionContext.getCairoSecurityContext(), tableName)) {
+                line.put(reader.getMetadata().getColumnName(columnIndex));
+                return this;
+            } catch (CairoException ignore) {
+                // table is gone or busy, column index is better than nothing
+            }
+        }
+        line.put('#').put(columnIndex);
+        return this;
+    }
+
+    @Override
+    public PlanSink valIndexKey(int columnIndex, int indexKey) {
+        if (tableName != null && executionContext != null) {
+            try (TableReader reader = executionContext.getCairoEngine().getReader(executionContext.getCairoSecurityContext(), tableName)) {
+                if (indexKey == 0) {
+                    line.put("null");
+                } else {
+                    val(reader.getSymbolMapReader(columnIndex).valueOf(indexKey - 1));
+                }
+                return this;
+            } catch (CairoException ignore) {
+                // table is gone or busy, fall back to the key
+            }
+        }
+        line.put('#').put(indexKey);
+        return this;
+    }
+
+    @Override
+    public PlanSink valTimestamp(long timestamp) {
+        if (timestamp == Long.MIN_VALUE) {
+            line.put("MIN");
+        } else if (timestamp == Long.MAX_VALUE) {
+            line.put("MAX");
+        } else {
+            TimestampFormatUtils.appendDateTimeUSec(line, timestamp);
+        }
+        return this;
+    }
+}
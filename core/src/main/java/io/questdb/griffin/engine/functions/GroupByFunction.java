@@ -49,10 +49,31 @@ public interface GroupByFunction extends Function {
 
     void computeNext(MapValue mapValue, Record record);
 
+    /**
+     * Functions that support merge can be computed over disjoint parts of the data set
+     * independently, e.g. by multiple threads, and then combined via {@link #merge(MapValue, MapValue)}.
+     *
+     * @return true when function implements merge
+     */
+    default boolean isMergeSupported() {
+        return false;
+    }
+
     default boolean isScalar() {
         return true;
     }
 
+    /**
+     * Combines two partial values of this function. Source value has been computed over rows that
+     * follow the rows destination value was computed over; both values are for the same key.
+     *
+     * @param destValue value that receives the result
+     * @param srcValue  value computed over subsequent rows
+     */
+    default void merge(MapValue destValue, MapValue srcValue) {
+        throw new UnsupportedOperationException();
+    }
+
     void pushValueTypes(ArrayColumnTypes columnTypes);
 
     default void setByte(MapValue mapValue, byte value) {
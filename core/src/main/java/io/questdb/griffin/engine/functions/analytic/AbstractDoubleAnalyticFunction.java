@@ -0,0 +1,224 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.ArrayColumnTypes;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.Map;
+import io.questdb.cairo.map.MapFactory;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.griffin.engine.analytic.AnalyticDeques;
+import io.questdb.griffin.engine.analytic.AnalyticFunction;
+import io.questdb.griffin.engine.functions.DoubleFunction;
+import io.questdb.griffin.engine.groupby.SimpleMapValue;
+import io.questdb.griffin.model.AnalyticColumn;
+import io.questdb.std.Misc;
+import io.questdb.std.Unsafe;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Base of analytic functions, which compute double value over frame that ends at current row. State of each
+ * partition is kept in a map value, it starts with row sequence number followed by state of the partition
+ * deque and then by {@link #getStateColumnCount()} columns of the function itself. Functions see records
+ * in their order one by one via {@link #computeNext(Record)}, which makes them usable both on top of
+ * ordered cursor and in pass1 of cached analytic factory.
+ */
+public abstract class AbstractDoubleAnalyticFunction extends DoubleFunction implements ScalarFunction, AnalyticFunction, Closeable {
+    protected static final int DEQUE_INDEX = 1;
+    protected static final int STATE_INDEX = DEQUE_INDEX + AnalyticDeques.STATE_COLUMN_COUNT;
+    private static final int SEQ_INDEX = 0;
+    protected final Function arg;
+    protected final AnalyticDeques deques;
+    protected final long rowsLo;
+    private final boolean range;
+    private final int timestampIndex;
+    @Nullable
+    private final Map map;
+    private final VirtualRecord partitionByRecord;
+    private final RecordSink partitionBySink;
+    private final SimpleMapValue singleValue;
+    private final int valueCount;
+    protected int columnIndex;
+    private double value = Double.NaN;
+
+    protected AbstractDoubleAnalyticFunction(
+            CairoConfiguration configuration,
+            AnalyticContext analyticContext,
+            Function arg
+    ) {
+        this.arg = arg;
+        this.rowsLo = analyticContext.getRowsLo();
+        this.range = analyticContext.getFramingMode() == AnalyticColumn.FRAMING_RANGE && !isUnbounded();
+        this.timestampIndex = analyticContext.getTimestampIndex();
+        assert !range || timestampIndex != -1;
+        this.valueCount = STATE_INDEX + getStateColumnCount();
+        this.partitionByRecord = analyticContext.getPartitionByRecord();
+        this.partitionBySink = analyticContext.getPartitionBySink();
+        if (partitionByRecord != null) {
+            final ArrayColumnTypes valueTypes = new ArrayColumnTypes();
+            for (int i = 0; i < valueCount; i++) {
+                valueTypes.add(ColumnType.LONG);
+            }
+            this.map = MapFactory.createMap(configuration, analyticContext.getPartitionByKeyTypes(), valueTypes);
+            this.singleValue = null;
+        } else {
+            this.map = null;
+            this.singleValue = new SimpleMapValue(valueCount);
+        }
+        this.deques = new AnalyticDeques(configuration.getSqlAnalyticStorePageSize(), configuration.getSqlAnalyticStoreMaxPages());
+    }
+
+    @Override
+    public void close() {
+        Misc.free(map);
+        Misc.free(deques);
+        Misc.free(arg);
+        if (partitionByRecord != null) {
+            Misc.freeObjList(partitionByRecord.getFunctions());
+        }
+    }
+
+    @Override
+    public void computeNext(Record record) {
+        final MapValue state = partitionState(record);
+        final long seq = state.getLong(SEQ_INDEX);
+        state.putLong(SEQ_INDEX, seq + 1);
+        value = computeNext(record, state, range ? record.getTimestamp(timestampIndex) : seq);
+    }
+
+    @Override
+    public double getDouble(Record rec) {
+        return value;
+    }
+
+    @Override
+    public int getPassCount() {
+        return AnalyticFunction.STREAM;
+    }
+
+    @Override
+    public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+        arg.init(symbolTableSource, executionContext);
+        if (partitionByRecord != null) {
+            Function.init(partitionByRecord.getFunctions(), symbolTableSource, executionContext);
+        }
+    }
+
+    @Override
+    public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+        computeNext(record);
+        Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), value);
+    }
+
+    @Override
+    public void pass2(Record record) {
+    }
+
+    @Override
+    public void preparePass2(RecordCursor cursor) {
+    }
+
+    @Override
+    public void reset() {
+        if (map != null) {
+            map.clear();
+        } else {
+            clearState(singleValue);
+        }
+        deques.clear();
+        value = Double.NaN;
+    }
+
+    @Override
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    @Override
+    public void toTop() {
+        reset();
+    }
+
+    private static void clearState(MapValue state, int valueCount) {
+        for (int i = 0; i < valueCount; i++) {
+            state.putLong(i, 0);
+        }
+    }
+
+    private void clearState(MapValue state) {
+        clearState(state, valueCount);
+    }
+
+    protected MapValue partitionState(Record record) {
+        if (map == null) {
+            return singleValue;
+        }
+        partitionByRecord.of(record);
+        final MapKey key = map.withKey();
+        key.put(partitionByRecord, partitionBySink);
+        final MapValue state = key.createValue();
+        if (state.isNew()) {
+            clearState(state);
+        }
+        return state;
+    }
+
+    /**
+     * Computes function value for the record and updates partition state.
+     *
+     * @param record current record
+     * @param state  state of the record partition
+     * @param key    frame key of the record, its timestamp for RANGE frames and sequence number of the record
+     *               in its partition otherwise
+     * @return function value for the record
+     */
+    protected abstract double computeNext(Record record, MapValue state, long key);
+
+    /**
+     * @return number of long columns of partition state the function needs past {@link #STATE_INDEX}
+     */
+    protected abstract int getStateColumnCount();
+
+    /**
+     * @param key frame key of current record
+     * @return true when the oldest deque entry of the partition no longer belongs to the frame of current record
+     */
+    protected boolean isFirstExpired(MapValue state, long key) {
+        return deques.size(state, DEQUE_INDEX) > 0 && deques.firstKey(state, DEQUE_INDEX) < key + rowsLo;
+    }
+
+    protected boolean isUnbounded() {
+        return rowsLo == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING;
+    }
+}
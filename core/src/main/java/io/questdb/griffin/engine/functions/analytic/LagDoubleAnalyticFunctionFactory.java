@@ -0,0 +1,165 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.griffin.engine.functions.constants.DoubleConstant;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.Numbers;
+import io.questdb.std.ObjList;
+
+public class LagDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "lag(DV)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) throws SqlException {
+        return new LagFunction(
+                configuration,
+                sqlExecutionContext.getAnalyticContext(),
+                args.getQuick(0),
+                getOffset(args, argPositions),
+                getDefaultValue(args, argPositions)
+        );
+    }
+
+    static Function getDefaultValue(ObjList<Function> args, IntList argPositions) throws SqlException {
+        if (args.size() < 3) {
+            return new DoubleConstant(Double.NaN);
+        }
+        final Function defaultValue = args.getQuick(2);
+        switch (ColumnType.tagOf(defaultValue.getType())) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE:
+            case ColumnType.NULL:
+                return defaultValue;
+            default:
+                throw SqlException.$(argPositions.getQuick(2), "numeric default value expected");
+        }
+    }
+
+    /**
+     * Validates optional second argument of lag() and lead(), which is number of rows to look back or ahead.
+     */
+    static int getOffset(ObjList<Function> args, IntList argPositions) throws SqlException {
+        if (args.size() > 3) {
+            throw SqlException.$(argPositions.getQuick(3), "too many arguments");
+        }
+        if (args.size() < 2) {
+            return 1;
+        }
+        final Function offset = args.getQuick(1);
+        final int position = argPositions.getQuick(1);
+        if (!offset.isConstant()) {
+            throw SqlException.$(position, "constant offset expected");
+        }
+        final long value;
+        switch (ColumnType.tagOf(offset.getType())) {
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+                value = offset.getLong(null);
+                break;
+            default:
+                throw SqlException.$(position, "integer offset expected");
+        }
+        if (value == Numbers.LONG_NaN || value < 0 || value > Integer.MAX_VALUE) {
+            throw SqlException.$(position, "offset must be a non-negative integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Keeps last offset values of the partition in the deque, the oldest of them is value of lag().
+     * Frame clause does not apply to lag(), it always looks up the row, which is offset rows back.
+     */
+    private static class LagFunction extends AbstractDoubleAnalyticFunction {
+        private final int offset;
+        private final Function defaultValue;
+
+        LagFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, int offset, Function defaultValue) {
+            super(configuration, analyticContext, arg);
+            this.offset = offset;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            Misc.free(defaultValue);
+        }
+
+        @Override
+        public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+            super.init(symbolTableSource, executionContext);
+            defaultValue.init(symbolTableSource, executionContext);
+        }
+
+        @Override
+        protected double computeNext(Record record, MapValue state, long key) {
+            final double d = arg.getDouble(record);
+            if (offset == 0) {
+                return d;
+            }
+            final double result;
+            if (deques.size(state, DEQUE_INDEX) == offset) {
+                result = Double.longBitsToDouble(deques.firstValue(state, DEQUE_INDEX));
+                deques.removeFirst(state, DEQUE_INDEX);
+            } else {
+                result = defaultValue.getDouble(record);
+            }
+            deques.addLast(state, DEQUE_INDEX, key, Double.doubleToRawLongBits(d));
+            return result;
+        }
+
+        @Override
+        protected int getStateColumnCount() {
+            return 0;
+        }
+    }
+}
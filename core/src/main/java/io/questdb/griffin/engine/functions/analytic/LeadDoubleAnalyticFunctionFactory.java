@@ -0,0 +1,130 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.AnalyticSPI;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.griffin.engine.analytic.AnalyticFunction;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.Unsafe;
+
+public class LeadDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "lead(DV)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) throws SqlException {
+        return new LeadFunction(
+                configuration,
+                sqlExecutionContext.getAnalyticContext(),
+                args.getQuick(0),
+                LagDoubleAnalyticFunctionFactory.getOffset(args, argPositions),
+                LagDoubleAnalyticFunctionFactory.getDefaultValue(args, argPositions)
+        );
+    }
+
+    /**
+     * Value of lead() is not known until function sees rows ahead of current one, it cannot
+     * be streamed and requires cached input. Each row is written out with default value first,
+     * which is then overwritten when the row offset rows ahead is seen. Deque keeps offsets
+     * of rows that are still waiting for their value.
+     */
+    private static class LeadFunction extends AbstractDoubleAnalyticFunction {
+        private final int offset;
+        private final Function defaultValue;
+
+        LeadFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg, int offset, Function defaultValue) {
+            super(configuration, analyticContext, arg);
+            this.offset = offset;
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            Misc.free(defaultValue);
+        }
+
+        @Override
+        public void computeNext(Record record) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getPassCount() {
+            return AnalyticFunction.TWO_PASS;
+        }
+
+        @Override
+        public void init(SymbolTableSource symbolTableSource, SqlExecutionContext executionContext) throws SqlException {
+            super.init(symbolTableSource, executionContext);
+            defaultValue.init(symbolTableSource, executionContext);
+        }
+
+        @Override
+        public void pass1(Record record, long recordOffset, AnalyticSPI spi) {
+            final double d = arg.getDouble(record);
+            if (offset == 0) {
+                Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), d);
+                return;
+            }
+            Unsafe.getUnsafe().putDouble(spi.getAddress(recordOffset, columnIndex), defaultValue.getDouble(record));
+            final MapValue state = partitionState(record);
+            if (deques.size(state, DEQUE_INDEX) == offset) {
+                Unsafe.getUnsafe().putDouble(spi.getAddress(deques.firstValue(state, DEQUE_INDEX), columnIndex), d);
+                deques.removeFirst(state, DEQUE_INDEX);
+            }
+            deques.addLast(state, DEQUE_INDEX, 0, recordOffset);
+        }
+
+        @Override
+        protected double computeNext(Record record, MapValue state, long key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected int getStateColumnCount() {
+            return 0;
+        }
+    }
+}
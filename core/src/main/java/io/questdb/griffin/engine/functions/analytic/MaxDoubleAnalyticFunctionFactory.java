@@ -0,0 +1,99 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.std.IntList;
+import io.questdb.std.ObjList;
+
+public class MaxDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "max(D)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) {
+        return new MaxFunction(configuration, sqlExecutionContext.getAnalyticContext(), args.getQuick(0));
+    }
+
+    /**
+     * Keeps running extreme for unbounded frames. Bounded frames keep monotonic deque of values,
+     * which can still become the extreme of frame. Front of the deque is the extreme of current frame
+     * and each value is added and removed at most once.
+     */
+    static class MaxFunction extends AbstractDoubleAnalyticFunction {
+        private static final int EXTREME_INDEX = STATE_INDEX;
+        private static final int COUNT_INDEX = STATE_INDEX + 1;
+
+        MaxFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg) {
+            super(configuration, analyticContext, arg);
+        }
+
+        @Override
+        protected double computeNext(Record record, MapValue state, long key) {
+            final double d = arg.getDouble(record);
+            if (isUnbounded()) {
+                if (!Double.isNaN(d) && (state.getLong(COUNT_INDEX) == 0 || isBetter(d, state.getDouble(EXTREME_INDEX)))) {
+                    state.putDouble(EXTREME_INDEX, d);
+                    state.putLong(COUNT_INDEX, 1);
+                }
+                return state.getLong(COUNT_INDEX) == 0 ? Double.NaN : state.getDouble(EXTREME_INDEX);
+            }
+
+            while (isFirstExpired(state, key)) {
+                deques.removeFirst(state, DEQUE_INDEX);
+            }
+            if (!Double.isNaN(d)) {
+                while (deques.size(state, DEQUE_INDEX) > 0 && !isBetter(Double.longBitsToDouble(deques.lastValue(state, DEQUE_INDEX)), d)) {
+                    deques.removeLast(state, DEQUE_INDEX);
+                }
+                deques.addLast(state, DEQUE_INDEX, key, Double.doubleToRawLongBits(d));
+            }
+            return deques.size(state, DEQUE_INDEX) == 0 ? Double.NaN : Double.longBitsToDouble(deques.firstValue(state, DEQUE_INDEX));
+        }
+
+        @Override
+        protected int getStateColumnCount() {
+            return 2;
+        }
+
+        protected boolean isBetter(double candidate, double current) {
+            return candidate > current;
+        }
+    }
+}
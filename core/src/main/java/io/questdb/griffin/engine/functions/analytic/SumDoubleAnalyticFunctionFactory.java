@@ -0,0 +1,100 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.Record;
+import io.questdb.griffin.FunctionFactory;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.std.IntList;
+import io.questdb.std.ObjList;
+
+public class SumDoubleAnalyticFunctionFactory implements FunctionFactory {
+
+    @Override
+    public String getSignature() {
+        return "sum(D)";
+    }
+
+    @Override
+    public boolean isAnalytic() {
+        return true;
+    }
+
+    @Override
+    public Function newInstance(int position, ObjList<Function> args, IntList argPositions, CairoConfiguration configuration, SqlExecutionContext sqlExecutionContext) {
+        return new SumFunction(configuration, sqlExecutionContext.getAnalyticContext(), args.getQuick(0));
+    }
+
+    static class SumFunction extends AbstractDoubleAnalyticFunction {
+        private static final int SUM_INDEX = STATE_INDEX;
+        private static final int COUNT_INDEX = STATE_INDEX + 1;
+
+        SumFunction(CairoConfiguration configuration, AnalyticContext analyticContext, Function arg) {
+            super(configuration, analyticContext, arg);
+        }
+
+        @Override
+        protected double computeNext(Record record, MapValue state, long key) {
+            final boolean unbounded = isUnbounded();
+            if (!unbounded) {
+                while (isFirstExpired(state, key)) {
+                    state.addDouble(SUM_INDEX, -Double.longBitsToDouble(deques.firstValue(state, DEQUE_INDEX)));
+                    state.addLong(COUNT_INDEX, -1);
+                    deques.removeFirst(state, DEQUE_INDEX);
+                }
+            }
+
+            final double d = arg.getDouble(record);
+            if (!Double.isNaN(d)) {
+                state.addDouble(SUM_INDEX, d);
+                state.addLong(COUNT_INDEX, 1);
+                if (!unbounded) {
+                    deques.addLast(state, DEQUE_INDEX, key, Double.doubleToRawLongBits(d));
+                }
+            }
+
+            final long count = state.getLong(COUNT_INDEX);
+            if (count == 0) {
+                // empty frame, drop rounding error accumulated by subtractions
+                state.putDouble(SUM_INDEX, 0);
+                return Double.NaN;
+            }
+            return getValue(state.getDouble(SUM_INDEX), count);
+        }
+
+        protected double getValue(double sum, long count) {
+            return sum;
+        }
+
+        @Override
+        protected int getStateColumnCount() {
+            return 2;
+        }
+    }
+}
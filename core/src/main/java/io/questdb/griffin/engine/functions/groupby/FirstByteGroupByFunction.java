@@ -36,7 +36,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class FirstByteGroupByFunction extends ByteFunction implements GroupByFunction, UnaryFunction {
     private final Function arg;
-    private int valueIndex;
+    protected int valueIndex;
 
     public FirstByteGroupByFunction(@NotNull Function arg) {
         this.arg = arg;
@@ -52,6 +52,16 @@ public class FirstByteGroupByFunction extends ByteFunction implements GroupByFun
         // empty
     }
 
+    @Override
+    public boolean isMergeSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        // destination holds the value of the earlier rows
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -121,6 +121,8 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
         saveLastItem(mapValue, this.latDegree.getDouble(record), this.lonDegree.getDouble(record), this.timestamp.getTimestamp(record));
         //result
         saveDistance(mapValue, 0);
+        //first valid item
+        saveFirstValidItem(mapValue, this.latDegree.getDouble(record), this.lonDegree.getDouble(record), this.timestamp.getTimestamp(record));
     }
 
     @Override
@@ -140,6 +142,32 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
             }
         } else {
             saveLastItem(mapValue, lat2Degrees, lon2Degrees, timestamp2);
+            saveFirstValidItem(mapValue, lat2Degrees, lon2Degrees, timestamp2);
+        }
+    }
+
+    @Override
+    public boolean isMergeSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        final double srcLat = srcValue.getDouble(valueIndex + 7);
+        final double srcLon = srcValue.getDouble(valueIndex + 8);
+        final long srcTimestamp = srcValue.getTimestamp(valueIndex + 9);
+        if (isValid(getLastLatitude(destValue), getLastLongitude(destValue), getLastTimestamp(destValue))) {
+            if (isValid(srcLat, srcLon, srcTimestamp)) {
+                // path continues from the last destination point to the first valid source point
+                double distance = calculateHaversineDistanceFromDegrees(getLastLatitude(destValue), getLastLongitude(destValue), srcLat, srcLon, getDistance(destValue));
+                saveDistance(destValue, distance + getDistance(srcValue));
+                saveLastItem(destValue, getLastLatitude(srcValue), getLastLongitude(srcValue), getLastTimestamp(srcValue));
+            }
+        } else {
+            // destination has no valid points, path starts in the source
+            saveLastItem(destValue, getLastLatitude(srcValue), getLastLongitude(srcValue), getLastTimestamp(srcValue));
+            saveDistance(destValue, getDistance(srcValue));
+            saveFirstValidItem(destValue, srcLat, srcLon, srcTimestamp);
         }
     }
 
@@ -156,6 +184,10 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
         columnTypes.add(ColumnType.LONG);
         //result
         columnTypes.add(ColumnType.DOUBLE);
+        //first valid item, used to merge partial results
+        columnTypes.add(ColumnType.DOUBLE);
+        columnTypes.add(ColumnType.DOUBLE);
+        columnTypes.add(ColumnType.LONG);
     }
 
     @Override
@@ -166,6 +198,7 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
         saveLastItem(mapValue, Double.NaN, Double.NaN, Numbers.LONG_NaN);
         //
         saveDistance(mapValue, 0.0);
+        saveFirstValidItem(mapValue, Double.NaN, Double.NaN, Numbers.LONG_NaN);
     }
 
     private double calculateHaversineDistance(MapValue value1, MapValue value2) {
@@ -201,6 +234,10 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
         return result.getDouble(valueIndex + 6);
     }
 
+    private static boolean isValid(double lat, double lon, long timestamp) {
+        return !Double.isNaN(lat) && !Double.isNaN(lon) && timestamp != Numbers.LONG_NaN;
+    }
+
     private double toRad(double deg) {
         return deg * PI / 180;
     }
@@ -243,6 +280,12 @@ public class HaversineDistDegreeGroupByFunction extends DoubleFunction implement
         mapValue.putTimestamp(this.valueIndex + 2, timestamp);
     }
 
+    private void saveFirstValidItem(MapValue mapValue, double lat, double lon, long timestamp) {
+        mapValue.putDouble(this.valueIndex + 7, lat);
+        mapValue.putDouble(this.valueIndex + 8, lon);
+        mapValue.putTimestamp(this.valueIndex + 9, timestamp);
+    }
+
     private void saveLastItem(MapValue mapValue, double lat, double lon, long timestamp) {
         mapValue.putDouble(this.valueIndex + 3, lat);
         mapValue.putDouble(this.valueIndex + 4, lon);
@@ -70,6 +70,26 @@ public class KSumDoubleGroupByFunction extends DoubleFunction implements GroupBy
         }
     }
 
+    @Override
+    public boolean isMergeSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        final long count = srcValue.getLong(valueIndex + 2);
+        if (count > 0) {
+            // compensated source sum is added as a single value
+            double sum = destValue.getDouble(valueIndex);
+            double c = destValue.getDouble(valueIndex + 1);
+            double y = srcValue.getDouble(valueIndex) - srcValue.getDouble(valueIndex + 1) - c;
+            double t = sum + y;
+            destValue.putDouble(valueIndex, t);
+            destValue.putDouble(valueIndex + 1, t - sum - y);
+            destValue.addLong(valueIndex + 2, count);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
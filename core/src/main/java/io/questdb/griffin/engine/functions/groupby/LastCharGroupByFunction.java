@@ -39,4 +39,9 @@ public class LastCharGroupByFunction extends FirstCharGroupByFunction {
     public void computeNext(MapValue mapValue, Record record) {
         super.computeFirst(mapValue, record);
     }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        destValue.putChar(valueIndex, srcValue.getChar(valueIndex));
+    }
 }
@@ -39,4 +39,9 @@ public class LastDoubleGroupByFunction extends FirstDoubleGroupByFunction {
     public void computeNext(MapValue mapValue, Record record) {
         super.computeFirst(mapValue, record);
     }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        destValue.putDouble(valueIndex, srcValue.getDouble(valueIndex));
+    }
 }
@@ -50,7 +50,7 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
         Function function = args.getQuick(0);
         int type = function.getType();
 
-        // Reuse first implementation overriding computeNext() method inline
+        // Reuse first implementation overriding computeNext() and merge() methods inline
         switch (ColumnType.sizeOf(type)) {
             default:
                 return new FirstGeoHashGroupByFunctionLong(type, function) {
@@ -58,6 +58,11 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putLong(this.valueIndex, this.function.getGeoHashLong(record));
                     }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue) {
+                        destValue.putLong(this.valueIndex, srcValue.getLong(this.valueIndex));
+                    }
                 };
             case Integer.BYTES:
                 return new FirstGeoHashGroupByFunctionInt(type, function) {
@@ -65,6 +70,11 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putInt(this.valueIndex, this.function.getGeoHashInt(record));
                     }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue) {
+                        destValue.putInt(this.valueIndex, srcValue.getInt(this.valueIndex));
+                    }
                 };
             case Short.BYTES:
                 return new FirstGeoHashGroupByFunctionShort(type, function) {
@@ -72,6 +82,11 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putShort(this.valueIndex, this.function.getGeoHashShort(record));
                     }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue) {
+                        destValue.putShort(this.valueIndex, srcValue.getShort(this.valueIndex));
+                    }
                 };
             case Byte.BYTES:
                 return new FirstGeoHashGroupByFunctionByte(type, function) {
@@ -79,6 +94,11 @@ public class LastGeoHashGroupByFunctionFactory implements FunctionFactory {
                     public void computeNext(MapValue mapValue, Record record) {
                         mapValue.putByte(this.valueIndex, this.function.getGeoHashByte(record));
                     }
+
+                    @Override
+                    public void merge(MapValue destValue, MapValue srcValue) {
+                        destValue.putByte(this.valueIndex, srcValue.getByte(this.valueIndex));
+                    }
                 };
         }
     }
@@ -39,4 +39,9 @@ public class LastShortGroupByFunction extends FirstShortGroupByFunction {
     public void computeNext(MapValue mapValue, Record record) {
         super.computeFirst(mapValue, record);
     }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        destValue.putShort(valueIndex, srcValue.getShort(valueIndex));
+    }
 }
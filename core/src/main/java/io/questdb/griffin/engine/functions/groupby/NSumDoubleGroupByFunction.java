@@ -65,6 +65,20 @@ public class NSumDoubleGroupByFunction extends DoubleFunction implements GroupBy
         }
     }
 
+    @Override
+    public boolean isMergeSupported() {
+        return true;
+    }
+
+    @Override
+    public void merge(MapValue destValue, MapValue srcValue) {
+        final long count = srcValue.getLong(valueIndex + 2);
+        if (count > 0) {
+            sum(destValue, srcValue.getDouble(valueIndex), destValue.getDouble(valueIndex), destValue.getDouble(valueIndex + 1) + srcValue.getDouble(valueIndex + 1));
+            destValue.addLong(valueIndex + 2, count);
+        }
+    }
+
     @Override
     public void pushValueTypes(ArrayColumnTypes columnTypes) {
         this.valueIndex = columnTypes.getColumnCount();
@@ -94,6 +94,12 @@ public class DistinctRecordCursorFactory implements RecordCursorFactory {
         return base.recordCursorSupportsRandomAccess();
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static class DistinctRecordCursor implements RecordCursor {
         private RecordCursor baseCursor;
         private Map dataMap;
@@ -99,6 +99,12 @@ public class DistinctTimeSeriesRecordCursorFactory implements RecordCursorFactor
         return base.recordCursorSupportsRandomAccess();
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static class DistinctTimeSeriesRecordCursor implements RecordCursor {
         private final Map dataMap;
         private final RecordSink recordSink;
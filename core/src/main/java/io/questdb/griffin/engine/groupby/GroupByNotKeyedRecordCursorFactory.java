@@ -85,6 +85,12 @@ public class GroupByNotKeyedRecordCursorFactory implements RecordCursorFactory {
         return false;
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private class GroupByNotKeyedRecordCursor implements NoRandomAccessRecordCursor {
 
         // hold on to reference of base cursor here
@@ -46,6 +46,15 @@ import org.jetbrains.annotations.NotNull;
 
 public class GroupByUtils {
 
+    public static boolean isMergeSupported(ObjList<GroupByFunction> groupByFunctions) {
+        for (int i = 0, n = groupByFunctions.size(); i < n; i++) {
+            if (!groupByFunctions.getQuick(i).isMergeSupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static void prepareGroupByFunctions(
             QueryModel model,
             RecordMetadata metadata,
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.groupby;
+
+import io.questdb.cairo.map.FastMap;
+import io.questdb.std.AbstractLockable;
+import io.questdb.std.Misc;
+
+import java.io.Closeable;
+
+/**
+ * Unit of work of parallel GROUP BY. Entry describes a range of rows of a single partition
+ * and aggregates them into its own map, which is then merged into the result map by the
+ * thread that owns the cursor. Entry is executed either by worker that picked it up from
+ * the queue or by the owner thread, whichever gets to lock it first.
+ */
+public class PageFrameGroupByEntry extends AbstractLockable implements Closeable {
+    private final FastMap map;
+    private ParallelGroupByRecordCursor cursor;
+    private int partitionIndex;
+    private long rowLo;
+    private long rowHi;
+    private Throwable error;
+    private volatile boolean done;
+
+    public PageFrameGroupByEntry(FastMap map) {
+        this.map = map;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(map);
+    }
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                cursor.aggregate(this);
+            } catch (Throwable th) {
+                error = th;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    FastMap getMap() {
+        return map;
+    }
+
+    int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    long getRowHi() {
+        return rowHi;
+    }
+
+    long getRowLo() {
+        return rowLo;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    void of(int sequence, ParallelGroupByRecordCursor cursor, int partitionIndex, long rowLo, long rowHi) {
+        this.cursor = cursor;
+        this.partitionIndex = partitionIndex;
+        this.rowLo = rowLo;
+        this.rowHi = rowHi;
+        this.error = null;
+        this.done = false;
+        this.map.clear();
+        of(sequence);
+    }
+}
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.groupby;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.MapKey;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PageFrame;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.AbstractVirtualFunctionRecordCursor;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.table.DataFrameRecordCursorFactory.TableReaderPageFrameCursor;
+import io.questdb.griffin.engine.table.SlotRecord;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.tasks.PageFrameGroupByTask;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Aggregates page frames of a table on the worker pool. Page frames are split into row
+ * ranges of bounded size, each of which is aggregated into a map of its own. The thread
+ * that owns the cursor merges these partial maps into the result map in the order of
+ * ranges, so that order-sensitive functions, such as first() and last(), see rows in the
+ * same order as serial GROUP BY would.
+ * <p>
+ * Group-by functions are not thread-safe, therefore each concurrent executor borrows one
+ * of the function copies (a "slot") for the duration of the range. All copies must have
+ * been assigned the same value columns.
+ */
+class ParallelGroupByRecordCursor extends AbstractVirtualFunctionRecordCursor {
+    private static final int ENTRY_MAP_PAGE_SIZE = 64 * 1024;
+    private final ObjList<Function> recordFunctions;
+    private final ObjList<ObjList<GroupByFunction>> slotFunctions;
+    private final ObjList<SlotRecord> slotRecords;
+    private final long[] slotLocks;
+    private final RecordSink mapSink;
+    private final ObjList<PageFrameGroupByEntry> entries;
+    private final FastMap dataMap;
+    private final FastMap.MergeFunction mergeFunction;
+    private final SymbolTableSource symbolTableSource;
+    private final int window;
+    private final long maxRangeRows;
+    private final boolean parallel;
+    private TableReaderPageFrameCursor pageFrameCursor;
+    private RingQueue<PageFrameGroupByTask> queue;
+    private Sequence pubSeq;
+    // range generator state
+    private int framePartitionIndex;
+    private long frameRowHi;
+    private long rangeRowLo;
+    // window state
+    private long dispatchIndex;
+    private long consumeIndex;
+
+    public ParallelGroupByRecordCursor(
+            CairoConfiguration configuration,
+            @NotNull ObjList<Function> recordFunctions,
+            @NotNull ObjList<ObjList<GroupByFunction>> slotFunctions,
+            @NotNull RecordSink mapSink,
+            @Transient @NotNull ColumnTypes keyTypes,
+            @Transient @NotNull ColumnTypes valueTypes,
+            @NotNull IntList columnIndexes,
+            long maxRangeRows
+    ) {
+        super(recordFunctions, true);
+        this.recordFunctions = recordFunctions;
+        this.slotFunctions = slotFunctions;
+        this.mapSink = mapSink;
+        final int concurrency = slotFunctions.size();
+        this.parallel = concurrency > 1;
+        this.slotLocks = new long[concurrency];
+        this.slotRecords = new ObjList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            slotRecords.add(new SlotRecord(columnIndexes));
+        }
+        // keep two ranges per executor in flight, so that workers are not starved
+        // while we merge map of the range at the head of the window
+        this.window = concurrency * 2;
+        this.entries = new ObjList<>(window);
+        this.maxRangeRows = maxRangeRows;
+
+        final ObjList<GroupByFunction> functions = slotFunctions.getQuick(0);
+        final int functionCount = functions.size();
+        this.mergeFunction = (destValue, srcValue) -> {
+            for (int i = 0; i < functionCount; i++) {
+                functions.getQuick(i).merge(destValue, srcValue);
+            }
+        };
+        this.symbolTableSource = columnIndex -> pageFrameCursor.getSymbolMapReader(columnIndex);
+
+        this.dataMap = new FastMap(
+                configuration.getSqlMapPageSize(),
+                keyTypes,
+                valueTypes,
+                configuration.getSqlMapKeyCapacity(),
+                configuration.getSqlFastMapLoadFactor(),
+                configuration.getSqlMapMaxResizes()
+        );
+        try {
+            for (int i = 0; i < window; i++) {
+                entries.add(
+                        new PageFrameGroupByEntry(
+                                new FastMap(
+                                        ENTRY_MAP_PAGE_SIZE,
+                                        keyTypes,
+                                        valueTypes,
+                                        configuration.getSqlMapKeyCapacity(),
+                                        configuration.getSqlFastMapLoadFactor(),
+                                        configuration.getSqlMapMaxResizes()
+                                )
+                        )
+                );
+            }
+        } catch (Throwable e) {
+            freeMaps();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        drain();
+        pageFrameCursor = Misc.free(pageFrameCursor);
+    }
+
+    void aggregate(PageFrameGroupByEntry entry) {
+        final FastMap map = entry.getMap();
+        final int slot = acquireSlot();
+        try {
+            final ObjList<GroupByFunction> functions = slotFunctions.getQuick(slot);
+            final int functionCount = functions.size();
+            final SlotRecord record = slotRecords.getQuick(slot);
+            record.jumpTo(entry.getPartitionIndex(), entry.getRowLo());
+            for (long r = entry.getRowLo(), hi = entry.getRowHi(); r < hi; r++) {
+                record.setRecordIndex(r);
+                final MapKey key = map.withKey();
+                mapSink.copy(record, key);
+                final MapValue value = key.createValue();
+                GroupByUtils.updateFunctions(functions, functionCount, value, record);
+            }
+        } finally {
+            Unsafe.arrayPutOrdered(slotLocks, slot, 0L);
+        }
+    }
+
+    void freeMaps() {
+        drain();
+        Misc.freeObjList(entries);
+        Misc.free(dataMap);
+    }
+
+    void of(TableReaderPageFrameCursor pageFrameCursor, SqlExecutionContext executionContext) throws SqlException {
+        this.pageFrameCursor = pageFrameCursor;
+        final TableReader reader = pageFrameCursor.getTableReader();
+        for (int i = 0, n = slotFunctions.size(); i < n; i++) {
+            slotRecords.getQuick(i).of(reader);
+            Function.init(slotFunctions.getQuick(i), symbolTableSource, executionContext);
+        }
+
+        final MessageBus bus = executionContext.getMessageBus();
+        if (bus != null && parallel) {
+            queue = bus.getPageFrameGroupByQueue();
+            pubSeq = bus.getPageFrameGroupByPubSeq();
+        } else {
+            queue = null;
+            pubSeq = null;
+        }
+
+        dataMap.clear();
+        dispatchIndex = consumeIndex = 0;
+        rangeRowLo = frameRowHi = 0;
+        while (true) {
+            dispatch();
+            if (consumeIndex == dispatchIndex) {
+                break;
+            }
+            final PageFrameGroupByEntry entry = entries.getQuick((int) (consumeIndex % window));
+            await(entry);
+            dataMap.merge(entry.getMap(), mergeFunction);
+            consumeIndex++;
+            executionContext.getSqlExecutionInterruptor().checkInterrupted();
+        }
+
+        of(dataMap.getCursor());
+        // init all record function for this cursor, in case functions require metadata and/or symbol tables
+        Function.init(recordFunctions, symbolTableSource, executionContext);
+    }
+
+    private int acquireSlot() {
+        final int slotCount = slotLocks.length;
+        while (true) {
+            for (int i = 0; i < slotCount; i++) {
+                if (Unsafe.arrayGetVolatile(slotLocks, i) == 0 && Unsafe.cas(slotLocks, i, 0L, 1L)) {
+                    return i;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void await(PageFrameGroupByEntry entry) {
+        // try to execute entry ourselves, in case it is still in the queue
+        if (!entry.run()) {
+            while (!entry.isDone()) {
+                // help workers with the entries further down the window
+                boolean helped = false;
+                for (long i = dispatchIndex - 1; i > consumeIndex; i--) {
+                    helped |= entries.getQuick((int) (i % window)).run();
+                }
+                if (!helped) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        final Throwable error = entry.getError();
+        if (error != null) {
+            if (error instanceof CairoException) {
+                throw (CairoException) error;
+            }
+            throw CairoException.instance(0).put("parallel group by failed [error=").put(error.getMessage()).put(']');
+        }
+    }
+
+    private void dispatch() {
+        while (dispatchIndex < consumeIndex + window && nextRowRange()) {
+            final long rangeRowHi = Math.min(rangeRowLo + maxRangeRows, frameRowHi);
+            final PageFrameGroupByEntry entry = entries.getQuick((int) (dispatchIndex % window));
+            entry.of((int) dispatchIndex, this, framePartitionIndex, rangeRowLo, rangeRowHi);
+            rangeRowLo = rangeRowHi;
+            dispatchIndex++;
+
+            if (pubSeq != null) {
+                long seq;
+                do {
+                    seq = pubSeq.next();
+                } while (seq == -2);
+
+                if (seq > -1) {
+                    queue.get(seq).entry = entry;
+                    pubSeq.done(seq);
+                }
+                // when queue is full entry will be executed by this thread when we get to it
+            }
+        }
+    }
+
+    /**
+     * Makes sure none of the entries of current window is still being executed by workers.
+     * Entries that have not been picked up yet are locked, which makes queued references
+     * to them inert.
+     */
+    private void drain() {
+        for (long i = consumeIndex; i < dispatchIndex; i++) {
+            final PageFrameGroupByEntry entry = entries.getQuick((int) (i % window));
+            if (!entry.tryLock()) {
+                while (!entry.isDone()) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        consumeIndex = dispatchIndex;
+    }
+
+    private boolean nextRowRange() {
+        if (rangeRowLo < frameRowHi) {
+            return true;
+        }
+
+        PageFrame frame;
+        while ((frame = pageFrameCursor.next()) != null) {
+            final long frameRowCount = frame.getPageAddress(0) == 0
+                    ? frame.getPageSize(0)
+                    : frame.getPageSize(0) >> frame.getColumnSize(0);
+            if (frameRowCount > 0) {
+                framePartitionIndex = frame.getPartitionIndex();
+                rangeRowLo = frame.getFirstRowId();
+                frameRowHi = rangeRowLo + frameRowCount;
+                return true;
+            }
+        }
+        return false;
+    }
+}
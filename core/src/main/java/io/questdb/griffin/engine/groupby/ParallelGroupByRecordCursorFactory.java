@@ -0,0 +1,136 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.groupby;
+
+import io.questdb.cairo.ArrayColumnTypes;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.ListColumnFilter;
+import io.questdb.cairo.RecordSinkFactory;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.functions.GroupByFunction;
+import io.questdb.griffin.engine.table.DataFrameRecordCursorFactory;
+import io.questdb.griffin.engine.table.DataFrameRecordCursorFactory.TableReaderPageFrameCursor;
+import io.questdb.std.BytecodeAssembler;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.Transient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keyed GROUP BY that aggregates page frames of the base factory on the worker pool.
+ * Group-by functions are created once per concurrent executor; the first copy is the
+ * one referenced by record functions. All functions must support merging of partial
+ * results, see {@link GroupByFunction#isMergeSupported()}.
+ */
+public class ParallelGroupByRecordCursorFactory implements RecordCursorFactory {
+    private final DataFrameRecordCursorFactory base;
+    private final RecordMetadata metadata;
+    private final ObjList<Function> recordFunctions;
+    private final ObjList<ObjList<GroupByFunction>> slotFunctions;
+    private final ParallelGroupByRecordCursor cursor;
+
+    public ParallelGroupByRecordCursorFactory(
+            CairoConfiguration configuration,
+            DataFrameRecordCursorFactory base,
+            @Transient @NotNull ListColumnFilter listColumnFilter,
+            @Transient @NotNull BytecodeAssembler asm,
+            @Transient @NotNull ArrayColumnTypes keyTypes,
+            @Transient @NotNull ArrayColumnTypes valueTypes,
+            RecordMetadata groupByMetadata,
+            ObjList<ObjList<GroupByFunction>> slotFunctions,
+            ObjList<Function> recordFunctions,
+            long maxRangeRows
+    ) {
+        assert base.supportPageFrameCursor();
+        try {
+            this.base = base;
+            this.metadata = groupByMetadata;
+            this.recordFunctions = recordFunctions;
+            this.slotFunctions = slotFunctions;
+            this.cursor = new ParallelGroupByRecordCursor(
+                    configuration,
+                    recordFunctions,
+                    slotFunctions,
+                    RecordSinkFactory.getInstance(asm, base.getMetadata(), listColumnFilter, false),
+                    keyTypes,
+                    valueTypes,
+                    base.getColumnIndexes(),
+                    maxRangeRows
+            );
+        } catch (Throwable e) {
+            freeFunctions(recordFunctions, slotFunctions);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        cursor.freeMaps();
+        freeFunctions(recordFunctions, slotFunctions);
+        Misc.free(base);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final TableReaderPageFrameCursor pageFrameCursor = (TableReaderPageFrameCursor) base.getPageFrameCursor(executionContext);
+        try {
+            cursor.of(pageFrameCursor, executionContext);
+        } catch (Throwable e) {
+            cursor.close();
+            throw e;
+        }
+        return cursor;
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return true;
+    }
+
+    private static void freeFunctions(ObjList<Function> recordFunctions, ObjList<ObjList<GroupByFunction>> slotFunctions) {
+        // the first copy of group-by functions is freed along with record functions
+        Misc.freeObjList(recordFunctions);
+        for (int i = 1, n = slotFunctions.size(); i < n; i++) {
+            Misc.freeObjList(slotFunctions.getQuick(i));
+        }
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+}
@@ -174,6 +174,12 @@ public class SampleByFirstLastRecordCursorFactory implements RecordCursorFactory
         }
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private class SampleByFirstLastRecordCursor extends AbstractSampleByCursor {
         private final static int STATE_START = 0;
         private final static int STATE_FETCH_NEXT_DATA_FRAME = 1;
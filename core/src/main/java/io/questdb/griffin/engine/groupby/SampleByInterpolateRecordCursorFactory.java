@@ -530,4 +530,10 @@ public class SampleByInterpolateRecordCursorFactory implements RecordCursorFacto
             }
         }
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
 }
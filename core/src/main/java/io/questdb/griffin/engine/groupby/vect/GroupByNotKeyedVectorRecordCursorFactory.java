@@ -162,6 +162,12 @@ public class GroupByNotKeyedVectorRecordCursorFactory implements RecordCursorFac
         return reclaimed;
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static class GroupByNotKeyedVectorRecordCursor implements NoRandomAccessRecordCursor {
         private final Record recordA;
         private int countDown = 1;
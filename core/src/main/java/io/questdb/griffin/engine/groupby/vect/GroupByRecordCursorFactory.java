@@ -275,6 +275,12 @@ public class GroupByRecordCursorFactory implements RecordCursorFactory {
         return true;
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static class RostiRecordCursor implements RecordCursor {
         private final RostiRecord record;
         private final long pRosti;
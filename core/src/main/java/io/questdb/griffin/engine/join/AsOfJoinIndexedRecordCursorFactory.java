@@ -0,0 +1,237 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.sql.*;
+import io.questdb.cairo.vm.api.MemoryR;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.IntIntHashMap;
+import io.questdb.std.Misc;
+import io.questdb.std.Rows;
+
+/**
+ * ASOF join on single symbol key, which is indexed on the slave side. Instead of scanning
+ * slave rows up to master timestamp, slave row is found directly: binary search of slave
+ * designated timestamp gives the last row not above master timestamp and backward bitmap
+ * index cursor gives the last row of the key at or before that row. Slave must scan the
+ * whole table in timestamp order, its cursor then addresses rows by reader partition and row.
+ * Slave cursor itself is never iterated.
+ */
+public class AsOfJoinIndexedRecordCursorFactory extends AbstractRecordCursorFactory {
+    private final RecordCursorFactory masterFactory;
+    private final RecordCursorFactory slaveFactory;
+    private final AsOfJoinIndexedRecordCursor cursor;
+
+    public AsOfJoinIndexedRecordCursorFactory(
+            RecordMetadata metadata,
+            RecordCursorFactory masterFactory,
+            RecordCursorFactory slaveFactory,
+            int masterKeyIndex,
+            int slaveKeyColumnIndex,
+            int columnSplit
+    ) {
+        super(metadata);
+        this.masterFactory = masterFactory;
+        this.slaveFactory = slaveFactory;
+        final RecordMetadata masterMetadata = masterFactory.getMetadata();
+        this.cursor = new AsOfJoinIndexedRecordCursor(
+                columnSplit,
+                NullRecordFactory.getInstance(slaveFactory.getMetadata()),
+                masterMetadata.getTimestampIndex(),
+                masterKeyIndex,
+                ColumnType.isSymbol(masterMetadata.getColumnType(masterKeyIndex)),
+                slaveKeyColumnIndex
+        );
+    }
+
+    @Override
+    public void close() {
+        ((JoinRecordMetadata) getMetadata()).close();
+        masterFactory.close();
+        slaveFactory.close();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        cursor.of(
+                masterFactory.getCursor(executionContext),
+                slaveFactory.getCursor(executionContext)
+        );
+        return cursor;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
+
+    private static class AsOfJoinIndexedRecordCursor implements NoRandomAccessRecordCursor {
+        private final OuterJoinRecord record;
+        private final int columnSplit;
+        private final int masterTimestampIndex;
+        private final int masterKeyIndex;
+        private final boolean masterKeySymbol;
+        private final int slaveKeyColumnIndex;
+        // master symbol key + 1 -> slave symbol key, saves symbol lookups on repeated keys
+        private final IntIntHashMap symbolKeyMap = new IntIntHashMap();
+        private RecordCursor masterCursor;
+        private RecordCursor slaveCursor;
+        private Record masterRecord;
+        private Record slaveRecord;
+        private SymbolMapReader slaveSymbolTable;
+        private TableReader reader;
+        private int slaveTimestampIndex;
+
+        public AsOfJoinIndexedRecordCursor(
+                int columnSplit,
+                Record nullRecord,
+                int masterTimestampIndex,
+                int masterKeyIndex,
+                boolean masterKeySymbol,
+                int slaveKeyColumnIndex
+        ) {
+            this.record = new OuterJoinRecord(columnSplit, nullRecord);
+            this.columnSplit = columnSplit;
+            this.masterTimestampIndex = masterTimestampIndex;
+            this.masterKeyIndex = masterKeyIndex;
+            this.masterKeySymbol = masterKeySymbol;
+            this.slaveKeyColumnIndex = slaveKeyColumnIndex;
+        }
+
+        @Override
+        public void close() {
+            masterCursor = Misc.free(masterCursor);
+            slaveCursor = Misc.free(slaveCursor);
+            reader = null;
+            slaveSymbolTable = null;
+        }
+
+        @Override
+        public Record getRecord() {
+            return record;
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            if (columnIndex < columnSplit) {
+                return masterCursor.getSymbolTable(columnIndex);
+            }
+            return slaveCursor.getSymbolTable(columnIndex - columnSplit);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (masterCursor.hasNext()) {
+                final int slaveKey = slaveKey();
+                if (slaveKey != SymbolTable.VALUE_NOT_FOUND) {
+                    final long rowId = findSlaveRow(TableUtils.toIndexKey(slaveKey), masterRecord.getTimestamp(masterTimestampIndex));
+                    if (rowId != -1) {
+                        slaveCursor.recordAt(slaveRecord, rowId);
+                        record.hasSlave(true);
+                        return true;
+                    }
+                }
+                record.hasSlave(false);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return masterCursor.size();
+        }
+
+        @Override
+        public void toTop() {
+            masterCursor.toTop();
+        }
+
+        private long findSlaveRow(int indexKey, long masterTimestamp) {
+            final int partitionCount = reader.getPartitionCount();
+            if (partitionCount == 0 || masterTimestamp < reader.getMinTimestamp()) {
+                return -1;
+            }
+
+            int partitionIndex = reader.getPartitionedBy() == PartitionBy.NONE
+                    ? 0
+                    : Math.min(reader.getPartitionIndexByTimestamp(masterTimestamp), partitionCount - 1);
+
+            while (partitionIndex > -1) {
+                final long rowCount = reader.openPartition(partitionIndex);
+                if (rowCount > 0) {
+                    final int columnBase = reader.getColumnBase(partitionIndex);
+                    final MemoryR timestampColumn = reader.getColumn(TableReader.getPrimaryColumnIndex(columnBase, slaveTimestampIndex));
+                    final long rowHi = BinarySearch.find(timestampColumn, masterTimestamp, 0, rowCount - 1, BinarySearch.SCAN_DOWN);
+                    if (rowHi > -1) {
+                        final RowCursor rowCursor = reader
+                                .getBitmapIndexReader(partitionIndex, columnBase, slaveKeyColumnIndex, BitmapIndexReader.DIR_BACKWARD)
+                                .getCursor(true, indexKey, 0, rowHi);
+                        if (rowCursor.hasNext()) {
+                            return Rows.toRowID(partitionIndex, rowCursor.next());
+                        }
+                    }
+                }
+                partitionIndex--;
+            }
+            return -1;
+        }
+
+        private int slaveKey() {
+            if (masterKeySymbol) {
+                final int masterKey = masterRecord.getInt(masterKeyIndex) + 1;
+                final int index = symbolKeyMap.keyIndex(masterKey);
+                if (index < 0) {
+                    return symbolKeyMap.valueAt(index);
+                }
+                final int slaveKey = slaveSymbolTable.keyOf(masterRecord.getSym(masterKeyIndex));
+                symbolKeyMap.putAt(index, masterKey, slaveKey);
+                return slaveKey;
+            }
+            return slaveSymbolTable.keyOf(masterRecord.getStr(masterKeyIndex));
+        }
+
+        void of(RecordCursor masterCursor, RecordCursor slaveCursor) {
+            symbolKeyMap.clear();
+            this.masterCursor = masterCursor;
+            this.slaveCursor = slaveCursor;
+            this.masterRecord = masterCursor.getRecord();
+            this.slaveRecord = slaveCursor.getRecordB();
+            this.reader = ((TableReaderSource) slaveCursor).getTableReader();
+            this.slaveSymbolTable = reader.getSymbolMapReader(slaveKeyColumnIndex);
+            this.slaveTimestampIndex = reader.getMetadata().getTimestampIndex();
+            record.of(masterRecord, slaveRecord);
+        }
+    }
+}
@@ -116,6 +116,13 @@ public class HashJoinLightRecordCursorFactory extends AbstractRecordCursorFactor
         }
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
+
     private class HashJoinRecordCursor implements NoRandomAccessRecordCursor {
         private final JoinRecord record;
         private final LongChain slaveChain;
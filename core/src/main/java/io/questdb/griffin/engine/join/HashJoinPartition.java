@@ -0,0 +1,188 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryARW;
+import io.questdb.cairo.vm.api.MemoryCARW;
+import io.questdb.cairo.vm.api.MemoryCMARW;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+
+import java.io.Closeable;
+
+/**
+ * One of the radix partitions of the build side of hash join. Slave rows are first staged
+ * into the partition as pairs of row id and serialised join key. Partition then builds map
+ * of join keys to chains of row ids from the staged rows. Partitions are built independently
+ * of each other, either by worker that picked partition up from the queue or by the thread
+ * that owns the cursor, whichever gets to lock it first.
+ * <p>
+ * Staged rows are kept in memory until partition is told to spill, after that they are
+ * appended to a memory-mapped temporary file, which is removed when partition is cleared.
+ */
+public class HashJoinPartition extends AbstractLockable implements Closeable, Mutable {
+    private final FastMap map;
+    private final LongChain chain;
+    private final MemoryCARW memStage;
+    private final MemoryCMARW spillStage = Vm.getCMARWInstance();
+    private final Path spillPath;
+    private final long spillPageSize;
+    private MemoryARW stage;
+    private FilesFacade ff;
+    private Throwable error;
+    private volatile boolean done;
+
+    public HashJoinPartition(FastMap map, LongChain chain, long stagePageSize, long spillPageSize, Path spillPath) {
+        this.map = map;
+        this.chain = chain;
+        this.memStage = Vm.getCARWInstance(stagePageSize, Integer.MAX_VALUE);
+        this.spillPageSize = spillPageSize;
+        this.spillPath = spillPath;
+        this.stage = memStage;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        chain.clear();
+        memStage.jumpTo(0);
+        if (stage == spillStage) {
+            spillStage.close(false);
+            ff.remove(spillPath);
+            stage = memStage;
+        }
+    }
+
+    @Override
+    public void close() {
+        clear();
+        Misc.free(map);
+        Misc.free(chain);
+        Misc.free(memStage);
+        Misc.free(spillPath);
+    }
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                build();
+            } catch (Throwable th) {
+                error = th;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void build() {
+        final long size = stage.getAppendOffset();
+        if (size == 0) {
+            return;
+        }
+        long p = stage.addressOf(0);
+        final long hi = p + size;
+        while (p < hi) {
+            final long rowId = Unsafe.getUnsafe().getLong(p);
+            final long entryAddress = p + Long.BYTES;
+            final MapValue value = map.withKeyEntry(entryAddress).createValue();
+            if (value.isNew()) {
+                final long offset = chain.put(rowId, -1);
+                value.putLong(0, offset);
+                value.putLong(1, offset);
+            } else {
+                value.putLong(1, chain.put(rowId, value.getLong(1)));
+            }
+            p = entryAddress + Unsafe.getUnsafe().getInt(entryAddress);
+        }
+    }
+
+    LongChain getChain() {
+        return chain;
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    FastMap getMap() {
+        return map;
+    }
+
+    long getStagedSize() {
+        return stage.getAppendOffset();
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    boolean isSpilled() {
+        return stage == spillStage;
+    }
+
+    void prepare(int sequence) {
+        this.error = null;
+        this.done = false;
+        of(sequence);
+    }
+
+    /**
+     * Moves staged rows to the temporary file, rows staged afterwards are appended to the file.
+     */
+    void spill(FilesFacade ff) {
+        if (stage == spillStage) {
+            return;
+        }
+        this.ff = ff;
+        if (ff.exists(spillPath)) {
+            // left behind by a crashed process
+            ff.remove(spillPath);
+        }
+        spillStage.of(ff, spillPath, spillPageSize, 0);
+        spillStage.jumpTo(0);
+        final long size = memStage.getAppendOffset();
+        if (size > 0) {
+            spillStage.putBlockOfBytes(memStage.addressOf(0), size);
+        }
+        memStage.truncate();
+        stage = spillStage;
+    }
+
+    /**
+     * Stages slave row, join key entry is copied as is.
+     *
+     * @param rowId        row id of the slave record
+     * @param entryAddress address of the key entry, see {@link FastMap.Key#getEntryAddress()}
+     */
+    void stage(long rowId, long entryAddress) {
+        stage.putLong(rowId);
+        stage.putBlockOfBytes(entryAddress, Unsafe.getUnsafe().getInt(entryAddress));
+    }
+}
@@ -99,6 +99,13 @@ public class HashJoinRecordCursorFactory extends AbstractRecordCursorFactory {
         HashOuterJoinRecordCursorFactory.buildMap(slaveCursor, slaveCursor.getRecord(), joinKeyMap, slaveKeySink, slaveChain, interruptor);
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
+
     private class HashJoinRecordCursor implements NoRandomAccessRecordCursor {
         private final JoinRecord recordA;
         private final RecordChain slaveChain;
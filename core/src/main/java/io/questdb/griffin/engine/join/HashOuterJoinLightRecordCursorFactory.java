@@ -121,6 +121,13 @@ public class HashOuterJoinLightRecordCursorFactory extends AbstractRecordCursorF
         }
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
+
     private class HashOuterJoinLightRecordCursor implements NoRandomAccessRecordCursor {
         private final OuterJoinRecord record;
         private final LongChain slaveChain;
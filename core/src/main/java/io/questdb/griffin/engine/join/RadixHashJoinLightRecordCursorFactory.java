@@ -0,0 +1,358 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.join;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.AbstractRecordCursorFactory;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.ColumnTypes;
+import io.questdb.cairo.RecordSink;
+import io.questdb.cairo.map.FastMap;
+import io.questdb.cairo.map.MapValue;
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.SqlExecutionInterruptor;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.tasks.HashJoinBuildTask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inner light hash join, which splits the build (slave) side into partitions by the hash of the
+ * join key. Each partition has its own map and chain of row ids, small enough to stay cache-resident
+ * while it is built and probed. Slave rows are scanned once, on the thread that owns the cursor, and
+ * staged into partitions. Partitions are then built on the worker pool. Master rows are probed
+ * against the partition their key hashes to in the order of master cursor, so the output is in the
+ * same order as that of {@link HashJoinLightRecordCursorFactory}.
+ * <p>
+ * When staged rows exceed configured threshold they are moved to temporary files, which keeps
+ * memory usage of the build side down to that of partition maps and chains.
+ */
+public class RadixHashJoinLightRecordCursorFactory extends AbstractRecordCursorFactory {
+    private static final AtomicLong SPILL_ID = new AtomicLong();
+    private static final int MIN_PARTITION_PAGE_SIZE = 64 * 1024;
+    private final RecordCursorFactory masterFactory;
+    private final RecordCursorFactory slaveFactory;
+    private final RecordSink masterKeySink;
+    private final RecordSink slaveKeySink;
+    // serialises join keys of both sides, entries are never added to this map
+    private final FastMap keyMap;
+    private final ObjList<HashJoinPartition> partitions;
+    private final int radixShift;
+    private final long spillThreshold;
+    private final FilesFacade ff;
+    private final CharSequence spillRoot;
+    private final int mkDirMode;
+    private final RadixHashJoinRecordCursor cursor;
+    private int buildSequence;
+
+    public RadixHashJoinLightRecordCursorFactory(
+            CairoConfiguration configuration,
+            RecordMetadata metadata,
+            RecordCursorFactory masterFactory,
+            RecordCursorFactory slaveFactory,
+            @Transient ColumnTypes joinColumnTypes,
+            @Transient ColumnTypes valueTypes, // this expected to be just LONG, we store chain references in map
+            RecordSink masterKeySink,
+            RecordSink slaveKeySink,
+            int columnSplit,
+            int radixBits
+    ) {
+        super(metadata);
+        this.masterFactory = masterFactory;
+        this.slaveFactory = slaveFactory;
+        this.masterKeySink = masterKeySink;
+        this.slaveKeySink = slaveKeySink;
+        this.radixShift = Long.SIZE - radixBits;
+        this.spillThreshold = configuration.getSqlHashJoinSpillThreshold();
+        this.ff = configuration.getFilesFacade();
+        this.spillRoot = configuration.getSqlHashJoinSpillRoot() != null ? configuration.getSqlHashJoinSpillRoot() : configuration.getRoot();
+        this.mkDirMode = configuration.getMkDirMode();
+
+        final int partitionCount = 1 << radixBits;
+        final int mapPageSize = Math.max(MIN_PARTITION_PAGE_SIZE, configuration.getSqlMapPageSize() >> radixBits);
+        final int chainPageSize = Math.max(MIN_PARTITION_PAGE_SIZE, configuration.getSqlHashJoinLightValuePageSize() >> radixBits);
+        final long spillId = SPILL_ID.incrementAndGet();
+        this.keyMap = new FastMap(MIN_PARTITION_PAGE_SIZE, joinColumnTypes, valueTypes, 1, configuration.getSqlFastMapLoadFactor(), Integer.MAX_VALUE);
+        this.partitions = new ObjList<>(partitionCount);
+        try {
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(
+                        new HashJoinPartition(
+                                new FastMap(
+                                        mapPageSize,
+                                        joinColumnTypes,
+                                        valueTypes,
+                                        configuration.getSqlMapKeyCapacity(),
+                                        configuration.getSqlFastMapLoadFactor(),
+                                        configuration.getSqlMapMaxResizes()
+                                ),
+                                new LongChain(chainPageSize, configuration.getSqlHashJoinLightValueMaxPages()),
+                                chainPageSize,
+                                configuration.getSqlHashJoinLightValuePageSize(),
+                                new Path().of(spillRoot).concat("hash_join.").put(spillId).put('.').put(i).put(".spill").$()
+                        )
+                );
+            }
+        } catch (Throwable th) {
+            Misc.freeObjList(partitions);
+            keyMap.close();
+            throw th;
+        }
+        this.cursor = new RadixHashJoinRecordCursor(columnSplit);
+    }
+
+    @Override
+    public void close() {
+        Misc.freeObjList(partitions);
+        keyMap.close();
+        ((JoinRecordMetadata) getMetadata()).close();
+        masterFactory.close();
+        slaveFactory.close();
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        RecordCursor slaveCursor = slaveFactory.getCursor(executionContext);
+        try {
+            stageSlaveRecords(slaveCursor, executionContext.getSqlExecutionInterruptor());
+            buildPartitions(executionContext.getMessageBus());
+        } catch (Throwable e) {
+            slaveCursor.close();
+            throw e;
+        }
+        cursor.of(masterFactory.getCursor(executionContext), slaveCursor);
+        return cursor;
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return false;
+    }
+
+    private void await(int index) {
+        final HashJoinPartition partition = partitions.getQuick(index);
+        // try to build partition ourselves, in case it is still in the queue
+        if (!partition.run()) {
+            while (!partition.isDone()) {
+                // help workers with the partitions we are going to wait for next
+                boolean helped = false;
+                for (int i = index + 1, n = partitions.size(); i < n; i++) {
+                    helped |= partitions.getQuick(i).run();
+                }
+                if (!helped) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        final Throwable error = partition.getError();
+        if (error != null) {
+            if (error instanceof CairoException) {
+                throw (CairoException) error;
+            }
+            throw CairoException.instance(0).put("parallel hash join failed [error=").put(error.getMessage()).put(']');
+        }
+    }
+
+    private void buildPartitions(MessageBus bus) {
+        final int partitionCount = partitions.size();
+        final int sequence = buildSequence++;
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.getQuick(i).prepare(sequence);
+        }
+
+        if (bus != null) {
+            final RingQueue<HashJoinBuildTask> queue = bus.getHashJoinBuildQueue();
+            final Sequence pubSeq = bus.getHashJoinBuildPubSeq();
+            for (int i = 0; i < partitionCount; i++) {
+                long seq;
+                do {
+                    seq = pubSeq.next();
+                } while (seq == -2);
+
+                if (seq < 0) {
+                    // queue is full, the rest of partitions will be built by this thread
+                    break;
+                }
+                queue.get(seq).partition = partitions.getQuick(i);
+                pubSeq.done(seq);
+            }
+        }
+
+        try {
+            for (int i = 0; i < partitionCount; i++) {
+                await(i);
+            }
+        } catch (Throwable th) {
+            drain();
+            throw th;
+        }
+    }
+
+    /**
+     * Makes sure none of the partitions is still being built by workers. Partitions that have
+     * not been picked up yet are locked, which makes queued references to them inert.
+     */
+    private void drain() {
+        for (int i = 0, n = partitions.size(); i < n; i++) {
+            final HashJoinPartition partition = partitions.getQuick(i);
+            if (!partition.tryLock()) {
+                while (!partition.isDone()) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private HashJoinPartition partitionOf(FastMap.Key key) {
+        // Fibonacci hashing takes partition from the high bits of the product, which keeps it
+        // independent of the low bits partition maps use to place keys
+        return partitions.getQuick((int) ((key.hash() * 0x9E3779B97F4A7C15L) >>> radixShift));
+    }
+
+    private void spill() {
+        final Path path = Path.getThreadLocal(spillRoot).slash$();
+        if (!ff.exists(path) && ff.mkdirs(path, mkDirMode) != 0) {
+            throw CairoException.instance(ff.errno()).put("could not create hash join spill directory [path=").put(path).put(']');
+        }
+        for (int i = 0, n = partitions.size(); i < n; i++) {
+            partitions.getQuick(i).spill(ff);
+        }
+    }
+
+    private void stageSlaveRecords(RecordCursor slaveCursor, SqlExecutionInterruptor interruptor) {
+        for (int i = 0, n = partitions.size(); i < n; i++) {
+            partitions.getQuick(i).clear();
+        }
+
+        final Record record = slaveCursor.getRecord();
+        boolean spilled = false;
+        long stagedSize = 0;
+        while (slaveCursor.hasNext()) {
+            interruptor.checkInterrupted();
+            final FastMap.Key key = (FastMap.Key) keyMap.withKey();
+            key.put(record, slaveKeySink);
+            final HashJoinPartition partition = partitionOf(key);
+            final long entryAddress = key.getEntryAddress();
+            partition.stage(record.getRowId(), entryAddress);
+            if (!spilled && (stagedSize += Long.BYTES + Unsafe.getUnsafe().getInt(entryAddress)) > spillThreshold) {
+                spill();
+                spilled = true;
+            }
+        }
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("partitions").val(partitions.size());
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
+
+    private class RadixHashJoinRecordCursor implements NoRandomAccessRecordCursor {
+        private final JoinRecord record;
+        private final int columnSplit;
+        private RecordCursor masterCursor;
+        private RecordCursor slaveCursor;
+        private Record masterRecord;
+        private LongChain.TreeCursor slaveChainCursor;
+        private Record slaveRecord;
+
+        public RadixHashJoinRecordCursor(int columnSplit) {
+            this.record = new JoinRecord(columnSplit);
+            this.columnSplit = columnSplit;
+        }
+
+        @Override
+        public void close() {
+            masterCursor = Misc.free(masterCursor);
+            slaveCursor = Misc.free(slaveCursor);
+        }
+
+        @Override
+        public Record getRecord() {
+            return record;
+        }
+
+        @Override
+        public SymbolTable getSymbolTable(int columnIndex) {
+            if (columnIndex < columnSplit) {
+                return masterCursor.getSymbolTable(columnIndex);
+            }
+            return slaveCursor.getSymbolTable(columnIndex - columnSplit);
+        }
+
+        @Override
+        public long size() {
+            return -1;
+        }
+
+        @Override
+        public void toTop() {
+            masterCursor.toTop();
+            slaveChainCursor = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (slaveChainCursor != null && slaveChainCursor.hasNext()) {
+                slaveCursor.recordAt(slaveRecord, slaveChainCursor.next());
+                return true;
+            }
+
+            while (masterCursor.hasNext()) {
+                final FastMap.Key key = (FastMap.Key) keyMap.withKey();
+                key.put(masterRecord, masterKeySink);
+                final HashJoinPartition partition = partitionOf(key);
+                final MapValue value = partition.getMap().withKeyEntry(key.getEntryAddress()).findValue();
+                if (value != null) {
+                    slaveChainCursor = partition.getChain().getCursor(value.getLong(0));
+                    // we know cursor has values
+                    // advance to get first value
+                    slaveChainCursor.hasNext();
+                    slaveCursor.recordAt(slaveRecord, slaveChainCursor.next());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void of(RecordCursor masterCursor, RecordCursor slaveCursor) {
+            this.masterCursor = masterCursor;
+            this.slaveCursor = slaveCursor;
+            this.masterRecord = masterCursor.getRecord();
+            this.slaveRecord = slaveCursor.getRecordB();
+            record.of(masterRecord, slaveRecord);
+            slaveChainCursor = null;
+        }
+    }
+}
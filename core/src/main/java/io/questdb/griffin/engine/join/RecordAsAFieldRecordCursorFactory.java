@@ -66,6 +66,12 @@ public class RecordAsAFieldRecordCursorFactory implements RecordCursorFactory {
         return base.recordCursorSupportsRandomAccess();
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+
     private static final class RecordAsAFieldRecord implements Record {
 
         private Record base;
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.mv;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.mv.MatViewDefinition;
+import io.questdb.cairo.mv.MatViewRegistry;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.*;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.SynchronizedJob;
+import io.questdb.std.*;
+import io.questdb.std.datetime.microtime.TimestampFormatUtils;
+import io.questdb.std.datetime.microtime.Timestamps;
+import io.questdb.std.datetime.millitime.MillisecondClock;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+
+/**
+ * Refreshes materialized views from changes of their base tables. Every run compares partition
+ * table of each base table with the snapshot taken by previous refresh. View partitions of
+ * changed base partitions are removed and recomputed by view query restricted to the time
+ * interval of these partitions, so that out-of-order commits into old partitions are handled
+ * in the same way as appended rows. Refresh is idempotent: when it fails or the engine stops
+ * half way, the snapshot is not updated and the next run recomputes the same partitions.
+ * <p>
+ * Views whose table writer is busy are skipped until the next run.
+ */
+public class MatViewRefreshJob extends SynchronizedJob implements Closeable {
+    private static final Log LOG = LogFactory.getLog(MatViewRefreshJob.class);
+    private static final String LOCK_REASON = "matViewRefresh";
+    private final CairoEngine engine;
+    private final MatViewRegistry registry;
+    private final SqlCompiler compiler;
+    private final SqlExecutionContextImpl executionContext;
+    private final FilesFacade ff;
+    private final CharSequence root;
+    private final MillisecondClock clock;
+    private final long refreshInterval;
+    private final ObjList<MatViewDefinition> views = new ObjList<>();
+    private final LongList changedPartitions = new LongList();
+    private final EntityColumnFilter entityColumnFilter = new EntityColumnFilter();
+    private final BytecodeAssembler asm = new BytecodeAssembler();
+    private final StringSink sql = new StringSink();
+    private final StringSink lo = new StringSink();
+    private final StringSink hi = new StringSink();
+    private final Path path = new Path();
+    private long nextRefreshTime = 0;
+
+    public MatViewRefreshJob(CairoEngine engine) {
+        this(engine, null);
+    }
+
+    public MatViewRefreshJob(CairoEngine engine, @Nullable FunctionFactoryCache functionFactoryCache) {
+        this.engine = engine;
+        this.registry = engine.getMatViewRegistry();
+        final CairoConfiguration configuration = engine.getConfiguration();
+        this.ff = configuration.getFilesFacade();
+        this.root = configuration.getRoot();
+        this.clock = configuration.getMillisecondClock();
+        this.refreshInterval = configuration.getMatViewRefreshInterval();
+        this.compiler = new SqlCompiler(engine, engine.getMessageBus(), functionFactoryCache);
+        this.executionContext = new SqlExecutionContextImpl(engine, 1, engine.getMessageBus());
+        this.executionContext.with(AllowAllCairoSecurityContext.INSTANCE, null, null);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(compiler);
+        Misc.free(path);
+    }
+
+    /**
+     * Refreshes all views, which base tables have changed since the previous refresh.
+     *
+     * @return true when at least one view has been refreshed
+     */
+    public boolean refresh() {
+        registry.getViews(views);
+        boolean useful = false;
+        for (int i = 0, n = views.size(); i < n; i++) {
+            final MatViewDefinition view = views.getQuick(i);
+            try {
+                useful |= refresh(view);
+            } catch (EntryUnavailableException e) {
+                LOG.info().$("materialized view is busy, refresh postponed [view=").utf8(view.getViewName())
+                        .$(", reason=").$(e.getFlyweightMessage())
+                        .$(']').$();
+            } catch (CairoException e) {
+                LOG.error().$("could not refresh materialized view [view=").utf8(view.getViewName())
+                        .$(", errno=").$(e.getErrno())
+                        .$(", msg=").$(e.getFlyweightMessage())
+                        .$(']').$();
+            } catch (SqlException e) {
+                LOG.error().$("could not refresh materialized view [view=").utf8(view.getViewName())
+                        .$(", msg=").$(e.getFlyweightMessage())
+                        .$(", position=").$(e.getPosition())
+                        .$(']').$();
+            }
+        }
+        views.clear();
+        return useful;
+    }
+
+    private static void copy(RecordCursor cursor, TableWriter writer, SqlCompiler.RecordToRowCopier copier, int timestampIndex) {
+        final Record record = cursor.getRecord();
+        while (cursor.hasNext()) {
+            final TableWriter.Row row = writer.newRow(record.getTimestamp(timestampIndex));
+            copier.copy(record, row);
+            row.append();
+        }
+    }
+
+    private static boolean isAttached(TableWriter writer, long partitionTimestamp) {
+        for (int i = writer.getPartitionCount() - 1; i > -1; i--) {
+            if (writer.getPartitionTimestamp(i) == partitionTimestamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean refresh(MatViewDefinition view) throws SqlException {
+        if (engine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, view.getViewName()) != TableUtils.TABLE_EXISTS) {
+            registry.remove(view.getViewName());
+            return false;
+        }
+
+        final String baseTableName = view.getBaseTableName();
+        if (engine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, baseTableName) != TableUtils.TABLE_EXISTS) {
+            return false;
+        }
+
+        try (TxReader txReader = new TxReader(ff, path.of(root).concat(baseTableName), view.getPartitionBy())) {
+            txReader.readConsistently();
+            if (txReader.getTxn() == view.getBaseTxn()) {
+                return false;
+            }
+
+            view.collectChangedPartitions(txReader, changedPartitions);
+            if (changedPartitions.size() > 0) {
+                try (TableWriter writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, view.getViewName(), LOCK_REASON)) {
+                    refreshPartitions(view, writer);
+                }
+            }
+            view.snapshot(txReader);
+            registry.persist(view);
+        }
+
+        LOG.info().$("refreshed materialized view [view=").utf8(view.getViewName())
+                .$(", baseTxn=").$(view.getBaseTxn())
+                .$(", partitions=").$(changedPartitions.size())
+                .$(']').$();
+        return changedPartitions.size() > 0;
+    }
+
+    private void refreshPartitions(MatViewDefinition view, TableWriter writer) throws SqlException {
+        final Timestamps.TimestampFloorMethod floor = TableUtils.getPartitionFloor(writer.getPartitionBy());
+        final Timestamps.TimestampCeilMethod ceil = TableUtils.getPartitionCeil(writer.getPartitionBy());
+
+        // newest partitions first, removal of the active partition makes previous partition active
+        for (int i = changedPartitions.size() - 1; i > -1; i--) {
+            final long partitionTimestamp = changedPartitions.getQuick(i);
+            final long maxTimestamp = writer.getMaxTimestamp();
+            if (maxTimestamp != Long.MIN_VALUE && floor.floor(maxTimestamp) == partitionTimestamp) {
+                writer.removeLastPartition();
+            } else if (isAttached(writer, partitionTimestamp)) {
+                writer.removePartition(partitionTimestamp);
+            }
+        }
+
+        SqlCompiler.RecordToRowCopier copier = null;
+        for (int i = 0, n = changedPartitions.size(); i < n; ) {
+            final long intervalLo = changedPartitions.getQuick(i++);
+            long intervalHi = ceil.ceil(intervalLo) + 1;
+            // adjacent partitions are recomputed by single query
+            while (i < n && changedPartitions.getQuick(i) == intervalHi) {
+                intervalHi = ceil.ceil(changedPartitions.getQuick(i++)) + 1;
+            }
+
+            lo.clear();
+            TimestampFormatUtils.appendDateTimeUSec(lo, intervalLo);
+            hi.clear();
+            TimestampFormatUtils.appendDateTimeUSec(hi, intervalHi);
+            sql.clear();
+            view.toRefreshQuery(sql, lo, hi);
+
+            try (
+                    RecordCursorFactory factory = compiler.compile(sql, executionContext).getRecordCursorFactory();
+                    RecordCursor cursor = factory.getCursor(executionContext)
+            ) {
+                final RecordMetadata metadata = factory.getMetadata();
+                if (copier == null) {
+                    final RecordMetadata writerMetadata = writer.getMetadata();
+                    entityColumnFilter.of(writerMetadata.getColumnCount());
+                    copier = SqlCompiler.assembleRecordToRowCopier(asm, metadata, writerMetadata, entityColumnFilter);
+                }
+                copy(cursor, writer, copier, metadata.getTimestampIndex());
+            }
+        }
+        writer.commit();
+    }
+
+    @Override
+    protected boolean runSerially() {
+        final long now = clock.getTicks();
+        if (now < nextRefreshTime) {
+            return false;
+        }
+        nextRefreshTime = now + refreshInterval;
+        return refresh();
+    }
+}
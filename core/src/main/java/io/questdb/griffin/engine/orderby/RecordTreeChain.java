@@ -32,6 +32,7 @@ import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.griffin.engine.RecordComparator;
 import io.questdb.std.MemoryPages;
+import io.questdb.std.MemoryTag;
 import io.questdb.std.Misc;
 import io.questdb.std.Mutable;
 import io.questdb.std.Unsafe;
@@ -66,7 +67,7 @@ public class RecordTreeChain implements Closeable, Mutable {
             int valueMaxPages
     ) {
         this.comparator = comparator;
-        this.mem = new MemoryPages(keyPageSize, keyMaxPages);
+        this.mem = new MemoryPages(keyPageSize, keyMaxPages, MemoryTag.NATIVE_TREE_CHAIN);
         this.recordChain = new RecordChain(columnTypes, recordSink, valuePageSize, valueMaxPages);
         this.recordChainRecord = this.recordChain.getRecordB();
     }
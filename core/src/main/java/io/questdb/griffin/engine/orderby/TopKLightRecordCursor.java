@@ -0,0 +1,270 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.orderby;
+
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.SqlExecutionInterruptor;
+import io.questdb.griffin.engine.RecordComparator;
+import io.questdb.std.DirectLongList;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sorts rows of random access cursor and applies limit to them while keeping only the rows
+ * that can make it into the limit. Row ids are kept in a binary heap of at most K entries,
+ * where K is derived from the limit, which bounds memory to O(K) and sort time to O(N log K).
+ * <p>
+ * Rows are ordered exactly as {@link SortedLightRecordCursor} orders them, including the
+ * order of rows with equal keys: later rows go first. To reproduce that, each heap entry
+ * is a pair of row id and sequence number of the row in base cursor.
+ */
+class TopKLightRecordCursor implements RecordCursor {
+    // heap root is the greatest entry, heap keeps K smallest entries
+    private static final int MODE_TOP = 1;
+    // heap root is the smallest entry, heap keeps K greatest entries
+    private static final int MODE_BOTTOM = -1;
+    private final DirectLongList heap;
+    private final RecordComparator comparator;
+    private final Function loFunction;
+    private final Function hiFunction;
+    private RecordCursor base;
+    private Record baseRecord;
+    private Record recordB;
+    private int mode;
+    private long heapSize;
+    private long skip;
+    private long count;
+    private long index;
+
+    public TopKLightRecordCursor(
+            DirectLongList heap,
+            RecordComparator comparator,
+            Function loFunction,
+            @Nullable Function hiFunction
+    ) {
+        this.heap = heap;
+        this.comparator = comparator;
+        this.loFunction = loFunction;
+        this.hiFunction = hiFunction;
+    }
+
+    @Override
+    public void close() {
+        heap.clear();
+        base.close();
+    }
+
+    @Override
+    public Record getRecord() {
+        return baseRecord;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable(int columnIndex) {
+        return base.getSymbolTable(columnIndex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < count) {
+            base.recordAt(baseRecord, rowIdAt(index++));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Record getRecordB() {
+        return base.getRecordB();
+    }
+
+    @Override
+    public void recordAt(Record record, long atRowId) {
+        base.recordAt(record, atRowId);
+    }
+
+    @Override
+    public void toTop() {
+        index = 0;
+    }
+
+    @Override
+    public long size() {
+        return count;
+    }
+
+    void of(RecordCursor base, SqlExecutionContext executionContext) throws SqlException {
+        this.base = base;
+        this.baseRecord = base.getRecord();
+        this.recordB = base.getRecordB();
+        loFunction.init(base, executionContext);
+        if (hiFunction != null) {
+            hiFunction.init(base, executionContext);
+        }
+
+        // limit semantics follow LimitRecordCursorFactory, negative values count from
+        // the end of the sorted rows
+        final long lo = loFunction.getLong(null);
+        final long hi = hiFunction != null ? hiFunction.getLong(null) : 0;
+        final long k;
+        if (hiFunction == null) {
+            if (lo < 0) {
+                mode = MODE_BOTTOM;
+                k = -lo;
+            } else {
+                mode = MODE_TOP;
+                k = lo;
+            }
+        } else if (lo < 0) {
+            mode = MODE_BOTTOM;
+            k = lo < hi ? -lo : 0;
+        } else {
+            mode = MODE_TOP;
+            // when hi is negative the limit depends on total row count
+            // and none of the rows can be discarded
+            k = hi < 0 ? Long.MAX_VALUE : hi;
+        }
+
+        build(k, executionContext.getSqlExecutionInterruptor());
+
+        if (hiFunction == null) {
+            skip = 0;
+            count = heapSize;
+        } else if (lo < 0) {
+            skip = 0;
+            count = lo < hi ? Math.max(0, Math.min(heapSize, heapSize + hi)) : 0;
+        } else {
+            skip = lo;
+            count = Math.max(0, (hi < 0 ? heapSize + hi : Math.min(heapSize, hi)) - lo);
+        }
+        index = 0;
+    }
+
+    private void build(long k, SqlExecutionInterruptor interruptor) {
+        heap.clear();
+        heapSize = 0;
+        if (k <= 0) {
+            return;
+        }
+
+        long seq = 0;
+        while (base.hasNext()) {
+            interruptor.checkInterrupted();
+            final long rowId = baseRecord.getRowId();
+            if (heapSize < k) {
+                heap.add(rowId);
+                heap.add(seq);
+                siftUp(heapSize++);
+            } else {
+                // candidate is worse than the worst row in the heap when it is on
+                // the same side of it as the root is from the rest of the heap
+                comparator.setLeft(baseRecord);
+                base.recordAt(recordB, heap.get(0));
+                int cmp = comparator.compare(recordB);
+                if (cmp == 0) {
+                    // the candidate is the latest row, it goes before the root
+                    cmp = -1;
+                }
+                if (cmp * mode < 0) {
+                    heap.set(0, rowId);
+                    heap.set(1, seq);
+                    siftDown(0, heapSize);
+                }
+            }
+            seq++;
+        }
+
+        // heap sort, root is moved to the end of the heap; in top mode
+        // this leaves entries in ascending order and in bottom mode in descending
+        for (long n = heapSize - 1; n > 0; n--) {
+            swap(0, n);
+            siftDown(0, n);
+        }
+    }
+
+    /**
+     * Compares heap entries a and b.
+     *
+     * @return positive value when a goes after b in sorted output, negative value otherwise
+     */
+    private int compare(long a, long b) {
+        base.recordAt(recordB, heap.get(a << 1));
+        comparator.setLeft(recordB);
+        base.recordAt(recordB, heap.get(b << 1));
+        final int cmp = comparator.compare(recordB);
+        if (cmp != 0) {
+            return cmp;
+        }
+        // rows with equal keys are in reverse order of appearance
+        return Long.compare(heap.get((b << 1) + 1), heap.get((a << 1) + 1));
+    }
+
+    private long rowIdAt(long index) {
+        final long p = mode == MODE_TOP ? skip + index : heapSize - 1 - skip - index;
+        return heap.get(p << 1);
+    }
+
+    private void siftDown(long i, long size) {
+        while (true) {
+            final long l = 2 * i + 1;
+            if (l >= size) {
+                return;
+            }
+            long c = l;
+            final long r = l + 1;
+            if (r < size && compare(r, l) * mode > 0) {
+                c = r;
+            }
+            if (compare(c, i) * mode <= 0) {
+                return;
+            }
+            swap(i, c);
+            i = c;
+        }
+    }
+
+    private void siftUp(long i) {
+        while (i > 0) {
+            final long p = (i - 1) >> 1;
+            if (compare(i, p) * mode <= 0) {
+                return;
+            }
+            swap(i, p);
+            i = p;
+        }
+    }
+
+    private void swap(long a, long b) {
+        final long ra = a << 1;
+        final long rb = b << 1;
+        final long rowId = heap.get(ra);
+        final long seq = heap.get(ra + 1);
+        heap.set(ra, heap.get(rb));
+        heap.set(ra + 1, heap.get(rb + 1));
+        heap.set(rb, rowId);
+        heap.set(rb + 1, seq);
+    }
+}
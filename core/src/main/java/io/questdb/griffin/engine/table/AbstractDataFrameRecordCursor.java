@@ -24,18 +24,20 @@
 
 package io.questdb.griffin.engine.table;
 
+import io.questdb.cairo.TableReader;
 import io.questdb.cairo.TableReaderSelectedColumnRecord;
 import io.questdb.cairo.sql.DataFrameCursor;
 import io.questdb.cairo.sql.Record;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.StaticSymbolTable;
+import io.questdb.cairo.sql.TableReaderSource;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.std.IntList;
 import io.questdb.std.Rows;
 import org.jetbrains.annotations.NotNull;
 
-public abstract class AbstractDataFrameRecordCursor implements RecordCursor {
+public abstract class AbstractDataFrameRecordCursor implements RecordCursor, TableReaderSource {
     protected final TableReaderSelectedColumnRecord recordA;
     protected final TableReaderSelectedColumnRecord recordB;
     protected DataFrameCursor dataFrameCursor;
@@ -70,6 +72,11 @@ public abstract class AbstractDataFrameRecordCursor implements RecordCursor {
         return recordB;
     }
 
+    @Override
+    public TableReader getTableReader() {
+        return dataFrameCursor.getTableReader();
+    }
+
     @Override
     public void recordAt(Record record, long atRowId) {
         ((TableReaderSelectedColumnRecord) record).jumpTo(Rows.toPartitionIndex(atRowId), Rows.toLocalRowID(atRowId));
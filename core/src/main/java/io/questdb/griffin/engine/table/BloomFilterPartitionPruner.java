@@ -0,0 +1,108 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.BloomFilterReader;
+import io.questdb.cairo.ColumnType;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableReaderMetadata;
+import io.questdb.cairo.sql.PartitionPruner;
+import io.questdb.cairo.sql.StaticSymbolTable;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.std.IntList;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+
+import java.io.Closeable;
+
+/**
+ * Skips partitions which Bloom filters prove that one of equality or IN predicates on
+ * SYMBOL or STRING column cannot be satisfied by any partition row. Predicates on columns
+ * that are not flagged for Bloom filters, or partitions that do not have filter built yet,
+ * do not skip anything.
+ */
+public class BloomFilterPartitionPruner implements PartitionPruner, Closeable {
+    // table column index per predicate
+    private final IntList columnIndexes = new IntList();
+    // values predicate accepts, symbol values are resolved to keys when partition is checked
+    private final ObjList<ObjList<String>> values = new ObjList<>();
+    private final BloomFilterReader bloomFilter = new BloomFilterReader();
+
+    /**
+     * Adds predicate that is satisfied when column holds one of the values.
+     *
+     * @param columnIndex index of column in table reader metadata
+     * @param values      non-null values
+     */
+    public void add(int columnIndex, ObjList<String> values) {
+        columnIndexes.add(columnIndex);
+        this.values.add(values);
+    }
+
+    @Override
+    public boolean canSkipPartition(TableReader reader, int partitionIndex) {
+        final TableReaderMetadata metadata = reader.getMetadata();
+        for (int i = 0, n = columnIndexes.size(); i < n; i++) {
+            final int columnIndex = columnIndexes.getQuick(i);
+            if (metadata.isColumnBloomFiltered(columnIndex)
+                    && reader.loadBloomFilter(partitionIndex, columnIndex, bloomFilter)
+                    && !mightContainAny(reader, columnIndex, values.getQuick(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(bloomFilter);
+    }
+
+    public int size() {
+        return columnIndexes.size();
+    }
+
+    private boolean mightContainAny(TableReader reader, int columnIndex, ObjList<String> values) {
+        if (ColumnType.isSymbol(reader.getMetadata().getColumnType(columnIndex))) {
+            final StaticSymbolTable symbolTable = reader.getSymbolMapReader(columnIndex);
+            for (int i = 0, n = values.size(); i < n; i++) {
+                final int key = symbolTable.keyOf(values.getQuick(i));
+                // values table has never seen cannot be in any partition
+                if (key != SymbolTable.VALUE_NOT_FOUND && bloomFilter.mightContain(BloomFilterReader.hash(key))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        for (int i = 0, n = values.size(); i < n; i++) {
+            if (bloomFilter.mightContain(BloomFilterReader.hash(values.getQuick(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,472 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.sql.StaticSymbolTable;
+import io.questdb.cairo.sql.SymbolTableSource;
+import io.questdb.std.*;
+
+/**
+ * Conjunction of "column op constant" predicates evaluated a column at a time directly over
+ * page frame memory. First predicate scans row range and writes indexes of matching rows into
+ * selection vector, subsequent predicates narrow the selection down in place. Loops are
+ * branch-free and make no virtual calls per row.
+ * <p>
+ * Semantics of every predicate, including treatment of nulls, mirror the interpreted
+ * comparison functions. Compiled filter holds no per-range state and can be shared
+ * between threads once initialised.
+ */
+public class CompiledFilter {
+    // same tolerance as EqDoubleFunctionFactory
+    private static final double DOUBLE_EPSILON = 0.0000000001;
+    private final ObjList<Predicate> predicates = new ObjList<>();
+
+    /**
+     * Checks whether any of the rows described by zone map stats can match predicate.
+     *
+     * @param min min of non-null values, raw double bits for DOUBLE columns
+     * @param max max of non-null values, raw double bits for DOUBLE columns
+     * @return false when none of the rows can match
+     */
+    public boolean canMatch(int predicateIndex, long nullCount, long rowCount, long min, long max) {
+        final Predicate predicate = predicates.getQuick(predicateIndex);
+        if (nullCount > 0 && predicate.acceptsNull()) {
+            return true;
+        }
+        return nullCount < rowCount && predicate.canMatchValues(min, max);
+    }
+
+    public void addDoubleEq(int columnIndex, double value, boolean negated) {
+        predicates.add(new DoubleEqPredicate(columnIndex, value, negated));
+    }
+
+    /**
+     * Adds predicate that matches non-NaN values between lo and hi, both inclusive.
+     */
+    public void addDoubleRange(int columnIndex, double lo, double hi) {
+        predicates.add(new DoubleRangePredicate(columnIndex, lo, hi));
+    }
+
+    public void addIntRange(int columnIndex, int lo, int hi, boolean negated) {
+        predicates.add(new IntRangePredicate(columnIndex, lo, hi, negated));
+    }
+
+    /**
+     * Adds predicate that matches non-null long values, which fall between lo and hi once
+     * converted to double. This is how ordered comparisons of long values are evaluated
+     * by filter functions.
+     */
+    public void addLongAsDoubleRange(int columnIndex, double lo, double hi) {
+        predicates.add(new LongAsDoubleRangePredicate(columnIndex, lo, hi));
+    }
+
+    public void addLongRange(int columnIndex, long lo, long hi, boolean negated) {
+        predicates.add(new LongRangePredicate(columnIndex, lo, hi, negated));
+    }
+
+    public void addSymbolEq(int columnIndex, CharSequence value, boolean negated) {
+        predicates.add(new SymbolEqPredicate(columnIndex, Chars.toString(value), negated));
+    }
+
+    /**
+     * Evaluates filter over rows of a page frame.
+     *
+     * @param frameAddresses page addresses of frame columns, 0 when column is null for the whole frame
+     * @param frameRowLo     partition-local index of the first row of the frame
+     * @param rowLo          first row of the range to evaluate, inclusive
+     * @param rowHi          last row of the range to evaluate, exclusive
+     * @param rows           selection vector receiving partition-local indexes of matching rows
+     */
+    public void filter(LongList frameAddresses, long frameRowLo, long rowLo, long rowHi, DirectLongList rows) {
+        rows.clear();
+        final long n = rowHi - rowLo;
+        if (rows.getCapacity() < n) {
+            rows.extend(n);
+        }
+        final long dst = rows.getAddress();
+
+        Predicate predicate = predicates.getQuick(0);
+        long address = frameAddresses.getQuick(predicate.columnIndex);
+        long count;
+        if (address != 0) {
+            count = predicate.scan(address - (frameRowLo << predicate.shift), rowLo, rowHi, dst);
+        } else if (predicate.acceptsNull()) {
+            count = n;
+            for (long i = 0; i < n; i++) {
+                Unsafe.getUnsafe().putLong(dst + (i << 3), rowLo + i);
+            }
+        } else {
+            count = 0;
+        }
+
+        for (int i = 1, m = predicates.size(); i < m && count > 0; i++) {
+            predicate = predicates.getQuick(i);
+            address = frameAddresses.getQuick(predicate.columnIndex);
+            if (address != 0) {
+                count = predicate.refine(address - (frameRowLo << predicate.shift), dst, count);
+            } else if (!predicate.acceptsNull()) {
+                count = 0;
+            }
+        }
+        rows.setPos(count);
+    }
+
+    public int getColumnIndex(int predicateIndex) {
+        return predicates.getQuick(predicateIndex).columnIndex;
+    }
+
+    public void init(SymbolTableSource symbolTableSource) {
+        for (int i = 0, n = predicates.size(); i < n; i++) {
+            predicates.getQuick(i).init(symbolTableSource);
+        }
+    }
+
+    /**
+     * @return true when predicate can be checked against zone map of its column
+     */
+    public boolean isPrunable(int predicateIndex) {
+        return predicates.getQuick(predicateIndex).isPrunable();
+    }
+
+    public int size() {
+        return predicates.size();
+    }
+
+    private abstract static class Predicate {
+        final int columnIndex;
+        final int shift;
+
+        Predicate(int columnIndex, int shift) {
+            this.columnIndex = columnIndex;
+            this.shift = shift;
+        }
+
+        abstract boolean acceptsNull();
+
+        /**
+         * @return false when none of non-null values between min and max can match
+         */
+        abstract boolean canMatchValues(long min, long max);
+
+        void init(SymbolTableSource symbolTableSource) {
+        }
+
+        boolean isPrunable() {
+            return true;
+        }
+
+        /**
+         * Narrows down selection vector in place.
+         *
+         * @return number of rows left in selection vector
+         */
+        abstract long refine(long base, long rows, long count);
+
+        /**
+         * Writes indexes of matching rows between rowLo and rowHi into selection vector.
+         *
+         * @return number of rows written
+         */
+        abstract long scan(long base, long rowLo, long rowHi, long dst);
+    }
+
+    private static class IntRangePredicate extends Predicate {
+        private final boolean negated;
+        int lo;
+        int hi;
+
+        IntRangePredicate(int columnIndex, int lo, int hi, boolean negated) {
+            super(columnIndex, 2);
+            this.lo = lo;
+            this.hi = hi;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean acceptsNull() {
+            return (Numbers.INT_NaN >= lo && Numbers.INT_NaN <= hi) != negated;
+        }
+
+        @Override
+        boolean canMatchValues(long min, long max) {
+            return negated ? min < lo || max > hi : min <= hi && max >= lo;
+        }
+
+        @Override
+        long refine(long base, long rows, long count) {
+            final int lo = this.lo;
+            final int hi = this.hi;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long i = 0; i < count; i++) {
+                final long r = Unsafe.getUnsafe().getLong(rows + (i << 3));
+                final int v = Unsafe.getUnsafe().getInt(base + (r << 2));
+                Unsafe.getUnsafe().putLong(rows + (n << 3), r);
+                n += ((v >= lo & v <= hi) != negated) ? 1 : 0;
+            }
+            return n;
+        }
+
+        @Override
+        long scan(long base, long rowLo, long rowHi, long dst) {
+            final int lo = this.lo;
+            final int hi = this.hi;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long r = rowLo; r < rowHi; r++) {
+                final int v = Unsafe.getUnsafe().getInt(base + (r << 2));
+                Unsafe.getUnsafe().putLong(dst + (n << 3), r);
+                n += ((v >= lo & v <= hi) != negated) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+
+    private static class SymbolEqPredicate extends IntRangePredicate {
+        private final String value;
+
+        SymbolEqPredicate(int columnIndex, String value, boolean negated) {
+            super(columnIndex, 0, 0, negated);
+            this.value = value;
+        }
+
+        @Override
+        void init(SymbolTableSource symbolTableSource) {
+            // symbol that is not in the table resolves to VALUE_NOT_FOUND, which matches no rows
+            lo = hi = ((StaticSymbolTable) symbolTableSource.getSymbolTable(columnIndex)).keyOf(value);
+        }
+
+        @Override
+        boolean isPrunable() {
+            // symbol columns do not have zone maps
+            return false;
+        }
+    }
+
+    private static class LongRangePredicate extends Predicate {
+        private final long lo;
+        private final long hi;
+        private final boolean negated;
+
+        LongRangePredicate(int columnIndex, long lo, long hi, boolean negated) {
+            super(columnIndex, 3);
+            this.lo = lo;
+            this.hi = hi;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean acceptsNull() {
+            return (Numbers.LONG_NaN >= lo && Numbers.LONG_NaN <= hi) != negated;
+        }
+
+        @Override
+        boolean canMatchValues(long min, long max) {
+            return negated ? min < lo || max > hi : min <= hi && max >= lo;
+        }
+
+        @Override
+        long refine(long base, long rows, long count) {
+            final long lo = this.lo;
+            final long hi = this.hi;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long i = 0; i < count; i++) {
+                final long r = Unsafe.getUnsafe().getLong(rows + (i << 3));
+                final long v = Unsafe.getUnsafe().getLong(base + (r << 3));
+                Unsafe.getUnsafe().putLong(rows + (n << 3), r);
+                n += ((v >= lo & v <= hi) != negated) ? 1 : 0;
+            }
+            return n;
+        }
+
+        @Override
+        long scan(long base, long rowLo, long rowHi, long dst) {
+            final long lo = this.lo;
+            final long hi = this.hi;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long r = rowLo; r < rowHi; r++) {
+                final long v = Unsafe.getUnsafe().getLong(base + (r << 3));
+                Unsafe.getUnsafe().putLong(dst + (n << 3), r);
+                n += ((v >= lo & v <= hi) != negated) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+
+    private static class LongAsDoubleRangePredicate extends Predicate {
+        private final double lo;
+        private final double hi;
+
+        LongAsDoubleRangePredicate(int columnIndex, double lo, double hi) {
+            super(columnIndex, 3);
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        boolean acceptsNull() {
+            return false;
+        }
+
+        @Override
+        boolean canMatchValues(long min, long max) {
+            // long to double conversion is monotonic
+            return (double) min <= hi && (double) max >= lo;
+        }
+
+        @Override
+        long refine(long base, long rows, long count) {
+            final double lo = this.lo;
+            final double hi = this.hi;
+            long n = 0;
+            for (long i = 0; i < count; i++) {
+                final long r = Unsafe.getUnsafe().getLong(rows + (i << 3));
+                final long v = Unsafe.getUnsafe().getLong(base + (r << 3));
+                final double d = (double) v;
+                Unsafe.getUnsafe().putLong(rows + (n << 3), r);
+                n += (v != Numbers.LONG_NaN & d >= lo & d <= hi) ? 1 : 0;
+            }
+            return n;
+        }
+
+        @Override
+        long scan(long base, long rowLo, long rowHi, long dst) {
+            final double lo = this.lo;
+            final double hi = this.hi;
+            long n = 0;
+            for (long r = rowLo; r < rowHi; r++) {
+                final long v = Unsafe.getUnsafe().getLong(base + (r << 3));
+                final double d = (double) v;
+                Unsafe.getUnsafe().putLong(dst + (n << 3), r);
+                n += (v != Numbers.LONG_NaN & d >= lo & d <= hi) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+
+    private static class DoubleRangePredicate extends Predicate {
+        private final double lo;
+        private final double hi;
+
+        DoubleRangePredicate(int columnIndex, double lo, double hi) {
+            super(columnIndex, 3);
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        boolean acceptsNull() {
+            return false;
+        }
+
+        @Override
+        boolean canMatchValues(long min, long max) {
+            return Double.longBitsToDouble(min) <= hi && Double.longBitsToDouble(max) >= lo;
+        }
+
+        @Override
+        long refine(long base, long rows, long count) {
+            final double lo = this.lo;
+            final double hi = this.hi;
+            long n = 0;
+            for (long i = 0; i < count; i++) {
+                final long r = Unsafe.getUnsafe().getLong(rows + (i << 3));
+                final double v = Unsafe.getUnsafe().getDouble(base + (r << 3));
+                Unsafe.getUnsafe().putLong(rows + (n << 3), r);
+                n += (v >= lo & v <= hi) ? 1 : 0;
+            }
+            return n;
+        }
+
+        @Override
+        long scan(long base, long rowLo, long rowHi, long dst) {
+            final double lo = this.lo;
+            final double hi = this.hi;
+            long n = 0;
+            for (long r = rowLo; r < rowHi; r++) {
+                final double v = Unsafe.getUnsafe().getDouble(base + (r << 3));
+                Unsafe.getUnsafe().putLong(dst + (n << 3), r);
+                n += (v >= lo & v <= hi) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+
+    private static class DoubleEqPredicate extends Predicate {
+        private final double value;
+        private final boolean negated;
+
+        DoubleEqPredicate(int columnIndex, double value, boolean negated) {
+            super(columnIndex, 3);
+            this.value = value;
+            this.negated = negated;
+        }
+
+        @Override
+        boolean acceptsNull() {
+            // value is never NaN, compiler does not produce such predicates
+            return negated;
+        }
+
+        @Override
+        boolean canMatchValues(long min, long max) {
+            final double lo = Double.longBitsToDouble(min);
+            final double hi = Double.longBitsToDouble(max);
+            if (negated) {
+                return value - lo >= DOUBLE_EPSILON || hi - value >= DOUBLE_EPSILON;
+            }
+            return lo - value < DOUBLE_EPSILON && value - hi < DOUBLE_EPSILON;
+        }
+
+        @Override
+        long refine(long base, long rows, long count) {
+            final double value = this.value;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long i = 0; i < count; i++) {
+                final long r = Unsafe.getUnsafe().getLong(rows + (i << 3));
+                final double v = Unsafe.getUnsafe().getDouble(base + (r << 3));
+                Unsafe.getUnsafe().putLong(rows + (n << 3), r);
+                n += (Math.abs(v - value) < DOUBLE_EPSILON != negated) ? 1 : 0;
+            }
+            return n;
+        }
+
+        @Override
+        long scan(long base, long rowLo, long rowHi, long dst) {
+            final double value = this.value;
+            final boolean negated = this.negated;
+            long n = 0;
+            for (long r = rowLo; r < rowHi; r++) {
+                final double v = Unsafe.getUnsafe().getDouble(base + (r << 3));
+                Unsafe.getUnsafe().putLong(dst + (n << 3), r);
+                n += (Math.abs(v - value) < DOUBLE_EPSILON != negated) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+}
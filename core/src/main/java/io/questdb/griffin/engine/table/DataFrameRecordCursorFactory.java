@@ -44,7 +44,9 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
     private final boolean framingSupported;
     private final IntList columnIndexes;
     private final IntList columnSizes;
+    private final RowCursorFactory rowCursorFactory;
     private TableReaderPageFrameCursor pageFrameCursor;
+    private PartitionPruner partitionPruner;
 
     public DataFrameRecordCursorFactory(
             RecordMetadata metadata,
@@ -65,12 +67,14 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         this.framingSupported = framingSupported;
         this.columnIndexes = columnIndexes;
         this.columnSizes = columnSizes;
+        this.rowCursorFactory = rowCursorFactory;
     }
 
     @Override
     public void close() {
         Misc.free(filter);
         Misc.free(dataFrameCursorFactory);
+        partitionPruner = Misc.free(partitionPruner);
     }
 
     @Override
@@ -78,9 +82,14 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         return followsOrderByAdvice;
     }
 
+    public IntList getColumnIndexes() {
+        return columnIndexes;
+    }
+
     @Override
     public PageFrameCursor getPageFrameCursor(SqlExecutionContext executionContext) throws SqlException {
         DataFrameCursor dataFrameCursor = dataFrameCursorFactory.getCursor(executionContext);
+        dataFrameCursor.setPartitionPruner(partitionPruner);
         if (pageFrameCursor != null) {
             return pageFrameCursor.of(dataFrameCursor);
         } else if (framingSupported) {
@@ -91,6 +100,30 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         }
     }
 
+    @Nullable
+    public PartitionPruner getPartitionPruner() {
+        return partitionPruner;
+    }
+
+    /**
+     * Sets pruner cursors of this factory skip partitions with, factory takes ownership of it.
+     */
+    public void setPartitionPruner(@Nullable PartitionPruner partitionPruner) {
+        Misc.free(this.partitionPruner);
+        this.partitionPruner = partitionPruner;
+    }
+
+    /**
+     * @return true when cursor returns every row of the table in ascending timestamp order,
+     * rows can then be located by partition and row index without iterating the cursor
+     */
+    public boolean isFullFwdScan() {
+        return filter == null
+                && partitionPruner == null
+                && rowCursorFactory instanceof DataFrameRowCursorFactory
+                && dataFrameCursorFactory instanceof FullFwdDataFrameCursorFactory;
+    }
+
     @Override
     public boolean recordCursorSupportsRandomAccess() {
         return true;
@@ -113,6 +146,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
             DataFrameCursor dataFrameCursor,
             SqlExecutionContext executionContext
     ) throws SqlException {
+        dataFrameCursor.setPartitionPruner(partitionPruner);
         cursor.of(dataFrameCursor, executionContext);
         if (filter != null) {
             filter.init(cursor, executionContext);
@@ -120,6 +154,14 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         return cursor;
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.ofTable(dataFrameCursorFactory.getTableName());
+        sink.child(rowCursorFactory);
+        sink.child(dataFrameCursorFactory);
+    }
+
     public static class TableReaderPageFrameCursor implements PageFrameCursor {
         private final LongList columnPageNextAddress = new LongList();
         private final LongList columnPageAddress = new LongList();
@@ -137,6 +179,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
         private DataFrameCursor dataFrameCursor;
         private final int timestampIndex;
         private long rowLo = -1;
+        private long frameRowCount;
 
         public TableReaderPageFrameCursor(IntList columnIndexes, IntList columnSizes, int timestampIndex) {
             this.columnIndexes = columnIndexes;
@@ -157,7 +200,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
                 final long m = computePageMin(reader.getColumnBase(partitionIndex));
                 if (m < Long.MAX_VALUE) {
                     // Offset next frame lowest RowId with the count of rows returned in previous frame.
-                    rowLo += pageSizes.get(timestampIndex) >> columnSizes.get(timestampIndex);
+                    rowLo += frameRowCount;
                     return computeFrame(m);
                 }
             }
@@ -243,6 +286,10 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
             return reader.getSymbolMapReader(columnIndexes.getQuick(columnIndex));
         }
 
+        public TableReader getTableReader() {
+            return reader;
+        }
+
         public TableReaderPageFrameCursor of(DataFrameCursor dataFrameCursor) {
             this.reader = dataFrameCursor.getTableReader();
             this.dataFrameCursor = dataFrameCursor;
@@ -250,6 +297,10 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
             return this;
         }
 
+        public void setPartitionPruner(@Nullable PartitionPruner pruner) {
+            dataFrameCursor.setPartitionPruner(pruner);
+        }
+
         private TableReaderPageFrameCursor.TableReaderPageFrame computeFrame(long min) {
             for (int i = 0; i < columnCount; i++) {
                 final long top = topsRemaining.getQuick(i);
@@ -273,6 +324,7 @@ public class DataFrameRecordCursorFactory extends AbstractDataFrameRecordCursorF
                 }
             }
             partitionRemaining -= min;
+            frameRowCount = min;
             if (partitionRemaining < 0) {
                 throw CairoException.instance(0).put("incorrect frame built for vector calculation");
             }
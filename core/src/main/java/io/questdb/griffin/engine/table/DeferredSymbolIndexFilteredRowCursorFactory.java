@@ -28,6 +28,7 @@ import io.questdb.cairo.EmptyRowCursor;
 import io.questdb.cairo.TableReader;
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RowCursor;
 import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.griffin.SqlException;
@@ -80,4 +81,11 @@ public class DeferredSymbolIndexFilteredRowCursorFactory implements FunctionBase
     public Function getFunction() {
         return symbolFunction;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").valColumn(columnIndex);
+        sink.attr("symbol").val(symbolFunction.getStr(null));
+    }
 }
@@ -24,11 +24,13 @@
 
 package io.questdb.griffin.engine.table;
 
+import io.questdb.cairo.BitmapIndexReader;
 import io.questdb.cairo.EmptyRowCursor;
 import io.questdb.cairo.TableReader;
 import io.questdb.cairo.TableUtils;
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RowCursor;
 import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.griffin.SqlException;
@@ -83,4 +85,12 @@ public class DeferredSymbolIndexRowCursorFactory implements FunctionBasedRowCurs
     public boolean isEntity() {
         return false;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").valColumn(columnIndex);
+        sink.attr("symbol").val(symbol.getStr(null));
+        sink.attr("direction").val(indexDirection == BitmapIndexReader.DIR_FORWARD ? "forward" : "backward");
+    }
 }
@@ -142,4 +142,10 @@ public class FilterOnSubQueryRecordCursorFactory extends AbstractDataFrameRecord
         }
         return this.cursor;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        super.toPlan(sink);
+        sink.child(recordCursorFactory);
+    }
 }
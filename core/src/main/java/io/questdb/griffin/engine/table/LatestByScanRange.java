@@ -0,0 +1,140 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.TableUtils;
+import io.questdb.std.AbstractLockable;
+import io.questdb.std.Rows;
+import io.questdb.std.Unsafe;
+
+/**
+ * Row range of a data frame that parallel LATEST BY scans for the latest row of each
+ * symbol key. Symbol keys are read straight from the column, latest row ids are kept in
+ * a slot array that is shared by all ranges of the query, one slot per index key (see
+ * {@link TableUtils#toIndexKey(int)}). Slots are updated via CAS to whichever row id is
+ * greater, so ranges can be scanned in any order and by any thread. Slot value of -1
+ * means key has not been found yet, {@link Long#MAX_VALUE} makes scan ignore the key.
+ * <p>
+ * Range is scanned by either worker that picked it up from the queue or by the thread
+ * that owns the cursor, whichever gets to lock it first.
+ */
+public class LatestByScanRange extends AbstractLockable {
+    private long keysAddress;
+    private long columnTop;
+    private long rowLo;
+    private long rowHi;
+    private int partitionIndex;
+    private long slotsAddress;
+    private int slotCount;
+    private long foundCount;
+    private volatile boolean done;
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                scan();
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean update(int key, long row) {
+        if (key < slotCount) {
+            final long slotAddress = slotsAddress + ((long) key << 3);
+            final long rowId = Rows.toRowID(partitionIndex, row);
+            long current;
+            while ((current = Unsafe.getUnsafe().getLongVolatile(null, slotAddress)) < rowId) {
+                if (Unsafe.getUnsafe().compareAndSwapLong(null, slotAddress, current, rowId)) {
+                    return current == -1;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void scan() {
+        long found = 0;
+        final long lo = Math.max(rowLo, columnTop);
+        for (long row = rowHi - 1; row >= lo; row--) {
+            final int key = TableUtils.toIndexKey(Unsafe.getUnsafe().getInt(keysAddress + ((row - columnTop) << 2)));
+            if (update(key, row)) {
+                found++;
+            }
+        }
+        // rows above column top are all null, the last of them is the latest null
+        if (rowLo < columnTop && update(0, Math.min(rowHi, columnTop) - 1)) {
+            found++;
+        }
+        foundCount = found;
+    }
+
+    /**
+     * @return number of keys this range found first, keys found first by other ranges
+     * are not included even if this range has later rows for them
+     */
+    long getFoundCount() {
+        return foundCount;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @param keysAddress    address of the symbol column in the partition, it is ignored when all
+     *                       rows of the range are above column top
+     * @param columnTop      column top of the symbol column in the partition
+     * @param partitionIndex partition of the range
+     * @param rowLo          first row of the range
+     * @param rowHi          row after the last row of the range
+     * @param slotsAddress   address of the slot array
+     * @param slotCount      number of slots
+     * @param sequence       lock sequence, it makes range locked by the previous query runnable again
+     */
+    void of(
+            long keysAddress,
+            long columnTop,
+            int partitionIndex,
+            long rowLo,
+            long rowHi,
+            long slotsAddress,
+            int slotCount,
+            int sequence
+    ) {
+        this.keysAddress = keysAddress;
+        this.columnTop = columnTop;
+        this.partitionIndex = partitionIndex;
+        this.rowLo = rowLo;
+        this.rowHi = rowHi;
+        this.slotsAddress = slotsAddress;
+        this.slotCount = slotCount;
+        this.foundCount = 0;
+        this.done = false;
+        of(sequence);
+    }
+}
@@ -113,4 +113,10 @@ public class LatestBySubQueryRecordCursorFactory extends AbstractTreeSetRecordCu
     public boolean recordCursorSupportsRandomAccess() {
         return true;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        super.toPlan(sink);
+        sink.child(recordCursorFactory);
+    }
 }
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.std.AbstractLockable;
+import io.questdb.std.DirectLongList;
+import io.questdb.std.LongList;
+import io.questdb.std.Misc;
+
+import java.io.Closeable;
+
+/**
+ * Unit of work of parallel filter. Entry describes a range of rows of a single partition
+ * and collects partition-local indexes of rows that pass the filter. Entry is executed either
+ * by worker that picked it up from the queue or by the thread that owns the cursor, whichever
+ * gets to lock it first.
+ */
+public class PageFrameFilterEntry extends AbstractLockable implements Closeable {
+    private final DirectLongList rows;
+    private final LongList frameAddresses = new LongList();
+    private ParallelFilteredRecordCursor cursor;
+    private int partitionIndex;
+    private long rowLo;
+    private long rowHi;
+    private long frameRowLo;
+    private Throwable error;
+    private volatile boolean done;
+
+    public PageFrameFilterEntry(long rowsCapacity) {
+        this.rows = new DirectLongList(rowsCapacity);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(rows);
+    }
+
+    public boolean run() {
+        if (tryLock()) {
+            try {
+                cursor.filter(this);
+            } catch (Throwable th) {
+                error = th;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    LongList getFrameAddresses() {
+        return frameAddresses;
+    }
+
+    long getFrameRowLo() {
+        return frameRowLo;
+    }
+
+    int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    long getRowHi() {
+        return rowHi;
+    }
+
+    long getRowLo() {
+        return rowLo;
+    }
+
+    DirectLongList getRows() {
+        return rows;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    void of(
+            int sequence,
+            ParallelFilteredRecordCursor cursor,
+            int partitionIndex,
+            long rowLo,
+            long rowHi,
+            long frameRowLo,
+            LongList frameAddresses
+    ) {
+        this.cursor = cursor;
+        this.partitionIndex = partitionIndex;
+        this.rowLo = rowLo;
+        this.rowHi = rowHi;
+        this.frameRowLo = frameRowLo;
+        this.frameAddresses.clear();
+        this.frameAddresses.add(frameAddresses);
+        this.error = null;
+        this.done = false;
+        this.rows.clear();
+        of(sequence);
+    }
+}
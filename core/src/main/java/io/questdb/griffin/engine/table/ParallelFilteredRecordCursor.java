@@ -0,0 +1,450 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.CairoException;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableReaderSelectedColumnRecord;
+import io.questdb.cairo.ZoneMapReader;
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PageFrame;
+import io.questdb.cairo.sql.PartitionPruner;
+import io.questdb.cairo.sql.Record;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.table.DataFrameRecordCursorFactory.TableReaderPageFrameCursor;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.tasks.PageFrameFilterTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Evaluates filter over page frames of a table in parallel. Page frames are split into
+ * row ranges of bounded size, which are published on the message bus and executed by the
+ * worker pool. The cursor keeps a bounded window of ranges in flight and returns matching
+ * rows in the order of ranges, which preserves timestamp order of the underlying table.
+ * <p>
+ * Filter functions are not thread-safe, therefore each concurrent executor borrows one of
+ * the filter copies (a "slot") for the duration of the range. When filter is compiled, the
+ * compiled part is evaluated over frame memory first and filter functions, if any, only
+ * evaluate the remainder of filter for rows selected by the compiled part.
+ * <p>
+ * Compiled predicates are also checked against zone maps of their columns. Partitions
+ * none of which rows can match are skipped before they are opened, and so are blocks of
+ * rows within partitions that are scanned.
+ */
+class ParallelFilteredRecordCursor implements RecordCursor, PartitionPruner {
+    private static final int INITIAL_ROWS_CAPACITY = 16;
+    private final ObjList<Function> filters;
+    private final CompiledFilter compiledFilter;
+    private final LongList frameAddresses = new LongList();
+    private final ObjList<SlotRecord> slotRecords;
+    private final long[] slotLocks;
+    private final ObjList<PageFrameFilterEntry> entries;
+    private final int window;
+    private final long maxRangeRows;
+    private final boolean parallel;
+    private final int columnCount;
+    private final TableReaderSelectedColumnRecord recordA;
+    private final TableReaderSelectedColumnRecord recordB;
+    private final IntList columnIndexes;
+    // zone map per compiled predicate, null when zone maps are not used
+    private final ObjList<ZoneMapReader> zoneMaps;
+    // predicates zone maps are loaded for, these belong to zoneMapPartitionIndex
+    private final IntList zoneMapPredicates = new IntList();
+    private int zoneMapPartitionIndex = -1;
+    // pruner of the base factory, e.g. Bloom filters, it is consulted before zone maps
+    private PartitionPruner basePruner;
+    private TableReaderPageFrameCursor pageFrameCursor;
+    private RingQueue<PageFrameFilterTask> queue;
+    private Sequence pubSeq;
+    // range generator state
+    private int framePartitionIndex;
+    private long frameRowLo;
+    private long frameRowHi;
+    private long rangeRowLo;
+    // window state
+    private long dispatchIndex;
+    private long consumeIndex;
+    private PageFrameFilterEntry current;
+    private long rowIndex;
+    private long rowCount;
+
+    public ParallelFilteredRecordCursor(
+            @NotNull ObjList<Function> filters,
+            @Nullable CompiledFilter compiledFilter,
+            @NotNull IntList columnIndexes,
+            int concurrency,
+            long maxRangeRows,
+            boolean zoneMapEnabled
+    ) {
+        assert filters.size() == 0 || filters.size() == concurrency;
+        this.filters = filters;
+        this.compiledFilter = compiledFilter;
+        this.parallel = concurrency > 1;
+        this.columnCount = columnIndexes.size();
+        final int slotCount = filters.size();
+        this.slotLocks = new long[slotCount];
+        this.slotRecords = new ObjList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slotRecords.add(new SlotRecord(columnIndexes));
+        }
+        // keep two ranges per executor in flight, so that workers are not starved
+        // while we consume rows of the range at the head of the window
+        this.window = concurrency * 2;
+        this.entries = new ObjList<>(window);
+        for (int i = 0; i < window; i++) {
+            entries.add(new PageFrameFilterEntry(INITIAL_ROWS_CAPACITY));
+        }
+        this.maxRangeRows = maxRangeRows;
+        this.recordA = new TableReaderSelectedColumnRecord(columnIndexes);
+        this.recordB = new TableReaderSelectedColumnRecord(columnIndexes);
+        this.columnIndexes = columnIndexes;
+        if (zoneMapEnabled && compiledFilter != null) {
+            this.zoneMaps = new ObjList<>(compiledFilter.size());
+            for (int i = 0, n = compiledFilter.size(); i < n; i++) {
+                zoneMaps.add(compiledFilter.isPrunable(i) ? new ZoneMapReader() : null);
+            }
+        } else {
+            this.zoneMaps = null;
+        }
+    }
+
+    @Override
+    public boolean canSkipPartition(TableReader reader, int partitionIndex) {
+        zoneMapPredicates.clear();
+        if (basePruner != null && basePruner.canSkipPartition(reader, partitionIndex)) {
+            zoneMapPartitionIndex = -1;
+            return true;
+        }
+        zoneMapPartitionIndex = partitionIndex;
+        for (int i = 0, n = zoneMaps.size(); i < n; i++) {
+            final ZoneMapReader zoneMap = zoneMaps.getQuick(i);
+            if (zoneMap != null && reader.loadZoneMap(partitionIndex, columnIndexes.getQuick(compiledFilter.getColumnIndex(i)), zoneMap)) {
+                if (!compiledFilter.canMatch(i, zoneMap.getNullCount(), zoneMap.getRowCount(), zoneMap.getMin(), zoneMap.getMax())) {
+                    zoneMapPartitionIndex = -1;
+                    return true;
+                }
+                zoneMapPredicates.add(i);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        drain();
+        pageFrameCursor = Misc.free(pageFrameCursor);
+    }
+
+    @Override
+    public Record getRecord() {
+        return recordA;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable(int columnIndex) {
+        return pageFrameCursor.getSymbolMapReader(columnIndex);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (true) {
+            if (rowIndex < rowCount) {
+                recordA.setRecordIndex(current.getRows().get(rowIndex++));
+                return true;
+            }
+            if (!nextRange()) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public Record getRecordB() {
+        return recordB;
+    }
+
+    @Override
+    public void recordAt(Record record, long atRowId) {
+        ((TableReaderSelectedColumnRecord) record).jumpTo(Rows.toPartitionIndex(atRowId), Rows.toLocalRowID(atRowId));
+    }
+
+    @Override
+    public void toTop() {
+        drain();
+        pageFrameCursor.toTop();
+        for (int i = 0, n = filters.size(); i < n; i++) {
+            filters.getQuick(i).toTop();
+        }
+        resetWindow();
+    }
+
+    @Override
+    public long size() {
+        return -1;
+    }
+
+    void freeEntries() {
+        drain();
+        Misc.freeObjList(entries);
+        if (zoneMaps != null) {
+            Misc.freeObjList(zoneMaps);
+        }
+    }
+
+    void filter(PageFrameFilterEntry entry) {
+        final DirectLongList rows = entry.getRows();
+        if (compiledFilter != null) {
+            compiledFilter.filter(entry.getFrameAddresses(), entry.getFrameRowLo(), entry.getRowLo(), entry.getRowHi(), rows);
+            if (filters.size() == 0 || rows.size() == 0) {
+                return;
+            }
+        }
+
+        final int slot = acquireSlot();
+        try {
+            final Function filter = filters.getQuick(slot);
+            final SlotRecord record = slotRecords.getQuick(slot);
+            record.jumpTo(entry.getPartitionIndex(), entry.getRowLo());
+            if (compiledFilter != null) {
+                // narrow down rows selected by compiled filter in place
+                long n = 0;
+                for (long i = 0, count = rows.size(); i < count; i++) {
+                    final long r = rows.get(i);
+                    record.setRecordIndex(r);
+                    if (filter.getBool(record)) {
+                        rows.set(n++, r);
+                    }
+                }
+                rows.setPos(n);
+            } else {
+                for (long r = entry.getRowLo(), hi = entry.getRowHi(); r < hi; r++) {
+                    record.setRecordIndex(r);
+                    if (filter.getBool(record)) {
+                        rows.add(r);
+                    }
+                }
+            }
+        } finally {
+            Unsafe.arrayPutOrdered(slotLocks, slot, 0L);
+        }
+    }
+
+    void of(TableReaderPageFrameCursor pageFrameCursor, @Nullable PartitionPruner basePruner, SqlExecutionContext executionContext) throws SqlException {
+        this.pageFrameCursor = pageFrameCursor;
+        this.basePruner = basePruner;
+        final TableReader reader = pageFrameCursor.getTableReader();
+        recordA.of(reader);
+        recordB.of(reader);
+        for (int i = 0, n = filters.size(); i < n; i++) {
+            slotRecords.getQuick(i).of(reader);
+            filters.getQuick(i).init(this, executionContext);
+        }
+        if (compiledFilter != null) {
+            compiledFilter.init(this);
+        }
+        zoneMapPartitionIndex = -1;
+        if (zoneMaps != null) {
+            pageFrameCursor.setPartitionPruner(this);
+        }
+
+        final MessageBus bus = executionContext.getMessageBus();
+        if (bus != null && parallel) {
+            queue = bus.getPageFrameFilterQueue();
+            pubSeq = bus.getPageFrameFilterPubSeq();
+        } else {
+            queue = null;
+            pubSeq = null;
+        }
+        resetWindow();
+    }
+
+    private int acquireSlot() {
+        final int slotCount = slotLocks.length;
+        while (true) {
+            for (int i = 0; i < slotCount; i++) {
+                if (Unsafe.arrayGetVolatile(slotLocks, i) == 0 && Unsafe.cas(slotLocks, i, 0L, 1L)) {
+                    return i;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void await(PageFrameFilterEntry entry) {
+        // try to execute entry ourselves, in case it is still in the queue
+        if (!entry.run()) {
+            while (!entry.isDone()) {
+                // help workers with the entries further down the window
+                boolean helped = false;
+                for (long i = dispatchIndex - 1; i > consumeIndex; i--) {
+                    helped |= entries.getQuick((int) (i % window)).run();
+                }
+                if (!helped) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        final Throwable error = entry.getError();
+        if (error != null) {
+            if (error instanceof CairoException) {
+                throw (CairoException) error;
+            }
+            throw CairoException.instance(0).put("parallel filter failed [error=").put(error.getMessage()).put(']');
+        }
+    }
+
+    private void dispatch() {
+        while (dispatchIndex < consumeIndex + window && nextRowRange()) {
+            if (framePartitionIndex == zoneMapPartitionIndex && skipBlocks()) {
+                continue;
+            }
+            final long rangeRowHi = Math.min(rangeRowLo + maxRangeRows, frameRowHi);
+            final PageFrameFilterEntry entry = entries.getQuick((int) (dispatchIndex % window));
+            entry.of((int) dispatchIndex, this, framePartitionIndex, rangeRowLo, rangeRowHi, frameRowLo, frameAddresses);
+            rangeRowLo = rangeRowHi;
+            dispatchIndex++;
+
+            if (pubSeq != null) {
+                long seq;
+                do {
+                    seq = pubSeq.next();
+                } while (seq == -2);
+
+                if (seq > -1) {
+                    queue.get(seq).entry = entry;
+                    pubSeq.done(seq);
+                }
+                // when queue is full entry will be executed by this thread when we get to it
+            }
+        }
+    }
+
+    /**
+     * Makes sure none of the entries of current window is still being executed by workers.
+     * Entries that have not been picked up yet are locked, which makes queued references
+     * to them inert.
+     */
+    private void drain() {
+        for (long i = consumeIndex; i < dispatchIndex; i++) {
+            final PageFrameFilterEntry entry = entries.getQuick((int) (i % window));
+            if (!entry.tryLock()) {
+                while (!entry.isDone()) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        consumeIndex = dispatchIndex;
+        current = null;
+        rowIndex = rowCount = 0;
+    }
+
+    private boolean nextRange() {
+        if (current != null) {
+            // range at the head of the window is consumed, its entry can be reused
+            consumeIndex++;
+            current = null;
+        }
+        dispatch();
+        if (consumeIndex == dispatchIndex) {
+            return false;
+        }
+        current = entries.getQuick((int) (consumeIndex % window));
+        await(current);
+        rowIndex = 0;
+        rowCount = current.getRows().size();
+        recordA.jumpTo(current.getPartitionIndex(), 0);
+        return true;
+    }
+
+    private boolean nextRowRange() {
+        if (rangeRowLo < frameRowHi) {
+            return true;
+        }
+
+        PageFrame frame;
+        while ((frame = pageFrameCursor.next()) != null) {
+            final long frameRowCount = frame.getPageAddress(0) == 0
+                    ? frame.getPageSize(0)
+                    : frame.getPageSize(0) >> frame.getColumnSize(0);
+            if (frameRowCount > 0) {
+                framePartitionIndex = frame.getPartitionIndex();
+                frameRowLo = rangeRowLo = frame.getFirstRowId();
+                frameRowHi = rangeRowLo + frameRowCount;
+                if (compiledFilter != null) {
+                    frameAddresses.clear();
+                    for (int i = 0; i < columnCount; i++) {
+                        frameAddresses.add(frame.getPageAddress(i));
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves start of the next range past zone map blocks none of which rows can match filter.
+     *
+     * @return true when the rest of the frame has been skipped
+     */
+    private boolean skipBlocks() {
+        OUT:
+        while (rangeRowLo < frameRowHi) {
+            for (int i = 0, n = zoneMapPredicates.size(); i < n; i++) {
+                final int predicateIndex = zoneMapPredicates.getQuick(i);
+                final ZoneMapReader zoneMap = zoneMaps.getQuick(predicateIndex);
+                // zone map covers at least as many rows as the partition has
+                final long block = rangeRowLo / zoneMap.getBlockSize();
+                if (!compiledFilter.canMatch(
+                        predicateIndex,
+                        zoneMap.getBlockNullCount(block),
+                        zoneMap.getBlockRowCount(block),
+                        zoneMap.getBlockMin(block),
+                        zoneMap.getBlockMax(block)
+                )) {
+                    rangeRowLo = Math.min((block + 1) * zoneMap.getBlockSize(), frameRowHi);
+                    continue OUT;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void resetWindow() {
+        dispatchIndex = consumeIndex = 0;
+        current = null;
+        rowIndex = rowCount = 0;
+        rangeRowLo = frameRowHi = 0;
+    }
+}
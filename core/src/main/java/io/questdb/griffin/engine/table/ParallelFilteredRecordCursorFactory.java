@@ -0,0 +1,107 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.engine.table.DataFrameRecordCursorFactory.TableReaderPageFrameCursor;
+import io.questdb.std.Misc;
+import io.questdb.std.ObjList;
+import io.questdb.std.Transient;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Filter that scans page frames of the base factory on the worker pool. Filter function
+ * is compiled once per concurrent executor; all copies must be equivalent. Filter can
+ * also be partially or fully compiled, in which case list of filter functions contains
+ * only the part of filter that could not be compiled, or is empty.
+ */
+public class ParallelFilteredRecordCursorFactory implements RecordCursorFactory {
+    private final DataFrameRecordCursorFactory base;
+    private final ObjList<Function> filters;
+    private final ParallelFilteredRecordCursor cursor;
+
+    public ParallelFilteredRecordCursorFactory(
+            DataFrameRecordCursorFactory base,
+            @Transient ObjList<Function> filters,
+            @Nullable CompiledFilter compiledFilter,
+            int concurrency,
+            long maxRangeRows,
+            boolean zoneMapEnabled
+    ) {
+        assert base.supportPageFrameCursor();
+        this.base = base;
+        this.filters = new ObjList<>(filters.size());
+        this.filters.addAll(filters);
+        this.cursor = new ParallelFilteredRecordCursor(
+                this.filters,
+                compiledFilter,
+                base.getColumnIndexes(),
+                concurrency,
+                maxRangeRows,
+                zoneMapEnabled
+        );
+    }
+
+    @Override
+    public void close() {
+        cursor.freeEntries();
+        Misc.free(base);
+        Misc.freeObjList(filters);
+    }
+
+    @Override
+    public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+        final TableReaderPageFrameCursor pageFrameCursor = (TableReaderPageFrameCursor) base.getPageFrameCursor(executionContext);
+        try {
+            cursor.of(pageFrameCursor, base.getPartitionPruner(), executionContext);
+        } catch (Throwable e) {
+            cursor.close();
+            throw e;
+        }
+        return cursor;
+    }
+
+    @Override
+    public RecordMetadata getMetadata() {
+        return base.getMetadata();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(base);
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.sql.DataFrameCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.std.DirectLongList;
+import io.questdb.std.IntList;
+import org.jetbrains.annotations.NotNull;
+
+public class ParallelLatestByAllRecordCursorFactory extends AbstractTreeSetRecordCursorFactory {
+    private final DirectLongList slots;
+
+    public ParallelLatestByAllRecordCursorFactory(
+            @NotNull CairoConfiguration configuration,
+            @NotNull RecordMetadata metadata,
+            @NotNull DataFrameCursorFactory dataFrameCursorFactory,
+            int columnIndex,
+            @NotNull IntList columnIndexes
+    ) {
+        super(metadata, dataFrameCursorFactory, configuration);
+        this.slots = new DirectLongList(64);
+        this.cursor = new ParallelLatestByRecordCursor(
+                columnIndex,
+                configuration.getSqlParallelLatestByRangeRows(),
+                rows,
+                slots,
+                null,
+                columnIndexes
+        );
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        slots.close();
+    }
+
+    @Override
+    public boolean recordCursorSupportsRandomAccess() {
+        return true;
+    }
+}
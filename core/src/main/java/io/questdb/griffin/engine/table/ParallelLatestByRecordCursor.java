@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.MessageBus;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.sql.DataFrame;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.SqlExecutionInterruptor;
+import io.questdb.mp.RingQueue;
+import io.questdb.mp.Sequence;
+import io.questdb.std.*;
+import io.questdb.tasks.LatestByScanTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * LATEST BY single non-indexed symbol column. Data frames are split into ranges of rows,
+ * which are scanned concurrently on the worker pool, see {@link LatestByScanRange}. Ranges
+ * are handed out from the newest to the oldest and only a few of them are in flight at any
+ * time. Once every key has been found by the ranges completed so far no older row can be
+ * the latest, so the rest of the ranges, as well as partitions they belong to, are skipped.
+ */
+class ParallelLatestByRecordCursor extends AbstractRecordListCursor {
+    private final int columnIndex;
+    private final long rangeRows;
+    // keys to look for, all keys of the column when null
+    private final IntHashSet symbolKeys;
+    // per key row ids, owned by the factory
+    private final DirectLongList slots;
+    private final ObjList<LatestByScanRange> ranges = new ObjList<>();
+    private int rangeCount;
+    private int published;
+    private int sequence;
+
+    public ParallelLatestByRecordCursor(
+            int columnIndex,
+            long rangeRows,
+            @NotNull DirectLongList rows,
+            @NotNull DirectLongList slots,
+            @Nullable IntHashSet symbolKeys,
+            @NotNull IntList columnIndexes
+    ) {
+        super(rows, columnIndexes);
+        this.columnIndex = columnIndex;
+        this.rangeRows = rangeRows;
+        this.slots = slots;
+        this.symbolKeys = symbolKeys;
+    }
+
+    @Override
+    protected void buildTreeMap(SqlExecutionContext executionContext) {
+        final int slotCount = getSymbolTable(columnIndex).size() + 1;
+        if (slots.getCapacity() < slotCount) {
+            slots.extend(slotCount);
+        }
+        final long slotsAddress = slots.getAddress();
+        final int keyCount;
+        if (symbolKeys == null) {
+            Vect.setMemoryLong(slotsAddress, -1, slotCount);
+            keyCount = slotCount;
+        } else {
+            Vect.setMemoryLong(slotsAddress, Long.MAX_VALUE, slotCount);
+            for (int i = 0, n = symbolKeys.size(); i < n; i++) {
+                Unsafe.getUnsafe().putLong(slotsAddress + ((long) symbolKeys.get(i) << 3), -1);
+            }
+            keyCount = symbolKeys.size();
+        }
+
+        if (keyCount > 0) {
+            scan(executionContext, slotsAddress, slotCount, keyCount);
+        }
+
+        for (int i = 0; i < slotCount; i++) {
+            final long rowId = Unsafe.getUnsafe().getLong(slotsAddress + ((long) i << 3));
+            if (rowId > -1 && rowId < Long.MAX_VALUE) {
+                rows.add(rowId);
+            }
+        }
+        Vect.sortULongAscInPlace(rows.getAddress(), rows.size());
+    }
+
+    private void addRanges(DataFrame frame, long slotsAddress, int slotCount) {
+        final TableReader reader = dataFrameCursor.getTableReader();
+        final int frameColumnIndex = columnIndexes.getQuick(columnIndex);
+        final int partitionIndex = frame.getPartitionIndex();
+        final int columnBase = reader.getColumnBase(partitionIndex);
+        final long columnTop = reader.getColumnTop(columnBase, frameColumnIndex);
+        final long rowLo = frame.getRowLo();
+        final long rowHi = frame.getRowHi();
+        final long keysAddress = columnTop < rowHi
+                ? reader.getColumn(TableReader.getPrimaryColumnIndex(columnBase, frameColumnIndex)).getPageAddress(0)
+                : 0;
+
+        // newest rows go first
+        for (long hi = rowHi; hi > rowLo; ) {
+            final long lo = Math.max(rowLo, hi - rangeRows);
+            LatestByScanRange range = ranges.getQuiet(rangeCount);
+            if (range == null) {
+                range = new LatestByScanRange();
+                ranges.extendAndSet(rangeCount, range);
+            }
+            range.of(keysAddress, columnTop, partitionIndex, lo, hi, slotsAddress, slotCount, sequence);
+            rangeCount++;
+            hi = lo;
+        }
+    }
+
+    private void await(int index) {
+        final LatestByScanRange range = ranges.getQuick(index);
+        // scan range ourselves, in case it is still in the queue
+        if (!range.run()) {
+            while (!range.isDone()) {
+                // help workers with the ranges we are going to wait for next
+                boolean helped = false;
+                for (int i = index + 1; i < published; i++) {
+                    helped |= ranges.getQuick(i).run();
+                }
+                if (!helped) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure none of the ranges from the given index onwards is still being scanned by
+     * workers. Ranges that have not been picked up yet are locked, which makes queued references
+     * to them inert.
+     */
+    private void cancel(int index) {
+        for (int i = index; i < published; i++) {
+            final LatestByScanRange range = ranges.getQuick(i);
+            if (!range.tryLock()) {
+                while (!range.isDone()) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private void publish(RingQueue<LatestByScanTask> queue, Sequence pubSeq, int limit) {
+        while (published < limit) {
+            long seq;
+            do {
+                seq = pubSeq.next();
+            } while (seq == -2);
+
+            if (seq < 0) {
+                // queue is full, ranges that do not make it to the queue are scanned by this thread
+                return;
+            }
+            queue.get(seq).range = ranges.getQuick(published++);
+            pubSeq.done(seq);
+        }
+    }
+
+    private void scan(SqlExecutionContext executionContext, long slotsAddress, int slotCount, int keyCount) {
+        final MessageBus bus = executionContext.getMessageBus();
+        final SqlExecutionInterruptor interruptor = executionContext.getSqlExecutionInterruptor();
+        final RingQueue<LatestByScanTask> queue = bus != null ? bus.getLatestByScanQueue() : null;
+        final Sequence pubSeq = bus != null ? bus.getLatestByScanPubSeq() : null;
+        final int inFlight = 2 * Math.max(1, executionContext.getWorkerCount());
+
+        sequence++;
+        rangeCount = 0;
+        published = 0;
+        long foundCount = 0;
+        int index = 0;
+        try {
+            boolean hasFrames = true;
+            while (true) {
+                DataFrame frame;
+                while (hasFrames && rangeCount < index + inFlight) {
+                    if ((frame = dataFrameCursor.next()) != null) {
+                        addRanges(frame, slotsAddress, slotCount);
+                    } else {
+                        hasFrames = false;
+                    }
+                }
+
+                if (index == rangeCount) {
+                    break;
+                }
+
+                if (queue != null) {
+                    publish(queue, pubSeq, Math.min(rangeCount, index + inFlight));
+                }
+                interruptor.checkInterrupted();
+                await(index);
+                if (published <= index) {
+                    published = index + 1;
+                }
+
+                // every key counted here has been found by one of the ranges up to and including
+                // current one, ranges are disjoint and ordered, so older ranges cannot improve on them
+                foundCount += ranges.getQuick(index++).getFoundCount();
+                if (foundCount == keyCount) {
+                    break;
+                }
+            }
+        } finally {
+            cancel(index);
+        }
+    }
+}
@@ -26,6 +26,7 @@ package io.questdb.griffin.engine.table;
 
 import io.questdb.cairo.TableReader;
 import io.questdb.cairo.sql.DataFrame;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RowCursor;
 import io.questdb.cairo.sql.RowCursorFactory;
 import io.questdb.griffin.SqlException;
@@ -62,6 +63,14 @@ public class SequentialRowCursorFactory implements RowCursorFactory {
         RowCursorFactory.prepareCursor(cursorFactories, tableReader, sqlExecutionContext);
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        for (int i = 0, n = cursorFactories.size(); i < n; i++) {
+            sink.child(cursorFactories.getQuick(i));
+        }
+    }
+
     private class SequentialRowCursor implements RowCursor {
         private int cursorIndex = 0;
         private RowCursor currentCursor;
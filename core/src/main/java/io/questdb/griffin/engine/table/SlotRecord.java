@@ -0,0 +1,79 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.table;
+
+import io.questdb.cairo.SymbolMapReader;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableReaderSelectedColumnRecord;
+import io.questdb.std.IntList;
+import io.questdb.std.str.StringSink;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Record used by concurrent executors of parallel cursors, one per executor slot.
+ * Symbol tables cache values lazily and return flyweight char sequences, neither
+ * of which is safe to share between threads. This record copies symbol values while
+ * holding the lock on symbol table.
+ */
+public class SlotRecord extends TableReaderSelectedColumnRecord {
+    private final IntList columnIndexes;
+    private final StringSink symA = new StringSink();
+    private final StringSink symB = new StringSink();
+    private TableReader reader;
+
+    public SlotRecord(@NotNull IntList columnIndexes) {
+        super(columnIndexes);
+        this.columnIndexes = columnIndexes;
+    }
+
+    @Override
+    public CharSequence getSym(int columnIndex) {
+        return copySymbol(columnIndex, symA);
+    }
+
+    @Override
+    public CharSequence getSymB(int columnIndex) {
+        return copySymbol(columnIndex, symB);
+    }
+
+    @Override
+    public void of(TableReader reader) {
+        super.of(reader);
+        this.reader = reader;
+    }
+
+    private CharSequence copySymbol(int columnIndex, StringSink sink) {
+        final SymbolMapReader symbolMapReader = reader.getSymbolMapReader(columnIndexes.getQuick(columnIndex));
+        synchronized (symbolMapReader) {
+            final CharSequence value = super.getSym(columnIndex);
+            if (value == null) {
+                return null;
+            }
+            sink.clear();
+            sink.put(value);
+            return sink;
+        }
+    }
+}
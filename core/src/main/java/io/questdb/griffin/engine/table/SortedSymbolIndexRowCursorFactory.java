@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.engine.table;
 
+import io.questdb.cairo.BitmapIndexReader;
 import io.questdb.cairo.EmptyRowCursor;
 import io.questdb.cairo.TableReader;
 import io.questdb.cairo.TableUtils;
@@ -97,6 +98,14 @@ public class SortedSymbolIndexRowCursorFactory implements RowCursorFactory {
         return false;
     }
 
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").valColumn(columnIndex);
+        sink.attr("order").val(columnOrderDirectionAsc ? "asc" : "desc");
+        sink.attr("direction").val(indexDirection == BitmapIndexReader.DIR_FORWARD ? "forward" : "backward");
+    }
+
     // this is a thread-local contraption used for sorting symbol values. We ought to think of something better
     private static class SymbolTableEntry {
         private String value;
@@ -25,8 +25,10 @@
 package io.questdb.griffin.engine.table;
 
 import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableUtils;
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RowCursor;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.std.IntList;
@@ -34,6 +36,8 @@ import io.questdb.std.IntList;
 public class SymbolIndexFilteredRowCursorFactory implements FunctionBasedRowCursorFactory {
     private final SymbolIndexFilteredRowCursor cursor;
     private final Function symbolFunction;
+    private final int columnIndex;
+    private final int indexKey;
 
     public SymbolIndexFilteredRowCursorFactory(
             int columnIndex,
@@ -53,6 +57,8 @@ public class SymbolIndexFilteredRowCursorFactory implements FunctionBasedRowCurs
                 columnIndexes
         );
         this.symbolFunction = symbolFunction;
+        this.columnIndex = columnIndex;
+        this.indexKey = TableUtils.toIndexKey(symbolKey);
     }
 
     @Override
@@ -74,4 +80,15 @@ public class SymbolIndexFilteredRowCursorFactory implements FunctionBasedRowCurs
     public Function getFunction() {
         return symbolFunction;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").valColumn(columnIndex);
+        if (symbolFunction != null) {
+            sink.attr("symbol").val(symbolFunction.getStr(null));
+        } else {
+            sink.attr("symbol").valIndexKey(columnIndex, indexKey);
+        }
+    }
 }
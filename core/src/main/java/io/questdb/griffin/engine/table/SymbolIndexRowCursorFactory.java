@@ -24,9 +24,11 @@
 
 package io.questdb.griffin.engine.table;
 
+import io.questdb.cairo.BitmapIndexReader;
 import io.questdb.cairo.TableUtils;
 import io.questdb.cairo.sql.DataFrame;
 import io.questdb.cairo.sql.Function;
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RowCursor;
 
 public class SymbolIndexRowCursorFactory implements FunctionBasedRowCursorFactory {
@@ -66,4 +68,16 @@ public class SymbolIndexRowCursorFactory implements FunctionBasedRowCursorFactor
     public Function getFunction() {
         return symbolFunction;
     }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.attr("on").valColumn(columnIndex);
+        if (symbolFunction != null) {
+            sink.attr("symbol").val(symbolFunction.getStr(null));
+        } else {
+            sink.attr("symbol").valIndexKey(columnIndex, symbolKey);
+        }
+        sink.attr("direction").val(indexDirection == BitmapIndexReader.DIR_FORWARD ? "forward" : "backward");
+    }
 }
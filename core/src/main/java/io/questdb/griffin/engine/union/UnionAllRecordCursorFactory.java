@@ -24,11 +24,13 @@
 
 package io.questdb.griffin.engine.union;
 
+import io.questdb.cairo.sql.PlanSink;
 import io.questdb.cairo.sql.RecordCursor;
 import io.questdb.cairo.sql.RecordCursorFactory;
 import io.questdb.cairo.sql.RecordMetadata;
 import io.questdb.griffin.SqlException;
 import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.Misc;
 
 public class UnionAllRecordCursorFactory implements RecordCursorFactory {
     private final RecordMetadata metadata;
@@ -65,4 +67,17 @@ public class UnionAllRecordCursorFactory implements RecordCursorFactory {
     public boolean recordCursorSupportsRandomAccess() {
         return false;
     }
+
+    @Override
+    public void close() {
+        Misc.free(masterFactory);
+        Misc.free(slaveFactory);
+    }
+
+    @Override
+    public void toPlan(PlanSink sink) {
+        sink.type(this);
+        sink.child(masterFactory);
+        sink.child(slaveFactory);
+    }
 }
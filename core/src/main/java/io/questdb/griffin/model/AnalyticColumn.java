@@ -30,9 +30,16 @@ import io.questdb.std.ObjectFactory;
 
 public final class AnalyticColumn extends QueryColumn {
     public final static ObjectFactory<AnalyticColumn> FACTORY = AnalyticColumn::new;
+    public static final int FRAMING_DEFAULT = 0;
+    public static final int FRAMING_ROWS = 1;
+    public static final int FRAMING_RANGE = 2;
+    // frame start relative to current row, rows for ROWS framing and microseconds for RANGE framing
+    public static final long FRAME_UNBOUNDED_PRECEDING = Long.MIN_VALUE;
     private final ObjList<ExpressionNode> partitionBy = new ObjList<>(2);
     private final ObjList<ExpressionNode> orderBy = new ObjList<>(2);
     private final IntList orderByDirection = new IntList(2);
+    private int framingMode = FRAMING_DEFAULT;
+    private long rowsLo = FRAME_UNBOUNDED_PRECEDING;
 
     private AnalyticColumn() {
     }
@@ -48,6 +55,12 @@ public final class AnalyticColumn extends QueryColumn {
         partitionBy.clear();
         orderBy.clear();
         orderByDirection.clear();
+        framingMode = FRAMING_DEFAULT;
+        rowsLo = FRAME_UNBOUNDED_PRECEDING;
+    }
+
+    public int getFramingMode() {
+        return framingMode;
     }
 
     public ObjList<ExpressionNode> getPartitionBy() {
@@ -62,6 +75,15 @@ public final class AnalyticColumn extends QueryColumn {
         return orderByDirection;
     }
 
+    public long getRowsLo() {
+        return rowsLo;
+    }
+
+    public void setFraming(int framingMode, long rowsLo) {
+        this.framingMode = framingMode;
+        this.rowsLo = rowsLo;
+    }
+
     @Override
     public AnalyticColumn of(CharSequence alias, ExpressionNode ast) {
         return (AnalyticColumn) super.of(alias, ast);
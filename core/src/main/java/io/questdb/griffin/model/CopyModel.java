@@ -24,6 +24,7 @@
 
 package io.questdb.griffin.model;
 
+import io.questdb.cairo.PartitionBy;
 import io.questdb.std.Mutable;
 import io.questdb.std.ObjectFactory;
 import io.questdb.std.Sinkable;
@@ -34,9 +35,26 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
     private ExpressionNode tableName;
     private ExpressionNode fileName;
     private boolean header;
+    private int partitionBy = PartitionBy.NONE;
+    private ExpressionNode timestampColumnName;
+    private byte delimiter = -1;
 
     @Override
     public void clear() {
+        tableName = null;
+        fileName = null;
+        header = false;
+        partitionBy = PartitionBy.NONE;
+        timestampColumnName = null;
+        delimiter = -1;
+    }
+
+    public byte getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(byte delimiter) {
+        this.delimiter = delimiter;
     }
 
     public ExpressionNode getFileName() {
@@ -52,6 +70,14 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
         return ExecutionModel.COPY;
     }
 
+    public int getPartitionBy() {
+        return partitionBy;
+    }
+
+    public void setPartitionBy(int partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+
     public ExpressionNode getTableName() {
         return tableName;
     }
@@ -60,6 +86,14 @@ public class CopyModel implements ExecutionModel, Mutable, Sinkable {
         this.tableName = tableName;
     }
 
+    public ExpressionNode getTimestampColumnName() {
+        return timestampColumnName;
+    }
+
+    public void setTimestampColumnName(ExpressionNode timestampColumnName) {
+        this.timestampColumnName = timestampColumnName;
+    }
+
     public boolean isHeader() {
         return header;
     }
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.model;
+
+import io.questdb.std.Mutable;
+import io.questdb.std.Sinkable;
+import io.questdb.std.str.CharSink;
+
+public class CreateMatViewModel implements ExecutionModel, Mutable, Sinkable {
+    private ExpressionNode name;
+    private QueryModel queryModel;
+    // position of the query text between parentheses
+    private int queryLo;
+    private int queryHi;
+
+    @Override
+    public void clear() {
+        name = null;
+        queryModel = null;
+        queryLo = 0;
+        queryHi = 0;
+    }
+
+    @Override
+    public int getModelType() {
+        return ExecutionModel.CREATE_MAT_VIEW;
+    }
+
+    public ExpressionNode getName() {
+        return name;
+    }
+
+    public void setName(ExpressionNode name) {
+        this.name = name;
+    }
+
+    public int getQueryHi() {
+        return queryHi;
+    }
+
+    public int getQueryLo() {
+        return queryLo;
+    }
+
+    public QueryModel getQueryModel() {
+        return queryModel;
+    }
+
+    public void setQueryModel(QueryModel queryModel) {
+        this.queryModel = queryModel;
+    }
+
+    public void setQueryPosition(int queryLo, int queryHi) {
+        this.queryLo = queryLo;
+        this.queryHi = queryHi;
+    }
+
+    @Override
+    public void toSink(CharSink sink) {
+        sink.put("create materialized view ").put(name.token).put(" as (");
+        queryModel.toSink(sink);
+        sink.put(')');
+    }
+}
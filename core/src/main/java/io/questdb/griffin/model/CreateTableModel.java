@@ -34,6 +34,7 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
     public static final ObjectFactory<CreateTableModel> FACTORY = CreateTableModel::new;
     private static final int COLUMN_FLAG_CACHED = 1;
     private static final int COLUMN_FLAG_INDEXED = 2;
+    private static final int COLUMN_FLAG_BLOOM_FILTER = 4;
     private final CharSequenceObjHashMap<ColumnCastModel> columnCastModels = new CharSequenceObjHashMap<>();
     private final LongList columnBits = new LongList();
     private final ObjList<CharSequence> columnNames = new ObjList<>();
@@ -117,6 +118,11 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         return (getLowAt(index * 2 + 1) & COLUMN_FLAG_INDEXED) != 0;
     }
 
+    @Override
+    public boolean isBloomFiltered(int index) {
+        return (getLowAt(index * 2 + 1) & COLUMN_FLAG_BLOOM_FILTER) != 0;
+    }
+
     @Override
     public boolean isSequential(int columnIndex) {
         // todo: expose this flag on CREATE TABLE statement
@@ -195,6 +201,15 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
         this.ignoreIfExists = flag;
     }
 
+    public void setBloomFilterFlag(int columnIndex, boolean bloomFilterFlag) {
+        final int index = columnIndex * 2 + 1;
+        final int flags = getLowAt(index);
+        columnBits.setQuick(index, Numbers.encodeLowHighInts(
+                bloomFilterFlag ? flags | COLUMN_FLAG_BLOOM_FILTER : flags & ~COLUMN_FLAG_BLOOM_FILTER,
+                getHighAt(index)
+        ));
+    }
+
     public void setIndexFlags(boolean indexFlag, int indexValueBlockSize) {
         setIndexFlags0(columnBits.size() - 1, indexFlag, indexValueBlockSize);
     }
@@ -284,6 +299,14 @@ public class CreateTableModel implements Mutable, ExecutionModel, Sinkable, Tabl
             sink.put(')');
         }
 
+        for (int i = 0, n = getColumnCount(); i < n; i++) {
+            if (isBloomFiltered(i)) {
+                sink.put(", bloom(");
+                sink.put(getColumnName(i));
+                sink.put(')');
+            }
+        }
+
         if (getTimestamp() != null) {
             sink.put(" timestamp(");
             sink.put(getTimestamp().token);
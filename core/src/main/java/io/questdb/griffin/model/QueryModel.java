@@ -794,6 +794,20 @@ public class QueryModel implements Mutable, ExecutionModel, AliasTranslator, Sin
                             }
                         }
                     }
+
+                    if (ac.getFramingMode() != AnalyticColumn.FRAMING_DEFAULT) {
+                        if (partitionBy.size() > 0 || orderBy.size() > 0) {
+                            sink.put(' ');
+                        }
+                        sink.put(ac.getFramingMode() == AnalyticColumn.FRAMING_ROWS ? "rows" : "range");
+                        sink.put(" between ");
+                        if (ac.getRowsLo() == AnalyticColumn.FRAME_UNBOUNDED_PRECEDING) {
+                            sink.put("unbounded");
+                        } else {
+                            sink.put(-ac.getRowsLo());
+                        }
+                        sink.put(" preceding and current row");
+                    }
                     sink.put(')');
                 }
             } else {
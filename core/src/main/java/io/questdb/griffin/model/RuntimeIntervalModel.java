@@ -82,6 +82,8 @@ public class RuntimeIntervalModel implements RuntimeIntrinsicIntervalModel {
                 return allIntervalsHitOnePartition(Timestamps.FLOOR_MM);
             case PartitionBy.YEAR:
                 return allIntervalsHitOnePartition(Timestamps.FLOOR_YYYY);
+            case PartitionBy.HOUR:
+                return allIntervalsHitOnePartition(Timestamps.FLOOR_HH);
             default:
                 return true;
         }
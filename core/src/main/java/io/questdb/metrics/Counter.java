@@ -26,5 +26,7 @@ package io.questdb.metrics;
 
 public interface Counter extends Scrapable {
 
+    void add(long value);
+
     void inc();
 }
@@ -37,6 +37,11 @@ class CounterImpl implements Counter {
         this.counter = new LongAdder();
     }
 
+    @Override
+    public void add(long value) {
+        counter.add(value);
+    }
+
     @Override
     public void inc() {
         counter.increment();
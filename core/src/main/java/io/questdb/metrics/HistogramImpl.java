@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.metrics;
+
+import io.questdb.std.Numbers;
+import io.questdb.std.str.CharSink;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with log-linear buckets, same as in HdrHistogram. Each power of two
+ * range is split into 2^subBucketBits equal sub-buckets, so that relative bucket width
+ * never exceeds 1/2^subBucketBits. Recording a value does not allocate.
+ */
+class HistogramImpl implements Histogram {
+    private final CharSequence name;
+    private final CharSequence labelName0;
+    private final CharSequence labelValue0;
+    private final int subBucketBits;
+    private final long maxValue;
+    // last bucket counts values above max value
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+
+    HistogramImpl(CharSequence name, int subBucketBits, int maxValueBits) {
+        this(name, null, null, subBucketBits, maxValueBits);
+    }
+
+    HistogramImpl(CharSequence name, CharSequence labelName0, CharSequence labelValue0, int subBucketBits, int maxValueBits) {
+        assert subBucketBits >= 0 && subBucketBits < maxValueBits && maxValueBits < 63;
+        this.name = name;
+        this.labelName0 = labelName0;
+        this.labelValue0 = labelValue0;
+        this.subBucketBits = subBucketBits;
+        this.maxValue = (1L << maxValueBits) - 1;
+        this.counts = new AtomicLongArray(((maxValueBits - subBucketBits + 1) << subBucketBits) + 1);
+    }
+
+    @Override
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+    }
+
+    @Override
+    public void scrapeIntoPrometheus(CharSink sink) {
+        appendType(name, sink);
+        scrapeSamples(sink);
+        PrometheusFormatUtils.appendNewLine(sink);
+    }
+
+    static void appendType(CharSequence name, CharSink sink) {
+        sink.put(PrometheusFormatUtils.TYPE_PREFIX);
+        sink.put(name);
+        sink.put(" histogram\n");
+    }
+
+    // inclusive upper bound of values in the bucket
+    long bucketHi(int index) {
+        final int subBucketCount = 1 << subBucketBits;
+        if (index < subBucketCount) {
+            return index;
+        }
+        final int shift = (index >> subBucketBits) - 1;
+        final long lo = (long) (subBucketCount + (index & (subBucketCount - 1))) << shift;
+        return lo + (1L << shift) - 1;
+    }
+
+    int bucketIndex(long value) {
+        if (value > maxValue) {
+            return counts.length() - 1;
+        }
+        final int subBucketCount = 1 << subBucketBits;
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        final int shift = Numbers.msb(value) - subBucketBits;
+        return ((shift + 1) << subBucketBits) + (int) (value >>> shift) - subBucketCount;
+    }
+
+    void scrapeSamples(CharSink sink) {
+        long cumulative = 0;
+        for (int i = 0, n = counts.length() - 1; i < n; i++) {
+            cumulative += counts.get(i);
+            appendBucketPrefix(sink);
+            sink.put(bucketHi(i));
+            sink.put("\"}");
+            PrometheusFormatUtils.appendSampleLineSuffix(sink, cumulative);
+        }
+        cumulative += counts.get(counts.length() - 1);
+        appendBucketPrefix(sink);
+        sink.put("+Inf\"}");
+        PrometheusFormatUtils.appendSampleLineSuffix(sink, cumulative);
+
+        appendSampleName(sink, "_sum");
+        PrometheusFormatUtils.appendSampleLineSuffix(sink, sum.get());
+        appendSampleName(sink, "_count");
+        PrometheusFormatUtils.appendSampleLineSuffix(sink, cumulative);
+    }
+
+    private void appendBucketPrefix(CharSink sink) {
+        sink.put(PrometheusFormatUtils.METRIC_NAME_PREFIX);
+        sink.put(name);
+        sink.put("_bucket{");
+        if (labelName0 != null) {
+            PrometheusFormatUtils.appendLabel(sink, labelName0, labelValue0);
+            sink.put(',');
+        }
+        sink.put("le=\"");
+    }
+
+    private void appendSampleName(CharSink sink, CharSequence suffix) {
+        sink.put(PrometheusFormatUtils.METRIC_NAME_PREFIX);
+        sink.put(name);
+        sink.put(suffix);
+        if (labelName0 != null) {
+            sink.put('{');
+            PrometheusFormatUtils.appendLabel(sink, labelName0, labelValue0);
+            sink.put('}');
+        }
+    }
+}
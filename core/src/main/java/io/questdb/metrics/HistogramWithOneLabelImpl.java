@@ -0,0 +1,60 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.metrics;
+
+import io.questdb.std.Chars;
+import io.questdb.std.str.CharSink;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+
+class HistogramWithOneLabelImpl implements HistogramWithOneLabel {
+    private final CharSequence name;
+    private final CharSequence labelName0;
+    private final int subBucketBits;
+    private final int maxValueBits;
+    private final ConcurrentSkipListMap<String, HistogramImpl> histograms = new ConcurrentSkipListMap<>();
+
+    HistogramWithOneLabelImpl(CharSequence name, CharSequence labelName0, int subBucketBits, int maxValueBits) {
+        this.name = name;
+        this.labelName0 = labelName0;
+        this.subBucketBits = subBucketBits;
+        this.maxValueBits = maxValueBits;
+    }
+
+    @Override
+    public void scrapeIntoPrometheus(CharSink sink) {
+        HistogramImpl.appendType(name, sink);
+        for (HistogramImpl histogram : histograms.values()) {
+            histogram.scrapeSamples(sink);
+        }
+        PrometheusFormatUtils.appendNewLine(sink);
+    }
+
+    @Override
+    public Histogram withLabel(CharSequence labelValue0) {
+        final String key = Chars.toString(labelValue0);
+        return histograms.computeIfAbsent(key, k -> new HistogramImpl(name, labelName0, k, subBucketBits, maxValueBits));
+    }
+}
@@ -24,6 +24,8 @@
 
 package io.questdb.metrics;
 
+import java.util.function.LongSupplier;
+
 public interface MetricsRegistry extends Scrapable {
 
     Counter newCounter(CharSequence name);
@@ -35,4 +37,18 @@ public interface MetricsRegistry extends Scrapable {
                                     CharSequence labelName1, CharSequence[] labelValues1);
 
     Gauge newGauge(CharSequence name);
+
+    /**
+     * Histogram with log-linear buckets, default precision is good enough for latencies
+     * measured in microseconds: bucket width is at most half of its lower bound and
+     * values up to 2^32 are tracked.
+     */
+    Histogram newHistogram(CharSequence name);
+
+    HistogramWithOneLabel newHistogram(CharSequence name, CharSequence labelName0);
+
+    /**
+     * Gauge which values are polled from suppliers at scrape time, suppliers must be thread-safe.
+     */
+    Scrapable newVirtualGauge(CharSequence name, CharSequence labelName0, CharSequence[] labelValues0, LongSupplier[] values);
 }
@@ -27,7 +27,11 @@ package io.questdb.metrics;
 import io.questdb.std.ObjList;
 import io.questdb.std.str.CharSink;
 
+import java.util.function.LongSupplier;
+
 public class MetricsRegistryImpl implements MetricsRegistry {
+    private static final int HISTOGRAM_SUB_BUCKET_BITS = 1;
+    private static final int HISTOGRAM_MAX_VALUE_BITS = 32;
     private final ObjList<Scrapable> metrics = new ObjList<>();
 
     @Override
@@ -60,6 +64,27 @@ public class MetricsRegistryImpl implements MetricsRegistry {
         return gauge;
     }
 
+    @Override
+    public Histogram newHistogram(CharSequence name) {
+        Histogram histogram = new HistogramImpl(name, HISTOGRAM_SUB_BUCKET_BITS, HISTOGRAM_MAX_VALUE_BITS);
+        metrics.add(histogram);
+        return histogram;
+    }
+
+    @Override
+    public HistogramWithOneLabel newHistogram(CharSequence name, CharSequence labelName0) {
+        HistogramWithOneLabel histogram = new HistogramWithOneLabelImpl(name, labelName0, HISTOGRAM_SUB_BUCKET_BITS, HISTOGRAM_MAX_VALUE_BITS);
+        metrics.add(histogram);
+        return histogram;
+    }
+
+    @Override
+    public Scrapable newVirtualGauge(CharSequence name, CharSequence labelName0, CharSequence[] labelValues0, LongSupplier[] values) {
+        Scrapable gauge = new VirtualGaugeWithOneLabel(name, labelName0, labelValues0, values);
+        metrics.add(gauge);
+        return gauge;
+    }
+
     @Override
     public void scrapeIntoPrometheus(CharSink sink) {
         for (int i = 0, n = metrics.size(); i < n; i++) {
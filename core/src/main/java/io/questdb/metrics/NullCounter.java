@@ -32,6 +32,10 @@ class NullCounter implements Counter, CounterWithOneLabel, CounterWithTwoLabels
     private NullCounter() {
     }
 
+    @Override
+    public void add(long value) {
+    }
+
     @Override
     public void inc() {
     }
@@ -26,6 +26,8 @@ package io.questdb.metrics;
 
 import io.questdb.std.str.CharSink;
 
+import java.util.function.LongSupplier;
+
 public class NullMetricsRegistry implements MetricsRegistry {
 
     @Override
@@ -50,6 +52,21 @@ public class NullMetricsRegistry implements MetricsRegistry {
         return NullGauge.INSTANCE;
     }
 
+    @Override
+    public Histogram newHistogram(CharSequence name) {
+        return NullHistogram.INSTANCE;
+    }
+
+    @Override
+    public HistogramWithOneLabel newHistogram(CharSequence name, CharSequence labelName0) {
+        return NullHistogram.INSTANCE;
+    }
+
+    @Override
+    public Scrapable newVirtualGauge(CharSequence name, CharSequence labelName0, CharSequence[] labelValues0, LongSupplier[] values) {
+        return NullGauge.INSTANCE;
+    }
+
     @Override
     public void scrapeIntoPrometheus(CharSink sink) {
     }
@@ -84,6 +84,11 @@ public class DefaultIODispatcherConfiguration implements IODispatcherConfigurati
         return EpollFacadeImpl.INSTANCE;
     }
 
+    @Override
+    public IOUringFacade getIOUringFacade() {
+        return IOUringFacadeImpl.INSTANCE;
+    }
+
     @Override
     public SelectFacade getSelectFacade() {
         return SelectFacadeImpl.INSTANCE;
@@ -46,6 +46,8 @@ public interface IODispatcherConfiguration {
 
     int getEventCapacity();
 
+    IOUringFacade getIOUringFacade();
+
     int getIOQueueCapacity();
 
     long getIdleConnectionTimeout();
@@ -62,6 +64,14 @@ public interface IODispatcherConfiguration {
         return false;
     }
 
+    /**
+     * Linux only. When enabled dispatcher waits for socket readiness using io_uring
+     * instead of epoll, provided io_uring is supported by the kernel.
+     */
+    default boolean isIOUringEnabled() {
+        return false;
+    }
+
     int getRcvBufSize();
 
     SelectFacade getSelectFacade();
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.network;
+
+/**
+ * Linux dispatcher that waits for socket readiness via io_uring poll requests rather than epoll.
+ * Re-arming a connection does not cost a system call, poll requests are queued and submitted
+ * to kernel in one batch per dispatcher iteration. Completions are read from memory shared with
+ * kernel, so idle iterations make no system calls at all.
+ */
+public class IODispatcherLinuxIOUring<C extends IOContext> extends AbstractIODispatcher<C> {
+    private static final int M_ID = 2;
+    // completions of poll remove requests carry this id, there is nothing to do about them
+    private static final long REMOVE_ID = 0;
+    private final IOUring ring;
+    private long fdid = 1;
+    // listener polls get ids of their own, negative ones, so that completion of a cancelled
+    // listener poll cannot be mistaken for the one that is currently armed
+    private long listenerId = 0;
+    private boolean listenerArmed = false;
+    // number of poll requests kernel is yet to complete, cancelled ones included
+    private int armedPolls = 0;
+
+    public IODispatcherLinuxIOUring(
+            IODispatcherConfiguration configuration,
+            IOContextFactory<C> ioContextFactory
+    ) {
+        super(configuration, ioContextFactory);
+        this.ring = new IOUring(configuration.getIOUringFacade(), configuration.getEventCapacity());
+        registerListenerFd();
+        submit();
+    }
+
+    @Override
+    public void close() {
+        cancelPolls();
+        super.close();
+        this.ring.close();
+        LOG.info().$("closed").$();
+    }
+
+    @Override
+    protected void pendingAdded(int index) {
+        pending.set(index, M_ID, fdid++);
+    }
+
+    @Override
+    protected void registerListenerFd() {
+        if (!listenerArmed) {
+            listenerId--;
+            if (!arm(serverFd, listenerId, IOUringAccessor.POLLIN)) {
+                throw NetworkError.instance(nf.errno(), "io_uring poll add");
+            }
+            listenerArmed = true;
+        }
+    }
+
+    @Override
+    protected boolean runSerially() {
+        boolean useful = false;
+
+        final long timestamp = clock.getTicks();
+        processDisconnects(timestamp);
+        final int n = ring.poll();
+        int watermark = pending.size();
+        if (n > 0) {
+            LOG.debug().$("io_uring [n=").$(n).$(']').$();
+            for (int i = 0, offset = 0; i < n; i++, offset += IOUringAccessor.SIZEOF_CQE) {
+                ring.setOffset(offset);
+                final long id = ring.getData();
+                if (id == REMOVE_ID) {
+                    continue;
+                }
+
+                armedPolls--;
+                if (id < 0) {
+                    if (id == listenerId && listenerArmed) {
+                        listenerArmed = false;
+                        accept(timestamp);
+                        if (isListening() && serverFd > -1) {
+                            registerListenerFd();
+                        }
+                    }
+                    continue;
+                }
+
+                // find row in pending for two reasons:
+                // 1. find payload
+                // 2. remove row from pending, remaining rows will be timed out
+                int row = pending.binarySearch(id, M_ID);
+                if (row < 0) {
+                    // poll of idle connection we cancelled
+                    LOG.debug().$("stale completion [id=").$(id).$(", res=").$(ring.getResult()).$(']').$();
+                    continue;
+                }
+
+                publishOperation(
+                        (ring.getResult() & IOUringAccessor.POLLIN) > 0 ? IOOperation.READ : IOOperation.WRITE,
+                        pending.get(row)
+                );
+                pending.deleteRow(row);
+                watermark--;
+            }
+
+            // process rows over watermark
+            if (watermark < pending.size()) {
+                enqueuePending(watermark);
+            }
+            useful = true;
+        }
+
+        // process timed out connections
+        final long deadline = timestamp - idleConnectionTimeout;
+        if (pending.size() > 0 && pending.get(0, M_TIMESTAMP) < deadline) {
+            processIdleConnections(deadline);
+            useful = true;
+        }
+
+        useful = processRegistrations(timestamp) || useful;
+        submit();
+        return useful;
+    }
+
+    @Override
+    protected void unregisterListenerFd() {
+        if (listenerArmed) {
+            if (ring.pollRemove(listenerId, REMOVE_ID) < 0) {
+                throw NetworkError.instance(nf.errno(), "io_uring poll remove");
+            }
+            listenerArmed = false;
+            // listener socket may be closed before next iteration, kernel has to see the removal first
+            submit();
+        }
+    }
+
+    private boolean arm(long fd, long id, int event) {
+        if (ring.pollAdd(fd, id, event) == 0) {
+            armedPolls++;
+            return true;
+        }
+        return false;
+    }
+
+    // Poll requests hold references to sockets. Unless they are cancelled and kernel confirms that,
+    // closed sockets live on until the ring is torn down asynchronously, listener port cannot be bound
+    // again for a while.
+    private void cancelPolls() {
+        unregisterListenerFd();
+        for (int i = 0, n = pending.size(); i < n; i++) {
+            ring.pollRemove(pending.get(i, M_ID), REMOVE_ID);
+        }
+        while (armedPolls > 0) {
+            if (ring.submitAndWait(1) < 0) {
+                LOG.error().$("io_uring wait failure [errno=").$(nf.errno()).$(", armed=").$(armedPolls).$(']').$();
+                break;
+            }
+            for (int i = 0, n = ring.poll(), offset = 0; i < n; i++, offset += IOUringAccessor.SIZEOF_CQE) {
+                ring.setOffset(offset);
+                if (ring.getData() != REMOVE_ID) {
+                    armedPolls--;
+                }
+            }
+        }
+    }
+
+    private void enqueuePending(int watermark) {
+        for (int i = watermark, sz = pending.size(); i < sz; i++) {
+            if (
+                    !arm(
+                            pending.get(i, M_FD),
+                            pending.get(i, M_ID),
+                            initialBias == IODispatcherConfiguration.BIAS_READ ? IOUringAccessor.POLLIN : IOUringAccessor.POLLOUT
+                    )) {
+                LOG.error().$("io_uring poll add failure [fd=").$(pending.get(i, M_FD)).$(", errno=").$(nf.errno()).$(']').$();
+            }
+        }
+    }
+
+    private void processIdleConnections(long deadline) {
+        int count = 0;
+        for (int i = 0, n = pending.size(); i < n && pending.get(i, M_TIMESTAMP) < deadline; i++, count++) {
+            // poll request holds reference to the socket, it has to be cancelled for close to take effect
+            if (ring.pollRemove(pending.get(i, M_ID), REMOVE_ID) < 0) {
+                LOG.error().$("io_uring poll remove failure [fd=").$(pending.get(i, M_FD)).$(", errno=").$(nf.errno()).$(']').$();
+            }
+            doDisconnect(pending.get(i), DISCONNECT_SRC_IDLE);
+        }
+        pending.zapTop(count);
+    }
+
+    private boolean processRegistrations(long timestamp) {
+        long cursor;
+        boolean useful = false;
+        while ((cursor = interestSubSeq.next()) > -1) {
+            IOEvent<C> evt = interestQueue.get(cursor);
+            C context = evt.context;
+            int operation = evt.operation;
+            interestSubSeq.done(cursor);
+
+            final long fd = context.getFd();
+            final long id = fdid++;
+            LOG.debug().$("registered [fd=").$(fd).$(", op=").$(operation).$(", id=").$(id).$(']').$();
+            if (!arm(fd, id, operation == IOOperation.READ ? IOUringAccessor.POLLIN : IOUringAccessor.POLLOUT)) {
+                LOG.error().$("io_uring poll add failure [fd=").$(fd).$(", errno=").$(nf.errno()).$(']').$();
+            }
+
+            int r = pending.addRow();
+            pending.set(r, M_TIMESTAMP, timestamp);
+            pending.set(r, M_FD, fd);
+            pending.set(r, M_ID, id);
+            pending.set(r, context);
+            useful = true;
+        }
+        return useful;
+    }
+
+    private void submit() {
+        if (ring.submit() < 0) {
+            LOG.error().$("io_uring submit failure [errno=").$(nf.errno()).$(']').$();
+        }
+    }
+}
@@ -24,9 +24,12 @@
 
 package io.questdb.network;
 
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
 import io.questdb.std.Os;
 
 public class IODispatchers {
+    private static final Log LOG = LogFactory.getLog(IODispatchers.class);
 
     private IODispatchers() {
     }
@@ -38,6 +41,12 @@ public class IODispatchers {
         switch (Os.type) {
             case Os.LINUX_AMD64:
             case Os.LINUX_ARM64:
+                if (configuration.isIOUringEnabled()) {
+                    if (configuration.getIOUringFacade().isAvailable()) {
+                        return new IODispatcherLinuxIOUring<>(configuration, ioContextFactory);
+                    }
+                    LOG.info().$("io_uring is not supported, falling back to epoll [dispatcher=").$(configuration.getDispatcherLogName()).$(']').$();
+                }
                 return new IODispatcherLinux<>(configuration, ioContextFactory);
             case Os.OSX_AMD64:
             case Os.OSX_ARM64:
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.network;
+
+import io.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * io_uring counterpart of {@link Epoll}. Poll requests are queued in the submission ring
+ * and sent to kernel in one batch by {@link #submit()}, completions are read from the ring
+ * shared with kernel without making a system call.
+ */
+public final class IOUring implements Closeable {
+    private final IOUringFacade rf;
+    private final long ring;
+    private final long cqes;
+    private final int capacity;
+    private boolean closed = false;
+    private long _rPtr;
+
+    public IOUring(IOUringFacade rf, int capacity) {
+        this.rf = rf;
+        this.capacity = capacity;
+        this.ring = rf.create(capacity);
+        if (ring == 0) {
+            throw NetworkError.instance(rf.errno(), "io_uring_setup");
+        }
+        this.cqes = _rPtr = Unsafe.calloc(IOUringAccessor.SIZEOF_CQE * (long) capacity);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        rf.close(ring);
+        Unsafe.free(cqes, IOUringAccessor.SIZEOF_CQE * (long) capacity);
+        closed = true;
+    }
+
+    public long getData() {
+        return Unsafe.getUnsafe().getLong(_rPtr + IOUringAccessor.CQE_DATA_OFFSET);
+    }
+
+    /**
+     * @return for poll requests either mask of ready events or negated errno
+     */
+    public int getResult() {
+        return Unsafe.getUnsafe().getInt(_rPtr + IOUringAccessor.CQE_RES_OFFSET);
+    }
+
+    public int poll() {
+        return rf.reap(ring, cqes, capacity);
+    }
+
+    public int pollAdd(long fd, long id, int event) {
+        return rf.pollAdd(ring, fd, id, event);
+    }
+
+    public int pollRemove(long targetId, long id) {
+        return rf.pollRemove(ring, targetId, id);
+    }
+
+    public void setOffset(int offset) {
+        this._rPtr = this.cqes + offset;
+    }
+
+    public int submit() {
+        return rf.submit(ring);
+    }
+
+    /**
+     * Submits queued requests and blocks until at least minComplete completions are available.
+     */
+    public int submitAndWait(int minComplete) {
+        return rf.submitAndWait(ring, minComplete);
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.network;
+
+public class IOUringAccessor {
+    public static final short SIZEOF_CQE;
+    public static final int POLLIN;
+    public static final int POLLOUT;
+    static final short CQE_DATA_OFFSET;
+    static final short CQE_RES_OFFSET;
+    // native library is optional to carry io_uring functions and kernel may not support
+    // io_uring or may have it disabled, in either case dispatcher falls back to epoll
+    static final boolean AVAILABLE;
+
+    static native long create(int entries);
+
+    static native void close(long ring);
+
+    static native int pollAdd(long ring, long fd, long data, int events);
+
+    static native int pollRemove(long ring, long targetData, long data);
+
+    static native int submit(long ring);
+
+    static native int submitAndWait(long ring, int minComplete);
+
+    static native int reap(long ring, long cqesPtr, int capacity);
+
+    static native short getCqeSize();
+
+    static native short getCqeDataOffset();
+
+    static native short getCqeResOffset();
+
+    static native int getPOLLIN();
+
+    static native int getPOLLOUT();
+
+    static {
+        short cqeSize = 0;
+        short cqeDataOffset = 0;
+        short cqeResOffset = 0;
+        int pollIn = 0;
+        int pollOut = 0;
+        boolean available = false;
+        try {
+            cqeSize = getCqeSize();
+            cqeDataOffset = getCqeDataOffset();
+            cqeResOffset = getCqeResOffset();
+            pollIn = getPOLLIN();
+            pollOut = getPOLLOUT();
+            final long ring = create(2);
+            if (ring != 0) {
+                close(ring);
+                available = true;
+            }
+        } catch (UnsatisfiedLinkError ignore) {
+        }
+        SIZEOF_CQE = cqeSize;
+        CQE_DATA_OFFSET = cqeDataOffset;
+        CQE_RES_OFFSET = cqeResOffset;
+        POLLIN = pollIn;
+        POLLOUT = pollOut;
+        AVAILABLE = available;
+    }
+}
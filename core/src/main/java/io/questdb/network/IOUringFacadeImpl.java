@@ -0,0 +1,82 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.network;
+
+import io.questdb.std.Os;
+
+public class IOUringFacadeImpl implements IOUringFacade {
+    public static final IOUringFacadeImpl INSTANCE = new IOUringFacadeImpl();
+
+    @Override
+    public void close(long ring) {
+        IOUringAccessor.close(ring);
+    }
+
+    @Override
+    public long create(int entries) {
+        return IOUringAccessor.create(entries);
+    }
+
+    @Override
+    public int errno() {
+        return Os.errno();
+    }
+
+    @Override
+    public NetworkFacade getNetworkFacade() {
+        return NetworkFacadeImpl.INSTANCE;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return IOUringAccessor.AVAILABLE;
+    }
+
+    @Override
+    public int pollAdd(long ring, long fd, long data, int events) {
+        return IOUringAccessor.pollAdd(ring, fd, data, events);
+    }
+
+    @Override
+    public int pollRemove(long ring, long targetData, long data) {
+        return IOUringAccessor.pollRemove(ring, targetData, data);
+    }
+
+    @Override
+    public int reap(long ring, long cqesPtr, int capacity) {
+        return IOUringAccessor.reap(ring, cqesPtr, capacity);
+    }
+
+    @Override
+    public int submit(long ring) {
+        return IOUringAccessor.submit(ring);
+    }
+
+    @Override
+    public int submitAndWait(long ring, int minComplete) {
+        return IOUringAccessor.submitAndWait(ring, minComplete);
+    }
+}
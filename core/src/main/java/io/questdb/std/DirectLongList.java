@@ -37,12 +37,18 @@ public class DirectLongList implements Mutable, Closeable {
     long pos;
     long start;
     long limit;
+    private final int memoryTag;
     private long address;
     private long capacity;
 
     public DirectLongList(long capacity) {
+        this(capacity, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public DirectLongList(long capacity, int memoryTag) {
+        this.memoryTag = memoryTag;
         this.capacity = (capacity * Long.BYTES);
-        this.address = Unsafe.malloc(this.capacity);
+        this.address = Unsafe.malloc(this.capacity, memoryTag);
         this.start = this.pos = address;
         this.limit = pos + this.capacity;
     }
@@ -113,7 +119,7 @@ public class DirectLongList implements Mutable, Closeable {
     @Override
     public void close() {
         if (address != 0) {
-            Unsafe.free(address, capacity);
+            Unsafe.free(address, capacity, memoryTag);
             address = 0;
         }
     }
@@ -182,8 +188,9 @@ public class DirectLongList implements Mutable, Closeable {
     // desired capacity in bytes (not count of LONG values)
     private void extendBytes(long capacity) {
         final long oldCapacity = this.capacity;
+        // realloc can fail when query memory limit is exceeded, list must stay intact
+        long address = Unsafe.realloc(this.address, oldCapacity, capacity, memoryTag);
         this.capacity = capacity;
-        long address = Unsafe.realloc(this.address, oldCapacity, capacity);
         this.pos = address + (this.pos - this.start);
         this.address = address;
         this.start = address;
@@ -178,16 +178,16 @@ public final class Files {
     public static long mmap(long fd, long len, long offset, int flags, long baseAddress) {
         long address = mmap0(fd, len, offset, flags, baseAddress);
         if (address != -1) {
-            Unsafe.recordMemAlloc(len);
+            Unsafe.recordMemAlloc(len, MemoryTag.MMAP_DEFAULT);
         }
         return address;
     }
 
     public static long mremap(long fd, long address, long previousSize, long newSize, long offset, int flags) {
-        Unsafe.recordMemAlloc(-previousSize);
+        Unsafe.recordMemAlloc(-previousSize, MemoryTag.MMAP_DEFAULT);
         address = mremap0(fd, address, previousSize, newSize, offset, flags);
         if (address != -1) {
-            Unsafe.recordMemAlloc(newSize);
+            Unsafe.recordMemAlloc(newSize, MemoryTag.MMAP_DEFAULT);
         }
         return address;
     }
@@ -196,7 +196,7 @@ public final class Files {
 
     public static void munmap(long address, long len) {
         if (address != 0 && munmap0(address, len) != -1) {
-            Unsafe.recordMemAlloc(-len);
+            Unsafe.recordMemAlloc(-len, MemoryTag.MMAP_DEFAULT);
         }
     }
 
@@ -41,12 +41,18 @@ public class MemoryPages implements Closeable, Mutable {
     private long cachePageHi;
     private long cachePageLo;
     private final int maxPages;
+    private final int memoryTag;
 
     public MemoryPages(long pageSize, int maxPages) {
+        this(pageSize, maxPages, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public MemoryPages(long pageSize, int maxPages, int memoryTag) {
         this.pageSize = Numbers.ceilPow2(pageSize);
         this.bits = Numbers.msb(this.pageSize);
         this.mask = this.pageSize - 1;
         this.maxPages = maxPages;
+        this.memoryTag = memoryTag;
         allocate0(0);
     }
 
@@ -76,7 +82,7 @@ public class MemoryPages implements Closeable, Mutable {
         for (int i = 0; i < pages.size(); i++) {
             long address = pages.getQuick(i);
             if (address != 0) {
-                Unsafe.free(address, pageSize);
+                Unsafe.free(address, pageSize, memoryTag);
             }
         }
         pages.clear();
@@ -96,7 +102,7 @@ public class MemoryPages implements Closeable, Mutable {
         }
 
         if (index >= pages.size()) {
-            pages.extendAndSet((int) index, Unsafe.malloc(pageSize));
+            pages.extendAndSet((int) index, Unsafe.malloc(pageSize, memoryTag));
             LOG.debug().$("new page [size=").$(pageSize).$(']').$();
         }
 
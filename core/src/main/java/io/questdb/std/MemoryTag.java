@@ -0,0 +1,63 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.std;
+
+/**
+ * Tags of native memory allocations. Usage is counted per tag by {@link Unsafe}, tags
+ * between {@link #QUERY_TAG_LO} and {@link #SIZE} are attributed to queries and count
+ * towards query memory budgets, see {@link QueryMemoryAccount}.
+ */
+public final class MemoryTag {
+    public static final int NATIVE_DEFAULT = 0;
+    public static final int MMAP_DEFAULT = 1;
+    public static final int NATIVE_FAST_MAP = 2;
+    public static final int NATIVE_RECORD_CHAIN = 3;
+    public static final int NATIVE_TREE_CHAIN = 4;
+    public static final int NATIVE_ANALYTIC = 5;
+    public static final int QUERY_TAG_LO = NATIVE_FAST_MAP;
+    public static final int SIZE = NATIVE_ANALYTIC + 1;
+
+    private static final String[] names = new String[SIZE];
+
+    private MemoryTag() {
+    }
+
+    public static boolean isQueryTag(int memoryTag) {
+        return memoryTag >= QUERY_TAG_LO;
+    }
+
+    public static String nameOf(int memoryTag) {
+        return names[memoryTag];
+    }
+
+    static {
+        names[NATIVE_DEFAULT] = "NATIVE_DEFAULT";
+        names[MMAP_DEFAULT] = "MMAP_DEFAULT";
+        names[NATIVE_FAST_MAP] = "NATIVE_FAST_MAP";
+        names[NATIVE_RECORD_CHAIN] = "NATIVE_RECORD_CHAIN";
+        names[NATIVE_TREE_CHAIN] = "NATIVE_TREE_CHAIN";
+        names[NATIVE_ANALYTIC] = "NATIVE_ANALYTIC";
+    }
+}
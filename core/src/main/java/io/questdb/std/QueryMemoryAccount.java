@@ -0,0 +1,140 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.std;
+
+import io.questdb.griffin.engine.LimitOverflowException;
+
+/**
+ * Native memory allocated by query structures, such as maps and record chains, on behalf
+ * of a single query. Account is bound to the thread that drives query execution, allocations
+ * with query memory tags on that thread are charged to the account and fail with
+ * {@link LimitOverflowException} when the per-query limit would be exceeded. Allocations on
+ * any thread are also checked against the global query memory limit.
+ * <p>
+ * Memory released while account is not bound is not credited back, accounts are therefore
+ * reset at start of each query.
+ */
+public class QueryMemoryAccount {
+    private static final ThreadLocal<QueryMemoryAccount> tlAccount = new ThreadLocal<>(() -> null);
+    private static volatile long globalLimit = 0;
+    private final long limit;
+    private long used;
+    private long peak;
+
+    /**
+     * @param limit max bytes of query memory, 0 means unlimited
+     */
+    public QueryMemoryAccount(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Binds account to current thread.
+     *
+     * @param account account to bind, null unbinds
+     * @return previously bound account, it should be restored once query execution step is done
+     */
+    public static QueryMemoryAccount bind(QueryMemoryAccount account) {
+        final QueryMemoryAccount prev = tlAccount.get();
+        tlAccount.set(account);
+        return prev;
+    }
+
+    public static long getGlobalLimit() {
+        return globalLimit;
+    }
+
+    public static long getGlobalUsed() {
+        long used = 0;
+        for (int tag = MemoryTag.QUERY_TAG_LO; tag < MemoryTag.SIZE; tag++) {
+            used += Unsafe.getMemUsedByTag(tag);
+        }
+        return used;
+    }
+
+    /**
+     * @param limit max bytes of query memory across all queries, 0 means unlimited
+     */
+    public static void setGlobalLimit(long limit) {
+        globalLimit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getPeak() {
+        return peak;
+    }
+
+    public long getUsed() {
+        return used;
+    }
+
+    public void reset() {
+        used = 0;
+        peak = 0;
+    }
+
+    // called before memory is allocated or released, size is negative on release
+    static void charge(int memoryTag, long size) {
+        final long globalLimit = QueryMemoryAccount.globalLimit;
+        if (size > 0 && globalLimit > 0) {
+            final long globalUsed = getGlobalUsed();
+            if (globalUsed + size > globalLimit) {
+                throw LimitOverflowException.instance()
+                        .put("global query memory limit exceeded [limit=").put(globalLimit)
+                        .put(", used=").put(globalUsed)
+                        .put(", requested=").put(size)
+                        .put(", tag=").put(MemoryTag.nameOf(memoryTag))
+                        .put(']');
+            }
+        }
+
+        final QueryMemoryAccount account = tlAccount.get();
+        if (account != null) {
+            account.charge0(memoryTag, size);
+        }
+    }
+
+    private void charge0(int memoryTag, long size) {
+        if (size > 0) {
+            if (limit > 0 && used + size > limit) {
+                throw LimitOverflowException.instance()
+                        .put("query memory limit exceeded [limit=").put(limit)
+                        .put(", used=").put(used)
+                        .put(", requested=").put(size)
+                        .put(", tag=").put(MemoryTag.nameOf(memoryTag))
+                        .put(']');
+            }
+            used += size;
+            if (used > peak) {
+                peak = used;
+            }
+        } else {
+            used = Math.max(0, used + size);
+        }
+    }
+}
@@ -38,6 +38,7 @@ public final class Unsafe {
     private static final sun.misc.Unsafe UNSAFE;
     private static final AtomicLong MALLOC_COUNT = new AtomicLong(0);
     private static final AtomicLong FREE_COUNT = new AtomicLong(0);
+    private static final AtomicLong[] TAG_MEM_USED = new AtomicLong[MemoryTag.SIZE];
     //#if jdk.version!=8
     private static final long OVERRIDE;
     private static final Method implAddExports;
@@ -64,6 +65,9 @@ public final class Unsafe {
         //#if jdk.version!=8
         makeAccessible(implAddExports);
         //#endif
+        for (int i = 0; i < MemoryTag.SIZE; i++) {
+            TAG_MEM_USED[i] = new AtomicLong(0);
+        }
     }
 
     //#if jdk.version!=8
@@ -146,9 +150,16 @@ public final class Unsafe {
     }
 
     public static void free(long ptr, long size) {
+        free(ptr, size, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public static void free(long ptr, long size, int memoryTag) {
+        if (MemoryTag.isQueryTag(memoryTag)) {
+            QueryMemoryAccount.charge(memoryTag, -size);
+        }
         getUnsafe().freeMemory(ptr);
         FREE_COUNT.incrementAndGet();
-        recordMemAlloc(-size);
+        recordMemAlloc(-size, memoryTag);
     }
 
     public static boolean getBool(long address) {
@@ -175,26 +186,51 @@ public final class Unsafe {
         return MEM_USED.get();
     }
 
+    public static long getMemUsedByTag(int memoryTag) {
+        return TAG_MEM_USED[memoryTag].get();
+    }
+
     public static sun.misc.Unsafe getUnsafe() {
         return UNSAFE;
     }
 
     public static long malloc(long size) {
+        return malloc(size, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public static long malloc(long size, int memoryTag) {
+        // query memory budgets are checked before memory is allocated
+        if (MemoryTag.isQueryTag(memoryTag)) {
+            QueryMemoryAccount.charge(memoryTag, size);
+        }
         long ptr = getUnsafe().allocateMemory(size);
-        recordMemAlloc(size);
+        recordMemAlloc(size, memoryTag);
         MALLOC_COUNT.incrementAndGet();
         return ptr;
     }
 
     public static long realloc(long address, long oldSize, long newSize) {
+        return realloc(address, oldSize, newSize, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public static long realloc(long address, long oldSize, long newSize, int memoryTag) {
+        if (MemoryTag.isQueryTag(memoryTag)) {
+            QueryMemoryAccount.charge(memoryTag, -oldSize + newSize);
+        }
         long ptr = getUnsafe().reallocateMemory(address, newSize);
-        recordMemAlloc(-oldSize + newSize);
+        recordMemAlloc(-oldSize + newSize, memoryTag);
         return ptr;
     }
 
     public static void recordMemAlloc(long size) {
+        recordMemAlloc(size, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    public static void recordMemAlloc(long size, int memoryTag) {
         long mem = MEM_USED.addAndGet(size);
         assert mem >= 0;
+        mem = TAG_MEM_USED[memoryTag].addAndGet(size);
+        assert mem >= 0;
     }
 
     private static int msb(int value) {
@@ -76,6 +76,9 @@ final public class Timestamps {
     public static final TimestampCeilMethod CEIL_MM = Timestamps::ceilMM;
     public static final TimestampAddMethod ADD_MM = Timestamps::addMonths;
     public static final TimestampAddMethod ADD_YYYY = Timestamps::addYear;
+    public static final TimestampFloorMethod FLOOR_HH = Timestamps::floorHH;
+    public static final TimestampCeilMethod CEIL_HH = Timestamps::ceilHH;
+    public static final TimestampAddMethod ADD_HH = Timestamps::addHours;
     private static final char BEFORE_ZERO = '0' - 1;
     private static final char AFTER_NINE = '9' + 1;
 
@@ -185,6 +188,10 @@ final public class Timestamps {
                 ;
     }
 
+    public static long ceilHH(long micros) {
+        return floorHH(micros) + HOUR_MICROS - 1;
+    }
+
     public static long ceilMM(long micros) {
         int y, m;
         boolean l;
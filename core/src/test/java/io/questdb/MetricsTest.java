@@ -30,6 +30,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.function.LongSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -108,6 +109,26 @@ public class MetricsTest {
             return delegate.newGauge(name);
         }
 
+        @Override
+        public Histogram newHistogram(CharSequence name) {
+            addMetricName(name);
+            return delegate.newHistogram(name);
+        }
+
+        @Override
+        public HistogramWithOneLabel newHistogram(CharSequence name, CharSequence labelName0) {
+            addMetricName(name);
+            addLabelNames(name, Collections.singletonList(labelName0));
+            return delegate.newHistogram(name, labelName0);
+        }
+
+        @Override
+        public Scrapable newVirtualGauge(CharSequence name, CharSequence labelName0, CharSequence[] labelValues0, LongSupplier[] values) {
+            addMetricName(name);
+            addLabelNames(name, Collections.singletonList(labelName0));
+            return delegate.newVirtualGauge(name, labelName0, labelValues0, values);
+        }
+
         @Override
         public void scrapeIntoPrometheus(CharSink sink) {
             delegate.scrapeIntoPrometheus(sink);
@@ -33,6 +33,7 @@ import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.network.EpollFacadeImpl;
 import io.questdb.network.IOOperation;
+import io.questdb.network.IOUringFacadeImpl;
 import io.questdb.network.NetworkFacadeImpl;
 import io.questdb.network.SelectFacadeImpl;
 import io.questdb.std.FilesFacadeImpl;
@@ -98,6 +99,7 @@ public class PropServerConfigurationTest {
 
         Assert.assertEquals(256, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getActiveConnectionLimit());
         Assert.assertEquals(1024, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getEventCapacity());
+        Assert.assertFalse(configuration.getHttpServerConfiguration().getDispatcherConfiguration().isIOUringEnabled());
         Assert.assertEquals(1024, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getIOQueueCapacity());
         Assert.assertEquals(300000, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getIdleConnectionTimeout());
         Assert.assertEquals(5000, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getQueuedConnectionTimeout());
@@ -124,6 +126,7 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(1_000_000, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getConnectionCheckFrequency());
         Assert.assertEquals(4, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getFloatScale());
         Assert.assertEquals(12, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getDoubleScale());
+        Assert.assertEquals(65536, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getArrowBatchRowCount());
         Assert.assertEquals("Keep-Alive: timeout=5, max=10000" + Misc.EOL, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getKeepAliveHeader());
 
         Assert.assertFalse(configuration.getHttpServerConfiguration().getHttpContextConfiguration().readOnlySecurityContext());
@@ -139,6 +142,7 @@ public class PropServerConfigurationTest {
         Assert.assertEquals("fast", configuration.getCairoConfiguration().getDefaultMapType());
         Assert.assertTrue(configuration.getCairoConfiguration().getDefaultSymbolCacheFlag());
         Assert.assertEquals(256, configuration.getCairoConfiguration().getDefaultSymbolCapacity());
+        Assert.assertTrue(configuration.getCairoConfiguration().isSymbolCapacityAutoScaleEnabled());
         Assert.assertEquals(30, configuration.getCairoConfiguration().getFileOperationRetryCount());
         Assert.assertEquals(300000, configuration.getCairoConfiguration().getIdleCheckInterval());
         Assert.assertEquals(120_000, configuration.getCairoConfiguration().getInactiveReaderTTL());
@@ -164,6 +168,8 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(Integer.MAX_VALUE, configuration.getCairoConfiguration().getSqlMapMaxPages());
         Assert.assertEquals(Integer.MAX_VALUE, configuration.getCairoConfiguration().getSqlMapMaxResizes());
         Assert.assertEquals(1024, configuration.getCairoConfiguration().getSqlModelPoolCapacity());
+        Assert.assertEquals(0, configuration.getCairoConfiguration().getSqlQueryMemoryLimit());
+        Assert.assertEquals(0, configuration.getCairoConfiguration().getSqlGlobalQueryMemoryLimit());
         Assert.assertEquals(4 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSortKeyPageSize());
         Assert.assertEquals(Integer.MAX_VALUE, configuration.getCairoConfiguration().getSqlSortKeyMaxPages());
         Assert.assertEquals(8 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSortLightValuePageSize());
@@ -206,6 +212,7 @@ public class PropServerConfigurationTest {
         Assert.assertSame(MillisecondClockImpl.INSTANCE, configuration.getHttpServerConfiguration().getHttpContextConfiguration().getClock());
         Assert.assertSame(NetworkFacadeImpl.INSTANCE, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getNetworkFacade());
         Assert.assertSame(EpollFacadeImpl.INSTANCE, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getEpollFacade());
+        Assert.assertSame(IOUringFacadeImpl.INSTANCE, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getIOUringFacade());
         Assert.assertSame(SelectFacadeImpl.INSTANCE, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getSelectFacade());
         Assert.assertSame(FilesFacadeImpl.INSTANCE, configuration.getCairoConfiguration().getFilesFacade());
         Assert.assertSame(MillisecondClockImpl.INSTANCE, configuration.getCairoConfiguration().getMillisecondClock());
@@ -226,6 +233,8 @@ public class PropServerConfigurationTest {
         Assert.assertEquals(0, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getBindIPv4Address());
         Assert.assertEquals(9009, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getBindPort());
         Assert.assertEquals(1024, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getEventCapacity());
+        Assert.assertFalse(configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().isIOUringEnabled());
+        Assert.assertFalse(configuration.getPGWireConfiguration().getDispatcherConfiguration().isIOUringEnabled());
         Assert.assertEquals(256, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getIOQueueCapacity());
         Assert.assertEquals(0, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getIdleConnectionTimeout());
         Assert.assertEquals(5000, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getQueuedConnectionTimeout());
@@ -263,6 +272,15 @@ public class PropServerConfigurationTest {
         Assert.assertEquals("Unknown Version", configuration.getCairoConfiguration().getBuildInformation().getCommitHash());
 
         Assert.assertFalse(configuration.getMetricsConfiguration().isEnabled());
+
+        Assert.assertFalse(configuration.getReplicationConfiguration().isEnabled());
+        Assert.assertEquals(9010, configuration.getReplicationConfiguration().getDispatcherConfiguration().getBindPort());
+        Assert.assertEquals(65536, configuration.getReplicationConfiguration().getMaxRowsPerFrame());
+        Assert.assertEquals(16 * 1024 * 1024, configuration.getReplicationConfiguration().getMaxResponseSize());
+        Assert.assertFalse(configuration.getReplicationConfiguration().isReplicaEnabled());
+        Assert.assertEquals(0x7f000001, configuration.getReplicationConfiguration().getReplicaPrimaryIPv4Address());
+        Assert.assertEquals(9010, configuration.getReplicationConfiguration().getReplicaPrimaryPort());
+        Assert.assertEquals(0, configuration.getReplicationConfiguration().getReplicaTables().size());
     }
 
     @Test
@@ -450,6 +468,7 @@ public class PropServerConfigurationTest {
 
             Assert.assertEquals(64, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getActiveConnectionLimit());
             Assert.assertEquals(2048, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getEventCapacity());
+            Assert.assertTrue(configuration.getHttpServerConfiguration().getDispatcherConfiguration().isIOUringEnabled());
             Assert.assertEquals(64, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getIOQueueCapacity());
             Assert.assertEquals(7000000, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getIdleConnectionTimeout());
             Assert.assertEquals(1001, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getQueuedConnectionTimeout());
@@ -474,6 +493,7 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(9900, configuration.getHttpServerConfiguration().getDispatcherConfiguration().getBindPort());
             Assert.assertEquals(2_000, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getConnectionCheckFrequency());
             Assert.assertEquals(4, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getFloatScale());
+            Assert.assertEquals(4096, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getArrowBatchRowCount());
             Assert.assertEquals(4194304, configuration.getCairoConfiguration().getSqlCopyBufferSize());
             Assert.assertEquals(64, configuration.getCairoConfiguration().getCopyPoolCapacity());
             Assert.assertSame(FilesFacadeImpl.INSTANCE, configuration.getHttpServerConfiguration().getJsonQueryProcessorConfiguration().getFilesFacade());
@@ -486,6 +506,7 @@ public class PropServerConfigurationTest {
             Assert.assertEquals("compact", configuration.getCairoConfiguration().getDefaultMapType());
             Assert.assertTrue(configuration.getCairoConfiguration().getDefaultSymbolCacheFlag());
             Assert.assertEquals(512, configuration.getCairoConfiguration().getDefaultSymbolCapacity());
+            Assert.assertFalse(configuration.getCairoConfiguration().isSymbolCapacityAutoScaleEnabled());
             Assert.assertEquals(10, configuration.getCairoConfiguration().getFileOperationRetryCount());
             Assert.assertEquals(20_000, configuration.getCairoConfiguration().getIdleCheckInterval());
             Assert.assertEquals(600_000, configuration.getCairoConfiguration().getInactiveReaderTTL());
@@ -509,6 +530,8 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(1026, configuration.getCairoConfiguration().getSqlMapMaxPages());
             Assert.assertEquals(128, configuration.getCairoConfiguration().getSqlMapMaxResizes());
             Assert.assertEquals(256, configuration.getCairoConfiguration().getSqlModelPoolCapacity());
+            Assert.assertEquals(64 * 1024 * 1024, configuration.getCairoConfiguration().getSqlQueryMemoryLimit());
+            Assert.assertEquals(1024 * 1024 * 1024, configuration.getCairoConfiguration().getSqlGlobalQueryMemoryLimit());
             Assert.assertEquals(10 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSortKeyPageSize());
             Assert.assertEquals(256, configuration.getCairoConfiguration().getSqlSortKeyMaxPages());
             Assert.assertEquals(3 * 1024 * 1024, configuration.getCairoConfiguration().getSqlSortLightValuePageSize());
@@ -557,6 +580,7 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(167903521, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getBindIPv4Address());
             Assert.assertEquals(9916, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getBindPort());
             Assert.assertEquals(1025, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getEventCapacity());
+            Assert.assertTrue(configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().isIOUringEnabled());
             Assert.assertEquals(1026, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getIOQueueCapacity());
             Assert.assertEquals(400_000, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getIdleConnectionTimeout());
             Assert.assertEquals(1_002, configuration.getLineTcpReceiverConfiguration().getNetDispatcherConfiguration().getQueuedConnectionTimeout());
@@ -593,6 +617,22 @@ public class PropServerConfigurationTest {
             Assert.assertEquals(33554432L, configuration.getCairoConfiguration().getAppendPageSize());
 
             Assert.assertTrue(configuration.getMetricsConfiguration().isEnabled());
+
+            Assert.assertTrue(configuration.getReplicationConfiguration().isEnabled());
+            Assert.assertEquals(9020, configuration.getReplicationConfiguration().getDispatcherConfiguration().getBindPort());
+            Assert.assertEquals(20, configuration.getReplicationConfiguration().getDispatcherConfiguration().getActiveConnectionLimit());
+            Assert.assertEquals(32768, configuration.getReplicationConfiguration().getRecvBufferSize());
+            Assert.assertEquals(131072, configuration.getReplicationConfiguration().getSendBufferSize());
+            Assert.assertEquals(1000, configuration.getReplicationConfiguration().getMaxRowsPerFrame());
+            Assert.assertEquals(4 * 1024 * 1024, configuration.getReplicationConfiguration().getMaxResponseSize());
+            Assert.assertTrue(configuration.getReplicationConfiguration().isReplicaEnabled());
+            Assert.assertEquals(0x0a000001, configuration.getReplicationConfiguration().getReplicaPrimaryIPv4Address());
+            Assert.assertEquals(9030, configuration.getReplicationConfiguration().getReplicaPrimaryPort());
+            Assert.assertEquals(500, configuration.getReplicationConfiguration().getReplicaPollInterval());
+            Assert.assertEquals(2 * 1024 * 1024, configuration.getReplicationConfiguration().getReplicaRecvBufferSize());
+            Assert.assertEquals(2, configuration.getReplicationConfiguration().getReplicaTables().size());
+            Assert.assertEquals("trades", configuration.getReplicationConfiguration().getReplicaTables().getQuick(0));
+            Assert.assertEquals("quotes", configuration.getReplicationConfiguration().getReplicaTables().getQuick(1));
         }
     }
 
@@ -64,6 +64,9 @@ public class AbstractCairoTest {
     protected static int capacity = -1;
     protected static int sampleByIndexSearchPageSize;
     protected static CharSequence defaultMapType;
+    protected static long sqlCopyChunkSize = -1;
+    protected static int zoneMapBlockSize = -1;
+    protected static int columnStatsRefreshRowCount = -1;
 
     @Rule
     public TestName testName = new TestName();
@@ -120,6 +123,21 @@ public class AbstractCairoTest {
                 return sampleByIndexSearchPageSize > 0 ? sampleByIndexSearchPageSize : super.getSampleByIndexSearchPageSize();
             }
 
+            @Override
+            public long getSqlCopyChunkSize() {
+                return sqlCopyChunkSize > 0 ? sqlCopyChunkSize : super.getSqlCopyChunkSize();
+            }
+
+            @Override
+            public int getZoneMapBlockSize() {
+                return zoneMapBlockSize > 0 ? zoneMapBlockSize : super.getZoneMapBlockSize();
+            }
+
+            @Override
+            public int getColumnStatsRefreshRowCount() {
+                return columnStatsRefreshRowCount > 0 ? columnStatsRefreshRowCount : super.getColumnStatsRefreshRowCount();
+            }
+
             @Override
             public CharSequence getDefaultMapType() {
                 if (defaultMapType == null) {
@@ -156,6 +174,9 @@ public class AbstractCairoTest {
         currentMicros = -1;
         sampleByIndexSearchPageSize = -1;
         defaultMapType = null;
+        sqlCopyChunkSize = -1;
+        zoneMapBlockSize = -1;
+        columnStatsRefreshRowCount = -1;
     }
 
     protected static void assertMemoryLeak(TestUtils.LeakProneCode code) throws Exception {
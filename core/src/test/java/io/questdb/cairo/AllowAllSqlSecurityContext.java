@@ -31,6 +31,7 @@ import io.questdb.cairo.sql.VirtualRecord;
 import io.questdb.griffin.SqlExecutionContext;
 import io.questdb.griffin.SqlExecutionInterruptor;
 import io.questdb.griffin.engine.analytic.AnalyticContext;
+import io.questdb.std.QueryMemoryAccount;
 import io.questdb.std.Rnd;
 import org.jetbrains.annotations.Nullable;
 
@@ -107,7 +108,7 @@ public final class AllowAllSqlSecurityContext {
         }
 
         @Override
-        public void configureAnalyticContext(@Nullable VirtualRecord partitionByRecord, @Nullable RecordSink partitionBySink, @Nullable ColumnTypes keyTypes, boolean isOrdered, boolean baseSupportsRandomAccess) {
+        public void configureAnalyticContext(@Nullable VirtualRecord partitionByRecord, @Nullable RecordSink partitionBySink, @Nullable ColumnTypes keyTypes, boolean isOrdered, boolean baseSupportsRandomAccess, int framingMode, long rowsLo, int timestampIndex) {
 
         }
 
@@ -120,5 +121,10 @@ public final class AllowAllSqlSecurityContext {
         public long getNow() {
             return 0;
         }
+
+        @Override
+        public QueryMemoryAccount getMemoryAccount() {
+            return null;
+        }
     };
 }
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.SymbolTable;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlException;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.str.LPSZ;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomFilterTest extends AbstractGriffinTest {
+
+    @Before
+    public void setUp3() {
+        // refresh stats of active partition on every commit
+        columnStatsRefreshRowCount = 1;
+    }
+
+    @Test
+    public void testAlterTableAddBloom() throws Exception {
+        final int[] opened = {0};
+        final FilesFacade ff = new FilesFacadeImpl() {
+            @Override
+            public long openRO(LPSZ name) {
+                if (Chars.endsWith(name, "id.d")) {
+                    opened[0]++;
+                }
+                return super.openRO(name);
+            }
+        };
+        assertMemoryLeak(ff, () -> {
+            compiler.compile(
+                    "create table x as (select x id, concat('c', x) client, timestamp_sequence(0, 864000000) ts from long_sequence(1000)) timestamp(ts) partition by DAY",
+                    sqlExecutionContext
+            );
+            Assert.assertNull(mightContain("x", 0, "client", "c1"));
+
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select id from x where client = 'c150'", "id\n150\n");
+            Assert.assertEquals(10, opened[0]);
+
+            compiler.compile("alter table x alter column client add bloom", sqlExecutionContext);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(Boolean.TRUE, mightContain("x", i, "client", "c" + (i * 100 + 1)));
+            }
+
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select id from x where client = 'c150'", "id\n150\n");
+            Assert.assertEquals(1, opened[0]);
+
+            try {
+                compiler.compile("alter table x alter column client add bloom", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "already has bloom filter");
+            }
+
+            try {
+                compiler.compile("alter table x alter column id add bloom", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "cannot create bloom filter");
+            }
+        });
+    }
+
+    @Test
+    public void testCreateTableUnsupportedType() throws Exception {
+        assertFailure(
+                "create table x (i int, s string), bloom(i)",
+                null,
+                40,
+                "bloom filter is supported for SYMBOL and STRING columns only"
+        );
+        assertFailure(
+                "create table x as (select x i from long_sequence(1)), bloom(i)",
+                null,
+                13,
+                "bloom filter is supported for SYMBOL and STRING columns only"
+        );
+    }
+
+    @Test
+    public void testFilterAcrossCommits() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table x (s string, ts timestamp), bloom(s) timestamp(ts) partition by NONE", sqlExecutionContext);
+            // more rows than initial filter capacity, so filter is rebuilt on the way
+            try (TableWriter writer = getWriter("x")) {
+                for (int i = 0; i < 3000; i++) {
+                    TableWriter.Row row = writer.newRow(i);
+                    row.putStr(0, i % 7 == 0 ? null : "v" + i);
+                    row.append();
+                    if (i % 500 == 499) {
+                        writer.commit();
+                        for (int j = 0; j <= i; j += 13) {
+                            if (j % 7 != 0) {
+                                Assert.assertEquals(Boolean.TRUE, mightContain("x", 0, "s", "v" + j));
+                            }
+                        }
+                    }
+                }
+            }
+
+            int falsePositives = 0;
+            for (int i = 3000; i < 13000; i++) {
+                if (mightContain("x", 0, "s", "v" + i)) {
+                    falsePositives++;
+                }
+            }
+            // 1% target rate
+            Assert.assertTrue(falsePositives < 200);
+
+            assertSql("select count() from x where s in ('v1', 'v2', 'v3', 'v99999')", "count\n3\n");
+        });
+    }
+
+    @Test
+    public void testPartitionsSkipped() throws Exception {
+        final int[] opened = {0};
+        final FilesFacade ff = new FilesFacadeImpl() {
+            @Override
+            public long openRO(LPSZ name) {
+                if (Chars.endsWith(name, "id.d")) {
+                    opened[0]++;
+                }
+                return super.openRO(name);
+            }
+        };
+        assertMemoryLeak(ff, () -> {
+            // 100 rows a day over 10 days
+            compiler.compile(
+                    "create table x as (" +
+                            "select x id, concat('c', x) client, concat('s', x / 100) sym, timestamp_sequence(0, 864000000) ts from long_sequence(1000)" +
+                            "), cast(sym as symbol), bloom(client), bloom(sym) timestamp(ts) partition by DAY",
+                    sqlExecutionContext
+            );
+
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select id from x where client = 'c150'", "id\n150\n");
+            Assert.assertEquals(1, opened[0]);
+
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select id from x where client in ('c150', 'c950', 'none')", "id\n150\n950\n");
+            Assert.assertEquals(2, opened[0]);
+
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select id from x where 'none' = client", "id\n");
+            Assert.assertEquals(0, opened[0]);
+
+            // s3 is in rows 300 to 399, which are in partitions 2 and 3
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select count() from x where sym = 's3' and id > 0", "count\n100\n");
+            Assert.assertEquals(2, opened[0]);
+
+            // value symbol table does not have
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select count() from x where sym = 's100'", "count\n0\n");
+            Assert.assertEquals(0, opened[0]);
+
+            // disjunction cannot be pruned
+            engine.releaseAllReaders();
+            opened[0] = 0;
+            assertSql("select count() from x where client = 'c150' or id = 1", "count\n2\n");
+            Assert.assertEquals(10, opened[0]);
+        });
+    }
+
+    @Test
+    public void testSymbolFilterIgnoresNulls() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table x (s symbol, ts timestamp), bloom(s) timestamp(ts) partition by DAY", sqlExecutionContext);
+            try (TableWriter writer = getWriter("x")) {
+                TableWriter.Row row = writer.newRow(0);
+                row.putSym(0, "abc");
+                row.append();
+                row = writer.newRow(1);
+                row.append();
+                writer.commit();
+            }
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                Assert.assertTrue(reader.getMetadata().isColumnBloomFiltered(0));
+                Assert.assertFalse(reader.getMetadata().isColumnBloomFiltered(1));
+                try (BloomFilterReader bloomFilter = new BloomFilterReader()) {
+                    Assert.assertTrue(reader.loadBloomFilter(0, 0, bloomFilter));
+                    Assert.assertEquals(2, bloomFilter.getRowCount());
+                    Assert.assertTrue(bloomFilter.mightContain(BloomFilterReader.hash(0)));
+                    Assert.assertFalse(bloomFilter.mightContain(BloomFilterReader.hash(SymbolTable.VALUE_IS_NULL)));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testTruncateNonPartitioned() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table x (s string), bloom(s)", sqlExecutionContext);
+            executeInsert("insert into x values ('abc')");
+            Assert.assertEquals(Boolean.TRUE, mightContain("x", 0, "s", "abc"));
+
+            compiler.compile("truncate table x", sqlExecutionContext);
+            executeInsert("insert into x values ('def')");
+            Assert.assertEquals(Boolean.FALSE, mightContain("x", 0, "s", "abc"));
+            Assert.assertEquals(Boolean.TRUE, mightContain("x", 0, "s", "def"));
+        });
+    }
+
+    private static TableWriter getWriter(String name) {
+        return engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, name, "testing");
+    }
+
+    private static Boolean mightContain(String tableName, int partitionIndex, String columnName, String value) {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                BloomFilterReader bloomFilter = new BloomFilterReader()
+        ) {
+            if (!reader.loadBloomFilter(partitionIndex, reader.getMetadata().getColumnIndex(columnName), bloomFilter)) {
+                return null;
+            }
+            return bloomFilter.mightContain(BloomFilterReader.hash(value));
+        }
+    }
+}
@@ -24,6 +24,7 @@
 
 package io.questdb.cairo;
 
+import io.questdb.Metrics;
 import io.questdb.cairo.pool.PoolListener;
 import io.questdb.cairo.security.AllowAllCairoSecurityContext;
 import io.questdb.cairo.sql.ReaderOutOfDateException;
@@ -36,6 +37,7 @@ import io.questdb.std.FilesFacadeImpl;
 import io.questdb.std.LongList;
 import io.questdb.std.str.LPSZ;
 import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
 import io.questdb.test.tools.TestUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -134,6 +136,43 @@ public class CairoEngineTest extends AbstractCairoTest {
         });
     }
 
+    @Test
+    public void testMetrics() throws Exception {
+        createX();
+
+        TestUtils.assertMemoryLeak(() -> {
+            try (CairoEngine engine = new CairoEngine(configuration, Metrics.enabled())) {
+                try (TableWriter writer = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, "x", "testing")) {
+                    for (int i = 0; i < 3; i++) {
+                        TableWriter.Row row = writer.newRow();
+                        row.putInt(0, i);
+                        row.append();
+                    }
+                    writer.commit();
+
+                    try {
+                        engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, "x", "testing");
+                        Assert.fail();
+                    } catch (EntryUnavailableException ignored) {
+                    }
+                }
+                try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                    Assert.assertEquals(3, reader.size());
+                }
+
+                final StringSink sink = new StringSink();
+                engine.getMetrics().scrapeIntoPrometheus(sink);
+                final String scrape = sink.toString();
+                Assert.assertTrue(scrape, scrape.contains("questdb_table_writer_commit_micros_count{table=\"x\"} 1\n"));
+                Assert.assertTrue(scrape, scrape.contains("questdb_table_writer_committed_rows_total 3\n"));
+                Assert.assertTrue(scrape, scrape.contains("questdb_writer_pool_get_micros_count 2\n"));
+                Assert.assertTrue(scrape, scrape.contains("questdb_writer_pool_busy_total 1\n"));
+                Assert.assertTrue(scrape, scrape.contains("questdb_reader_pool_get_micros_count 1\n"));
+                Assert.assertTrue(scrape, scrape.contains("questdb_message_bus_queue_depth{queue=\"o3_copy\"} 0\n"));
+            }
+        });
+    }
+
     @Test
     public void testNewTableRename() throws Exception {
         createX();
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.vm.Vm;
+import io.questdb.cairo.vm.api.MemoryMR;
+import io.questdb.std.*;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ColumnCodecTest extends AbstractCairoTest {
+    private final Rnd rnd = new Rnd();
+
+    @BeforeClass
+    public static void setUpStatic() {
+        AbstractCairoTest.setUpStatic();
+        // zip allocates its static memory on first use
+        Zip.init();
+    }
+
+    @Test
+    public void testBitPack() throws Exception {
+        assertRoundTrip(ColumnCodec.BIT_PACK, 4, 10_000, (p, i) -> Unsafe.getUnsafe().putInt(p, i % 7 == 0 ? Numbers.INT_NaN : rnd.nextInt(300)));
+    }
+
+    @Test
+    public void testBitPackAllNulls() throws Exception {
+        final long size = assertRoundTrip(ColumnCodec.BIT_PACK, 4, 1000, (p, i) -> Unsafe.getUnsafe().putInt(p, Numbers.INT_NaN));
+        // header only
+        Assert.assertEquals(ColumnCodec.HEADER_SIZE + 12, size);
+    }
+
+    @Test
+    public void testBitPackExtremeValues() throws Exception {
+        assertRoundTrip(ColumnCodec.BIT_PACK, 4, 1001, (p, i) -> Unsafe.getUnsafe().putInt(p, i % 2 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        assertRoundTrip(ColumnCodec.DEFLATE, 1, 100_000, (p, i) -> Unsafe.getUnsafe().putByte(p, (byte) ('a' + rnd.nextInt(4))));
+    }
+
+    @Test
+    public void testDeltaOfDelta() throws Exception {
+        final long size = assertRoundTrip(ColumnCodec.DELTA_OF_DELTA, 8, 10_000, (p, i) -> Unsafe.getUnsafe().putLong(p, 1_600_000_000_000_000L + i * 1_000_000L));
+        // first delta takes three bytes, then one byte per value
+        Assert.assertEquals(ColumnCodec.HEADER_SIZE + 8 + 3 + 9_998, size);
+    }
+
+    @Test
+    public void testDeltaOfDeltaRandom() throws Exception {
+        assertRoundTrip(ColumnCodec.DELTA_OF_DELTA, 8, 10_000, (p, i) -> Unsafe.getUnsafe().putLong(p, rnd.nextLong()));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertRoundTrip(ColumnCodec.DELTA_OF_DELTA, 8, 0, (p, i) -> {
+        });
+        assertRoundTrip(ColumnCodec.XOR, 8, 0, (p, i) -> {
+        });
+        assertRoundTrip(ColumnCodec.BIT_PACK, 4, 0, (p, i) -> {
+        });
+        assertRoundTrip(ColumnCodec.DEFLATE, 1, 0, (p, i) -> {
+        });
+    }
+
+    @Test
+    public void testFileRoundTrip() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final FilesFacade ff = FilesFacadeImpl.INSTANCE;
+            final int count = 1000;
+            final long size = count * 8L;
+            final long src = Unsafe.malloc(size);
+            try (Path path = new Path(); Path other = new Path()) {
+                for (int i = 0; i < count; i++) {
+                    Unsafe.getUnsafe().putDouble(src + i * 8L, 100.0 + (i % 10) * 0.25);
+                }
+                path.of(root).concat("x.dz").$();
+                Assert.assertTrue(ColumnCodec.compress(ff, src, size, ColumnCodec.XOR, path, false));
+                Assert.assertTrue(ff.length(path) < size);
+
+                try (MemoryMR mem = Vm.getDecompressedMRInstance(ff, path)) {
+                    Assert.assertEquals(size, mem.size());
+                    for (int i = 0; i < count; i++) {
+                        Assert.assertEquals(Unsafe.getUnsafe().getDouble(src + i * 8L), mem.getDouble(i * 8L), 0);
+                    }
+                }
+
+                other.of(root).concat("x.d").$();
+                ColumnCodec.decompress(ff, path, other);
+                try (MemoryMR mem = Vm.getMRInstance(ff, other, Long.MAX_VALUE)) {
+                    Assert.assertEquals(size, mem.size());
+                    assertMemEquals(src, mem.addressOf(0), size);
+                }
+            } finally {
+                Unsafe.free(src, size);
+            }
+        });
+    }
+
+    @Test
+    public void testIncompressible() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final FilesFacade ff = FilesFacadeImpl.INSTANCE;
+            final long size = 1024;
+            final long src = Unsafe.malloc(size);
+            try (Path path = new Path()) {
+                for (long p = src; p < src + size; p += 8) {
+                    Unsafe.getUnsafe().putLong(p, rnd.nextLong());
+                }
+                path.of(root).concat("x.dz").$();
+                Assert.assertFalse(ColumnCodec.compress(ff, src, size, ColumnCodec.DELTA_OF_DELTA, path, false));
+                Assert.assertFalse(ff.exists(path));
+
+                // forced compression writes the file regardless
+                Assert.assertTrue(ColumnCodec.compress(ff, src, size, ColumnCodec.DELTA_OF_DELTA, path, true));
+                try (MemoryMR mem = Vm.getDecompressedMRInstance(ff, path)) {
+                    assertMemEquals(src, mem.addressOf(0), size);
+                }
+            } finally {
+                Unsafe.free(src, size);
+            }
+        });
+    }
+
+    @Test
+    public void testXor() throws Exception {
+        assertRoundTrip(ColumnCodec.XOR, 8, 10_000, (p, i) -> Unsafe.getUnsafe().putDouble(p, i % 11 == 0 ? Double.NaN : 1000 + rnd.nextInt(100) / 4.0));
+    }
+
+    @Test
+    public void testXorRandom() throws Exception {
+        assertRoundTrip(ColumnCodec.XOR, 8, 10_000, (p, i) -> Unsafe.getUnsafe().putDouble(p, rnd.nextDouble()));
+    }
+
+    private static void assertMemEquals(long expected, long actual, long size) {
+        for (long i = 0; i < size; i++) {
+            Assert.assertEquals(Unsafe.getUnsafe().getByte(expected + i), Unsafe.getUnsafe().getByte(actual + i));
+        }
+    }
+
+    private long assertRoundTrip(int codec, int valueSize, int count, ValueWriter writer) throws Exception {
+        final long[] encodedSize = new long[1];
+        TestUtils.assertMemoryLeak(() -> {
+            final long size = (long) count * valueSize;
+            final long src = Unsafe.malloc(Math.max(size, 1));
+            final long bufSize = ColumnCodec.getEncodeBufferSize(size);
+            final long buf = Unsafe.malloc(bufSize);
+            final long dst = Unsafe.malloc(Math.max(size, 1));
+            try {
+                for (int i = 0; i < count; i++) {
+                    writer.write(src + (long) i * valueSize, i);
+                }
+                final long len = ColumnCodec.encode(codec, src, size, buf, bufSize);
+                Assert.assertTrue(len >= ColumnCodec.HEADER_SIZE);
+                Assert.assertEquals(size, ColumnCodec.getDecodedSize(buf));
+                ColumnCodec.decode(buf, len, dst);
+                assertMemEquals(src, dst, size);
+                encodedSize[0] = len;
+            } finally {
+                Unsafe.free(src, Math.max(size, 1));
+                Unsafe.free(buf, bufSize);
+                Unsafe.free(dst, Math.max(size, 1));
+            }
+        });
+        return encodedSize[0];
+    }
+
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(long address, int index);
+    }
+}
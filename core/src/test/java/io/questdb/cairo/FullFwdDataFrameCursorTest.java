@@ -2608,5 +2608,80 @@ public class FullFwdDataFrameCursorTest extends AbstractCairoTest {
         public Sequence getLatestBySubSeq() {
             return null;
         }
+
+        @Override
+        public Sequence getLatestByScanPubSeq() {
+            return null;
+        }
+
+        @Override
+        public RingQueue<LatestByScanTask> getLatestByScanQueue() {
+            return null;
+        }
+
+        @Override
+        public Sequence getLatestByScanSubSeq() {
+            return null;
+        }
+
+        @Override
+        public Sequence getPageFrameFilterPubSeq() {
+            return null;
+        }
+
+        @Override
+        public RingQueue<PageFrameFilterTask> getPageFrameFilterQueue() {
+            return null;
+        }
+
+        @Override
+        public Sequence getPageFrameFilterSubSeq() {
+            return null;
+        }
+
+        @Override
+        public Sequence getPageFrameGroupByPubSeq() {
+            return null;
+        }
+
+        @Override
+        public RingQueue<PageFrameGroupByTask> getPageFrameGroupByQueue() {
+            return null;
+        }
+
+        @Override
+        public Sequence getPageFrameGroupBySubSeq() {
+            return null;
+        }
+
+        @Override
+        public Sequence getHashJoinBuildPubSeq() {
+            return null;
+        }
+
+        @Override
+        public RingQueue<HashJoinBuildTask> getHashJoinBuildQueue() {
+            return null;
+        }
+
+        @Override
+        public Sequence getHashJoinBuildSubSeq() {
+            return null;
+        }
+
+        @Override
+        public Sequence getTextImportPubSeq() {
+            return null;
+        }
+
+        @Override
+        public RingQueue<TextImportTask> getTextImportQueue() {
+            return null;
+        }
+
+        @Override
+        public Sequence getTextImportSubSeq() {
+            return null;
+        }
     }
 }
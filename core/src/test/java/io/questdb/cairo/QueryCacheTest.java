@@ -0,0 +1,237 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cairo.sql.RecordMetadata;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.std.IntList;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryCacheTest extends AbstractGriffinTest {
+
+    @Test
+    public void testBindVariableTypesArePartOfKey() {
+        try (QueryCache cache = new QueryCache(configuration)) {
+            final IntList keyTypes = new IntList();
+            keyTypes.add(ColumnType.INT);
+            final IntList outTypes = new IntList();
+            outTypes.add(ColumnType.INT);
+            outTypes.add(ColumnType.STRING);
+
+            final TestFactory factory = new TestFactory();
+            cache.push("select $1, $2", keyTypes, factory, outTypes, 0);
+
+            Assert.assertNull(cache.poll("select $1, $2"));
+            outTypes.clear();
+            Assert.assertSame(factory, cache.poll("select $1, $2", keyTypes, outTypes));
+            Assert.assertEquals("[5,11]", outTypes.toString());
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        try (QueryCache cache = new QueryCache(new DefaultCairoConfiguration(root) {
+            @Override
+            public int getQueryCacheCapacity() {
+                return 0;
+            }
+        })) {
+            final TestFactory factory = new TestFactory();
+            cache.push("select 1", factory, 0);
+            Assert.assertTrue(factory.closed);
+            Assert.assertNull(cache.poll("select 1"));
+        }
+    }
+
+    @Test
+    public void testCloseFreesFactories() {
+        final TestFactory a = new TestFactory();
+        final TestFactory b = new TestFactory();
+        try (QueryCache cache = new QueryCache(configuration)) {
+            cache.push("select 1", a, 0);
+            cache.push("select 1", b, 0);
+            Assert.assertEquals(2, cache.getSize());
+        }
+        Assert.assertTrue(a.closed);
+        Assert.assertTrue(b.closed);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        try (QueryCache cache = new QueryCache(new DefaultCairoConfiguration(root) {
+            @Override
+            public int getQueryCacheCapacity() {
+                return 2;
+            }
+        })) {
+            final TestFactory a = new TestFactory();
+            final TestFactory b = new TestFactory();
+            final TestFactory c = new TestFactory();
+            cache.push("select 'a'", a, 0);
+            cache.push("select 'b'", b, 0);
+            // "a" becomes more recent than "b"
+            Assert.assertSame(a, cache.poll("select 'a'"));
+            cache.push("select 'a'", a, 0);
+
+            cache.push("select 'c'", c, 0);
+            Assert.assertEquals(2, cache.getSize());
+            Assert.assertFalse(a.closed);
+            Assert.assertTrue(b.closed);
+            Assert.assertFalse(c.closed);
+            Assert.assertNull(cache.poll("select 'b'"));
+        }
+    }
+
+    @Test
+    public void testEvictOnMemoryLimit() {
+        try (QueryCache cache = new QueryCache(new DefaultCairoConfiguration(root) {
+            @Override
+            public long getQueryCacheMemoryLimit() {
+                return 1000;
+            }
+        })) {
+            final TestFactory a = new TestFactory();
+            final TestFactory b = new TestFactory();
+            cache.push("select 'a'", a, 600);
+            cache.push("select 'b'", b, 600);
+            Assert.assertTrue(a.closed);
+            Assert.assertFalse(b.closed);
+            Assert.assertEquals(600, cache.getMemoryUsed());
+
+            // estimate of cached factory is remembered
+            Assert.assertSame(b, cache.poll("select 'b'"));
+            Assert.assertEquals(0, cache.getMemoryUsed());
+            cache.push("select 'b'", b, -1);
+            Assert.assertEquals(600, cache.getMemoryUsed());
+        }
+    }
+
+    @Test
+    public void testIdleCopies() {
+        try (QueryCache cache = new QueryCache(configuration)) {
+            final TestFactory a = new TestFactory();
+            final TestFactory b = new TestFactory();
+            cache.push("select 1", a, 0);
+            cache.push("select 1", b, 0);
+            final RecordCursorFactory f1 = cache.poll("select 1");
+            final RecordCursorFactory f2 = cache.poll("select 1");
+            Assert.assertNotNull(f1);
+            Assert.assertNotNull(f2);
+            Assert.assertNotSame(f1, f2);
+            Assert.assertNull(cache.poll("select 1"));
+            Assert.assertEquals(0, cache.getSize());
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        try (QueryCache cache = new QueryCache(configuration)) {
+            final TestFactory a = new TestFactory();
+            final TestFactory b = new TestFactory();
+            cache.push("select 1", a, 10);
+            cache.push("select 1", b, 10);
+            cache.invalidate("select  1", null);
+            Assert.assertTrue(a.closed);
+            Assert.assertTrue(b.closed);
+            Assert.assertEquals(0, cache.getSize());
+            Assert.assertEquals(0, cache.getMemoryUsed());
+            Assert.assertNull(cache.poll("select 1"));
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        assertNormalized("select * from x", "  select *  \n\tfrom   x  ");
+        assertNormalized("select 'a  b', \"c  d\" from x", "select   'a  b',  \"c  d\"   from x");
+        assertNormalized("select 'it''s  here' from x", "select 'it''s  here'  from x");
+        assertNormalized("select 1 -- a  b\nfrom x", "select 1    -- a  b\n   from x");
+        assertNormalized("select 1 /* a  b */ from x", "select 1 /* a  b */\tfrom x");
+        assertNormalized("select 1 - 2 from x", "select 1  -  2 from x");
+    }
+
+    @Test
+    public void testReuseCompiledFactory() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table x as (select x, timestamp_sequence(0, 1000000) ts from long_sequence(5)) timestamp(ts)", sqlExecutionContext);
+            final QueryCache cache = engine.getQueryCache();
+            final RecordCursorFactory factory = compiler.compile("select * from x where x > 2", sqlExecutionContext).getRecordCursorFactory();
+            cache.push("select * from x where x > 2", factory, 0);
+
+            final RecordCursorFactory cached = cache.poll("select *\nfrom x\nwhere x > 2");
+            Assert.assertSame(factory, cached);
+            try (RecordCursor cursor = cached.getCursor(sqlExecutionContext)) {
+                sink.clear();
+                printer.print(cursor, cached.getMetadata(), true, sink);
+                TestUtils.assertEquals("x\tts\n" +
+                        "3\t1970-01-01T00:00:02.000000Z\n" +
+                        "4\t1970-01-01T00:00:03.000000Z\n" +
+                        "5\t1970-01-01T00:00:04.000000Z\n", sink);
+            }
+            cache.push("select * from x where x > 2", cached, -1);
+            Assert.assertEquals(1, cache.getSize());
+            // engine.clear() frees cached factories
+        });
+    }
+
+    private static void assertNormalized(String expected, String sql) {
+        final StringSink sink = new StringSink();
+        QueryCache.normalize(sql, sink);
+        TestUtils.assertEquals(expected, sink);
+    }
+
+    private static class TestFactory implements RecordCursorFactory {
+        private boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public RecordCursor getCursor(SqlExecutionContext executionContext) throws SqlException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public RecordMetadata getMetadata() {
+            return null;
+        }
+
+        @Override
+        public boolean recordCursorSupportsRandomAccess() {
+            return false;
+        }
+    }
+}
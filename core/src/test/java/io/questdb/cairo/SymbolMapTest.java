@@ -29,6 +29,7 @@ import io.questdb.cairo.sql.SymbolTable;
 import io.questdb.cairo.vm.Vm;
 import io.questdb.cairo.vm.api.MemoryCMARW;
 import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
 import io.questdb.std.ObjList;
 import io.questdb.std.Rnd;
 import io.questdb.std.str.Path;
@@ -106,6 +107,176 @@ public class SymbolMapTest extends AbstractCairoTest {
         });
     }
 
+    @Test
+    public void testGrowCapacity() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            int N = 1000;
+            try (Path path = new Path().of(configuration.getRoot())) {
+                create(path, "x", 4, false);
+                try (
+                        SymbolMapWriter writer = new SymbolMapWriter(configuration, path, "x", 0, TRANSIENT_SYMBOL_COUNT_CHANGE_HANDLER);
+                        SymbolMapReaderImpl reader = new SymbolMapReaderImpl(configuration, path, "x", 0)
+                ) {
+                    Rnd rnd = new Rnd();
+                    for (int i = 0; i < N; i++) {
+                        CharSequence cs = rnd.nextChars(10);
+                        Assert.assertEquals(i, writer.put(cs));
+                        Assert.assertEquals(i, writer.put(cs));
+                    }
+                    Assert.assertEquals(1024, writer.getSymbolCapacity());
+                    int indexVersion = writer.getIndexVersion();
+                    Assert.assertTrue(indexVersion > 0);
+
+                    // grown index is not visible to reader until commit
+                    reader.updateSymbolCount(0);
+                    Assert.assertEquals(4, reader.getSymbolCapacity());
+
+                    writer.commitIndex();
+                    reader.updateSymbolCount(N);
+                    Assert.assertEquals(1024, reader.getSymbolCapacity());
+
+                    rnd.reset();
+                    for (int i = 0; i < N; i++) {
+                        Assert.assertEquals(i, reader.keyOf(rnd.nextChars(10)));
+                    }
+
+                    // versions rebuilt and superseded before commit are removed
+                    FilesFacade ff = configuration.getFilesFacade();
+                    int plen = path.length();
+                    Assert.assertTrue(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "x", indexVersion)));
+                    Assert.assertTrue(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "x", 0)));
+                    Assert.assertFalse(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "x", indexVersion - 1)));
+
+                    // second growth removes version reader has not been using since previous commit
+                    for (int i = 0; i < N; i++) {
+                        Assert.assertEquals(N + i, writer.put(rnd.nextChars(10)));
+                    }
+                    writer.commitIndex();
+                    Assert.assertEquals(2048, writer.getSymbolCapacity());
+                    Assert.assertFalse(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "x", 0)));
+                    Assert.assertTrue(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "x", indexVersion)));
+                    path.trimTo(plen);
+
+                    reader.updateSymbolCount(2 * N);
+                    Assert.assertEquals(2048, reader.getSymbolCapacity());
+                    rnd.reset();
+                    for (int i = 0; i < 2 * N; i++) {
+                        Assert.assertEquals(i, reader.keyOf(rnd.nextChars(10)));
+                    }
+                }
+
+                // writer reopens grown index
+                try (SymbolMapWriter writer = new SymbolMapWriter(configuration, path, "x", 2 * N, TRANSIENT_SYMBOL_COUNT_CHANGE_HANDLER)) {
+                    Assert.assertEquals(2048, writer.getSymbolCapacity());
+                    Rnd rnd = new Rnd();
+                    for (int i = 0; i < 2 * N; i++) {
+                        Assert.assertEquals(i, writer.put(rnd.nextChars(10)));
+                    }
+                    Assert.assertEquals(2 * N, writer.getSymbolCount());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testGrowCapacityDisabled() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public boolean isSymbolCapacityAutoScaleEnabled() {
+                    return false;
+                }
+            };
+            int N = 1000;
+            try (Path path = new Path().of(configuration.getRoot())) {
+                create(path, "x", 4, false);
+                try (SymbolMapWriter writer = new SymbolMapWriter(configuration, path, "x", 0, TRANSIENT_SYMBOL_COUNT_CHANGE_HANDLER)) {
+                    Rnd rnd = new Rnd();
+                    for (int i = 0; i < N; i++) {
+                        Assert.assertEquals(i, writer.put(rnd.nextChars(10)));
+                    }
+                    writer.commitIndex();
+                    Assert.assertEquals(4, writer.getSymbolCapacity());
+                    Assert.assertEquals(0, writer.getIndexVersion());
+                    try (SymbolMapReaderImpl reader = new SymbolMapReaderImpl(configuration, path, "x", N)) {
+                        Assert.assertEquals(4, reader.getSymbolCapacity());
+                        rnd.reset();
+                        for (int i = 0; i < N; i++) {
+                            Assert.assertEquals(i, reader.keyOf(rnd.nextChars(10)));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testGrowCapacityTableWriter() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            try (TableModel model = new TableModel(configuration, "x", PartitionBy.NONE)
+                    .col("sym", ColumnType.SYMBOL).symbolCapacity(4)
+                    .col("v", ColumnType.INT)
+            ) {
+                CairoTestUtils.create(model);
+            }
+
+            final int N = 100;
+            try (
+                    TableWriter writer = new TableWriter(configuration, "x");
+                    TableReader reader = new TableReader(configuration, "x")
+            ) {
+                for (int i = 0; i < N; i++) {
+                    TableWriter.Row row = writer.newRow();
+                    row.putSym(0, "s" + i);
+                    row.putInt(1, i);
+                    row.append();
+                }
+                writer.commit();
+
+                Assert.assertTrue(reader.reload());
+                SymbolMapReader symbolMapReader = reader.getSymbolMapReader(0);
+                Assert.assertEquals(128, symbolMapReader.getSymbolCapacity());
+                for (int i = 0; i < N; i++) {
+                    Assert.assertEquals(i, symbolMapReader.keyOf("s" + i));
+                }
+
+                writer.renameColumn("sym", "sym2");
+                for (int i = 0; i < N; i++) {
+                    TableWriter.Row row = writer.newRow();
+                    row.putSym(0, "t" + i);
+                    row.putInt(1, i);
+                    row.append();
+                }
+                writer.commit();
+            }
+
+            FilesFacade ff = configuration.getFilesFacade();
+            try (Path path = new Path().of(configuration.getRoot()).concat("x")) {
+                int plen = path.length();
+                Assert.assertFalse(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "sym", 6)));
+                Assert.assertTrue(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "sym2", 6)));
+                Assert.assertTrue(ff.exists(SymbolMapWriter.indexValueFileName(path.trimTo(plen), "sym2", 6)));
+
+                try (TableReader reader = new TableReader(configuration, "x")) {
+                    SymbolMapReader symbolMapReader = reader.getSymbolMapReader(0);
+                    Assert.assertEquals(256, symbolMapReader.getSymbolCapacity());
+                    for (int i = 0; i < N; i++) {
+                        Assert.assertEquals(i, symbolMapReader.keyOf("s" + i));
+                        Assert.assertEquals(N + i, symbolMapReader.keyOf("t" + i));
+                    }
+                }
+
+                try (TableWriter writer = new TableWriter(configuration, "x")) {
+                    writer.removeColumn("sym2");
+                }
+                for (int v = 0; v <= 6; v++) {
+                    Assert.assertFalse(ff.exists(SymbolMapWriter.indexKeyFileName(path.trimTo(plen), "sym2", v)));
+                    Assert.assertFalse(ff.exists(SymbolMapWriter.indexValueFileName(path.trimTo(plen), "sym2", v)));
+                }
+            }
+        });
+    }
+
     @Test
     public void testLookupPerformance() throws Exception {
         TestUtils.assertMemoryLeak(() -> {
@@ -2097,6 +2097,16 @@ public class TableReaderTest extends AbstractCairoTest {
         testReload(PartitionBy.DAY, 150, 6 * 60000L, MUST_SWITCH);
     }
 
+    @Test
+    public void testReloadByHourSamePartition() throws Exception {
+        testReload(PartitionBy.HOUR, 10, 60000L, MUST_NOT_SWITCH);
+    }
+
+    @Test
+    public void testReloadByHourSwitch() throws Exception {
+        testReload(PartitionBy.HOUR, 150, 30000L, MUST_SWITCH);
+    }
+
     @Test
     public void testReloadByMonthSamePartition() throws Exception {
         testReload(PartitionBy.MONTH, 15, 60L * 60000, MUST_NOT_SWITCH);
@@ -2233,6 +2243,11 @@ public class TableReaderTest extends AbstractCairoTest {
         testRemoveActivePartition(PartitionBy.DAY, current -> Timestamps.addDays(Timestamps.floorDD(current), 1), "2017-12-15");
     }
 
+    @Test
+    public void testRemoveActivePartitionByHour() throws Exception {
+        testRemoveActivePartition(PartitionBy.HOUR, current -> Timestamps.addHours(Timestamps.floorHH(current), 1), "2017-12-11T04");
+    }
+
     @Test
     public void testRemoveActivePartitionByMonth() throws Exception {
         testRemoveActivePartition(PartitionBy.MONTH, current -> Timestamps.addMonths(Timestamps.floorMM(current), 1), "2018-04");
@@ -2316,6 +2331,16 @@ public class TableReaderTest extends AbstractCairoTest {
         testRemovePartition(PartitionBy.DAY, "2017-12-11", 0, current -> Timestamps.addDays(Timestamps.floorDD(current), 2));
     }
 
+    @Test
+    public void testRemoveFirstPartitionByHour() throws Exception {
+        testRemovePartition(PartitionBy.HOUR, "2017-12-11T10", 0, current -> Timestamps.addHours(Timestamps.floorHH(current), 1));
+    }
+
+    @Test
+    public void testRemoveFirstPartitionByHourReload() throws Exception {
+        testRemovePartitionReload(PartitionBy.HOUR, "2017-12-11T00", 0, current -> Timestamps.addHours(Timestamps.floorHH(current), 1));
+    }
+
     @Test
     public void testRemoveFirstPartitionByMonth() throws Exception {
         testRemovePartition(PartitionBy.MONTH, "2017-12", 0, current -> Timestamps.addMonths(Timestamps.floorMM(current), 1));
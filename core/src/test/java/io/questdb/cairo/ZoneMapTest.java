@@ -0,0 +1,304 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cairo;
+
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.Chars;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.Numbers;
+import io.questdb.std.datetime.microtime.Timestamps;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.StringSink;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZoneMapTest extends AbstractGriffinTest {
+    private final StringSink zoneMapSink = new StringSink();
+
+    @Before
+    public void setUp3() {
+        // refresh stats of active partition on every commit
+        columnStatsRefreshRowCount = 1;
+    }
+
+    @Test
+    public void testActivePartitionRefresh() throws Exception {
+        zoneMapBlockSize = 2;
+        columnStatsRefreshRowCount = 3;
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                appendInt(writer, 0, 5);
+                writer.commit();
+                appendInt(writer, 1, 7);
+                writer.commit();
+                Assert.assertEquals("none", zoneMap("x", 0, "i", false));
+
+                appendInt(writer, 2, 3);
+                writer.commit();
+                Assert.assertEquals("3:0:3:7 [0:5:7] [0:3:3]", zoneMap("x", 0, "i", false));
+
+                // switching partition refreshes previous one regardless of row count
+                appendInt(writer, 3, 1);
+                appendInt(writer, Timestamps.DAY_MICROS, 42);
+                writer.commit();
+                Assert.assertEquals("4:0:1:7 [0:5:7] [0:1:3]", zoneMap("x", 0, "i", false));
+                Assert.assertEquals("none", zoneMap("x", 1, "i", false));
+            }
+        });
+    }
+
+    @Test
+    public void testColumnTop() throws Exception {
+        zoneMapBlockSize = 2;
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                appendInt(writer, 0, 1);
+                appendInt(writer, 1, 2);
+                writer.commit();
+
+                writer.addColumn("j", ColumnType.INT);
+                TableWriter.Row row = writer.newRow(2);
+                row.putInt(0, 3);
+                row.putInt(5, 30);
+                row.append();
+                writer.commit();
+            }
+            Assert.assertEquals("3:2:30:30 [2] [0:30:30]", zoneMap("x", 0, "j", false));
+        });
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = new TableWriter(new DefaultCairoConfiguration(root) {
+                @Override
+                public boolean isZoneMapEnabled() {
+                    return false;
+                }
+            }, "x")) {
+                appendInt(writer, 0, 1);
+                writer.commit();
+            }
+            Assert.assertEquals("none", zoneMap("x", 0, "i", false));
+        });
+    }
+
+    @Test
+    public void testDoubleAndLong() throws Exception {
+        zoneMapBlockSize = 2;
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                final double[] doubles = {Double.NaN, -1.5, 2.25, Double.NaN, Double.NaN};
+                final long[] longs = {Numbers.LONG_NaN, 7, -3, Numbers.LONG_NaN, 100};
+                for (int i = 0; i < doubles.length; i++) {
+                    TableWriter.Row row = writer.newRow(i);
+                    row.putLong(1, longs[i]);
+                    row.putDouble(2, doubles[i]);
+                    row.append();
+                }
+                writer.commit();
+            }
+            Assert.assertEquals("5:3:-1.5:2.25 [1:-1.5:-1.5] [1:2.25:2.25] [1]", zoneMap("x", 0, "d", true));
+            Assert.assertEquals("5:2:-3:100 [1:7:7] [1:-3:-3] [0:100:100]", zoneMap("x", 0, "l", false));
+            Assert.assertEquals("none", zoneMap("x", 0, "ts", false));
+        });
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        zoneMapBlockSize = 2;
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                appendInt(writer, 0, 5);
+                writer.commit();
+                Assert.assertEquals("1:0:5:5 [0:5:5]", zoneMap("x", 0, "i", false));
+
+                appendInt(writer, 1, Numbers.INT_NaN);
+                appendInt(writer, 2, 3);
+                appendInt(writer, 3, 10);
+                writer.commit();
+                Assert.assertEquals("4:1:3:10 [1:5:5] [0:3:10]", zoneMap("x", 0, "i", false));
+
+                // next day, previous partition is updated when transaction commits
+                appendInt(writer, Timestamps.DAY_MICROS - 1, -20);
+                appendInt(writer, Timestamps.DAY_MICROS, 42);
+                writer.commit();
+                Assert.assertEquals("5:1:-20:10 [1:5:5] [0:3:10] [0:-20:-20]", zoneMap("x", 0, "i", false));
+                Assert.assertEquals("1:0:42:42 [0:42:42]", zoneMap("x", 1, "i", false));
+            }
+        });
+    }
+
+    @Test
+    public void testOutOfOrderRewritesPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                appendInt(writer, 10, 1);
+                appendInt(writer, 20, 2);
+                appendInt(writer, Timestamps.DAY_MICROS, 100);
+                writer.commit();
+
+                appendInt(writer, 15, -7);
+                writer.commit();
+            }
+            Assert.assertEquals("3:0:-7:2 [0:-7:2]", zoneMap("x", 0, "i", false));
+            Assert.assertEquals("1:0:100:100 [0:100:100]", zoneMap("x", 1, "i", false));
+        });
+    }
+
+    @Test
+    public void testPartitionsSkipped() throws Exception {
+        final int[] opened = {0};
+        final FilesFacade ff = new FilesFacadeImpl() {
+            @Override
+            public long openRO(LPSZ name) {
+                if (Chars.endsWith(name, "id.d")) {
+                    opened[0]++;
+                }
+                return super.openRO(name);
+            }
+        };
+        zoneMapBlockSize = 16;
+        assertMemoryLeak(ff, () -> {
+            // 100 rows a day over 10 days
+            compiler.compile(
+                    "create table x as (select x id, timestamp_sequence(0, 864000000) ts from long_sequence(1000)) timestamp(ts) partition by DAY",
+                    sqlExecutionContext
+            );
+
+            opened[0] = 0;
+            assertSql("select count() from x where id > 950", "count\n50\n");
+            Assert.assertEquals(1, opened[0]);
+
+            opened[0] = 0;
+            assertSql("select count() from x where id >= 150 and id < 260", "count\n110\n");
+            Assert.assertEquals(2, opened[0]);
+
+            opened[0] = 0;
+            assertSql("select count() from x where id = 2000", "count\n0\n");
+            Assert.assertEquals(0, opened[0]);
+        });
+    }
+
+    @Test
+    public void testSymbolHasNoZoneMap() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.DAY);
+            try (TableWriter writer = getWriter("x")) {
+                TableWriter.Row row = writer.newRow(0);
+                row.putSym(3, "abc");
+                row.append();
+                writer.commit();
+            }
+            Assert.assertEquals("none", zoneMap("x", 0, "s", false));
+        });
+    }
+
+    @Test
+    public void testTruncateNonPartitioned() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable("x", PartitionBy.NONE);
+            try (TableWriter writer = getWriter("x")) {
+                appendInt(writer, 0, 100);
+                appendInt(writer, 1, 200);
+                writer.commit();
+                Assert.assertEquals("2:0:100:200 [0:100:200]", zoneMap("x", 0, "i", false));
+
+                writer.truncate();
+                appendInt(writer, 0, 1);
+                appendInt(writer, 1, 2);
+                appendInt(writer, 2, 3);
+                writer.commit();
+            }
+            Assert.assertEquals("3:0:1:3 [0:1:3]", zoneMap("x", 0, "i", false));
+        });
+    }
+
+    private static void appendInt(TableWriter writer, long timestamp, int value) {
+        TableWriter.Row row = writer.newRow(timestamp);
+        row.putInt(0, value);
+        row.append();
+    }
+
+    private static void createTable(String name, int partitionBy) {
+        try (TableModel model = new TableModel(configuration, name, partitionBy)
+                .col("i", ColumnType.INT)
+                .col("l", ColumnType.LONG)
+                .col("d", ColumnType.DOUBLE)
+                .col("s", ColumnType.SYMBOL)
+                .timestamp("ts")) {
+            CairoTestUtils.create(model);
+        }
+    }
+
+    private static TableWriter getWriter(String name) {
+        return engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, name, "testing");
+    }
+
+    private String zoneMap(String tableName, int partitionIndex, String columnName, boolean isDouble) {
+        try (
+                TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName);
+                ZoneMapReader zoneMap = new ZoneMapReader()
+        ) {
+            if (!reader.loadZoneMap(partitionIndex, reader.getMetadata().getColumnIndex(columnName), zoneMap)) {
+                return "none";
+            }
+            zoneMapSink.clear();
+            zoneMapSink.put(zoneMap.getRowCount()).put(':').put(zoneMap.getNullCount()).put(':');
+            putValue(zoneMap.getMin(), isDouble);
+            zoneMapSink.put(':');
+            putValue(zoneMap.getMax(), isDouble);
+            for (long block = 0, n = zoneMap.getBlockCount(); block < n; block++) {
+                zoneMapSink.put(" [").put(zoneMap.getBlockNullCount(block));
+                if (zoneMap.getBlockNullCount(block) < zoneMap.getBlockRowCount(block)) {
+                    zoneMapSink.put(':');
+                    putValue(zoneMap.getBlockMin(block), isDouble);
+                    zoneMapSink.put(':');
+                    putValue(zoneMap.getBlockMax(block), isDouble);
+                }
+                zoneMapSink.put(']');
+            }
+            return zoneMapSink.toString();
+        }
+    }
+
+    private void putValue(long value, boolean isDouble) {
+        if (isDouble) {
+            zoneMapSink.put(Double.longBitsToDouble(value));
+        } else {
+            zoneMapSink.put(value);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cairo.wal;
+
+import io.questdb.cairo.*;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlCompiler;
+import io.questdb.griffin.SqlException;
+import io.questdb.griffin.SqlExecutionContextImpl;
+import io.questdb.std.Files;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.str.NativeLPSZ;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WalWriterTest extends AbstractGriffinTest {
+
+    @Test
+    public void testApplyConcurrentLogs() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (
+                    WalWriter w1 = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x");
+                    WalWriter w2 = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")
+            ) {
+                Assert.assertNotEquals(w1.getWalId(), w2.getWalId());
+                appendRow(w1, 1, "A", "foo", 3000);
+                appendRow(w2, 2, "B", null, 1000);
+                appendRow(w1, 3, null, "bar", 4000);
+                appendRow(w2, 4, "A", "baz", 2000);
+                w1.commit();
+                w2.commit();
+
+                // rows are not visible until they are applied
+                assertSql("x", "i\tsym\ts\tts\n");
+
+                Assert.assertTrue(engine.getWalApplyJob().run(0));
+                assertSql(
+                        "x",
+                        "i\tsym\ts\tts\n" +
+                                "2\tB\t\t1970-01-01T00:00:00.001000Z\n" +
+                                "4\tA\tbaz\t1970-01-01T00:00:00.002000Z\n" +
+                                "1\tA\tfoo\t1970-01-01T00:00:00.003000Z\n" +
+                                "3\t\tbar\t1970-01-01T00:00:00.004000Z\n"
+                );
+
+                appendRow(w2, 5, "C", "qux", 1500);
+                w2.commit();
+            }
+            drain();
+            assertSql(
+                    "x",
+                    "i\tsym\ts\tts\n" +
+                            "2\tB\t\t1970-01-01T00:00:00.001000Z\n" +
+                            "5\tC\tqux\t1970-01-01T00:00:00.001500Z\n" +
+                            "4\tA\tbaz\t1970-01-01T00:00:00.002000Z\n" +
+                            "1\tA\tfoo\t1970-01-01T00:00:00.003000Z\n" +
+                            "3\t\tbar\t1970-01-01T00:00:00.004000Z\n"
+            );
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testBusyTableWriter() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (WalWriter walWriter = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                appendRow(walWriter, 1, "A", "foo", 1000);
+                walWriter.commit();
+
+                try (TableWriter ignored = engine.getWriter(AllowAllCairoSecurityContext.INSTANCE, "x", "test")) {
+                    Assert.assertFalse(engine.getWalApplyJob().run(0));
+                }
+                Assert.assertTrue(engine.getWalApplyJob().run(0));
+            }
+            drain();
+            assertSql(
+                    "x",
+                    "i\tsym\ts\tts\n" +
+                            "1\tA\tfoo\t1970-01-01T00:00:00.001000Z\n"
+            );
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testDropTable() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (WalWriter walWriter = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                appendRow(walWriter, 1, "A", "foo", 1000);
+                walWriter.commit();
+            }
+            compiler.compile("drop table x", sqlExecutionContext);
+            drain();
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testNullsAndColumnMismatch() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (WalWriter walWriter = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                walWriter.newRow(1000).append();
+                compiler.compile("alter table x drop column s", sqlExecutionContext);
+                compiler.compile("alter table x add column d double", sqlExecutionContext);
+                appendRow(walWriter, 2, "B", "dropped", 2000);
+                walWriter.commit();
+            }
+            drain();
+            assertSql(
+                    "x",
+                    "i\tsym\tts\td\n" +
+                            "NaN\t\t1970-01-01T00:00:00.001000Z\tNaN\n" +
+                            "2\tB\t1970-01-01T00:00:00.002000Z\tNaN\n"
+            );
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            // release table lock held by the writer pool
+            engine.clear();
+            try (CairoEngine engine1 = new CairoEngine(configuration)) {
+                try (WalWriter walWriter = engine1.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                    appendRow(walWriter, 1, "A", "foo", 1000);
+                    appendRow(walWriter, 2, "B", "bar", 2000);
+                    walWriter.commit();
+                    appendRow(walWriter, 3, "C", "baz", 3000);
+                    walWriter.commit();
+                    // uncommitted row is lost
+                    appendRow(walWriter, 4, "D", "qux", 4000);
+                }
+            }
+
+            // another instance of the engine finds the log on disk and applies it
+            try (
+                    CairoEngine engine2 = new CairoEngine(configuration);
+                    SqlCompiler compiler2 = new SqlCompiler(engine2);
+                    SqlExecutionContextImpl context2 = new SqlExecutionContextImpl(engine2, 1)
+            ) {
+                final WalApplyJob job = engine2.getWalApplyJob();
+                Assert.assertEquals(1, job.getSegmentCount());
+                Assert.assertTrue(job.run(0));
+                Assert.assertEquals(0, job.getSegmentCount());
+                TestUtils.assertSql(
+                        compiler2,
+                        context2,
+                        "x",
+                        sink,
+                        "i\tsym\ts\tts\n" +
+                                "1\tA\tfoo\t1970-01-01T00:00:00.001000Z\n" +
+                                "2\tB\tbar\t1970-01-01T00:00:00.002000Z\n" +
+                                "3\tC\tbaz\t1970-01-01T00:00:00.003000Z\n"
+                );
+                // new logs do not reuse ids of recovered ones
+                Assert.assertEquals(2, job.getNextWalId());
+            }
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testRollbackAndCancel() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (WalWriter walWriter = engine.getWalWriter(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                appendRow(walWriter, 1, "A", "foo", 1000);
+                walWriter.commit();
+                appendRow(walWriter, 2, "B", "bar", 2000);
+                appendRow(walWriter, 3, "C", "baz", 3000);
+                walWriter.rollback();
+                Assert.assertEquals(1, walWriter.getRowCount());
+
+                WalWriter.Row row = walWriter.newRow(4000);
+                row.putInt(0, 4);
+                row.putStr(2, "cancelled");
+                row.cancel();
+
+                appendRow(walWriter, 5, "E", "qux", 5000);
+                walWriter.commit();
+            }
+            drain();
+            assertSql(
+                    "x",
+                    "i\tsym\ts\tts\n" +
+                            "1\tA\tfoo\t1970-01-01T00:00:00.001000Z\n" +
+                            "5\tE\tqux\t1970-01-01T00:00:00.005000Z\n"
+            );
+            assertWalRemoved();
+        });
+    }
+
+    @Test
+    public void testSegmentRollover() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            final CairoConfiguration rolloverConfiguration = new DefaultCairoConfiguration(root) {
+                @Override
+                public long getWalSegmentRolloverRowCount() {
+                    return 3;
+                }
+            };
+            final WalApplyJob job = engine.getWalApplyJob();
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                try (WalWriter walWriter = new WalWriter(rolloverConfiguration, "x", job.getNextWalId(), reader.getMetadata(), job)) {
+                    for (int i = 0; i < 10; i++) {
+                        appendRow(walWriter, i, "A", "foo", i * 1000L);
+                        walWriter.commit();
+                    }
+                    Assert.assertEquals(3, walWriter.getSegmentId());
+                    Assert.assertEquals(4, job.getSegmentCount());
+
+                    // applied segments, which writer has switched from, are removed
+                    Assert.assertTrue(job.run(0));
+                    Assert.assertEquals(1, job.getSegmentCount());
+                }
+            }
+            drain();
+            assertSql("select sum(i), min(ts), max(ts) from x", "sum\tmin\tmax\n45\t1970-01-01T00:00:00.000000Z\t1970-01-01T00:00:00.009000Z\n");
+            assertWalRemoved();
+        });
+    }
+
+    private static void appendRow(WalWriter walWriter, int i, CharSequence sym, CharSequence s, long timestamp) {
+        WalWriter.Row row = walWriter.newRow(timestamp);
+        row.putInt(0, i);
+        row.putSym(1, sym);
+        row.putStr(2, s);
+        row.append();
+    }
+
+    private static void assertWalRemoved() {
+        Assert.assertEquals(0, engine.getWalApplyJob().getSegmentCount());
+        try (Path path = new Path()) {
+            // table directory of the log may remain, but there are no logs in it
+            final FilesFacade ff = FilesFacadeImpl.INSTANCE;
+            path.of(configuration.getRoot()).concat(WalApplyJob.WAL_DIR_NAME).concat("x").$();
+            if (ff.exists(path)) {
+                final NativeLPSZ name = new NativeLPSZ();
+                ff.iterateDir(path, (pName, type) -> {
+                    name.of(pName);
+                    Assert.assertTrue(type != Files.DT_DIR || Files.isDots(name));
+                });
+            }
+        }
+    }
+
+    private static void createTable() throws SqlException {
+        compiler.compile("create table x (i int, sym symbol, s string, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+    }
+
+    private static void drain() {
+        final WalApplyJob job = engine.getWalApplyJob();
+        //noinspection StatementWithEmptyBody
+        while (job.run(0)) ;
+    }
+}
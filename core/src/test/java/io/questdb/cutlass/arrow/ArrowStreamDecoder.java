@@ -0,0 +1,181 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.arrow;
+
+import org.junit.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads just enough of Arrow IPC stream to verify what server sends.
+ */
+public class ArrowStreamDecoder {
+    public static final int HEADER_SCHEMA = 1;
+    public static final int HEADER_DICTIONARY_BATCH = 2;
+    public static final int HEADER_RECORD_BATCH = 3;
+    private final ByteBuffer buf;
+    private int message;
+    private int header;
+    private int headerType;
+    private int body;
+    private long bodyLength;
+
+    public ArrowStreamDecoder(byte[] bytes) {
+        this.buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int getBufferCount() {
+        return vectorLength(recordBatch(), 2);
+    }
+
+    public long getBufferLength(int index) {
+        return buf.getLong(vectorElement(recordBatch(), 2, index, 16) + 8);
+    }
+
+    public long getBufferOffset(int index) {
+        return buf.getLong(vectorElement(recordBatch(), 2, index, 16));
+    }
+
+    public long getDictionaryId() {
+        return buf.getLong(field(header, 0));
+    }
+
+    public int getFieldCount() {
+        return vectorLength(header, 1);
+    }
+
+    public String getFieldName(int index) {
+        return string(field(table(vectorElement(header, 1, index, 4)), 0));
+    }
+
+    public int getFieldTypeType(int index) {
+        return buf.get(field(table(vectorElement(header, 1, index, 4)), 2));
+    }
+
+    public boolean isFieldDictionaryEncoded(int index) {
+        return field(table(vectorElement(header, 1, index, 4)), 4) != 0;
+    }
+
+    public int getHeaderType() {
+        return headerType;
+    }
+
+    public long getBodyLength() {
+        return bodyLength;
+    }
+
+    public int getInt(int bufferIndex, int row) {
+        return buf.getInt(body + (int) getBufferOffset(bufferIndex) + row * 4);
+    }
+
+    public long getLength() {
+        return buf.getLong(field(recordBatch(), 0));
+    }
+
+    public long getLong(int bufferIndex, int row) {
+        return buf.getLong(body + (int) getBufferOffset(bufferIndex) + row * 8);
+    }
+
+    public long getNodeLength(int index) {
+        return buf.getLong(vectorElement(recordBatch(), 1, index, 16));
+    }
+
+    public long getNodeNullCount(int index) {
+        return buf.getLong(vectorElement(recordBatch(), 1, index, 16) + 8);
+    }
+
+    public String getUtf8(int offsetsBufferIndex, int dataBufferIndex, int row) {
+        final int offsets = body + (int) getBufferOffset(offsetsBufferIndex);
+        final int lo = buf.getInt(offsets + row * 4);
+        final int hi = buf.getInt(offsets + row * 4 + 4);
+        return new String(buf.array(), body + (int) getBufferOffset(dataBufferIndex) + lo, hi - lo, StandardCharsets.UTF_8);
+    }
+
+    public boolean isValid(int validityBufferIndex, int row) {
+        if (getBufferLength(validityBufferIndex) == 0) {
+            return true;
+        }
+        return (buf.get(body + (int) getBufferOffset(validityBufferIndex) + (row >>> 3)) & (1 << (row & 7))) != 0;
+    }
+
+    /**
+     * @return false when end of stream is reached
+     */
+    public boolean next() {
+        final int p = message;
+        Assert.assertEquals(-1, buf.getInt(p));
+        final int metadataSize = buf.getInt(p + 4);
+        if (metadataSize == 0) {
+            Assert.assertEquals(buf.capacity(), p + 8);
+            return false;
+        }
+        Assert.assertEquals(0, metadataSize % 8);
+        final int root = table(p + 8);
+        Assert.assertEquals(4, buf.getShort(field(root, 0)));
+        headerType = buf.get(field(root, 1));
+        header = table(field(root, 2));
+        bodyLength = buf.getLong(field(root, 3));
+        Assert.assertEquals(0, bodyLength % 8);
+        body = p + 8 + metadataSize;
+        message = body + (int) bodyLength;
+        return true;
+    }
+
+    private int field(int table, int index) {
+        final int vtable = table - buf.getInt(table);
+        final int vtableSize = buf.getShort(vtable);
+        final int fieldOffset = 4 + index * 2;
+        if (fieldOffset >= vtableSize) {
+            return 0;
+        }
+        final int offset = buf.getShort(vtable + fieldOffset);
+        return offset == 0 ? 0 : table + offset;
+    }
+
+    private int recordBatch() {
+        return headerType == HEADER_DICTIONARY_BATCH ? table(field(header, 1)) : header;
+    }
+
+    private String string(int position) {
+        final int p = table(position);
+        return new String(buf.array(), p + 4, buf.getInt(p), StandardCharsets.UTF_8);
+    }
+
+    private int table(int position) {
+        return position + buf.getInt(position);
+    }
+
+    private int vectorElement(int table, int field, int index, int elementSize) {
+        final int vector = table(field(table, field));
+        return vector + 4 + index * elementSize;
+    }
+
+    private int vectorLength(int table, int field) {
+        return buf.getInt(table(field(table, field)));
+    }
+}
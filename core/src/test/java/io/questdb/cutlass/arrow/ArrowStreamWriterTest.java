@@ -0,0 +1,257 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.cutlass.arrow;
+
+import io.questdb.cairo.sql.*;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.std.Unsafe;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class ArrowStreamWriterTest extends AbstractGriffinTest {
+
+    @Test
+    public void testPageFrameMatchesRecords() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select" +
+                            " rnd_int(0, 100, 2) i," +
+                            " rnd_long(0, 100, 2) l," +
+                            " rnd_double(2) d," +
+                            " rnd_float(2) f," +
+                            " rnd_boolean() b," +
+                            " rnd_byte() bt," +
+                            " rnd_short() sh," +
+                            " rnd_char() c," +
+                            " rnd_geohash(20) g," +
+                            " timestamp_sequence(0, 3600000000) ts" +
+                            " from long_sequence(77)" +
+                            ") timestamp(ts) partition by DAY",
+                    sqlExecutionContext
+            );
+            compiler.compile("alter table x add column k int", sqlExecutionContext);
+            compiler.compile(
+                    "insert into x select" +
+                            " rnd_int(0, 100, 2)," +
+                            " rnd_long(0, 100, 2)," +
+                            " rnd_double(2)," +
+                            " rnd_float(2)," +
+                            " rnd_boolean()," +
+                            " rnd_byte()," +
+                            " rnd_short()," +
+                            " rnd_char()," +
+                            " rnd_geohash(20)," +
+                            " timestamp_sequence(864000000000, 3600000000)," +
+                            " rnd_int(0, 100, 2)" +
+                            " from long_sequence(13)",
+                    sqlExecutionContext
+            );
+
+            try (
+                    RecordCursorFactory factory = compiler.compile("x", sqlExecutionContext).getRecordCursorFactory();
+                    ArrowStreamWriter frameWriter = new ArrowStreamWriter();
+                    ArrowStreamWriter recordWriter = new ArrowStreamWriter()
+            ) {
+                Assert.assertTrue(factory.supportPageFrameCursor());
+                Assert.assertTrue(ArrowStreamWriter.isPageFrameCompatible(factory.getMetadata()));
+                final ByteArrayOutputStream frameStream = new ByteArrayOutputStream();
+                final ByteArrayOutputStream recordStream = new ByteArrayOutputStream();
+                frameWriter.of(factory.getMetadata(), true);
+                recordWriter.of(factory.getMetadata(), false);
+                frameWriter.putSchema();
+                drain(frameWriter, frameStream);
+                recordWriter.putSchema();
+                drain(recordWriter, recordStream);
+
+                int frameCount = 0;
+                try (
+                        PageFrameCursor pageFrameCursor = factory.getPageFrameCursor(sqlExecutionContext);
+                        RecordCursor cursor = factory.getCursor(sqlExecutionContext)
+                ) {
+                    final Record record = cursor.getRecord();
+                    PageFrame frame;
+                    while ((frame = pageFrameCursor.next()) != null) {
+                        final long rowCount = frame.getPageAddress(0) == 0
+                                ? frame.getPageSize(0)
+                                : frame.getPageSize(0) >> frame.getColumnSize(0);
+                        // odd slice size makes sure bits are not always byte aligned
+                        for (long lo = 0; lo < rowCount; lo += 11) {
+                            final long hi = Math.min(rowCount, lo + 11);
+                            frameWriter.putPageFrameBatch(frame, lo, hi);
+                            drain(frameWriter, frameStream);
+                            recordWriter.startRecordBatch();
+                            for (long r = lo; r < hi; r++) {
+                                Assert.assertTrue(cursor.hasNext());
+                                recordWriter.putRecord(record);
+                            }
+                            recordWriter.putRecordBatch();
+                            drain(recordWriter, recordStream);
+                        }
+                        frameCount++;
+                    }
+                    Assert.assertFalse(cursor.hasNext());
+                }
+                Assert.assertEquals(5, frameCount);
+                frameWriter.putEndOfStream();
+                drain(frameWriter, frameStream);
+                recordWriter.putEndOfStream();
+                drain(recordWriter, recordStream);
+
+                Assert.assertArrayEquals(recordStream.toByteArray(), frameStream.toByteArray());
+
+                final ArrowStreamDecoder decoder = new ArrowStreamDecoder(frameStream.toByteArray());
+                Assert.assertTrue(decoder.next());
+                Assert.assertEquals(ArrowStreamDecoder.HEADER_SCHEMA, decoder.getHeaderType());
+                Assert.assertEquals(11, decoder.getFieldCount());
+                Assert.assertEquals("i", decoder.getFieldName(0));
+                Assert.assertEquals("k", decoder.getFieldName(10));
+                long rows = 0;
+                long kNulls = 0;
+                while (decoder.next()) {
+                    Assert.assertEquals(ArrowStreamDecoder.HEADER_RECORD_BATCH, decoder.getHeaderType());
+                    rows += decoder.getLength();
+                    kNulls += decoder.getNodeNullCount(10);
+                }
+                Assert.assertEquals(90, rows);
+                // first partition has column top
+                Assert.assertTrue(kNulls >= 77);
+            }
+        });
+    }
+
+    @Test
+    public void testSymbolDictionary() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select rnd_symbol('abc', 'ещё', null) s, rnd_str('x', 'yz', null) str, x" +
+                            " from long_sequence(20)" +
+                            ")",
+                    sqlExecutionContext
+            );
+
+            try (
+                    RecordCursorFactory factory = compiler.compile("select s, x from x", sqlExecutionContext).getRecordCursorFactory();
+                    ArrowStreamWriter writer = new ArrowStreamWriter();
+                    PageFrameCursor pageFrameCursor = factory.getPageFrameCursor(sqlExecutionContext)
+            ) {
+                Assert.assertNotNull(pageFrameCursor);
+                final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                writer.of(factory.getMetadata(), true);
+                writer.putSchema();
+                drain(writer, stream);
+                writer.putDictionary(0, pageFrameCursor.getSymbolMapReader(0));
+                drain(writer, stream);
+                PageFrame frame;
+                while ((frame = pageFrameCursor.next()) != null) {
+                    writer.putPageFrameBatch(frame, 0, frame.getPageSize(1) >> frame.getColumnSize(1));
+                    drain(writer, stream);
+                }
+                writer.putEndOfStream();
+                drain(writer, stream);
+
+                final ArrowStreamDecoder decoder = new ArrowStreamDecoder(stream.toByteArray());
+                Assert.assertTrue(decoder.next());
+                Assert.assertTrue(decoder.isFieldDictionaryEncoded(0));
+                Assert.assertFalse(decoder.isFieldDictionaryEncoded(1));
+                Assert.assertTrue(decoder.next());
+                Assert.assertEquals(ArrowStreamDecoder.HEADER_DICTIONARY_BATCH, decoder.getHeaderType());
+                Assert.assertEquals(0, decoder.getDictionaryId());
+                final String[] dictionary = new String[(int) decoder.getLength()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = decoder.getUtf8(1, 2, i);
+                }
+                Assert.assertTrue(decoder.next());
+                Assert.assertEquals(ArrowStreamDecoder.HEADER_RECORD_BATCH, decoder.getHeaderType());
+                final StringBuilder sink = new StringBuilder();
+                for (int i = 0, n = (int) decoder.getLength(); i < n; i++) {
+                    sink.append(decoder.isValid(0, i) ? dictionary[decoder.getInt(1, i)] : "").append('\t').append(decoder.getLong(3, i)).append('\n');
+                }
+                Assert.assertFalse(decoder.next());
+
+                final StringBuilder expected = new StringBuilder();
+                try (RecordCursor cursor = factory.getCursor(sqlExecutionContext)) {
+                    final Record record = cursor.getRecord();
+                    while (cursor.hasNext()) {
+                        final CharSequence s = record.getSym(0);
+                        expected.append(s != null ? s : "").append('\t').append(record.getLong(1)).append('\n');
+                    }
+                }
+                TestUtils.assertEquals(expected, sink);
+            }
+
+            // strings are not page frame compatible, they are sent record by record
+            try (
+                    RecordCursorFactory factory = compiler.compile("select s, str from x", sqlExecutionContext).getRecordCursorFactory();
+                    ArrowStreamWriter writer = new ArrowStreamWriter();
+                    RecordCursor cursor = factory.getCursor(sqlExecutionContext)
+            ) {
+                Assert.assertFalse(ArrowStreamWriter.isPageFrameCompatible(factory.getMetadata()));
+                final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                writer.of(factory.getMetadata(), false);
+                writer.putSchema();
+                drain(writer, stream);
+                writer.startRecordBatch();
+                final Record record = cursor.getRecord();
+                final StringBuilder expected = new StringBuilder();
+                while (cursor.hasNext()) {
+                    writer.putRecord(record);
+                    final CharSequence s = record.getSym(0);
+                    final CharSequence str = record.getStr(1);
+                    expected.append(s != null ? s : "").append('\t').append(str != null ? str : "").append('\n');
+                }
+                writer.putRecordBatch();
+                drain(writer, stream);
+                writer.putEndOfStream();
+                drain(writer, stream);
+
+                final ArrowStreamDecoder decoder = new ArrowStreamDecoder(stream.toByteArray());
+                Assert.assertTrue(decoder.next());
+                Assert.assertFalse(decoder.isFieldDictionaryEncoded(0));
+                Assert.assertTrue(decoder.next());
+                final StringBuilder sink = new StringBuilder();
+                for (int i = 0, n = (int) decoder.getLength(); i < n; i++) {
+                    sink.append(decoder.getUtf8(1, 2, i)).append('\t').append(decoder.getUtf8(4, 5, i)).append('\n');
+                }
+                Assert.assertFalse(decoder.next());
+                TestUtils.assertEquals(expected, sink);
+            }
+        });
+    }
+
+    private static void drain(ArrowStreamWriter writer, ByteArrayOutputStream stream) {
+        for (int i = 0, n = writer.getSegmentCount(); i < n; i++) {
+            final long address = writer.getSegmentAddress(i);
+            for (long p = 0, size = writer.getSegmentSize(i); p < size; p++) {
+                stream.write(Unsafe.getUnsafe().getByte(address + p));
+            }
+        }
+    }
+}
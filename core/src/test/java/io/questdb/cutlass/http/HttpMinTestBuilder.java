@@ -27,7 +27,6 @@ package io.questdb.cutlass.http;
 import io.questdb.cairo.CairoEngine;
 import io.questdb.cairo.DefaultCairoConfiguration;
 import io.questdb.cutlass.http.processors.PrometheusMetricsProcessor;
-import io.questdb.cutlass.http.processors.QueryCache;
 import io.questdb.log.Log;
 import io.questdb.log.LogFactory;
 import io.questdb.metrics.Scrapable;
@@ -100,8 +99,6 @@ public class HttpMinTestBuilder {
                     }
                 });
 
-                QueryCache.configure(httpConfiguration);
-
                 workerPool.start(LOG);
 
                 try {
@@ -242,8 +242,6 @@ public class HttpQueryTestBuilder {
                     }
                 });
 
-                QueryCache.configure(httpConfiguration);
-
                 workerPool.start(LOG);
 
                 try {
@@ -51,6 +51,7 @@ public class HttpServerConfigurationBuilder {
     private int receiveBufferSize = 1024 * 1024;
     private long multipartIdleSpinCount = -1;
     private Runnable onPeerDisconnect = HttpContextConfiguration.NONE;
+    private int arrowBatchRowCount = 65536;
 
     public HttpServerConfigurationBuilder withNetwork(NetworkFacade nf) {
         this.nf = nf;
@@ -107,6 +108,11 @@ public class HttpServerConfigurationBuilder {
         return this;
     }
 
+    public HttpServerConfigurationBuilder withArrowBatchRowCount(int arrowBatchRowCount) {
+        this.arrowBatchRowCount = arrowBatchRowCount;
+        return this;
+    }
+
     public HttpServerConfigurationBuilder withMultipartIdleSpinCount(long multipartIdleSpinCount) {
         this.multipartIdleSpinCount = multipartIdleSpinCount;
         return this;
@@ -176,6 +182,11 @@ public class HttpServerConfigurationBuilder {
                     return 10;
                 }
 
+                @Override
+                public int getArrowBatchRowCount() {
+                    return arrowBatchRowCount;
+                }
+
                 @Override
                 public int getDoubleScale() {
                     return Numbers.MAX_SCALE;
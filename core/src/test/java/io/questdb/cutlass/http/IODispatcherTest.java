@@ -26,7 +26,13 @@ package io.questdb.cutlass.http;
 
 import static io.questdb.test.tools.TestUtils.assertMemoryLeak;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +42,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 
 import io.questdb.cairo.*;
+import io.questdb.cutlass.arrow.ArrowStreamDecoder;
 import io.questdb.std.*;
 import org.jetbrains.annotations.NotNull;
 import org.junit.*;
@@ -46,7 +53,6 @@ import io.questdb.cairo.security.AllowAllCairoSecurityContext;
 import io.questdb.cutlass.NetUtils;
 import io.questdb.cutlass.http.processors.HealthCheckProcessor;
 import io.questdb.cutlass.http.processors.JsonQueryProcessor;
-import io.questdb.cutlass.http.processors.QueryCache;
 import io.questdb.cutlass.http.processors.StaticContentProcessor;
 import io.questdb.cutlass.http.processors.TextImportProcessor;
 import io.questdb.griffin.SqlCompiler;
@@ -165,6 +171,107 @@ public class IODispatcherTest {
         SharedRandom.RANDOM.set(new Rnd());
     }
 
+    @Test
+    public void testArrowStream() throws Exception {
+        new HttpQueryTestBuilder()
+                .withTempFolder(temp)
+                .withWorkerCount(1)
+                .withHttpServerConfigBuilder(
+                        new HttpServerConfigurationBuilder()
+                                .withSendBufferSize(256)
+                                .withArrowBatchRowCount(100)
+                )
+                .withTelemetry(false)
+                .run(engine -> {
+                    try (SqlCompiler compiler = new SqlCompiler(engine)) {
+                        compiler.compile(
+                                "create table x as (" +
+                                        "select rnd_symbol('a', 'b', null) s, rnd_long(0, 1000, 1) l, timestamp_sequence(0, 1000000) ts" +
+                                        " from long_sequence(1000)" +
+                                        ") timestamp(ts) partition by DAY",
+                                new SqlExecutionContextImpl(engine, 1)
+                        );
+                    }
+
+                    // table scan is sent in page frame batches with dictionary encoded symbols
+                    assertArrowStream("x", 1000, 10, true);
+                    // limit is applied to page frames
+                    assertArrowStream("x&limit=150,420", 271, 3, true);
+                    // computed columns are sent record by record
+                    assertArrowStream("select%20s,%20l%20%2B%201%20l,%20ts%20from%20x", 1000, 10, false);
+                    assertArrowStream("select%20s,%20l%20%2B%201%20l,%20ts%20from%20x&limit=150,420", 271, 3, false);
+
+                    // statements other than SELECT are still confirmed in JSON
+                    new SendAndReceiveRequestBuilder().executeWithStandardHeaders(
+                            "GET /query?query=create%20table%20y%20(a%20int)&fmt=arrow HTTP/1.1\r\n",
+                            JSON_DDL_RESPONSE
+                    );
+                });
+    }
+
+    private static void assertArrowStream(String query, long expectedRowCount, int expectedBatchCount, boolean dictionaryEncoded) {
+        final byte[] body;
+        try (Socket socket = new Socket("127.0.0.1", 9001)) {
+            final OutputStream out = socket.getOutputStream();
+            out.write(("GET /query?fmt=arrow&query=" + query + " HTTP/1.1\r\n" + SendAndReceiveRequestBuilder.RequestHeaders).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            final StringBuilder headers = new StringBuilder();
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                headers.append(line).append('\n');
+            }
+            TestUtils.assertContains(headers, "Content-Type: application/vnd.apache.arrow.stream");
+            TestUtils.assertContains(headers, "Transfer-Encoding: chunked");
+
+            final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            int chunkSize;
+            while ((chunkSize = Integer.parseInt(readLine(in), 16)) > 0) {
+                final byte[] chunk = new byte[chunkSize];
+                in.readFully(chunk);
+                chunks.write(chunk);
+                Assert.assertEquals("", readLine(in));
+            }
+            body = chunks.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        final ArrowStreamDecoder decoder = new ArrowStreamDecoder(body);
+        Assert.assertTrue(decoder.next());
+        Assert.assertEquals(ArrowStreamDecoder.HEADER_SCHEMA, decoder.getHeaderType());
+        Assert.assertEquals(3, decoder.getFieldCount());
+        Assert.assertEquals("s", decoder.getFieldName(0));
+        Assert.assertEquals(dictionaryEncoded, decoder.isFieldDictionaryEncoded(0));
+        if (dictionaryEncoded) {
+            Assert.assertTrue(decoder.next());
+            Assert.assertEquals(ArrowStreamDecoder.HEADER_DICTIONARY_BATCH, decoder.getHeaderType());
+            Assert.assertEquals(2, decoder.getLength());
+        }
+        long rowCount = 0;
+        int batchCount = 0;
+        while (decoder.next()) {
+            Assert.assertEquals(ArrowStreamDecoder.HEADER_RECORD_BATCH, decoder.getHeaderType());
+            rowCount += decoder.getLength();
+            batchCount++;
+        }
+        Assert.assertEquals(expectedRowCount, rowCount);
+        Assert.assertEquals(expectedBatchCount, batchCount);
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            Assert.assertNotEquals(-1, b);
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
     @Test
     public void testBiasWrite() throws Exception {
 
@@ -4166,8 +4273,6 @@ public class IODispatcherTest {
                     .withHttpProtocolVersion("HTTP/1.1 ")
                     .withOnPeerDisconnect(peerDisconnectLatch::countDown)
                     .build();
-            QueryCache.configure(httpConfiguration);
-
 
             final WorkerPool workerPool = new WorkerPool(new WorkerPoolConfiguration() {
                 @Override
@@ -6590,7 +6695,6 @@ public class IODispatcherTest {
                 .withServerKeepAlive(serverKeepAlive)
                 .withHttpProtocolVersion(httpProtocolVersion)
                 .build();
-        QueryCache.configure(httpConfiguration);
         return httpConfiguration;
     }
 
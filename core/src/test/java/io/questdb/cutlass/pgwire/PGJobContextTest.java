@@ -50,11 +50,14 @@ import org.postgresql.PGResultSetMetaData;
 import org.postgresql.copy.CopyIn;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
 import org.postgresql.util.PGTimestamp;
 import org.postgresql.util.PSQLException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Date;
 import java.sql.*;
 import java.text.SimpleDateFormat;
@@ -352,6 +355,85 @@ public class PGJobContextTest extends AbstractGriffinTest {
         });
     }
 
+    @Test
+    public void testBinaryResultFormatMatchesText() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile(
+                    "create table x as (select" +
+                            " rnd_double(2) d," +
+                            " rnd_long(-1000, 1000, 2) l," +
+                            " rnd_symbol('a', 'bb', null) s," +
+                            " rnd_long256() l256," +
+                            " rnd_geohash(30) g6," +
+                            " rnd_geohash(12) g12b," +
+                            " rnd_geohash(5) g1," +
+                            " rnd_geohash(60) g12," +
+                            " timestamp_sequence(0, 3600000000) ts" +
+                            " from long_sequence(50))",
+                    sqlExecutionContext
+            );
+            executeInsert("insert into x (l256, ts) values (cast(0 as long256), 0)");
+            executeInsert("insert into x (l256, ts) values (cast(9223372036854775807L as long256), 0)");
+
+            try (
+                    final PGWireServer ignored = createPGServer(2);
+                    final Connection textConnection = getConnection(false, false);
+                    final Connection binaryConnection = getBinaryConnection()
+            ) {
+                final String query = "select d, l, s, l256, g6, g12b, g1, g12, ts from x where l256 = l256 or l256 = null";
+                try (
+                        PreparedStatement textStatement = textConnection.prepareStatement(query);
+                        PreparedStatement binaryStatement = binaryConnection.prepareStatement(query)
+                ) {
+                    // driver learns result types on the first execution and asks for binary format after
+                    binaryStatement.executeQuery().close();
+                    final ResultSet textRs = textStatement.executeQuery();
+                    final ResultSet binaryRs = binaryStatement.executeQuery();
+                    int rowCount = 0;
+                    while (textRs.next()) {
+                        Assert.assertTrue(binaryRs.next());
+                        Assert.assertEquals(textRs.getDouble(1), binaryRs.getDouble(1), 0.0);
+                        Assert.assertEquals(textRs.getObject(1) == null, binaryRs.getObject(1) == null);
+                        Assert.assertEquals(textRs.getLong(2), binaryRs.getLong(2));
+                        Assert.assertEquals(textRs.getString(3), binaryRs.getString(3));
+
+                        final String hex = textRs.getString(4);
+                        final BigDecimal decimal = binaryRs.getBigDecimal(4);
+                        if (hex == null) {
+                            Assert.assertNull(decimal);
+                        } else {
+                            Assert.assertEquals(new BigInteger(hex.substring(2), 16), decimal.toBigIntegerExact());
+                        }
+
+                        for (int i = 5; i < 9; i++) {
+                            Assert.assertEquals(textRs.getString(i), binaryRs.getString(i));
+                        }
+                        Assert.assertEquals(textRs.getTimestamp(9), binaryRs.getTimestamp(9));
+                        rowCount++;
+                    }
+                    Assert.assertFalse(binaryRs.next());
+                    Assert.assertEquals(52, rowCount);
+                    textRs.close();
+                    binaryRs.close();
+                }
+
+                try (PreparedStatement statement = binaryConnection.prepareStatement("select l256, g6, g12b from x limit 50, 52")) {
+                    statement.executeQuery().close();
+                    try (ResultSet rs = statement.executeQuery()) {
+                        sink.clear();
+                        assertResultSet(
+                                "l256[NUMERIC],g6[VARCHAR],g12b[VARCHAR]\n" +
+                                        "0,null,null\n" +
+                                        "9223372036854775807,null,null\n",
+                                sink,
+                                rs
+                        );
+                    }
+                }
+            }
+        });
+    }
+
     @Test
     public void testBlobOverLimit() throws Exception {
         PGWireConfiguration configuration = new DefaultPGWireConfiguration() {
@@ -4083,6 +4165,24 @@ nodejs code:
         }
     }
 
+    private Connection getBinaryConnection() throws SQLException {
+        final Connection connection = getConnection(false, true);
+        // driver does not receive numeric in binary format unless told to
+        final Set<Integer> oids = new HashSet<>();
+        oids.add(Oid.INT2);
+        oids.add(Oid.INT4);
+        oids.add(Oid.INT8);
+        oids.add(Oid.FLOAT4);
+        oids.add(Oid.FLOAT8);
+        oids.add(Oid.TIMESTAMP);
+        oids.add(Oid.BYTEA);
+        oids.add(Oid.NUMERIC);
+        ((BaseConnection) connection).getQueryExecutor().setBinaryReceiveOids(oids);
+        // use server side statement from the first execution
+        ((BaseConnection) connection).setPrepareThreshold(1);
+        return connection;
+    }
+
     private Connection getConnection(boolean simple, boolean binary) throws SQLException {
         Properties properties = new Properties();
         properties.setProperty("user", "admin");
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.cutlass.replication;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.*;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlCompiler;
+import io.questdb.griffin.SqlExecutionContext;
+import io.questdb.griffin.SqlExecutionContextImpl;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.network.DefaultIODispatcherConfiguration;
+import io.questdb.network.IODispatcherConfiguration;
+import io.questdb.std.Files;
+import io.questdb.std.ObjList;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class ReplicationTest extends AbstractGriffinTest {
+    private static final Log LOG = LogFactory.getLog(ReplicationTest.class);
+    private static final int PORT = 9019;
+    private final StringSink replicaSink = new StringSink();
+    private String replicaRoot;
+    private ReplicationConfiguration replicationConfiguration;
+
+    @Before
+    public void setUpReplica() {
+        replicaRoot = temp.getRoot().getAbsolutePath() + Files.SEPARATOR + "replica";
+        TestUtils.createTestPath(replicaRoot);
+    }
+
+    @After
+    public void tearDownReplica() {
+        TestUtils.removeTestPath(replicaRoot);
+    }
+
+    @Test
+    public void testAddColumn() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select rnd_int() a, timestamp_sequence(0, 1000000) ts from long_sequence(100)" +
+                    ") timestamp(ts) partition by NONE", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+
+            compiler.compile("alter table x add column b symbol", sqlExecutionContext);
+            compiler.compile("insert into x select rnd_int(), timestamp_sequence(100000000, 1000000), rnd_symbol('a','b','c') from long_sequence(50)", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testAddColumnReplicaLagging() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select rnd_int() a, timestamp_sequence(0, 60000000) ts from long_sequence(100)" +
+                    ") timestamp(ts) partition by DAY", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+
+            // replica does not see rows appended before column was added
+            compiler.compile("insert into x select rnd_int(), timestamp_sequence(6000000000, 60000000) from long_sequence(100)", sqlExecutionContext);
+            compiler.compile("alter table x add column b string", sqlExecutionContext);
+            compiler.compile("insert into x select rnd_int(), timestamp_sequence(12000000000, 60000000), rnd_str('a','b','c') from long_sequence(50)", sqlExecutionContext);
+            compiler.compile("insert into x select rnd_int(), timestamp_sequence(172800000000, 60000000), rnd_str('a','b','c') from long_sequence(50)", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testAllTypes() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select" +
+                    " rnd_boolean() a," +
+                    " rnd_byte() b," +
+                    " rnd_short() c," +
+                    " rnd_char() d," +
+                    " rnd_int() e," +
+                    " rnd_long() f," +
+                    " rnd_float(2) g," +
+                    " rnd_double(2) h," +
+                    " rnd_str(3,10,2) i," +
+                    " rnd_symbol(10,4,8,2) j," +
+                    " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2) k," +
+                    " rnd_timestamp(to_timestamp('2015', 'yyyy'), to_timestamp('2016', 'yyyy'), 2) l," +
+                    " rnd_long256() m," +
+                    " rnd_bin(2,10,2) n," +
+                    " timestamp_sequence(0, 1000000) ts" +
+                    " from long_sequence(1000)" +
+                    ") timestamp(ts) partition by NONE", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+
+            // incremental append with new symbol values
+            compiler.compile("insert into x select" +
+                    " rnd_boolean(), rnd_byte(), rnd_short(), rnd_char(), rnd_int(), rnd_long(), rnd_float(2), rnd_double(2)," +
+                    " rnd_str(3,10,2), rnd_symbol(20,5,8,2)," +
+                    " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2)," +
+                    " rnd_timestamp(to_timestamp('2015', 'yyyy'), to_timestamp('2016', 'yyyy'), 2)," +
+                    " rnd_long256(), rnd_bin(2,10,2), timestamp_sequence(1000000000, 1000000)" +
+                    " from long_sequence(500)", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testMissingPrimaryTable() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            // primary replies with error, replica moves on; separate job is closed before table
+            // is created on primary, requests it keeps sending would otherwise race table creation
+            try (ReplicaJob probe = new ReplicaJob(replicationConfiguration, replicaEngine)) {
+                final long deadline = System.currentTimeMillis() + 500;
+                while (System.currentTimeMillis() < deadline) {
+                    probe.run(0);
+                    LockSupport.parkNanos(1);
+                }
+            }
+            try (Path path = new Path()) {
+                Assert.assertEquals(
+                        TableUtils.TABLE_DOES_NOT_EXIST,
+                        replicaEngine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, "x")
+                );
+            }
+
+            compiler.compile("create table x as (" +
+                    "select rnd_symbol('a','b') s, timestamp_sequence(0, 1000000) ts from long_sequence(10)" +
+                    ") timestamp(ts) partition by NONE", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testPartitionedTable() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select rnd_symbol('a','b','c') s, rnd_double() d, rnd_str(5,5,0) str, timestamp_sequence(0, 60000000) ts from long_sequence(5000)" +
+                    ") timestamp(ts) partition by DAY", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+
+            // rows go to the last partition and to new partitions
+            compiler.compile("insert into x select rnd_symbol('c','d'), rnd_double(), rnd_str(5,5,0), timestamp_sequence(300000000000, 60000000) from long_sequence(3000)", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testResponseSizeLimit() throws Exception {
+        // replica has to poll several times to catch up
+        assertReplication(1000, 4096, (replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select rnd_long() l, rnd_str(5,5,0) str, timestamp_sequence(0, 60000000) ts from long_sequence(10000)" +
+                    ") timestamp(ts) partition by DAY", sqlExecutionContext);
+            sync(job, replicaEngine, "x");
+            assertTable(replicaCompiler, replicaContext, "x");
+        });
+    }
+
+    @Test
+    public void testStructureMismatch() throws Exception {
+        assertReplication((replicaEngine, replicaCompiler, replicaContext, job) -> {
+            compiler.compile("create table x as (" +
+                    "select rnd_int() a, timestamp_sequence(0, 1000000) ts from long_sequence(10)" +
+                    ") timestamp(ts) partition by NONE", sqlExecutionContext);
+            replicaCompiler.compile("create table x (a long, ts timestamp) timestamp(ts)", replicaContext);
+
+            final long deadline = System.currentTimeMillis() + 500;
+            while (System.currentTimeMillis() < deadline) {
+                job.run(0);
+                LockSupport.parkNanos(1);
+            }
+            TestUtils.assertSql(replicaCompiler, replicaContext, "select count() from x", replicaSink, "count\n0\n");
+        });
+    }
+
+    private void assertReplication(ReplicationRunnable runnable) throws Exception {
+        assertReplication(64 * 1024, 16 * 1024 * 1024, runnable);
+    }
+
+    private void assertReplication(long maxRowsPerFrame, long maxResponseSize, ReplicationRunnable runnable) throws Exception {
+        assertMemoryLeak(() -> {
+            final ObjList<String> tables = new ObjList<>();
+            tables.add("x");
+            final IODispatcherConfiguration dispatcherConfiguration = new DefaultIODispatcherConfiguration() {
+                @Override
+                public int getBindPort() {
+                    return PORT;
+                }
+            };
+            replicationConfiguration = new DefaultReplicationConfiguration() {
+                @Override
+                public IODispatcherConfiguration getDispatcherConfiguration() {
+                    return dispatcherConfiguration;
+                }
+
+                @Override
+                public long getMaxRowsPerFrame() {
+                    return maxRowsPerFrame;
+                }
+
+                @Override
+                public long getMaxResponseSize() {
+                    return maxResponseSize;
+                }
+
+                @Override
+                public long getReplicaPollInterval() {
+                    return 0;
+                }
+
+                @Override
+                public int getReplicaPrimaryPort() {
+                    return PORT;
+                }
+
+                @Override
+                public int getReplicaRecvBufferSize() {
+                    return 1024;
+                }
+
+                @Override
+                public ObjList<String> getReplicaTables() {
+                    return tables;
+                }
+
+                @Override
+                public boolean isEnabled() {
+                    return true;
+                }
+            };
+
+            final WorkerPool pool = new WorkerPool(new WorkerPoolAwareConfiguration() {
+                @Override
+                public int[] getWorkerAffinity() {
+                    return new int[]{-1, -1};
+                }
+
+                @Override
+                public int getWorkerCount() {
+                    return 2;
+                }
+
+                @Override
+                public boolean haltOnError() {
+                    return false;
+                }
+
+                @Override
+                public boolean isEnabled() {
+                    return true;
+                }
+            });
+
+            final ReplicationServer server = new ReplicationServer(replicationConfiguration, engine, pool);
+            try (
+                    CairoEngine replicaEngine = new CairoEngine(new DefaultCairoConfiguration(replicaRoot));
+                    SqlCompiler replicaCompiler = new SqlCompiler(replicaEngine);
+                    SqlExecutionContext replicaContext = new SqlExecutionContextImpl(replicaEngine, 1);
+                    ReplicaJob job = new ReplicaJob(replicationConfiguration, replicaEngine)
+            ) {
+                pool.assignCleaner(Path.CLEANER);
+                pool.start(LOG);
+                runnable.run(replicaEngine, replicaCompiler, replicaContext, job);
+            } finally {
+                pool.halt();
+                server.close();
+            }
+        });
+    }
+
+    private void assertTable(SqlCompiler replicaCompiler, SqlExecutionContext replicaContext, String tableName) throws Exception {
+        TestUtils.printSql(compiler, sqlExecutionContext, tableName, sink);
+        TestUtils.printSql(replicaCompiler, replicaContext, tableName, replicaSink);
+        TestUtils.assertEquals(sink, replicaSink);
+    }
+
+    private void sync(ReplicaJob job, CairoEngine replicaEngine, String tableName) {
+        final long expectedSize;
+        try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName)) {
+            expectedSize = reader.size();
+        }
+        final long deadline = System.currentTimeMillis() + 30_000;
+        try (Path path = new Path()) {
+            while (true) {
+                if (!job.run(0)) {
+                    if (replicaEngine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, tableName) == TableUtils.TABLE_EXISTS) {
+                        try (TableReader reader = replicaEngine.getReader(AllowAllCairoSecurityContext.INSTANCE, tableName)) {
+                            if (reader.size() == expectedSize) {
+                                return;
+                            }
+                        }
+                    }
+                    LockSupport.parkNanos(1);
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    Assert.fail("replica did not catch up");
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReplicationRunnable {
+        void run(CairoEngine replicaEngine, SqlCompiler replicaCompiler, SqlExecutionContext replicaContext, ReplicaJob job) throws Exception;
+    }
+}
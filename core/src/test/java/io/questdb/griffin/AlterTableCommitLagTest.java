@@ -60,7 +60,7 @@ public class AlterTableCommitLagTest extends AbstractGriffinTest {
         assertFailure("ALTER TABLE X SET commitLag = 111ms",
                 "CREATE TABLE X (ts TIMESTAMP, i INT, l LONG) timestamp(ts) PARTITION BY MONTH",
                 18,
-                "'param' expected");
+                "'param' or 'cold' expected");
     }
 
     @Test
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Rnd;
+import io.questdb.std.Zip;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+
+import static io.questdb.griffin.CompiledQuery.ALTER;
+
+public class AlterTableCompressPartitionTest extends AbstractGriffinTest {
+    private static final Log LOG = LogFactory.getLog(AlterTableCompressPartitionTest.class);
+
+    @BeforeClass
+    public static void setUpStatic() {
+        AbstractGriffinTest.setUpStatic();
+        // zip allocates its static memory on first use
+        Zip.init();
+    }
+
+    @Before
+    public void setUp3() {
+        SharedRandom.RANDOM.set(new Rnd());
+    }
+
+    @Test
+    public void testAddIndexOnCompressedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            compressAll();
+
+            compiler.compile("alter table x alter column ik add index", sqlExecutionContext);
+            compiler.compile("alter table y alter column ik add index", sqlExecutionContext);
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y where ik = 'CPSW'", "x where ik = 'CPSW'", LOG);
+        });
+    }
+
+    @Test
+    public void testCompressActivePartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try {
+                compiler.compile("alter table x compress partition list '2018-01-09'", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                Assert.assertEquals(38, e.getPosition());
+                TestUtils.assertContains(e.getFlyweightMessage(), "could not compress partition '2018-01-09'");
+            }
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testCompressList() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            Assert.assertEquals(ALTER, compiler.compile("alter table x compress partition list '2018-01-01', '2018-01-03'", sqlExecutionContext).getType());
+
+            assertCompressed("2018-01-01", true);
+            assertCompressed("2018-01-02", false);
+            assertCompressed("2018-01-03", true);
+            assertSame();
+
+            // compressed partition can be compressed again
+            compiler.compile("alter table x compress partition list '2018-01-01'", sqlExecutionContext);
+            assertCompressed("2018-01-01", true);
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testCompressNonExistentPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try {
+                compiler.compile("alter table x compress partition list '2017-01-05'", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                Assert.assertEquals(38, e.getPosition());
+                TestUtils.assertContains(e.getFlyweightMessage(), "could not compress partition");
+            }
+        });
+    }
+
+    @Test
+    public void testCompressPartitionExpectListOrWhere() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try {
+                compiler.compile("alter table x compress partition", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                Assert.assertEquals(32, e.getPosition());
+                TestUtils.assertContains(e.getFlyweightMessage(), "'list' or 'where' expected");
+            }
+        });
+    }
+
+    @Test
+    public void testCompressWhere() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            compiler.compile("alter table x compress partition where timestamp < to_timestamp('2018-01-05', 'yyyy-MM-dd')", sqlExecutionContext);
+
+            assertCompressed("2018-01-01", true);
+            assertCompressed("2018-01-04", true);
+            assertCompressed("2018-01-05", false);
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testDropAndRenameColumnOnCompressedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            compressAll();
+
+            compiler.compile("alter table x drop column c", sqlExecutionContext);
+            compiler.compile("alter table y drop column c", sqlExecutionContext);
+            compiler.compile("alter table x rename column n to n2", sqlExecutionContext);
+            compiler.compile("alter table y rename column n to n2", sqlExecutionContext);
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testOutOfOrderInsertIntoCompressedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            compressAll();
+
+            final String o3 = "select" +
+                    " cast(x + 1000 as int) i," +
+                    " rnd_symbol('msft','ibm', 'googl') sym," +
+                    " round(rnd_double(0)*100, 3) amt," +
+                    " to_timestamp('2018-01', 'yyyy-MM') + x * 3600000000 + 1 timestamp," +
+                    " rnd_boolean() b," +
+                    " rnd_str('ABC', 'CDE', null, 'XYZ') c," +
+                    " rnd_double(2) d," +
+                    " rnd_float(2) e," +
+                    " rnd_short(10,1024) f," +
+                    " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2) g," +
+                    " rnd_symbol(4,4,4,2) ik," +
+                    " rnd_long() j," +
+                    " timestamp_sequence(0, 1000000000) k," +
+                    " rnd_byte(2,50) l," +
+                    " rnd_bin(10, 20, 2) m," +
+                    " rnd_str(5,16,2) n" +
+                    " from long_sequence(100)";
+
+            SharedRandom.RANDOM.set(new Rnd());
+            compiler.compile("insert into x " + o3, sqlExecutionContext);
+            SharedRandom.RANDOM.set(new Rnd());
+            compiler.compile("insert into y " + o3, sqlExecutionContext);
+            assertSame();
+
+            // partition can be compressed again after it has been decompressed
+            compressAll();
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testReaderOpenWhileCompressing() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                final long count = countRows(reader);
+                compressAll();
+                assertSame();
+
+                Assert.assertEquals(count, countRows(reader));
+                Assert.assertTrue(reader.reload());
+                Assert.assertEquals(count, countRows(reader));
+            }
+        });
+    }
+
+    private static long countRows(TableReader reader) {
+        long count = 0;
+        final RecordCursor cursor = reader.getCursor();
+        while (cursor.hasNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    private void assertCompressed(String partitionName, boolean expected) {
+        final File[] dirs = new File(root.toString(), "x").listFiles((dir, name) -> name.equals(partitionName) || name.startsWith(partitionName + '.'));
+        Assert.assertNotNull(dirs);
+        Assert.assertEquals(1, dirs.length);
+        Assert.assertEquals(expected, new File(dirs[0], "timestamp.dz").exists());
+        Assert.assertNotEquals(expected, new File(dirs[0], "timestamp.d").exists());
+        if (expected) {
+            Assert.assertTrue(new File(dirs[0], "n.iz").exists());
+        }
+    }
+
+    private void assertSame() throws SqlException {
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+    }
+
+    private void compressAll() throws SqlException {
+        // active partition is skipped
+        compiler.compile("alter table x compress partition where timestamp > 0", sqlExecutionContext);
+    }
+
+    private void createX() throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " cast(x as int) i," +
+                        " rnd_symbol('msft','ibm', 'googl') sym," +
+                        " round(rnd_double(0)*100, 3) amt," +
+                        " to_timestamp('2018-01', 'yyyy-MM') + x * 720000000 timestamp," +
+                        " rnd_boolean() b," +
+                        " rnd_str('ABC', 'CDE', null, 'XYZ') c," +
+                        " rnd_double(2) d," +
+                        " rnd_float(2) e," +
+                        " rnd_short(10,1024) f," +
+                        " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2) g," +
+                        " rnd_symbol(4,4,4,2) ik," +
+                        " rnd_long() j," +
+                        " timestamp_sequence(0, 1000000000) k," +
+                        " rnd_byte(2,50) l," +
+                        " rnd_bin(10, 20, 2) m," +
+                        " rnd_str(5,16,2) n" +
+                        " from long_sequence(1000)" +
+                        ") timestamp (timestamp) partition by DAY",
+                sqlExecutionContext
+        );
+        compiler.compile("create table y as (select * from x) timestamp (timestamp) partition by DAY", sqlExecutionContext);
+    }
+}
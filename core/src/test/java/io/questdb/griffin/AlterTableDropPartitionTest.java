@@ -61,6 +61,22 @@ public class AlterTableDropPartitionTest extends AbstractGriffinTest {
         );
     }
 
+    @Test
+    public void testDropMalformedPartitionByHour() throws Exception {
+        assertMemoryLeak(() -> {
+                    createX("HOUR", 60000000);
+
+                    try {
+                        compiler.compile("alter table x drop partition list '2018-01-01'", sqlExecutionContext);
+                        Assert.fail();
+                    } catch (SqlException e) {
+                        Assert.assertEquals(34, e.getPosition());
+                        TestUtils.assertContains(e.getFlyweightMessage(), "'YYYY-MM-DDTHH' expected");
+                    }
+                }
+        );
+    }
+
     @Test
     public void testDropNonExistentPartition() throws Exception {
         assertMemoryLeak(() -> {
@@ -372,6 +388,29 @@ public class AlterTableDropPartitionTest extends AbstractGriffinTest {
         );
     }
 
+    @Test
+    public void testDropTwoPartitionsByHour() throws Exception {
+        assertMemoryLeak(() -> {
+                    createX("HOUR", 60000000);
+
+                    String expectedBeforeDrop = "count\n" +
+                            "60\n";
+
+                    assertPartitionResult(expectedBeforeDrop, "2018-01-01T03");
+                    assertPartitionResult(expectedBeforeDrop, "2018-01-01T05");
+
+                    Assert.assertEquals(ALTER, compiler.compile("alter table x drop partition list '2018-01-01T03', '2018-01-01T05'", sqlExecutionContext).getType());
+
+                    String expectedAfterDrop = "count\n" +
+                            "0\n";
+
+                    assertPartitionResult(expectedAfterDrop, "2018-01-01T03");
+                    assertPartitionResult(expectedAfterDrop, "2018-01-01T05");
+                    assertPartitionResult(expectedBeforeDrop, "2018-01-01T04");
+                }
+        );
+    }
+
     @Test
     public void testDropTwoPartitionsByMonth() throws Exception {
         assertMemoryLeak(() -> {
@@ -25,7 +25,11 @@
 package io.questdb.griffin;
 
 import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.std.Chars;
 import io.questdb.std.Rnd;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -34,6 +38,8 @@ public class AsOfJoinTest extends AbstractGriffinTest {
     @Before
     public void setUp3() {
         SharedRandom.RANDOM.set(new Rnd());
+        // full fat joins are enabled by some tests, compiler is shared between them
+        compiler.setFullSatJoins(false);
     }
 
     @Test
@@ -200,6 +206,64 @@ public class AsOfJoinTest extends AbstractGriffinTest {
         );
     }
 
+    @Test
+    public void testAsofJoinIndexedKeyInEarlierPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table quotes (sym symbol index, price double, ts timestamp) timestamp(ts) partition by DAY", sqlExecutionContext);
+            executeInsert("insert into quotes values ('A', 1.0, '2021-01-01T10:00:00.000000Z')");
+            executeInsert("insert into quotes values ('B', 2.0, '2021-01-01T11:00:00.000000Z')");
+            executeInsert("insert into quotes values ('A', 3.0, '2021-01-01T12:00:00.000000Z')");
+            executeInsert("insert into quotes values ('B', 4.0, '2021-01-02T10:00:00.000000Z')");
+            executeInsert("insert into quotes values ('B', 5.0, '2021-01-03T10:00:00.000000Z')");
+            executeInsert("insert into quotes values ('A', 6.0, '2021-01-03T12:00:00.000000Z')");
+
+            compiler.compile("create table trades (sym symbol, qty int, ts timestamp) timestamp(ts)", sqlExecutionContext);
+            executeInsert("insert into trades values ('A', 1, '2021-01-01T09:00:00.000000Z')");
+            executeInsert("insert into trades values ('A', 2, '2021-01-01T12:00:00.000000Z')");
+            executeInsert("insert into trades values ('B', 3, '2021-01-01T12:30:00.000000Z')");
+            executeInsert("insert into trades values ('A', 4, '2021-01-02T10:00:00.000000Z')");
+            executeInsert("insert into trades values ('C', 5, '2021-01-03T11:00:00.000000Z')");
+            executeInsert("insert into trades values ('A', 6, '2021-01-03T11:00:00.000000Z')");
+            executeInsert("insert into trades values ('A', 7, '2021-01-04T00:00:00.000000Z')");
+
+            final String query = "select t.qty, t.sym, q.price, q.ts from trades t asof join quotes q on (sym)";
+            assertSql(
+                    "explain " + query,
+                    "QUERY PLAN\n" +
+                            "SelectedRecordCursorFactory\n" +
+                            "    AsOfJoinIndexedRecordCursorFactory\n" +
+                            "        TableReaderRecordCursorFactory on: trades\n" +
+                            "        TableReaderRecordCursorFactory on: quotes\n"
+            );
+            assertSql(
+                    query,
+                    "qty\tsym\tprice\tts\n" +
+                            "1\tA\tNaN\t\n" +
+                            "2\tA\t3.0\t2021-01-01T12:00:00.000000Z\n" +
+                            "3\tB\t2.0\t2021-01-01T11:00:00.000000Z\n" +
+                            "4\tA\t3.0\t2021-01-01T12:00:00.000000Z\n" +
+                            "5\tC\tNaN\t\n" +
+                            "6\tA\t3.0\t2021-01-01T12:00:00.000000Z\n" +
+                            "7\tA\t6.0\t2021-01-03T12:00:00.000000Z\n"
+            );
+        });
+    }
+
+    @Test
+    public void testAsofJoinIndexedMatchesScan() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table quotes (sym symbol index, price double, ts timestamp) timestamp(ts) partition by HOUR", sqlExecutionContext);
+            compiler.compile("insert into quotes select rnd_symbol('A', 'B', 'C', null), rnd_double(), timestamp_sequence(3600000000, 420000000) from long_sequence(500)", sqlExecutionContext);
+            compiler.compile("create table quotes_scan as (select * from quotes) timestamp(ts) partition by HOUR", sqlExecutionContext);
+            compiler.compile("create table trades as (" +
+                    "select rnd_symbol('A', 'B', 'C', 'D', null) sym, rnd_str('A', 'B', 'D', null) ssym, x qty, timestamp_sequence(0, 780000000) ts from long_sequence(300)" +
+                    ") timestamp(ts)", sqlExecutionContext);
+
+            assertIndexedMatchesScan("select t.qty, t.sym, q.sym, q.price, q.ts from trades t asof join %s q on (sym)");
+            assertIndexedMatchesScan("select t.qty, t.ssym, q.sym, q.price, q.ts from trades t asof join %s q on t.ssym = q.sym");
+        });
+    }
+
     @Test
     public void testLtJoin() throws Exception {
         final String expected = "tag\thi\tlo\tts\tts1\n" +
@@ -637,5 +701,15 @@ public class AsOfJoinTest extends AbstractGriffinTest {
             printSqlResult(ex, query, null, false, false);
         });
     }
-}
 
+    private void assertIndexedMatchesScan(String query) throws SqlException {
+        final String indexedQuery = String.format(query, "quotes");
+        final StringSink expected = new StringSink();
+        TestUtils.printSql(compiler, sqlExecutionContext, "explain " + indexedQuery, expected);
+        Assert.assertTrue(Chars.contains(expected, "AsOfJoinIndexedRecordCursorFactory"));
+
+        expected.clear();
+        TestUtils.printSql(compiler, sqlExecutionContext, String.format(query, "quotes_scan"), expected);
+        assertSql(indexedQuery, expected);
+    }
+}
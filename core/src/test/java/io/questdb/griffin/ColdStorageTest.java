@@ -0,0 +1,308 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.ColdStorageJob;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.std.Rnd;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ColdStorageTest extends AbstractGriffinTest {
+    private static final Log LOG = LogFactory.getLog(ColdStorageTest.class);
+    private String coldRoot;
+
+    @Before
+    public void setUp3() throws IOException {
+        SharedRandom.RANDOM.set(new Rnd());
+        coldRoot = temp.newFolder().getAbsolutePath();
+    }
+
+    @Test
+    public void testAddIndexWithColdPartitions() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+            try {
+                compiler.compile("alter table x alter column ik add index", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "cold storage");
+            }
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testColdStorageDirectoryDoesNotExist() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try {
+                compiler.compile("alter table x set cold storage '" + coldRoot + File.separatorChar + "missing' after 2d", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "cold storage directory does not exist");
+            }
+        });
+    }
+
+    @Test
+    public void testColdStorageExpectAfter() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try {
+                compiler.compile("alter table x set cold storage '" + coldRoot + "'", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "'after' expected");
+            }
+        });
+    }
+
+    @Test
+    public void testColdStorageRequiresPartitionedTable() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile("create table z (a int, t timestamp) timestamp(t)", sqlExecutionContext);
+            try {
+                compiler.compile("alter table z set cold storage '" + coldRoot + "' after 2d", sqlExecutionContext);
+                Assert.fail();
+            } catch (SqlException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "cold storage requires partitioned table");
+            }
+        });
+    }
+
+    @Test
+    public void testDropAndRenameColumnWithColdPartitions() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+
+            compiler.compile("alter table x drop column c", sqlExecutionContext);
+            compiler.compile("alter table y drop column c", sqlExecutionContext);
+            compiler.compile("alter table x rename column n to n2", sqlExecutionContext);
+            compiler.compile("alter table y rename column n to n2", sqlExecutionContext);
+            assertSame();
+
+            Assert.assertFalse(new File(coldPartitionDir("2018-01-01"), "c.d").exists());
+            Assert.assertTrue(new File(coldPartitionDir("2018-01-01"), "n2.d").exists());
+        });
+    }
+
+    @Test
+    public void testDropColdPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+
+            compiler.compile("alter table x drop partition list '2018-01-02'", sqlExecutionContext);
+            compiler.compile("alter table y drop partition list '2018-01-02'", sqlExecutionContext);
+            assertSame();
+            Assert.assertEquals(0, partitionDirs(new File(coldRoot, "x"), "2018-01-02").length);
+        });
+    }
+
+    @Test
+    public void testDropTable() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+            Assert.assertTrue(new File(coldRoot, "x").exists());
+
+            compiler.compile("drop table x", sqlExecutionContext);
+            Assert.assertFalse(new File(coldRoot, "x").exists());
+        });
+    }
+
+    @Test
+    public void testMoveColdPartitions() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            compiler.compile("alter table x set cold storage '" + coldRoot + "' after 2d", sqlExecutionContext);
+            try (ColdStorageJob job = new ColdStorageJob(engine)) {
+                Assert.assertTrue(job.moveColdPartitions());
+                // nothing more to move
+                Assert.assertFalse(job.moveColdPartitions());
+            }
+
+            // max timestamp is in 2018-01-09, partitions that ended more than 2 days before it are cold
+            for (int day = 1; day < 7; day++) {
+                assertCold("2018-01-0" + day, true);
+            }
+            assertCold("2018-01-07", false);
+            assertCold("2018-01-09", false);
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testOutOfOrderInsertIntoColdPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+
+            final String o3 = "select" +
+                    " cast(x + 1000 as int) i," +
+                    " rnd_symbol('msft','ibm', 'googl') sym," +
+                    " round(rnd_double(0)*100, 3) amt," +
+                    " to_timestamp('2018-01', 'yyyy-MM') + x * 3600000000 + 1 timestamp," +
+                    " rnd_boolean() b," +
+                    " rnd_str('ABC', 'CDE', null, 'XYZ') c," +
+                    " rnd_double(2) d," +
+                    " rnd_float(2) e," +
+                    " rnd_short(10,1024) f," +
+                    " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2) g," +
+                    " rnd_symbol(4,4,4,2) ik," +
+                    " rnd_long() j," +
+                    " timestamp_sequence(0, 1000000000) k," +
+                    " rnd_byte(2,50) l," +
+                    " rnd_bin(10, 20, 2) m," +
+                    " rnd_str(5,16,2) n" +
+                    " from long_sequence(30)";
+
+            SharedRandom.RANDOM.set(new Rnd());
+            compiler.compile("insert into x " + o3, sqlExecutionContext);
+            SharedRandom.RANDOM.set(new Rnd());
+            compiler.compile("insert into y " + o3, sqlExecutionContext);
+            assertSame();
+            // restored partition is back in hot storage, stale cold copy is purged by next run
+            Assert.assertEquals(1, partitionDirs(new File(root.toString(), "x"), "2018-01-01").length);
+            assertCold("2018-01-03", true);
+
+            // restored partition is moved again
+            moveAll();
+            assertCold("2018-01-01", true);
+            assertSame();
+        });
+    }
+
+    @Test
+    public void testReaderOpenWhileMoving() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+                final long count = countRows(reader);
+                moveAll();
+                assertSame();
+
+                Assert.assertEquals(count, countRows(reader));
+                Assert.assertTrue(reader.reload());
+                Assert.assertEquals(count, countRows(reader));
+            }
+
+            // hot copies are purged once reader is released
+            moveAll();
+            assertCold("2018-01-01", true);
+        });
+    }
+
+    @Test
+    public void testRenameTable() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            moveAll();
+
+            compiler.compile("rename table x to x2", sqlExecutionContext);
+            Assert.assertFalse(new File(coldRoot, "x").exists());
+            Assert.assertTrue(new File(coldRoot, "x2").exists());
+            TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x2", LOG);
+        });
+    }
+
+    private static long countRows(TableReader reader) {
+        long count = 0;
+        final RecordCursor cursor = reader.getCursor();
+        while (cursor.hasNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static File[] partitionDirs(File tableDir, String partitionName) {
+        final File[] dirs = tableDir.listFiles((dir, name) -> name.equals(partitionName) || name.startsWith(partitionName + '.'));
+        Assert.assertNotNull(dirs);
+        return dirs;
+    }
+
+    private void assertCold(String partitionName, boolean expected) {
+        Assert.assertEquals(expected ? 0 : 1, partitionDirs(new File(root.toString(), "x"), partitionName).length);
+        Assert.assertEquals(expected ? 1 : 0, partitionDirs(new File(coldRoot, "x"), partitionName).length);
+    }
+
+    private void assertSame() throws SqlException {
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y", "x", LOG);
+    }
+
+    private File coldPartitionDir(String partitionName) {
+        final File[] dirs = partitionDirs(new File(coldRoot, "x"), partitionName);
+        Assert.assertEquals(1, dirs.length);
+        return dirs[0];
+    }
+
+    private void createX() throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " cast(x as int) i," +
+                        " rnd_symbol('msft','ibm', 'googl') sym," +
+                        " round(rnd_double(0)*100, 3) amt," +
+                        " to_timestamp('2018-01', 'yyyy-MM') + x * 720000000 timestamp," +
+                        " rnd_boolean() b," +
+                        " rnd_str('ABC', 'CDE', null, 'XYZ') c," +
+                        " rnd_double(2) d," +
+                        " rnd_float(2) e," +
+                        " rnd_short(10,1024) f," +
+                        " rnd_date(to_date('2015', 'yyyy'), to_date('2016', 'yyyy'), 2) g," +
+                        " rnd_symbol(4,4,4,2) ik," +
+                        " rnd_long() j," +
+                        " timestamp_sequence(0, 1000000000) k," +
+                        " rnd_byte(2,50) l," +
+                        " rnd_bin(10, 20, 2) m," +
+                        " rnd_str(5,16,2) n" +
+                        " from long_sequence(1000)" +
+                        ") timestamp (timestamp) partition by DAY",
+                sqlExecutionContext
+        );
+        compiler.compile("create table y as (select * from x) timestamp (timestamp) partition by DAY", sqlExecutionContext);
+    }
+
+    private void moveAll() throws SqlException {
+        // zero age moves everything except active partition
+        compiler.compile("alter table x set cold storage '" + coldRoot + "' after 0s", sqlExecutionContext);
+        try (ColdStorageJob job = new ColdStorageJob(engine)) {
+            job.moveColdPartitions("x");
+        }
+    }
+}
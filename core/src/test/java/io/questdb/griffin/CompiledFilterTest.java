@@ -0,0 +1,362 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.table.FilteredRecordCursorFactory;
+import io.questdb.griffin.engine.table.PageFrameFilterJob;
+import io.questdb.griffin.engine.table.ParallelFilteredRecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.Rnd;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * Compares results of compiled filters with results of interpreted filter functions.
+ */
+public class CompiledFilterTest {
+    private final static Log LOG = LogFactory.getLog(CompiledFilterTest.class);
+    private static final StringSink expectedSink = new StringSink();
+    private static final StringSink actualSink = new StringSink();
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+    private static CharSequence root;
+    private static boolean compiledFilterEnabled;
+
+    @BeforeClass
+    public static void setupStatic() {
+        try {
+            root = temp.newFolder("dbRoot").getAbsolutePath();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SharedRandom.RANDOM.set(new Rnd());
+        TestUtils.createTestPath(root);
+    }
+
+    @After
+    public void tearDown() {
+        TestUtils.removeTestPath(root);
+    }
+
+    @Test
+    public void testColumnTop() throws Exception {
+        assertWithPool(1, (compiler, context) -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select rnd_double(2)*100 a, timestamp_sequence(0, 1000000000) k from long_sequence(2000)" +
+                            ") timestamp(k) partition by DAY",
+                    context
+            );
+            compiler.compile("alter table x add column i int", context);
+            compiler.compile("alter table x add column s symbol", context);
+            compiler.compile(
+                    "insert into x select rnd_double(2)*100, timestamp_sequence(2000000000000, 1000000000), rnd_int(0, 100, 2), rnd_symbol(4,4,4,2) from long_sequence(2000)",
+                    context
+            );
+        }, new String[]{
+                "x where i != 50",
+                "x where i < 50 and a > 10",
+                "x where s != 'ABCD' and a < 50",
+                "x where i = 7",
+        });
+    }
+
+    @Test
+    public void testDouble() throws Exception {
+        assertWithPool(1, CompiledFilterTest::createTable, new String[]{
+                "x where d < 50",
+                "x where d <= 50.5",
+                "x where d > 99.9",
+                "x where d >= -1",
+                "x where d = 0.0 or d != 0.0",
+                "x where d != 12",
+                "x where 50 < d",
+                "x where d > -1.5 and d < 2.5",
+        });
+    }
+
+    @Test
+    public void testEqualityTolerance() throws Exception {
+        assertWithPool(1, (compiler, context) -> compiler.compile(
+                "create table x as (select cast(x as double) / 3 * 3 d from long_sequence(100))",
+                context
+        ), new String[]{
+                "x where d = 3",
+                "x where d != 3",
+                "x where d = 3.00000000001",
+        });
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        compiledFilterEnabled = true;
+        TestUtils.assertMemoryLeak(() -> {
+            try (
+                    CairoEngine engine = new CairoEngine(newConfiguration(16, 100));
+                    SqlCompiler compiler = new SqlCompiler(engine);
+                    SqlExecutionContext context = new SqlExecutionContextImpl(engine, 1)
+            ) {
+                createTable(compiler, context);
+                assertFactory(compiler, context, "x where i > 10 or l > 10", FilteredRecordCursorFactory.class);
+                assertFactory(compiler, context, "x where i + 1 > 10", FilteredRecordCursorFactory.class);
+                assertFactory(compiler, context, "x where i > 10.5", FilteredRecordCursorFactory.class);
+                assertFactory(compiler, context, "x where i > 10 and s ~ 'A'", ParallelFilteredRecordCursorFactory.class);
+                assertFactory(compiler, context, "x where i > 10 and l < 0", ParallelFilteredRecordCursorFactory.class);
+            }
+        });
+    }
+
+    @Test
+    public void testInt() throws Exception {
+        assertWithPool(1, CompiledFilterTest::createTable, new String[]{
+                "x where i < 0",
+                "x where i <= -100",
+                "x where i > 2147483647",
+                "x where i >= 2147483647",
+                "x where i < -2147483647",
+                "x where i = 10",
+                "x where i != 10",
+                "x where 0 > i",
+                "x where -5 <= i and i < 5",
+                "x where i > 3000000000",
+        });
+    }
+
+    @Test
+    public void testLongAndTimestamp() throws Exception {
+        assertWithPool(1, CompiledFilterTest::createTable, new String[]{
+                "x where l < 0",
+                "x where l >= 4611686018427387904",
+                "x where l != 0 and l > -4611686018427387904",
+                "x where l = 5",
+                "x where t < 500000",
+                "x where t >= 999999 or t = 0",
+                "x where t > 1000 and t <= 2000",
+        });
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        assertWithPool(4, CompiledFilterTest::createTable, new String[]{
+                "x where i > 0 and d < 50",
+                "x where s = 'WXYZ' and l > 0",
+                "x where i > 0 and s ~ 'A'",
+                "x where i > 0 and d < 50 order by d limit 10",
+        });
+    }
+
+    @Test
+    public void testResidual() throws Exception {
+        assertWithPool(1, CompiledFilterTest::createTable, new String[]{
+                "x where i > 0 and s ~ 'A'",
+                "x where (i > 0 or l > 0) and d < 50",
+                "x where d > 25 and i + l > 0 and s != null",
+                "x where s = 'ABCD' and (i > 0 or i < -10) and d < 70",
+        });
+    }
+
+    @Test
+    public void testSymbol() throws Exception {
+        assertWithPool(1, CompiledFilterTest::createTable, new String[]{
+                "x where s = 'WXYZ'",
+                "x where s != 'WXYZ'",
+                "x where 'WXYZ' = s",
+                "x where s = 'NONE'",
+                "x where s != 'NONE'",
+                "x where s = null",
+                "x where s != 'WXYZ' and s != 'ABCD'",
+        });
+    }
+
+    @Test
+    public void testZoneMaps() throws Exception {
+        assertWithPool(4, (compiler, context) -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select x id, rnd_int(0, 1000, 8) i, rnd_double(8) * 100 d, timestamp_sequence(0, 100000000) k" +
+                            " from long_sequence(5000)" +
+                            ") timestamp(k) partition by DAY",
+                    context
+            );
+            // out of order rows rewrite partitions, column top makes leading rows null
+            compiler.compile("insert into x select 10000 + x, -1, -1.0, cast(x * 1000000000 as timestamp) from long_sequence(20)", context);
+            compiler.compile("alter table x add column j long", context);
+            compiler.compile("insert into x select 20000 + x, 2000, 200.0, cast(500000000000 + x as timestamp), x from long_sequence(100)", context);
+        }, new String[]{
+                "x where id > 4900",
+                "x where id >= 1000 and id < 1100",
+                "x where id = 10005",
+                "x where id != 3",
+                "x where i > 1000",
+                "x where i < 0",
+                "x where i = null",
+                "x where d > 100",
+                "x where d = -1.0",
+                "x where d != 200.0 and id > 4990",
+                "x where j > 50",
+                "x where j = null and id > 20090",
+                "x where k in '1970-01-05' and id < 4100",
+        });
+    }
+
+    private static void assertFactory(
+            SqlCompiler compiler,
+            SqlExecutionContext context,
+            CharSequence query,
+            Class<?> expected
+    ) throws SqlException {
+        try (RecordCursorFactory factory = compiler.compile(query, context).getRecordCursorFactory()) {
+            Assert.assertEquals(expected, factory.getClass());
+        }
+    }
+
+    private static void assertWithPool(int workerCount, TableCreator creator, String[] queries) throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final int[] affinity = new int[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                affinity[i] = -1;
+            }
+
+            final WorkerPool pool = new WorkerPool(
+                    new WorkerPoolAwareConfiguration() {
+                        @Override
+                        public int[] getWorkerAffinity() {
+                            return affinity;
+                        }
+
+                        @Override
+                        public int getWorkerCount() {
+                            return workerCount;
+                        }
+
+                        @Override
+                        public boolean haltOnError() {
+                            return false;
+                        }
+
+                        @Override
+                        public boolean isEnabled() {
+                            return true;
+                        }
+                    }
+            );
+
+            try (
+                    final CairoEngine engine = new CairoEngine(newConfiguration(16, 333));
+                    final SqlCompiler compiler = new SqlCompiler(engine);
+                    final SqlExecutionContext context = new SqlExecutionContextImpl(engine, workerCount)
+            ) {
+                try {
+                    pool.assignCleaner(Path.CLEANER);
+                    pool.assign(new PageFrameFilterJob(engine.getMessageBus()));
+                    pool.start(LOG);
+
+                    creator.create(compiler, context);
+                    for (String query : queries) {
+                        compiledFilterEnabled = false;
+                        TestUtils.printSql(compiler, context, query, expectedSink);
+                        compiledFilterEnabled = true;
+                        TestUtils.printSql(compiler, context, query, actualSink);
+                        TestUtils.assertEquals(query, expectedSink, actualSink);
+                    }
+                    Assert.assertEquals(0, engine.getBusyWriterCount());
+                    Assert.assertEquals(0, engine.getBusyReaderCount());
+                } finally {
+                    pool.halt();
+                }
+            }
+        });
+    }
+
+    private static void createTable(SqlCompiler compiler, SqlExecutionContext context) throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_int(-1000, 1000, 4) i," +
+                        " rnd_long(-10, 10, 4) * 461168601842738790 l," +
+                        " rnd_double(4) * 100 d," +
+                        " rnd_symbol('ABCD', 'WXYZ', null, 'EFGH') s," +
+                        " cast(rnd_long(0, 1000000, 4) as timestamp) t," +
+                        " timestamp_sequence(0, 100000000) k" +
+                        " from long_sequence(5000)" +
+                        ") timestamp(k) partition by DAY",
+                context
+        );
+        compiler.compile("insert into x select 2147483647, 5, 0.0, 'ABCD', cast(1000000000000 as timestamp), cast(1000000000000 as timestamp) from long_sequence(1)", context);
+    }
+
+    private static CairoConfiguration newConfiguration(int queueCapacity, long maxRangeRows) {
+        return new DefaultCairoConfiguration(root) {
+            @Override
+            public FilesFacade getFilesFacade() {
+                return FilesFacadeImpl.INSTANCE;
+            }
+
+            @Override
+            public int getPageFrameFilterQueueCapacity() {
+                return queueCapacity;
+            }
+
+            @Override
+            public long getSqlParallelFilterMaxRangeRows() {
+                return maxRangeRows;
+            }
+
+            @Override
+            public boolean isSqlCompiledFilterEnabled() {
+                return compiledFilterEnabled;
+            }
+
+            @Override
+            public int getZoneMapBlockSize() {
+                return 64;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface TableCreator {
+        void create(SqlCompiler compiler, SqlExecutionContext context) throws SqlException;
+    }
+}
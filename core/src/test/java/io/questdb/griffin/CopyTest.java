@@ -24,13 +24,26 @@
 
 package io.questdb.griffin;
 
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.TableReader;
+import io.questdb.cairo.TableUtils;
+import io.questdb.cairo.security.AllowAllCairoSecurityContext;
 import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.cutlass.text.TextImportJob;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.str.Path;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
 
 public class CopyTest extends AbstractGriffinTest {
+    private static final Log LOG = LogFactory.getLog(CopyTest.class);
+
     @BeforeClass
     public static void setUpStatic() {
         inputRoot = new File(".").getAbsolutePath();
@@ -67,6 +80,92 @@ public class CopyTest extends AbstractGriffinTest {
         ));
     }
 
+    @Test
+    public void testParallelCopy() throws Exception {
+        // chunks are much smaller than lines, most of them do not have a line start
+        sqlCopyChunkSize = 7;
+        assertMemoryLeak(this::assertParallelCopy);
+    }
+
+    @Test
+    public void testParallelCopyChunkPerLine() throws Exception {
+        sqlCopyChunkSize = 64;
+        assertMemoryLeak(this::assertParallelCopy);
+    }
+
+    @Test
+    public void testParallelCopyExistingTable() throws Exception {
+        assertFailure(
+                "copy x from '/src/test/resources/csv/test-parallel-import.csv' with header true partition by DAY timestamp 'ts'",
+                "create table x (a int)",
+                12,
+                "table already exists [table=x]"
+        );
+    }
+
+    @Test
+    public void testParallelCopyInvalidTimestamp() throws Exception {
+        assertFailure(
+                "copy x from '/src/test/resources/csv/test-parallel-import.csv' with header true partition by DAY timestamp 'name'",
+                null,
+                12,
+                "timestamp format is not supported by parallel import 'name'"
+        );
+    }
+
+    @Test
+    public void testParallelCopyPartitionByWithoutTimestamp() throws Exception {
+        assertFailure(
+                "copy x from '/src/test/resources/csv/test-parallel-import.csv' with header true partition by DAY",
+                null,
+                5,
+                "'partition by' and 'timestamp' options must be used together"
+        );
+    }
+
+    @Test
+    public void testParallelCopyWithWorkers() throws Exception {
+        sqlCopyChunkSize = 32;
+        assertMemoryLeak(() -> {
+            final int workerCount = 4;
+            final int[] affinity = new int[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                affinity[i] = -1;
+            }
+            final WorkerPool pool = new WorkerPool(
+                    new WorkerPoolAwareConfiguration() {
+                        @Override
+                        public int[] getWorkerAffinity() {
+                            return affinity;
+                        }
+
+                        @Override
+                        public int getWorkerCount() {
+                            return workerCount;
+                        }
+
+                        @Override
+                        public boolean haltOnError() {
+                            return false;
+                        }
+
+                        @Override
+                        public boolean isEnabled() {
+                            return true;
+                        }
+                    }
+            );
+            pool.assignCleaner(Path.CLEANER);
+            pool.assign(new TextImportJob(engine.getMessageBus()));
+            pool.start(LOG);
+            try {
+                assertParallelCopy();
+            } finally {
+                pool.halt();
+            }
+        });
+    }
+
     @Test
     public void testSimpleCopy() throws Exception {
         assertMemoryLeak(() -> {
@@ -259,4 +358,41 @@ public class CopyTest extends AbstractGriffinTest {
             assertFactoryCursor(expected, expectedTimestamp, factory, supportsRandomAccess, sqlExecutionContext, true, true);
         }
     }
+
+    private void assertParallelCopy() throws SqlException {
+        compiler.compile("copy x from '/src/test/resources/csv/test-parallel-import.csv' with header true partition by DAY timestamp 'ts'", sqlExecutionContext);
+        compiler.compile("copy y from '/src/test/resources/csv/test-parallel-import.csv' with header true", sqlExecutionContext);
+
+        assertSql(
+                "select id, ts, value from x",
+                "id\tts\tvalue\n" +
+                        "6\t2021-03-01T00:00:00.000001Z\t6.125\n" +
+                        "2\t2021-03-01T08:00:00.000000Z\t2.25\n" +
+                        "14\t2021-03-01T12:00:00.000000Z\t14.5\n" +
+                        "10\t2021-03-01T23:59:59.000000Z\t10.0\n" +
+                        "4\t2021-03-02T00:00:00.000000Z\t4.75\n" +
+                        "13\t2021-03-02T05:05:05.000000Z\t13.0\n" +
+                        "1\t2021-03-02T10:15:00.000000Z\t1.5\n" +
+                        "17\t2021-03-02T12:00:00.000000Z\t17.5\n" +
+                        "9\t2021-03-02T18:45:00.000000Z\t9.25\n" +
+                        "8\t2021-03-03T01:00:00.000000Z\t8.5\n" +
+                        "12\t2021-03-03T06:00:00.000000Z\t12.75\n" +
+                        "5\t2021-03-03T12:30:00.000000Z\t5.5\n" +
+                        "15\t2021-03-03T21:00:00.000000Z\t15.25\n" +
+                        "7\t2021-03-04T00:00:00.000000Z\t7.0\n" +
+                        "16\t2021-03-04T05:00:00.000000Z\t16.0\n" +
+                        "11\t2021-03-04T11:11:11.111111Z\t11.5\n" +
+                        "3\t2021-03-04T23:59:59.999999Z\t3.0\n"
+        );
+        // the rest of the columns are the same as imported sequentially
+        TestUtils.assertSqlCursors(compiler, sqlExecutionContext, "y order by ts", "x", LOG);
+        try (TableReader reader = engine.getReader(AllowAllCairoSecurityContext.INSTANCE, "x")) {
+            Assert.assertEquals(4, reader.getPartitionCount());
+        }
+
+        try (Path path = new Path()) {
+            Assert.assertEquals(TableUtils.TABLE_DOES_NOT_EXIST, engine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, "x~import"));
+            Assert.assertEquals(TableUtils.TABLE_DOES_NOT_EXIST, engine.getStatus(AllowAllCairoSecurityContext.INSTANCE, path, "x~import~0"));
+        }
+    }
 }
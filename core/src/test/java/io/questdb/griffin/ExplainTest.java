@@ -0,0 +1,201 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.std.Rnd;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExplainTest extends AbstractGriffinTest {
+
+    @Before
+    public void setUp3() {
+        SharedRandom.RANDOM.set(new Rnd());
+    }
+
+    @Test
+    public void testAnalyze() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertAnalyze(
+                    "explain analyze select * from x where d > 0.5 order by i limit 10",
+                    "QUERY PLAN\n" +
+                            "TopKLightRecordCursorFactory rows: 10 time: ?\n" +
+                            "    ParallelFilteredRecordCursorFactory rows: 55 time: ?\n" +
+                            "        DataFrameRecordCursorFactory\n" +
+                            "            DataFrameRowCursorFactory\n" +
+                            "            FullFwdDataFrameCursorFactory on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testAnalyzeJoin() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertAnalyze(
+                    "EXPLAIN ANALYZE select * from x a join x b on (s) where a.i < 11",
+                    "QUERY PLAN\n" +
+                            "SelectedRecordCursorFactory rows: 319 time: ?\n" +
+                            "    HashJoinLightRecordCursorFactory rows: 319 time: ?\n" +
+                            "        ParallelFilteredRecordCursorFactory rows: 10 time: ?\n" +
+                            "            DataFrameRecordCursorFactory\n" +
+                            "                DataFrameRowCursorFactory\n" +
+                            "                FullFwdDataFrameCursorFactory on: x\n" +
+                            "        TableReaderRecordCursorFactory rows: 100 time: ? on: x\n"
+            );
+
+            // statistics are reported for each execution separately
+            assertAnalyze(
+                    "explain analyze x",
+                    "QUERY PLAN\n" +
+                            "TableReaderRecordCursorFactory rows: 100 time: ? on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainFullScan() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertSql(
+                    "explain x",
+                    "QUERY PLAN\n" +
+                            "TableReaderRecordCursorFactory on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainGroupBy() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertSql(
+                    "explain select sum(d) from x",
+                    "QUERY PLAN\n" +
+                            "GroupByNotKeyedVectorRecordCursorFactory\n" +
+                            "    TableReaderRecordCursorFactory on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainIndex() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertSql(
+                    "explain x where s = 'a'",
+                    "QUERY PLAN\n" +
+                            "DeferredSingleSymbolFilterDataFrameRecordCursorFactory\n" +
+                            "    SymbolIndexRowCursorFactory on: s symbol: a direction: forward\n" +
+                            "    FullFwdDataFrameCursorFactory on: x\n"
+            );
+            assertSql(
+                    "explain x latest by s",
+                    "QUERY PLAN\n" +
+                            "LatestByAllIndexedFilteredRecordCursorFactory\n" +
+                            "    FullBwdDataFrameCursorFactory on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainIntervals() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertSql(
+                    "explain select * from x where ts in '1970-01-01T00:00:01;2s'",
+                    "QUERY PLAN\n" +
+                            "DataFrameRecordCursorFactory\n" +
+                            "    DataFrameRowCursorFactory\n" +
+                            "    IntervalFwdDataFrameCursorFactory on: x intervals: [(1970-01-01T00:00:01.000000Z,1970-01-01T00:00:03.999999Z)]\n"
+            );
+            assertSql(
+                    "explain select * from x where ts > '1970-01-01T00:00:05' order by ts desc",
+                    "QUERY PLAN\n" +
+                            "SortedLightRecordCursorFactory\n" +
+                            "    DataFrameRecordCursorFactory\n" +
+                            "        DataFrameRowCursorFactory\n" +
+                            "        IntervalFwdDataFrameCursorFactory on: x intervals: [(1970-01-01T00:00:05.000001Z,MAX)]\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainJoin() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertSql(
+                    "explain x a join x b on (s)",
+                    "QUERY PLAN\n" +
+                            "SelectedRecordCursorFactory\n" +
+                            "    HashJoinLightRecordCursorFactory\n" +
+                            "        TableReaderRecordCursorFactory on: x\n" +
+                            "        TableReaderRecordCursorFactory on: x\n"
+            );
+        });
+    }
+
+    @Test
+    public void testExplainNotQuery() throws Exception {
+        assertMemoryLeak(() -> {
+            assertExplainFailure("explain create table y (a int)", 8);
+            assertExplainFailure("explain analyze insert into y values (1)", 16);
+            assertExplainFailure("explain", 7);
+        });
+    }
+
+    private void assertAnalyze(String sql, String expected) throws SqlException {
+        TestUtils.printSql(compiler, sqlExecutionContext, sql, sink);
+        TestUtils.assertEquals(expected, sink.toString().replaceAll("time: \\d+ns", "time: ?"));
+    }
+
+    private void assertExplainFailure(String sql, int position) {
+        try {
+            compiler.compile(sql, sqlExecutionContext);
+            Assert.fail();
+        } catch (SqlException e) {
+            Assert.assertEquals(position, e.getPosition());
+            TestUtils.assertContains(e.getFlyweightMessage(), "query expected");
+        }
+    }
+
+    private void createX() throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " cast(x as int) i," +
+                        " rnd_symbol('a','b','c') s," +
+                        " rnd_double() d," +
+                        " timestamp_sequence(0, 100000) ts" +
+                        " from long_sequence(100)" +
+                        "), index(s) timestamp(ts) partition by DAY",
+                sqlExecutionContext
+        );
+    }
+}
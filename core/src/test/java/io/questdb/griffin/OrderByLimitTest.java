@@ -0,0 +1,180 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.LimitRecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.orderby.TopKLightRecordCursorFactory;
+import io.questdb.std.Rnd;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that ORDER BY ... LIMIT returns the same rows as full sort followed by limit.
+ */
+public class OrderByLimitTest extends AbstractGriffinTest {
+    private static final int ROW_COUNT = 1000;
+    private static final StringSink fullSink = new StringSink();
+
+    @Before
+    public void setUp3() {
+        SharedRandom.RANDOM.set(new Rnd());
+    }
+
+    @Test
+    public void testBindVariables() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            final String orderBy = "a, b desc";
+            final String query = "x order by " + orderBy + " limit :lo, :hi";
+
+            bindVariableService.setLong("lo", 5);
+            bindVariableService.setLong("hi", 15);
+            try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+                Assert.assertEquals(TopKLightRecordCursorFactory.class, factory.getClass());
+                assertSlice(orderBy, factory, 5, 15);
+
+                bindVariableService.setLong("lo", -30);
+                bindVariableService.setLong("hi", -20);
+                assertSlice(orderBy, factory, ROW_COUNT - 30, ROW_COUNT - 20);
+            }
+        });
+    }
+
+    @Test
+    public void testBottomN() throws Exception {
+        assertLimits("d desc", "-10", ROW_COUNT - 10, ROW_COUNT);
+        assertLimits("a, k", "-1", ROW_COUNT - 1, ROW_COUNT);
+        assertLimits("a", "-2000", 0, ROW_COUNT);
+    }
+
+    @Test
+    public void testBottomRange() throws Exception {
+        assertLimits("a desc", "-30,-20", ROW_COUNT - 30, ROW_COUNT - 20);
+        assertLimits("b", "-5,3", ROW_COUNT - 5, ROW_COUNT);
+        assertLimits("s", "-3,-10", 0, 0);
+        assertLimits("a", "-2000,-500", 0, ROW_COUNT - 500);
+        assertLimits("a", "-2000,-1500", 0, 0);
+    }
+
+    @Test
+    public void testCursorApi() throws Exception {
+        createTable();
+        TestUtils.printSql(compiler, sqlExecutionContext, "x order by a desc, d", fullSink);
+        engine.clear();
+        final String[] lines = fullSink.toString().split("\n");
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 21; i++) {
+            expected.append(lines[i]).append('\n');
+        }
+        assertQuery(
+                expected,
+                "x order by a desc, d limit 20",
+                null,
+                null,
+                true,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testNotRandomAccess() throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (RecordCursorFactory factory = compiler.compile(
+                    "(x union all x) order by a limit 3",
+                    sqlExecutionContext
+            ).getRecordCursorFactory()) {
+                Assert.assertEquals(LimitRecordCursorFactory.class, factory.getClass());
+            }
+        });
+    }
+
+    @Test
+    public void testTopN() throws Exception {
+        assertLimits("a", "10", 0, 10);
+        assertLimits("a desc", "10", 0, 10);
+        assertLimits("b, a", "25", 0, 25);
+        assertLimits("s desc, k", "1", 0, 1);
+        assertLimits("d", "0", 0, 0);
+        assertLimits("a", "2000", 0, ROW_COUNT);
+    }
+
+    @Test
+    public void testTopRange() throws Exception {
+        assertLimits("a", "5,15", 5, 15);
+        assertLimits("b desc, d", "0,1", 0, 1);
+        assertLimits("a", "3,-3", 3, ROW_COUNT - 3);
+        assertLimits("s", "10,5", 0, 0);
+        assertLimits("a", "990,2000", 990, ROW_COUNT);
+    }
+
+    private static void assertLimits(String orderBy, String limit, int from, int to) throws Exception {
+        assertMemoryLeak(() -> {
+            createTable();
+            try (RecordCursorFactory factory = compiler.compile(
+                    "x order by " + orderBy + " limit " + limit,
+                    sqlExecutionContext
+            ).getRecordCursorFactory()) {
+                Assert.assertEquals(TopKLightRecordCursorFactory.class, factory.getClass());
+                assertSlice(orderBy, factory, from, to);
+            } finally {
+                compiler.compile("drop table x", sqlExecutionContext);
+            }
+        });
+    }
+
+    private static void assertSlice(String orderBy, RecordCursorFactory factory, int from, int to) throws SqlException {
+        TestUtils.printSql(compiler, sqlExecutionContext, "x order by " + orderBy, fullSink);
+        final String[] lines = fullSink.toString().split("\n");
+        // first line is the header
+        final StringBuilder expected = new StringBuilder(lines[0]).append('\n');
+        for (int i = from; i < to; i++) {
+            expected.append(lines[i + 1]).append('\n');
+        }
+        assertCursor(expected, factory, true, true, true);
+    }
+
+    private static void createTable() throws SqlException {
+        // keys have many duplicates to check order of rows with equal keys
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_int(0, 20, 2) a," +
+                        " rnd_symbol('AA', 'BB', 'CC', null) b," +
+                        " rnd_str('x', 'y', 'z', null) s," +
+                        " rnd_double(2) d," +
+                        " x k" +
+                        " from long_sequence(" + ROW_COUNT + ")" +
+                        ")",
+                sqlExecutionContext
+        );
+    }
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.RecordCursorPrinter;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.table.FilteredRecordCursorFactory;
+import io.questdb.griffin.engine.table.PageFrameFilterJob;
+import io.questdb.griffin.engine.table.ParallelFilteredRecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.Rnd;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+public class ParallelFilterTest {
+    private final static Log LOG = LogFactory.getLog(ParallelFilterTest.class);
+    private static final StringSink expectedSink = new StringSink();
+    private static final StringSink actualSink = new StringSink();
+    private static final RecordCursorPrinter printer = new RecordCursorPrinter();
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+    private static CharSequence root;
+
+    @BeforeClass
+    public static void setupStatic() {
+        try {
+            root = temp.newFolder("dbRoot").getAbsolutePath();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SharedRandom.RANDOM.set(new Rnd());
+        TestUtils.createTestPath(root);
+    }
+
+    @After
+    public void tearDown() {
+        TestUtils.removeTestPath(root);
+    }
+
+    @Test
+    public void testColumnTop() throws Exception {
+        executeWithPool(4, 16, 1000, (engine, compiler, vanillaContext, parallelContext) -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select rnd_double(0)*100 a, timestamp_sequence(0, 1000000000) k from long_sequence(5000)" +
+                            ") timestamp(k) partition by DAY",
+                    vanillaContext
+            );
+            compiler.compile("alter table x add column b int", vanillaContext);
+            compiler.compile(
+                    "insert into x select rnd_double(0)*100, timestamp_sequence(5000000000000, 1000000000), rnd_int(0, 100, 2) from long_sequence(5000)",
+                    vanillaContext
+            );
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where b > 50 or a < 10");
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where b = null and a > 90");
+        });
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public boolean isSqlParallelFilterEnabled() {
+                    return false;
+                }
+            };
+            try (
+                    CairoEngine engine = new CairoEngine(configuration);
+                    SqlCompiler compiler = new SqlCompiler(engine);
+                    SqlExecutionContext context = new SqlExecutionContextImpl(engine, 4)
+            ) {
+                compiler.compile("create table x as (select rnd_double() a from long_sequence(10))", context);
+                // filter that cannot be compiled, otherwise it would be evaluated over page frames
+                try (RecordCursorFactory factory = compiler.compile("x where a * 2 > 1", context).getRecordCursorFactory()) {
+                    Assert.assertTrue(factory instanceof FilteredRecordCursorFactory);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testLimitAndOrderBy() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            // limit closes the cursor while workers are still busy with the window
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where a > 40 limit 15");
+            // sort uses random access to filtered records
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where a > 40 and b = 'VTJW' order by a desc limit 20");
+            assertParallel(compiler, vanillaContext, parallelContext, "select count() from x where a > 40");
+        });
+    }
+
+    @Test
+    public void testSmallQueue() throws Exception {
+        executeWithPool(2, 1, 10, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where a > 40 and c < 0");
+        });
+    }
+
+    @Test
+    public void testSymbolFilter() throws Exception {
+        executeWithPool(4, 16, 1000, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where b ~ 'V'");
+            assertParallel(compiler, vanillaContext, parallelContext, "select k, b from x where b = 'HYRX' and k > '1970-01-02'");
+            assertParallel(compiler, vanillaContext, parallelContext, "select * from x where b = 'NONE'");
+        });
+    }
+
+    @Test
+    public void testToTop() throws Exception {
+        executeWithPool(3, 8, 333, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            try (RecordCursorFactory factory = compiler.compile("x where c > 0", parallelContext).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof ParallelFilteredRecordCursorFactory);
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, expectedSink, printer);
+                    // abandon cursor half way through
+                    cursor.toTop();
+                    for (int i = 0; i < 10; i++) {
+                        Assert.assertTrue(cursor.hasNext());
+                    }
+                    cursor.toTop();
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+            }
+            TestUtils.assertEquals(expectedSink, actualSink);
+        });
+    }
+
+    private static void assertParallel(
+            SqlCompiler compiler,
+            SqlExecutionContext vanillaContext,
+            SqlExecutionContext parallelContext,
+            String query
+    ) throws SqlException {
+        TestUtils.printSql(compiler, vanillaContext, query, expectedSink);
+        TestUtils.printSql(compiler, parallelContext, query, actualSink);
+        TestUtils.assertEquals(expectedSink, actualSink);
+    }
+
+    private static void createTable(SqlCompiler compiler, SqlExecutionContext context) throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_double(0)*100 a," +
+                        " rnd_symbol(5,4,4,1) b," +
+                        " rnd_long() c," +
+                        " timestamp_sequence(0, 100000000) k" +
+                        " from long_sequence(10000)" +
+                        ") timestamp(k) partition by DAY",
+                context
+        );
+    }
+
+    private static void executeWithPool(
+            int workerCount,
+            int queueCapacity,
+            long maxRangeRows,
+            ParallelFilterRunnable runnable
+    ) throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final int[] affinity = new int[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                affinity[i] = -1;
+            }
+
+            final WorkerPool pool = new WorkerPool(
+                    new WorkerPoolAwareConfiguration() {
+                        @Override
+                        public int[] getWorkerAffinity() {
+                            return affinity;
+                        }
+
+                        @Override
+                        public int getWorkerCount() {
+                            return workerCount;
+                        }
+
+                        @Override
+                        public boolean haltOnError() {
+                            return false;
+                        }
+
+                        @Override
+                        public boolean isEnabled() {
+                            return true;
+                        }
+                    }
+            );
+
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public FilesFacade getFilesFacade() {
+                    return FilesFacadeImpl.INSTANCE;
+                }
+
+                @Override
+                public int getPageFrameFilterQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                @Override
+                public long getSqlParallelFilterMaxRangeRows() {
+                    return maxRangeRows;
+                }
+            };
+
+            try (
+                    final CairoEngine engine = new CairoEngine(configuration);
+                    final SqlCompiler compiler = new SqlCompiler(engine);
+                    final SqlExecutionContext vanillaContext = new SqlExecutionContextImpl(engine, 1);
+                    final SqlExecutionContext parallelContext = new SqlExecutionContextImpl(engine, workerCount)
+            ) {
+                try {
+                    pool.assignCleaner(Path.CLEANER);
+                    pool.assign(new PageFrameFilterJob(engine.getMessageBus()));
+                    pool.start(LOG);
+
+                    runnable.run(engine, compiler, vanillaContext, parallelContext);
+                    Assert.assertEquals(0, engine.getBusyWriterCount());
+                    Assert.assertEquals(0, engine.getBusyReaderCount());
+                } finally {
+                    pool.halt();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ParallelFilterRunnable {
+        void run(
+                CairoEngine engine,
+                SqlCompiler compiler,
+                SqlExecutionContext vanillaContext,
+                SqlExecutionContext parallelContext
+        ) throws Exception;
+    }
+}
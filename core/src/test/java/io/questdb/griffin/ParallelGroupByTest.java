@@ -0,0 +1,325 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.RecordCursorPrinter;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.groupby.GroupByRecordCursorFactory;
+import io.questdb.griffin.engine.groupby.PageFrameGroupByJob;
+import io.questdb.griffin.engine.groupby.ParallelGroupByRecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.Rnd;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+public class ParallelGroupByTest {
+    private final static Log LOG = LogFactory.getLog(ParallelGroupByTest.class);
+    private static final StringSink expectedSink = new StringSink();
+    private static final StringSink actualSink = new StringSink();
+    private static final RecordCursorPrinter printer = new RecordCursorPrinter();
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+    private static CharSequence root;
+
+    @BeforeClass
+    public static void setupStatic() {
+        try {
+            root = temp.newFolder("dbRoot").getAbsolutePath();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SharedRandom.RANDOM.set(new Rnd());
+        TestUtils.createTestPath(root);
+    }
+
+    @After
+    public void tearDown() {
+        TestUtils.removeTestPath(root);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public boolean isSqlParallelGroupByEnabled() {
+                    return false;
+                }
+            };
+            try (
+                    CairoEngine engine = new CairoEngine(configuration);
+                    SqlCompiler compiler = new SqlCompiler(engine);
+                    SqlExecutionContext context = new SqlExecutionContextImpl(engine, 4)
+            ) {
+                compiler.compile("create table x as (select rnd_symbol('a','b') s, rnd_double() a from long_sequence(10))", context);
+                try (RecordCursorFactory factory = compiler.compile("select s, first(a) from x", context).getRecordCursorFactory()) {
+                    Assert.assertTrue(factory instanceof GroupByRecordCursorFactory);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testFirstLast() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(
+                    compiler,
+                    vanillaContext,
+                    parallelContext,
+                    "select b, first(a), last(a), first(c), last(c), first(k), last(k), first(g), last(g) from x"
+            );
+        });
+    }
+
+    @Test
+    public void testHaversineDistance() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, vanillaContext, parallelContext) -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select" +
+                            " rnd_symbol(3,4,4,0) b," +
+                            " rnd_double(2)*90 lat," +
+                            " rnd_double(2)*180 lon," +
+                            " timestamp_sequence(0, 100000000) k" +
+                            " from long_sequence(5000)" +
+                            ") timestamp(k) partition by DAY",
+                    vanillaContext
+            );
+            assertParallel(compiler, vanillaContext, parallelContext, "select b, round(haversine_dist_deg(lat, lon, k), 3) d from x");
+        });
+    }
+
+    @Test
+    public void testMinMaxSumAvg() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(
+                    compiler,
+                    vanillaContext,
+                    parallelContext,
+                    "select b, count(), min(a), max(a), min(c), max(c), min(i), max(i), min(k), max(k), min(f), sum(i), sum(c) from x"
+            );
+            assertParallel(
+                    compiler,
+                    vanillaContext,
+                    parallelContext,
+                    "select b, round(sum(a), 3) s, round(avg(a), 3) av, round(ksum(a), 3) ks, round(nsum(a), 3) ns, round(sum(f), 1) sf from x"
+            );
+        });
+    }
+
+    @Test
+    public void testMultipleKeys() throws Exception {
+        executeWithPool(3, 8, 333, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select b, s, count(), max(a) from x");
+            assertParallel(compiler, vanillaContext, parallelContext, "select i % 10 m, count(), last(b) from x");
+        });
+    }
+
+    @Test
+    public void testNotMergeableFallsBackToSerial() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            try (RecordCursorFactory factory = compiler.compile("select b, max(a), last(c) from x", parallelContext).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof ParallelGroupByRecordCursorFactory);
+            }
+            try (RecordCursorFactory factory = compiler.compile("select s, count_distinct(b) from x", parallelContext).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof GroupByRecordCursorFactory);
+            }
+            assertParallel(compiler, vanillaContext, parallelContext, "select s, count_distinct(b) from x");
+        });
+    }
+
+    @Test
+    public void testSmallQueue() throws Exception {
+        executeWithPool(2, 1, 10, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select s, count(), min(k), last(a) from x");
+        });
+    }
+
+    @Test
+    public void testStringKey() throws Exception {
+        executeWithPool(4, 16, 1000, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select s, count(), first(b), last(i), min(c) from x");
+        });
+    }
+
+    @Test
+    public void testToTop() throws Exception {
+        executeWithPool(3, 8, 333, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTable(compiler, vanillaContext);
+            try (RecordCursorFactory factory = compiler.compile("select b, count(), last(c) from x", parallelContext).getRecordCursorFactory()) {
+                Assert.assertTrue(factory instanceof ParallelGroupByRecordCursorFactory);
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, expectedSink, printer);
+                    cursor.toTop();
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+                TestUtils.assertEquals(expectedSink, actualSink);
+                // factory can be executed again
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+            }
+            TestUtils.assertEquals(expectedSink, actualSink);
+        });
+    }
+
+    private static void assertParallel(
+            SqlCompiler compiler,
+            SqlExecutionContext vanillaContext,
+            SqlExecutionContext parallelContext,
+            String query
+    ) throws SqlException {
+        TestUtils.printSql(compiler, vanillaContext, query, expectedSink);
+        TestUtils.printSql(compiler, parallelContext, query, actualSink);
+        TestUtils.assertEquals(expectedSink, actualSink);
+    }
+
+    private static void createTable(SqlCompiler compiler, SqlExecutionContext context) throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_double(2)*100 a," +
+                        " rnd_symbol(5,4,4,1) b," +
+                        " rnd_long(0, 1000000, 2) c," +
+                        " rnd_int(0, 1000, 2) i," +
+                        " rnd_float(2) f," +
+                        " rnd_str('ABC', 'CDE', null, 'XYZ', 'KLM') s," +
+                        " rnd_geohash(20) g," +
+                        " timestamp_sequence(0, 100000000) k" +
+                        " from long_sequence(10000)" +
+                        ") timestamp(k) partition by DAY",
+                context
+        );
+    }
+
+    private static void executeWithPool(
+            int workerCount,
+            int queueCapacity,
+            long maxRangeRows,
+            ParallelGroupByRunnable runnable
+    ) throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final int[] affinity = new int[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                affinity[i] = -1;
+            }
+
+            final WorkerPool pool = new WorkerPool(
+                    new WorkerPoolAwareConfiguration() {
+                        @Override
+                        public int[] getWorkerAffinity() {
+                            return affinity;
+                        }
+
+                        @Override
+                        public int getWorkerCount() {
+                            return workerCount;
+                        }
+
+                        @Override
+                        public boolean haltOnError() {
+                            return false;
+                        }
+
+                        @Override
+                        public boolean isEnabled() {
+                            return true;
+                        }
+                    }
+            );
+
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public FilesFacade getFilesFacade() {
+                    return FilesFacadeImpl.INSTANCE;
+                }
+
+                @Override
+                public int getPageFrameGroupByQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                @Override
+                public long getSqlParallelGroupByMaxRangeRows() {
+                    return maxRangeRows;
+                }
+            };
+
+            try (
+                    final CairoEngine engine = new CairoEngine(configuration);
+                    final SqlCompiler compiler = new SqlCompiler(engine);
+                    final SqlExecutionContext vanillaContext = new SqlExecutionContextImpl(engine, 1);
+                    final SqlExecutionContext parallelContext = new SqlExecutionContextImpl(engine, workerCount)
+            ) {
+                try {
+                    pool.assignCleaner(Path.CLEANER);
+                    pool.assign(new PageFrameGroupByJob(engine.getMessageBus()));
+                    pool.start(LOG);
+
+                    runnable.run(engine, compiler, vanillaContext, parallelContext);
+                    Assert.assertEquals(0, engine.getBusyWriterCount());
+                    Assert.assertEquals(0, engine.getBusyReaderCount());
+                } finally {
+                    pool.halt();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ParallelGroupByRunnable {
+        void run(
+                CairoEngine engine,
+                SqlCompiler compiler,
+                SqlExecutionContext vanillaContext,
+                SqlExecutionContext parallelContext
+        ) throws Exception;
+    }
+}
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.RecordCursorPrinter;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.join.HashJoinBuildJob;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.FilesFacade;
+import io.questdb.std.FilesFacadeImpl;
+import io.questdb.std.Rnd;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ParallelHashJoinTest {
+    private final static Log LOG = LogFactory.getLog(ParallelHashJoinTest.class);
+    private static final StringSink expectedSink = new StringSink();
+    private static final StringSink actualSink = new StringSink();
+    private static final RecordCursorPrinter printer = new RecordCursorPrinter();
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+    private static CharSequence root;
+    private static String spillRoot;
+
+    @BeforeClass
+    public static void setupStatic() {
+        try {
+            root = temp.newFolder("dbRoot").getAbsolutePath();
+            spillRoot = new File(temp.getRoot(), "spill").getAbsolutePath();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SharedRandom.RANDOM.set(new Rnd());
+        TestUtils.createTestPath(root);
+    }
+
+    @After
+    public void tearDown() {
+        TestUtils.removeTestPath(root);
+        TestUtils.removeTestPath(spillRoot);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public boolean isSqlParallelHashJoinEnabled() {
+                    return false;
+                }
+
+                @Override
+                public CharSequence getSqlHashJoinSpillRoot() {
+                    return spillRoot;
+                }
+
+                @Override
+                public long getSqlHashJoinSpillThreshold() {
+                    return 0;
+                }
+            };
+            try (
+                    CairoEngine engine = new CairoEngine(configuration);
+                    SqlCompiler compiler = new SqlCompiler(engine);
+                    SqlExecutionContext context = new SqlExecutionContextImpl(engine, 4)
+            ) {
+                createTables(compiler, context);
+                // serial hash join does not stage rows
+                assertSpillFileCount(compiler, context, "x join y on x.b = y.yb", 0);
+            }
+        });
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        executeWithPool(4, 16, 4, Long.MAX_VALUE, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select a, b, c, yi from x join y on x.b = y.yb");
+            assertParallel(compiler, vanillaContext, parallelContext, "select a, yi from x join y on x.i = y.yi where c > 500000");
+        });
+    }
+
+    @Test
+    public void testMultipleKeys() throws Exception {
+        executeWithPool(4, 16, 3, Long.MAX_VALUE, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select a, b, s, c, yk from x join y on x.b = y.yb and x.s = y.ys");
+        });
+    }
+
+    @Test
+    public void testOuterJoinIsSerial() throws Exception {
+        executeWithPool(4, 16, 4, 0, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            assertSpillFileCount(compiler, parallelContext, "x join y on x.b = y.yb", 16);
+            assertSpillFileCount(compiler, parallelContext, "x left join y on x.b = y.yb", 0);
+        });
+    }
+
+    @Test
+    public void testSmallQueue() throws Exception {
+        executeWithPool(2, 1, 6, Long.MAX_VALUE, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            assertParallel(compiler, vanillaContext, parallelContext, "select a, b, c from x join y on x.b = y.yb");
+        });
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        executeWithPool(4, 16, 4, 1024, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            final String query = "select a, b, s, c, yi from x join y on x.b = y.yb and x.s = y.ys";
+            TestUtils.printSql(compiler, vanillaContext, query, expectedSink);
+            try (RecordCursorFactory factory = compiler.compile(query, parallelContext).getRecordCursorFactory()) {
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    Assert.assertEquals(16, countSpillFiles());
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+                TestUtils.assertEquals(expectedSink, actualSink);
+            }
+            // temporary files are removed along with the factory
+            Assert.assertEquals(0, countSpillFiles());
+        });
+    }
+
+    @Test
+    public void testToTop() throws Exception {
+        executeWithPool(3, 8, 2, 4096, (engine, compiler, vanillaContext, parallelContext) -> {
+            createTables(compiler, vanillaContext);
+            try (RecordCursorFactory factory = compiler.compile("x join y on x.b = y.yb", parallelContext).getRecordCursorFactory()) {
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, expectedSink, printer);
+                    cursor.toTop();
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+                TestUtils.assertEquals(expectedSink, actualSink);
+                // factory can be executed again
+                try (RecordCursor cursor = factory.getCursor(parallelContext)) {
+                    TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                }
+            }
+            TestUtils.assertEquals(expectedSink, actualSink);
+        });
+    }
+
+    private static void assertParallel(
+            SqlCompiler compiler,
+            SqlExecutionContext vanillaContext,
+            SqlExecutionContext parallelContext,
+            String query
+    ) throws SqlException {
+        TestUtils.printSql(compiler, vanillaContext, query, expectedSink);
+        TestUtils.printSql(compiler, parallelContext, query, actualSink);
+        TestUtils.assertEquals(expectedSink, actualSink);
+    }
+
+    private static void assertSpillFileCount(
+            SqlCompiler compiler,
+            SqlExecutionContext context,
+            String query,
+            int expected
+    ) throws SqlException {
+        try (
+                RecordCursorFactory factory = compiler.compile(query, context).getRecordCursorFactory();
+                RecordCursor ignore = factory.getCursor(context)
+        ) {
+            Assert.assertEquals(expected, countSpillFiles());
+        }
+    }
+
+    private static int countSpillFiles() {
+        final File[] files = new File(spillRoot).listFiles((dir, name) -> name.endsWith(".spill"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static void createTables(SqlCompiler compiler, SqlExecutionContext context) throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_double(2)*100 a," +
+                        " rnd_symbol(20,4,4,1) b," +
+                        " rnd_int(0, 1000, 2) i," +
+                        " rnd_str('ABC', 'CDE', null, 'XYZ', 'KLM') s," +
+                        " timestamp_sequence(0, 100000000) k" +
+                        " from long_sequence(500)" +
+                        ") timestamp(k) partition by DAY",
+                context
+        );
+        compiler.compile(
+                "create table y as (" +
+                        "select" +
+                        " rnd_symbol(20,4,4,1) yb," +
+                        " rnd_long(0, 1000000, 2) c," +
+                        " rnd_int(0, 1000, 2) yi," +
+                        " rnd_str('ABC', 'CDE', null, 'XYZ', 'KLM') ys," +
+                        " timestamp_sequence(0, 10000000) yk" +
+                        " from long_sequence(2000)" +
+                        ") timestamp(yk) partition by DAY",
+                context
+        );
+    }
+
+    private static void executeWithPool(
+            int workerCount,
+            int queueCapacity,
+            int radixBits,
+            long spillThreshold,
+            ParallelHashJoinRunnable runnable
+    ) throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final int[] affinity = new int[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                affinity[i] = -1;
+            }
+
+            final WorkerPool pool = new WorkerPool(
+                    new WorkerPoolAwareConfiguration() {
+                        @Override
+                        public int[] getWorkerAffinity() {
+                            return affinity;
+                        }
+
+                        @Override
+                        public int getWorkerCount() {
+                            return workerCount;
+                        }
+
+                        @Override
+                        public boolean haltOnError() {
+                            return false;
+                        }
+
+                        @Override
+                        public boolean isEnabled() {
+                            return true;
+                        }
+                    }
+            );
+
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public FilesFacade getFilesFacade() {
+                    return FilesFacadeImpl.INSTANCE;
+                }
+
+                @Override
+                public int getHashJoinBuildQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                @Override
+                public int getSqlHashJoinRadixBits() {
+                    return radixBits;
+                }
+
+                @Override
+                public CharSequence getSqlHashJoinSpillRoot() {
+                    return spillRoot;
+                }
+
+                @Override
+                public long getSqlHashJoinSpillThreshold() {
+                    return spillThreshold;
+                }
+            };
+
+            try (
+                    final CairoEngine engine = new CairoEngine(configuration);
+                    final SqlCompiler compiler = new SqlCompiler(engine);
+                    final SqlExecutionContext vanillaContext = new SqlExecutionContextImpl(engine, 1);
+                    final SqlExecutionContext parallelContext = new SqlExecutionContextImpl(engine, workerCount)
+            ) {
+                try {
+                    pool.assignCleaner(Path.CLEANER);
+                    pool.assign(new HashJoinBuildJob(engine.getMessageBus()));
+                    pool.start(LOG);
+
+                    runnable.run(engine, compiler, vanillaContext, parallelContext);
+                    Assert.assertEquals(0, engine.getBusyWriterCount());
+                    Assert.assertEquals(0, engine.getBusyReaderCount());
+                } finally {
+                    pool.halt();
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ParallelHashJoinRunnable {
+        void run(
+                CairoEngine engine,
+                SqlCompiler compiler,
+                SqlExecutionContext vanillaContext,
+                SqlExecutionContext parallelContext
+        ) throws Exception;
+    }
+}
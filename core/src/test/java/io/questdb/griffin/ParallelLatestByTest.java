@@ -0,0 +1,351 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.WorkerPoolAwareConfiguration;
+import io.questdb.cairo.CairoConfiguration;
+import io.questdb.cairo.CairoEngine;
+import io.questdb.cairo.DefaultCairoConfiguration;
+import io.questdb.cairo.RecordCursorPrinter;
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.functions.rnd.SharedRandom;
+import io.questdb.griffin.engine.table.LatestByScanJob;
+import io.questdb.griffin.engine.table.ParallelLatestByAllRecordCursorFactory;
+import io.questdb.griffin.engine.table.ParallelLatestByValuesRecordCursorFactory;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.mp.WorkerPool;
+import io.questdb.std.*;
+import io.questdb.std.str.LPSZ;
+import io.questdb.std.str.Path;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+public class ParallelLatestByTest {
+    private final static Log LOG = LogFactory.getLog(ParallelLatestByTest.class);
+    private static final StringSink expectedSink = new StringSink();
+    private static final StringSink actualSink = new StringSink();
+    private static final RecordCursorPrinter printer = new RecordCursorPrinter();
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+    private static CharSequence root;
+    private static boolean parallelEnabled;
+    private static int symbolColumnOpenCount;
+
+    @BeforeClass
+    public static void setupStatic() {
+        try {
+            root = temp.newFolder("dbRoot").getAbsolutePath();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        SharedRandom.RANDOM.set(new Rnd());
+        TestUtils.createTestPath(root);
+    }
+
+    @After
+    public void tearDown() {
+        TestUtils.removeTestPath(root);
+    }
+
+    @Test
+    public void testColumnTop() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            compiler.compile("alter table x add column c symbol", context);
+            compiler.compile(
+                    "insert into x select rnd_double(2)*100, rnd_symbol(20,4,4,1), rnd_symbol('AA', 'BB', 'CC', 'DD'), 0, timestamp_sequence(6 * 86400000000L, 100000000), rnd_symbol(5,4,4,1)" +
+                            " from long_sequence(1000)",
+                    context
+            );
+            assertParallel(compiler, context, "select * from x latest by c");
+            assertParallel(compiler, context, "select * from x latest by c where k < '1970-01-07T01'");
+        });
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            parallelEnabled = false;
+            try (RecordCursorFactory factory = compiler.compile("select * from x latest by b", context).getRecordCursorFactory()) {
+                Assert.assertFalse(factory instanceof ParallelLatestByAllRecordCursorFactory);
+            }
+        });
+    }
+
+    @Test
+    public void testEarlyTermination() throws Exception {
+        // ranges in flight fit into the last partition
+        executeWithPool(4, 16, 50, (engine, compiler, context) -> {
+            compiler.compile(
+                    "create table x as (" +
+                            "select" +
+                            " rnd_symbol('A', 'B', 'C') b," +
+                            " timestamp_sequence(0, 100000000) k" +
+                            " from long_sequence(5000)" +
+                            ") timestamp(k) partition by DAY",
+                    context
+            );
+            engine.releaseAllReaders();
+            symbolColumnOpenCount = 0;
+            parallelEnabled = false;
+            TestUtils.printSql(compiler, context, "select * from x latest by b", expectedSink);
+            // serial scan reads every partition, null key is never found
+            Assert.assertEquals(6, symbolColumnOpenCount);
+
+            engine.releaseAllReaders();
+            symbolColumnOpenCount = 0;
+            parallelEnabled = true;
+            TestUtils.printSql(compiler, context, "select * from x latest by b where b in ('A', 'B', 'C')", actualSink);
+            TestUtils.assertEquals(expectedSink, actualSink);
+            // all keys are in the last partition
+            Assert.assertEquals(1, symbolColumnOpenCount);
+        });
+    }
+
+    @Test
+    public void testFilterIsSerial() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            try (RecordCursorFactory factory = compiler.compile("select * from x latest by b where a > 40", context).getRecordCursorFactory()) {
+                Assert.assertFalse(factory instanceof ParallelLatestByAllRecordCursorFactory);
+            }
+        });
+    }
+
+    @Test
+    public void testIntervals() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            assertParallel(compiler, context, "select * from x latest by b where k > '1970-01-02' and k < '1970-01-04T12'");
+            assertParallel(compiler, context, "select * from x latest by s where k < '1970-01-03' and s in ('BB', 'DD')");
+        });
+    }
+
+    @Test
+    public void testLatestByAll() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            assertParallel(compiler, context, "select * from x latest by b", ParallelLatestByAllRecordCursorFactory.class);
+            assertParallel(compiler, context, "select a, s, k from x latest by s", ParallelLatestByAllRecordCursorFactory.class);
+            assertParallel(compiler, context, "x latest by b", ParallelLatestByAllRecordCursorFactory.class);
+        });
+    }
+
+    @Test
+    public void testLatestByValues() throws Exception {
+        executeWithPool(4, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            assertParallel(compiler, context, "select * from x latest by s where s in ('AA', 'CC')", ParallelLatestByValuesRecordCursorFactory.class);
+            assertParallel(compiler, context, "select * from x latest by s where s in ('AA', 'ZZ', null)", ParallelLatestByValuesRecordCursorFactory.class);
+            assertParallel(compiler, context, "select * from x latest by s where s in ('YY', 'ZZ')", ParallelLatestByValuesRecordCursorFactory.class);
+        });
+    }
+
+    @Test
+    public void testNoWorkers() throws Exception {
+        executeWithPool(0, 16, 100, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            assertParallel(compiler, context, "select * from x latest by b");
+            assertParallel(compiler, context, "select * from x latest by s where s in ('AA', 'CC')");
+        });
+    }
+
+    @Test
+    public void testSmallQueue() throws Exception {
+        executeWithPool(2, 1, 7, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            assertParallel(compiler, context, "select * from x latest by b");
+        });
+    }
+
+    @Test
+    public void testToTop() throws Exception {
+        executeWithPool(3, 8, 50, (engine, compiler, context) -> {
+            createTable(compiler, context);
+            try (RecordCursorFactory factory = compiler.compile("x latest by b", context).getRecordCursorFactory()) {
+                TestUtils.printSql(compiler, context, "x latest by b", expectedSink);
+                // factory can be executed again
+                for (int i = 0; i < 3; i++) {
+                    try (RecordCursor cursor = factory.getCursor(context)) {
+                        TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                        TestUtils.assertEquals(expectedSink, actualSink);
+                        cursor.toTop();
+                        TestUtils.printCursor(cursor, factory.getMetadata(), true, actualSink, printer);
+                        TestUtils.assertEquals(expectedSink, actualSink);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void assertParallel(SqlCompiler compiler, SqlExecutionContext context, String query) throws SqlException {
+        assertParallel(compiler, context, query, null);
+    }
+
+    private static void assertParallel(
+            SqlCompiler compiler,
+            SqlExecutionContext context,
+            String query,
+            Class<?> expectedFactoryClass
+    ) throws SqlException {
+        parallelEnabled = false;
+        TestUtils.printSql(compiler, context, query, expectedSink);
+        parallelEnabled = true;
+        try (RecordCursorFactory factory = compiler.compile(query, context).getRecordCursorFactory()) {
+            if (expectedFactoryClass != null) {
+                Assert.assertSame(expectedFactoryClass, factory.getClass());
+            }
+        }
+        TestUtils.printSql(compiler, context, query, actualSink);
+        TestUtils.assertEquals(expectedSink, actualSink);
+    }
+
+    private static void createTable(SqlCompiler compiler, SqlExecutionContext context) throws SqlException {
+        compiler.compile(
+                "create table x as (" +
+                        "select" +
+                        " rnd_double(2)*100 a," +
+                        " rnd_symbol(20,4,4,1) b," +
+                        " rnd_symbol('AA', 'BB', 'CC', 'DD') s," +
+                        " rnd_int(0, 1000, 2) i," +
+                        " timestamp_sequence(0, 100000000) k" +
+                        " from long_sequence(5000)" +
+                        ") timestamp(k) partition by DAY",
+                context
+        );
+    }
+
+    private static void executeWithPool(
+            int workerCount,
+            int queueCapacity,
+            long rangeRows,
+            ParallelLatestByRunnable runnable
+    ) throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            parallelEnabled = true;
+            final FilesFacade ff = new FilesFacadeImpl() {
+                @Override
+                public long openRO(LPSZ name) {
+                    if (Chars.endsWith(name, Files.SEPARATOR + "b.d")) {
+                        symbolColumnOpenCount++;
+                    }
+                    return super.openRO(name);
+                }
+            };
+
+            final CairoConfiguration configuration = new DefaultCairoConfiguration(root) {
+                @Override
+                public FilesFacade getFilesFacade() {
+                    return ff;
+                }
+
+                @Override
+                public int getLatestByScanQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                @Override
+                public boolean isSqlParallelLatestByEnabled() {
+                    return parallelEnabled;
+                }
+
+                @Override
+                public long getSqlParallelLatestByRangeRows() {
+                    return rangeRows;
+                }
+            };
+
+            final WorkerPool pool = workerCount > 0 ? createPool(workerCount) : null;
+            try (
+                    final CairoEngine engine = new CairoEngine(configuration);
+                    final SqlCompiler compiler = new SqlCompiler(engine);
+                    final SqlExecutionContext context = new SqlExecutionContextImpl(engine, Math.max(1, workerCount))
+            ) {
+                try {
+                    if (pool != null) {
+                        pool.assignCleaner(Path.CLEANER);
+                        pool.assign(new LatestByScanJob(engine.getMessageBus()));
+                        pool.start(LOG);
+                    }
+
+                    runnable.run(engine, compiler, context);
+                    Assert.assertEquals(0, engine.getBusyWriterCount());
+                    Assert.assertEquals(0, engine.getBusyReaderCount());
+                } finally {
+                    if (pool != null) {
+                        pool.halt();
+                    }
+                }
+            }
+        });
+    }
+
+    private static WorkerPool createPool(int workerCount) {
+        final int[] affinity = new int[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            affinity[i] = -1;
+        }
+
+        return new WorkerPool(
+                new WorkerPoolAwareConfiguration() {
+                    @Override
+                    public int[] getWorkerAffinity() {
+                        return affinity;
+                    }
+
+                    @Override
+                    public int getWorkerCount() {
+                        return workerCount;
+                    }
+
+                    @Override
+                    public boolean haltOnError() {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean isEnabled() {
+                        return true;
+                    }
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface ParallelLatestByRunnable {
+        void run(CairoEngine engine, SqlCompiler compiler, SqlExecutionContext context) throws Exception;
+    }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin;
+
+import io.questdb.cairo.sql.RecordCursor;
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.engine.LimitOverflowException;
+import io.questdb.std.QueryMemoryAccount;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryMemoryLimitTest extends AbstractGriffinTest {
+
+    @Test
+    public void testGlobalLimitExceeded() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            QueryMemoryAccount.setGlobalLimit(QueryMemoryAccount.getGlobalUsed() + 64 * 1024);
+            try {
+                assertLimitExceeded("select s, count() from x", "global query memory limit exceeded");
+            } finally {
+                QueryMemoryAccount.setGlobalLimit(0);
+            }
+        });
+    }
+
+    @Test
+    public void testGroupByLimitExceeded() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertLimitExceeded(64 * 1024, "select s, count() from x", "tag=NATIVE_FAST_MAP");
+        });
+    }
+
+    @Test
+    public void testOrderByLimitExceeded() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            assertLimitExceeded(64 * 1024, "select * from x order by s", "query memory limit exceeded");
+        });
+    }
+
+    @Test
+    public void testQueryWithinLimit() throws Exception {
+        assertMemoryLeak(() -> {
+            createX();
+            final QueryMemoryAccount account = new QueryMemoryAccount(256 * 1024 * 1024);
+            final QueryMemoryAccount prev = QueryMemoryAccount.bind(account);
+            try {
+                Assert.assertEquals(20_000, count("select s, count() from x"));
+                Assert.assertTrue(account.getPeak() > 0);
+            } finally {
+                QueryMemoryAccount.bind(prev);
+            }
+        });
+    }
+
+    private static void createX() throws SqlException {
+        compiler.compile("create table x as (select rnd_str(8, 16, 0) s, x l from long_sequence(20000))", sqlExecutionContext);
+    }
+
+    private static long count(String query) throws SqlException {
+        long count = 0;
+        try (
+                RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory();
+                RecordCursor cursor = factory.getCursor(sqlExecutionContext)
+        ) {
+            while (cursor.hasNext()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void assertLimitExceeded(long limit, String query, String expectedMessage) throws SqlException {
+        final QueryMemoryAccount account = new QueryMemoryAccount(limit);
+        final QueryMemoryAccount prev = QueryMemoryAccount.bind(account);
+        try {
+            assertLimitExceeded(query, expectedMessage);
+        } finally {
+            QueryMemoryAccount.bind(prev);
+        }
+    }
+
+    private void assertLimitExceeded(String query, String expectedMessage) throws SqlException {
+        try {
+            count(query);
+            Assert.fail();
+        } catch (LimitOverflowException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), expectedMessage);
+        }
+    }
+}
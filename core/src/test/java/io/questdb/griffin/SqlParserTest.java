@@ -157,6 +157,80 @@ public class SqlParserTest extends AbstractSqlParserTest {
         );
     }
 
+    @Test
+    public void testAnalyticFrameBetween() throws Exception {
+        assertQuery(
+                "select-analytic a, avg(c) avg over (partition by b order by ts rows between 10 preceding and current row) from (select [a, c, b, ts] from xyz timestamp (ts))",
+                "select a, avg(c) over (partition by b order by ts rows between 10 preceding and current row) from xyz",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("b", ColumnType.INT)
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameInSubQuery() throws Exception {
+        assertQuery(
+                "select-virtual ts, s / 2 column from (select-analytic [ts, sum(c) s over (order by ts rows between 2 preceding and current row)] ts, sum(c) s over (order by ts rows between 2 preceding and current row) from (select [ts, c] from xyz timestamp (ts)))",
+                "select ts, s / 2 from (select ts, sum(c) over (order by ts rows 2 preceding) s from xyz)",
+                modelOf("xyz")
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameMissingPreceding() throws Exception {
+        assertSyntaxError(
+                "select a, avg(c) over (order by ts rows 10 following) from xyz",
+                43,
+                "'preceding' expected",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameNegativeOffset() throws Exception {
+        assertSyntaxError(
+                "select a, avg(c) over (order by ts rows -1 preceding) from xyz",
+                40,
+                "'unbounded', 'current' or frame offset expected",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameRangeUnits() throws Exception {
+        assertQuery(
+                "select-analytic ts, sum(c) s over (order by ts range between 90000000 preceding and current row), max(c) m over (order by ts range between unbounded preceding and current row), first_value(c) f over (order by ts range between 0 preceding and current row) from (select [ts, c] from xyz timestamp (ts))",
+                "select ts, sum(c) over (order by ts range 90 seconds preceding) s, max(c) over (order by ts range unbounded preceding) m, first_value(c) over (order by ts range current row) f from xyz",
+                modelOf("xyz")
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
+    @Test
+    public void testAnalyticFrameRowsWithUnit() throws Exception {
+        assertSyntaxError(
+                "select a, avg(c) over (order by ts rows 10 seconds preceding) from xyz",
+                43,
+                "'preceding' expected",
+                modelOf("xyz")
+                        .col("a", ColumnType.INT)
+                        .col("c", ColumnType.DOUBLE)
+                        .timestamp("ts")
+        );
+    }
+
     @Test
     public void testAnalyticOrderDirection() throws Exception {
         assertQuery(
@@ -1291,7 +1365,7 @@ public class SqlParserTest extends AbstractSqlParserTest {
                         "timestamp(t) " +
                         "partition by EPOCH",
                 128,
-                "'NONE', 'DAY', 'MONTH' or 'YEAR' expected"
+                "'NONE', 'HOUR', 'DAY', 'MONTH' or 'YEAR' expected"
         );
     }
 
@@ -234,6 +234,37 @@ public class TimestampQueryTest extends AbstractGriffinTest {
         });
     }
 
+    @Test
+    public void testHourPartitionsOutOfOrderInsertAndInterval() throws Exception {
+        assertMemoryLeak(() -> {
+            //create table
+            String createStmt = "create table ob_mem_snapshot (symbol int,  me_seq_num long,  timestamp timestamp) timestamp(timestamp) partition by HOUR";
+            compiler.compile(createStmt, sqlExecutionContext);
+            //insert
+            executeInsert("INSERT INTO ob_mem_snapshot VALUES(1, 1, '2020-12-31T22:15:00.000000Z')");
+            executeInsert("INSERT INTO ob_mem_snapshot VALUES(2, 2, '2020-12-31T23:59:59.000000Z')");
+            executeInsert("INSERT INTO ob_mem_snapshot VALUES(3, 3, '2020-12-31T23:00:00.000000Z')");
+            executeInsert("INSERT INTO ob_mem_snapshot VALUES(4, 4, '2020-12-31T21:59:59.999999Z')");
+            String expected = "symbol\tme_seq_num\ttimestamp\n" +
+                    "4\t4\t2020-12-31T21:59:59.999999Z\n" +
+                    "1\t1\t2020-12-31T22:15:00.000000Z\n" +
+                    "3\t3\t2020-12-31T23:00:00.000000Z\n" +
+                    "2\t2\t2020-12-31T23:59:59.000000Z\n";
+            String query = "select * from ob_mem_snapshot";
+            printSqlResult(expected, query, "timestamp", true, true);
+            // test
+            expected = "symbol\tme_seq_num\ttimestamp\n" +
+                    "3\t3\t2020-12-31T23:00:00.000000Z\n" +
+                    "2\t2\t2020-12-31T23:59:59.000000Z\n";
+            query = "SELECT * FROM ob_mem_snapshot where timestamp IN '2020-12-31T23'";
+            printSqlResult(expected, query, "timestamp", true, true);
+            expected = "symbol\tme_seq_num\ttimestamp\n" +
+                    "1\t1\t2020-12-31T22:15:00.000000Z\n";
+            query = "SELECT * FROM ob_mem_snapshot where timestamp IN '2020-12-31T22'";
+            printSqlResult(expected, query, "timestamp", true, true);
+        });
+    }
+
     @Test
     public void testLMoreThanOrEqualsToTimestampFormatYearOnlyPositiveTest1() throws Exception {
         assertMemoryLeak(() -> {
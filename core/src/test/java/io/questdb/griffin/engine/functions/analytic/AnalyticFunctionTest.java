@@ -0,0 +1,268 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.griffin.engine.functions.analytic;
+
+import io.questdb.cairo.sql.RecordCursorFactory;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.engine.analytic.CachedAnalyticRecordCursorFactory;
+import io.questdb.griffin.engine.analytic.StreamingAnalyticRecordCursorFactory;
+import io.questdb.std.str.StringSink;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AnalyticFunctionTest extends AbstractGriffinTest {
+
+    private static final String DDL = "create table t as (" +
+            "select x, cast(x as double) price, x % 2 grp, timestamp_sequence(0, 1000000) ts from long_sequence(6)" +
+            ") timestamp(ts)";
+
+    @Test
+    public void testCumulativeSumPartitioned() throws Exception {
+        assertQuery(
+                "x\tgrp\ts\trn\n" +
+                        "1\t1\t1.0\t0\n" +
+                        "2\t0\t2.0\t0\n" +
+                        "3\t1\t4.0\t1\n" +
+                        "4\t0\t6.0\t1\n" +
+                        "5\t1\t9.0\t2\n" +
+                        "6\t0\t12.0\t2\n",
+                "select x, grp, sum(price) over (partition by grp order by ts) s, row_number() over (partition by grp order by ts) rn from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testFrameDescendingOrderIsCached() throws Exception {
+        assertQuery(
+                "x\ts\tm\n" +
+                        "1\t3.0\t3.0\n" +
+                        "2\t5.0\t4.0\n" +
+                        "3\t7.0\t5.0\n" +
+                        "4\t9.0\t6.0\n" +
+                        "5\t11.0\t5.0\n" +
+                        "6\t6.0\t6.0\n",
+                "select x, sum(price) over (order by x desc rows 1 preceding) s, max(price) over (partition by grp order by x desc rows 1 preceding) m from t",
+                DDL,
+                null,
+                true
+        );
+        assertFactory("select x, sum(price) over (order by x desc rows 1 preceding) s from t", CachedAnalyticRecordCursorFactory.class);
+    }
+
+    @Test
+    public void testLag() throws Exception {
+        assertQuery(
+                "x\tl1\tl2\tl0\n" +
+                        "1\tNaN\t-1.0\t1.0\n" +
+                        "2\t1.0\t-1.0\t2.0\n" +
+                        "3\t2.0\t1.0\t3.0\n" +
+                        "4\t3.0\t2.0\t4.0\n" +
+                        "5\t4.0\t3.0\t5.0\n" +
+                        "6\t5.0\t4.0\t6.0\n",
+                "select x, lag(price) over (order by ts) l1, lag(price, 2, -1) over (order by ts) l2, lag(price, 0) over (order by ts) l0 from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+        assertFactory("select x, lag(price) over (order by ts) l1 from t", StreamingAnalyticRecordCursorFactory.class);
+    }
+
+    @Test
+    public void testLagInvalidDefault() throws Exception {
+        assertFailure("select x, lag(price, 1, 'a') over () l from t", DDL, 24, "numeric default value expected");
+    }
+
+    @Test
+    public void testLagNegativeOffset() throws Exception {
+        assertFailure("select x, lag(price, -1) over () l from t", DDL, 21, "offset must be a non-negative integer");
+    }
+
+    @Test
+    public void testLead() throws Exception {
+        assertQuery(
+                "x\tl1\tl2\tl3\n" +
+                        "1\t2.0\t3.0\t3.0\n" +
+                        "2\t3.0\t4.0\t4.0\n" +
+                        "3\t4.0\t5.0\t5.0\n" +
+                        "4\t5.0\t6.0\t6.0\n" +
+                        "5\t6.0\t-1.0\tNaN\n" +
+                        "6\tNaN\t-1.0\tNaN\n",
+                "select x, lead(price) over (order by ts) l1, lead(price, 2, -1) over (order by ts) l2, lead(price) over (partition by grp order by ts) l3 from t",
+                DDL,
+                null,
+                true
+        );
+        // lead() looks ahead of current row, it requires cached input
+        assertFactory("select x, lead(price) over (order by ts) l1 from t", CachedAnalyticRecordCursorFactory.class);
+    }
+
+    @Test
+    public void testMovingAggregatesOverRows() throws Exception {
+        assertQuery(
+                "x\ta\ts\tmn\tmx\n" +
+                        "1\t1.0\t1.0\t1.0\t1.0\n" +
+                        "2\t1.5\t3.0\t1.0\t2.0\n" +
+                        "3\t2.0\t6.0\t1.0\t3.0\n" +
+                        "4\t3.0\t9.0\t2.0\t4.0\n" +
+                        "5\t4.0\t12.0\t3.0\t5.0\n" +
+                        "6\t5.0\t15.0\t4.0\t6.0\n",
+                "select x," +
+                        " avg(price) over (order by ts rows between 2 preceding and current row) a," +
+                        " sum(price) over (order by ts rows 2 preceding) s," +
+                        " min(price) over (order by ts rows 2 preceding) mn," +
+                        " max(price) over (order by ts rows 2 preceding) mx" +
+                        " from t",
+                DDL,
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testMovingAggregatesOverTimeRange() throws Exception {
+        assertQuery(
+                "ts\ta\tf\tmx\n" +
+                        "1970-01-01T00:00:00.000000Z\t1.0\t1.0\t1.0\n" +
+                        "1970-01-01T00:00:01.000000Z\t1.5\t1.0\t2.0\n" +
+                        "1970-01-01T00:00:02.000000Z\t2.0\t1.0\t3.0\n" +
+                        "1970-01-01T00:00:03.000000Z\t3.0\t2.0\t4.0\n" +
+                        "1970-01-01T00:00:04.000000Z\t4.0\t3.0\t5.0\n" +
+                        "1970-01-01T00:00:05.000000Z\t5.0\t4.0\t6.0\n",
+                "select ts," +
+                        " avg(price) over (order by ts range 2 seconds preceding) a," +
+                        " first_value(price) over (order by ts range between 2 seconds preceding and current row) f," +
+                        " max(price) over (order by ts range 2000 milliseconds preceding) mx" +
+                        " from t",
+                DDL,
+                "ts",
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testNulls() throws Exception {
+        assertQuery(
+                "x\ts\ta\tmn\tf\tl\n" +
+                        "1\tNaN\tNaN\tNaN\tNaN\tNaN\n" +
+                        "2\t2.0\t2.0\t2.0\tNaN\tNaN\n" +
+                        "3\t2.0\t2.0\t2.0\t2.0\t2.0\n" +
+                        "4\t4.0\t4.0\t4.0\tNaN\tNaN\n" +
+                        "5\t4.0\t4.0\t4.0\t4.0\t4.0\n" +
+                        "6\t6.0\t6.0\t6.0\tNaN\tNaN\n",
+                "select x," +
+                        " sum(price) over (order by ts rows 1 preceding) s," +
+                        " avg(price) over (order by ts rows 1 preceding) a," +
+                        " min(price) over (order by ts rows 1 preceding) mn," +
+                        " first_value(price) over (order by ts rows 1 preceding) f," +
+                        " lag(price) over (order by ts) l" +
+                        " from t",
+                "create table t as (" +
+                        "select x, case when x % 2 = 0 then cast(x as double) else null end price, timestamp_sequence(0, 1000000) ts from long_sequence(6)" +
+                        ") timestamp(ts)",
+                null,
+                false,
+                true,
+                true
+        );
+    }
+
+    @Test
+    public void testRangeFrameRequiresDesignatedTimestamp() throws Exception {
+        assertFailure(
+                "select x, avg(price) over (order by x range 1 second preceding) a from t",
+                DDL,
+                10,
+                "RANGE frame requires ordering by designated timestamp"
+        );
+    }
+
+    @Test
+    public void testStreamingMatchesCached() throws Exception {
+        assertMemoryLeak(() -> {
+            compiler.compile(
+                    "create table trades as (" +
+                            "select rnd_symbol('a','b','c') sym, rnd_double(2) price, timestamp_sequence(0, 15000000) ts from long_sequence(1000)" +
+                            ") timestamp(ts)",
+                    sqlExecutionContext
+            );
+            final String columns = "ts, sym," +
+                    " avg(price) over (partition by sym order by ts rows 5 preceding) a," +
+                    " sum(price) over (order by ts range 1 minute preceding) s," +
+                    " min(price) over (partition by sym order by ts range 3 minutes preceding) mn," +
+                    " max(price) over (order by ts rows 20 preceding) mx," +
+                    " first_value(price) over (partition by sym order by ts rows 3 preceding) f," +
+                    " lag(price, 3) over (partition by sym order by ts) l";
+            final String streamed = "select " + columns + " from trades";
+            // lead() makes all functions computed over cached input
+            final String cached = "select ts, sym, a, s, mn, mx, f, l from (select " + columns + ", lead(price) over (order by ts) ld from trades)";
+
+            assertFactory(streamed, StreamingAnalyticRecordCursorFactory.class);
+            final StringSink expected = new StringSink();
+            TestUtils.printSql(compiler, sqlExecutionContext, streamed, expected);
+            assertSql(cached, expected);
+        });
+    }
+
+    @Test
+    public void testVwap() throws Exception {
+        assertQuery(
+                "ts\tvwap\n" +
+                        "1970-01-01T00:00:00.000000Z\t1.0\n" +
+                        "1970-01-01T00:00:01.000000Z\t1.6666666666666667\n" +
+                        "1970-01-01T00:00:02.000000Z\t2.3333333333333335\n" +
+                        "1970-01-01T00:00:03.000000Z\t3.2222222222222223\n" +
+                        "1970-01-01T00:00:04.000000Z\t4.166666666666667\n" +
+                        "1970-01-01T00:00:05.000000Z\t5.133333333333334\n",
+                "select ts, pv / v vwap from (" +
+                        "select ts," +
+                        " sum(price * x) over (order by ts range 2 seconds preceding) pv," +
+                        " sum(x) over (order by ts range 2 seconds preceding) v" +
+                        " from t" +
+                        ")",
+                DDL,
+                "ts",
+                false,
+                true,
+                true
+        );
+    }
+
+    private void assertFactory(String query, Class<?> expectedClass) throws Exception {
+        try (RecordCursorFactory factory = compiler.compile(query, sqlExecutionContext).getRecordCursorFactory()) {
+            Assert.assertSame(expectedClass, factory.getClass());
+        }
+    }
+}
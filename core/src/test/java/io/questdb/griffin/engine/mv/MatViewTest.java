@@ -0,0 +1,197 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.griffin.engine.mv;
+
+import io.questdb.cairo.mv.MatViewDefinition;
+import io.questdb.cairo.mv.MatViewRegistry;
+import io.questdb.griffin.AbstractGriffinTest;
+import io.questdb.griffin.SqlException;
+import io.questdb.log.Log;
+import io.questdb.log.LogFactory;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatViewTest extends AbstractGriffinTest {
+
+    private static final Log LOG = LogFactory.getLog(MatViewTest.class);
+    private static final String VIEW_QUERY = "select ts, sym, sum(price) s, count() c from base sample by 1h align to calendar";
+
+    @Test
+    public void testBaseTableNotPartitioned() throws Exception {
+        assertFailure(
+                "create materialized view mv as (select ts, sum(price) from base sample by 1h align to calendar)",
+                "create table base as (select rnd_double() price, timestamp_sequence(0, 60000000) ts from long_sequence(10)) timestamp(ts)",
+                59,
+                "base table of materialized view must be partitioned"
+        );
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            assertView();
+            Assert.assertNotNull(engine.getMatViewRegistry().getView("mv"));
+        });
+    }
+
+    @Test
+    public void testDropView() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            compiler.compile("drop table mv", sqlExecutionContext);
+            Assert.assertNull(engine.getMatViewRegistry().getView("mv"));
+        });
+    }
+
+    @Test
+    public void testFillNotSupported() throws Exception {
+        assertFailure(
+                "create materialized view mv as (select ts, sum(price) from base sample by 1h fill(prev) align to calendar)",
+                "create table base as (select rnd_double() price, timestamp_sequence(0, 60000000) ts from long_sequence(10)) timestamp(ts) partition by DAY",
+                82,
+                "FILL is not supported by materialized view"
+        );
+    }
+
+    @Test
+    public void testFirstObservationAlignmentNotSupported() throws Exception {
+        assertFailure(
+                "create materialized view mv as (select ts, sum(price) from base sample by 1h)",
+                "create table base as (select rnd_double() price, timestamp_sequence(0, 60000000) ts from long_sequence(10)) timestamp(ts) partition by DAY",
+                74,
+                "materialized view query requires ALIGN TO CALENDAR"
+        );
+    }
+
+    @Test
+    public void testIntervalNotAlignedToPartitions() throws Exception {
+        assertFailure(
+                "create materialized view mv as (select ts, sum(price) from base sample by 7h align to calendar)",
+                "create table base as (select rnd_double() price, timestamp_sequence(0, 60000000) ts from long_sequence(10)) timestamp(ts) partition by DAY",
+                74,
+                "SAMPLE BY interval must divide DAY partitions of base table"
+        );
+    }
+
+    @Test
+    public void testRecoverRegistry() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            try (MatViewRegistry registry = new MatViewRegistry(configuration)) {
+                final MatViewDefinition view = registry.getView("mv");
+                Assert.assertNotNull(view);
+                Assert.assertEquals("base", view.getBaseTableName());
+                Assert.assertEquals("ts", view.getTimestampName());
+                Assert.assertEquals(VIEW_QUERY, view.getQuery());
+            }
+        });
+    }
+
+    @Test
+    public void testRefreshAppend() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            try (MatViewRefreshJob job = new MatViewRefreshJob(engine)) {
+                Assert.assertFalse(job.refresh());
+
+                // last partition and a new one
+                compiler.compile(
+                        "insert into base select rnd_symbol('a','b','c') sym, rnd_double() price, timestamp_sequence('2021-01-02T20:30', 1800000000) ts from long_sequence(20)",
+                        sqlExecutionContext
+                );
+                Assert.assertTrue(job.refresh());
+                assertView();
+                Assert.assertFalse(job.refresh());
+            }
+        });
+    }
+
+    @Test
+    public void testRefreshOutOfOrder() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            try (MatViewRefreshJob job = new MatViewRefreshJob(engine)) {
+                compiler.compile(
+                        "insert into base select rnd_symbol('a','b','c','d') sym, rnd_double() price, timestamp_sequence('2021-01-01T03:15', 60000000) ts from long_sequence(30)",
+                        sqlExecutionContext
+                );
+                Assert.assertTrue(job.refresh());
+                assertView();
+            }
+        });
+    }
+
+    @Test
+    public void testRefreshRemovedPartition() throws Exception {
+        assertMemoryLeak(() -> {
+            createBase();
+            createView();
+            try (MatViewRefreshJob job = new MatViewRefreshJob(engine)) {
+                compiler.compile("alter table base drop partition list '2021-01-01'", sqlExecutionContext);
+                Assert.assertTrue(job.refresh());
+                assertView();
+            }
+        });
+    }
+
+    @Test
+    public void testSampleByRequired() throws Exception {
+        assertFailure(
+                "create materialized view mv as (select ts, price from base)",
+                "create table base as (select rnd_double() price, timestamp_sequence(0, 60000000) ts from long_sequence(10)) timestamp(ts) partition by DAY",
+                32,
+                "materialized view query requires SAMPLE BY"
+        );
+    }
+
+    private void assertView() throws SqlException {
+        TestUtils.assertSqlCursors(
+                compiler,
+                sqlExecutionContext,
+                "select * from (" + VIEW_QUERY + ") order by ts, sym",
+                "mv order by ts, sym",
+                LOG
+        );
+    }
+
+    private void createBase() throws SqlException {
+        compiler.compile(
+                "create table base as (select rnd_symbol('a','b','c') sym, rnd_double() price, timestamp_sequence('2021-01-01', 1800000000) ts from long_sequence(96)) timestamp(ts) partition by DAY",
+                sqlExecutionContext
+        );
+    }
+
+    private void createView() throws SqlException {
+        compiler.compile("create materialized view mv as (" + VIEW_QUERY + ")", sqlExecutionContext);
+    }
+}
@@ -26,9 +26,13 @@ package io.questdb.metrics;
 
 import io.questdb.std.str.CharSink;
 import io.questdb.std.str.StringSink;
+import io.questdb.std.Rnd;
 import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.function.LongSupplier;
+
 public class MetricsRegistryTest {
 
     @Test
@@ -87,6 +91,130 @@ public class MetricsRegistryTest {
         assertScrapable(counter, expected);
     }
 
+    @Test
+    public void testCounterAdd() {
+        MetricsRegistry metricsRegistry = new MetricsRegistryImpl();
+        Counter counter = metricsRegistry.newCounter("counter");
+
+        counter.add(10);
+        counter.inc();
+
+        String expected = "# TYPE questdb_counter_total counter\n" +
+                "questdb_counter_total 11\n" +
+                "\n";
+        assertScrapable(counter, expected);
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new HistogramImpl("histogram", 1, 4);
+
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(9);
+        histogram.record(12);
+        histogram.record(100);
+        histogram.record(-1);
+
+        String expected = "# TYPE questdb_histogram histogram\n" +
+                "questdb_histogram_bucket{le=\"0\"} 2\n" +
+                "questdb_histogram_bucket{le=\"1\"} 2\n" +
+                "questdb_histogram_bucket{le=\"2\"} 2\n" +
+                "questdb_histogram_bucket{le=\"3\"} 3\n" +
+                "questdb_histogram_bucket{le=\"5\"} 4\n" +
+                "questdb_histogram_bucket{le=\"7\"} 4\n" +
+                "questdb_histogram_bucket{le=\"11\"} 5\n" +
+                "questdb_histogram_bucket{le=\"15\"} 6\n" +
+                "questdb_histogram_bucket{le=\"+Inf\"} 7\n" +
+                "questdb_histogram_sum 129\n" +
+                "questdb_histogram_count 7\n" +
+                "\n";
+        assertScrapable(histogram, expected);
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        HistogramImpl histogram = new HistogramImpl("histogram", 3, 40);
+        Rnd rnd = new Rnd();
+        for (int i = 0; i < 10_000; i++) {
+            long value = rnd.nextPositiveLong() >>> (24 + rnd.nextInt(40));
+            int index = histogram.bucketIndex(value);
+            Assert.assertTrue(histogram.bucketHi(index) >= value);
+            if (index > 0) {
+                Assert.assertTrue(histogram.bucketHi(index - 1) < value);
+            }
+            // relative error is bounded by sub-bucket count
+            Assert.assertTrue(histogram.bucketHi(index) - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void testHistogramWithOneLabel() {
+        HistogramWithOneLabel histogram = new HistogramWithOneLabelImpl("histogram", "label0", 1, 2);
+
+        Histogram b = histogram.withLabel("B");
+        b.record(1);
+        b.record(2);
+        histogram.withLabel("A").record(3);
+        Assert.assertSame(b, histogram.withLabel("B"));
+
+        String expected = "# TYPE questdb_histogram histogram\n" +
+                "questdb_histogram_bucket{label0=\"A\",le=\"0\"} 0\n" +
+                "questdb_histogram_bucket{label0=\"A\",le=\"1\"} 0\n" +
+                "questdb_histogram_bucket{label0=\"A\",le=\"2\"} 0\n" +
+                "questdb_histogram_bucket{label0=\"A\",le=\"3\"} 1\n" +
+                "questdb_histogram_bucket{label0=\"A\",le=\"+Inf\"} 1\n" +
+                "questdb_histogram_sum{label0=\"A\"} 3\n" +
+                "questdb_histogram_count{label0=\"A\"} 1\n" +
+                "questdb_histogram_bucket{label0=\"B\",le=\"0\"} 0\n" +
+                "questdb_histogram_bucket{label0=\"B\",le=\"1\"} 1\n" +
+                "questdb_histogram_bucket{label0=\"B\",le=\"2\"} 2\n" +
+                "questdb_histogram_bucket{label0=\"B\",le=\"3\"} 2\n" +
+                "questdb_histogram_bucket{label0=\"B\",le=\"+Inf\"} 2\n" +
+                "questdb_histogram_sum{label0=\"B\"} 3\n" +
+                "questdb_histogram_count{label0=\"B\"} 2\n" +
+                "\n";
+        assertScrapable(histogram, expected);
+    }
+
+    @Test
+    public void testNullHistogram() {
+        MetricsRegistry metricsRegistry = new NullMetricsRegistry();
+        Histogram histogram = metricsRegistry.newHistogram("histogram");
+        HistogramWithOneLabel histogramWithLabel = metricsRegistry.newHistogram("histogram", "label0");
+
+        histogram.record(42);
+        histogramWithLabel.withLabel("A").record(42);
+        assetNull(histogram);
+        assetNull(histogramWithLabel);
+    }
+
+    @Test
+    public void testVirtualGauge() {
+        MetricsRegistry metricsRegistry = new MetricsRegistryImpl();
+        long[] values = {3, 5};
+        Scrapable gauge = metricsRegistry.newVirtualGauge(
+                "gauge",
+                "label0",
+                new CharSequence[]{"A", "B"},
+                new LongSupplier[]{() -> values[0], () -> values[1]}
+        );
+
+        String expected1 = "# TYPE questdb_gauge gauge\n" +
+                "questdb_gauge{label0=\"A\"} 3\n" +
+                "questdb_gauge{label0=\"B\"} 5\n" +
+                "\n";
+        assertScrapable(gauge, expected1);
+
+        values[1] = 0;
+        String expected2 = "# TYPE questdb_gauge gauge\n" +
+                "questdb_gauge{label0=\"A\"} 3\n" +
+                "questdb_gauge{label0=\"B\"} 0\n" +
+                "\n";
+        assertScrapable(gauge, expected2);
+    }
+
     @Test
     public void testNullCounter() {
         MetricsRegistry metricsRegistry = new NullMetricsRegistry();
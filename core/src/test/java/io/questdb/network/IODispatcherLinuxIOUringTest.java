@@ -0,0 +1,223 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.network;
+
+import io.questdb.mp.SOCountDownLatch;
+import io.questdb.std.Os;
+import io.questdb.std.Unsafe;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IODispatcherLinuxIOUringTest {
+    private static final int PORT = 9011;
+
+    @Test
+    public void testEcho() throws Exception {
+        assumeIOUring();
+        TestUtils.assertMemoryLeak(() -> {
+            final SOCountDownLatch closeLatch = new SOCountDownLatch(1);
+            try (IODispatcher<EchoContext> dispatcher = IODispatchers.create(
+                    new IOUringConfiguration(5 * 60 * 1000L),
+                    (fd, d) -> new EchoContext(fd, closeLatch, d)
+            )) {
+                Assert.assertTrue(dispatcher instanceof IODispatcherLinuxIOUring);
+                final AtomicBoolean serverRunning = new AtomicBoolean(true);
+                final SOCountDownLatch serverHaltLatch = new SOCountDownLatch(1);
+                startServer(dispatcher, serverRunning, serverHaltLatch);
+
+                long fd = Net.socketTcp(true);
+                final long sockAddr = Net.sockaddr("127.0.0.1", PORT);
+                final long buf = Unsafe.malloc(EchoContext.BUF_SIZE);
+                try {
+                    TestUtils.assertConnect(fd, sockAddr);
+                    for (int i = 0; i < 100; i++) {
+                        Unsafe.getUnsafe().putLong(buf, i);
+                        Assert.assertEquals(Long.BYTES, Net.send(fd, buf, Long.BYTES));
+                        Unsafe.getUnsafe().putLong(buf, -1);
+                        Assert.assertEquals(Long.BYTES, Net.recv(fd, buf, Long.BYTES));
+                        Assert.assertEquals(i, Unsafe.getUnsafe().getLong(buf));
+                    }
+                    Assert.assertEquals(0, Net.close(fd));
+                    fd = -1;
+                    closeLatch.await();
+                } finally {
+                    serverRunning.set(false);
+                    serverHaltLatch.await();
+                    Unsafe.free(buf, EchoContext.BUF_SIZE);
+                    Net.freeSockAddr(sockAddr);
+                    if (fd != -1) {
+                        Net.close(fd);
+                    }
+                }
+                Assert.assertEquals(0, dispatcher.getConnectionCount());
+            }
+        });
+    }
+
+    @Test
+    public void testFallbackToEpoll() throws Exception {
+        Assume.assumeTrue(Os.type == Os.LINUX_AMD64 || Os.type == Os.LINUX_ARM64);
+        TestUtils.assertMemoryLeak(() -> {
+            final SOCountDownLatch closeLatch = new SOCountDownLatch(1);
+            try (IODispatcher<EchoContext> dispatcher = IODispatchers.create(
+                    new IOUringConfiguration(5 * 60 * 1000L) {
+                        @Override
+                        public IOUringFacade getIOUringFacade() {
+                            return new IOUringFacadeImpl() {
+                                @Override
+                                public boolean isAvailable() {
+                                    return false;
+                                }
+                            };
+                        }
+                    },
+                    (fd, d) -> new EchoContext(fd, closeLatch, d)
+            )) {
+                Assert.assertTrue(dispatcher instanceof IODispatcherLinux);
+            }
+        });
+    }
+
+    @Test
+    public void testIdleConnectionIsDisconnected() throws Exception {
+        assumeIOUring();
+        TestUtils.assertMemoryLeak(() -> {
+            final SOCountDownLatch closeLatch = new SOCountDownLatch(1);
+            try (IODispatcher<EchoContext> dispatcher = IODispatchers.create(
+                    new IOUringConfiguration(100),
+                    (fd, d) -> new EchoContext(fd, closeLatch, d)
+            )) {
+                final AtomicBoolean serverRunning = new AtomicBoolean(true);
+                final SOCountDownLatch serverHaltLatch = new SOCountDownLatch(1);
+                startServer(dispatcher, serverRunning, serverHaltLatch);
+
+                final long fd = Net.socketTcp(true);
+                final long sockAddr = Net.sockaddr("127.0.0.1", PORT);
+                final long buf = Unsafe.malloc(EchoContext.BUF_SIZE);
+                try {
+                    TestUtils.assertConnect(fd, sockAddr);
+                    closeLatch.await();
+                    // server must have closed the socket rather than just forgotten about it
+                    Assert.assertTrue(Net.recv(fd, buf, EchoContext.BUF_SIZE) <= 0);
+                } finally {
+                    serverRunning.set(false);
+                    serverHaltLatch.await();
+                    Unsafe.free(buf, EchoContext.BUF_SIZE);
+                    Net.freeSockAddr(sockAddr);
+                    Net.close(fd);
+                }
+                Assert.assertEquals(0, dispatcher.getConnectionCount());
+            }
+        });
+    }
+
+    private static void assumeIOUring() {
+        Assume.assumeTrue(Os.type == Os.LINUX_AMD64 || Os.type == Os.LINUX_ARM64);
+        Assume.assumeTrue(IOUringFacadeImpl.INSTANCE.isAvailable());
+    }
+
+    private static void startServer(IODispatcher<EchoContext> dispatcher, AtomicBoolean serverRunning, SOCountDownLatch serverHaltLatch) {
+        new Thread(() -> {
+            while (serverRunning.get()) {
+                dispatcher.run(0);
+                dispatcher.processIOQueue((operation, context) -> {
+                    final int n = Net.recv(context.getFd(), context.buffer, EchoContext.BUF_SIZE);
+                    if (n > 0) {
+                        Assert.assertEquals(n, Net.send(context.getFd(), context.buffer, n));
+                        dispatcher.registerChannel(context, IOOperation.READ);
+                    } else if (n == 0) {
+                        dispatcher.registerChannel(context, IOOperation.READ);
+                    } else {
+                        dispatcher.disconnect(context, IODispatcher.DISCONNECT_REASON_TEST);
+                    }
+                });
+            }
+            serverHaltLatch.countDown();
+        }).start();
+    }
+
+    private static class EchoContext implements IOContext {
+        private static final int BUF_SIZE = 1024;
+        private final long fd;
+        private final long buffer = Unsafe.malloc(BUF_SIZE);
+        private final SOCountDownLatch closeLatch;
+        private final IODispatcher<EchoContext> dispatcher;
+
+        private EchoContext(long fd, SOCountDownLatch closeLatch, IODispatcher<EchoContext> dispatcher) {
+            this.fd = fd;
+            this.closeLatch = closeLatch;
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void close() {
+            Unsafe.free(buffer, BUF_SIZE);
+            closeLatch.countDown();
+        }
+
+        @Override
+        public long getFd() {
+            return fd;
+        }
+
+        @Override
+        public boolean invalid() {
+            return false;
+        }
+
+        @Override
+        public IODispatcher<EchoContext> getDispatcher() {
+            return dispatcher;
+        }
+    }
+
+    private static class IOUringConfiguration extends DefaultIODispatcherConfiguration {
+        private final long idleConnectionTimeout;
+
+        private IOUringConfiguration(long idleConnectionTimeout) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+        }
+
+        @Override
+        public int getBindPort() {
+            return PORT;
+        }
+
+        @Override
+        public long getIdleConnectionTimeout() {
+            return idleConnectionTimeout;
+        }
+
+        @Override
+        public boolean isIOUringEnabled() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2020 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.std;
+
+import io.questdb.griffin.engine.LimitOverflowException;
+import io.questdb.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryMemoryAccountTest {
+
+    @Test
+    public void testAllocationsAreCountedByTag() {
+        final long fastMapUsed = Unsafe.getMemUsedByTag(MemoryTag.NATIVE_FAST_MAP);
+        final long defaultUsed = Unsafe.getMemUsedByTag(MemoryTag.NATIVE_DEFAULT);
+
+        long ptr = Unsafe.malloc(1024, MemoryTag.NATIVE_FAST_MAP);
+        Assert.assertEquals(fastMapUsed + 1024, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_FAST_MAP));
+        ptr = Unsafe.realloc(ptr, 1024, 4096, MemoryTag.NATIVE_FAST_MAP);
+        Assert.assertEquals(fastMapUsed + 4096, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_FAST_MAP));
+        Assert.assertEquals(defaultUsed, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_DEFAULT));
+        Unsafe.free(ptr, 4096, MemoryTag.NATIVE_FAST_MAP);
+        Assert.assertEquals(fastMapUsed, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_FAST_MAP));
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        QueryMemoryAccount.setGlobalLimit(QueryMemoryAccount.getGlobalUsed() + 1024);
+        try {
+            long ptr = Unsafe.malloc(1024, MemoryTag.NATIVE_RECORD_CHAIN);
+            try {
+                Unsafe.malloc(1, MemoryTag.NATIVE_TREE_CHAIN);
+                Assert.fail();
+            } catch (LimitOverflowException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "global query memory limit exceeded");
+            }
+            // non-query memory is not limited
+            Unsafe.free(Unsafe.malloc(1, MemoryTag.NATIVE_DEFAULT), 1, MemoryTag.NATIVE_DEFAULT);
+            Unsafe.free(ptr, 1024, MemoryTag.NATIVE_RECORD_CHAIN);
+        } finally {
+            QueryMemoryAccount.setGlobalLimit(0);
+        }
+    }
+
+    @Test
+    public void testQueryLimit() {
+        final QueryMemoryAccount account = new QueryMemoryAccount(4096);
+        final QueryMemoryAccount prev = QueryMemoryAccount.bind(account);
+        try {
+            long ptr = Unsafe.malloc(1024, MemoryTag.NATIVE_FAST_MAP);
+            Assert.assertEquals(1024, account.getUsed());
+            try {
+                Unsafe.realloc(ptr, 1024, 8192, MemoryTag.NATIVE_FAST_MAP);
+                Assert.fail();
+            } catch (LimitOverflowException e) {
+                TestUtils.assertContains(e.getFlyweightMessage(), "query memory limit exceeded [limit=4096, used=1024, requested=7168, tag=NATIVE_FAST_MAP]");
+            }
+            // failed allocation leaves memory intact
+            Assert.assertEquals(1024, account.getUsed());
+            ptr = Unsafe.realloc(ptr, 1024, 4096, MemoryTag.NATIVE_FAST_MAP);
+            Assert.assertEquals(4096, account.getUsed());
+            Unsafe.free(ptr, 4096, MemoryTag.NATIVE_FAST_MAP);
+            Assert.assertEquals(0, account.getUsed());
+            Assert.assertEquals(4096, account.getPeak());
+
+            // default memory is not charged to query
+            Unsafe.free(Unsafe.malloc(8192), 8192);
+            Assert.assertEquals(0, account.getUsed());
+        } finally {
+            QueryMemoryAccount.bind(prev);
+        }
+
+        // allocations are not charged once account is unbound
+        Unsafe.free(Unsafe.malloc(8192, MemoryTag.NATIVE_FAST_MAP), 8192, MemoryTag.NATIVE_FAST_MAP);
+        Assert.assertEquals(0, account.getUsed());
+        account.reset();
+        Assert.assertEquals(0, account.getPeak());
+    }
+}